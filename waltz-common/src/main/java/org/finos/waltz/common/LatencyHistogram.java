@@ -0,0 +1,134 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock free histogram of non-negative values (typically latencies in microseconds).
+ *
+ * In the style of an HDR histogram, buckets are linear below <code>2^SUB_BUCKET_BITS</code>
+ * and thereafter each power of two is divided into <code>2^SUB_BUCKET_BITS</code> equal
+ * sub-buckets, so percentiles are accurate to within ~3% regardless of magnitude.
+ * Recording is a single atomic increment, values above {@link #MAX_TRACKABLE_VALUE} are
+ * clamped.
+ */
+public final class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_MAGNITUDE = 40;
+
+    public static final long MAX_TRACKABLE_VALUE = (1L << (MAX_MAGNITUDE + 1)) - 1;
+
+    private static final int BUCKET_COUNT = indexFor(MAX_TRACKABLE_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+    private final LongAdder totalCount = new LongAdder();
+    private final LongAdder totalValue = new LongAdder();
+    private final LongAccumulator maxValue = new LongAccumulator(Math::max, 0);
+
+
+    public void record(long value) {
+        long clamped = Math.max(0, Math.min(value, MAX_TRACKABLE_VALUE));
+        counts.incrementAndGet(indexFor(clamped));
+        totalCount.increment();
+        totalValue.add(clamped);
+        maxValue.accumulate(clamped);
+    }
+
+
+    public long count() {
+        return totalCount.sum();
+    }
+
+
+    public long total() {
+        return totalValue.sum();
+    }
+
+
+    public long max() {
+        return maxValue.get();
+    }
+
+
+    public double mean() {
+        long count = count();
+        return count == 0
+                ? 0
+                : (double) total() / count;
+    }
+
+
+    /**
+     * @param percentile  between 0 and 100
+     * @return the upper bound of the bucket containing the given percentile (never more
+     * than the maximum recorded value), or 0 if nothing has been recorded
+     */
+    public long percentile(double percentile) {
+        Checks.checkTrue(percentile >= 0 && percentile <= 100, "percentile must be between 0 and 100");
+
+        long[] snapshot = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            snapshot[i] = counts.get(i);
+            count += snapshot[i];
+        }
+        if (count == 0) {
+            return 0;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += snapshot[i];
+            if (seen >= target) {
+                return Math.min(upperBoundOf(i), max());
+            }
+        }
+        return max();
+    }
+
+
+    // --- helpers
+
+    static int indexFor(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int magnitude = 63 - Long.numberOfLeadingZeros(value);
+        int shift = magnitude - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + shift * SUB_BUCKET_COUNT + subBucket;
+    }
+
+
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int offset = index - SUB_BUCKET_COUNT;
+        int shift = offset / SUB_BUCKET_COUNT;
+        int subBucket = offset % SUB_BUCKET_COUNT;
+        return ((long) (SUB_BUCKET_COUNT + subBucket + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common;
+
+import java.util.Arrays;
+
+/**
+ * A map of primitive <code>long</code> keys to primitive <code>int</code> values using
+ * open addressing (linear probing), avoiding the boxing and per-entry objects of a
+ * <code>HashMap&lt;Long, Integer&gt;</code>.
+ *
+ * Lookups of absent keys return the <code>missingValue</code> given on construction.
+ * <code>Long.MIN_VALUE</code> is reserved and cannot be used as a key.  Not thread safe.
+ */
+public final class LongIntHashMap {
+
+    private static final long FREE = Long.MIN_VALUE;
+    private static final int MIN_CAPACITY = 16;
+
+    private final int missingValue;
+
+    private long[] keys;
+    private int[] values;
+    private int mask;
+    private int size;
+
+
+    public LongIntHashMap(int expectedSize, int missingValue) {
+        Checks.checkTrue(expectedSize >= 0, "expectedSize cannot be negative");
+        this.missingValue = missingValue;
+        allocate(capacityFor(expectedSize));
+    }
+
+
+    public int get(long key) {
+        checkKey(key);
+        int slot = findSlot(key);
+        return keys[slot] == FREE
+                ? missingValue
+                : values[slot];
+    }
+
+
+    public boolean containsKey(long key) {
+        checkKey(key);
+        return keys[findSlot(key)] != FREE;
+    }
+
+
+    /**
+     * @return the previous value for the key, or <code>missingValue</code> if there was none
+     */
+    public int put(long key, int value) {
+        checkKey(key);
+        int slot = findSlot(key);
+        if (keys[slot] == FREE) {
+            insertAt(slot, key, value);
+            return missingValue;
+        }
+        int previous = values[slot];
+        values[slot] = value;
+        return previous;
+    }
+
+
+    /**
+     * @return the existing value for the key, or <code>missingValue</code> if the given value was stored
+     */
+    public int putIfAbsent(long key, int value) {
+        checkKey(key);
+        int slot = findSlot(key);
+        if (keys[slot] == FREE) {
+            insertAt(slot, key, value);
+            return missingValue;
+        }
+        return values[slot];
+    }
+
+
+    public int size() {
+        return size;
+    }
+
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+
+    public int missingValue() {
+        return missingValue;
+    }
+
+
+    // --- helpers
+
+    private void insertAt(int slot, long key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        size++;
+        if (size * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+    }
+
+
+    private int findSlot(long key) {
+        int slot = (int) mix(key) & mask;
+        while (keys[slot] != FREE && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != FREE) {
+                int slot = findSlot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, FREE);
+        mask = capacity - 1;
+    }
+
+
+    /** power of two, keeping the load factor at or below one half */
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expectedSize * 2L) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+
+    /** murmur3 finalizer, spreads sequential ids across the table */
+    private static long mix(long key) {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe1a85a53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+
+    private static void checkKey(long key) {
+        if (key == FREE) {
+            throw new IllegalArgumentException("Long.MIN_VALUE cannot be used as a key");
+        }
+    }
+}
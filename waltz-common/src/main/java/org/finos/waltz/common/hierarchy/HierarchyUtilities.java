@@ -21,8 +21,6 @@ package org.finos.waltz.common.hierarchy;
 import org.finos.waltz.common.Checks;
 import org.finos.waltz.common.CollectionUtilities;
 import org.finos.waltz.common.ListUtilities;
-import org.pcollections.HashTreePMap;
-import org.pcollections.PMap;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -105,26 +103,9 @@ public class HierarchyUtilities {
 
     public static <T, K> boolean hasCycle(Forest<T, K> forest) {
         Checks.checkNotNull(forest, "forest must not be null");
-        PMap<K, Node<T, K>> seen = HashTreePMap.empty();
-
-        return forest
-                .getAllNodes()
-                .values()
-                .stream()
-                .anyMatch(node -> hasCycle(node, seen));
-    }
-
-
-    private static <T, K> boolean hasCycle(Node<T, K> node, PMap<K, Node<T, K>> seen) {
-        if (seen.containsKey(node.getId())) {
-            return true;
-        }
-
-        PMap<K, Node<T, K>> updated = seen.plus(node.getId(), node);
-
-        return node.getChildren()
-                .stream()
-                .anyMatch(child -> hasCycle(child, updated));
+        return IndexedHierarchy
+                .fromForest(forest)
+                .hasCycle();
     }
 
 
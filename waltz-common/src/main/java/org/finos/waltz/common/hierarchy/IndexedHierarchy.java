@@ -0,0 +1,282 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common.hierarchy;
+
+import org.finos.waltz.common.Checks;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * A compact, array based, representation of a hierarchy where each node has at
+ * most one parent.
+ *
+ * Nodes are addressed by their index (<code>0 .. size() - 1</code>), use {@link #key(int)}
+ * to map an index back to the original node id.  A single depth first traversal is
+ * performed on construction which assigns depths and detects cycles, the closure
+ * (ancestor, descendant pairs) can then be emitted via {@link #forEachClosureRow}
+ * without building intermediate node objects.
+ *
+ * Nodes which declare themselves as their own parent are treated as roots.  Nodes whose
+ * parent cannot be found are the top of a <em>detached</em> subtree, their depths
+ * are relative to the top of that subtree and {@link #isRooted(int)} returns false
+ * for all nodes in it.  Nodes which are part of (or beneath) a cycle are not
+ * traversed, they have a depth of <code>-1</code>.
+ *
+ * @param <K> type of the node key
+ */
+public final class IndexedHierarchy<K> {
+
+    public static final int NO_PARENT = -1;
+    public static final int UNKNOWN_DEPTH = -1;
+
+    private final Object[] keys;
+    private final int[] parents;
+    private final int[] depths;
+    private final boolean[] rooted;
+
+    /** reachable nodes in depth first (pre) order */
+    private final int[] order;
+    private final int visitedCount;
+    private final int maxDepth;
+
+
+    private IndexedHierarchy(Object[] keys,
+                             int[] parents,
+                             boolean[] hasUnknownParent) {
+        int size = keys.length;
+        this.keys = keys;
+        this.parents = parents;
+        this.depths = new int[size];
+        this.rooted = new boolean[size];
+        this.order = new int[size];
+
+        // children, stored as contiguous runs within a single array
+        int[] childStart = new int[size + 1];
+        for (int parent : parents) {
+            if (parent != NO_PARENT) {
+                childStart[parent + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            childStart[i + 1] += childStart[i];
+        }
+        int[] children = new int[childStart[size]];
+        int[] fill = new int[size];
+        for (int i = 0; i < size; i++) {
+            int parent = parents[i];
+            if (parent != NO_PARENT) {
+                children[childStart[parent] + fill[parent]++] = i;
+            }
+        }
+
+        int[] stack = new int[size];
+        int visited = 0;
+        int deepest = 0;
+
+        for (int top = 0; top < size; top++) {
+            if (parents[top] != NO_PARENT) {
+                continue;
+            }
+            depths[top] = 1;
+            rooted[top] = !hasUnknownParent[top];
+
+            int stackSize = 0;
+            stack[stackSize++] = top;
+            while (stackSize > 0) {
+                int node = stack[--stackSize];
+                order[visited++] = node;
+                deepest = Math.max(deepest, depths[node]);
+                // push in reverse so children are visited in their original order
+                for (int c = childStart[node + 1] - 1; c >= childStart[node]; c--) {
+                    int child = children[c];
+                    depths[child] = depths[node] + 1;
+                    rooted[child] = rooted[node];
+                    stack[stackSize++] = child;
+                }
+            }
+        }
+
+        if (visited < size) {
+            for (int i = 0; i < size; i++) {
+                if (depths[i] == 0) {
+                    depths[i] = UNKNOWN_DEPTH;
+                }
+            }
+        }
+
+        this.maxDepth = deepest;
+        this.visitedCount = visited;
+    }
+
+
+    /**
+     * Builds an indexed hierarchy from a collection of flat nodes.  If several nodes
+     * share an id the first is used.
+     */
+    public static <T, K> IndexedHierarchy<K> fromFlatNodes(Collection<FlatNode<T, K>> flatNodes) {
+        Checks.checkNotNull(flatNodes, "flatNodes cannot be null");
+
+        Map<K, Integer> indexByKey = new HashMap<>(flatNodes.size() * 2);
+        List<FlatNode<T, K>> uniqueNodes = new ArrayList<>(flatNodes.size());
+        for (FlatNode<T, K> node : flatNodes) {
+            if (indexByKey.putIfAbsent(node.getId(), uniqueNodes.size()) == null) {
+                uniqueNodes.add(node);
+            }
+        }
+
+        int size = uniqueNodes.size();
+        Object[] keys = new Object[size];
+        int[] parents = new int[size];
+        boolean[] hasUnknownParent = new boolean[size];
+
+        for (int i = 0; i < size; i++) {
+            FlatNode<T, K> node = uniqueNodes.get(i);
+            keys[i] = node.getId();
+            K parentKey = node.getParentId()
+                    .filter(pId -> !pId.equals(node.getId()))
+                    .orElse(null);
+            Integer parent = parentKey == null
+                    ? null
+                    : indexByKey.get(parentKey);
+            parents[i] = parent == null ? NO_PARENT : parent;
+            hasUnknownParent[i] = parentKey != null && parent == null;
+        }
+
+        return new IndexedHierarchy<>(keys, parents, hasUnknownParent);
+    }
+
+
+    /**
+     * Builds an indexed hierarchy using the parent links of the nodes in the given forest.
+     */
+    public static <T, K> IndexedHierarchy<K> fromForest(Forest<T, K> forest) {
+        Checks.checkNotNull(forest, "forest cannot be null");
+
+        Collection<Node<T, K>> nodes = forest.getAllNodes().values();
+        List<FlatNode<T, K>> flatNodes = new ArrayList<>(nodes.size());
+        for (Node<T, K> node : nodes) {
+            Node<T, K> parent = node.getParent();
+            flatNodes.add(new FlatNode<>(
+                    node.getId(),
+                    Optional.ofNullable(parent == null ? null : parent.getId()),
+                    node.getData()));
+        }
+        return fromFlatNodes(flatNodes);
+    }
+
+
+    public int size() {
+        return keys.length;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    public K key(int index) {
+        return (K) keys[index];
+    }
+
+
+    /**
+     * @return index of the parent node, or {@link #NO_PARENT}
+     */
+    public int parent(int index) {
+        return parents[index];
+    }
+
+
+    /**
+     * @return 1 based depth of the node, relative to the top of its (possibly detached)
+     * subtree, or {@link #UNKNOWN_DEPTH} if the node is part of a cycle
+     */
+    public int depth(int index) {
+        return depths[index];
+    }
+
+
+    /**
+     * @return true if the node is beneath a genuine root, false if it is part of a
+     * detached subtree or a cycle
+     */
+    public boolean isRooted(int index) {
+        return rooted[index];
+    }
+
+
+    public boolean hasCycle() {
+        return visitedCount < keys.length;
+    }
+
+
+    /**
+     * @return number of rows {@link #forEachClosureRow} will emit
+     */
+    public int closureSize(boolean includeSelf) {
+        long total = includeSelf ? keys.length : 0;
+        for (int i = 0; i < visitedCount; i++) {
+            total += depths[order[i]] - 1;
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Emits an (descendant, ancestor) pair for every ancestor of every node.
+     *
+     * @param includeSelf  if true each node is also emitted as its own ancestor (including
+     *                     nodes which are part of a cycle)
+     * @param consumer     receives the descendant and ancestor indexes
+     */
+    public void forEachClosureRow(boolean includeSelf, ClosureRowConsumer consumer) {
+        Checks.checkNotNull(consumer, "consumer cannot be null");
+
+        // ancestors of the current node, by depth, valid as nodes are visited in pre-order
+        int[] path = new int[maxDepth];
+
+        for (int i = 0; i < visitedCount; i++) {
+            int node = order[i];
+            int depth = depths[node];
+            path[depth - 1] = node;
+            for (int a = 0; a < depth - 1; a++) {
+                consumer.accept(node, path[a]);
+            }
+            if (includeSelf) {
+                consumer.accept(node, node);
+            }
+        }
+
+        if (includeSelf && hasCycle()) {
+            for (int node = 0; node < keys.length; node++) {
+                if (depths[node] == UNKNOWN_DEPTH) {
+                    consumer.accept(node, node);
+                }
+            }
+        }
+    }
+
+
+    @FunctionalInterface
+    public interface ClosureRowConsumer {
+        void accept(int descendant, int ancestor);
+    }
+}
@@ -0,0 +1,70 @@
+package org.finos.waltz.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void emptyHistogramReportsZeros() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.count());
+        assertEquals(0, histogram.percentile(99));
+        assertEquals(0, histogram.mean());
+    }
+
+
+    @Test
+    public void smallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 20; i++) {
+            histogram.record(i);
+        }
+        assertEquals(10, histogram.percentile(50));
+        assertEquals(19, histogram.percentile(95));
+        assertEquals(20, histogram.percentile(100));
+        assertEquals(20, histogram.max());
+    }
+
+
+    @Test
+    public void largeValuesAreWithinThreePercent() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100_000; i++) {
+            histogram.record(i * 10L);
+        }
+
+        assertWithin(500_000, histogram.percentile(50));
+        assertWithin(950_000, histogram.percentile(95));
+        assertWithin(990_000, histogram.percentile(99));
+        assertEquals(1_000_000, histogram.max());
+    }
+
+
+    @Test
+    public void bucketBoundsAreContiguous() {
+        for (int i = 1; i < LatencyHistogram.indexFor(LatencyHistogram.MAX_TRACKABLE_VALUE); i++) {
+            long lowerBound = LatencyHistogram.upperBoundOf(i - 1) + 1;
+            assertEquals(i, LatencyHistogram.indexFor(lowerBound));
+            assertEquals(i, LatencyHistogram.indexFor(LatencyHistogram.upperBoundOf(i)));
+        }
+    }
+
+
+    @Test
+    public void outOfRangeValuesAreClamped() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(2, histogram.count());
+        assertEquals(LatencyHistogram.MAX_TRACKABLE_VALUE, histogram.max());
+    }
+
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(
+                Math.abs(actual - expected) <= expected * 0.03,
+                String.format("expected %d to be within 3%% of %d", actual, expected));
+    }
+}
@@ -0,0 +1,56 @@
+package org.finos.waltz.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LongIntHashMapTest {
+
+    @Test
+    public void absentKeysReturnTheMissingValue() {
+        LongIntHashMap map = new LongIntHashMap(0, -1);
+        assertEquals(-1, map.get(42L));
+        assertFalse(map.containsKey(42L));
+        assertTrue(map.isEmpty());
+    }
+
+
+    @Test
+    public void putReplacesAndReturnsPreviousValues() {
+        LongIntHashMap map = new LongIntHashMap(4, -1);
+        assertEquals(-1, map.put(1L, 10));
+        assertEquals(10, map.put(1L, 11));
+        assertEquals(11, map.get(1L));
+        assertEquals(1, map.size());
+    }
+
+
+    @Test
+    public void putIfAbsentKeepsTheFirstValue() {
+        LongIntHashMap map = new LongIntHashMap(4, -1);
+        assertEquals(-1, map.putIfAbsent(0L, 1));
+        assertEquals(1, map.putIfAbsent(0L, 2));
+        assertEquals(1, map.get(0L));
+    }
+
+
+    @Test
+    public void growsBeyondItsInitialCapacity() {
+        LongIntHashMap map = new LongIntHashMap(1, -1);
+        for (int i = 0; i < 10_000; i++) {
+            map.put(i * 31L - 5_000, i);
+        }
+        assertEquals(10_000, map.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals(i, map.get(i * 31L - 5_000));
+        }
+        assertEquals(-1, map.get(1L));
+    }
+
+
+    @Test
+    public void reservedKeyIsRejected() {
+        LongIntHashMap map = new LongIntHashMap(1, -1);
+        assertThrows(IllegalArgumentException.class, () -> map.put(Long.MIN_VALUE, 1));
+    }
+}
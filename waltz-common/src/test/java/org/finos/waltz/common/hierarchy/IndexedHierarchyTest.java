@@ -0,0 +1,142 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.common.hierarchy;
+
+import org.finos.waltz.common.ListUtilities;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static java.util.Optional.empty;
+import static java.util.Optional.of;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.*;
+
+
+public class IndexedHierarchyTest {
+
+    @Test
+    public void depthsAreAssignedFromTheRoots() {
+        IndexedHierarchy<String> hierarchy = IndexedHierarchy.fromFlatNodes(SampleData.TWO_TREES);
+
+        assertFalse(hierarchy.hasCycle());
+        assertEquals(1, depthOf(hierarchy, "a"));
+        assertEquals(2, depthOf(hierarchy, "b"));
+        assertEquals(3, depthOf(hierarchy, "d"));
+        assertEquals(2, depthOf(hierarchy, "g"));
+    }
+
+
+    @Test
+    public void closureContainsEveryAncestorPair() {
+        IndexedHierarchy<String> hierarchy = IndexedHierarchy.fromFlatNodes(SampleData.TWO_TREES);
+
+        Set<String> withoutSelf = closure(hierarchy, false);
+        assertEquals(
+                asSet("b>a", "c>b", "c>a", "d>b", "d>a", "e>a", "g>f"),
+                withoutSelf);
+        assertEquals(withoutSelf.size(), hierarchy.closureSize(false));
+
+        Set<String> withSelf = closure(hierarchy, true);
+        assertEquals(withoutSelf.size() + 7, withSelf.size());
+        assertTrue(withSelf.contains("d>d"));
+        assertEquals(withSelf.size(), hierarchy.closureSize(true));
+    }
+
+
+    @Test
+    public void selfReferencesAreTreatedAsRoots() {
+        IndexedHierarchy<String> hierarchy = IndexedHierarchy.fromFlatNodes(SampleData.SELF_REFERENCE);
+
+        assertFalse(hierarchy.hasCycle());
+        assertEquals(1, depthOf(hierarchy, "a"));
+        assertEquals(asSet("b>a", "c>a"), closure(hierarchy, false));
+    }
+
+
+    @Test
+    public void cyclesAreDetectedAndExcludedFromTheClosure() {
+        IndexedHierarchy<String> hierarchy = IndexedHierarchy.fromFlatNodes(SampleData.CIRCULAR);
+
+        assertTrue(hierarchy.hasCycle());
+        assertEquals(IndexedHierarchy.UNKNOWN_DEPTH, depthOf(hierarchy, "a"));
+        assertTrue(closure(hierarchy, false).isEmpty());
+        assertEquals(asSet("a>a", "b>b", "c>c"), closure(hierarchy, true));
+    }
+
+
+    @Test
+    public void nodesWithMissingParentsStartDetachedSubtrees() {
+        List<FlatNode<Void, String>> nodes = ListUtilities.newArrayList(
+                new FlatNode<>("a", empty(), null),
+                new FlatNode<>("b", of("missing"), null),
+                new FlatNode<>("c", of("b"), null));
+
+        IndexedHierarchy<String> hierarchy = IndexedHierarchy.fromFlatNodes(nodes);
+
+        assertFalse(hierarchy.hasCycle());
+        assertTrue(hierarchy.isRooted(indexOf(hierarchy, "a")));
+        assertFalse(hierarchy.isRooted(indexOf(hierarchy, "b")));
+        assertFalse(hierarchy.isRooted(indexOf(hierarchy, "c")));
+        assertEquals(2, depthOf(hierarchy, "c"));
+        assertEquals(asSet("c>b"), closure(hierarchy, false));
+    }
+
+
+    @Test
+    public void deepHierarchiesDoNotOverflowTheStack() {
+        int size = 100_000;
+        List<FlatNode<Void, Integer>> nodes = ListUtilities.newArrayList();
+        nodes.add(new FlatNode<>(0, empty(), null));
+        for (int i = 1; i < size; i++) {
+            nodes.add(new FlatNode<>(i, of(i - 1), null));
+        }
+
+        IndexedHierarchy<Integer> hierarchy = IndexedHierarchy.fromFlatNodes(nodes);
+
+        assertEquals(size, hierarchy.depth(size - 1));
+        assertFalse(hierarchy.hasCycle());
+    }
+
+
+    private static <K> int indexOf(IndexedHierarchy<K> hierarchy, K key) {
+        for (int i = 0; i < hierarchy.size(); i++) {
+            if (hierarchy.key(i).equals(key)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("No such key: " + key);
+    }
+
+
+    private static <K> int depthOf(IndexedHierarchy<K> hierarchy, K key) {
+        return hierarchy.depth(indexOf(hierarchy, key));
+    }
+
+
+    private static Set<String> closure(IndexedHierarchy<String> hierarchy, boolean includeSelf) {
+        Set<String> rows = new HashSet<>();
+        hierarchy.forEachClosureRow(
+                includeSelf,
+                (d, a) -> rows.add(hierarchy.key(d) + ">" + hierarchy.key(a)));
+        return rows;
+    }
+}
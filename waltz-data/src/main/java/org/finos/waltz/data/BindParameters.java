@@ -0,0 +1,134 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.jooq.Condition;
+import org.jooq.Configuration;
+import org.jooq.DSLContext;
+import org.jooq.QueryPart;
+import org.jooq.Record;
+import org.jooq.ResultQuery;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Decides whether selector heavy query parts are executed with bind variables or
+ * rendered with inlined values.
+ *
+ * Bind variables give a stable SQL string per query shape, allowing the driver's
+ * statement cache and the database's plan cache to be reused.  However, large id
+ * lists can exceed the database's parameter limit (2100 on SQL Server), so parts
+ * with more bind values than the configured limit are inlined instead, as they
+ * always used to be.
+ *
+ * The limit is held on the jOOQ {@link Configuration} (see {@link #configure(Configuration, int)}),
+ * if it is absent or not positive everything is inlined.  Parts without any values
+ * (including those whose values were already inlined) are not counted as either.
+ */
+public final class BindParameters {
+
+    private static final String LIMIT_KEY = "waltz.bind_parameters.limit";
+
+    private static final AtomicLong boundCount = new AtomicLong();
+    private static final AtomicLong inlinedCount = new AtomicLong();
+
+
+    private BindParameters() {
+    }
+
+
+    /**
+     * @param limit  maximum number of bind values a query part may have before it is
+     *               inlined, zero (or less) inlines everything
+     */
+    public static void configure(Configuration configuration, int limit) {
+        checkNotNull(configuration, "configuration cannot be null");
+        configuration.data(LIMIT_KEY, limit);
+    }
+
+
+    /**
+     * @return the condition, or an equivalent plain SQL condition with its values inlined
+     */
+    public static Condition bindOrInline(DSLContext dsl, Condition condition) {
+        checkNotNull(condition, "condition cannot be null");
+        return useBindValues(dsl, condition)
+                ? condition
+                : DSL.condition(dsl.renderInlined(condition));
+    }
+
+
+    /**
+     * @return a plain SQL query, attached to the given dsl, wrapping the given query either
+     * with its bind values or with its values inlined.  As with any plain SQL query, record
+     * values should be read by field name.
+     */
+    public static ResultQuery<Record> bindOrInline(DSLContext dsl, Select<?> query) {
+        checkNotNull(query, "query cannot be null");
+        return useBindValues(dsl, query)
+                ? dsl.resultQuery("{0}", query)
+                : dsl.resultQuery(dsl.renderInlined(query));
+    }
+
+
+    /**
+     * Decides whether a query part holding the given number of values should bind them,
+     * recording the decision in the bound / inlined counts.  Used by query parts which
+     * build their own SQL (e.g. {@link ResolvedIdSet}) rather than being wrapped by
+     * {@link #bindOrInline(DSLContext, Condition)}.
+     *
+     * @param valueCount     number of values the part would bind
+     * @param maxValueCount  a part specific limit, applied in addition to the configured one
+     * @return true if the values should be bound, false if they should be inlined
+     */
+    public static boolean bindValues(DSLContext dsl, int valueCount, int maxValueCount) {
+        checkNotNull(dsl, "dsl cannot be null");
+        Object limit = dsl.configuration().data(LIMIT_KEY);
+        boolean bind = limit instanceof Integer
+                && (Integer) limit > 0
+                && valueCount <= Math.min((Integer) limit, maxValueCount);
+
+        if (valueCount > 0) {
+            (bind ? boundCount : inlinedCount).incrementAndGet();
+        }
+        return bind;
+    }
+
+
+    public static long boundCount() {
+        return boundCount.get();
+    }
+
+
+    public static long inlinedCount() {
+        return inlinedCount.get();
+    }
+
+
+    // --- helpers
+
+    private static boolean useBindValues(DSLContext dsl, QueryPart part) {
+        checkNotNull(dsl, "dsl cannot be null");
+        return bindValues(dsl, dsl.extractBindValues(part).size(), Integer.MAX_VALUE);
+    }
+}
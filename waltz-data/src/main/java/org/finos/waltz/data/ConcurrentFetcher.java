@@ -0,0 +1,283 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * Runs a collection of independent, keyed fetch tasks (e.g. the column families
+ * of a report grid) and merges their results into a single set, or a set per key.
+ *
+ * When the concurrency limit is greater than one the tasks are executed on the
+ * given {@link DBExecutorPoolInterface}, using at most <code>maxConcurrency</code>
+ * workers.  The calling thread merges each result as soon as it arrives, so no
+ * intermediate unions are built.  If any task fails, or the timeout elapses, the
+ * outstanding tasks are cancelled and the failure is propagated to the caller.
+ *
+ * If the caller is itself running on the pool the tasks are executed serially on the
+ * calling thread, a pool task blocking on further tasks in the same pool could otherwise
+ * starve it.
+ *
+ * The time taken by each task is recorded and can be retrieved via {@link #timings()}
+ * once {@link #fetchAll()} or {@link #fetchEach()} has completed.
+ *
+ * @param <K> type of key used to identify each task
+ * @param <T> type of element produced by the tasks
+ */
+public class ConcurrentFetcher<K, T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ConcurrentFetcher.class);
+    private static final long POLL_INTERVAL_MILLIS = 250;
+
+    private final DBExecutorPoolInterface dbExecutorPool;
+    private final int maxConcurrency;
+    private final long timeoutMillis;
+    private final List<FetchTask<K, T>> tasks = new ArrayList<>();
+    private final Map<K, Long> timings = new LinkedHashMap<>();
+    private final AtomicBoolean cancelled = new AtomicBoolean(false);
+
+
+    public ConcurrentFetcher(DBExecutorPoolInterface dbExecutorPool,
+                             int maxConcurrency,
+                             long timeoutMillis) {
+        checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
+        checkTrue(timeoutMillis > 0, "timeoutMillis must be positive");
+        this.dbExecutorPool = dbExecutorPool;
+        this.maxConcurrency = Math.max(maxConcurrency, 1);
+        this.timeoutMillis = timeoutMillis;
+    }
+
+
+    /**
+     * Registers a task to be executed by {@link #fetchAll()}.
+     *
+     * @param key  identifies the task when reporting timings, failures and results
+     * @param fetcher  performs the fetch, must not return null
+     * @return this fetcher, to allow chaining
+     */
+    public ConcurrentFetcher<K, T> add(K key,
+                                       Supplier<? extends Collection<? extends T>> fetcher) {
+        checkNotNull(key, "key cannot be null");
+        checkNotNull(fetcher, "fetcher cannot be null");
+        tasks.add(new FetchTask<>(key, fetcher));
+        return this;
+    }
+
+
+    /**
+     * @return time taken (in millis) by each task which has completed, in completion order
+     */
+    public Map<K, Long> timings() {
+        synchronized (timings) {
+            return new LinkedHashMap<>(timings);
+        }
+    }
+
+
+    /**
+     * Executes all tasks, merging every result into a single set.
+     *
+     * @return union of all task results
+     */
+    public Set<T> fetchAll() {
+        Set<T> result = new HashSet<>();
+        fetch((key, data) -> result.addAll(data));
+        return result;
+    }
+
+
+    /**
+     * Executes all tasks, keeping the result of each task separate.
+     *
+     * @return map of task key to the results of that task
+     */
+    public Map<K, Set<T>> fetchEach() {
+        Map<K, Set<T>> result = new HashMap<>();
+        fetch((key, data) -> result
+                .computeIfAbsent(key, k -> new HashSet<>())
+                .addAll(data));
+        return result;
+    }
+
+
+    private void fetch(BiConsumer<K, Collection<? extends T>> sink) {
+        if (maxConcurrency == 1 || tasks.size() <= 1 || dbExecutorPool.isPoolThread()) {
+            fetchSerially(sink);
+        } else {
+            fetchConcurrently(sink);
+        }
+    }
+
+
+    private void fetchSerially(BiConsumer<K, Collection<? extends T>> sink) {
+        for (FetchTask<K, T> task : tasks) {
+            if (cancelled.get()) {
+                throw new IllegalStateException("Fetch was cancelled before task: " + task.key);
+            }
+            Outcome<K, T> outcome = task.run();
+            recordTiming(outcome);
+            if (outcome.error != null) {
+                throw propagate(outcome);
+            }
+            sink.accept(outcome.key, outcome.data);
+        }
+    }
+
+
+    private void fetchConcurrently(BiConsumer<K, Collection<? extends T>> sink) {
+        Queue<FetchTask<K, T>> pending = new ConcurrentLinkedQueue<>(tasks);
+        BlockingQueue<Outcome<K, T>> completed = new LinkedBlockingQueue<>();
+
+        int workerCount = Math.min(maxConcurrency, tasks.size());
+        List<Future<?>> workers = new ArrayList<>(workerCount);
+        for (int i = 0; i < workerCount; i++) {
+            workers.add(dbExecutorPool.submit(() -> {
+                FetchTask<K, T> task;
+                while (!cancelled.get() && (task = pending.poll()) != null) {
+                    completed.add(task.run());
+                }
+                return null;
+            }));
+        }
+
+        long deadline = System.currentTimeMillis() + timeoutMillis;
+        int received = 0;
+
+        try {
+            while (received < tasks.size()) {
+                if (cancelled.get()) {
+                    throw new IllegalStateException("Fetch was cancelled");
+                }
+
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    throw new IllegalStateException(String.format(
+                            "Timed out after %dms waiting for fetch tasks, completed: %s",
+                            timeoutMillis,
+                            timings().keySet()));
+                }
+
+                Outcome<K, T> outcome = completed.poll(
+                        Math.min(remaining, POLL_INTERVAL_MILLIS),
+                        TimeUnit.MILLISECONDS);
+
+                if (outcome == null) {
+                    continue;
+                }
+
+                recordTiming(outcome);
+
+                if (outcome.error != null) {
+                    throw propagate(outcome);
+                }
+
+                sink.accept(outcome.key, outcome.data);
+                received++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted whilst waiting for fetch tasks", e);
+        } finally {
+            if (received < tasks.size()) {
+                cancelled.set(true);
+                workers.forEach(w -> w.cancel(true));
+            }
+        }
+    }
+
+
+    private void recordTiming(Outcome<K, T> outcome) {
+        LOG.debug("fetch task [{}] took {}ms", outcome.key, outcome.duration);
+        synchronized (timings) {
+            timings.put(outcome.key, outcome.duration);
+        }
+    }
+
+
+    private RuntimeException propagate(Outcome<K, T> outcome) {
+        cancelled.set(true);
+        return outcome.error instanceof RuntimeException
+                ? (RuntimeException) outcome.error
+                : new IllegalStateException("Fetch task failed: " + outcome.key, outcome.error);
+    }
+
+
+    private static class FetchTask<K, T> {
+
+        private final K key;
+        private final Supplier<? extends Collection<? extends T>> fetcher;
+
+
+        private FetchTask(K key, Supplier<? extends Collection<? extends T>> fetcher) {
+            this.key = key;
+            this.fetcher = fetcher;
+        }
+
+
+        private Outcome<K, T> run() {
+            long st = System.currentTimeMillis();
+            try {
+                Collection<? extends T> data = checkNotNull(fetcher.get(), "fetch task [%s] returned null", key);
+                return new Outcome<>(key, data, null, System.currentTimeMillis() - st);
+            } catch (Throwable t) {
+                return new Outcome<>(key, null, t, System.currentTimeMillis() - st);
+            }
+        }
+    }
+
+
+    private static class Outcome<K, T> {
+
+        private final K key;
+        private final Collection<? extends T> data;
+        private final Throwable error;
+        private final long duration;
+
+
+        private Outcome(K key, Collection<? extends T> data, Throwable error, long duration) {
+            this.key = key;
+            this.data = data;
+            this.error = error;
+            this.duration = duration;
+        }
+    }
+
+}
@@ -27,19 +27,34 @@ import java.util.concurrent.Future;
 
 public class DBExecutorPool implements DBExecutorPoolInterface {
 
+    private static final ThreadLocal<DBExecutorPool> OWNING_POOL = new ThreadLocal<>();
+
     private final ExecutorService executorPool;
 
 
     @Autowired
     public DBExecutorPool(int dbPoolMin, int dbPoolMax) {
+        this("DB Executor", Integer.max(dbPoolMax / 2, 1));
+    }
+
+
+    /**
+     * Creates a pool with a fixed number of (daemon) threads, for work which should not
+     * compete with the shared pool.
+     */
+    public DBExecutorPool(String threadName, int threadCount) {
         executorPool = Executors.newFixedThreadPool(
-                Integer.max(dbPoolMax / 2, 1),
+                Integer.max(threadCount, 1),
                 (runnable) -> {
-                    Thread t = new Thread(runnable, "DB Executor");
+                    Thread t = new Thread(
+                            () -> {
+                                OWNING_POOL.set(this);
+                                runnable.run();
+                            },
+                            threadName);
                     t.setDaemon(true);
                     return t;
                 });
-
     }
 
 
@@ -48,4 +63,10 @@ public class DBExecutorPool implements DBExecutorPoolInterface {
         return executorPool.submit(task);
     }
 
+
+    @Override
+    public boolean isPoolThread() {
+        return OWNING_POOL.get() == this;
+    }
+
 }
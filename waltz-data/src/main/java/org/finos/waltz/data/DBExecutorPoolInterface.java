@@ -25,4 +25,13 @@ import java.util.concurrent.Future;
 public interface DBExecutorPoolInterface {
 
     <T> Future<T> submit(Callable<T> task);
+
+
+    /**
+     * @return true if the calling thread is one of this pool's workers, tasks running on
+     * the pool should not block waiting on further tasks submitted to the same pool
+     */
+    default boolean isPoolThread() {
+        return false;
+    }
 }
@@ -0,0 +1,427 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.finos.waltz.data.changelog.ChangeLogListener;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.jooq.Condition;
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * In-memory dictionary of the names, external ids and lifecycle statuses of entities,
+ * keyed by kind and id.  Covers the kinds (and columns) supported by the
+ * {@link InlineSelectFieldFactory}.
+ *
+ * The dictionary for a kind is loaded in full on first use and held as a sorted array
+ * of primitive ids with parallel arrays of values.  Entities subsequently changed
+ * (according to the change log) are marked as stale and re-read individually on the
+ * next lookup, changes made outside of Waltz are picked up when the kind exceeds its
+ * time-to-live and is reloaded.  Kinds with more than
+ * <code>entity_reference.cache.max_rows_per_kind</code> entities are not held in memory.
+ */
+@Repository
+public class EntityReferenceDictionary implements ChangeLogListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntityReferenceDictionary.class);
+
+    private static final Map<EntityKind, KindMapping> MAPPINGS = mkMappings();
+
+    private final DSLContext dsl;
+    private final boolean enabled;
+    private final int maxRowsPerKind;
+    private final long ttlMillis;
+    private final Map<EntityKind, KindDictionary> dictionariesByKind = new ConcurrentHashMap<>();
+    private final Map<EntityKind, Set<Long>> staleIdsByKind = new ConcurrentHashMap<>();
+    private final Map<EntityKind, Object> loadLocks = new EnumMap<>(EntityKind.class);
+
+
+    @Autowired
+    public EntityReferenceDictionary(DSLContext dsl,
+                                     @Value("${entity_reference.cache.enabled:true}") boolean enabled,
+                                     @Value("${entity_reference.cache.max_rows_per_kind:250000}") int maxRowsPerKind,
+                                     @Value("${entity_reference.cache.ttl.minutes:30}") int ttlMinutes) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+        this.enabled = enabled;
+        this.maxRowsPerKind = maxRowsPerKind;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        MAPPINGS.keySet().forEach(k -> loadLocks.put(k, new Object()));
+    }
+
+
+    public static Set<EntityKind> supportedKinds() {
+        return MAPPINGS.keySet();
+    }
+
+
+    /**
+     * @return the dictionary for the kind, loading it if needed.  Empty if the dictionary
+     * is disabled, the kind is not supported or it has too many entities to hold in memory.
+     */
+    public Optional<KindDictionary> findDictionary(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+        if (!enabled || !MAPPINGS.containsKey(kind)) {
+            return Optional.empty();
+        }
+
+        KindDictionary dictionary = dictionariesByKind.get(kind);
+        if (dictionary == null || isExpired(dictionary) || staleIdsByKind.containsKey(kind)) {
+            synchronized (loadLocks.get(kind)) {
+                dictionary = dictionariesByKind.get(kind);
+                if (dictionary == null || isExpired(dictionary)) {
+                    dictionary = load(kind);
+                } else {
+                    dictionary = refreshStale(kind, dictionary);
+                }
+                dictionariesByKind.put(kind, dictionary);
+            }
+        }
+
+        return dictionary.isOversized()
+                ? Optional.empty()
+                : Optional.of(dictionary);
+    }
+
+
+    @Override
+    public void onChangeLogs(Collection<ChangeLog> changeLogs) {
+        invalidate(changeLogs);
+    }
+
+
+    /**
+     * Marks the parent entities of the change log entries as stale, child kinds are
+     * evicted in full as the change log does not record which of their entities changed.
+     */
+    public void invalidate(Collection<ChangeLog> changeLogs) {
+        Set<EntityKind> evictedKinds = EnumSet.noneOf(EntityKind.class);
+        for (ChangeLog changeLog : changeLogs) {
+            EntityKind parentKind = changeLog.parentReference().kind();
+            if (MAPPINGS.containsKey(parentKind)) {
+                staleIdsByKind
+                        .computeIfAbsent(parentKind, k -> ConcurrentHashMap.newKeySet())
+                        .add(changeLog.parentReference().id());
+            }
+            changeLog.childKind()
+                    .filter(k -> k != parentKind)
+                    .ifPresent(evictedKinds::add);
+        }
+        evictedKinds.forEach(this::invalidateKind);
+    }
+
+
+    /**
+     * Evicts the kind, it will be reloaded in full on next use.
+     */
+    public void invalidateKind(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+        dictionariesByKind.remove(kind);
+    }
+
+
+    public void clear() {
+        dictionariesByKind.clear();
+        staleIdsByKind.clear();
+    }
+
+
+    // --- helpers
+
+    private boolean isExpired(KindDictionary dictionary) {
+        return System.currentTimeMillis() - dictionary.loadedAt > ttlMillis;
+    }
+
+
+    private KindDictionary load(EntityKind kind) {
+        long start = System.currentTimeMillis();
+        // anything marked stale before now is covered by the full load
+        Set<Long> staleAtStart = new HashSet<>(staleIdsByKind.getOrDefault(kind, Collections.emptySet()));
+
+        KindMapping mapping = MAPPINGS.get(kind);
+        long[] ids = new long[1024];
+        List<String> names = new ArrayList<>();
+        List<String> externalIds = new ArrayList<>();
+        List<String> lifecycleStatuses = new ArrayList<>();
+        Map<String, String> canonicalStatuses = new HashMap<>();
+        int count = 0;
+
+        try (Cursor<Record> cursor = dsl
+                .select(mapping.fields())
+                .from(mapping.table)
+                .orderBy(mapping.idField)
+                .fetchLazy()) {
+            for (Record record : cursor) {
+                if (count == maxRowsPerKind) {
+                    LOG.info("Not holding {} names in memory, more than {} entities", kind, maxRowsPerKind);
+                    return KindDictionary.oversized(kind, start);
+                }
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, ids.length * 2);
+                }
+                ids[count++] = record.get(0, Long.class);
+                names.add(record.get(1, String.class));
+                externalIds.add(record.get(2, String.class));
+                lifecycleStatuses.add(canonicalStatuses.computeIfAbsent(
+                        record.get(3, String.class),
+                        s -> s));
+            }
+        }
+
+        Set<Long> stale = staleIdsByKind.get(kind);
+        if (stale != null) {
+            stale.removeAll(staleAtStart);
+            if (stale.isEmpty()) {
+                staleIdsByKind.remove(kind, stale);
+            }
+        }
+
+        LOG.debug("Loaded {} {} names in {}ms", count, kind, System.currentTimeMillis() - start);
+
+        return new KindDictionary(
+                kind,
+                Arrays.copyOf(ids, count),
+                mapping.nameField == null ? null : names.toArray(new String[0]),
+                mapping.externalIdField == null ? null : externalIds.toArray(new String[0]),
+                mapping.lifecycleField == null ? null : lifecycleStatuses.toArray(new String[0]),
+                Collections.emptyMap(),
+                start);
+    }
+
+
+    private KindDictionary refreshStale(EntityKind kind, KindDictionary dictionary) {
+        Set<Long> stale = staleIdsByKind.remove(kind);
+        if (stale == null || stale.isEmpty() || dictionary.isOversized()) {
+            return dictionary;
+        }
+
+        KindMapping mapping = MAPPINGS.get(kind);
+        Condition idCondition = ResolvedIdSet
+                .fromCollection(stale)
+                .toCondition(dsl, mapping.idField);
+
+        Map<Long, String[]> overrides = new HashMap<>(dictionary.overrides);
+        stale.forEach(id -> overrides.put(id, KindDictionary.MISSING));
+        dsl.select(mapping.fields())
+                .from(mapping.table)
+                .where(idCondition)
+                .forEach(r -> overrides.put(
+                        r.get(0, Long.class),
+                        new String[]{
+                                r.get(1, String.class),
+                                r.get(2, String.class),
+                                r.get(3, String.class)}));
+
+        return dictionary.withOverrides(overrides);
+    }
+
+
+    private static Map<EntityKind, KindMapping> mkMappings() {
+        Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> names = InlineSelectFieldFactory.nameFieldMappings();
+        Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> externalIds = InlineSelectFieldFactory.externalIdFieldMappings();
+        Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> lifecycles = InlineSelectFieldFactory.lifecycleFieldMappings();
+
+        Set<EntityKind> kinds = EnumSet.noneOf(EntityKind.class);
+        kinds.addAll(names.keySet());
+        kinds.addAll(externalIds.keySet());
+        kinds.addAll(lifecycles.keySet());
+
+        Map<EntityKind, KindMapping> mappings = new EnumMap<>(EntityKind.class);
+        for (EntityKind kind : kinds) {
+            Tuple3<Table, Field<Long>, Field<String>> any = Optional
+                    .ofNullable(names.get(kind))
+                    .orElseGet(() -> Optional
+                            .ofNullable(externalIds.get(kind))
+                            .orElseGet(() -> lifecycles.get(kind)));
+            mappings.put(kind, new KindMapping(
+                    any.v1(),
+                    any.v2(),
+                    valueField(names.get(kind)),
+                    valueField(externalIds.get(kind)),
+                    valueField(lifecycles.get(kind))));
+        }
+        return Collections.unmodifiableMap(mappings);
+    }
+
+
+    private static Field<String> valueField(Tuple3<Table, Field<Long>, Field<String>> mapping) {
+        return mapping == null
+                ? null
+                : mapping.v3();
+    }
+
+
+    private static class KindMapping {
+
+        private static final Field<String> NO_VALUE = DSL.inline(null, String.class);
+
+        private final Table<?> table;
+        private final Field<Long> idField;
+        private final Field<String> nameField;
+        private final Field<String> externalIdField;
+        private final Field<String> lifecycleField;
+
+
+        private KindMapping(Table<?> table,
+                            Field<Long> idField,
+                            Field<String> nameField,
+                            Field<String> externalIdField,
+                            Field<String> lifecycleField) {
+            this.table = table;
+            this.idField = idField;
+            this.nameField = nameField;
+            this.externalIdField = externalIdField;
+            this.lifecycleField = lifecycleField;
+        }
+
+
+        private List<Field<?>> fields() {
+            return Arrays.asList(
+                    idField,
+                    nameField == null ? NO_VALUE : nameField,
+                    externalIdField == null ? NO_VALUE : externalIdField,
+                    lifecycleField == null ? NO_VALUE : lifecycleField);
+        }
+    }
+
+
+    /**
+     * Names, external ids and lifecycle statuses for every entity of a single kind.
+     * Lookups return null for unknown ids or values the kind does not have.
+     */
+    public static final class KindDictionary {
+
+        private static final String[] MISSING = new String[0];
+
+        private final EntityKind kind;
+        private final long[] ids;
+        private final String[] names;
+        private final String[] externalIds;
+        private final String[] lifecycleStatuses;
+
+        /** entities re-read since the dictionary was loaded, {@link #MISSING} if since removed */
+        private final Map<Long, String[]> overrides;
+        private final long loadedAt;
+
+
+        private KindDictionary(EntityKind kind,
+                               long[] ids,
+                               String[] names,
+                               String[] externalIds,
+                               String[] lifecycleStatuses,
+                               Map<Long, String[]> overrides,
+                               long loadedAt) {
+            this.kind = kind;
+            this.ids = ids;
+            this.names = names;
+            this.externalIds = externalIds;
+            this.lifecycleStatuses = lifecycleStatuses;
+            this.overrides = overrides;
+            this.loadedAt = loadedAt;
+        }
+
+
+        private static KindDictionary oversized(EntityKind kind, long loadedAt) {
+            return new KindDictionary(kind, null, null, null, null, Collections.emptyMap(), loadedAt);
+        }
+
+
+        private KindDictionary withOverrides(Map<Long, String[]> overrides) {
+            return new KindDictionary(kind, ids, names, externalIds, lifecycleStatuses, overrides, loadedAt);
+        }
+
+
+        private boolean isOversized() {
+            return ids == null;
+        }
+
+
+        public EntityKind kind() {
+            return kind;
+        }
+
+
+        public boolean contains(long id) {
+            String[] override = overrides.get(id);
+            return override == null
+                    ? Arrays.binarySearch(ids, id) >= 0
+                    : override != MISSING;
+        }
+
+
+        public String getName(long id) {
+            return lookup(id, names, 0);
+        }
+
+
+        public String getExternalId(long id) {
+            return lookup(id, externalIds, 1);
+        }
+
+
+        public String getEntityLifecycleStatus(long id) {
+            return lookup(id, lifecycleStatuses, 2);
+        }
+
+
+        private String lookup(long id, String[] values, int overrideIdx) {
+            if (values == null) {
+                return null;
+            }
+            String[] override = overrides.get(id);
+            if (override != null) {
+                return override == MISSING
+                        ? null
+                        : override[overrideIdx];
+            }
+            int idx = Arrays.binarySearch(ids, id);
+            return idx < 0
+                    ? null
+                    : values[idx];
+        }
+    }
+}
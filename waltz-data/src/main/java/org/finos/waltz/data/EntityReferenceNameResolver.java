@@ -19,6 +19,7 @@
 package org.finos.waltz.data;
 
 import org.finos.waltz.common.ListUtilities;
+import org.finos.waltz.data.EntityReferenceDictionary.KindDictionary;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.jooq.DSLContext;
@@ -27,31 +28,47 @@ import org.jooq.Record2;
 import org.jooq.SelectSelectStep;
 import org.jooq.Table;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.maybeFirst;
 import static org.finos.waltz.common.ListUtilities.map;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
 import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 /**
  * Service which takes a list of entity references and returns a list
  * enriched with entity names.
+ *
+ * Names are served from the {@link EntityReferenceDictionary} where possible, only
+ * references of kinds it does not hold are resolved via the database.  Duplicate
+ * references are only returned once.
  */
 @Repository
 public class EntityReferenceNameResolver {
 
     private final DSLContext dsl;
+    private final EntityReferenceDictionary dictionary;
 
     @Autowired
-    public EntityReferenceNameResolver(DSLContext dsl) {
+    public EntityReferenceNameResolver(DSLContext dsl,
+                                       EntityReferenceDictionary dictionary) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(dictionary, "dictionary cannot be null");
         this.dsl = dsl;
+        this.dictionary = dictionary;
     }
 
     public Optional<EntityReference> resolve(EntityReference ref) {
@@ -60,7 +77,39 @@ public class EntityReferenceNameResolver {
 
     public List<EntityReference> resolve(List<EntityReference> refs) {
         checkNotNull(refs, "refs cannot be null");
-        
+
+        Map<EntityKind, Optional<KindDictionary>> dictionaries = new EnumMap<>(EntityKind.class);
+        List<EntityReference> resolved = new ArrayList<>(refs.size());
+        List<EntityReference> unresolved = new ArrayList<>();
+
+        Set<Tuple2<EntityKind, Long>> seen = new HashSet<>(refs.size() * 2);
+
+        for (EntityReference ref : refs) {
+            if (!seen.add(tuple(ref.kind(), ref.id()))) {
+                continue;
+            }
+            Optional<KindDictionary> kindDictionary = dictionaries.computeIfAbsent(
+                    ref.kind(),
+                    dictionary::findDictionary);
+            if (kindDictionary.isPresent()) {
+                resolved.add(mkRef(
+                        ref.kind(),
+                        ref.id(),
+                        kindDictionary.get().getName(ref.id())));
+            } else {
+                unresolved.add(ref);
+            }
+        }
+
+        if (!unresolved.isEmpty()) {
+            resolved.addAll(resolveViaDatabase(unresolved));
+        }
+
+        return resolved;
+    }
+
+
+    private List<EntityReference> resolveViaDatabase(List<EntityReference> refs) {
         Field<Long> idField = DSL.field("tref_id", Long.class);
         Field<String> kindField = DSL.field("tref_kind", String.class);
 
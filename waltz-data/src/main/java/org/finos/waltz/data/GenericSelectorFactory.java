@@ -52,6 +52,22 @@ public class GenericSelectorFactory {
     private final AttestationIdSelectorFactory attestationIdSelectorFactory = new AttestationIdSelectorFactory();
     private final PhysicalSpecificationIdSelectorFactory specificationIdSelectorFactory = new PhysicalSpecificationIdSelectorFactory();
 
+    private final IdSelectionResolver idSelectionResolver;
+
+
+    public GenericSelectorFactory() {
+        this(null);
+    }
+
+
+    /**
+     * @param idSelectionResolver  if provided, selectors are resolved (and cached) via the
+     *                             resolver rather than being returned as raw subqueries
+     */
+    public GenericSelectorFactory(IdSelectionResolver idSelectionResolver) {
+        this.idSelectionResolver = idSelectionResolver;
+    }
+
 
     public GenericSelector apply(IdSelectionOptions selectionOptions) {
         EntityKind kind = selectionOptions.entityReference().kind();
@@ -100,6 +116,14 @@ public class GenericSelectorFactory {
      * @return
      */
     private Select<Record1<Long>> applySelectorForKind(EntityKind kind, IdSelectionOptions selectionOptions) {
+        Select<Record1<Long>> selector = mkSelectorForKind(kind, selectionOptions);
+        return idSelectionResolver == null
+                ? selector
+                : idSelectionResolver.resolve(kind, selectionOptions, selector);
+    }
+
+
+    private Select<Record1<Long>> mkSelectorForKind(EntityKind kind, IdSelectionOptions selectionOptions) {
         switch (kind) {
             case APPLICATION:
                 return applicationIdSelectorFactory.apply(selectionOptions);
@@ -0,0 +1,320 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.finos.waltz.data.changelog.ChangeLogListener;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.jooq.Cursor;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Resolves id selectors into {@link ResolvedIdSet}s and caches the result, keyed
+ * by the target kind and the selection options.
+ *
+ * Subsequent requests for the same selection are given a selector over the
+ * resolved ids rather than the original subquery, so the (often hierarchical)
+ * selector is only evaluated once.  Selections which resolve to more than
+ * <code>selector.cache.max_ids</code> ids are not materialised, the original
+ * subquery is used instead.
+ *
+ * Entries are evicted when change log entries are written against any of the kinds
+ * the selection depends on, when a hierarchy is rebuilt (see {@link #invalidateKind(EntityKind)})
+ * or once they exceed their time-to-live.
+ *
+ * Caching is off unless <code>selector.cache.enabled</code> is set, as a cached
+ * selection can lag changes which are not recorded in the change log (e.g. direct
+ * database loads) until its time-to-live expires.  When off, selections are
+ * always evaluated as subqueries.
+ */
+@Repository
+public class IdSelectionResolver implements ChangeLogListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(IdSelectionResolver.class);
+
+    /**
+     * Kinds which link the selection entity to the target entities, beyond the
+     * selection and target kinds themselves.
+     */
+    private static final Map<EntityKind, Set<EntityKind>> LINKING_KINDS = mkLinkingKinds();
+
+    /**
+     * Kinds which may link any selection entity to its targets.
+     */
+    private static final Set<EntityKind> ALWAYS_LINKING_KINDS = EnumSet.of(EntityKind.ENTITY_RELATIONSHIP);
+
+    private final DSLContext dsl;
+    private final boolean enabled;
+    private final int maxIds;
+    private final long ttlMillis;
+    private final Map<Tuple2<EntityKind, IdSelectionOptions>, Entry> entries;
+
+    /**
+     * Incremented on every invalidation, resolutions which straddle an invalidation
+     * are not cached as they may have read data from before the change.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+
+    @Autowired
+    public IdSelectionResolver(DSLContext dsl,
+                               @Value("${selector.cache.enabled:false}") boolean enabled,
+                               @Value("${selector.cache.max_entries:512}") int maxEntries,
+                               @Value("${selector.cache.max_ids:5000}") int maxIds,
+                               @Value("${selector.cache.ttl.minutes:10}") int ttlMinutes) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+        this.enabled = enabled;
+        this.maxIds = maxIds;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.entries = new LinkedHashMap<Tuple2<EntityKind, IdSelectionOptions>, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Tuple2<EntityKind, IdSelectionOptions>, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+
+    /**
+     * Returns a selector equivalent to the given one.  If the selection has been
+     * (or can be) resolved to a small enough set of ids the returned selector reads
+     * from those ids, otherwise the original selector is returned.
+     *
+     * @param targetKind  the kind of entity the selector returns ids for
+     * @param options     the options the selector was built from
+     * @param selector    the selector subquery
+     */
+    public Select<Record1<Long>> resolve(EntityKind targetKind,
+                                         IdSelectionOptions options,
+                                         Select<Record1<Long>> selector) {
+        checkNotNull(targetKind, "targetKind cannot be null");
+        checkNotNull(options, "options cannot be null");
+        checkNotNull(selector, "selector cannot be null");
+
+        if (!enabled) {
+            return selector;
+        }
+
+        Tuple2<EntityKind, IdSelectionOptions> key = tuple(targetKind, options);
+        Entry entry = getEntry(key);
+
+        if (entry == null) {
+            long generationAtStart = generation.get();
+            ResolvedIdSet ids = fetchIds(selector);
+            entry = new Entry(ids, mkDependencies(targetKind, options), System.currentTimeMillis());
+            putEntry(key, entry, generationAtStart);
+        }
+
+        return entry.ids == null
+                ? selector
+                : entry.ids.toSelector(dsl);
+    }
+
+
+    /**
+     * @return the resolved ids for a previously resolved selection, if present and small
+     * enough to have been materialised
+     */
+    public Optional<ResolvedIdSet> findResolved(EntityKind targetKind,
+                                                IdSelectionOptions options) {
+        Entry entry = getEntry(tuple(targetKind, options));
+        return entry == null
+                ? Optional.empty()
+                : Optional.ofNullable(entry.ids);
+    }
+
+
+    @Override
+    public void onChangeLogs(Collection<ChangeLog> changeLogs) {
+        invalidate(changeLogs);
+    }
+
+
+    /**
+     * Evicts entries depending on any of the parent or child kinds of the given change log entries.
+     */
+    public void invalidate(Collection<ChangeLog> changeLogs) {
+        Set<EntityKind> kinds = EnumSet.noneOf(EntityKind.class);
+        for (ChangeLog changeLog : changeLogs) {
+            kinds.add(changeLog.parentReference().kind());
+            changeLog.childKind().ifPresent(kinds::add);
+        }
+        invalidateKinds(kinds);
+    }
+
+
+    /**
+     * Evicts entries depending on the given kind, this should be called when data is
+     * changed without a corresponding change log entry (e.g. hierarchy rebuilds).
+     */
+    public void invalidateKind(EntityKind kind) {
+        checkNotNull(kind, "kind cannot be null");
+        invalidateKinds(EnumSet.of(kind));
+    }
+
+
+    public void clear() {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+
+    // --- helpers
+
+    private void invalidateKinds(Set<EntityKind> kinds) {
+        if (kinds.isEmpty()) {
+            return;
+        }
+        generation.incrementAndGet();
+        synchronized (entries) {
+            int sizeBefore = entries.size();
+            entries.values().removeIf(e -> !Collections.disjoint(e.dependencies, kinds));
+            LOG.debug("Evicted {} resolved selectors depending on: {}", sizeBefore - entries.size(), kinds);
+        }
+    }
+
+
+    private Entry getEntry(Tuple2<EntityKind, IdSelectionOptions> key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+
+    private void putEntry(Tuple2<EntityKind, IdSelectionOptions> key,
+                          Entry entry,
+                          long generationAtStart) {
+        synchronized (entries) {
+            if (generation.get() == generationAtStart) {
+                entries.put(key, entry);
+            }
+        }
+    }
+
+
+    /**
+     * @return the ids yielded by the selector, or null if there are more than <code>maxIds</code>
+     */
+    private ResolvedIdSet fetchIds(Select<Record1<Long>> selector) {
+        long[] ids = new long[64];
+        int count = 0;
+        try (Cursor<Record1<Long>> cursor = dsl.fetchLazy(selector)) {
+            for (Record1<Long> record : cursor) {
+                if (count == maxIds) {
+                    return null;
+                }
+                if (count == ids.length) {
+                    ids = Arrays.copyOf(ids, Math.min(ids.length * 2, maxIds));
+                }
+                Long id = record.value1();
+                if (id != null) {
+                    ids[count++] = id;
+                }
+            }
+        }
+        return ResolvedIdSet.of(Arrays.copyOf(ids, count));
+    }
+
+
+    private static Set<EntityKind> mkDependencies(EntityKind targetKind,
+                                                  IdSelectionOptions options) {
+        EntityKind selectionKind = options.entityReference().kind();
+        Set<EntityKind> dependencies = EnumSet.copyOf(ALWAYS_LINKING_KINDS);
+        dependencies.add(targetKind);
+        dependencies.add(selectionKind);
+        dependencies.addAll(LINKING_KINDS.getOrDefault(selectionKind, Collections.emptySet()));
+        dependencies.addAll(LINKING_KINDS.getOrDefault(targetKind, Collections.emptySet()));
+        return dependencies;
+    }
+
+
+    private static Map<EntityKind, Set<EntityKind>> mkLinkingKinds() {
+        Set<EntityKind> flowKinds = EnumSet.of(
+                EntityKind.LOGICAL_DATA_FLOW,
+                EntityKind.PHYSICAL_FLOW,
+                EntityKind.PHYSICAL_SPECIFICATION);
+
+        Map<EntityKind, Set<EntityKind>> linkingKinds = new EnumMap<>(EntityKind.class);
+        linkingKinds.put(EntityKind.ACTOR, flowKinds);
+        linkingKinds.put(EntityKind.DATA_TYPE, flowKinds);
+        linkingKinds.put(EntityKind.LOGICAL_DATA_FLOW, flowKinds);
+        linkingKinds.put(EntityKind.PHYSICAL_FLOW, flowKinds);
+        linkingKinds.put(EntityKind.PHYSICAL_SPECIFICATION, flowKinds);
+        linkingKinds.put(EntityKind.LEGAL_ENTITY, EnumSet.of(EntityKind.LEGAL_ENTITY_RELATIONSHIP));
+        linkingKinds.put(EntityKind.LEGAL_ENTITY_RELATIONSHIP_KIND, EnumSet.of(EntityKind.LEGAL_ENTITY_RELATIONSHIP));
+        linkingKinds.put(EntityKind.LICENCE, EnumSet.of(EntityKind.SOFTWARE_VERSION, EntityKind.SOFTWARE));
+        linkingKinds.put(EntityKind.MEASURABLE, EnumSet.of(EntityKind.MEASURABLE_RATING));
+        linkingKinds.put(EntityKind.PERSON, EnumSet.of(EntityKind.INVOLVEMENT));
+        linkingKinds.put(EntityKind.SERVER, EnumSet.of(EntityKind.SERVER_USAGE));
+        linkingKinds.put(EntityKind.SOFTWARE, EnumSet.of(EntityKind.SOFTWARE_VERSION));
+        linkingKinds.put(EntityKind.SOFTWARE_VERSION, EnumSet.of(EntityKind.SOFTWARE));
+        linkingKinds.put(EntityKind.ATTESTATION, EnumSet.of(EntityKind.ATTESTATION_RUN));
+        return linkingKinds;
+    }
+
+
+    private static class Entry {
+
+        /** null if the selection exceeded the id limit */
+        private final ResolvedIdSet ids;
+        private final Set<EntityKind> dependencies;
+        private final long loadedAt;
+
+
+        private Entry(ResolvedIdSet ids,
+                      Set<EntityKind> dependencies,
+                      long loadedAt) {
+            this.ids = ids;
+            this.dependencies = dependencies;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -93,6 +93,21 @@ public class InlineSelectFieldFactory {
     }
 
 
+    // --- Mappings (see EntityReferenceDictionary)
+
+    static Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> nameFieldMappings() {
+        return Collections.unmodifiableMap(NAME_RESOLVER.mappings);
+    }
+
+    static Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> externalIdFieldMappings() {
+        return Collections.unmodifiableMap(EXTERNAL_ID_RESOLVER.mappings);
+    }
+
+    static Map<EntityKind, Tuple3<Table, Field<Long>, Field<String>>> lifecycleFieldMappings() {
+        return Collections.unmodifiableMap(LIFECYCLE_RESOLVER.mappings);
+    }
+
+
     // --- Internals ----------------------
 
     private static final InlineSelectFieldFactory NAME_RESOLVER = new InlineSelectFieldFactory(mkNameFieldMappings());
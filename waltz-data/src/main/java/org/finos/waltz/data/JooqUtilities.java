@@ -32,6 +32,8 @@ import org.finos.waltz.schema.tables.records.ChangeLogRecord;
 import org.jooq.Batch;
 import org.jooq.CommonTableExpression;
 import org.jooq.Condition;
+import org.jooq.ConnectionProvider;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Record;
@@ -39,6 +41,7 @@ import org.jooq.Record1;
 import org.jooq.Record2;
 import org.jooq.Record3;
 import org.jooq.RecordMapper;
+import org.jooq.ResultQuery;
 import org.jooq.SQL;
 import org.jooq.SQLDialect;
 import org.jooq.Select;
@@ -47,9 +50,12 @@ import org.jooq.Table;
 import org.jooq.TableField;
 import org.jooq.TableRecord;
 import org.jooq.UpdatableRecord;
+import org.jooq.exception.DataAccessException;
 import org.jooq.impl.DSL;
 
+import java.sql.Connection;
 import java.sql.Date;
+import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.util.Collection;
 import java.util.HashSet;
@@ -57,6 +63,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.StringJoiner;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Function;
 import java.util.stream.Collector;
 import java.util.stream.Collectors;
@@ -71,6 +78,7 @@ import static org.finos.waltz.common.DateTimeUtilities.toLocalDate;
 import static org.finos.waltz.common.DateTimeUtilities.toSqlDate;
 import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.common.SetUtilities.minus;
+import static org.finos.waltz.data.BindParameters.bindOrInline;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.jooq.impl.DSL.currentDate;
 import static org.jooq.impl.DSL.inline;
@@ -79,6 +87,73 @@ public class JooqUtilities {
 
     public static final Field<Integer> TALLY_COUNT_FIELD = DSL.field("count", Integer.class);
 
+    /**
+     * Fetch size used by <code>stream*</code> dao methods, so drivers fetch rows in
+     * batches rather than materialising the whole result set.
+     */
+    public static final int STREAM_FETCH_SIZE = 1000;
+
+
+    /**
+     * Lazily streams the results of the query from an open cursor, fetching
+     * {@link #STREAM_FETCH_SIZE} rows at a time.  Drivers such as Postgres and MySQL ignore
+     * the fetch size under auto-commit, so the query runs on a connection of its own with
+     * auto-commit disabled.  That connection is held until the returned stream is closed.
+     */
+    public static <R extends Record> Stream<R> streamFromCursor(DSLContext dsl,
+                                                                ResultQuery<R> query) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(query, "query cannot be null");
+
+        ConnectionProvider connectionProvider = dsl.configuration().connectionProvider();
+        Connection connection = connectionProvider.acquire();
+        AtomicBoolean restoreAutoCommit = new AtomicBoolean(false);
+        Runnable release = () -> releaseStreamingConnection(connectionProvider, connection, restoreAutoCommit.get());
+
+        try {
+            if (connection.getAutoCommit()) {
+                connection.setAutoCommit(false);
+                restoreAutoCommit.set(true);
+            }
+            Cursor<R> cursor = DSL
+                    .using(dsl.configuration().derive(connection))
+                    .fetchLazy(query.fetchSize(STREAM_FETCH_SIZE));
+
+            return cursor
+                    .stream()
+                    .onClose(() -> {
+                        try {
+                            cursor.close();
+                        } finally {
+                            release.run();
+                        }
+                    });
+        } catch (SQLException e) {
+            release.run();
+            throw new DataAccessException("Could not disable auto-commit for streamed query", e);
+        } catch (RuntimeException e) {
+            release.run();
+            throw e;
+        }
+    }
+
+
+    private static void releaseStreamingConnection(ConnectionProvider connectionProvider,
+                                                   Connection connection,
+                                                   boolean restoreAutoCommit) {
+        try {
+            if (restoreAutoCommit) {
+                // the query only reads, so there is nothing to commit
+                connection.rollback();
+                connection.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            throw new DataAccessException("Could not restore auto-commit after streamed query", e);
+        } finally {
+            connectionProvider.release(connection);
+        }
+    }
+
 
     public static Optional<EntityReference> maybeReadRef(Record record,
                                                          Field<String> kindField,
@@ -302,7 +377,7 @@ public class JooqUtilities {
                 fieldToTally,
                 DSL.count(fieldToTally).as(TALLY_COUNT_FIELD))
                 .from(table)
-                .where(dsl.renderInlined(recordsInScopeCondition))
+                .where(bindOrInline(dsl, recordsInScopeCondition))
                 .groupBy(fieldToTally);
     }
 
@@ -317,7 +392,7 @@ public class JooqUtilities {
                 DSL.count(fieldToTally).as(TALLY_COUNT_FIELD),
                 DSL.rowNumber().over(DSL.orderBy(DSL.count(fieldToTally).desc())))
                 .from(table)
-                .where(dsl.renderInlined(recordsInScopeCondition))
+                .where(bindOrInline(dsl, recordsInScopeCondition))
                 .groupBy(fieldToTally);
     }
 
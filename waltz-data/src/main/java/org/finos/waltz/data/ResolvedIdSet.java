@@ -0,0 +1,213 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Row1;
+import org.jooq.Select;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * An immutable set of entity ids, held as a sorted array of primitive longs.
+ *
+ * Used to hold the result of evaluating an id selector so that it can be fed back
+ * into subsequent queries without re-running the (often expensive) selector
+ * subquery.  Values are bound, so the SQL text only varies with the size of the set,
+ * unless the set exceeds {@link #MAX_BOUND_IDS} or the configured bind parameter limit
+ * (see {@link BindParameters}) in which case they are rendered inline.
+ */
+public final class ResolvedIdSet {
+
+    /**
+     * Sets up to this size are rendered as a plain <code>IN (...)</code> list
+     * by {@link #toCondition(DSLContext, Field)}, larger sets are joined via a <code>VALUES</code> table.
+     */
+    public static final int IN_LIST_LIMIT = 100;
+
+    /**
+     * Sets larger than this are always inlined, even when under the configured bind limit,
+     * so a statement combining a few resolved sets stays under SQL Server's limit of 2100
+     * parameters.
+     */
+    public static final int MAX_BOUND_IDS = 500;
+
+    private static final String TABLE_ALIAS = "resolved_ids";
+    private static final String ID_ALIAS = "id";
+
+    private static final ResolvedIdSet EMPTY = new ResolvedIdSet(new long[0]);
+
+    private final long[] ids;
+
+
+    private ResolvedIdSet(long[] ids) {
+        this.ids = ids;
+    }
+
+
+    public static ResolvedIdSet empty() {
+        return EMPTY;
+    }
+
+
+    public static ResolvedIdSet of(long... ids) {
+        checkNotNull(ids, "ids cannot be null");
+        long[] sorted = Arrays.copyOf(ids, ids.length);
+        Arrays.sort(sorted);
+        return new ResolvedIdSet(dedupeSorted(sorted));
+    }
+
+
+    public static ResolvedIdSet fromCollection(Collection<Long> ids) {
+        checkNotNull(ids, "ids cannot be null");
+        return new ResolvedIdSet(dedupeSorted(ids
+                .stream()
+                .mapToLong(Long::longValue)
+                .sorted()
+                .toArray()));
+    }
+
+
+    public int size() {
+        return ids.length;
+    }
+
+
+    public boolean isEmpty() {
+        return ids.length == 0;
+    }
+
+
+    public boolean contains(long id) {
+        return Arrays.binarySearch(ids, id) >= 0;
+    }
+
+
+    /**
+     * @return a copy of the ids, in ascending order
+     */
+    public long[] toArray() {
+        return Arrays.copyOf(ids, ids.length);
+    }
+
+
+    /**
+     * @return a selector yielding the ids in this set, suitable for use wherever an
+     * id selector subquery is expected (e.g. <code>field.in(selector)</code>)
+     */
+    public Select<Record1<Long>> toSelector(DSLContext dsl) {
+        if (isEmpty()) {
+            return DSL
+                    .select(DSL.inline(-1L))
+                    .where(DSL.falseCondition());
+        }
+
+        Field<Long>[] values = toFields(dsl);
+
+        @SuppressWarnings("unchecked")
+        Row1<Long>[] rows = new Row1[values.length];
+        for (int i = 0; i < values.length; i++) {
+            rows[i] = DSL.row(values[i]);
+        }
+
+        Table<Record1<Long>> table = DSL
+                .values(rows)
+                .as(TABLE_ALIAS, ID_ALIAS);
+
+        return DSL
+                .select(DSL.field(DSL.name(TABLE_ALIAS, ID_ALIAS), Long.class))
+                .from(table);
+    }
+
+
+    /**
+     * @return a condition restricting the given field to the ids in this set, small sets
+     * are rendered as an in-list, larger ones via {@link #toSelector(DSLContext)}
+     */
+    public Condition toCondition(DSLContext dsl, Field<Long> field) {
+        checkNotNull(field, "field cannot be null");
+        if (isEmpty()) {
+            return DSL.falseCondition();
+        } else if (ids.length <= IN_LIST_LIMIT) {
+            return field.in(toFields(dsl));
+        } else {
+            return field.in(toSelector(dsl));
+        }
+    }
+
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        return Arrays.equals(ids, ((ResolvedIdSet) o).ids);
+    }
+
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(ids);
+    }
+
+
+    @Override
+    public String toString() {
+        return "ResolvedIdSet{size=" + ids.length + "}";
+    }
+
+
+    // --- helpers
+
+    private Field<Long>[] toFields(DSLContext dsl) {
+        boolean bind = BindParameters.bindValues(dsl, ids.length, MAX_BOUND_IDS);
+
+        @SuppressWarnings("unchecked")
+        Field<Long>[] values = new Field[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            values[i] = bind
+                    ? DSL.val(ids[i])
+                    : DSL.inline(ids[i]);
+        }
+        return values;
+    }
+
+
+    private static long[] dedupeSorted(long[] sorted) {
+        if (sorted.length < 2) {
+            return sorted;
+        }
+        int last = 0;
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] != sorted[last]) {
+                sorted[++last] = sorted[i];
+            }
+        }
+        return last + 1 == sorted.length
+                ? sorted
+                : Arrays.copyOf(sorted, last + 1);
+    }
+}
@@ -0,0 +1,281 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * An immutable value, loaded in full from the database, which is replaced (rather than
+ * modified) whenever it changes.
+ *
+ * Reads are lock free, they return whichever value is current.  Local writes should be
+ * applied via {@link #update(UnaryOperator)} which derives a new value from a copy of the
+ * current one.  To pick up changes made by other nodes against the shared database the
+ * first read after <code>checkIntervalMillis</code> schedules a check on a background
+ * thread, reads (including that one) continue to use the current value meanwhile.  The
+ * check queries a cheap fingerprint of the underlying rows (e.g. row count and column
+ * lengths) and only reloads the full value if the fingerprint differs from the one taken
+ * when the value was loaded, or if the value is older than <code>maxAgeMillis</code> (the
+ * fingerprint will not notice every change).  The version is only incremented if the
+ * reloaded value differs from the current one.
+ *
+ * New values are built without holding a lock and swapped in with a compare-and-set.  If
+ * a local update replaces the value while a reload is in progress the updated value is
+ * kept.  It carries the fingerprint of the value it was derived from, so the next check
+ * reloads again rather than the reload being repeated straight away.
+ *
+ * @param <T> type of the value, should be immutable and implement <code>equals</code>
+ */
+public class VersionedSnapshot<T> {
+
+    private static final Logger LOG = LoggerFactory.getLogger(VersionedSnapshot.class);
+
+    private static final ExecutorService CHECK_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Snapshot Check");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Supplier<T> loader;
+    private final Supplier<?> fingerprintLoader;
+    private final long checkIntervalMillis;
+    private final long maxAgeMillis;
+    private final Executor checkExecutor;
+    private final AtomicBoolean checking = new AtomicBoolean(false);
+    private final AtomicReference<CompletableFuture<T>> initialLoad = new AtomicReference<>();
+    private final AtomicReference<Version<T>> current = new AtomicReference<>();
+
+
+    public VersionedSnapshot(Supplier<T> loader,
+                             Supplier<?> fingerprintLoader,
+                             long checkIntervalMillis,
+                             long maxAgeMillis) {
+        this(loader, fingerprintLoader, checkIntervalMillis, maxAgeMillis, CHECK_EXECUTOR);
+    }
+
+
+    VersionedSnapshot(Supplier<T> loader,
+                      Supplier<?> fingerprintLoader,
+                      long checkIntervalMillis,
+                      long maxAgeMillis,
+                      Executor checkExecutor) {
+        checkNotNull(loader, "loader cannot be null");
+        checkNotNull(fingerprintLoader, "fingerprintLoader cannot be null");
+        checkNotNull(checkExecutor, "checkExecutor cannot be null");
+        this.loader = loader;
+        this.fingerprintLoader = fingerprintLoader;
+        this.checkIntervalMillis = checkIntervalMillis;
+        this.maxAgeMillis = maxAgeMillis;
+        this.checkExecutor = checkExecutor;
+    }
+
+
+    public T get() {
+        Version<T> version = current.get();
+        if (version == null) {
+            return awaitInitialLoad();
+        }
+
+        if (System.currentTimeMillis() - version.checkedAt > checkIntervalMillis
+                && checking.compareAndSet(false, true)) {
+            try {
+                checkExecutor.execute(this::check);
+            } catch (RejectedExecutionException e) {
+                checking.set(false);
+                LOG.warn("Could not schedule snapshot check, continuing with version: {}", version.number, e);
+            }
+        }
+        return version.value;
+    }
+
+
+    /**
+     * @return the version of the current value, 0 if nothing has been loaded yet
+     */
+    public long version() {
+        Version<T> version = current.get();
+        return version == null
+                ? 0
+                : version.number;
+    }
+
+
+    /**
+     * Replaces the current value with one derived from it.  The updater is given the
+     * current value (which it must not modify) and should return a new value.  The updater
+     * may be applied more than once if the value is replaced concurrently, so it should do
+     * nothing other than read.  If nothing has been loaded yet the update is skipped, the
+     * next read will load the full value.
+     */
+    public void update(UnaryOperator<T> updater) {
+        checkNotNull(updater, "updater cannot be null");
+        while (true) {
+            Version<T> version = current.get();
+            if (version == null) {
+                return;
+            }
+            Version<T> updated = new Version<>(
+                    updater.apply(version.value),
+                    version.number + 1,
+                    version.fingerprint,
+                    version.loadedAt,
+                    version.checkedAt);
+            if (current.compareAndSet(version, updated)) {
+                return;
+            }
+        }
+    }
+
+
+    /**
+     * Reloads the full value from the database.
+     */
+    public T reload() {
+        Version<T> version = current.get();
+        // taken before the value so changes made whilst loading show up in the next check
+        Object fingerprint = fingerprintLoader.get();
+        T loaded = loader.get();
+        long now = System.currentTimeMillis();
+
+        Version<T> reloaded;
+        if (version == null) {
+            reloaded = new Version<>(loaded, 1, fingerprint, now, now);
+        } else if (version.value.equals(loaded)) {
+            reloaded = new Version<>(version.value, version.number, fingerprint, now, now);
+        } else {
+            reloaded = new Version<>(loaded, version.number + 1, fingerprint, now, now);
+        }
+
+        if (current.compareAndSet(version, reloaded)) {
+            return reloaded.value;
+        }
+        // replaced whilst loading, the load may not reflect that change so keep the
+        // replacement, its fingerprint is out of date so the next check loads again
+        return current.get().value;
+    }
+
+
+    // --- helpers
+
+    /**
+     * Reloads the value if the fingerprint of the underlying rows has changed since it
+     * was loaded, or the value has exceeded its maximum age.
+     */
+    private void check() {
+        try {
+            Version<T> version = current.get();
+            long now = System.currentTimeMillis();
+            if (version != null && now - version.loadedAt <= maxAgeMillis) {
+                Object fingerprint = fingerprintLoader.get();
+                if (Objects.equals(fingerprint, version.fingerprint)) {
+                    // if this fails the value was updated, and will be checked again by a later read
+                    current.compareAndSet(version, version.checked(now));
+                    return;
+                }
+            }
+            reload();
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to check snapshot, continuing with version: {}", version(), e);
+        } finally {
+            checking.set(false);
+        }
+    }
+
+
+    /**
+     * Concurrent first reads share a single load rather than each querying the database.
+     * If that load fails the failure is rethrown to its waiters and the next read tries again.
+     */
+    private T awaitInitialLoad() {
+        while (true) {
+            Version<T> version = current.get();
+            if (version != null) {
+                return version.value;
+            }
+
+            CompletableFuture<T> load = initialLoad.get();
+            if (load == null) {
+                CompletableFuture<T> ownLoad = new CompletableFuture<>();
+                if (!initialLoad.compareAndSet(null, ownLoad)) {
+                    continue;
+                }
+                try {
+                    T value = reload();
+                    ownLoad.complete(value);
+                    return value;
+                } catch (RuntimeException e) {
+                    initialLoad.set(null);
+                    ownLoad.completeExceptionally(e);
+                    throw e;
+                }
+            }
+
+            try {
+                return load.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException
+                        ? (RuntimeException) e.getCause()
+                        : e;
+            }
+        }
+    }
+
+
+    private static class Version<T> {
+
+        private final T value;
+        private final long number;
+        private final Object fingerprint;
+        private final long loadedAt;
+        private final long checkedAt;
+
+
+        private Version(T value,
+                        long number,
+                        Object fingerprint,
+                        long loadedAt,
+                        long checkedAt) {
+            this.value = value;
+            this.number = number;
+            this.fingerprint = fingerprint;
+            this.loadedAt = loadedAt;
+            this.checkedAt = checkedAt;
+        }
+
+
+        private Version<T> checked(long checkedAt) {
+            return new Version<>(value, number, fingerprint, loadedAt, checkedAt);
+        }
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.aggregate_overlay_diagram;
+
+import org.finos.waltz.data.ResolvedIdSet;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Records which aggregated entities (e.g. applications) fall into each cell of an
+ * overlay diagram, for a given selection.
+ *
+ * The distinct entity ids are held once, as a sorted array, and each cell holds a
+ * bitmap of positions within that array.  Instances are immutable and are shared by
+ * all widgets drawn over the same diagram and selection, see {@link AggregateOverlayDiagramCellIndexCache}.
+ *
+ * Null entity ids (e.g. measurable ratings which will have been decommissioned by a
+ * target date) are not recorded.
+ */
+public final class AggregateOverlayDiagramCellIndex {
+
+    private static final AggregateOverlayDiagramCellIndex EMPTY = new AggregateOverlayDiagramCellIndex(
+            new long[0],
+            Collections.emptyMap());
+
+    private final long[] entityIds;
+    private final Map<String, BitSet> membersByCellExtId;
+
+
+    private AggregateOverlayDiagramCellIndex(long[] entityIds,
+                                             Map<String, BitSet> membersByCellExtId) {
+        this.entityIds = entityIds;
+        this.membersByCellExtId = membersByCellExtId;
+    }
+
+
+    public static AggregateOverlayDiagramCellIndex empty() {
+        return EMPTY;
+    }
+
+
+    public static AggregateOverlayDiagramCellIndex fromCellEntityIds(Map<String, ? extends Collection<Long>> entityIdsByCellExtId) {
+        checkNotNull(entityIdsByCellExtId, "entityIdsByCellExtId cannot be null");
+
+        long[] entityIds = entityIdsByCellExtId
+                .values()
+                .stream()
+                .flatMap(Collection::stream)
+                .filter(Objects::nonNull)
+                .mapToLong(Long::longValue)
+                .sorted()
+                .distinct()
+                .toArray();
+
+        Map<String, BitSet> membersByCellExtId = new HashMap<>(entityIdsByCellExtId.size() * 2);
+        entityIdsByCellExtId.forEach((cellExtId, ids) -> {
+            BitSet members = new BitSet(entityIds.length);
+            for (Long id : ids) {
+                if (id != null) {
+                    members.set(Arrays.binarySearch(entityIds, id));
+                }
+            }
+            membersByCellExtId.put(cellExtId, members);
+        });
+
+        return new AggregateOverlayDiagramCellIndex(entityIds, membersByCellExtId);
+    }
+
+
+    public Set<String> cellExternalIds() {
+        return Collections.unmodifiableSet(membersByCellExtId.keySet());
+    }
+
+
+    /**
+     * @return ids of the entities in the cell, empty if the cell is not known
+     */
+    public Set<Long> findEntityIdsForCell(String cellExtId) {
+        BitSet members = membersByCellExtId.get(cellExtId);
+        return members == null
+                ? Collections.emptySet()
+                : toIds(members);
+    }
+
+
+    /**
+     * @return ids of the entities which appear in any cell
+     */
+    public ResolvedIdSet entityIds() {
+        return ResolvedIdSet.of(entityIds);
+    }
+
+
+    public boolean containsEntity(long entityId) {
+        return Arrays.binarySearch(entityIds, entityId) >= 0;
+    }
+
+
+    public int entityCount() {
+        return entityIds.length;
+    }
+
+
+    /**
+     * @return a new (mutable) map of cell external id to the ids of the entities in that cell
+     */
+    public Map<String, Set<Long>> toCellEntityIdsMap() {
+        Map<String, Set<Long>> result = new HashMap<>(membersByCellExtId.size() * 2);
+        membersByCellExtId.forEach((cellExtId, members) -> result.put(cellExtId, toIds(members)));
+        return result;
+    }
+
+
+    private Set<Long> toIds(BitSet members) {
+        Set<Long> ids = new HashSet<>(members.cardinality() * 2);
+        for (int i = members.nextSetBit(0); i >= 0; i = members.nextSetBit(i + 1)) {
+            ids.add(entityIds[i]);
+        }
+        return ids;
+    }
+}
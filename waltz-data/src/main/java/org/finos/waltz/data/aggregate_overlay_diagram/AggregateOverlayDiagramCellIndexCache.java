@@ -0,0 +1,331 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.aggregate_overlay_diagram;
+
+import org.finos.waltz.data.changelog.ChangeLogListener;
+import org.finos.waltz.model.AssessmentBasedSelectionFilter;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.jooq.DSLContext;
+import org.jooq.Record1;
+import org.jooq.Select;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple5;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellIndex;
+import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadExpandedCellMappingsForDiagram;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Caches {@link AggregateOverlayDiagramCellIndex}es, keyed by diagram, aggregated entity kind,
+ * selection, assessment filters and target date, so switching between widgets on the same
+ * diagram does not repeatedly re-map the diagram cells to entities.
+ *
+ * Each entry records the kinds its cell mappings were derived from, e.g. a diagram whose cells
+ * are backed by data types depends on logical flows but not on measurable ratings.  Change log
+ * entries only evict the entries they could affect:
+ * <ul>
+ *     <li>changes to a diagram evict the entries for that diagram</li>
+ *     <li>changes against the kind of the selection entity, or a kind the entry depends upon, evict the entry</li>
+ *     <li>other changes to an aggregated entity (e.g. an application) evict entries whose index contains it</li>
+ *     <li>changes which may bring an aggregated entity into the selection (it being created, or updated
+ *     directly or against its org unit, e.g. re-parented or a lifecycle or kind change) evict the entry
+ *     even if its index does not contain the entity</li>
+ * </ul>
+ * Entries are also evicted once they exceed their time-to-live.
+ */
+@Repository
+public class AggregateOverlayDiagramCellIndexCache implements ChangeLogListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(AggregateOverlayDiagramCellIndexCache.class);
+
+    private final DSLContext dsl;
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final Map<Tuple5<Long, EntityKind, IdSelectionOptions, Set<AssessmentBasedSelectionFilter>, Optional<LocalDate>>, Entry> entries;
+
+    /**
+     * Incremented on every invalidation, indexes built whilst an invalidation occurs are not cached.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+
+    @Autowired
+    public AggregateOverlayDiagramCellIndexCache(DSLContext dsl,
+                                                 @Value("${overlay_diagram.cache.enabled:true}") boolean enabled,
+                                                 @Value("${overlay_diagram.cache.max_entries:64}") int maxEntries,
+                                                 @Value("${overlay_diagram.cache.ttl.minutes:5}") int ttlMinutes) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+        this.enabled = enabled;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.entries = new LinkedHashMap<Tuple5<Long, EntityKind, IdSelectionOptions, Set<AssessmentBasedSelectionFilter>, Optional<LocalDate>>, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Tuple5<Long, EntityKind, IdSelectionOptions, Set<AssessmentBasedSelectionFilter>, Optional<LocalDate>>, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+
+    /**
+     * Returns the cell index for the diagram and selection, building it if needed.
+     *
+     * @param diagramId                diagram whose cells are being indexed
+     * @param aggregatedEntityKind     kind of entity being aggregated into the cells
+     * @param selectionOptions         options the in scope selector was built from
+     * @param filters                  assessment filters applied to the in scope selector
+     * @param targetStateDate          if present, measurable ratings are projected to this date
+     * @param inScopeEntityIdSelector  selector for the in scope entities (already filtered)
+     */
+    public AggregateOverlayDiagramCellIndex getIndex(long diagramId,
+                                                     EntityKind aggregatedEntityKind,
+                                                     IdSelectionOptions selectionOptions,
+                                                     Set<AssessmentBasedSelectionFilter> filters,
+                                                     Optional<LocalDate> targetStateDate,
+                                                     Select<Record1<Long>> inScopeEntityIdSelector) {
+        checkNotNull(aggregatedEntityKind, "aggregatedEntityKind cannot be null");
+        checkNotNull(selectionOptions, "selectionOptions cannot be null");
+        checkNotNull(targetStateDate, "targetStateDate cannot be null");
+        checkNotNull(inScopeEntityIdSelector, "inScopeEntityIdSelector cannot be null");
+
+        if (!enabled) {
+            return loadCellIndex(dsl, diagramId, aggregatedEntityKind, inScopeEntityIdSelector, targetStateDate);
+        }
+
+        Set<AssessmentBasedSelectionFilter> filtersOrEmpty = filters == null
+                ? Collections.emptySet()
+                : filters;
+
+        Tuple5<Long, EntityKind, IdSelectionOptions, Set<AssessmentBasedSelectionFilter>, Optional<LocalDate>> key = tuple(
+                diagramId,
+                aggregatedEntityKind,
+                selectionOptions,
+                filtersOrEmpty,
+                targetStateDate);
+
+        Entry entry = getEntry(key);
+        if (entry == null) {
+            long generationAtStart = generation.get();
+            long start = System.currentTimeMillis();
+            Set<Tuple2<String, EntityReference>> cellMappings = loadExpandedCellMappingsForDiagram(dsl, diagramId);
+            AggregateOverlayDiagramCellIndex index = loadCellIndex(
+                    dsl,
+                    cellMappings,
+                    aggregatedEntityKind,
+                    inScopeEntityIdSelector,
+                    targetStateDate);
+            LOG.debug("Built cell index for diagram: {}, selection: {}, entities: {} in {}ms",
+                    diagramId,
+                    selectionOptions.entityReference(),
+                    index.entityCount(),
+                    System.currentTimeMillis() - start);
+            entry = new Entry(
+                    index,
+                    diagramId,
+                    aggregatedEntityKind,
+                    selectionOptions.entityReference().kind(),
+                    determineDependencies(aggregatedEntityKind, cellMappings, filtersOrEmpty),
+                    System.currentTimeMillis());
+            putEntry(key, entry, generationAtStart);
+        }
+        return entry.index;
+    }
+
+
+    @Override
+    public void onChangeLogs(Collection<ChangeLog> changeLogs) {
+        invalidate(changeLogs);
+    }
+
+
+    /**
+     * Evicts entries which may be affected by any of the given change log entries.
+     */
+    public void invalidate(Collection<ChangeLog> changeLogs) {
+        if (changeLogs.isEmpty()) {
+            return;
+        }
+
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.values().removeIf(e -> changeLogs.stream().anyMatch(e::isAffectedBy));
+        }
+    }
+
+
+    /**
+     * Evicts the entries for a single diagram, e.g. after its cell mappings have been saved.
+     */
+    public void invalidateDiagram(long diagramId) {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.values().removeIf(e -> e.diagramId == diagramId);
+        }
+    }
+
+
+    public void clear() {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+
+    // --- helpers
+
+    /**
+     * Kinds, other than the diagram and the aggregated kind itself, whose changes may alter
+     * the cell membership: the links from the backing entities of the cells to the aggregated
+     * entities and, if filtered, the assessment ratings the filters read.
+     */
+    static Set<EntityKind> determineDependencies(EntityKind aggregatedEntityKind,
+                                                 Set<Tuple2<String, EntityReference>> cellMappings,
+                                                 Set<AssessmentBasedSelectionFilter> filters) {
+        Set<EntityKind> backingKinds = EnumSet.noneOf(EntityKind.class);
+        cellMappings.forEach(t -> backingKinds.add(t.v2.kind()));
+
+        Set<EntityKind> dependencies = EnumSet.noneOf(EntityKind.class);
+        if (backingKinds.contains(EntityKind.MEASURABLE)) {
+            dependencies.add(EntityKind.MEASURABLE);
+            if (aggregatedEntityKind == EntityKind.CHANGE_INITIATIVE) {
+                dependencies.add(EntityKind.ENTITY_RELATIONSHIP);
+            } else {
+                dependencies.add(EntityKind.MEASURABLE_RATING);
+                dependencies.add(EntityKind.MEASURABLE_RATING_PLANNED_DECOMMISSION);
+                dependencies.add(EntityKind.MEASURABLE_RATING_REPLACEMENT);
+            }
+        }
+        if (backingKinds.contains(EntityKind.DATA_TYPE)) {
+            dependencies.add(EntityKind.DATA_TYPE);
+            dependencies.add(EntityKind.LOGICAL_DATA_FLOW);
+        }
+        if (!filters.isEmpty()) {
+            dependencies.add(EntityKind.ASSESSMENT_RATING);
+        }
+        return dependencies;
+    }
+
+
+    private Entry getEntry(Tuple5<Long, EntityKind, IdSelectionOptions, Set<AssessmentBasedSelectionFilter>, Optional<LocalDate>> key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && System.currentTimeMillis() - entry.loadedAt > ttlMillis) {
+                entries.remove(key);
+                return null;
+            }
+            return entry;
+        }
+    }
+
+
+    private void putEntry(Tuple5<Long, EntityKind, IdSelectionOptions, Set<AssessmentBasedSelectionFilter>, Optional<LocalDate>> key,
+                          Entry entry,
+                          long generationAtStart) {
+        synchronized (entries) {
+            if (generation.get() == generationAtStart) {
+                entries.put(key, entry);
+            }
+        }
+    }
+
+
+    static class Entry {
+
+        private final AggregateOverlayDiagramCellIndex index;
+        private final long diagramId;
+        private final EntityKind aggregatedEntityKind;
+        private final EntityKind selectionKind;
+        private final Set<EntityKind> dependencies;
+        private final long loadedAt;
+
+
+        Entry(AggregateOverlayDiagramCellIndex index,
+              long diagramId,
+              EntityKind aggregatedEntityKind,
+              EntityKind selectionKind,
+              Set<EntityKind> dependencies,
+              long loadedAt) {
+            this.index = index;
+            this.diagramId = diagramId;
+            this.aggregatedEntityKind = aggregatedEntityKind;
+            this.selectionKind = selectionKind;
+            this.dependencies = dependencies;
+            this.loadedAt = loadedAt;
+        }
+
+
+        boolean isAffectedBy(ChangeLog changeLog) {
+            EntityReference parent = changeLog.parentReference();
+
+            if (parent.kind() == EntityKind.AGGREGATE_OVERLAY_DIAGRAM) {
+                return parent.id() == diagramId;
+            }
+
+            if (parent.kind() == selectionKind
+                    || dependencies.contains(parent.kind())
+                    || changeLog.childKind().map(dependencies::contains).orElse(false)) {
+                return true;
+            }
+
+            if (parent.kind() != aggregatedEntityKind) {
+                return false;
+            }
+
+            return index.containsEntity(parent.id())
+                    || mayAlterSelectionMembership(changeLog);
+        }
+
+
+        /**
+         * Entity updates (e.g. org unit, lifecycle or kind changes) are logged without a child
+         * kind, or against the org unit, and are not distinguished by field.
+         */
+        private static boolean mayAlterSelectionMembership(ChangeLog changeLog) {
+            boolean addOrUpdate = changeLog.operation() == Operation.ADD
+                    || changeLog.operation() == Operation.UPDATE;
+
+            return addOrUpdate && changeLog
+                    .childKind()
+                    .map(k -> k == EntityKind.ORG_UNIT)
+                    .orElse(true);
+        }
+    }
+}
@@ -160,6 +160,46 @@ public class AggregateOverlayDiagramUtilities {
     }
 
 
+    /**
+     * Builds the cell index for a diagram, see {@link AggregateOverlayDiagramCellIndexCache} to reuse
+     * indexes between widgets.
+     */
+    public static AggregateOverlayDiagramCellIndex loadCellIndex(DSLContext dsl,
+                                                                 long diagramId,
+                                                                 EntityKind aggregatedEntityKind,
+                                                                 Select<Record1<Long>> inScopeEntityIdSelector,
+                                                                 Optional<LocalDate> targetStateDate) {
+        return loadCellIndex(
+                dsl,
+                loadExpandedCellMappingsForDiagram(dsl, diagramId),
+                aggregatedEntityKind,
+                inScopeEntityIdSelector,
+                targetStateDate);
+    }
+
+
+    /**
+     * Builds the cell index from cell mappings which have already been loaded, see
+     * {@link #loadExpandedCellMappingsForDiagram(DSLContext, long)}.
+     */
+    public static AggregateOverlayDiagramCellIndex loadCellIndex(DSLContext dsl,
+                                                                 Set<Tuple2<String, EntityReference>> cellMappings,
+                                                                 EntityKind aggregatedEntityKind,
+                                                                 Select<Record1<Long>> inScopeEntityIdSelector,
+                                                                 Optional<LocalDate> targetStateDate) {
+        if (cellMappings.isEmpty()) {
+            return AggregateOverlayDiagramCellIndex.empty();
+        }
+
+        return AggregateOverlayDiagramCellIndex.fromCellEntityIds(loadCellExtIdToAggregatedEntities(
+                dsl,
+                cellMappings,
+                aggregatedEntityKind,
+                inScopeEntityIdSelector,
+                targetStateDate));
+    }
+
+
     public static Set<Long> toMeasurableIds(Set<Tuple2<String, EntityReference>> cellMappings) {
         return cellMappings
                 .stream()
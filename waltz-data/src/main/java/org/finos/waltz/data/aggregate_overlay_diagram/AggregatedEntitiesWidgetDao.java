@@ -7,7 +7,6 @@ import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableAggregat
 import org.jooq.DSLContext;
 import org.jooq.Record1;
 import org.jooq.Select;
-import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -18,9 +17,8 @@ import java.util.Optional;
 import java.util.Set;
 
 import static java.util.stream.Collectors.toSet;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellExtIdToAggregatedEntities;
+import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellIndex;
 import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadEntityIdToRefMap;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadExpandedCellMappingsForDiagram;
 
 @Repository
 public class AggregatedEntitiesWidgetDao {
@@ -39,16 +37,26 @@ public class AggregatedEntitiesWidgetDao {
                                                              Select<Record1<Long>> inScopeEntityIdSelector,
                                                              Optional<LocalDate> targetStateDate) {
 
-        Set<Tuple2<String, EntityReference>> cellWithBackingEntities = loadExpandedCellMappingsForDiagram(dsl, diagramId);
-
-        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = loadCellExtIdToAggregatedEntities(
+        AggregateOverlayDiagramCellIndex cellIndex = loadCellIndex(
                 dsl,
-                cellWithBackingEntities,
+                diagramId,
                 aggregatedEntityKind,
                 inScopeEntityIdSelector,
                 targetStateDate);
 
-        Map<Long, EntityReference> entityIdToRefMap = loadEntityIdToRefMap(dsl, aggregatedEntityKind, inScopeEntityIdSelector);
+        return findWidgetData(cellIndex, aggregatedEntityKind);
+    }
+
+
+    public Set<AggregatedEntitiesWidgetDatum> findWidgetData(AggregateOverlayDiagramCellIndex cellIndex,
+                                                             EntityKind aggregatedEntityKind) {
+
+        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = cellIndex.toCellEntityIdsMap();
+
+        Map<Long, EntityReference> entityIdToRefMap = loadEntityIdToRefMap(
+                dsl,
+                aggregatedEntityKind,
+                cellIndex.entityIds().toSelector(dsl));
 
         return cellExtIdsToAggregatedEntities
                 .entrySet()
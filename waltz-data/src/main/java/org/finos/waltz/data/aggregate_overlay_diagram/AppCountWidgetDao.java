@@ -1,7 +1,6 @@
 package org.finos.waltz.data.aggregate_overlay_diagram;
 
 import org.finos.waltz.model.EntityKind;
-import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.CountWidgetDatum;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableCountWidgetDatum;
 import org.jooq.DSLContext;
@@ -23,8 +22,7 @@ import java.util.Optional;
 import java.util.Set;
 
 import static java.util.stream.Collectors.toSet;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellExtIdToAggregatedEntities;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadExpandedCellMappingsForDiagram;
+import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellIndex;
 import static org.finos.waltz.schema.Tables.APPLICATION;
 import static org.jooq.lambda.tuple.Tuple.tuple;
 
@@ -45,15 +43,22 @@ public class AppCountWidgetDao {
                                                 Select<Record1<Long>> inScopeApplicationSelector,
                                                 LocalDate targetStateDate) {
 
-        Set<Tuple2<String, EntityReference>> cellWithBackingEntities = loadExpandedCellMappingsForDiagram(dsl, diagramId);
-
-        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = loadCellExtIdToAggregatedEntities(
+        AggregateOverlayDiagramCellIndex cellIndex = loadCellIndex(
                 dsl,
-                cellWithBackingEntities,
+                diagramId,
                 EntityKind.APPLICATION,
                 inScopeApplicationSelector,
                 Optional.empty());
 
+        return findWidgetData(cellIndex, targetStateDate);
+    }
+
+
+    public Set<CountWidgetDatum> findWidgetData(AggregateOverlayDiagramCellIndex cellIndex,
+                                                LocalDate targetStateDate) {
+
+        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = cellIndex.toCellEntityIdsMap();
+
         Set<Long> appIds = cellExtIdsToAggregatedEntities.values()
                 .stream()
                 .flatMap(Collection::stream)
@@ -4,7 +4,6 @@ import org.finos.waltz.common.CollectionUtilities;
 import org.finos.waltz.common.MapUtilities;
 import org.finos.waltz.data.rating_scheme.RatingSchemeDAO;
 import org.finos.waltz.model.EntityKind;
-import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AssessmentRatingCount;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AssessmentRatingsWidgetDatum;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableAssessmentRatingCount;
@@ -13,7 +12,6 @@ import org.finos.waltz.schema.tables.AssessmentRating;
 import org.jooq.DSLContext;
 import org.jooq.Record1;
 import org.jooq.Select;
-import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -50,15 +48,23 @@ public class AssessmentRatingWidgetDao {
                                                             Select<Record1<Long>> inScopeEntityIdSelector,
                                                             Optional<LocalDate> targetStateDate) {
 
-        Set<Tuple2<String, EntityReference>> cellWithBackingEntities = loadExpandedCellMappingsForDiagram(dsl, diagramId);
-
-        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = loadCellExtIdToAggregatedEntities(
+        AggregateOverlayDiagramCellIndex cellIndex = loadCellIndex(
                 dsl,
-                cellWithBackingEntities,
+                diagramId,
                 aggregatedEntityKind,
                 inScopeEntityIdSelector,
                 targetStateDate);
 
+        return findWidgetData(cellIndex, aggregatedEntityKind, assessmentId);
+    }
+
+
+    public Set<AssessmentRatingsWidgetDatum> findWidgetData(AggregateOverlayDiagramCellIndex cellIndex,
+                                                            EntityKind aggregatedEntityKind,
+                                                            Long assessmentId) {
+
+        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = cellIndex.toCellEntityIdsMap();
+
         Set<Long> diagramEntityIds = cellExtIdsToAggregatedEntities.values()
                 .stream()
                 .flatMap(Collection::stream)
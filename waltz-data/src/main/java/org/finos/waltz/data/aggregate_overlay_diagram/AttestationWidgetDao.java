@@ -1,7 +1,6 @@
 package org.finos.waltz.data.aggregate_overlay_diagram;
 
 import org.finos.waltz.model.EntityKind;
-import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AttestationEntry;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AttestationWidgetDatum;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableAttestationEntry;
@@ -15,7 +14,6 @@ import org.jooq.Record5;
 import org.jooq.Select;
 import org.jooq.SelectConditionStep;
 import org.jooq.impl.DSL;
-import org.jooq.lambda.tuple.Tuple2;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
@@ -27,8 +25,7 @@ import java.util.Set;
 import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDateTime;
 import static org.finos.waltz.common.SetUtilities.map;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellExtIdToAggregatedEntities;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadExpandedCellMappingsForDiagram;
+import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellIndex;
 
 @Repository
 public class AttestationWidgetDao {
@@ -50,15 +47,23 @@ public class AttestationWidgetDao {
                                                       Optional<Long> attestedEntityId,
                                                       Select<Record1<Long>> inScopeEntityIdSelector) {
 
-        Set<Tuple2<String, EntityReference>> cellWithBackingEntities = loadExpandedCellMappingsForDiagram(dsl, diagramId);
-
-        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = loadCellExtIdToAggregatedEntities(
+        AggregateOverlayDiagramCellIndex cellIndex = loadCellIndex(
                 dsl,
-                cellWithBackingEntities,
+                diagramId,
                 EntityKind.APPLICATION,
                 inScopeEntityIdSelector,
                 Optional.empty());
 
+        return findWidgetData(cellIndex, attestedEntityKind, attestedEntityId);
+    }
+
+
+    public Set<AttestationWidgetDatum> findWidgetData(AggregateOverlayDiagramCellIndex cellIndex,
+                                                      EntityKind attestedEntityKind,
+                                                      Optional<Long> attestedEntityId) {
+
+        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = cellIndex.toCellEntityIdsMap();
+
         SelectConditionStep<Record5<String, Long, Timestamp, String, Integer>> rawAttestationData = dsl
                 .select(
                         att_i.PARENT_ENTITY_KIND.as("ref_k"),
@@ -73,7 +78,7 @@ public class AttestationWidgetDao {
                 .from(att_i)
                 .innerJoin(att_r).on(att_i.ATTESTATION_RUN_ID.eq(att_r.ID))
                 .where(att_i.PARENT_ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
-                .and(att_i.PARENT_ENTITY_ID.in(inScopeEntityIdSelector))
+                .and(cellIndex.entityIds().toCondition(dsl, att_i.PARENT_ENTITY_ID))
                 .and(att_r.ATTESTED_ENTITY_KIND.eq(attestedEntityKind.name())
                         .and(attestedEntityId
                                 .map(att_r.ATTESTED_ENTITY_ID::eq)
@@ -1,7 +1,6 @@
 package org.finos.waltz.data.aggregate_overlay_diagram;
 
 import org.finos.waltz.model.EntityKind;
-import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ComplexityEntry;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ComplexityWidgetDatum;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableComplexityEntry;
@@ -19,8 +18,7 @@ import java.util.*;
 
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.toSet;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellExtIdToAggregatedEntities;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadExpandedCellMappingsForDiagram;
+import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellIndex;
 import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
@@ -42,20 +40,25 @@ public class ComplexityWidgetDao {
                                                      Set<Long> costKindIds,
                                                      Select<Record1<Long>> inScopeEntityIdSelector) {
 
-        Set<Tuple2<String, EntityReference>> cellWithBackingEntities = loadExpandedCellMappingsForDiagram(dsl, diagramId);
-
-        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = loadCellExtIdToAggregatedEntities(
+        AggregateOverlayDiagramCellIndex cellIndex = loadCellIndex(
                 dsl,
-                cellWithBackingEntities,
+                diagramId,
                 aggregatedEntityKind,
                 inScopeEntityIdSelector,
                 Optional.empty());
 
+        return findWidgetData(cellIndex, aggregatedEntityKind, costKindIds);
+    }
+
+
+    public Set<ComplexityWidgetDatum> findWidgetData(AggregateOverlayDiagramCellIndex cellIndex,
+                                                     EntityKind aggregatedEntityKind,
+                                                     Set<Long> costKindIds) {
         return fetchComplexityData(
                 dsl,
                 costKindIds,
                 aggregatedEntityKind,
-                cellExtIdsToAggregatedEntities);
+                cellIndex.toCellEntityIdsMap());
     }
 
 
@@ -1,7 +1,6 @@
 package org.finos.waltz.data.aggregate_overlay_diagram;
 
 import org.finos.waltz.model.EntityKind;
-import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableTargetCostWidgetDatum;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.TargetCostWidgetDatum;
 import org.jooq.Condition;
@@ -25,8 +24,7 @@ import java.util.Optional;
 import java.util.Set;
 
 import static java.util.stream.Collectors.toSet;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellExtIdToAggregatedEntities;
-import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadExpandedCellMappingsForDiagram;
+import static org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramUtilities.loadCellIndex;
 import static org.finos.waltz.schema.Tables.*;
 import static org.jooq.lambda.tuple.Tuple.tuple;
 
@@ -47,15 +45,22 @@ public class TargetAppCostWidgetDao {
                                                      Select<Record1<Long>> inScopeApplicationSelector,
                                                      LocalDate targetStateDate) {
 
-        Set<Tuple2<String, EntityReference>> cellWithBackingEntities = loadExpandedCellMappingsForDiagram(dsl, diagramId);
-
-        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = loadCellExtIdToAggregatedEntities(
+        AggregateOverlayDiagramCellIndex cellIndex = loadCellIndex(
                 dsl,
-                cellWithBackingEntities,
+                diagramId,
                 EntityKind.APPLICATION,
                 inScopeApplicationSelector,
                 Optional.empty());
 
+        return findWidgetData(cellIndex, targetStateDate);
+    }
+
+
+    public Set<TargetCostWidgetDatum> findWidgetData(AggregateOverlayDiagramCellIndex cellIndex,
+                                                     LocalDate targetStateDate) {
+
+        Map<String, Set<Long>> cellExtIdsToAggregatedEntities = cellIndex.toCellEntityIdsMap();
+
         Set<Long> diagramAppIds = cellExtIdsToAggregatedEntities
                 .values()
                 .stream()
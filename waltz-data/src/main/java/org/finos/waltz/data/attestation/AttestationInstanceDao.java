@@ -67,15 +67,20 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import static java.lang.String.format;
 import static java.util.stream.Collectors.counting;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
@@ -151,6 +156,91 @@ public class AttestationInstanceDao {
     }
 
 
+    /**
+     * Inserts the given instances as a single batch, ids are not returned, use
+     * {@link #findIdsByRunAndParentEntities(DSLContext, long, Collection)} to retrieve them.
+     *
+     * @return number of instances inserted
+     */
+    public int bulkCreate(DSLContext tx, Collection<AttestationInstance> attestationInstances) {
+        checkNotNull(attestationInstances, "attestationInstances cannot be null");
+
+        if (attestationInstances.isEmpty()) {
+            return 0;
+        }
+
+        List<AttestationInstanceRecord> records = attestationInstances
+                .stream()
+                .map(instance -> {
+                    AttestationInstanceRecord record = tx.newRecord(ATTESTATION_INSTANCE);
+                    record.setAttestationRunId(instance.attestationRunId());
+                    record.setParentEntityKind(instance.parentEntity().kind().name());
+                    record.setParentEntityId(instance.parentEntity().id());
+                    record.setAttestedEntityKind(instance.attestedEntityKind().name());
+                    return record;
+                })
+                .collect(toList());
+
+        return IntStream
+                .of(tx.batchInsert(records).execute())
+                .map(count -> Math.max(count, 0))
+                .sum();
+    }
+
+
+    /**
+     * @return ids of the run's instances, keyed by their parent entity
+     */
+    public Map<EntityReference, Long> findIdsByRunAndParentEntities(DSLContext tx,
+                                                                    long runId,
+                                                                    Collection<EntityReference> parentEntities) {
+        checkNotNull(parentEntities, "parentEntities cannot be null");
+
+        if (parentEntities.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        Set<Long> parentIds = parentEntities
+                .stream()
+                .map(EntityReference::id)
+                .collect(toSet());
+
+        Map<EntityReference, Long> idsByParent = new HashMap<>();
+        tx.select(ATTESTATION_INSTANCE.ID,
+                        ATTESTATION_INSTANCE.PARENT_ENTITY_KIND,
+                        ATTESTATION_INSTANCE.PARENT_ENTITY_ID)
+                .from(ATTESTATION_INSTANCE)
+                .where(ATTESTATION_INSTANCE.ATTESTATION_RUN_ID.eq(runId))
+                .and(ATTESTATION_INSTANCE.PARENT_ENTITY_ID.in(parentIds))
+                .forEach(r -> idsByParent.put(
+                        mkRef(EntityKind.valueOf(r.get(ATTESTATION_INSTANCE.PARENT_ENTITY_KIND)),
+                                r.get(ATTESTATION_INSTANCE.PARENT_ENTITY_ID)),
+                        r.get(ATTESTATION_INSTANCE.ID)));
+
+        return idsByParent
+                .entrySet()
+                .stream()
+                .filter(e -> parentEntities.contains(e.getKey()))
+                .collect(toMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+
+
+    /**
+     * @return parent entities which already have an instance in the given run, used when
+     * resuming the issuance of a run
+     */
+    public Set<EntityReference> findParentEntitiesByRunId(long runId) {
+        return dsl
+                .select(ATTESTATION_INSTANCE.PARENT_ENTITY_KIND,
+                        ATTESTATION_INSTANCE.PARENT_ENTITY_ID)
+                .from(ATTESTATION_INSTANCE)
+                .where(ATTESTATION_INSTANCE.ATTESTATION_RUN_ID.eq(runId))
+                .fetchSet(r -> mkRef(
+                        EntityKind.valueOf(r.get(ATTESTATION_INSTANCE.PARENT_ENTITY_KIND)),
+                        r.get(ATTESTATION_INSTANCE.PARENT_ENTITY_ID)));
+    }
+
+
     public List<AttestationInstance> findByRecipient(String userId, boolean unattestedOnly) {
         Condition condition = ATTESTATION_INSTANCE_RECIPIENT.USER_ID.eq(userId);
         if(unattestedOnly) {
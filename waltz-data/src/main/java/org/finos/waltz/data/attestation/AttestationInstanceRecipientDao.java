@@ -23,8 +23,12 @@ import org.jooq.DSLContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
 
+import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.schema.tables.AttestationInstance.ATTESTATION_INSTANCE;
 import static org.finos.waltz.schema.tables.AttestationInstanceRecipient.ATTESTATION_INSTANCE_RECIPIENT;
 
@@ -52,6 +56,37 @@ public class AttestationInstanceRecipientDao {
     }
 
 
+    /**
+     * Inserts a recipient for each user id against its instance as a single batch.
+     *
+     * @param userIdsByInstanceId  recipient user ids, keyed by attestation instance id
+     * @return number of recipients inserted
+     */
+    public int bulkCreate(DSLContext tx, Map<Long, ? extends Collection<String>> userIdsByInstanceId) {
+        List<AttestationInstanceRecipientRecord> records = userIdsByInstanceId
+                .entrySet()
+                .stream()
+                .flatMap(e -> e.getValue()
+                        .stream()
+                        .map(userId -> {
+                            AttestationInstanceRecipientRecord record = tx.newRecord(ATTESTATION_INSTANCE_RECIPIENT);
+                            record.setAttestationInstanceId(e.getKey());
+                            record.setUserId(userId);
+                            return record;
+                        }))
+                .collect(toList());
+
+        if (records.isEmpty()) {
+            return 0;
+        }
+
+        return IntStream
+                .of(tx.batchInsert(records).execute())
+                .map(count -> Math.max(count, 0))
+                .sum();
+    }
+
+
     public List<String> findRecipientsByRunId(Long id) {
 
         return dsl
@@ -31,6 +31,7 @@ import org.finos.waltz.model.attestation.AttestationStatus;
 import org.finos.waltz.model.attestation.ImmutableAttestationRun;
 import org.finos.waltz.model.attestation.ImmutableAttestationRunResponseSummary;
 import org.finos.waltz.schema.tables.records.AttestationRunRecord;
+import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Field;
 import org.jooq.Record;
@@ -42,6 +43,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.sql.Timestamp;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -241,6 +243,10 @@ public class AttestationRunDao {
         record.setDueDate(toSqlDate(command.dueDate()));
         record.setAttestedEntityKind(command.attestedEntityKind().name());
         record.setAttestedEntityId(command.attestedEntityId().orElse(null));
+        // the run is only ISSUED once all of its instances have been stored, until then
+        // the creator holds the issuance claim
+        record.setStatus(AttestationStatus.ISSUING.name());
+        record.setIssuanceClaimedAt(nowUtcTimestamp());
 
         record.store();
 
@@ -270,6 +276,60 @@ public class AttestationRunDao {
     }
 
 
+    /**
+     * Runs which are yet to be fully issued and are not being issued elsewhere, i.e.
+     * <code>PENDING</code> runs and <code>ISSUING</code> runs whose issuance claim is stale.
+     *
+     * @param staleBefore  issuance claims made at or before this time are treated as stale
+     */
+    public Set<AttestationRun> findUnissuedRuns(Timestamp staleBefore) {
+        checkNotNull(staleBefore, "staleBefore cannot be null");
+
+        Map<Long, List<Long>> involvementsByGroupId = InvolvementGroupDao.findAllInvolvementsByGroupId(dsl);
+
+        return dsl
+                .select(ATTESTATION_RUN.fields())
+                .select(ENTITY_NAME_FIELD)
+                .select(ATTESTED_ENTITY_NAME_FIELD)
+                .from(ATTESTATION_RUN)
+                .where(mkClaimableCondition(staleBefore))
+                .fetchSet(r -> mkAttestationRun(r, involvementsByGroupId));
+    }
+
+
+    /**
+     * Claims a run for issuance by moving it to <code>ISSUING</code>, provided it is
+     * <code>PENDING</code> or is <code>ISSUING</code> with a stale claim.
+     *
+     * @return true if this caller now holds the claim, false if the run has been issued or
+     * is being issued elsewhere
+     */
+    public boolean claimForIssuance(long runId, Timestamp staleBefore) {
+        checkNotNull(staleBefore, "staleBefore cannot be null");
+
+        return dsl
+                .update(ATTESTATION_RUN)
+                .set(ATTESTATION_RUN.STATUS, AttestationStatus.ISSUING.name())
+                .set(ATTESTATION_RUN.ISSUANCE_CLAIMED_AT, nowUtcTimestamp())
+                .where(ATTESTATION_RUN.ID.eq(runId))
+                .and(mkClaimableCondition(staleBefore))
+                .execute() == 1;
+    }
+
+
+    /**
+     * Refreshes the issuance claim on an <code>ISSUING</code> run to show it is still progressing.
+     */
+    public int refreshIssuanceClaim(DSLContext tx, long runId) {
+        return tx
+                .update(ATTESTATION_RUN)
+                .set(ATTESTATION_RUN.ISSUANCE_CLAIMED_AT, nowUtcTimestamp())
+                .where(ATTESTATION_RUN.ID.eq(runId))
+                .and(ATTESTATION_RUN.STATUS.eq(AttestationStatus.ISSUING.name()))
+                .execute();
+    }
+
+
     public int updateStatusForRunIds(Set<Long> runIds, AttestationStatus newStatus) {
 
         if (AttestationStatus.ISSUED.equals(newStatus)){
@@ -289,6 +349,27 @@ public class AttestationRunDao {
         }
     }
 
+    /**
+     * Updates the status of a single run, unlike {@link #updateStatusForRunIds(Set, AttestationStatus)}
+     * the issuer and issue date of the run are left untouched.
+     */
+    public int updateStatus(long runId, AttestationStatus newStatus) {
+        return dsl
+                .update(ATTESTATION_RUN)
+                .set(ATTESTATION_RUN.STATUS, newStatus.name())
+                .where(ATTESTATION_RUN.ID.eq(runId))
+                .execute();
+    }
+
+
+    private static Condition mkClaimableCondition(Timestamp staleBefore) {
+        return ATTESTATION_RUN.STATUS.eq(AttestationStatus.PENDING.name())
+                .or(ATTESTATION_RUN.STATUS.eq(AttestationStatus.ISSUING.name())
+                        .and(ATTESTATION_RUN.ISSUANCE_CLAIMED_AT.isNull()
+                                .or(ATTESTATION_RUN.ISSUANCE_CLAIMED_AT.le(staleBefore))));
+    }
+
+
     public Long getRecipientInvolvementGroupId(long attestationRunId) {
         return dsl
                 .select(ATTESTATION_RUN.RECIPIENT_INVOLVEMENT_GROUP_ID)
@@ -61,6 +61,7 @@ import static org.finos.waltz.schema.tables.ChangeLog.CHANGE_LOG;
 public class ChangeLogDao {
 
     private final DSLContext dsl;
+    private final ChangeLogEventPublisher changeLogEventPublisher;
 
     public static final RecordMapper<? super Record, ChangeLog> TO_DOMAIN_MAPPER = r -> {
         ChangeLogRecord record = r.into(ChangeLogRecord.class);
@@ -122,9 +123,12 @@ public class ChangeLogDao {
 
 
     @Autowired
-    public ChangeLogDao(DSLContext dsl) {
+    public ChangeLogDao(DSLContext dsl,
+                        ChangeLogEventPublisher changeLogEventPublisher) {
         checkNotNull(dsl, "dsl must not be null");
+        checkNotNull(changeLogEventPublisher, "changeLogEventPublisher must not be null");
         this.dsl = dsl;
+        this.changeLogEventPublisher = changeLogEventPublisher;
     }
 
 
@@ -307,7 +311,7 @@ public class ChangeLogDao {
     public int write(ChangeLog changeLog) {
         checkNotNull(changeLog, "changeLog must not be null");
 
-        return dsl
+        int rc = dsl
                 .insertInto(CHANGE_LOG)
                 .set(CHANGE_LOG.MESSAGE, changeLog.message())
                 .set(CHANGE_LOG.PARENT_ID, changeLog.parentReference().id())
@@ -319,6 +323,9 @@ public class ChangeLogDao {
                 .set(CHANGE_LOG.OPERATION, changeLog.operation().name())
                 .set(CHANGE_LOG.CREATED_AT, Timestamp.valueOf(changeLog.createdAt()))
                 .execute();
+
+        changeLogEventPublisher.publish(changeLog);
+        return rc;
     }
 
 
@@ -338,9 +345,12 @@ public class ChangeLogDao {
                         .set(CHANGE_LOG.OPERATION, changeLog.operation().name())
                         .set(CHANGE_LOG.CREATED_AT, Timestamp.valueOf(changeLog.createdAt())))
                 .toArray(Query[]::new);
-        return dsl
+        int[] rcs = dsl
                 .batch(queries)
                 .execute();
+
+        changeLogEventPublisher.publish(changeLogs);
+        return rcs;
     }
 
 
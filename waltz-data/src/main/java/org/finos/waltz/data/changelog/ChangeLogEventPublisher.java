@@ -0,0 +1,163 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.changelog;
+
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.jooq.TransactionContext;
+import org.jooq.impl.DefaultTransactionListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.List;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Notifies {@link ChangeLogListener}s of change log entries once they are visible to other
+ * connections.
+ *
+ * This is registered as a jOOQ transaction listener.  Entries published within a transaction
+ * are held (per thread) until the outermost transaction commits, and are discarded if it, or
+ * the nested transaction they were published in, rolls back.  Entries published outside a
+ * transaction have already been committed so listeners are notified immediately.
+ *
+ * DAOs which insert into the change log table directly (rather than via {@link ChangeLogDao})
+ * must publish the entries they write, otherwise dependent caches will not be invalidated.
+ */
+@Repository
+public class ChangeLogEventPublisher extends DefaultTransactionListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ChangeLogEventPublisher.class);
+
+    private final ThreadLocal<Deque<PendingChanges>> pendingByThread = ThreadLocal.withInitial(ArrayDeque::new);
+
+    /**
+     * Resolved on each notification, listeners typically depend (indirectly) on the
+     * DSLContext which in turn depends on this publisher.
+     */
+    private final ObjectProvider<ChangeLogListener> listeners;
+
+
+    @Autowired
+    public ChangeLogEventPublisher(ObjectProvider<ChangeLogListener> listeners) {
+        checkNotNull(listeners, "listeners cannot be null");
+        this.listeners = listeners;
+    }
+
+
+    public void publish(ChangeLog changeLog) {
+        checkNotNull(changeLog, "changeLog cannot be null");
+        List<ChangeLog> changeLogs = new ArrayList<>(1);
+        changeLogs.add(changeLog);
+        publish(changeLogs);
+    }
+
+
+    public void publish(Collection<ChangeLog> changeLogs) {
+        checkNotNull(changeLogs, "changeLogs cannot be null");
+        if (changeLogs.isEmpty()) {
+            return;
+        }
+
+        Deque<PendingChanges> pending = pendingByThread.get();
+        if (pending.isEmpty()) {
+            pendingByThread.remove();
+            notifyListeners(changeLogs);
+        } else {
+            pending.peek().changeLogs.addAll(changeLogs);
+        }
+    }
+
+
+    @Override
+    public void beginStart(TransactionContext ctx) {
+        pendingByThread.get().push(new PendingChanges(ctx));
+    }
+
+
+    /**
+     * Note: jOOQ calls this even if the commit itself fails (before rolling back), in which
+     * case listeners are notified of changes which were not applied.  This only results in
+     * unnecessary cache evictions.
+     */
+    @Override
+    public void commitEnd(TransactionContext ctx) {
+        PendingChanges completed = pop(ctx);
+        if (completed == null) {
+            return;
+        }
+
+        Deque<PendingChanges> pending = pendingByThread.get();
+        if (pending.isEmpty()) {
+            pendingByThread.remove();
+            if (!completed.changeLogs.isEmpty()) {
+                notifyListeners(completed.changeLogs);
+            }
+        } else {
+            pending.peek().changeLogs.addAll(completed.changeLogs);
+        }
+    }
+
+
+    @Override
+    public void rollbackEnd(TransactionContext ctx) {
+        pop(ctx);
+        if (pendingByThread.get().isEmpty()) {
+            pendingByThread.remove();
+        }
+    }
+
+
+    private PendingChanges pop(TransactionContext ctx) {
+        Deque<PendingChanges> pending = pendingByThread.get();
+        return !pending.isEmpty() && pending.peek().ctx == ctx
+                ? pending.pop()
+                : null;
+    }
+
+
+    private void notifyListeners(Collection<ChangeLog> changeLogs) {
+        listeners.orderedStream().forEach(listener -> {
+            try {
+                listener.onChangeLogs(changeLogs);
+            } catch (Exception e) {
+                LOG.warn("Change log listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage(), e);
+            }
+        });
+    }
+
+
+    private static class PendingChanges {
+
+        private final TransactionContext ctx;
+        private final List<ChangeLog> changeLogs = new ArrayList<>();
+
+        private PendingChanges(TransactionContext ctx) {
+            this.ctx = ctx;
+        }
+    }
+
+}
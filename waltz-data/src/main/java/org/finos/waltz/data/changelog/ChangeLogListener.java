@@ -0,0 +1,34 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.changelog;
+
+import org.finos.waltz.model.changelog.ChangeLog;
+
+import java.util.Collection;
+
+/**
+ * Implemented by components (typically caches) which need to react to change log entries.
+ * Listeners are notified by the {@link ChangeLogEventPublisher} once the transaction which
+ * wrote the entries has committed.
+ */
+public interface ChangeLogListener {
+
+    void onChangeLogs(Collection<ChangeLog> changeLogs);
+
+}
@@ -0,0 +1,526 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.cost;
+
+import org.finos.waltz.data.ResolvedIdSet;
+import org.finos.waltz.model.EntityKind;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Record4;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.schema.Tables.COST;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Holds costs in memory, sliced by (cost kind, year, entity kind), so that totals,
+ * top-N and coverage counts for a selection of entities can be answered without
+ * re-scanning the cost table for every request.
+ *
+ * Slices are loaded on first use, at most <code>cost.cube.max_slices</code> are held
+ * and the least recently used is evicted beyond that.  Costs are written by external
+ * loaders, not by Waltz, so the cube cannot be told about changes.  Instead, the first
+ * read of a slice after <code>cost.cube.refresh.seconds</code> schedules a background
+ * check, reads continue to use the current slice meanwhile.  The check compares a
+ * fingerprint of the slice's costs (row count, latest update time and the sums of the
+ * amounts and entity ids) against the database.  If only the count or update time moved
+ * on, the rows updated since the slice was loaded are merged into it.  Otherwise, or if
+ * the merged slice still disagrees with the fingerprint (e.g. costs were removed, or
+ * were changed without bumping their update time), the slice is reloaded in full.
+ *
+ * Loading and refreshing is serialised per slice, so a slow load of one slice does not
+ * hold up readers of the others.
+ *
+ * Selections are expressed as resolved entity ids, so any hierarchy roll-up (e.g. apps
+ * beneath an org unit, or mapped to a measurable and its children) is taken from the
+ * selector which produced the ids.
+ */
+@Repository
+public class CostCube {
+
+    private static final Logger LOG = LoggerFactory.getLogger(CostCube.class);
+
+    private static final ExecutorService REFRESH_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Cost Cube Refresh");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final DSLContext dsl;
+    private final boolean enabled;
+    private final long refreshMillis;
+    /** least recently used first, guarded by itself */
+    private final Map<Tuple3<Long, Integer, EntityKind>, Slice> slices;
+    private final Map<Tuple3<Long, Integer, EntityKind>, Object> sliceLocks = new ConcurrentHashMap<>();
+    private final Set<Tuple3<Long, Integer, EntityKind>> refreshing = ConcurrentHashMap.newKeySet();
+
+
+    @Autowired
+    public CostCube(DSLContext dsl,
+                    @Value("${cost.cube.enabled:true}") boolean enabled,
+                    @Value("${cost.cube.refresh.seconds:60}") int refreshSeconds,
+                    @Value("${cost.cube.max_slices:32}") int maxSlices) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+        this.enabled = enabled;
+        this.refreshMillis = TimeUnit.SECONDS.toMillis(refreshSeconds);
+        this.slices = new LinkedHashMap<Tuple3<Long, Integer, EntityKind>, Slice>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Tuple3<Long, Integer, EntityKind>, Slice> eldest) {
+                if (size() > maxSlices) {
+                    sliceLocks.remove(eldest.getKey());
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    /**
+     * @return the total cost for the selected entities, empty if none of them have costs
+     */
+    public Optional<BigDecimal> findTotal(long costKindId,
+                                          int year,
+                                          EntityKind entityKind,
+                                          ResolvedIdSet entityIds) {
+        return getSlice(costKindId, year, entityKind).total(entityIds);
+    }
+
+
+    /**
+     * @return ids of the (up to) <code>limit</code> largest cost records for the selected
+     * entities, largest first
+     */
+    public List<Long> findTopCostIds(long costKindId,
+                                     int year,
+                                     EntityKind entityKind,
+                                     ResolvedIdSet entityIds,
+                                     int limit) {
+        return getSlice(costKindId, year, entityKind).topCostIds(entityIds, limit);
+    }
+
+
+    /**
+     * @return number of cost records for each selected entity, entities without costs are omitted
+     */
+    public Map<Long, Integer> findCostCountsByEntityId(long costKindId,
+                                                       int year,
+                                                       EntityKind entityKind,
+                                                       ResolvedIdSet entityIds) {
+        return getSlice(costKindId, year, entityKind).costCountsByEntityId(entityIds);
+    }
+
+
+    public void clear() {
+        synchronized (slices) {
+            slices.clear();
+        }
+    }
+
+
+    // --- helpers
+
+    private Slice getSlice(long costKindId,
+                           int year,
+                           EntityKind entityKind) {
+        checkNotNull(entityKind, "entityKind cannot be null");
+        Tuple3<Long, Integer, EntityKind> key = tuple(costKindId, year, entityKind);
+
+        Slice slice = getCachedSlice(key);
+        if (slice == null) {
+            synchronized (lockFor(key)) {
+                slice = getCachedSlice(key);
+                if (slice == null) {
+                    slice = load(key, mkCondition(key));
+                    synchronized (slices) {
+                        slices.put(key, slice);
+                    }
+                }
+            }
+        } else if (isDueCheck(slice) && refreshing.add(key)) {
+            try {
+                REFRESH_EXECUTOR.execute(() -> refreshInBackground(key));
+            } catch (RejectedExecutionException e) {
+                refreshing.remove(key);
+                LOG.warn("Could not schedule refresh of cost slice: {}", key, e);
+            }
+        }
+        return slice;
+    }
+
+
+    private void refreshInBackground(Tuple3<Long, Integer, EntityKind> key) {
+        try {
+            synchronized (lockFor(key)) {
+                Slice slice = getCachedSlice(key);
+                if (slice == null || !isDueCheck(slice)) {
+                    return;
+                }
+                Slice refreshed = refresh(key, slice);
+                synchronized (slices) {
+                    // not re-added if it was evicted whilst refreshing
+                    slices.replace(key, refreshed);
+                }
+            }
+        } catch (RuntimeException e) {
+            LOG.warn("Failed to refresh cost slice, continuing with the current slice: {}", key, e);
+        } finally {
+            refreshing.remove(key);
+        }
+    }
+
+
+    private Slice getCachedSlice(Tuple3<Long, Integer, EntityKind> key) {
+        synchronized (slices) {
+            return slices.get(key);
+        }
+    }
+
+
+    private Object lockFor(Tuple3<Long, Integer, EntityKind> key) {
+        return sliceLocks.computeIfAbsent(key, k -> new Object());
+    }
+
+
+    private boolean isDueCheck(Slice slice) {
+        return System.currentTimeMillis() - slice.checkedAt > refreshMillis;
+    }
+
+
+    private Slice load(Tuple3<Long, Integer, EntityKind> key,
+                       Condition condition) {
+        Map<Long, Row> rows = fetchRows(condition);
+        LOG.debug("Loaded {} costs for: {}", rows.size(), key);
+        return Slice.fromRows(rows.values(), maxLastUpdated(rows.values()));
+    }
+
+
+    private Slice refresh(Tuple3<Long, Integer, EntityKind> key,
+                          Slice slice) {
+        Condition condition = mkCondition(key);
+        Record4<Integer, Timestamp, BigDecimal, BigDecimal> fingerprint = dsl
+                .select(COST.ID.count(),
+                        COST.LAST_UPDATED_AT.max(),
+                        DSL.sum(COST.AMOUNT),
+                        DSL.sum(COST.ENTITY_ID))
+                .from(COST)
+                .where(condition)
+                .fetchOne();
+
+        int rowCount = fingerprint.value1();
+        Timestamp lastUpdatedAt = fingerprint.value2();
+        BigDecimal amountSum = fingerprint.value3();
+        BigDecimal entityIdSum = fingerprint.value4();
+
+        if (slice.matches(rowCount, lastUpdatedAt, amountSum, entityIdSum)) {
+            return slice.checked();
+        }
+
+        boolean onlyAdditionsOrUpdates = slice.lastUpdatedAt != null
+                && rowCount >= slice.rowCount()
+                && !(rowCount == slice.rowCount() && Objects.equals(lastUpdatedAt, slice.lastUpdatedAt));
+
+        if (!onlyAdditionsOrUpdates) {
+            return load(key, condition);
+        }
+
+        Map<Long, Row> updatedRows = fetchRows(condition.and(COST.LAST_UPDATED_AT.ge(slice.lastUpdatedAt)));
+        Slice merged = slice.merge(updatedRows, maxLastUpdated(updatedRows.values()));
+
+        if (!merged.matches(rowCount, lastUpdatedAt, amountSum, entityIdSum)) {
+            return load(key, condition);
+        }
+
+        LOG.debug("Merged {} updated costs into: {}", updatedRows.size(), key);
+        return merged;
+    }
+
+
+    private Map<Long, Row> fetchRows(Condition condition) {
+        Map<Long, Row> rows = new HashMap<>();
+        dsl.select(COST.ID, COST.ENTITY_ID, COST.AMOUNT, COST.LAST_UPDATED_AT)
+                .from(COST)
+                .where(condition)
+                .fetch()
+                .forEach(r -> rows.put(
+                        r.get(COST.ID),
+                        new Row(r.get(COST.ID),
+                                r.get(COST.ENTITY_ID),
+                                Optional.ofNullable(r.get(COST.AMOUNT)).orElse(BigDecimal.ZERO),
+                                r.get(COST.LAST_UPDATED_AT))));
+        return rows;
+    }
+
+
+    private static Condition mkCondition(Tuple3<Long, Integer, EntityKind> key) {
+        return COST.COST_KIND_ID.eq(key.v1)
+                .and(COST.YEAR.eq(key.v2))
+                .and(COST.ENTITY_KIND.eq(key.v3.name()));
+    }
+
+
+    private static Timestamp maxLastUpdated(Collection<Row> rows) {
+        return rows
+                .stream()
+                .map(r -> r.lastUpdatedAt)
+                .filter(Objects::nonNull)
+                .max(Comparator.naturalOrder())
+                .orElse(null);
+    }
+
+
+    static final class Row {
+
+        private final long costId;
+        private final long entityId;
+        private final BigDecimal amount;
+        private final Timestamp lastUpdatedAt;
+
+
+        Row(long costId,
+            long entityId,
+            BigDecimal amount,
+            Timestamp lastUpdatedAt) {
+            this.costId = costId;
+            this.entityId = entityId;
+            this.amount = amount;
+            this.lastUpdatedAt = lastUpdatedAt;
+        }
+    }
+
+
+    /**
+     * The cost records for a single (cost kind, year, entity kind), ordered by entity id
+     * so they can be merge-joined against a (sorted) selection of entity ids.
+     */
+    static final class Slice {
+
+        private final long[] entityIds;
+        private final long[] costIds;
+        private final BigDecimal[] amounts;
+        /** row positions, largest amount first */
+        private final int[] byAmountDesc;
+        private final BigDecimal amountSum;
+        private final BigDecimal entityIdSum;
+        private final Timestamp lastUpdatedAt;
+        private final long checkedAt;
+
+
+        private Slice(long[] entityIds,
+                      long[] costIds,
+                      BigDecimal[] amounts,
+                      int[] byAmountDesc,
+                      BigDecimal amountSum,
+                      BigDecimal entityIdSum,
+                      Timestamp lastUpdatedAt,
+                      long checkedAt) {
+            this.entityIds = entityIds;
+            this.costIds = costIds;
+            this.amounts = amounts;
+            this.byAmountDesc = byAmountDesc;
+            this.amountSum = amountSum;
+            this.entityIdSum = entityIdSum;
+            this.lastUpdatedAt = lastUpdatedAt;
+            this.checkedAt = checkedAt;
+        }
+
+
+        static Slice fromRows(Collection<Row> unsortedRows,
+                              Timestamp lastUpdatedAt) {
+            List<Row> rows = new ArrayList<>(unsortedRows);
+            rows.sort(Comparator
+                    .comparingLong((Row r) -> r.entityId)
+                    .thenComparingLong(r -> r.costId));
+
+            int size = rows.size();
+            long[] entityIds = new long[size];
+            long[] costIds = new long[size];
+            BigDecimal[] amounts = new BigDecimal[size];
+            BigDecimal amountSum = BigDecimal.ZERO;
+            BigDecimal entityIdSum = BigDecimal.ZERO;
+            for (int i = 0; i < size; i++) {
+                Row row = rows.get(i);
+                entityIds[i] = row.entityId;
+                costIds[i] = row.costId;
+                amounts[i] = row.amount;
+                amountSum = amountSum.add(row.amount);
+                entityIdSum = entityIdSum.add(BigDecimal.valueOf(row.entityId));
+            }
+
+            Integer[] order = new Integer[size];
+            Arrays.setAll(order, i -> i);
+            Arrays.sort(order, (a, b) -> amounts[b].compareTo(amounts[a]));
+            int[] byAmountDesc = new int[size];
+            Arrays.setAll(byAmountDesc, i -> order[i]);
+
+            return new Slice(
+                    entityIds,
+                    costIds,
+                    amounts,
+                    byAmountDesc,
+                    amountSum,
+                    entityIdSum,
+                    lastUpdatedAt,
+                    System.currentTimeMillis());
+        }
+
+
+        int rowCount() {
+            return costIds.length;
+        }
+
+
+        Slice checked() {
+            return new Slice(
+                    entityIds,
+                    costIds,
+                    amounts,
+                    byAmountDesc,
+                    amountSum,
+                    entityIdSum,
+                    lastUpdatedAt,
+                    System.currentTimeMillis());
+        }
+
+
+        /**
+         * @return true if this slice agrees with the given fingerprint of its costs in the
+         * database, null sums (no costs) are treated as zero
+         */
+        boolean matches(int rowCount,
+                        Timestamp lastUpdatedAt,
+                        BigDecimal amountSum,
+                        BigDecimal entityIdSum) {
+            return rowCount == rowCount()
+                    && Objects.equals(lastUpdatedAt, this.lastUpdatedAt)
+                    && sameAmount(amountSum, this.amountSum)
+                    && sameAmount(entityIdSum, this.entityIdSum);
+        }
+
+
+        /**
+         * @return a new slice with the given rows added, or replacing existing rows with the same cost id
+         */
+        Slice merge(Map<Long, Row> updatedRows,
+                    Timestamp updatedLastUpdatedAt) {
+            List<Row> rows = new ArrayList<>(costIds.length + updatedRows.size());
+            for (int i = 0; i < costIds.length; i++) {
+                if (!updatedRows.containsKey(costIds[i])) {
+                    rows.add(new Row(costIds[i], entityIds[i], amounts[i], null));
+                }
+            }
+            rows.addAll(updatedRows.values());
+            Timestamp latest = lastUpdatedAt == null || (updatedLastUpdatedAt != null && updatedLastUpdatedAt.after(lastUpdatedAt))
+                    ? updatedLastUpdatedAt
+                    : lastUpdatedAt;
+            return fromRows(rows, latest);
+        }
+
+
+        Optional<BigDecimal> total(ResolvedIdSet selection) {
+            BigDecimal total = null;
+            long[] selected = selection.toArray();
+            int s = 0;
+            for (int i = 0; i < entityIds.length && s < selected.length; i++) {
+                while (s < selected.length && selected[s] < entityIds[i]) {
+                    s++;
+                }
+                if (s < selected.length && selected[s] == entityIds[i]) {
+                    total = total == null
+                            ? amounts[i]
+                            : total.add(amounts[i]);
+                }
+            }
+            return Optional.ofNullable(total);
+        }
+
+
+        Map<Long, Integer> costCountsByEntityId(ResolvedIdSet selection) {
+            Map<Long, Integer> counts = new HashMap<>();
+            long[] selected = selection.toArray();
+            int i = 0;
+            for (long entityId : selected) {
+                while (i < entityIds.length && entityIds[i] < entityId) {
+                    i++;
+                }
+                int count = 0;
+                while (i < entityIds.length && entityIds[i] == entityId) {
+                    count++;
+                    i++;
+                }
+                if (count > 0) {
+                    counts.put(entityId, count);
+                }
+            }
+            return counts;
+        }
+
+
+        List<Long> topCostIds(ResolvedIdSet selection,
+                              int limit) {
+            List<Long> result = new ArrayList<>(Math.max(0, Math.min(limit, byAmountDesc.length)));
+            for (int i = 0; i < byAmountDesc.length && result.size() < limit; i++) {
+                int row = byAmountDesc[i];
+                if (selection.contains(entityIds[row])) {
+                    result.add(costIds[row]);
+                }
+            }
+            return result;
+        }
+
+
+        private static boolean sameAmount(BigDecimal a,
+                                          BigDecimal b) {
+            return Optional.ofNullable(a).orElse(BigDecimal.ZERO)
+                    .compareTo(Optional.ofNullable(b).orElse(BigDecimal.ZERO)) == 0;
+        }
+    }
+}
@@ -20,6 +20,7 @@ package org.finos.waltz.data.cost;
 
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.InlineSelectFieldFactory;
+import org.finos.waltz.data.ResolvedIdSet;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.cost.EntityCost;
@@ -42,12 +43,17 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.DateTimeUtilities.toLocalDateTime;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.data.BindParameters.bindOrInline;
 import static org.finos.waltz.data.JooqUtilities.selectorToCTE;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.schema.Tables.COST;
@@ -58,6 +64,7 @@ import static org.jooq.lambda.tuple.Tuple.tuple;
 public class CostDao {
 
     private final DSLContext dsl;
+    private final CostCube costCube;
 
     private static final Field<String> ENTITY_NAME_FIELD = InlineSelectFieldFactory.mkNameField(
             COST.ENTITY_ID,
@@ -82,8 +89,11 @@ public class CostDao {
 
 
     @Autowired
-    public CostDao(DSLContext dsl) {
+    public CostDao(DSLContext dsl, CostCube costCube) {
+        checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(costCube, "costCube cannot be null");
         this.dsl = dsl;
+        this.costCube = costCube;
     }
 
 
@@ -116,6 +126,24 @@ public class CostDao {
                                                               GenericSelector genericSelector,
                                                               int limit){
 
+        if (costCube.isEnabled()) {
+            List<Long> topCostIds = costCube.findTopCostIds(
+                    costKindId,
+                    year,
+                    genericSelector.kind(),
+                    fetchIds(genericSelector),
+                    limit);
+
+            return topCostIds.isEmpty()
+                    ? Collections.emptySet()
+                    : dsl
+                        .select(ENTITY_NAME_FIELD)
+                        .select(COST.fields())
+                        .from(COST)
+                        .where(COST.ID.in(topCostIds))
+                        .fetchSet(TO_COST_MAPPER);
+        }
+
         Condition cond = COST.ENTITY_ID.in(genericSelector.selector())
                 .and(COST.ENTITY_KIND.eq(genericSelector.kind().name()))
                 .and(COST.COST_KIND_ID.eq(costKindId))
@@ -145,6 +173,12 @@ public class CostDao {
     public BigDecimal getTotalForKindAndYearBySelector(long costKindId,
                                                        Integer year,
                                                        GenericSelector selector) {
+        if (costCube.isEnabled()) {
+            return costCube
+                    .findTotal(costKindId, year, selector.kind(), fetchIds(selector))
+                    .orElse(null);
+        }
+
         Field<BigDecimal> total = DSL.sum(COST.AMOUNT).as("total");
 
         List<Long> appIds = dsl
@@ -159,7 +193,7 @@ public class CostDao {
         SelectConditionStep<Record1<BigDecimal>> qry = dsl
                 .select(total)
                 .from(COST)
-                .where(dsl.renderInlined(condition));
+                .where(bindOrInline(dsl, condition));
 
         return qry
                 .fetchOne(total);
@@ -169,6 +203,32 @@ public class CostDao {
     public Tuple2<Integer, Integer> getMappedAndMissingCountsForKindAndYearBySelector(Long costKindId,
                                                                                       Integer year,
                                                                                       GenericSelector genericSelector) {
+        if (costCube.isEnabled()) {
+            // mirrors the join below: every cost of a selected entity counts as mapped,
+            // every selected entity without a cost counts as missing
+            List<Long> selectedIds = dsl
+                    .fetch(genericSelector.selector())
+                    .getValues(0, Long.class);
+
+            Map<Long, Integer> costCounts = costCube.findCostCountsByEntityId(
+                    costKindId,
+                    year,
+                    genericSelector.kind(),
+                    toResolvedIdSet(selectedIds));
+
+            int mappedCount = 0;
+            int missingCount = 0;
+            for (Long id : selectedIds) {
+                int costCount = id == null ? 0 : costCounts.getOrDefault(id, 0);
+                if (costCount == 0) {
+                    missingCount++;
+                } else {
+                    mappedCount += costCount;
+                }
+            }
+            return tuple(mappedCount, missingCount);
+        }
+
         CommonTableExpression<Record1<Long>> appIds = selectorToCTE("app_ids", genericSelector);
 
         CommonTableExpression<Record1<Long>> appsWithCosts = DSL
@@ -202,4 +262,19 @@ public class CostDao {
                         r.get(appCount) - r.get(appsWithCostsCount)));
     }
 
+
+    private ResolvedIdSet fetchIds(GenericSelector genericSelector) {
+        return toResolvedIdSet(dsl
+                .fetch(genericSelector.selector())
+                .getValues(0, Long.class));
+    }
+
+
+    private static ResolvedIdSet toResolvedIdSet(List<Long> ids) {
+        return ResolvedIdSet.fromCollection(ids
+                .stream()
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList()));
+    }
+
 }
@@ -20,6 +20,7 @@ package org.finos.waltz.data.datatype_decorator;
 
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.data.InlineSelectFieldFactory;
+import org.finos.waltz.data.ResolvedIdSet;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityLifecycleStatus;
 import org.finos.waltz.model.EntityReference;
@@ -31,6 +32,7 @@ import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVant
 import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
 import org.finos.waltz.schema.tables.LogicalFlowDecorator;
 import org.finos.waltz.schema.tables.records.LogicalFlowDecoratorRecord;
+import org.jooq.BatchBindStep;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Field;
@@ -52,11 +54,13 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.IntStream;
 
 import static java.lang.String.format;
 import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.data.BindParameters.bindOrInline;
 import static org.finos.waltz.data.logical_flow.LogicalFlowDao.LOGICAL_NOT_REMOVED;
 import static org.finos.waltz.model.EntityKind.DATA_TYPE;
 import static org.finos.waltz.model.EntityKind.LOGICAL_DATA_FLOW;
@@ -98,7 +102,7 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
     };
 
 
-    private static final Function<DataTypeDecorator, LogicalFlowDecoratorRecord> TO_RECORD = d -> {
+    public static final Function<DataTypeDecorator, LogicalFlowDecoratorRecord> TO_RECORD = d -> {
         LogicalFlowDecoratorRecord r = new LogicalFlowDecoratorRecord();
         r.setId(d.id().orElse(null));
         r.changed(LOGICAL_FLOW_DECORATOR.ID, false);
@@ -149,10 +153,18 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
                 .innerJoin(LOGICAL_FLOW)
                 .on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
                 .and(LOGICAL_NOT_REMOVED)
-                .where(dsl.renderInlined(condition))
+                .where(bindOrInline(dsl, condition))
                 .fetch(TO_DECORATOR_MAPPER);
     }
 
+
+    public List<DataTypeDecorator> findByAppIds(Collection<Long> appIds) {
+        checkNotNull(appIds, "appIds cannot be null");
+        return findByAppIdSelector(ResolvedIdSet
+                .fromCollection(appIds)
+                .toSelector(dsl));
+    }
+
     @Override
     public List<DataTypeDecorator> findByDataTypeIdSelector(Select<Record1<Long>> decoratorEntityIdSelector) {
         checkNotNull(decoratorEntityIdSelector, "decoratorEntityIdSelector cannot be null");
@@ -171,6 +183,69 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
                 .fetch(TO_DECORATOR_MAPPER);
     }
 
+    /**
+     * Finds the data type decorators of flows whose target is one of the selected applications
+     * and whose data type is one of the selected data types.
+     */
+    public List<DataTypeDecorator> findByTargetAppIdSelectorAndDataTypeIdSelector(Select<Record1<Long>> targetAppIdSelector,
+                                                                                  Select<Record1<Long>> dataTypeIdSelector) {
+        checkNotNull(targetAppIdSelector, "targetAppIdSelector cannot be null");
+        checkNotNull(dataTypeIdSelector, "dataTypeIdSelector cannot be null");
+
+        Condition condition = LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(EntityKind.APPLICATION.name())
+                .and(LOGICAL_FLOW.TARGET_ENTITY_ID.in(targetAppIdSelector))
+                .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(DATA_TYPE.name()))
+                .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID.in(dataTypeIdSelector));
+
+        return dsl
+                .select(LOGICAL_FLOW_DECORATOR.fields())
+                .select(ENTITY_NAME_FIELD)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .innerJoin(LOGICAL_FLOW)
+                .on(LOGICAL_FLOW.ID.eq(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID))
+                .where(bindOrInline(dsl, condition))
+                .and(LOGICAL_NOT_REMOVED)
+                .fetch(TO_DECORATOR_MAPPER);
+    }
+
+
+    /**
+     * @return ids of (active) logical flows targeting an application which have data type
+     * decorators, i.e. the flows which can be rated by flow classification rules
+     */
+    public Set<Long> findIdsOfRateableFlows() {
+        return dsl
+                .selectDistinct(LOGICAL_FLOW.ID)
+                .from(LOGICAL_FLOW)
+                .innerJoin(LOGICAL_FLOW_DECORATOR)
+                .on(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID.eq(LOGICAL_FLOW.ID)
+                        .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(DATA_TYPE.name())))
+                .where(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(EntityKind.APPLICATION.name()))
+                .and(LOGICAL_NOT_REMOVED)
+                .fetchSet(LOGICAL_FLOW.ID);
+    }
+
+
+    /**
+     * Flow classification rules only rate flows targeting applications, any other
+     * data type decorator with a rating is reset to 'no opinion'.
+     *
+     * @return number of decorators reset
+     */
+    public int clearRatingsOfUnrateableFlows() {
+        return dsl
+                .update(LOGICAL_FLOW_DECORATOR)
+                .set(LOGICAL_FLOW_DECORATOR.RATING, AuthoritativenessRatingValue.NO_OPINION.value())
+                .where(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(DATA_TYPE.name()))
+                .and(LOGICAL_FLOW_DECORATOR.RATING.ne(AuthoritativenessRatingValue.NO_OPINION.value()))
+                .and(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID.in(DSL
+                        .select(LOGICAL_FLOW.ID)
+                        .from(LOGICAL_FLOW)
+                        .where(LOGICAL_FLOW.TARGET_ENTITY_KIND.ne(EntityKind.APPLICATION.name()))))
+                .execute();
+    }
+
+
     @Override
     public List<DataTypeDecorator> findByFlowIds(Collection<Long> flowIds) {
         checkNotNull(flowIds, "flowIds cannot be null");
@@ -262,6 +337,38 @@ public class LogicalFlowDecoratorDao extends DataTypeDecoratorDao {
     }
 
 
+    /**
+     * Writes only the rating and flow classification rule of the given decorators, as a
+     * single batched statement.  Decorators without an id are ignored.
+     *
+     * @return number of decorators updated
+     */
+    public int updateRatings(Collection<DataTypeDecorator> decorators) {
+        checkNotNull(decorators, "decorators cannot be null");
+
+        BatchBindStep batch = dsl.batch(dsl
+                .update(LOGICAL_FLOW_DECORATOR)
+                .set(LOGICAL_FLOW_DECORATOR.RATING, (String) null)
+                .set(LOGICAL_FLOW_DECORATOR.FLOW_CLASSIFICATION_RULE_ID, (Long) null)
+                .where(LOGICAL_FLOW_DECORATOR.ID.eq((Long) null)));
+
+        int bound = 0;
+        for (DataTypeDecorator decorator : decorators) {
+            if (decorator.id().isPresent()) {
+                batch.bind(
+                        decorator.rating().orElse(AuthoritativenessRatingValue.NO_OPINION).value(),
+                        decorator.flowClassificationRuleId().orElse(null),
+                        decorator.id().get());
+                bound++;
+            }
+        }
+
+        return bound == 0
+                ? 0
+                : IntStream.of(batch.execute()).sum();
+    }
+
+
     public int updateDecoratorsForFlowClassificationRule(FlowClassificationRuleVantagePoint flowClassificationRuleVantagePoint) {
         LogicalFlowDecorator lfd = LOGICAL_FLOW_DECORATOR.as("lfd");
 
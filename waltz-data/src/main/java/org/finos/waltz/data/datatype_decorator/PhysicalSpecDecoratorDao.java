@@ -74,7 +74,7 @@ public class PhysicalSpecDecoratorDao extends DataTypeDecoratorDao {
     };
 
 
-    private static final Function<DataTypeDecorator, PhysicalSpecDataTypeRecord> TO_RECORD_MAPPER = sdt -> {
+    public static final Function<DataTypeDecorator, PhysicalSpecDataTypeRecord> TO_RECORD_MAPPER = sdt -> {
         PhysicalSpecDataTypeRecord r = new PhysicalSpecDataTypeRecord();
         r.setSpecificationId(sdt.entityReference().id());
         r.setDataTypeId(sdt.dataTypeId());
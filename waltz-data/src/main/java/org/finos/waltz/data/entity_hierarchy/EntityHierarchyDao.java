@@ -21,11 +21,13 @@ package org.finos.waltz.data.entity_hierarchy;
 import org.finos.waltz.schema.tables.EntityHierarchy;
 import org.finos.waltz.schema.tables.records.EntityHierarchyRecord;
 import org.finos.waltz.data.JooqUtilities;
+import org.finos.waltz.data.ResolvedIdSet;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
 import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
 import org.finos.waltz.model.tally.Tally;
+import org.jooq.BatchBindStep;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Record;
@@ -36,6 +38,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.function.Function;
 
@@ -75,6 +78,12 @@ public class EntityHierarchyDao {
                 .build();
     };
 
+    /**
+     * Proportion of the target hierarchy which may change before an update falls back
+     * to replacing the whole hierarchy.
+     */
+    private static final double FULL_REPLACE_THRESHOLD = 0.5;
+
     private final DSLContext dsl;
 
     @Autowired
@@ -120,6 +129,73 @@ public class EntityHierarchyDao {
     }
 
 
+    /**
+     * Brings the stored hierarchy for a kind in line with the given set of hierarchy
+     * items by only inserting, updating and deleting the rows which differ.  The diff
+     * is computed and applied within a single transaction.
+     *
+     * If there is no existing hierarchy, or the changes amount to more than
+     * {@link #FULL_REPLACE_THRESHOLD} of the target hierarchy, the rows are replaced
+     * wholesale as per {@link #replaceHierarchy(EntityKind, List, Condition)}.
+     *
+     * @param kind  the entity kind of the hierarchy to update
+     * @param hierarchyItems  the items making up the complete (target) hierarchy
+     * @param scopeFilter  restricts the existing rows considered, must match the scope of the hierarchy items
+     * @return number of hierarchy records inserted, updated or deleted
+     */
+    public int updateHierarchy(EntityKind kind,
+                               List<EntityHierarchyItem> hierarchyItems,
+                               Condition scopeFilter) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(hierarchyItems, "hierarchyItems cannot be null");
+
+        return dsl.transactionResult(configuration -> {
+            DSLContext txDsl = DSL.using(configuration);
+
+            List<EntityHierarchyItem> current = txDsl
+                    .select(ENTITY_HIERARCHY.fields())
+                    .from(ENTITY_HIERARCHY)
+                    .where(ENTITY_HIERARCHY.KIND.eq(kind.name()))
+                    .and(scopeFilter)
+                    .fetch(TO_DOMAIN_MAPPER);
+
+            EntityHierarchyDiff diff = EntityHierarchyDiff.diff(current, hierarchyItems);
+
+            if (current.isEmpty() || diff.size() > hierarchyItems.size() * FULL_REPLACE_THRESHOLD) {
+                LOG.info(
+                        "Replacing hierarchy items for kind: {}, {} of {} records differ, inserting new records (#{})",
+                        kind,
+                        diff.size(),
+                        current.size(),
+                        hierarchyItems.size());
+                txDsl.deleteFrom(ENTITY_HIERARCHY)
+                        .where(ENTITY_HIERARCHY.KIND.eq(kind.name()))
+                        .and(scopeFilter)
+                        .execute();
+                return txDsl
+                        .batchInsert(map(hierarchyItems, ITEM_TO_RECORD_MAPPER))
+                        .execute()
+                        .length;
+            }
+
+            LOG.info(
+                    "Updating hierarchy items for kind: {}, inserts: {}, updates: {}, deletes: {}",
+                    kind,
+                    diff.inserts().size(),
+                    diff.updates().size(),
+                    diff.deletes().size());
+
+            applyDeletes(txDsl, kind, diff.deletes());
+            applyUpdates(txDsl, kind, diff.updates());
+            if (!diff.inserts().isEmpty()) {
+                txDsl.batchInsert(map(diff.inserts(), ITEM_TO_RECORD_MAPPER)).execute();
+            }
+
+            return diff.size();
+        });
+    }
+
+
     public List<Tally<String>> tallyByKind() {
         return JooqUtilities.calculateStringTallies(dsl, eh, eh.KIND, DSL.trueCondition());
     }
@@ -145,4 +221,69 @@ public class EntityHierarchyDao {
                 .fetch(TO_DOMAIN_MAPPER);
     }
 
+
+    /**
+     * Finds the ancestor rows (including the self rows) of the given entities.
+     */
+    public List<EntityHierarchyItem> findAncestors(EntityKind kind, Collection<Long> ids) {
+        checkNotNull(kind, "kind cannot be null");
+        checkNotNull(ids, "ids cannot be null");
+        return dsl
+                .select(ENTITY_HIERARCHY.fields())
+                .from(ENTITY_HIERARCHY)
+                .where(ENTITY_HIERARCHY.KIND.eq(kind.name()))
+                .and(ResolvedIdSet.fromCollection(ids).toCondition(dsl, ENTITY_HIERARCHY.ID))
+                .fetch(TO_DOMAIN_MAPPER);
+    }
+
+
+    // --- helpers
+
+    private static void applyDeletes(DSLContext txDsl,
+                                     EntityKind kind,
+                                     List<EntityHierarchyItem> deletes) {
+        if (deletes.isEmpty()) {
+            return;
+        }
+
+        BatchBindStep batch = txDsl.batch(DSL
+                .deleteFrom(ENTITY_HIERARCHY)
+                .where(ENTITY_HIERARCHY.KIND.eq((String) null))
+                .and(ENTITY_HIERARCHY.ID.eq((Long) null))
+                .and(ENTITY_HIERARCHY.ANCESTOR_ID.eq((Long) null)));
+
+        deletes.forEach(item -> batch.bind(
+                kind.name(),
+                item.id().orElse(null),
+                item.parentId().orElse(null)));
+
+        batch.execute();
+    }
+
+
+    private static void applyUpdates(DSLContext txDsl,
+                                     EntityKind kind,
+                                     List<EntityHierarchyItem> updates) {
+        if (updates.isEmpty()) {
+            return;
+        }
+
+        BatchBindStep batch = txDsl.batch(DSL
+                .update(ENTITY_HIERARCHY)
+                .set(ENTITY_HIERARCHY.LEVEL, (Integer) null)
+                .set(ENTITY_HIERARCHY.DESCENDANT_LEVEL, (Integer) null)
+                .where(ENTITY_HIERARCHY.KIND.eq((String) null))
+                .and(ENTITY_HIERARCHY.ID.eq((Long) null))
+                .and(ENTITY_HIERARCHY.ANCESTOR_ID.eq((Long) null)));
+
+        updates.forEach(item -> batch.bind(
+                item.ancestorLevel(),
+                item.descendantLevel(),
+                kind.name(),
+                item.id().orElse(null),
+                item.parentId().orElse(null)));
+
+        batch.execute();
+    }
+
 }
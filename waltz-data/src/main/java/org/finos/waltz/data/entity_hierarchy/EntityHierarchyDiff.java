@@ -0,0 +1,112 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.entity_hierarchy;
+
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.jooq.lambda.tuple.Tuple2;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * The difference between two versions of a hierarchy closure.  Rows are identified
+ * by their (id, ancestor id) pair, rows present in both versions but with different
+ * levels are treated as updates.
+ */
+public class EntityHierarchyDiff {
+
+    private final List<EntityHierarchyItem> inserts;
+    private final List<EntityHierarchyItem> updates;
+    private final List<EntityHierarchyItem> deletes;
+
+
+    private EntityHierarchyDiff(List<EntityHierarchyItem> inserts,
+                                List<EntityHierarchyItem> updates,
+                                List<EntityHierarchyItem> deletes) {
+        this.inserts = inserts;
+        this.updates = updates;
+        this.deletes = deletes;
+    }
+
+
+    public static EntityHierarchyDiff diff(Collection<EntityHierarchyItem> current,
+                                           Collection<EntityHierarchyItem> target) {
+        checkNotNull(current, "current cannot be null");
+        checkNotNull(target, "target cannot be null");
+
+        Map<Tuple2<Long, Long>, EntityHierarchyItem> remaining = new HashMap<>(current.size() * 2);
+        current.forEach(item -> remaining.put(toKey(item), item));
+
+        List<EntityHierarchyItem> inserts = new ArrayList<>();
+        List<EntityHierarchyItem> updates = new ArrayList<>();
+
+        for (EntityHierarchyItem item : target) {
+            EntityHierarchyItem existing = remaining.remove(toKey(item));
+            if (existing == null) {
+                inserts.add(item);
+            } else if (existing.ancestorLevel() != item.ancestorLevel()
+                    || existing.descendantLevel() != item.descendantLevel()) {
+                updates.add(item);
+            }
+        }
+
+        return new EntityHierarchyDiff(
+                inserts,
+                updates,
+                new ArrayList<>(remaining.values()));
+    }
+
+
+    public List<EntityHierarchyItem> inserts() {
+        return inserts;
+    }
+
+
+    public List<EntityHierarchyItem> updates() {
+        return updates;
+    }
+
+
+    public List<EntityHierarchyItem> deletes() {
+        return deletes;
+    }
+
+
+    public int size() {
+        return inserts.size() + updates.size() + deletes.size();
+    }
+
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+
+    private static Tuple2<Long, Long> toKey(EntityHierarchyItem item) {
+        return tuple(
+                item.id().orElse(null),
+                item.parentId().orElse(null));
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.entity_search;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityLifecycleStatus;
+import org.finos.waltz.model.ImmutableEntityReference;
+import org.finos.waltz.model.entity_search.EntitySearchDocument;
+import org.finos.waltz.model.entity_search.ImmutableEntitySearchDocument;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+import static org.finos.waltz.common.MapUtilities.groupBy;
+import static org.finos.waltz.common.SetUtilities.fromCollection;
+import static org.finos.waltz.schema.Tables.ACTOR;
+import static org.finos.waltz.schema.Tables.APPLICATION;
+import static org.finos.waltz.schema.Tables.CHANGE_INITIATIVE;
+import static org.finos.waltz.schema.Tables.DATA_TYPE;
+import static org.finos.waltz.schema.Tables.ENTITY_ALIAS;
+import static org.finos.waltz.schema.Tables.LEGAL_ENTITY;
+import static org.finos.waltz.schema.Tables.MEASURABLE;
+import static org.finos.waltz.schema.Tables.ORGANISATIONAL_UNIT;
+import static org.finos.waltz.schema.Tables.PERSON;
+import static org.finos.waltz.schema.Tables.SERVER_INFORMATION;
+
+/**
+ * Loads the searchable attributes (name, external id, description, aliases and lifecycle
+ * status) of entities so they can be held in the in-memory search index.
+ *
+ * Only kinds whose database search semantics can be reproduced from these attributes
+ * are supported, other kinds should continue to use their specific search daos.
+ */
+@Repository
+public class EntitySearchDocumentDao {
+
+    private static final Map<EntityKind, DocumentMapping> MAPPINGS = mkMappings();
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public EntitySearchDocumentDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    public static Set<EntityKind> supportedKinds() {
+        return MAPPINGS.keySet();
+    }
+
+
+    public List<EntitySearchDocument> findByKind(EntityKind kind) {
+        return findByCondition(kind, DSL.trueCondition());
+    }
+
+
+    public List<EntitySearchDocument> findByKindAndIds(EntityKind kind,
+                                                       Collection<Long> ids) {
+        return ids.isEmpty()
+                ? Collections.emptyList()
+                : findByCondition(kind, getMapping(kind).id.in(ids));
+    }
+
+
+    private List<EntitySearchDocument> findByCondition(EntityKind kind,
+                                                       Condition condition) {
+        DocumentMapping mapping = getMapping(kind);
+
+        Map<Long, Collection<String>> aliasesById = groupBy(
+                dsl.select(ENTITY_ALIAS.ID, ENTITY_ALIAS.ALIAS)
+                        .from(ENTITY_ALIAS)
+                        .where(ENTITY_ALIAS.KIND.eq(kind.name()))
+                        .and(ENTITY_ALIAS.ID.in(DSL
+                                .select(mapping.id)
+                                .from(mapping.table)
+                                .where(condition)))
+                        .fetch(),
+                r -> r.get(ENTITY_ALIAS.ID),
+                r -> r.get(ENTITY_ALIAS.ALIAS));
+
+        return dsl
+                .select(mapping.fields())
+                .from(mapping.table)
+                .where(condition)
+                .fetch()
+                .stream()
+                .map(r -> mapping.toDocument(kind, r, aliasesById))
+                .collect(toList());
+    }
+
+
+    private static DocumentMapping getMapping(EntityKind kind) {
+        DocumentMapping mapping = MAPPINGS.get(kind);
+        checkTrue(mapping != null, "Entity kind: %s is not supported by the search index", kind);
+        return mapping;
+    }
+
+
+    private static Map<EntityKind, DocumentMapping> mkMappings() {
+        Map<EntityKind, DocumentMapping> mappings = new EnumMap<>(EntityKind.class);
+        mappings.put(EntityKind.ACTOR, new DocumentMapping(ACTOR, ACTOR.ID, ACTOR.NAME, ACTOR.EXTERNAL_ID, ACTOR.DESCRIPTION));
+        mappings.put(EntityKind.APPLICATION, new DocumentMapping(APPLICATION, APPLICATION.ID, APPLICATION.NAME, APPLICATION.ASSET_CODE, APPLICATION.DESCRIPTION)
+                .withLifecycle(APPLICATION.ENTITY_LIFECYCLE_STATUS));
+        mappings.put(EntityKind.CHANGE_INITIATIVE, new DocumentMapping(CHANGE_INITIATIVE, CHANGE_INITIATIVE.ID, CHANGE_INITIATIVE.NAME, CHANGE_INITIATIVE.EXTERNAL_ID, CHANGE_INITIATIVE.DESCRIPTION));
+        mappings.put(EntityKind.DATA_TYPE, new DocumentMapping(DATA_TYPE, DATA_TYPE.ID, DATA_TYPE.NAME, DATA_TYPE.CODE, DATA_TYPE.DESCRIPTION));
+        mappings.put(EntityKind.LEGAL_ENTITY, new DocumentMapping(LEGAL_ENTITY, LEGAL_ENTITY.ID, LEGAL_ENTITY.NAME, LEGAL_ENTITY.EXTERNAL_ID, LEGAL_ENTITY.DESCRIPTION));
+        mappings.put(EntityKind.MEASURABLE, new DocumentMapping(MEASURABLE, MEASURABLE.ID, MEASURABLE.NAME, MEASURABLE.EXTERNAL_ID, MEASURABLE.DESCRIPTION)
+                .withLifecycle(MEASURABLE.ENTITY_LIFECYCLE_STATUS));
+        mappings.put(EntityKind.ORG_UNIT, new DocumentMapping(ORGANISATIONAL_UNIT, ORGANISATIONAL_UNIT.ID, ORGANISATIONAL_UNIT.NAME, ORGANISATIONAL_UNIT.EXTERNAL_ID, ORGANISATIONAL_UNIT.DESCRIPTION));
+        mappings.put(EntityKind.PERSON, new DocumentMapping(PERSON, PERSON.ID, PERSON.DISPLAY_NAME, PERSON.EMPLOYEE_ID, null)
+                .withAlternativeName(PERSON.EMAIL)
+                .withRemovedFlag(PERSON.IS_REMOVED));
+        mappings.put(EntityKind.SERVER, new DocumentMapping(SERVER_INFORMATION, SERVER_INFORMATION.ID, SERVER_INFORMATION.HOSTNAME, SERVER_INFORMATION.EXTERNAL_ID, null));
+        return mappings;
+    }
+
+
+    /**
+     * Describes where the searchable attributes of a kind are stored.  Lifecycle is either
+     * taken from a status column (and filtered on), or a removed flag (where only removed
+     * entities are filtered), or is not filtered at all.
+     */
+    private static class DocumentMapping {
+
+        private final Table<?> table;
+        private final Field<Long> id;
+        private final Field<String> name;
+        private final Field<String> externalId;
+        private final Field<String> description;
+        private Field<String> alternativeName;
+        private Field<String> lifecycleStatus;
+        private Field<Boolean> removed;
+
+
+        private DocumentMapping(Table<?> table,
+                                Field<Long> id,
+                                Field<String> name,
+                                Field<String> externalId,
+                                Field<String> description) {
+            this.table = table;
+            this.id = id;
+            this.name = name;
+            this.externalId = externalId;
+            this.description = description;
+        }
+
+
+        private DocumentMapping withAlternativeName(Field<String> alternativeName) {
+            this.alternativeName = alternativeName;
+            return this;
+        }
+
+
+        private DocumentMapping withLifecycle(Field<String> lifecycleStatus) {
+            this.lifecycleStatus = lifecycleStatus;
+            return this;
+        }
+
+
+        private DocumentMapping withRemovedFlag(Field<Boolean> removed) {
+            this.removed = removed;
+            return this;
+        }
+
+
+        private List<Field<?>> fields() {
+            List<Field<?>> fields = new ArrayList<>();
+            fields.add(id);
+            fields.add(name);
+            fields.add(externalId);
+            Optional.ofNullable(description).ifPresent(fields::add);
+            Optional.ofNullable(alternativeName).ifPresent(fields::add);
+            Optional.ofNullable(lifecycleStatus).ifPresent(fields::add);
+            Optional.ofNullable(removed).ifPresent(fields::add);
+            return fields;
+        }
+
+
+        private EntitySearchDocument toDocument(EntityKind kind,
+                                                Record r,
+                                                Map<Long, Collection<String>> aliasesById) {
+            Long entityId = r.get(id);
+            boolean isRemoved = removed != null && Boolean.TRUE.equals(r.get(removed));
+
+            EntityLifecycleStatus status = lifecycleStatus != null
+                    ? EntityLifecycleStatus.valueOf(r.get(lifecycleStatus))
+                    : isRemoved ? EntityLifecycleStatus.REMOVED : EntityLifecycleStatus.ACTIVE;
+
+            Set<String> aliases = fromCollection(aliasesById.getOrDefault(entityId, Collections.emptySet()));
+            if (alternativeName != null && r.get(alternativeName) != null) {
+                aliases.add(r.get(alternativeName));
+            }
+
+            return ImmutableEntitySearchDocument
+                    .builder()
+                    .entityReference(ImmutableEntityReference
+                            .builder()
+                            .kind(kind)
+                            .id(entityId)
+                            .name(Optional.ofNullable(r.get(name)))
+                            .externalId(Optional.ofNullable(r.get(externalId)))
+                            .description(description == null ? null : r.get(description))
+                            .entityLifecycleStatus(status)
+                            .build())
+                    .aliases(aliases)
+                    .lifecycleFiltered(lifecycleStatus != null || isRemoved)
+                    .build();
+        }
+    }
+
+}
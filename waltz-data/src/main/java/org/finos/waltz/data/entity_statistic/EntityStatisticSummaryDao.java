@@ -52,6 +52,7 @@ import java.util.List;
 import java.util.concurrent.Future;
 import java.util.function.Function;
 
+import static org.finos.waltz.data.BindParameters.bindOrInline;
 import static org.finos.waltz.schema.tables.EntityStatisticValue.ENTITY_STATISTIC_VALUE;
 import static java.util.stream.Collectors.*;
 import static org.finos.waltz.common.Checks.checkNotNull;
@@ -173,7 +174,7 @@ public class EntityStatisticSummaryDao {
         Result<Record4<Long, String, String, Timestamp>> values = dsl
                 .select(esv.STATISTIC_ID, esv.OUTCOME, esv.VALUE, max(esv.CREATED_AT).as(maxCreatedAtField))
                 .from(esv)
-                .where(dsl.renderInlined(condition))
+                .where(bindOrInline(dsl, condition))
                 .groupBy(esv.STATISTIC_ID, esv.OUTCOME, esv.VALUE)
                 .fetch();
 
@@ -212,8 +213,8 @@ public class EntityStatisticSummaryDao {
         Result<Record4<java.sql.Date, Long, String, String>> values = dsl
                 .select(esvCreatedAtDateOnly, esv.STATISTIC_ID, esv.OUTCOME, esv.VALUE)
                 .from(esv)
-                .where(dsl.renderInlined(condition))
-                .and(dsl.renderInlined(mkHistoryDurationCondition(duration)))
+                .where(bindOrInline(dsl, condition))
+                .and(bindOrInline(dsl, mkHistoryDurationCondition(duration)))
                 .groupBy(castDateField, esv.STATISTIC_ID, esv.OUTCOME, esv.VALUE)
                 .orderBy(esvCreatedAtDateOnly.asc())
                 .fetch();
@@ -252,7 +253,7 @@ public class EntityStatisticSummaryDao {
         Result<Record3<String, T, Timestamp>> values = dsl
                 .select(esv.OUTCOME, aggregateField, max(esv.CREATED_AT).as(maxCreatedAtField))
                 .from(esv)
-                .where(dsl.renderInlined(condition))
+                .where(bindOrInline(dsl, condition))
                 .groupBy(esv.OUTCOME)
                 .fetch();
 
@@ -322,8 +323,8 @@ public class EntityStatisticSummaryDao {
         Result<Record3<Date, String, T>> values = dsl
                 .select(esvCreatedAtDateOnly, esv.OUTCOME, aggregateField)
                 .from(esv)
-                .where(dsl.renderInlined(condition))
-                .and(dsl.renderInlined(mkHistoryDurationCondition(duration)))
+                .where(bindOrInline(dsl, condition))
+                .and(bindOrInline(dsl, mkHistoryDurationCondition(duration)))
                 .groupBy(castDateField, esv.OUTCOME)
                 .orderBy(esvCreatedAtDateOnly.asc())
                 .fetch();
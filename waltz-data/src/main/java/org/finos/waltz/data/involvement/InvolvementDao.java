@@ -44,6 +44,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -164,6 +165,48 @@ public class InvolvementDao {
     }
 
 
+    /**
+     * Bulk form of {@link #findExistingInvolvementKindIdsForUser(EntityReference, String)}.
+     *
+     * @return involvement kind ids keyed by parent reference (kind and id only), parents
+     * the user has no involvements with are omitted
+     */
+    public Map<EntityReference, Set<Long>> findExistingInvolvementKindIdsForUser(Collection<EntityReference> parentEntityRefs,
+                                                                                 String username) {
+        checkNotNull(parentEntityRefs, "parentEntityRefs cannot be null");
+
+        if (parentEntityRefs.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Condition parentCondition = parentEntityRefs
+                .stream()
+                .collect(groupingBy(EntityReference::kind, mapping(EntityReference::id, toSet())))
+                .entrySet()
+                .stream()
+                .map(e -> INVOLVEMENT.ENTITY_KIND.eq(e.getKey().name())
+                        .and(INVOLVEMENT.ENTITY_ID.in(e.getValue())))
+                .reduce(DSL.falseCondition(), Condition::or);
+
+        return dsl
+                .select(INVOLVEMENT.ENTITY_KIND,
+                        INVOLVEMENT.ENTITY_ID,
+                        INVOLVEMENT.KIND_ID)
+                .from(INVOLVEMENT)
+                .innerJoin(PERSON).on(PERSON.EMPLOYEE_ID.eq(INVOLVEMENT.EMPLOYEE_ID))
+                .where(PERSON.EMAIL.eq(username))
+                .and(parentCondition)
+                .fetchGroups(
+                        r -> EntityReference.mkRef(
+                                EntityKind.valueOf(r.get(INVOLVEMENT.ENTITY_KIND)),
+                                r.get(INVOLVEMENT.ENTITY_ID)),
+                        r -> r.get(INVOLVEMENT.KIND_ID))
+                .entrySet()
+                .stream()
+                .collect(toMap(Map.Entry::getKey, e -> SetUtilities.fromCollection(e.getValue())));
+    }
+
+
     public List<Involvement> findAllByEmployeeId(String employeeId) {
         return dsl
                 .select(INVOLVEMENT.fields())
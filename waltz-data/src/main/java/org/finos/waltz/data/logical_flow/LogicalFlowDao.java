@@ -36,6 +36,7 @@ import org.jooq.Record;
 import org.jooq.Record1;
 import org.jooq.RecordMapper;
 import org.jooq.Select;
+import org.jooq.SelectConditionStep;
 import org.jooq.SelectJoinStep;
 import org.jooq.UpdateConditionStep;
 import org.jooq.impl.DSL;
@@ -54,12 +55,15 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.function.BiFunction;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.map;
 import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
+import static org.finos.waltz.data.BindParameters.bindOrInline;
+import static org.finos.waltz.data.JooqUtilities.streamFromCursor;
 import static org.finos.waltz.common.EnumUtilities.readEnum;
 import static org.finos.waltz.common.ListUtilities.filter;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
@@ -362,6 +366,19 @@ public class LogicalFlowDao {
     }
 
 
+    /**
+     * As {@link #findBySelector(Select)} but rows are mapped as they are read, the returned
+     * stream holds an open cursor and must be closed.
+     */
+    public Stream<LogicalFlow> streamBySelector(Select<Record1<Long>> flowIdSelector) {
+        SelectConditionStep<Record> qry = baseQuery()
+                .where(bindOrInline(dsl, LOGICAL_FLOW.ID.in(flowIdSelector)));
+
+        return streamFromCursor(dsl, qry)
+                .map(TO_DOMAIN_MAPPER::map);
+    }
+
+
     public Integer cleanupOrphans() {
         Select<Record1<Long>> appIds = DSL
                 .select(APPLICATION.ID)
@@ -55,6 +55,7 @@ import java.util.Set;
 import java.util.concurrent.Future;
 import java.util.function.Supplier;
 
+import static org.finos.waltz.data.BindParameters.bindOrInline;
 import static org.finos.waltz.schema.Tables.*;
 import static org.finos.waltz.schema.tables.Application.APPLICATION;
 import static org.finos.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
@@ -117,7 +118,7 @@ public class LogicalFlowStatsDao {
         Select<Record1<Integer>> intraAppCounter = dsl
                     .select(count())
                     .from(APPLICATION)
-                    .where(dsl.renderInlined(APPLICATION.ID.in(appIdSelector)));
+                    .where(bindOrInline(dsl, APPLICATION.ID.in(appIdSelector)));
 
         Future<Integer> inAppCount = dbExecutorPool.submit(() -> inAppCounter.fetchOne().value1());
         Future<Integer> outAppCount = dbExecutorPool.submit(() -> outAppCounter.fetchOne().value1());
@@ -167,7 +168,7 @@ public class LogicalFlowStatsDao {
                     .on(sourceAppId.eq(lf.SOURCE_ENTITY_ID))
                 .leftJoin(targetApp)
                     .on(targetAppId.eq(lf.TARGET_ENTITY_ID))
-                .where(dsl.renderInlined(condition))
+                .where(bindOrInline(dsl, condition))
                 .groupBy(lfd.DECORATOR_ENTITY_ID, flowTypeCase)
                 .fetchGroups(
                         r -> mkRef(EntityKind.DATA_TYPE, r.getValue(lfd.DECORATOR_ENTITY_ID)),
@@ -247,7 +248,7 @@ public class LogicalFlowStatsDao {
 
         return dsl.select(DSL.countDistinct(fieldToCount))
                 .from(lf)
-                .where(dsl.renderInlined(condition));
+                .where(bindOrInline(dsl, condition));
 
     }
 
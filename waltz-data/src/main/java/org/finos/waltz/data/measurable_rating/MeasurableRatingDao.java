@@ -23,6 +23,7 @@ import org.finos.waltz.common.exception.NotFoundException;
 import org.finos.waltz.data.InlineSelectFieldFactory;
 import org.finos.waltz.data.JooqUtilities;
 import org.finos.waltz.data.SelectorUtilities;
+import org.finos.waltz.data.changelog.ChangeLogEventPublisher;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityLifecycleStatus;
 import org.finos.waltz.model.EntityReference;
@@ -30,6 +31,8 @@ import org.finos.waltz.model.IdSelectionOptions;
 import org.finos.waltz.model.ImmutableEntityReference;
 import org.finos.waltz.model.Operation;
 import org.finos.waltz.model.Severity;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
 import org.finos.waltz.model.measurable_rating.ImmutableMeasurableRating;
 import org.finos.waltz.model.measurable_rating.MeasurableRating;
 import org.finos.waltz.model.measurable_rating.MeasurableRatingChangeSummary;
@@ -70,6 +73,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.function.Function;
+import java.util.stream.Stream;
 
 import static java.lang.String.format;
 import static java.util.Collections.emptySet;
@@ -81,6 +85,8 @@ import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.common.SetUtilities.union;
 import static org.finos.waltz.common.StringUtilities.firstChar;
 import static org.finos.waltz.common.StringUtilities.notEmpty;
+import static org.finos.waltz.data.BindParameters.bindOrInline;
+import static org.finos.waltz.data.JooqUtilities.streamFromCursor;
 import static org.finos.waltz.schema.Tables.*;
 import static org.finos.waltz.schema.tables.Application.APPLICATION;
 import static org.finos.waltz.schema.tables.Measurable.MEASURABLE;
@@ -161,11 +167,15 @@ public class MeasurableRatingDao {
 
 
     private final DSLContext dsl;
+    private final ChangeLogEventPublisher changeLogEventPublisher;
 
 
     @Autowired
-    public MeasurableRatingDao(DSLContext dsl) {
+    public MeasurableRatingDao(DSLContext dsl,
+                               ChangeLogEventPublisher changeLogEventPublisher) {
         checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(changeLogEventPublisher, "changeLogEventPublisher cannot be null");
+        this.changeLogEventPublisher = changeLogEventPublisher;
         this.dsl = dsl;
     }
 
@@ -286,6 +296,22 @@ public class MeasurableRatingDao {
     }
 
 
+    /**
+     * As {@link #findByApplicationIdSelector(Select)} but rows are mapped as they are read,
+     * the returned stream holds an open cursor and must be closed.
+     */
+    public Stream<MeasurableRating> streamByApplicationIdSelector(Select<Record1<Long>> selector) {
+        checkNotNull(selector, "selector cannot be null");
+        Condition condition = MEASURABLE_RATING.ENTITY_ID.in(selector)
+                .and(MEASURABLE_RATING.ENTITY_KIND.eq(DSL.val(EntityKind.APPLICATION.name())));
+        SelectConditionStep<Record> qry = mkBaseQuery()
+                .where(bindOrInline(dsl, condition));
+
+        return streamFromCursor(dsl, qry)
+                .map(TO_DOMAIN_MAPPER::map);
+    }
+
+
     public Collection<MeasurableRating> findByCategory(long id) {
         return mkBaseQuery()
                 .innerJoin(MEASURABLE).on(MEASURABLE_RATING.MEASURABLE_ID.eq(MEASURABLE.ID))
@@ -682,6 +708,16 @@ public class MeasurableRatingDao {
 
 
     private void writeChangeLogForMerge(DSLContext tx, Long measurableId, EntityKind childKind, Operation operation, String message, String userId) {
+        ChangeLog changeLog = ImmutableChangeLog.builder()
+                .parentReference(EntityReference.mkRef(EntityKind.MEASURABLE, measurableId))
+                .message(message)
+                .userId(userId)
+                .severity(Severity.INFORMATION)
+                .createdAt(DateTimeUtilities.nowUtc())
+                .childKind(childKind)
+                .operation(operation)
+                .build();
+
         tx
                 .insertInto(CHANGE_LOG)
                 .columns(CHANGE_LOG.PARENT_KIND,
@@ -692,15 +728,17 @@ public class MeasurableRatingDao {
                         CHANGE_LOG.CREATED_AT,
                         CHANGE_LOG.CHILD_KIND,
                         CHANGE_LOG.OPERATION)
-                .values(EntityKind.MEASURABLE.name(),
-                        measurableId,
-                        message,
-                        userId,
-                        Severity.INFORMATION.name(),
-                        DateTimeUtilities.nowUtcTimestamp(),
+                .values(changeLog.parentReference().kind().name(),
+                        changeLog.parentReference().id(),
+                        changeLog.message(),
+                        changeLog.userId(),
+                        changeLog.severity().name(),
+                        Timestamp.valueOf(changeLog.createdAt()),
                         childKind.name(),
                         operation.name())
                 .execute();
+
+        changeLogEventPublisher.publish(changeLog);
     }
 
 
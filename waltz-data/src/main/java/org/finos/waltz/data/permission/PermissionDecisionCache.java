@@ -0,0 +1,416 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.permission;
+
+import org.finos.waltz.data.changelog.ChangeLogListener;
+import org.finos.waltz.data.involvement.InvolvementDao;
+import org.finos.waltz.data.person.PersonDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.permission_group.Permission;
+import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toSet;
+import static org.finos.waltz.common.Checks.checkNotEmpty;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Caches the permission group permissions a user holds for a parent entity and subject kind.
+ *
+ * A decision combines the permission group rules (held in memory as {@link PermissionGroupRules})
+ * with the user's involvements with the parent entity, it does <em>not</em> include any
+ * entity or role specific amendments the permission checkers apply afterwards.  Decisions
+ * for many parent entities can be requested at once, in which case the involvements for
+ * the parents not yet cached are fetched with a single query.
+ *
+ * Decisions for a parent entity are evicted when involvement change log entries are written
+ * against it.  Everything is evicted when people change or on {@link #clear()}, and the rules
+ * and decisions are reloaded once they exceed their time-to-live.  Permission groups are
+ * not maintained via Waltz so changes to them are only picked up on expiry (or a clear).
+ */
+@Repository
+public class PermissionDecisionCache implements ChangeLogListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(PermissionDecisionCache.class);
+
+    static final int INVOLVEMENT_BATCH_SIZE = 1000;
+
+    /**
+     * Change log child kinds which indicate the involvements with the parent entity have changed.
+     */
+    private static final Set<EntityKind> INVOLVEMENT_CHILD_KINDS = EnumSet.of(EntityKind.INVOLVEMENT, EntityKind.PERSON);
+
+    private final PermissionGroupDao permissionGroupDao;
+    private final InvolvementDao involvementDao;
+    private final PersonDao personDao;
+    private final boolean enabled;
+    private final int maxParentsPerUser;
+    private final long ttlMillis;
+    private final Map<String, UserDecisions> decisionsByUser;
+
+    private volatile PermissionGroupRules rules;
+    private volatile long rulesLoadedAt;
+
+    /**
+     * Incremented on every invalidation, loads which straddle an invalidation
+     * are not cached as they may have read data from before the change.
+     */
+    private final AtomicLong generation = new AtomicLong();
+
+
+    @Autowired
+    public PermissionDecisionCache(PermissionGroupDao permissionGroupDao,
+                                   InvolvementDao involvementDao,
+                                   PersonDao personDao,
+                                   @Value("${permission.cache.enabled:true}") boolean enabled,
+                                   @Value("${permission.cache.max_users:1000}") int maxUsers,
+                                   @Value("${permission.cache.max_parents_per_user:5000}") int maxParentsPerUser,
+                                   @Value("${permission.cache.ttl.minutes:10}") int ttlMinutes) {
+        checkNotNull(permissionGroupDao, "permissionGroupDao cannot be null");
+        checkNotNull(involvementDao, "involvementDao cannot be null");
+        checkNotNull(personDao, "personDao cannot be null");
+
+        this.permissionGroupDao = permissionGroupDao;
+        this.involvementDao = involvementDao;
+        this.personDao = personDao;
+        this.enabled = enabled;
+        this.maxParentsPerUser = maxParentsPerUser;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.decisionsByUser = new LinkedHashMap<String, UserDecisions>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserDecisions> eldest) {
+                return size() > maxUsers;
+            }
+        };
+    }
+
+
+    /**
+     * @return permissions granted by the permission groups applicable to the parent entity,
+     * regardless of the user's involvements
+     */
+    public Set<Permission> findPermissionsForParentEntityReference(EntityReference parentEntityRef) {
+        checkNotNull(parentEntityRef, "parentEntityRef cannot be null");
+
+        return enabled
+                ? getRules().findPermissionsForParentEntityReference(parentEntityRef)
+                : permissionGroupDao.findPermissionsForParentEntityReference(parentEntityRef);
+    }
+
+
+    /**
+     * @return the permissions, for the given subject kind, the user holds on the parent
+     * entity by virtue of their involvements with it
+     */
+    public Set<Permission> findAllowedPermissions(EntityReference parentEntityRef,
+                                                  EntityKind subjectKind,
+                                                  String username) {
+        checkNotNull(parentEntityRef, "parentEntityRef cannot be null");
+
+        return findAllowedPermissions(
+                Collections.singleton(parentEntityRef),
+                subjectKind,
+                username)
+                .getOrDefault(parentEntityRef, Collections.emptySet());
+    }
+
+
+    /**
+     * Bulk form of {@link #findAllowedPermissions(EntityReference, EntityKind, String)}.
+     *
+     * @return allowed permissions keyed by the given parent references
+     */
+    public Map<EntityReference, Set<Permission>> findAllowedPermissions(Collection<EntityReference> parentEntityRefs,
+                                                                        EntityKind subjectKind,
+                                                                        String username) {
+        checkNotNull(parentEntityRefs, "parentEntityRefs cannot be null");
+        checkNotNull(subjectKind, "subjectKind cannot be null");
+        checkNotEmpty(username, "username cannot be empty");
+
+        long generationAtStart = generation.get();
+        UserDecisions decisions = getUserDecisions(username, generationAtStart);
+        Function<EntityReference, Set<Permission>> groupPermissions = enabled
+                ? getRules()::findPermissionsForParentEntityReference
+                : permissionGroupDao::findPermissionsForParentEntityReference;
+
+        Map<EntityReference, Set<Permission>> result = new HashMap<>(parentEntityRefs.size() * 2);
+        if (!decisions.isPerson) {
+            parentEntityRefs.forEach(ref -> result.put(ref, Collections.emptySet()));
+            return result;
+        }
+
+        Map<Tuple2<EntityKind, Long>, Set<Long>> involvementKindIds = findInvolvementKindIds(
+                decisions,
+                parentEntityRefs,
+                username,
+                generationAtStart);
+
+        for (EntityReference parentRef : parentEntityRefs) {
+            Tuple2<EntityKind, Long> parentKey = toKey(parentRef);
+            ParentDecisions parentDecisions = decisions.getParent(parentKey);
+            Set<Permission> allowed = parentDecisions == null
+                    ? null
+                    : parentDecisions.allowedBySubjectKind.get(subjectKind);
+
+            if (allowed == null) {
+                allowed = calculateAllowed(
+                        groupPermissions.apply(parentRef),
+                        parentRef,
+                        subjectKind,
+                        involvementKindIds.getOrDefault(parentKey, Collections.emptySet()));
+                if (parentDecisions != null) {
+                    parentDecisions.allowedBySubjectKind.put(subjectKind, allowed);
+                }
+            }
+            result.put(parentRef, allowed);
+        }
+
+        return result;
+    }
+
+
+    @Override
+    public void onChangeLogs(Collection<ChangeLog> changeLogs) {
+        invalidate(changeLogs);
+    }
+
+
+    /**
+     * Evicts decisions for the parent entities of involvement change log entries, or everything
+     * if people have changed.
+     */
+    public void invalidate(Collection<ChangeLog> changeLogs) {
+        if (!enabled) {
+            return;
+        }
+
+        Set<Tuple2<EntityKind, Long>> parents = new HashSet<>();
+        for (ChangeLog changeLog : changeLogs) {
+            if (changeLog.parentReference().kind() == EntityKind.PERSON) {
+                clearDecisions();
+                return;
+            }
+            if (changeLog.childKind().map(INVOLVEMENT_CHILD_KINDS::contains).orElse(false)) {
+                parents.add(toKey(changeLog.parentReference()));
+            }
+        }
+
+        if (parents.isEmpty()) {
+            return;
+        }
+
+        generation.incrementAndGet();
+        synchronized (decisionsByUser) {
+            decisionsByUser.values().forEach(d -> d.removeParents(parents));
+        }
+        LOG.debug("Evicted permission decisions for: {}", parents);
+    }
+
+
+    /**
+     * Evicts all decisions and the permission group rules, this should be called when
+     * permission groups are changed.
+     */
+    public void clear() {
+        clearDecisions();
+        rules = null;
+    }
+
+
+    // --- helpers
+
+    private void clearDecisions() {
+        generation.incrementAndGet();
+        synchronized (decisionsByUser) {
+            decisionsByUser.clear();
+        }
+    }
+
+
+    private PermissionGroupRules getRules() {
+        PermissionGroupRules current = rules;
+        if (current == null || System.currentTimeMillis() - rulesLoadedAt > ttlMillis) {
+            synchronized (this) {
+                current = rules;
+                if (current == null || System.currentTimeMillis() - rulesLoadedAt > ttlMillis) {
+                    long generationAtStart = generation.get();
+                    current = permissionGroupDao.loadRules();
+                    if (generation.get() == generationAtStart) {
+                        rulesLoadedAt = System.currentTimeMillis();
+                        rules = current;
+                    }
+                }
+            }
+        }
+        return current;
+    }
+
+
+    private UserDecisions getUserDecisions(String username, long generationAtStart) {
+        if (enabled) {
+            synchronized (decisionsByUser) {
+                UserDecisions existing = decisionsByUser.get(username);
+                if (existing != null && System.currentTimeMillis() - existing.loadedAt <= ttlMillis) {
+                    return existing;
+                }
+            }
+        }
+
+        UserDecisions decisions = new UserDecisions(
+                personDao.getByUserEmail(username) != null,
+                maxParentsPerUser);
+
+        if (enabled) {
+            synchronized (decisionsByUser) {
+                if (generation.get() == generationAtStart) {
+                    decisionsByUser.put(username, decisions);
+                }
+            }
+        }
+        return decisions;
+    }
+
+
+    /**
+     * Returns the involvement kinds the user has with each of the parents, fetching (in batches)
+     * and caching those not already known.
+     */
+    private Map<Tuple2<EntityKind, Long>, Set<Long>> findInvolvementKindIds(UserDecisions decisions,
+                                                                            Collection<EntityReference> parentEntityRefs,
+                                                                            String username,
+                                                                            long generationAtStart) {
+        Map<Tuple2<EntityKind, Long>, Set<Long>> result = new HashMap<>(parentEntityRefs.size() * 2);
+        List<EntityReference> missing = new ArrayList<>();
+
+        for (EntityReference parentRef : parentEntityRefs) {
+            Tuple2<EntityKind, Long> parentKey = toKey(parentRef);
+            ParentDecisions parentDecisions = decisions.getParent(parentKey);
+            if (parentDecisions != null) {
+                result.put(parentKey, parentDecisions.involvementKindIds);
+            } else if (!result.containsKey(parentKey)) {
+                result.put(parentKey, Collections.emptySet());
+                missing.add(mkRef(parentRef.kind(), parentRef.id()));
+            }
+        }
+
+        for (int from = 0; from < missing.size(); from += INVOLVEMENT_BATCH_SIZE) {
+            List<EntityReference> batch = missing.subList(from, Math.min(from + INVOLVEMENT_BATCH_SIZE, missing.size()));
+            Map<EntityReference, Set<Long>> involvementKindIdsByRef = involvementDao.findExistingInvolvementKindIdsForUser(batch, username);
+            involvementKindIdsByRef.forEach((ref, kindIds) -> result.put(toKey(ref), kindIds));
+        }
+
+        if (enabled && generation.get() == generationAtStart) {
+            missing.forEach(ref -> {
+                Tuple2<EntityKind, Long> parentKey = toKey(ref);
+                decisions.putParent(parentKey, new ParentDecisions(result.get(parentKey)));
+            });
+        }
+
+        return result;
+    }
+
+
+    private static Set<Permission> calculateAllowed(Set<Permission> groupPermissions,
+                                                    EntityReference parentRef,
+                                                    EntityKind subjectKind,
+                                                    Set<Long> involvementKindIds) {
+        return Collections.unmodifiableSet(groupPermissions
+                .stream()
+                .filter(p -> p.subjectKind() == subjectKind
+                        && p.parentKind() == parentRef.kind())
+                .filter(p -> p.requiredInvolvementsResult().isAllowed(involvementKindIds))
+                .collect(toSet()));
+    }
+
+
+    private static Tuple2<EntityKind, Long> toKey(EntityReference ref) {
+        return tuple(ref.kind(), ref.id());
+    }
+
+
+    private static class UserDecisions {
+
+        private final boolean isPerson;
+        private final long loadedAt = System.currentTimeMillis();
+        private final Map<Tuple2<EntityKind, Long>, ParentDecisions> parents;
+
+
+        private UserDecisions(boolean isPerson,
+                              int maxParents) {
+            this.isPerson = isPerson;
+            this.parents = new LinkedHashMap<Tuple2<EntityKind, Long>, ParentDecisions>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Tuple2<EntityKind, Long>, ParentDecisions> eldest) {
+                    return size() > maxParents;
+                }
+            };
+        }
+
+
+        private synchronized ParentDecisions getParent(Tuple2<EntityKind, Long> parentKey) {
+            return parents.get(parentKey);
+        }
+
+
+        private synchronized void putParent(Tuple2<EntityKind, Long> parentKey,
+                                            ParentDecisions parentDecisions) {
+            parents.put(parentKey, parentDecisions);
+        }
+
+
+        private synchronized void removeParents(Set<Tuple2<EntityKind, Long>> parentKeys) {
+            parents.keySet().removeAll(parentKeys);
+        }
+    }
+
+
+    private static class ParentDecisions {
+
+        private final Set<Long> involvementKindIds;
+        private final Map<EntityKind, Set<Permission>> allowedBySubjectKind = new ConcurrentHashMap<>();
+
+
+        private ParentDecisions(Set<Long> involvementKindIds) {
+            this.involvementKindIds = involvementKindIds;
+        }
+    }
+}
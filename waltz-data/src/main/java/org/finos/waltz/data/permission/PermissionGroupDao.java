@@ -25,6 +25,8 @@ import org.jooq.lambda.tuple.Tuple5;
 import org.springframework.stereotype.Repository;
 
 import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -87,7 +89,62 @@ public class PermissionGroupDao {
                                 r.get(PERMISSION_GROUP_INVOLVEMENT.SUBJECT_KIND)),
                         r -> r.get(INVOLVEMENT_GROUP_ENTRY.INVOLVEMENT_KIND_ID));
 
-        return permissionsForSubjectQualifier
+        return toPermissions(permissionsForSubjectQualifier);
+    }
+
+
+    /**
+     * Loads every permission group involvement and permission group entry, allowing
+     * permissions for parent entities to be resolved in memory.
+     *
+     * @see PermissionGroupRules#findPermissionsForParentEntityReference(EntityReference)
+     */
+    public PermissionGroupRules loadRules() {
+        Map<String, Map<Long, Set<Long>>> groupIdsByEntity = new HashMap<>();
+        dsl.select(PERMISSION_GROUP_ENTRY.ENTITY_KIND,
+                        PERMISSION_GROUP_ENTRY.ENTITY_ID,
+                        PERMISSION_GROUP_ENTRY.PERMISSION_GROUP_ID)
+                .from(PERMISSION_GROUP_ENTRY)
+                .forEach(r -> groupIdsByEntity
+                        .computeIfAbsent(r.get(PERMISSION_GROUP_ENTRY.ENTITY_KIND), k -> new HashMap<>())
+                        .computeIfAbsent(r.get(PERMISSION_GROUP_ENTRY.ENTITY_ID), k -> new HashSet<>())
+                        .add(r.get(PERMISSION_GROUP_ENTRY.PERMISSION_GROUP_ID)));
+
+        List<PermissionGroupRules.Rule> rules = dsl
+                .select(PERMISSION_GROUP_INVOLVEMENT.PERMISSION_GROUP_ID,
+                        PERMISSION_GROUP.IS_DEFAULT,
+                        PERMISSION_GROUP_INVOLVEMENT.OPERATION,
+                        PERMISSION_GROUP_INVOLVEMENT.QUALIFIER_KIND,
+                        PERMISSION_GROUP_INVOLVEMENT.QUALIFIER_ID,
+                        PERMISSION_GROUP_INVOLVEMENT.PARENT_KIND,
+                        PERMISSION_GROUP_INVOLVEMENT.SUBJECT_KIND,
+                        INVOLVEMENT_GROUP_ENTRY.INVOLVEMENT_KIND_ID)
+                .from(PERMISSION_GROUP_INVOLVEMENT)
+                .innerJoin(PERMISSION_GROUP).on(PERMISSION_GROUP.ID.eq(PERMISSION_GROUP_INVOLVEMENT.PERMISSION_GROUP_ID))
+                .leftJoin(INVOLVEMENT_GROUP).on(PERMISSION_GROUP_INVOLVEMENT.INVOLVEMENT_GROUP_ID.eq(INVOLVEMENT_GROUP.ID))
+                .leftJoin(INVOLVEMENT_GROUP_ENTRY).on(INVOLVEMENT_GROUP.ID.eq(INVOLVEMENT_GROUP_ENTRY.INVOLVEMENT_GROUP_ID))
+                .fetch(r -> new PermissionGroupRules.Rule(
+                        r.get(PERMISSION_GROUP_INVOLVEMENT.PERMISSION_GROUP_ID),
+                        r.get(PERMISSION_GROUP.IS_DEFAULT),
+                        tuple(r.get(PERMISSION_GROUP_INVOLVEMENT.OPERATION),
+                                r.get(PERMISSION_GROUP_INVOLVEMENT.QUALIFIER_KIND),
+                                r.get(PERMISSION_GROUP_INVOLVEMENT.QUALIFIER_ID),
+                                r.get(PERMISSION_GROUP_INVOLVEMENT.PARENT_KIND),
+                                r.get(PERMISSION_GROUP_INVOLVEMENT.SUBJECT_KIND)),
+                        r.get(INVOLVEMENT_GROUP_ENTRY.INVOLVEMENT_KIND_ID)));
+
+        return new PermissionGroupRules(groupIdsByEntity, rules);
+    }
+
+
+    /**
+     * Converts the required involvement kinds for each (operation, qualifier kind, qualifier id,
+     * parent kind, subject kind) into permissions.  A <code>null</code> involvement kind indicates
+     * a permission group involvement without an involvement group, if that is the only entry
+     * then all users are allowed.
+     */
+    static Set<Permission> toPermissions(Map<Tuple5<String, String, Long, String, String>, ? extends Collection<Long>> requiredInvolvementsByPermission) {
+        return requiredInvolvementsByPermission
                 .entrySet()
                 .stream()
                 .map(e -> {
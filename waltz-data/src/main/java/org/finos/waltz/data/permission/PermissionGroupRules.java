@@ -0,0 +1,120 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.permission;
+
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.permission_group.Permission;
+import org.jooq.lambda.tuple.Tuple5;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * An in-memory snapshot of the permission group involvements and permission group entries,
+ * see {@link PermissionGroupDao#loadRules()}.
+ *
+ * Resolves permissions in the same way as {@link PermissionGroupDao#findPermissionsForParentEntityReference(EntityReference)},
+ * if the parent entity is listed in any permission group then only those groups apply,
+ * otherwise the default groups apply.  As there are typically few distinct combinations of
+ * groups, the permissions for each combination are only calculated once.
+ */
+public class PermissionGroupRules {
+
+    /** used in place of group ids to indicate the default groups apply */
+    private static final Set<Long> DEFAULT_GROUPS = Collections.emptySet();
+
+    private final Map<String, Map<Long, Set<Long>>> groupIdsByEntity;
+    private final List<Rule> rules;
+    private final Map<Set<Long>, Set<Permission>> permissionsByGroupIds = new ConcurrentHashMap<>();
+
+
+    PermissionGroupRules(Map<String, Map<Long, Set<Long>>> groupIdsByEntity,
+                         List<Rule> rules) {
+        checkNotNull(groupIdsByEntity, "groupIdsByEntity cannot be null");
+        checkNotNull(rules, "rules cannot be null");
+        this.groupIdsByEntity = groupIdsByEntity;
+        this.rules = rules;
+    }
+
+
+    public Set<Permission> findPermissionsForParentEntityReference(EntityReference parentEntityRef) {
+        checkNotNull(parentEntityRef, "parentEntityRef cannot be null");
+
+        Set<Long> groupIds = groupIdsByEntity
+                .getOrDefault(parentEntityRef.kind().name(), Collections.emptyMap())
+                .getOrDefault(parentEntityRef.id(), DEFAULT_GROUPS);
+
+        return permissionsByGroupIds.computeIfAbsent(groupIds, this::calculatePermissions);
+    }
+
+
+    private Set<Permission> calculatePermissions(Set<Long> groupIds) {
+        Predicate<Rule> applies = groupIds.isEmpty()
+                ? r -> r.isDefaultGroup
+                : r -> groupIds.contains(r.groupId);
+
+        Map<Tuple5<String, String, Long, String, String>, Collection<Long>> requiredInvolvements = new HashMap<>();
+        for (Rule rule : rules) {
+            if (applies.test(rule)) {
+                requiredInvolvements
+                        .computeIfAbsent(rule.permission, k -> new ArrayList<>())
+                        .add(rule.involvementKindId);
+            }
+        }
+
+        return Collections.unmodifiableSet(PermissionGroupDao.toPermissions(requiredInvolvements));
+    }
+
+
+    /**
+     * A single permission group involvement, expanded to one rule per involvement kind
+     * in the involvement group.
+     */
+    static class Rule {
+
+        private final long groupId;
+        private final boolean isDefaultGroup;
+
+        /** operation, qualifier kind, qualifier id, parent kind, subject kind */
+        private final Tuple5<String, String, Long, String, String> permission;
+
+        /** null if the involvement has no involvement group (i.e. all users are allowed) */
+        private final Long involvementKindId;
+
+
+        Rule(long groupId,
+             Boolean isDefaultGroup,
+             Tuple5<String, String, Long, String, String> permission,
+             Long involvementKindId) {
+            this.groupId = groupId;
+            this.isDefaultGroup = Boolean.TRUE.equals(isDefaultGroup);
+            this.permission = permission;
+            this.involvementKindId = involvementKindId;
+        }
+    }
+}
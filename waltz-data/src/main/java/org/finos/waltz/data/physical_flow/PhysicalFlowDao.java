@@ -54,12 +54,14 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.BiFunction;
 
 import static java.util.Collections.emptyList;
 import static org.finos.waltz.common.Checks.checkFalse;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.DateTimeUtilities.nowUtcTimestamp;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.data.BindParameters.bindOrInline;
 import static org.finos.waltz.data.logical_flow.LogicalFlowDao.LOGICAL_NOT_REMOVED;
 import static org.finos.waltz.model.EntityLifecycleStatus.REMOVED;
 import static org.finos.waltz.model.EntityReference.mkRef;
@@ -101,6 +103,31 @@ public class PhysicalFlowDao {
                 .build();
     };
 
+    public static final BiFunction<PhysicalFlow, DSLContext, PhysicalFlowRecord> TO_RECORD_MAPPER = (flow, dsl) -> {
+        PhysicalFlowRecord record = dsl.newRecord(PHYSICAL_FLOW);
+        record.setLogicalFlowId(flow.logicalFlowId());
+
+        record.setFrequency(flow.frequency().value());
+        record.setTransport(flow.transport().value());
+        record.setBasisOffset(flow.basisOffset());
+        record.setCriticality(flow.criticality().value());
+
+        record.setSpecificationId(flow.specificationId());
+
+        record.setDescription(flow.description());
+        record.setLastUpdatedBy(flow.lastUpdatedBy());
+        record.setLastUpdatedAt(Timestamp.valueOf(flow.lastUpdatedAt()));
+        record.setLastAttestedBy(flow.lastAttestedBy().orElse(null));
+        record.setLastAttestedAt(flow.lastAttestedAt().map(Timestamp::valueOf).orElse(null));
+        record.setIsRemoved(flow.isRemoved());
+        record.setProvenance("waltz");
+        record.setExternalId(flow.externalId().orElse(null));
+
+        record.setCreatedAt(flow.created().map(UserTimestamp::atTimestamp).orElse(Timestamp.valueOf(flow.lastUpdatedAt())));
+        record.setCreatedBy(flow.created().map(UserTimestamp::by).orElse(flow.lastUpdatedBy()));
+        return record;
+    };
+
     public static final Condition PHYSICAL_FLOW_NOT_REMOVED = PHYSICAL_FLOW.IS_REMOVED.isFalse()
             .and(PHYSICAL_FLOW.ENTITY_LIFECYCLE_STATUS.ne(EntityLifecycleStatus.REMOVED.name()));
 
@@ -298,28 +325,7 @@ public class PhysicalFlowDao {
         checkNotNull(flow, "flow cannot be null");
         checkFalse(flow.id().isPresent(), "flow must not have an id");
 
-        PhysicalFlowRecord record = dsl.newRecord(PHYSICAL_FLOW);
-        record.setLogicalFlowId(flow.logicalFlowId());
-
-        record.setFrequency(flow.frequency().value());
-        record.setTransport(flow.transport().value());
-        record.setBasisOffset(flow.basisOffset());
-        record.setCriticality(flow.criticality().value());
-
-        record.setSpecificationId(flow.specificationId());
-
-        record.setDescription(flow.description());
-        record.setLastUpdatedBy(flow.lastUpdatedBy());
-        record.setLastUpdatedAt(Timestamp.valueOf(flow.lastUpdatedAt()));
-        record.setLastAttestedBy(flow.lastAttestedBy().orElse(null));
-        record.setLastAttestedAt(flow.lastAttestedAt().map(Timestamp::valueOf).orElse(null));
-        record.setIsRemoved(flow.isRemoved());
-        record.setProvenance("waltz");
-        record.setExternalId(flow.externalId().orElse(null));
-
-        record.setCreatedAt(flow.created().map(UserTimestamp::atTimestamp).orElse(Timestamp.valueOf(flow.lastUpdatedAt())));
-        record.setCreatedBy(flow.created().map(UserTimestamp::by).orElse(flow.lastUpdatedBy()));
-
+        PhysicalFlowRecord record = TO_RECORD_MAPPER.apply(flow, dsl);
         record.store();
         return record.getId();
     }
@@ -382,7 +388,7 @@ public class PhysicalFlowDao {
                 .on(PHYSICAL_SPECIFICATION.ID.eq(PHYSICAL_FLOW.SPECIFICATION_ID))
                 .innerJoin(LOGICAL_FLOW)
                 .on(LOGICAL_FLOW.ID.eq(PHYSICAL_FLOW.LOGICAL_FLOW_ID))
-                .where(dsl.renderInlined(isSender))
+                .where(bindOrInline(dsl, isSender))
                 .and(PHYSICAL_FLOW_NOT_REMOVED);
     }
 
@@ -397,7 +403,7 @@ public class PhysicalFlowDao {
                 .from(PHYSICAL_FLOW)
                 .innerJoin(LOGICAL_FLOW)
                 .on(LOGICAL_FLOW.ID.eq(PHYSICAL_FLOW.LOGICAL_FLOW_ID))
-                .where(dsl.renderInlined(matchesLogicalFlow))
+                .where(bindOrInline(dsl, matchesLogicalFlow))
                 .and(PHYSICAL_FLOW_NOT_REMOVED);
     }
 
@@ -414,7 +420,7 @@ public class PhysicalFlowDao {
                 .from(PHYSICAL_FLOW)
                 .innerJoin(LOGICAL_FLOW)
                 .on(LOGICAL_FLOW.ID.eq(PHYSICAL_FLOW.LOGICAL_FLOW_ID))
-                .where(dsl.renderInlined(matchesLogicalFlow));
+                .where(bindOrInline(dsl, matchesLogicalFlow));
     }
 
 
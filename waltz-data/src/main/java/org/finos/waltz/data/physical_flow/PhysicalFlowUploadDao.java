@@ -0,0 +1,613 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.physical_flow;
+
+import org.finos.waltz.data.ResolvedIdSet;
+import org.finos.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
+import org.finos.waltz.data.datatype_decorator.PhysicalSpecDecoratorDao;
+import org.finos.waltz.data.logical_flow.LogicalFlowDao;
+import org.finos.waltz.data.physical_specification.PhysicalSpecificationDao;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.datatype.DataTypeDecorator;
+import org.finos.waltz.model.logical_flow.LogicalFlow;
+import org.finos.waltz.model.physical_flow.PhysicalFlow;
+import org.finos.waltz.model.physical_flow.PhysicalFlowParsed;
+import org.finos.waltz.model.physical_specification.PhysicalSpecification;
+import org.finos.waltz.schema.tables.records.LogicalFlowRecord;
+import org.finos.waltz.schema.tables.records.PhysicalFlowRecord;
+import org.finos.waltz.schema.tables.records.PhysicalSpecificationRecord;
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.DataType;
+import org.jooq.Field;
+import org.jooq.Query;
+import org.jooq.Record;
+import org.jooq.RowN;
+import org.jooq.Select;
+import org.jooq.Table;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple4;
+import org.jooq.lambda.tuple.Tuple6;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toSet;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
+import static org.finos.waltz.data.BindParameters.bindOrInline;
+import static org.finos.waltz.data.logical_flow.LogicalFlowDao.LOGICAL_NOT_REMOVED;
+import static org.finos.waltz.data.physical_flow.PhysicalFlowDao.PHYSICAL_FLOW_NOT_REMOVED;
+import static org.finos.waltz.data.physical_specification.PhysicalSpecificationDao.PHYSICAL_SPEC_NOT_REMOVED;
+import static org.finos.waltz.model.EntityKind.DATA_TYPE;
+import static org.finos.waltz.model.EntityLifecycleStatus.ACTIVE;
+import static org.finos.waltz.model.EntityLifecycleStatus.REMOVED;
+import static org.finos.waltz.schema.tables.LogicalFlow.LOGICAL_FLOW;
+import static org.finos.waltz.schema.tables.LogicalFlowDecorator.LOGICAL_FLOW_DECORATOR;
+import static org.finos.waltz.schema.tables.PhysicalFlow.PHYSICAL_FLOW;
+import static org.finos.waltz.schema.tables.PhysicalSpecDataType.PHYSICAL_SPEC_DATA_TYPE;
+import static org.finos.waltz.schema.tables.PhysicalSpecification.PHYSICAL_SPECIFICATION;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Set based lookups and bulk inserts used when uploading physical flows.
+ *
+ * Rather than looking up (and creating) the logical flow, specification and physical flow
+ * for each uploaded row in turn, each method deals with the whole upload at once.  Lookups
+ * join the candidate rows to a <code>VALUES</code> table holding the keys of each uploaded
+ * item (e.g. the source and target of a logical flow), issuing one query per
+ * {@link #LOOKUP_BATCH_SIZE} items.  Specification names and formats are matched case
+ * insensitively, both in these lookups and when removing duplicates before inserting, so
+ * behaviour does not depend on the database's collation.  Apart from
+ * {@link #findByParsedFlows(Collection)} all methods take the transactional context to
+ * operate within.
+ */
+@Repository
+public class PhysicalFlowUploadDao {
+
+    private static final int LOOKUP_BATCH_SIZE = 1000;
+
+    private static final String KEYS_ALIAS = "upload_keys";
+    private static final Field<Integer> ROW_INDEX = DSL.field(DSL.name(KEYS_ALIAS, "row_index"), Integer.class);
+    private static final Field<Long> MATCH_ID = DSL.field(DSL.name("match_id"), Long.class);
+
+    private final DSLContext dsl;
+
+
+    @Autowired
+    public PhysicalFlowUploadDao(DSLContext dsl) {
+        checkNotNull(dsl, "dsl cannot be null");
+        this.dsl = dsl;
+    }
+
+
+    /**
+     * Finds existing (not removed) physical flows matching the parsed flows.  Flows match
+     * on source, target, specification owner, format and name, data type and the physical
+     * flow attributes (basis offset, frequency, transport and criticality).
+     *
+     * @return map of parsed flow to matching physical flow, unmatched flows are absent
+     */
+    public Map<PhysicalFlowParsed, PhysicalFlow> findByParsedFlows(Collection<PhysicalFlowParsed> parsedFlows) {
+        checkNotNull(parsedFlows, "parsedFlows cannot be null");
+
+        if (parsedFlows.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        Map<PhysicalFlowParsed, Long> matchedIds = findMatchingIds(
+                dsl,
+                parsedFlows,
+                new Field[] {
+                        LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                        LOGICAL_FLOW.TARGET_ENTITY_ID,
+                        PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND,
+                        PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID,
+                        PHYSICAL_SPECIFICATION.FORMAT,
+                        PHYSICAL_SPECIFICATION.NAME,
+                        PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID,
+                        PHYSICAL_FLOW.BASIS_OFFSET,
+                        PHYSICAL_FLOW.FREQUENCY,
+                        PHYSICAL_FLOW.TRANSPORT,
+                        PHYSICAL_FLOW.CRITICALITY},
+                f -> new Object[] {
+                        f.source().kind().name(),
+                        f.source().id(),
+                        f.target().kind().name(),
+                        f.target().id(),
+                        f.owner().kind().name(),
+                        f.owner().id(),
+                        f.format().value(),
+                        f.name(),
+                        f.dataType().id(),
+                        f.basisOffset(),
+                        f.frequency().value(),
+                        f.transport().value(),
+                        f.criticality().value()},
+                keys -> DSL
+                        .select(ROW_INDEX, PHYSICAL_FLOW.ID.as(MATCH_ID))
+                        .from(keys)
+                        .innerJoin(LOGICAL_FLOW)
+                        .on(LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(keyField(LOGICAL_FLOW.SOURCE_ENTITY_KIND)))
+                        .and(LOGICAL_FLOW.SOURCE_ENTITY_ID.eq(keyField(LOGICAL_FLOW.SOURCE_ENTITY_ID)))
+                        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(keyField(LOGICAL_FLOW.TARGET_ENTITY_KIND)))
+                        .and(LOGICAL_FLOW.TARGET_ENTITY_ID.eq(keyField(LOGICAL_FLOW.TARGET_ENTITY_ID)))
+                        .innerJoin(PHYSICAL_FLOW)
+                        .on(PHYSICAL_FLOW.LOGICAL_FLOW_ID.eq(LOGICAL_FLOW.ID))
+                        .and(PHYSICAL_FLOW.BASIS_OFFSET.eq(keyField(PHYSICAL_FLOW.BASIS_OFFSET)))
+                        .and(PHYSICAL_FLOW.FREQUENCY.eq(keyField(PHYSICAL_FLOW.FREQUENCY)))
+                        .and(PHYSICAL_FLOW.TRANSPORT.eq(keyField(PHYSICAL_FLOW.TRANSPORT)))
+                        .and(PHYSICAL_FLOW.CRITICALITY.eq(keyField(PHYSICAL_FLOW.CRITICALITY)))
+                        .innerJoin(PHYSICAL_SPECIFICATION)
+                        .on(PHYSICAL_SPECIFICATION.ID.eq(PHYSICAL_FLOW.SPECIFICATION_ID))
+                        .and(specificationKeyCondition())
+                        .innerJoin(PHYSICAL_SPEC_DATA_TYPE)
+                        .on(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID.eq(PHYSICAL_SPECIFICATION.ID))
+                        .and(PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID.eq(keyField(PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID)))
+                        .where(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS.ne(REMOVED.name()))
+                        .and(PHYSICAL_SPEC_NOT_REMOVED)
+                        .and(PHYSICAL_FLOW_NOT_REMOVED)
+                        .orderBy(PHYSICAL_FLOW.ID));
+
+        if (matchedIds.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        Map<Long, PhysicalFlow> flowsById = new HashMap<>();
+        dsl.select(PHYSICAL_FLOW.fields())
+                .from(PHYSICAL_FLOW)
+                .where(ResolvedIdSet.fromCollection(matchedIds.values()).toCondition(dsl, PHYSICAL_FLOW.ID))
+                .forEach(r -> flowsById.put(r.get(PHYSICAL_FLOW.ID), PhysicalFlowDao.TO_DOMAIN_MAPPER.map(r)));
+
+        Map<PhysicalFlowParsed, PhysicalFlow> result = new HashMap<>();
+        matchedIds.forEach((flow, id) -> result.put(flow, flowsById.get(id)));
+        return result;
+    }
+
+
+    // -- logical flows
+
+    /**
+     * @return map of the given flows to the ids of active logical flows with the same
+     * source and target, flows with no active counterpart are absent
+     */
+    public Map<LogicalFlow, Long> findLogicalFlowIds(DSLContext tx,
+                                                     Collection<LogicalFlow> flows) {
+        if (flows.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        return findMatchingIds(
+                tx,
+                flows,
+                new Field[] {
+                        LOGICAL_FLOW.SOURCE_ENTITY_KIND,
+                        LOGICAL_FLOW.SOURCE_ENTITY_ID,
+                        LOGICAL_FLOW.TARGET_ENTITY_KIND,
+                        LOGICAL_FLOW.TARGET_ENTITY_ID},
+                f -> new Object[] {
+                        f.source().kind().name(),
+                        f.source().id(),
+                        f.target().kind().name(),
+                        f.target().id()},
+                keys -> DSL
+                        .select(ROW_INDEX, LOGICAL_FLOW.ID.as(MATCH_ID))
+                        .from(keys)
+                        .innerJoin(LOGICAL_FLOW)
+                        .on(LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(keyField(LOGICAL_FLOW.SOURCE_ENTITY_KIND)))
+                        .and(LOGICAL_FLOW.SOURCE_ENTITY_ID.eq(keyField(LOGICAL_FLOW.SOURCE_ENTITY_ID)))
+                        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(keyField(LOGICAL_FLOW.TARGET_ENTITY_KIND)))
+                        .and(LOGICAL_FLOW.TARGET_ENTITY_ID.eq(keyField(LOGICAL_FLOW.TARGET_ENTITY_ID)))
+                        .where(LOGICAL_NOT_REMOVED)
+                        .orderBy(LOGICAL_FLOW.ID));
+    }
+
+
+    /**
+     * Restores removed logical flows with the same source and target as the given flows,
+     * issued as a single batch.
+     *
+     * @return number of flows restored
+     */
+    public int restoreLogicalFlows(DSLContext tx,
+                                   Collection<LogicalFlow> flows,
+                                   String username) {
+        if (flows.isEmpty()) {
+            return 0;
+        }
+
+        Timestamp now = Timestamp.valueOf(nowUtc());
+
+        Query[] restores = distinctBy(flows, f -> toLogicalFlowKey(f.source(), f.target()))
+                .stream()
+                .map(f -> tx
+                        .update(LOGICAL_FLOW)
+                        .set(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS, ACTIVE.name())
+                        .set(LOGICAL_FLOW.IS_REMOVED, false)
+                        .set(LOGICAL_FLOW.LAST_UPDATED_BY, username)
+                        .set(LOGICAL_FLOW.LAST_UPDATED_AT, now)
+                        .where(LOGICAL_FLOW.SOURCE_ENTITY_ID.eq(f.source().id()))
+                        .and(LOGICAL_FLOW.SOURCE_ENTITY_KIND.eq(f.source().kind().name()))
+                        .and(LOGICAL_FLOW.TARGET_ENTITY_ID.eq(f.target().id()))
+                        .and(LOGICAL_FLOW.TARGET_ENTITY_KIND.eq(f.target().kind().name()))
+                        .and(LOGICAL_FLOW.IS_REMOVED.isTrue()
+                                .or(LOGICAL_FLOW.ENTITY_LIFECYCLE_STATUS.eq(REMOVED.name()))))
+                .toArray(Query[]::new);
+
+        return sumUpdateCounts(tx.batch(restores).execute());
+    }
+
+
+    /**
+     * Inserts the given logical flows as a single batch, if several flows share a source
+     * and target only the first is inserted.
+     *
+     * @return number of flows inserted
+     */
+    public int createLogicalFlows(DSLContext tx,
+                                  Collection<LogicalFlow> flows) {
+        List<LogicalFlowRecord> records = distinctBy(flows, f -> toLogicalFlowKey(f.source(), f.target()))
+                .stream()
+                .map(f -> LogicalFlowDao.TO_RECORD_MAPPER.apply(f, tx))
+                .collect(toList());
+
+        return records.isEmpty()
+                ? 0
+                : sumUpdateCounts(tx.batchInsert(records).execute());
+    }
+
+
+    /**
+     * Inserts the logical flow data type decorators which do not already exist.
+     *
+     * @return the decorators which were inserted
+     */
+    public List<DataTypeDecorator> addLogicalFlowDecorators(DSLContext tx,
+                                                            Collection<DataTypeDecorator> decorators) {
+        if (decorators.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Tuple2<Long, Long>> existing = tx
+                .select(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID, LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_ID)
+                .from(LOGICAL_FLOW_DECORATOR)
+                .where(toIdCondition(LOGICAL_FLOW_DECORATOR.LOGICAL_FLOW_ID, decorators, d -> d.entityReference().id()))
+                .and(LOGICAL_FLOW_DECORATOR.DECORATOR_ENTITY_KIND.eq(DATA_TYPE.name()))
+                .fetchSet(r -> tuple(r.value1(), r.value2()));
+
+        List<DataTypeDecorator> toAdd = findMissingDecorators(decorators, existing);
+
+        if (!toAdd.isEmpty()) {
+            tx.batchInsert(toAdd
+                        .stream()
+                        .map(LogicalFlowDecoratorDao.TO_RECORD)
+                        .collect(toList()))
+                    .execute();
+        }
+
+        return toAdd;
+    }
+
+
+    // -- specifications
+
+    /**
+     * @return map of the given specifications to the ids of (not removed) specifications with
+     * the same owner, format and name, specifications with no counterpart are absent
+     */
+    public Map<PhysicalSpecification, Long> findSpecificationIds(DSLContext tx,
+                                                                 Collection<PhysicalSpecification> specifications) {
+        if (specifications.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        return findMatchingIds(
+                tx,
+                specifications,
+                new Field[] {
+                        PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND,
+                        PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID,
+                        PHYSICAL_SPECIFICATION.FORMAT,
+                        PHYSICAL_SPECIFICATION.NAME},
+                s -> toSpecificationKey(s).toArray(),
+                keys -> DSL
+                        .select(ROW_INDEX, PHYSICAL_SPECIFICATION.ID.as(MATCH_ID))
+                        .from(keys)
+                        .innerJoin(PHYSICAL_SPECIFICATION)
+                        .on(specificationKeyCondition())
+                        .where(PHYSICAL_SPEC_NOT_REMOVED)
+                        .orderBy(PHYSICAL_SPECIFICATION.ID));
+    }
+
+
+    /**
+     * Inserts the given specifications as a single batch, if several specifications share
+     * an owner, format and name only the first is inserted.
+     *
+     * @return number of specifications inserted
+     */
+    public int createSpecifications(DSLContext tx,
+                                    Collection<PhysicalSpecification> specifications) {
+        List<PhysicalSpecificationRecord> records = distinctBy(specifications, PhysicalFlowUploadDao::toSpecificationKey)
+                .stream()
+                .map(s -> PhysicalSpecificationDao.TO_RECORD_MAPPER.apply(s, tx))
+                .collect(toList());
+
+        return records.isEmpty()
+                ? 0
+                : sumUpdateCounts(tx.batchInsert(records).execute());
+    }
+
+
+    /**
+     * Inserts the specification data type decorators which do not already exist.
+     *
+     * @return the decorators which were inserted
+     */
+    public List<DataTypeDecorator> addSpecificationDecorators(DSLContext tx,
+                                                              Collection<DataTypeDecorator> decorators) {
+        if (decorators.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Set<Tuple2<Long, Long>> existing = tx
+                .select(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID, PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID)
+                .from(PHYSICAL_SPEC_DATA_TYPE)
+                .where(toIdCondition(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID, decorators, d -> d.entityReference().id()))
+                .fetchSet(r -> tuple(r.value1(), r.value2()));
+
+        List<DataTypeDecorator> toAdd = findMissingDecorators(decorators, existing);
+
+        if (!toAdd.isEmpty()) {
+            tx.batchInsert(toAdd
+                        .stream()
+                        .map(PhysicalSpecDecoratorDao.TO_RECORD_MAPPER)
+                        .collect(toList()))
+                    .execute();
+        }
+
+        return toAdd;
+    }
+
+
+    // -- physical flows
+
+    /**
+     * @return map of the given flows to the ids of physical flows with the same logical flow,
+     * specification, basis offset, frequency, transport and criticality, flows with no
+     * counterpart are absent
+     */
+    public Map<PhysicalFlow, Long> findPhysicalFlowIds(DSLContext tx,
+                                                       Collection<PhysicalFlow> flows) {
+        if (flows.isEmpty()) {
+            return new HashMap<>();
+        }
+
+        return findMatchingIds(
+                tx,
+                flows,
+                new Field[] {
+                        PHYSICAL_FLOW.LOGICAL_FLOW_ID,
+                        PHYSICAL_FLOW.SPECIFICATION_ID,
+                        PHYSICAL_FLOW.BASIS_OFFSET,
+                        PHYSICAL_FLOW.FREQUENCY,
+                        PHYSICAL_FLOW.TRANSPORT,
+                        PHYSICAL_FLOW.CRITICALITY},
+                f -> toPhysicalFlowKey(f).toArray(),
+                keys -> DSL
+                        .select(ROW_INDEX, PHYSICAL_FLOW.ID.as(MATCH_ID))
+                        .from(keys)
+                        .innerJoin(PHYSICAL_FLOW)
+                        .on(PHYSICAL_FLOW.LOGICAL_FLOW_ID.eq(keyField(PHYSICAL_FLOW.LOGICAL_FLOW_ID)))
+                        .and(PHYSICAL_FLOW.SPECIFICATION_ID.eq(keyField(PHYSICAL_FLOW.SPECIFICATION_ID)))
+                        .and(PHYSICAL_FLOW.BASIS_OFFSET.eq(keyField(PHYSICAL_FLOW.BASIS_OFFSET)))
+                        .and(PHYSICAL_FLOW.FREQUENCY.eq(keyField(PHYSICAL_FLOW.FREQUENCY)))
+                        .and(PHYSICAL_FLOW.TRANSPORT.eq(keyField(PHYSICAL_FLOW.TRANSPORT)))
+                        .and(PHYSICAL_FLOW.CRITICALITY.eq(keyField(PHYSICAL_FLOW.CRITICALITY)))
+                        .orderBy(PHYSICAL_FLOW.IS_REMOVED, PHYSICAL_FLOW.ID));
+    }
+
+
+    /**
+     * Inserts the given physical flows as a single batch, if several flows share the same
+     * matching attributes (see {@link #findPhysicalFlowIds(DSLContext, Collection)}) only the
+     * first is inserted.
+     *
+     * @return number of flows inserted
+     */
+    public int createPhysicalFlows(DSLContext tx,
+                                   Collection<PhysicalFlow> flows) {
+        List<PhysicalFlowRecord> records = distinctBy(flows, PhysicalFlowUploadDao::toPhysicalFlowKey)
+                .stream()
+                .map(f -> PhysicalFlowDao.TO_RECORD_MAPPER.apply(f, tx))
+                .collect(toList());
+
+        return records.isEmpty()
+                ? 0
+                : sumUpdateCounts(tx.batchInsert(records).execute());
+    }
+
+
+    // -- helpers
+
+    private <T> Condition toIdCondition(Field<Long> field,
+                                        Collection<T> items,
+                                        Function<T, Long> idExtractor) {
+        Set<Long> ids = items
+                .stream()
+                .map(idExtractor)
+                .collect(toSet());
+        return ResolvedIdSet
+                .fromCollection(ids)
+                .toCondition(dsl, field);
+    }
+
+
+    /**
+     * Matches items to rows by joining a <code>VALUES</code> table, holding the position
+     * and key values of each item, to the tables queried by the given query.  The query
+     * must select the {@link #ROW_INDEX} of the key row and the matching id (aliased as
+     * {@link #MATCH_ID}), where several rows match an item the first is used.
+     *
+     * @param keyColumns  columns the key values are compared with, these name the
+     *                    columns of the values table (see {@link #keyField(Field)})
+     * @param keyValueFn  key values of an item, in the same order as the key columns
+     * @return map of the given items to the ids they matched, unmatched items are absent
+     */
+    private static <T> Map<T, Long> findMatchingIds(DSLContext tx,
+                                                    Collection<T> items,
+                                                    Field<?>[] keyColumns,
+                                                    Function<T, Object[]> keyValueFn,
+                                                    Function<Table<Record>, Select<?>> queryFn) {
+        List<T> itemList = new ArrayList<>(items);
+        Map<T, Long> result = new HashMap<>();
+
+        for (int start = 0; start < itemList.size(); start += LOOKUP_BATCH_SIZE) {
+            List<T> batch = itemList.subList(start, Math.min(start + LOOKUP_BATCH_SIZE, itemList.size()));
+
+            bindOrInline(tx, queryFn.apply(mkKeysTable(batch, keyColumns, keyValueFn)))
+                    .fetch()
+                    .forEach(r -> result.putIfAbsent(
+                            batch.get(r.get(ROW_INDEX.getName(), Integer.class)),
+                            r.get(MATCH_ID.getName(), Long.class)));
+        }
+
+        return result;
+    }
+
+
+    @SuppressWarnings("unchecked")
+    private static <T> Table<Record> mkKeysTable(List<T> items,
+                                                 Field<?>[] keyColumns,
+                                                 Function<T, Object[]> keyValueFn) {
+        RowN[] rows = new RowN[items.size()];
+        for (int i = 0; i < items.size(); i++) {
+            Object[] keyValues = keyValueFn.apply(items.get(i));
+            Field<?>[] values = new Field[keyColumns.length + 1];
+            values[0] = DSL.val(i);
+            for (int k = 0; k < keyColumns.length; k++) {
+                values[k + 1] = DSL.val(keyValues[k], (DataType<Object>) keyColumns[k].getDataType());
+            }
+            rows[i] = DSL.row(values);
+        }
+
+        String[] columnNames = new String[keyColumns.length + 1];
+        columnNames[0] = ROW_INDEX.getName();
+        for (int k = 0; k < keyColumns.length; k++) {
+            columnNames[k + 1] = keyColumns[k].getName();
+        }
+
+        return DSL
+                .values(rows)
+                .as(KEYS_ALIAS, columnNames);
+    }
+
+
+    /**
+     * @return the column of the keys table holding the values compared with the given column
+     */
+    private static <T> Field<T> keyField(Field<T> column) {
+        return DSL.field(DSL.name(KEYS_ALIAS, column.getName()), column.getDataType());
+    }
+
+
+    /**
+     * Specifications match exactly on owner, format and name.
+     */
+    private static Condition specificationKeyCondition() {
+        return PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND.eq(keyField(PHYSICAL_SPECIFICATION.OWNING_ENTITY_KIND))
+                .and(PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID.eq(keyField(PHYSICAL_SPECIFICATION.OWNING_ENTITY_ID)))
+                .and(PHYSICAL_SPECIFICATION.FORMAT.eq(keyField(PHYSICAL_SPECIFICATION.FORMAT)))
+                .and(PHYSICAL_SPECIFICATION.NAME.eq(keyField(PHYSICAL_SPECIFICATION.NAME)));
+    }
+
+
+    private static <T, K> Collection<T> distinctBy(Collection<T> items,
+                                                   Function<T, K> keyFn) {
+        Map<K, T> distinct = new LinkedHashMap<>();
+        items.forEach(item -> distinct.putIfAbsent(keyFn.apply(item), item));
+        return distinct.values();
+    }
+
+
+    private static List<DataTypeDecorator> findMissingDecorators(Collection<DataTypeDecorator> decorators,
+                                                                 Set<Tuple2<Long, Long>> existing) {
+        Set<Tuple2<Long, Long>> seen = new HashSet<>(existing);
+        return decorators
+                .stream()
+                .filter(d -> seen.add(tuple(d.entityReference().id(), d.dataTypeId())))
+                .collect(toList());
+    }
+
+
+    /**
+     * Batch update counts may be reported as <code>Statement.SUCCESS_NO_INFO</code> (-2) by
+     * some drivers, these are ignored.
+     */
+    private static int sumUpdateCounts(int[] counts) {
+        int total = 0;
+        for (int count : counts) {
+            total += Math.max(count, 0);
+        }
+        return total;
+    }
+
+
+    private static Tuple4<String, Long, String, Long> toLogicalFlowKey(EntityReference source,
+                                                                       EntityReference target) {
+        return tuple(source.kind().name(), source.id(), target.kind().name(), target.id());
+    }
+
+
+    private static Tuple4<String, Long, String, String> toSpecificationKey(EntityReference owner,
+                                                                           String format,
+                                                                           String name) {
+        return tuple(owner.kind().name(), owner.id(), format, name);
+    }
+
+
+    private static Tuple4<String, Long, String, String> toSpecificationKey(PhysicalSpecification spec) {
+        return toSpecificationKey(spec.owningEntity(), spec.format().value(), spec.name());
+    }
+
+
+    private static Tuple6<Long, Long, Integer, String, String, String> toPhysicalFlowKey(PhysicalFlow flow) {
+        return tuple(
+                flow.logicalFlowId(),
+                flow.specificationId(),
+                flow.basisOffset(),
+                flow.frequency().value(),
+                flow.transport().value(),
+                flow.criticality().value());
+    }
+}
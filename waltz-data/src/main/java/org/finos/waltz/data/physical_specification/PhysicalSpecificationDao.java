@@ -19,6 +19,9 @@
 package org.finos.waltz.data.physical_specification;
 
 import org.finos.waltz.data.InlineSelectFieldFactory;
+import org.finos.waltz.data.ResolvedIdSet;
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.data.changelog.ChangeLogEventPublisher;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityLifecycleStatus;
 import org.finos.waltz.model.EntityReference;
@@ -35,6 +38,7 @@ import org.finos.waltz.schema.tables.LogicalFlow;
 import org.finos.waltz.schema.tables.LogicalFlowDecorator;
 import org.finos.waltz.schema.tables.PhysicalFlow;
 import org.finos.waltz.schema.tables.PhysicalSpecDataType;
+import org.finos.waltz.schema.tables.records.ChangeLogRecord;
 import org.finos.waltz.schema.tables.records.PhysicalSpecificationRecord;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
@@ -56,11 +60,15 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.function.BiFunction;
 
 import static org.finos.waltz.common.Checks.checkFalse;
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.CollectionUtilities.map;
+import static org.finos.waltz.common.DateTimeUtilities.nowUtcTimestamp;
 import static org.finos.waltz.common.ListUtilities.newArrayList;
 import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.common.SetUtilities.union;
@@ -113,16 +121,39 @@ public class PhysicalSpecificationDao {
                 .build();
     };
 
+    public static final BiFunction<PhysicalSpecification, DSLContext, PhysicalSpecificationRecord> TO_RECORD_MAPPER = (spec, dsl) -> {
+        PhysicalSpecificationRecord record = dsl.newRecord(PHYSICAL_SPECIFICATION);
+        record.setOwningEntityKind(spec.owningEntity().kind().name());
+        record.setOwningEntityId(spec.owningEntity().id());
+
+        record.setName(spec.name());
+        record.setExternalId(spec.externalId().orElse(""));
+        record.setDescription(spec.description());
+        record.setFormat(spec.format().value());
+        record.setLastUpdatedAt(Timestamp.valueOf(spec.lastUpdatedAt()));
+        record.setLastUpdatedBy(spec.lastUpdatedBy());
+        record.setIsRemoved(spec.isRemoved());
+        record.setProvenance("waltz");
+
+        record.setCreatedAt(spec.created().get().atTimestamp());
+        record.setCreatedBy(spec.created().get().by());
+        return record;
+    };
+
     public static final Condition PHYSICAL_SPEC_NOT_REMOVED = PHYSICAL_SPECIFICATION.IS_REMOVED.isFalse();
 
 
     private final DSLContext dsl;
+    private final ChangeLogEventPublisher changeLogEventPublisher;
 
 
     @Autowired
-    public PhysicalSpecificationDao(DSLContext dsl) {
+    public PhysicalSpecificationDao(DSLContext dsl,
+                                    ChangeLogEventPublisher changeLogEventPublisher) {
         checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(changeLogEventPublisher, "changeLogEventPublisher cannot be null");
         this.dsl = dsl;
+        this.changeLogEventPublisher = changeLogEventPublisher;
     }
 
 
@@ -204,22 +235,7 @@ public class PhysicalSpecificationDao {
         checkNotNull(specification, "specification cannot be null");
         checkFalse(specification.id().isPresent(), "specification must not have an id");
 
-        PhysicalSpecificationRecord record = dsl.newRecord(PHYSICAL_SPECIFICATION);
-        record.setOwningEntityKind(specification.owningEntity().kind().name());
-        record.setOwningEntityId(specification.owningEntity().id());
-
-        record.setName(specification.name());
-        record.setExternalId(specification.externalId().orElse(""));
-        record.setDescription(specification.description());
-        record.setFormat(specification.format().value());
-        record.setLastUpdatedAt(Timestamp.valueOf(specification.lastUpdatedAt()));
-        record.setLastUpdatedBy(specification.lastUpdatedBy());
-        record.setIsRemoved(specification.isRemoved());
-        record.setProvenance("waltz");
-
-        record.setCreatedAt(specification.created().get().atTimestamp());
-        record.setCreatedBy(specification.created().get().by());
-
+        PhysicalSpecificationRecord record = TO_RECORD_MAPPER.apply(specification, dsl);
         record.store();
         return record.getId();
     }
@@ -274,8 +290,27 @@ public class PhysicalSpecificationDao {
      * @return  number of updates made to logical flows
      */
     public int propagateDataTypesToLogicalFlows(String userName, long specificationId) {
+        return propagateDataTypesToLogicalFlows(userName, Collections.singleton(specificationId));
+    }
+
+
+    /**
+     * As {@link #propagateDataTypesToLogicalFlows(String, long)} but for several specifications
+     * at once, the propagation is performed by a fixed number of statements regardless of the
+     * number of specifications.
+     *
+     * @return  number of updates made to logical flows
+     */
+    public int propagateDataTypesToLogicalFlows(String userName, Collection<Long> specificationIds) {
+        if (specificationIds.isEmpty()) {
+            return 0;
+        }
+
         return dsl.transactionResult(ctx -> {
             DSLContext tx = ctx.dsl();
+            Condition specCondition = ResolvedIdSet
+                    .fromCollection(specificationIds)
+                    .toCondition(tx, pf.SPECIFICATION_ID);
 
             SelectConditionStep<Record3<Long, Long, String>> desiredQry = DSL
                     .select(psdt.DATA_TYPE_ID, lf.ID, dt.NAME)
@@ -283,7 +318,7 @@ public class PhysicalSpecificationDao {
                     .innerJoin(pf).on(psdt.SPECIFICATION_ID.eq(pf.SPECIFICATION_ID))
                     .innerJoin(lf).on(pf.LOGICAL_FLOW_ID.eq(lf.ID))
                     .innerJoin(dt).on(dt.ID.eq(psdt.DATA_TYPE_ID))
-                    .where(pf.SPECIFICATION_ID.eq(specificationId))
+                    .where(specCondition)
                     .and(lf.IS_REMOVED.isFalse())
                     .and(pf.IS_REMOVED.isFalse())
                     .and(lf.ENTITY_LIFECYCLE_STATUS.notEqual(EntityLifecycleStatus.REMOVED.name()))
@@ -295,7 +330,7 @@ public class PhysicalSpecificationDao {
                     .innerJoin(lf).on(lf.ID.eq(lfd.LOGICAL_FLOW_ID))
                     .innerJoin(pf).on(pf.LOGICAL_FLOW_ID.eq(lf.ID))
                     .innerJoin(dt).on(dt.ID.eq(lfd.DECORATOR_ENTITY_ID))
-                    .where(pf.SPECIFICATION_ID.eq(specificationId))
+                    .where(specCondition)
                     .and(lfd.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()));
 
             SelectOrderByStep<Record3<Long, Long, String>> requiredQry = desiredQry
@@ -319,16 +354,7 @@ public class PhysicalSpecificationDao {
                         val(userName))
                     .from(requiredQry);
 
-            tx.insertInto(CHANGE_LOG)
-                    .columns(
-                            CHANGE_LOG.PARENT_KIND,
-                            CHANGE_LOG.PARENT_ID,
-                            CHANGE_LOG.MESSAGE,
-                            CHANGE_LOG.USER_ID,
-                            CHANGE_LOG.SEVERITY,
-                            CHANGE_LOG.OPERATION)
-                    .select(requiredChangeLogs)
-                    .execute();
+            insertChangeLogs(tx, requiredChangeLogs);
 
             int insertCount = tx
                     .insertInto(lfd)
@@ -341,13 +367,13 @@ public class PhysicalSpecificationDao {
                     .execute();
 
 
-            removeUnknownFromLogicalFlowWherePossible(tx, specificationId, userName);
+            removeUnknownFromLogicalFlowWherePossible(tx, specCondition, userName);
 
             return insertCount;
         });
     }
 
-    private void removeUnknownFromLogicalFlowWherePossible(DSLContext tx, long specificationId, String userName) {
+    private void removeUnknownFromLogicalFlowWherePossible(DSLContext tx, Condition specCondition, String userName) {
 
         SelectHavingConditionStep<Record1<Long>> flowsWithOtherDataTypes = tx
                 .select(lfd.LOGICAL_FLOW_ID)
@@ -355,7 +381,7 @@ public class PhysicalSpecificationDao {
                 .innerJoin(lf).on(lf.ID.eq(lfd.LOGICAL_FLOW_ID))
                 .innerJoin(pf).on(pf.LOGICAL_FLOW_ID.eq(lf.ID))
                 .innerJoin(dt).on(dt.ID.eq(lfd.DECORATOR_ENTITY_ID))
-                .where(pf.SPECIFICATION_ID.eq(specificationId))
+                .where(specCondition)
                 .and(dt.UNKNOWN.isFalse())
                 .and(lfd.DECORATOR_ENTITY_KIND.eq(EntityKind.DATA_TYPE.name()))
                 .groupBy(lfd.LOGICAL_FLOW_ID)
@@ -378,17 +404,7 @@ public class PhysicalSpecificationDao {
                         val(Operation.REMOVE.name()))
                 .from(flowsWithOtherDataTypes);
 
-        int changelogsInserted = tx
-                .insertInto(CHANGE_LOG)
-                .columns(
-                        CHANGE_LOG.PARENT_KIND,
-                        CHANGE_LOG.PARENT_ID,
-                        CHANGE_LOG.MESSAGE,
-                        CHANGE_LOG.USER_ID,
-                        CHANGE_LOG.SEVERITY,
-                        CHANGE_LOG.OPERATION)
-                .select(requiredChangeLogs)
-                .execute();
+        insertChangeLogs(tx, requiredChangeLogs);
 
         int removedUnknowns = tx
                 .deleteFrom(lfd)
@@ -397,6 +413,37 @@ public class PhysicalSpecificationDao {
     }
 
 
+    /**
+     * Inserts the change log entries selected by the given query (parent kind, parent id,
+     * message, user id, severity, operation) and publishes them.
+     */
+    private void insertChangeLogs(DSLContext tx,
+                                  Select<? extends Record6<String, Long, String, String, String, String>> changeLogQry) {
+        Timestamp now = nowUtcTimestamp();
+
+        List<ChangeLogRecord> records = tx
+                .fetch(changeLogQry)
+                .map(r -> {
+                    ChangeLogRecord record = tx.newRecord(CHANGE_LOG);
+                    record.setParentKind(r.value1());
+                    record.setParentId(r.value2());
+                    record.setMessage(r.value3());
+                    record.setUserId(r.value4());
+                    record.setSeverity(r.value5());
+                    record.setOperation(r.value6());
+                    record.setCreatedAt(now);
+                    return record;
+                });
+
+        if (records.isEmpty()) {
+            return;
+        }
+
+        tx.batchInsert(records).execute();
+        changeLogEventPublisher.publish(map(records, ChangeLogDao.TO_DOMAIN_MAPPER::map));
+    }
+
+
     public int updateFormat(long specId, DataFormatKindValue format) {
         return dsl
                 .update(PHYSICAL_SPECIFICATION)
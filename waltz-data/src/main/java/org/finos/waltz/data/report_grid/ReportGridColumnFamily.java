@@ -0,0 +1,88 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.report_grid;
+
+import org.finos.waltz.model.EntityKind;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityKind.*;
+
+/**
+ * A column family is a group of report grid columns whose cell data is
+ * fetched by a single query.  Each family lists the kinds of entity
+ * whose modification may change the cells it produces, allowing
+ * cached cell data to be selectively refreshed.
+ */
+public enum ReportGridColumnFamily {
+
+    ASSESSMENTS(ASSESSMENT_RATING, ASSESSMENT_DEFINITION),
+    INVOLVEMENTS(INVOLVEMENT, INVOLVEMENT_KIND, PERSON),
+    COSTS(COST, COST_KIND),
+    COMPLEXITIES(COMPLEXITY, COMPLEXITY_KIND),
+    SUMMARY_MEASURABLES(MEASURABLE_RATING, MEASURABLE, MEASURABLE_CATEGORY, ALLOCATION),
+    EXACT_MEASURABLES(MEASURABLE_RATING, MEASURABLE, MEASURABLE_CATEGORY, ALLOCATION),
+    SURVEY_QUESTIONS(SURVEY_INSTANCE, SURVEY_QUESTION, SURVEY_RUN),
+    SURVEY_TEMPLATES(SURVEY_INSTANCE, SURVEY_INSTANCE_OWNER, SURVEY_INSTANCE_RECIPIENT, SURVEY_RUN, SURVEY_TEMPLATE, PERSON),
+    APP_GROUPS(APP_GROUP, CHANGE_INITIATIVE, ENTITY_RELATIONSHIP),
+    APPLICATION_FIELDS(APPLICATION),
+    EXACT_DATA_TYPES(LOGICAL_DATA_FLOW, PHYSICAL_FLOW, DATA_TYPE),
+    SUMMARY_DATA_TYPES(LOGICAL_DATA_FLOW, PHYSICAL_FLOW, DATA_TYPE),
+    SURVEY_FIELDS(SURVEY_INSTANCE, SURVEY_RUN),
+    CHANGE_INITIATIVE_FIELDS(CHANGE_INITIATIVE),
+    ATTESTATIONS(ATTESTATION, ATTESTATION_RUN),
+    ORG_UNIT_FIELDS(ORG_UNIT),
+    TAGS(TAG),
+    ALIASES(ENTITY_ALIAS),
+    MEASURABLE_HIERARCHIES(MEASURABLE_RATING, MEASURABLE, MEASURABLE_CATEGORY),
+    ENTITY_STATISTICS(ENTITY_STATISTIC);
+
+
+    private final Set<EntityKind> sourceKinds;
+
+
+    ReportGridColumnFamily(EntityKind... sourceKinds) {
+        this.sourceKinds = asSet(sourceKinds);
+    }
+
+
+    public Set<EntityKind> sourceKinds() {
+        return sourceKinds;
+    }
+
+
+    /**
+     * @param changedKind  kind of entity which has been modified
+     * @return the families whose cell data may be affected by the change, may be empty
+     */
+    public static Set<ReportGridColumnFamily> affectedBy(EntityKind changedKind) {
+        EnumSet<ReportGridColumnFamily> affected = EnumSet.noneOf(ReportGridColumnFamily.class);
+        if (changedKind == null) {
+            return affected;
+        }
+        for (ReportGridColumnFamily family : values()) {
+            if (family.sourceKinds.contains(changedKind)) {
+                affected.add(family);
+            }
+        }
+        return affected;
+    }
+}
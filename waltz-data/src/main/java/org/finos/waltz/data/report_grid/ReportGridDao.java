@@ -27,6 +27,9 @@ import org.finos.waltz.common.StringUtilities;
 import org.finos.waltz.common.hierarchy.FlatNode;
 import org.finos.waltz.common.hierarchy.Forest;
 import org.finos.waltz.common.hierarchy.Node;
+import org.finos.waltz.data.ConcurrentFetcher;
+import org.finos.waltz.data.DBExecutorPool;
+import org.finos.waltz.data.DBExecutorPoolInterface;
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.InlineSelectFieldFactory;
 import org.finos.waltz.model.Cardinality;
@@ -86,6 +89,7 @@ import org.jooq.lambda.tuple.Tuple3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Repository;
 
@@ -95,12 +99,16 @@ import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.function.ToIntFunction;
 import java.util.stream.Collectors;
 
@@ -129,6 +137,7 @@ import static org.finos.waltz.common.StringUtilities.toHtmlTable;
 import static org.finos.waltz.common.StringUtilities.toMailbox;
 import static org.finos.waltz.common.StringUtilities.upper;
 import static org.finos.waltz.common.hierarchy.HierarchyUtilities.toForest;
+import static org.finos.waltz.data.BindParameters.bindOrInline;
 import static org.finos.waltz.data.JooqUtilities.fieldsWithout;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.model.report_grid.CellOption.mkCellOption;
@@ -147,6 +156,19 @@ public class ReportGridDao {
 
     private final DSLContext dsl;
 
+    /**
+     * Dedicated to column family fetches, so grids cannot starve the shared pool (used by
+     * search, flows etc.) and vice versa.  Threads are only started if fetches are concurrent.
+     */
+    private final DBExecutorPoolInterface fetchExecutorPool;
+
+    /**
+     * Maximum number of column families fetched in parallel when resolving cell data.
+     * A value of 1 (the default) fetches each family serially on the calling thread.
+     */
+    private final int fetchConcurrency;
+    private final long fetchTimeoutMillis;
+
     private final org.finos.waltz.schema.tables.Measurable m = MEASURABLE.as("m");
     private final org.finos.waltz.schema.tables.MeasurableRating mr = MEASURABLE_RATING.as("mr");
     private final org.finos.waltz.schema.tables.MeasurableCategory mc = MEASURABLE_CATEGORY.as("mc");
@@ -211,8 +233,13 @@ public class ReportGridDao {
 
 
     @Autowired
-    public ReportGridDao(DSLContext dsl) {
+    public ReportGridDao(DSLContext dsl,
+                         @Value("${database.report_grid.fetch.concurrency:1}") int fetchConcurrency,
+                         @Value("${database.report_grid.fetch.timeout.seconds:300}") int fetchTimeoutSeconds) {
         this.dsl = dsl;
+        this.fetchExecutorPool = new DBExecutorPool("Report Grid Fetcher", fetchConcurrency);
+        this.fetchConcurrency = fetchConcurrency;
+        this.fetchTimeoutMillis = TimeUnit.SECONDS.toMillis(fetchTimeoutSeconds);
     }
 
 
@@ -252,6 +279,32 @@ public class ReportGridDao {
     }
 
 
+    /**
+     * Fetches the cell data for a subset of the grids column families, keeping the
+     * cells for each family separate.  Every requested family will have an entry in
+     * the resulting map, even if no cells were found.
+     *
+     * @param id  grid identifier
+     * @param genericSelector  subjects to fetch cell data for
+     * @param families  the column families to fetch
+     * @return map of column family to the cells produced by that family
+     */
+    public Map<ReportGridColumnFamily, Set<ReportGridCell>> findCellDataByGridIdAndFamilies(long id,
+                                                                                           GenericSelector genericSelector,
+                                                                                           Set<ReportGridColumnFamily> families) {
+        Map<ReportGridColumnFamily, Set<ReportGridCell>> result = new EnumMap<>(ReportGridColumnFamily.class);
+        families.forEach(f -> result.put(f, emptySet()));
+
+        ReportGridDefinition gridDefn = getGridDefinitionByCondition(rg.ID.eq(id));
+
+        if (gridDefn != null && !families.isEmpty()) {
+            result.putAll(mkCellFetcher(gridDefn, genericSelector, families).fetchEach());
+        }
+
+        return result;
+    }
+
+
     public Set<ReportGridCell> findCellDataByGridExternalId(String externalId,
                                                             GenericSelector genericSelector) {
         return findCellDataByGridCondition(rg.EXTERNAL_ID.eq(externalId), genericSelector);
@@ -842,78 +895,105 @@ public class ReportGridDao {
 
         if (gridDefn == null) {
             return emptySet();
+        }
 
-        } else {
+        ConcurrentFetcher<ReportGridColumnFamily, ReportGridCell> fetcher = mkCellFetcher(
+                gridDefn,
+                genericSelector,
+                EnumSet.allOf(ReportGridColumnFamily.class));
 
-            Map<Boolean, Collection<ReportGridFixedColumnDefinition>> gridDefinitionsByContainingFieldRef = groupBy(
-                    gridDefn.fixedColumnDefinitions(),
-                    d -> d.entityFieldReference() == null);
+        Set<ReportGridCell> cells = fetcher.fetchAll();
 
-            Collection<ReportGridFixedColumnDefinition> simpleColDefs = gridDefinitionsByContainingFieldRef.getOrDefault(true, emptySet());
-            Collection<ReportGridFixedColumnDefinition> fieldRefColDefs = gridDefinitionsByContainingFieldRef.getOrDefault(false, emptySet());
+        LOG.debug(
+                "Fetched {} cells for grid: {}, timings by column family (ms): {}",
+                cells.size(),
+                gridDefn.id().orElse(null),
+                fetcher.timings());
 
-            // SIMPLE GRID DEFS
+        return cells;
+    }
 
-            Map<EntityKind, Collection<ReportGridFixedColumnDefinition>> colsByKind = groupBy(
-                    simpleColDefs,
-                    ReportGridFixedColumnDefinition::columnEntityKind);
 
-            Map<AdditionalColumnOptions, Collection<ReportGridFixedColumnDefinition>> measurableColumnsByRollupKind = groupBy(
-                    colsByKind.getOrDefault(EntityKind.MEASURABLE, emptySet()),
-                    ReportGridFixedColumnDefinition::additionalColumnOptions);
+    private ConcurrentFetcher<ReportGridColumnFamily, ReportGridCell> mkCellFetcher(ReportGridDefinition gridDefn,
+                                                                                   GenericSelector genericSelector,
+                                                                                   Set<ReportGridColumnFamily> families) {
+        Map<Boolean, Collection<ReportGridFixedColumnDefinition>> gridDefinitionsByContainingFieldRef = groupBy(
+                gridDefn.fixedColumnDefinitions(),
+                d -> d.entityFieldReference() == null);
 
-            Map<Boolean, Collection<ReportGridFixedColumnDefinition>> dataTypeColumnsByIsExact = groupBy(
-                    colsByKind.getOrDefault(EntityKind.DATA_TYPE, emptySet()),
-                    d -> d.additionalColumnOptions() == AdditionalColumnOptions.NONE);
+        Collection<ReportGridFixedColumnDefinition> simpleColDefs = gridDefinitionsByContainingFieldRef.getOrDefault(true, emptySet());
+        Collection<ReportGridFixedColumnDefinition> fieldRefColDefs = gridDefinitionsByContainingFieldRef.getOrDefault(false, emptySet());
 
+        // SIMPLE GRID DEFS
 
-            // FIELD REF COL DEFS
+        Map<EntityKind, Collection<ReportGridFixedColumnDefinition>> colsByKind = groupBy(
+                simpleColDefs,
+                ReportGridFixedColumnDefinition::columnEntityKind);
 
-            Map<Long, EntityFieldReference> fieldReferencesById = dsl
-                    .select(efr.fields())
-                    .from(efr)
-                    .where(efr.ID.in(map(fieldRefColDefs, r -> r.entityFieldReference().id().get())))
-                    .fetchMap(
-                            r -> r.get(efr.ID),
-                            r -> ImmutableEntityFieldReference.builder()
-                                    .id(r.get(efr.ID))
-                                    .entityKind(EntityKind.valueOf(r.get(efr.ENTITY_KIND)))
-                                    .fieldName(r.get(efr.FIELD_NAME))
-                                    .displayName(r.get(efr.DISPLAY_NAME))
-                                    .description(r.get(efr.DESCRIPTION))
-                                    .build());
+        Map<AdditionalColumnOptions, Collection<ReportGridFixedColumnDefinition>> measurableColumnsByRollupKind = groupBy(
+                colsByKind.getOrDefault(EntityKind.MEASURABLE, emptySet()),
+                ReportGridFixedColumnDefinition::additionalColumnOptions);
 
-            Map<EntityKind, Set<Tuple2<ReportGridFixedColumnDefinition, EntityFieldReference>>> fieldRefColsByKind = fieldRefColDefs
-                    .stream()
-                    .map(d -> tuple(d, fieldReferencesById.get(d.entityFieldReference().id().get())))
-                    .collect(groupingBy(t -> t.v2.entityKind(), toSet()));
+        Map<Boolean, Collection<ReportGridFixedColumnDefinition>> dataTypeColumnsByIsExact = groupBy(
+                colsByKind.getOrDefault(EntityKind.DATA_TYPE, emptySet()),
+                d -> d.additionalColumnOptions() == AdditionalColumnOptions.NONE);
 
 
-            return union(
-                    fetchAssessmentData(genericSelector, colsByKind.get(EntityKind.ASSESSMENT_DEFINITION)),
-                    fetchInvolvementData(genericSelector, colsByKind.get(EntityKind.INVOLVEMENT_KIND)),
-                    fetchCostData(genericSelector, colsByKind.get(EntityKind.COST_KIND)),
-                    fetchComplexityData(genericSelector, colsByKind.get(EntityKind.COMPLEXITY_KIND)),
-                    fetchSummaryMeasurableData(
-                            genericSelector,
-                            measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_HIGHEST, emptySet()),
-                            measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_LOWEST, emptySet())),
-                    fetchExactMeasurableData(genericSelector, measurableColumnsByRollupKind.get(AdditionalColumnOptions.NONE)),
-                    fetchSurveyQuestionResponseData(genericSelector, colsByKind.get(EntityKind.SURVEY_QUESTION)),
-                    fetchSurveyTemplateResponseData(genericSelector, colsByKind.get(EntityKind.SURVEY_TEMPLATE)),
-                    fetchAppGroupData(genericSelector, colsByKind.get(EntityKind.APP_GROUP)),
-                    fetchApplicationFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.APPLICATION)),
-                    fetchExactDataTypeData(genericSelector, dataTypeColumnsByIsExact.get(Boolean.TRUE)),
-                    fetchSummaryDataTypeData(genericSelector, dataTypeColumnsByIsExact.get(Boolean.FALSE)),
-                    fetchSurveyFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.SURVEY_INSTANCE)),
-                    fetchChangeInitiativeFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.CHANGE_INITIATIVE)),
-                    fetchAttestationData(genericSelector, colsByKind.get(EntityKind.ATTESTATION)),
-                    fetchOrgUnitFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.ORG_UNIT)),
-                    fetchTagData(genericSelector, colsByKind.get(EntityKind.TAG)),
-                    fetchAliasData(genericSelector, colsByKind.get(EntityKind.ENTITY_ALIAS)),
-                    fetchMeasurableHierarchyData(genericSelector, colsByKind.get(EntityKind.MEASURABLE_CATEGORY)),
-                    fetchEntityStatisticData(genericSelector, colsByKind.get(EntityKind.ENTITY_STATISTIC)));
-        }
+        // FIELD REF COL DEFS
+
+        Map<Long, EntityFieldReference> fieldReferencesById = dsl
+                .select(efr.fields())
+                .from(efr)
+                .where(efr.ID.in(map(fieldRefColDefs, r -> r.entityFieldReference().id().get())))
+                .fetchMap(
+                        r -> r.get(efr.ID),
+                        r -> ImmutableEntityFieldReference.builder()
+                                .id(r.get(efr.ID))
+                                .entityKind(EntityKind.valueOf(r.get(efr.ENTITY_KIND)))
+                                .fieldName(r.get(efr.FIELD_NAME))
+                                .displayName(r.get(efr.DISPLAY_NAME))
+                                .description(r.get(efr.DESCRIPTION))
+                                .build());
+
+        Map<EntityKind, Set<Tuple2<ReportGridFixedColumnDefinition, EntityFieldReference>>> fieldRefColsByKind = fieldRefColDefs
+                .stream()
+                .map(d -> tuple(d, fieldReferencesById.get(d.entityFieldReference().id().get())))
+                .collect(groupingBy(t -> t.v2.entityKind(), toSet()));
+
+
+        Map<ReportGridColumnFamily, Supplier<Set<ReportGridCell>>> fetchersByFamily = new EnumMap<>(ReportGridColumnFamily.class);
+        fetchersByFamily.put(ReportGridColumnFamily.ASSESSMENTS, () -> fetchAssessmentData(genericSelector, colsByKind.get(EntityKind.ASSESSMENT_DEFINITION)));
+        fetchersByFamily.put(ReportGridColumnFamily.INVOLVEMENTS, () -> fetchInvolvementData(genericSelector, colsByKind.get(EntityKind.INVOLVEMENT_KIND)));
+        fetchersByFamily.put(ReportGridColumnFamily.COSTS, () -> fetchCostData(genericSelector, colsByKind.get(EntityKind.COST_KIND)));
+        fetchersByFamily.put(ReportGridColumnFamily.COMPLEXITIES, () -> fetchComplexityData(genericSelector, colsByKind.get(EntityKind.COMPLEXITY_KIND)));
+        fetchersByFamily.put(ReportGridColumnFamily.SUMMARY_MEASURABLES, () -> fetchSummaryMeasurableData(
+                genericSelector,
+                measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_HIGHEST, emptySet()),
+                measurableColumnsByRollupKind.getOrDefault(AdditionalColumnOptions.PICK_LOWEST, emptySet())));
+        fetchersByFamily.put(ReportGridColumnFamily.EXACT_MEASURABLES, () -> fetchExactMeasurableData(genericSelector, measurableColumnsByRollupKind.get(AdditionalColumnOptions.NONE)));
+        fetchersByFamily.put(ReportGridColumnFamily.SURVEY_QUESTIONS, () -> fetchSurveyQuestionResponseData(genericSelector, colsByKind.get(EntityKind.SURVEY_QUESTION)));
+        fetchersByFamily.put(ReportGridColumnFamily.SURVEY_TEMPLATES, () -> fetchSurveyTemplateResponseData(genericSelector, colsByKind.get(EntityKind.SURVEY_TEMPLATE)));
+        fetchersByFamily.put(ReportGridColumnFamily.APP_GROUPS, () -> fetchAppGroupData(genericSelector, colsByKind.get(EntityKind.APP_GROUP)));
+        fetchersByFamily.put(ReportGridColumnFamily.APPLICATION_FIELDS, () -> fetchApplicationFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.APPLICATION)));
+        fetchersByFamily.put(ReportGridColumnFamily.EXACT_DATA_TYPES, () -> fetchExactDataTypeData(genericSelector, dataTypeColumnsByIsExact.get(Boolean.TRUE)));
+        fetchersByFamily.put(ReportGridColumnFamily.SUMMARY_DATA_TYPES, () -> fetchSummaryDataTypeData(genericSelector, dataTypeColumnsByIsExact.get(Boolean.FALSE)));
+        fetchersByFamily.put(ReportGridColumnFamily.SURVEY_FIELDS, () -> fetchSurveyFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.SURVEY_INSTANCE)));
+        fetchersByFamily.put(ReportGridColumnFamily.CHANGE_INITIATIVE_FIELDS, () -> fetchChangeInitiativeFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.CHANGE_INITIATIVE)));
+        fetchersByFamily.put(ReportGridColumnFamily.ATTESTATIONS, () -> fetchAttestationData(genericSelector, colsByKind.get(EntityKind.ATTESTATION)));
+        fetchersByFamily.put(ReportGridColumnFamily.ORG_UNIT_FIELDS, () -> fetchOrgUnitFieldReferenceData(genericSelector, fieldRefColsByKind.get(EntityKind.ORG_UNIT)));
+        fetchersByFamily.put(ReportGridColumnFamily.TAGS, () -> fetchTagData(genericSelector, colsByKind.get(EntityKind.TAG)));
+        fetchersByFamily.put(ReportGridColumnFamily.ALIASES, () -> fetchAliasData(genericSelector, colsByKind.get(EntityKind.ENTITY_ALIAS)));
+        fetchersByFamily.put(ReportGridColumnFamily.MEASURABLE_HIERARCHIES, () -> fetchMeasurableHierarchyData(genericSelector, colsByKind.get(EntityKind.MEASURABLE_CATEGORY)));
+        fetchersByFamily.put(ReportGridColumnFamily.ENTITY_STATISTICS, () -> fetchEntityStatisticData(genericSelector, colsByKind.get(EntityKind.ENTITY_STATISTIC)));
+
+        ConcurrentFetcher<ReportGridColumnFamily, ReportGridCell> fetcher = new ConcurrentFetcher<>(
+                fetchExecutorPool,
+                fetchConcurrency,
+                fetchTimeoutMillis);
+
+        families.forEach(f -> fetcher.add(f, fetchersByFamily.get(f)));
+
+        return fetcher;
     }
 
 
@@ -1873,7 +1953,7 @@ public class ReportGridDao {
             SelectHavingStep<Record2<Long, Integer>> costKindLastestYear = dsl
                     .select(COST.COST_KIND_ID, DSL.max(COST.YEAR).as("latest_year"))
                     .from(COST)
-                    .where(dsl.renderInlined(COST.ENTITY_ID.in(selector.selector())
+                    .where(bindOrInline(dsl, COST.ENTITY_ID.in(selector.selector())
                             .and(COST.ENTITY_KIND.eq(selector.kind().name()))))
                     .groupBy(COST.COST_KIND_ID);
 
@@ -1891,7 +1971,7 @@ public class ReportGridDao {
                             c.AMOUNT)
                     .from(c)
                     .innerJoin(costKindLastestYear).on(latestYearForKind)
-                    .where(dsl.renderInlined(c.COST_KIND_ID.in(costKindIdToDefIdMap.keySet())
+                    .where(bindOrInline(dsl, c.COST_KIND_ID.in(costKindIdToDefIdMap.keySet())
                             .and(c.ENTITY_KIND.eq(selector.kind().name()))
                             .and(c.ENTITY_ID.in(selector.selector()))))
                     .fetchSet(r -> ImmutableReportGridCell.builder()
@@ -1920,7 +2000,7 @@ public class ReportGridDao {
                             cx.COMPLEXITY_KIND_ID,
                             cx.SCORE)
                     .from(cx)
-                    .where(dsl.renderInlined(cx.COMPLEXITY_KIND_ID.in(complexityKindIdToDefIdMap.keySet())
+                    .where(bindOrInline(dsl, cx.COMPLEXITY_KIND_ID.in(complexityKindIdToDefIdMap.keySet())
                             .and(cx.ENTITY_KIND.eq(selector.kind().name()))
                             .and(cx.ENTITY_ID.in(selector.selector()))))
                     .fetchSet(r -> ImmutableReportGridCell.builder()
@@ -1983,8 +2063,7 @@ public class ReportGridDao {
                                 highIdToDefIdMap.keySet(),
                                 lowIdToDefIdMap.keySet()))));
 
-        return dsl
-                .resultQuery(dsl.renderInlined(ratings))
+        return bindOrInline(dsl, ratings)
                 .fetchGroups(
                         r -> tuple(
                                 mkRef(selector.kind(), r.get(mr.ENTITY_ID)),
@@ -2055,8 +2134,7 @@ public class ReportGridDao {
                     .and(mr.ENTITY_ID.in(selector.selector()))
                     .and(mr.ENTITY_KIND.eq(selector.kind().name()));
 
-            return dsl
-                    .resultQuery(dsl.renderInlined(qry))
+            return bindOrInline(dsl, qry)
                     .fetchSet(r -> ImmutableReportGridCell.builder()
                             .subjectId(r.get(mr.ENTITY_ID))
                             .columnDefinitionId(measurableIdToDefIdMap.get(r.get(mr.MEASURABLE_ID)))
@@ -74,6 +74,25 @@ public class ScheduledJobDao {
     }
 
 
+    /**
+     * Moves the job to the new status only if it is still in the expected status, so an
+     * outcome recorded elsewhere (e.g. a timeout) is not overwritten by a late finisher.
+     *
+     * @return true if the status was updated
+     */
+    public boolean updateJobStatus(JobKey jobKey,
+                                   JobLifecycleStatus expectedStatus,
+                                   JobLifecycleStatus newStatus) {
+        return dsl.update(SETTINGS)
+                .set(SETTINGS.VALUE, newStatus.name())
+                .where(SETTINGS.NAME.eq(jobKey.name()))
+                .and(SETTINGS.VALUE.eq(expectedStatus.name()))
+                .execute()
+                ==
+                1;
+    }
+
+
     public boolean anyJobsRunning(Set<JobKey> jobKeys) {
         return dsl
                 .fetchExists(DSL
@@ -0,0 +1,138 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.settings;
+
+import org.finos.waltz.data.VersionedSnapshot;
+import org.finos.waltz.model.settings.Setting;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.MapUtilities.indexBy;
+
+/**
+ * Holds the settings table in memory, settings are read on the hot path by filters and
+ * extractors.
+ *
+ * Settings changed via this node should be followed by a call to {@link #refreshSetting(String)}.
+ * Changes made by other nodes, or directly against the settings table (e.g. scheduled job
+ * statuses) are picked up when the snapshot is next checked, see <code>settings.cache.refresh.seconds</code>.
+ */
+@Repository
+public class SettingsCache {
+
+    private final SettingsDao settingsDao;
+    private final boolean enabled;
+    private final VersionedSnapshot<Map<String, Setting>> settingsByName;
+
+
+    @Autowired
+    public SettingsCache(SettingsDao settingsDao,
+                         @Value("${settings.cache.enabled:true}") boolean enabled,
+                         @Value("${settings.cache.refresh.seconds:30}") int refreshSeconds,
+                         @Value("${settings.cache.full_reload.minutes:10}") int fullReloadMinutes) {
+        checkNotNull(settingsDao, "settingsDao cannot be null");
+        this.settingsDao = settingsDao;
+        this.enabled = enabled;
+        this.settingsByName = new VersionedSnapshot<>(
+                () -> Collections.unmodifiableMap(indexBy(Setting::name, settingsDao.findAll())),
+                settingsDao::getFingerprint,
+                TimeUnit.SECONDS.toMillis(refreshSeconds),
+                TimeUnit.MINUTES.toMillis(fullReloadMinutes));
+    }
+
+
+    public Collection<Setting> findAll() {
+        return enabled
+                ? settingsByName.get().values()
+                : settingsDao.findAll();
+    }
+
+
+    public Setting getByName(String name) {
+        return enabled
+                ? settingsByName.get().get(name)
+                : settingsDao.getByName(name);
+    }
+
+
+    /**
+     * @return values of the unrestricted settings whose names start with the prefix, keyed by name
+     */
+    public Map<String, String> indexByPrefix(String prefix) {
+        if (!enabled) {
+            return settingsDao.indexByPrefix(prefix);
+        }
+
+        Map<String, String> result = new HashMap<>();
+        for (Setting setting : settingsByName.get().values()) {
+            if (!setting.restricted() && setting.name().startsWith(prefix)) {
+                result.put(setting.name(), setting.value().orElse(""));
+            }
+        }
+        return result;
+    }
+
+
+    /**
+     * Re-reads a single setting, this should be called after it has been changed.
+     */
+    public void refreshSetting(String name) {
+        checkNotNull(name, "name cannot be null");
+        if (!enabled) {
+            return;
+        }
+
+        settingsByName.update(current -> {
+            Setting latest = settingsDao.getByName(name);
+            Map<String, Setting> updated = new HashMap<>(current);
+            if (latest == null) {
+                updated.remove(name);
+            } else {
+                updated.put(name, latest);
+            }
+            return Collections.unmodifiableMap(updated);
+        });
+    }
+
+
+    /**
+     * @return incremented whenever any setting changes
+     */
+    public long version() {
+        return settingsByName.version();
+    }
+
+
+    /**
+     * Re-reads all settings.
+     */
+    public void reload() {
+        if (enabled) {
+            settingsByName.reload();
+        }
+    }
+}
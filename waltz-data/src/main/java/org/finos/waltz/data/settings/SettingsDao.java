@@ -26,14 +26,18 @@ import org.finos.waltz.model.settings.Setting;
 import org.jooq.DSLContext;
 import org.jooq.Record;
 import org.jooq.RecordMapper;
+import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple3;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
 import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 
 import static org.finos.waltz.schema.tables.Settings.SETTINGS;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
 public class SettingsDao {
@@ -66,6 +70,20 @@ public class SettingsDao {
     }
 
 
+    /**
+     * @return a cheap summary (row count and total lengths of the names and values) of the
+     * settings table, used to detect changes without reading every row
+     */
+    public Tuple3<Integer, BigDecimal, BigDecimal> getFingerprint() {
+        return dsl
+                .select(DSL.count(),
+                        DSL.sum(DSL.length(SETTINGS.NAME)),
+                        DSL.sum(DSL.length(SETTINGS.VALUE)))
+                .from(SETTINGS)
+                .fetchOne(r -> tuple(r.value1(), r.value2(), r.value3()));
+    }
+
+
     public Setting getByName(String name) {
         return dsl
                 .select(SETTINGS.fields())
@@ -19,8 +19,11 @@
 package org.finos.waltz.data.survey;
 
 import org.finos.waltz.common.CollectionUtilities;
+import org.finos.waltz.common.ListUtilities;
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.data.InlineSelectFieldFactory;
+import org.finos.waltz.data.changelog.ChangeLogDao;
+import org.finos.waltz.data.changelog.ChangeLogEventPublisher;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.Operation;
 import org.finos.waltz.model.ReleaseLifecycleStatus;
@@ -31,6 +34,7 @@ import org.finos.waltz.model.survey.ImmutableSurveyInstance;
 import org.finos.waltz.model.survey.ImmutableSurveyRunCompletionRate;
 import org.finos.waltz.model.survey.SurveyInstance;
 import org.finos.waltz.model.survey.SurveyInstanceCreateCommand;
+import org.finos.waltz.model.survey.SurveyInstanceIssueCommand;
 import org.finos.waltz.model.survey.SurveyInstanceStatus;
 import org.finos.waltz.model.survey.SurveyInvolvementKind;
 import org.finos.waltz.model.survey.SurveyRunCompletionRate;
@@ -42,6 +46,7 @@ import org.jooq.CommonTableExpression;
 import org.jooq.Condition;
 import org.jooq.DSLContext;
 import org.jooq.Field;
+import org.jooq.InsertSetMoreStep;
 import org.jooq.Record;
 import org.jooq.Record1;
 import org.jooq.Record2;
@@ -52,6 +57,7 @@ import org.jooq.Result;
 import org.jooq.Select;
 import org.jooq.SelectConditionStep;
 import org.jooq.impl.DSL;
+import org.jooq.lambda.tuple.Tuple3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -59,7 +65,10 @@ import org.springframework.stereotype.Repository;
 
 import java.sql.Timestamp;
 import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -69,6 +78,7 @@ import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
 import static java.lang.String.format;
+import static java.util.Collections.emptyList;
 import static java.util.Optional.ofNullable;
 import static java.util.stream.Collectors.collectingAndThen;
 import static java.util.stream.Collectors.toSet;
@@ -81,6 +91,7 @@ import static org.finos.waltz.data.JooqUtilities.maybeReadRef;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.schema.Tables.*;
 import static org.finos.waltz.schema.tables.InvolvementGroup.INVOLVEMENT_GROUP;
+import static org.jooq.lambda.tuple.Tuple.tuple;
 
 @Repository
 public class SurveyInstanceDao {
@@ -113,6 +124,9 @@ public class SurveyInstanceDao {
             .as("external_id");
 
 
+    /** maximum number of instances written by a single multi-row insert */
+    private static final int INSERT_CHUNK_SIZE = 1000;
+
     private static final Condition IS_ORIGINAL_INSTANCE_CONDITION = si.ORIGINAL_INSTANCE_ID.isNull();
 
     private static final Set<SurveyInstanceStatus> UPDATABLE_RECIPIENT_STATUSES = SetUtilities.asSet(
@@ -156,13 +170,17 @@ public class SurveyInstanceDao {
     };
 
     private final DSLContext dsl;
+    private final ChangeLogEventPublisher changeLogEventPublisher;
 
 
     @Autowired
-    public SurveyInstanceDao(DSLContext dsl) {
+    public SurveyInstanceDao(DSLContext dsl,
+                             ChangeLogEventPublisher changeLogEventPublisher) {
         checkNotNull(dsl, "dsl cannot be null");
+        checkNotNull(changeLogEventPublisher, "changeLogEventPublisher cannot be null");
 
         this.dsl = dsl;
+        this.changeLogEventPublisher = changeLogEventPublisher;
     }
 
 
@@ -203,22 +221,91 @@ public class SurveyInstanceDao {
     public long create(SurveyInstanceCreateCommand command) {
         checkNotNull(command, "command cannot be null");
 
-        SurveyInstanceRecord record = dsl.newRecord(si);
-        record.setSurveyRunId(command.surveyRunId());
-        record.setEntityKind(command.entityReference().kind().name());
-        record.setEntityId(command.entityReference().id());
-        record.setStatus(command.status().name());
-        record.setDueDate(toSqlDate(command.dueDate()));
-        record.setApprovalDueDate(toSqlDate(command.approvalDueDate()));
-        record.setOwningRole(command.owningRole());
-        record.setName(command.name());
-        record.setIssuedOn(toSqlDate(command.issuedOn()));
-
+        SurveyInstanceRecord record = mkInstanceRecord(dsl, command);
         record.store();
         return record.getId();
     }
 
 
+    /**
+     * Creates survey instances, along with their recipients and owners, using batch
+     * inserts within a single transaction.
+     *
+     * Instances are written with multi-row inserts (of up to {@link #INSERT_CHUNK_SIZE} rows)
+     * which return the generated ids along with the run and entity of each row.  Only these
+     * returned rows are matched to the commands, by run and entity in insertion order, so
+     * instances issued concurrently for the same run and entity cannot be mistaken for ours.
+     *
+     * @return ids of the created instances, in the same order as the commands
+     */
+    public List<Long> createInstancesWithRecipientsAndOwners(List<SurveyInstanceIssueCommand> commands) {
+        checkNotNull(commands, "commands cannot be null");
+        if (commands.isEmpty()) {
+            return emptyList();
+        }
+
+        return dsl.transactionResult(ctx -> {
+            DSLContext tx = DSL.using(ctx);
+
+            List<SurveyInstanceRecord> instanceRecords = ListUtilities.map(commands, c -> mkInstanceRecord(tx, c.instance()));
+
+            Map<Tuple3<Long, String, Long>, Deque<Long>> createdIdsByKey = new HashMap<>();
+            for (int from = 0; from < instanceRecords.size(); from += INSERT_CHUNK_SIZE) {
+                List<SurveyInstanceRecord> chunk = instanceRecords.subList(
+                        from,
+                        Math.min(from + INSERT_CHUNK_SIZE, instanceRecords.size()));
+
+                InsertSetMoreStep<SurveyInstanceRecord> insert = tx.insertInto(si).set(chunk.get(0));
+                for (SurveyInstanceRecord record : chunk.subList(1, chunk.size())) {
+                    insert = insert.newRecord().set(record);
+                }
+
+                insert.returning(si.ID, si.SURVEY_RUN_ID, si.ENTITY_KIND, si.ENTITY_ID)
+                        .fetch()
+                        .sortAsc(si.ID)
+                        .forEach(r -> createdIdsByKey
+                                .computeIfAbsent(
+                                        tuple(r.getSurveyRunId(), r.getEntityKind(), r.getEntityId()),
+                                        k -> new ArrayDeque<>())
+                                .add(r.getId()));
+            }
+
+            List<Long> instanceIds = new ArrayList<>(commands.size());
+            List<SurveyInstanceRecipientRecord> recipientRecords = new ArrayList<>();
+            List<SurveyInstanceOwnerRecord> ownerRecords = new ArrayList<>();
+
+            for (SurveyInstanceIssueCommand command : commands) {
+                SurveyInstanceCreateCommand instance = command.instance();
+                Long instanceId = createdIdsByKey
+                        .getOrDefault(
+                                tuple(instance.surveyRunId(), instance.entityReference().kind().name(), instance.entityReference().id()),
+                                new ArrayDeque<>())
+                        .poll();
+                checkNotNull(instanceId, "Cannot find created survey instance for: %s", instance.entityReference());
+
+                instanceIds.add(instanceId);
+                command.recipientPersonIds().forEach(personId -> {
+                    SurveyInstanceRecipientRecord record = new SurveyInstanceRecipientRecord();
+                    record.setSurveyInstanceId(instanceId);
+                    record.setPersonId(personId);
+                    recipientRecords.add(record);
+                });
+                command.ownerPersonIds().forEach(personId -> {
+                    SurveyInstanceOwnerRecord record = new SurveyInstanceOwnerRecord();
+                    record.setSurveyInstanceId(instanceId);
+                    record.setPersonId(personId);
+                    ownerRecords.add(record);
+                });
+            }
+
+            tx.batchInsert(recipientRecords).execute();
+            tx.batchInsert(ownerRecords).execute();
+
+            return instanceIds;
+        });
+    }
+
+
     public long createPreviousVersion(SurveyInstance currentInstance) {
         checkNotNull(currentInstance, "currentInstance cannot be null");
 
@@ -251,6 +338,22 @@ public class SurveyInstanceDao {
     }
 
 
+    private static SurveyInstanceRecord mkInstanceRecord(DSLContext dsl,
+                                                         SurveyInstanceCreateCommand command) {
+        SurveyInstanceRecord record = dsl.newRecord(si);
+        record.setSurveyRunId(command.surveyRunId());
+        record.setEntityKind(command.entityReference().kind().name());
+        record.setEntityId(command.entityReference().id());
+        record.setStatus(command.status().name());
+        record.setDueDate(toSqlDate(command.dueDate()));
+        record.setApprovalDueDate(toSqlDate(command.approvalDueDate()));
+        record.setOwningRole(command.owningRole());
+        record.setName(command.name());
+        record.setIssuedOn(toSqlDate(command.issuedOn()));
+        return record;
+    }
+
+
     public int deleteForSurveyRun(long surveyRunId) {
         return dsl.delete(si)
                 .where(si.SURVEY_RUN_ID.eq(surveyRunId))
@@ -759,8 +862,7 @@ public class SurveyInstanceDao {
                     return clRecord;
 
                 })
-                .collect(collectingAndThen(toSet(), tx::batchInsert))
-                .execute();
+                .collect(collectingAndThen(toSet(), records -> insertChangeLogs(tx, records)));
     }
 
     private int[] createRemovalChangeLogs(DSLContext tx,
@@ -810,10 +912,19 @@ public class SurveyInstanceDao {
 
                     return clRecord;
                 })
-                .collect(collectingAndThen(toSet(), tx::batchInsert))
+                .collect(collectingAndThen(toSet(), records -> insertChangeLogs(tx, records)));
+    }
+
+    private int[] insertChangeLogs(DSLContext tx, Set<ChangeLogRecord> records) {
+        int[] rcs = tx
+                .batchInsert(records)
                 .execute();
+
+        changeLogEventPublisher.publish(map(records, ChangeLogDao.TO_DOMAIN_MAPPER::map));
+        return rcs;
     }
 
+
     private CommonTableExpression<Record6<Long, Long, String, Long, String, String>> getMembersToAddCTE(CommonTableExpression<Record6<Long, Long, String, Long, String, String>> existingRecipients,
                                                                                                         CommonTableExpression<Record6<Long, Long, String, Long, String, String>> requiredRecipients) {
         return DSL
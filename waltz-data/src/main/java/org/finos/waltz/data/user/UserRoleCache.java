@@ -0,0 +1,127 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.user;
+
+import org.finos.waltz.data.VersionedSnapshot;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Holds the roles of every user in memory so role checks, which are made on almost
+ * every request, do not need to query the database.
+ *
+ * Role changes made via this node should be followed by a call to {@link #refreshUsers(Collection)},
+ * which replaces the roles of just those users.  Changes made by other nodes are picked
+ * up when the snapshot is next checked, see <code>user_role.cache.refresh.seconds</code>.
+ */
+@Repository
+public class UserRoleCache {
+
+    private final UserRoleDao userRoleDao;
+    private final boolean enabled;
+    private final VersionedSnapshot<Map<String, Set<String>>> rolesByUserName;
+
+
+    @Autowired
+    public UserRoleCache(UserRoleDao userRoleDao,
+                         @Value("${user_role.cache.enabled:true}") boolean enabled,
+                         @Value("${user_role.cache.refresh.seconds:30}") int refreshSeconds,
+                         @Value("${user_role.cache.full_reload.minutes:10}") int fullReloadMinutes) {
+        checkNotNull(userRoleDao, "userRoleDao cannot be null");
+        this.userRoleDao = userRoleDao;
+        this.enabled = enabled;
+        this.rolesByUserName = new VersionedSnapshot<>(
+                () -> toImmutable(userRoleDao.findAllRolesByUserName()),
+                userRoleDao::getRolesFingerprint,
+                TimeUnit.SECONDS.toMillis(refreshSeconds),
+                TimeUnit.MINUTES.toMillis(fullReloadMinutes));
+    }
+
+
+    /**
+     * @return the (unmodifiable) roles held by the user, user names are not case sensitive
+     */
+    public Set<String> getUserRoles(String userName) {
+        if (!enabled) {
+            return userRoleDao.getUserRoles(userName);
+        }
+        if (userName == null) {
+            return Collections.emptySet();
+        }
+        return rolesByUserName
+                .get()
+                .getOrDefault(userName.toLowerCase(), Collections.emptySet());
+    }
+
+
+    /**
+     * Re-reads the roles of the given users, this should be called after their roles have been changed.
+     */
+    public void refreshUsers(Collection<String> userNames) {
+        checkNotNull(userNames, "userNames cannot be null");
+        if (!enabled || userNames.isEmpty()) {
+            return;
+        }
+
+        rolesByUserName.update(current -> {
+            Map<String, Set<String>> latest = userRoleDao.findRolesByUserName(userNames);
+            Map<String, Set<String>> updated = new HashMap<>(current);
+            userNames.forEach(userName -> updated.remove(userName.toLowerCase()));
+            latest.forEach((userName, roles) -> updated.put(userName, Collections.unmodifiableSet(roles)));
+            return Collections.unmodifiableMap(updated);
+        });
+    }
+
+
+    /**
+     * @return incremented whenever the roles of any user change
+     */
+    public long version() {
+        return rolesByUserName.version();
+    }
+
+
+    /**
+     * Re-reads the roles of all users.
+     */
+    public void reload() {
+        if (enabled) {
+            rolesByUserName.reload();
+        }
+    }
+
+
+    // --- helpers
+
+    private static Map<String, Set<String>> toImmutable(Map<String, Set<String>> rolesByUserName) {
+        Map<String, Set<String>> result = new HashMap<>(rolesByUserName.size() * 2);
+        rolesByUserName.forEach((userName, roles) -> result.put(userName, Collections.unmodifiableSet(roles)));
+        return Collections.unmodifiableMap(result);
+    }
+}
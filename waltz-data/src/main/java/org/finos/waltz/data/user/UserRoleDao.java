@@ -24,12 +24,16 @@ import org.finos.waltz.model.user.User;
 import org.jooq.DSLContext;
 import org.jooq.Record2;
 import org.jooq.Result;
+import org.jooq.impl.DSL;
 import org.jooq.lambda.tuple.Tuple2;
+import org.jooq.lambda.tuple.Tuple3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -40,6 +44,7 @@ import java.util.stream.Collectors;
 import static java.util.stream.Collectors.collectingAndThen;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.SetUtilities.map;
 import static org.finos.waltz.data.JooqUtilities.summarizeResults;
@@ -75,6 +80,54 @@ public class UserRoleDao {
     }
 
 
+    /**
+     * @return a cheap summary (row count and total lengths of the user names and roles) of
+     * the user_role table, used to detect changes without reading every row
+     */
+    public Tuple3<Integer, BigDecimal, BigDecimal> getRolesFingerprint() {
+        return dsl
+                .select(DSL.count(),
+                        DSL.sum(DSL.length(USER_ROLE.USER_NAME)),
+                        DSL.sum(DSL.length(USER_ROLE.ROLE)))
+                .from(USER_ROLE)
+                .fetchOne(r -> tuple(r.value1(), r.value2(), r.value3()));
+    }
+
+
+    /**
+     * @return roles keyed by (lower cased) user name, users without roles are omitted
+     */
+    public Map<String, Set<String>> findAllRolesByUserName() {
+        return dsl
+                .select(USER_ROLE.USER_NAME, USER_ROLE.ROLE)
+                .from(USER_ROLE)
+                .fetchGroups(
+                        r -> r.get(USER_ROLE.USER_NAME).toLowerCase(),
+                        r -> r.get(USER_ROLE.ROLE))
+                .entrySet()
+                .stream()
+                .collect(toMap(Map.Entry::getKey, e -> new HashSet<>(e.getValue())));
+    }
+
+
+    /**
+     * @return roles for the given users keyed by (lower cased) user name, users without roles are omitted
+     */
+    public Map<String, Set<String>> findRolesByUserName(Collection<String> userNames) {
+        Set<String> lowerCasedNames = map(userNames, String::toLowerCase);
+        return dsl
+                .select(USER_ROLE.USER_NAME, USER_ROLE.ROLE)
+                .from(USER_ROLE)
+                .where(DSL.lower(USER_ROLE.USER_NAME).in(lowerCasedNames))
+                .fetchGroups(
+                        r -> r.get(USER_ROLE.USER_NAME).toLowerCase(),
+                        r -> r.get(USER_ROLE.ROLE))
+                .entrySet()
+                .stream()
+                .collect(toMap(Map.Entry::getKey, e -> new HashSet<>(e.getValue())));
+    }
+
+
     public List<User> findAllUsers() {
         Result<Record2<String, String>> records = dsl.select(USER.USER_NAME, USER_ROLE.ROLE)
                 .from(USER)
@@ -0,0 +1,99 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BindParametersTest {
+
+    private final Field<Long> idField = DSL.field(DSL.name("t", "id"), Long.class);
+
+
+    @Test
+    public void conditionsWithinTheLimitKeepTheirBindValues() {
+        DSLContext dsl = mkDsl(10);
+        Condition condition = idField.in(mkIds(5));
+
+        Condition result = BindParameters.bindOrInline(dsl, condition);
+
+        assertSame(condition, result);
+        assertEquals(5, dsl.extractBindValues(result).size());
+    }
+
+
+    @Test
+    public void conditionsOverTheLimitAreInlined() {
+        DSLContext dsl = mkDsl(10);
+
+        Condition result = BindParameters.bindOrInline(dsl, idField.in(mkIds(11)));
+
+        assertTrue(dsl.extractBindValues(result).isEmpty());
+        assertTrue(dsl.render(result).contains("11"));
+    }
+
+
+    @Test
+    public void everythingIsInlinedWhenNotConfigured() {
+        DSLContext dsl = DSL.using(SQLDialect.POSTGRES);
+
+        Condition result = BindParameters.bindOrInline(dsl, idField.in(mkIds(1)));
+
+        assertTrue(dsl.extractBindValues(result).isEmpty());
+    }
+
+
+    @Test
+    public void queriesWithinTheLimitAreWrappedWithTheirBindValues() {
+        DSLContext dsl = mkDsl(10);
+
+        String sql = dsl.render(BindParameters.bindOrInline(
+                dsl,
+                DSL.select(idField).from(DSL.table(DSL.name("t"))).where(idField.in(mkIds(3)))));
+
+        assertTrue(sql.contains("?"));
+    }
+
+
+    private static DSLContext mkDsl(int limit) {
+        DefaultConfiguration configuration = new DefaultConfiguration();
+        configuration.set(SQLDialect.POSTGRES);
+        BindParameters.configure(configuration, limit);
+        return DSL.using(configuration);
+    }
+
+
+    private static List<Long> mkIds(int count) {
+        return LongStream
+                .rangeClosed(1, count)
+                .boxed()
+                .collect(Collectors.toList());
+    }
+}
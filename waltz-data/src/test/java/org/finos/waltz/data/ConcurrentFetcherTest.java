@@ -0,0 +1,124 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ConcurrentFetcherTest {
+
+    private final DBExecutorPoolInterface pool = new DBExecutorPool(2, 8);
+
+
+    @Test
+    public void serialFetchMergesAllResults() {
+        Set<Integer> result = new ConcurrentFetcher<String, Integer>(pool, 1, 1000)
+                .add("a", () -> asSet(1, 2))
+                .add("b", () -> asSet(2, 3))
+                .fetchAll();
+
+        assertEquals(asSet(1, 2, 3), result);
+    }
+
+
+    @Test
+    public void concurrentFetchMergesAllResultsAndRecordsTimings() {
+        ConcurrentFetcher<String, Integer> fetcher = new ConcurrentFetcher<String, Integer>(pool, 3, 5000)
+                .add("a", () -> asSet(1, 2))
+                .add("b", () -> asSet(2, 3))
+                .add("c", () -> asSet(4))
+                .add("d", () -> asSet());
+
+        assertEquals(asSet(1, 2, 3, 4), fetcher.fetchAll());
+        assertEquals(asSet("a", "b", "c", "d"), fetcher.timings().keySet());
+    }
+
+
+    @Test
+    public void fetchEachKeepsResultsSeparate() {
+        Map<String, Set<Integer>> result = new ConcurrentFetcher<String, Integer>(pool, 2, 5000)
+                .add("a", () -> asSet(1, 2))
+                .add("b", () -> asSet(2, 3))
+                .fetchEach();
+
+        assertEquals(asSet(1, 2), result.get("a"));
+        assertEquals(asSet(2, 3), result.get("b"));
+    }
+
+
+    @Test
+    public void failuresArePropagatedAndRemainingTasksSkipped() {
+        AtomicInteger executed = new AtomicInteger();
+        ConcurrentFetcher<String, Integer> fetcher = new ConcurrentFetcher<String, Integer>(pool, 1, 5000)
+                .add("boom", () -> {
+                    throw new IllegalArgumentException("boom");
+                })
+                .add("skipped", () -> {
+                    executed.incrementAndGet();
+                    return asSet(1);
+                });
+
+        assertThrows(IllegalArgumentException.class, fetcher::fetchAll);
+        assertEquals(0, executed.get());
+    }
+
+
+    @Test
+    public void slowFetchesTimeOut() {
+        ConcurrentFetcher<String, Integer> fetcher = new ConcurrentFetcher<String, Integer>(pool, 2, 100)
+                .add("fast", () -> asSet(1))
+                .add("slow", () -> {
+                    try {
+                        Thread.sleep(5000);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return asSet(2);
+                });
+
+        IllegalStateException ex = assertThrows(IllegalStateException.class, fetcher::fetchAll);
+        assertTrue(ex.getMessage().contains("Timed out"));
+    }
+
+
+    @Test
+    public void nestedFetchesRunInlineRatherThanStarvingThePool() {
+        DBExecutorPoolInterface singleThreadPool = new DBExecutorPool("Test Fetcher", 1);
+        Set<Integer> result = new ConcurrentFetcher<String, Integer>(singleThreadPool, 2, 5000)
+                .add("outer", () -> new ConcurrentFetcher<String, Integer>(singleThreadPool, 2, 1000)
+                        .add("a", () -> asSet(1))
+                        .add("b", () -> asSet(2))
+                        .fetchAll())
+                .add("other", () -> asSet(3))
+                .fetchAll();
+
+        assertEquals(asSet(1, 2, 3), result);
+        assertFalse(singleThreadPool.isPoolThread());
+    }
+
+}
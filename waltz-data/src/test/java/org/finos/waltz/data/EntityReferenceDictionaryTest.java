@@ -0,0 +1,143 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.finos.waltz.data.EntityReferenceDictionary.KindDictionary;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record4;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityReferenceDictionaryTest {
+
+    private final AtomicInteger queryCount = new AtomicInteger();
+    private final List<Object[]> rows = new ArrayList<>();
+
+
+    @Test
+    public void kindsAreLoadedOnceAndServedFromMemory() {
+        rows.add(new Object[]{1L, "App A", "A-1", "ACTIVE"});
+        rows.add(new Object[]{2L, "App B", "B-1", "REMOVED"});
+        EntityReferenceDictionary dictionary = mkDictionary(true, 10);
+
+        KindDictionary apps = dictionary.findDictionary(EntityKind.APPLICATION).orElse(null);
+        dictionary.findDictionary(EntityKind.APPLICATION);
+
+        assertEquals(1, queryCount.get());
+        assertNotNull(apps);
+        assertEquals("App B", apps.getName(2L));
+        assertEquals("A-1", apps.getExternalId(1L));
+        assertEquals("REMOVED", apps.getEntityLifecycleStatus(2L));
+        assertTrue(apps.contains(1L));
+        assertFalse(apps.contains(3L));
+        assertNull(apps.getName(3L));
+    }
+
+
+    @Test
+    public void changedEntitiesAreReRead() {
+        rows.add(new Object[]{1L, "App A", "A-1", "ACTIVE"});
+        rows.add(new Object[]{2L, "App B", "B-1", "ACTIVE"});
+        EntityReferenceDictionary dictionary = mkDictionary(true, 10);
+        dictionary.findDictionary(EntityKind.APPLICATION);
+
+        rows.clear();
+        rows.add(new Object[]{2L, "App B (renamed)", "B-1", "ACTIVE"});
+        dictionary.invalidate(asSet(mkChangeLog(2L), mkChangeLog(1L)));
+
+        KindDictionary apps = dictionary.findDictionary(EntityKind.APPLICATION).orElse(null);
+        dictionary.findDictionary(EntityKind.APPLICATION);
+
+        assertEquals(2, queryCount.get(), "only the stale entities should be re-read, once");
+        assertNotNull(apps);
+        assertEquals("App B (renamed)", apps.getName(2L));
+        assertFalse(apps.contains(1L), "entities missing when re-read have been removed");
+        assertNull(apps.getName(1L));
+    }
+
+
+    @Test
+    public void oversizedKindsAreNotHeld() {
+        rows.add(new Object[]{1L, "App A", "A-1", "ACTIVE"});
+        rows.add(new Object[]{2L, "App B", "B-1", "ACTIVE"});
+        EntityReferenceDictionary dictionary = mkDictionary(true, 1);
+
+        assertFalse(dictionary.findDictionary(EntityKind.APPLICATION).isPresent());
+        assertFalse(dictionary.findDictionary(EntityKind.APPLICATION).isPresent());
+        assertEquals(1, queryCount.get(), "oversized kinds should be remembered");
+    }
+
+
+    @Test
+    public void disabledOrUnsupportedKindsAreNotLoaded() {
+        assertFalse(mkDictionary(false, 10).findDictionary(EntityKind.APPLICATION).isPresent());
+        assertFalse(mkDictionary(true, 10).findDictionary(EntityKind.BOOKMARK).isPresent());
+        assertEquals(0, queryCount.get());
+    }
+
+
+    private ChangeLog mkChangeLog(long appId) {
+        return ImmutableChangeLog.builder()
+                .parentReference(mkRef(EntityKind.APPLICATION, appId))
+                .message("renamed")
+                .userId("test")
+                .operation(Operation.UPDATE)
+                .build();
+    }
+
+
+    private EntityReferenceDictionary mkDictionary(boolean enabled, int maxRowsPerKind) {
+        MockDataProvider provider = context -> {
+            queryCount.incrementAndGet();
+            DSLContext create = DSL.using(SQLDialect.POSTGRES);
+            Field<Long> id = DSL.field("id", Long.class);
+            Field<String> name = DSL.field("name", String.class);
+            Field<String> externalId = DSL.field("external_id", String.class);
+            Field<String> lifecycle = DSL.field("lifecycle", String.class);
+            Result<Record4<Long, String, String, String>> result = create.newResult(id, name, externalId, lifecycle);
+            for (Object[] row : rows) {
+                Record4<Long, String, String, String> record = create.newRecord(id, name, externalId, lifecycle);
+                record.values((Long) row[0], (String) row[1], (String) row[2], (String) row[3]);
+                result.add(record);
+            }
+            return new MockResult[]{ new MockResult(result.size(), result) };
+        };
+
+        DSLContext dsl = DSL.using(new MockConnection(provider), SQLDialect.POSTGRES);
+        return new EntityReferenceDictionary(dsl, enabled, maxRowsPerKind, 10);
+    }
+}
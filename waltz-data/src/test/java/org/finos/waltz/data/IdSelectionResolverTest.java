@@ -0,0 +1,132 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.Select;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockDataProvider;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
+import static org.finos.waltz.schema.tables.Application.APPLICATION;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IdSelectionResolverTest {
+
+    private final AtomicInteger queryCount = new AtomicInteger();
+    private final IdSelectionOptions orgUnitOpts = mkOpts(mkRef(EntityKind.ORG_UNIT, 1L));
+    private final Select<Record1<Long>> selector = DSL.select(APPLICATION.ID).from(APPLICATION);
+
+
+    @Test
+    public void selectionsAreOnlyResolvedOnce() {
+        IdSelectionResolver resolver = mkResolver(true, 10, 1L, 2L, 3L);
+
+        resolver.resolve(EntityKind.APPLICATION, orgUnitOpts, selector);
+        resolver.resolve(EntityKind.APPLICATION, orgUnitOpts, selector);
+
+        assertEquals(1, queryCount.get());
+        assertEquals(
+                ResolvedIdSet.of(1, 2, 3),
+                resolver.findResolved(EntityKind.APPLICATION, orgUnitOpts).orElse(null));
+    }
+
+
+    @Test
+    public void largeSelectionsFallBackToTheOriginalSelector() {
+        IdSelectionResolver resolver = mkResolver(true, 2, 1L, 2L, 3L);
+
+        assertSame(selector, resolver.resolve(EntityKind.APPLICATION, orgUnitOpts, selector));
+        assertSame(selector, resolver.resolve(EntityKind.APPLICATION, orgUnitOpts, selector));
+        assertEquals(1, queryCount.get(), "oversized selections should be remembered");
+        assertFalse(resolver.findResolved(EntityKind.APPLICATION, orgUnitOpts).isPresent());
+    }
+
+
+    @Test
+    public void changesToDependentKindsEvictEntries() {
+        IdSelectionResolver resolver = mkResolver(true, 10, 1L);
+        IdSelectionOptions measurableOpts = mkOpts(mkRef(EntityKind.MEASURABLE, 1L));
+
+        resolver.resolve(EntityKind.APPLICATION, orgUnitOpts, selector);
+        resolver.resolve(EntityKind.APPLICATION, measurableOpts, selector);
+
+        resolver.invalidate(asSet(ImmutableChangeLog.builder()
+                .parentReference(mkRef(EntityKind.APPLICATION, 5L))
+                .childKind(EntityKind.MEASURABLE_RATING)
+                .message("rating added")
+                .userId("test")
+                .operation(Operation.ADD)
+                .build()));
+
+        // both depend on APPLICATION
+        assertFalse(resolver.findResolved(EntityKind.APPLICATION, orgUnitOpts).isPresent());
+        assertFalse(resolver.findResolved(EntityKind.APPLICATION, measurableOpts).isPresent());
+
+        resolver.resolve(EntityKind.APPLICATION, orgUnitOpts, selector);
+        resolver.resolve(EntityKind.APPLICATION, measurableOpts, selector);
+        resolver.invalidateKind(EntityKind.MEASURABLE);
+
+        assertTrue(resolver.findResolved(EntityKind.APPLICATION, orgUnitOpts).isPresent());
+        assertFalse(resolver.findResolved(EntityKind.APPLICATION, measurableOpts).isPresent());
+    }
+
+
+    @Test
+    public void disabledResolverPassesSelectorsThrough() {
+        IdSelectionResolver resolver = mkResolver(false, 10, 1L);
+
+        assertSame(selector, resolver.resolve(EntityKind.APPLICATION, orgUnitOpts, selector));
+        assertEquals(0, queryCount.get());
+    }
+
+
+    private IdSelectionResolver mkResolver(boolean enabled, int maxIds, Long... ids) {
+        MockDataProvider provider = context -> {
+            queryCount.incrementAndGet();
+            DSLContext create = DSL.using(SQLDialect.POSTGRES);
+            Field<Long> idField = DSL.field("id", Long.class);
+            Result<Record1<Long>> result = create.newResult(idField);
+            for (Long id : ids) {
+                Record1<Long> record = create.newRecord(idField);
+                record.value1(id);
+                result.add(record);
+            }
+            return new MockResult[]{ new MockResult(result.size(), result) };
+        };
+
+        DSLContext dsl = DSL.using(new MockConnection(provider), SQLDialect.POSTGRES);
+        return new IdSelectionResolver(dsl, enabled, 16, maxIds, 10);
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.jooq.ConnectionProvider;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.Record1;
+import org.jooq.Result;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.data.JooqUtilities.streamFromCursor;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JooqUtilitiesStreamTest {
+
+    private static final Field<Integer> VALUE = DSL.field("value", Integer.class);
+
+    private final RecordingConnection connection = new RecordingConnection(false);
+    private final RecordingConnectionProvider connectionProvider = new RecordingConnectionProvider(connection);
+    private final DSLContext dsl = DSL.using(connectionProvider, SQLDialect.H2);
+
+
+    @Test
+    public void autoCommitIsDisabledWhilstTheStreamIsOpen() {
+        try (Stream<Record1<Integer>> rows = streamFromCursor(dsl, dsl.select(VALUE))) {
+            assertFalse(connection.autoCommit, "auto-commit should be off whilst the cursor is open");
+            assertEquals(0, connectionProvider.released);
+
+            List<Integer> values = rows.map(Record1::value1).collect(Collectors.toList());
+            assertEquals(asList(1, 2, 3), values);
+        }
+
+        assertTrue(connection.autoCommit, "auto-commit should be restored once the stream is closed");
+        assertEquals(1, connection.rollbacks);
+        assertEquals(1, connectionProvider.released);
+    }
+
+
+    @Test
+    public void connectionsAlreadyInATransactionAreLeftAsTheyWere() {
+        RecordingConnection txConnection = new RecordingConnection(false);
+        txConnection.autoCommit = false;
+        RecordingConnectionProvider txProvider = new RecordingConnectionProvider(txConnection);
+        DSLContext txDsl = DSL.using(txProvider, SQLDialect.H2);
+
+        streamFromCursor(txDsl, txDsl.select(VALUE)).close();
+
+        assertFalse(txConnection.autoCommit);
+        assertEquals(0, txConnection.rollbacks, "the enclosing transaction should not be rolled back");
+        assertEquals(1, txProvider.released);
+    }
+
+
+    @Test
+    public void connectionIsReleasedIfTheQueryFails() {
+        RecordingConnection failingConnection = new RecordingConnection(true);
+        RecordingConnectionProvider failingProvider = new RecordingConnectionProvider(failingConnection);
+        DSLContext failingDsl = DSL.using(failingProvider, SQLDialect.H2);
+
+        assertThrows(RuntimeException.class, () -> streamFromCursor(failingDsl, failingDsl.select(VALUE)));
+
+        assertTrue(failingConnection.autoCommit);
+        assertEquals(1, failingProvider.released);
+    }
+
+
+    // -- helpers
+
+    private static class RecordingConnection extends MockConnection {
+
+        private boolean autoCommit = true;
+        private int rollbacks = 0;
+
+
+        RecordingConnection(boolean failQueries) {
+            super(ctx -> {
+                if (failQueries) {
+                    throw new IllegalStateException("boom");
+                }
+                DSLContext mockDsl = DSL.using(SQLDialect.H2);
+                Result<Record1<Integer>> result = mockDsl.newResult(VALUE);
+                for (int i = 1; i <= 3; i++) {
+                    result.add(mockDsl.newRecord(VALUE).values(i));
+                }
+                return new MockResult[]{ new MockResult(result.size(), result) };
+            });
+        }
+
+
+        @Override
+        public void setAutoCommit(boolean autoCommit) {
+            this.autoCommit = autoCommit;
+        }
+
+
+        @Override
+        public boolean getAutoCommit() {
+            return autoCommit;
+        }
+
+
+        @Override
+        public void rollback() {
+            rollbacks++;
+        }
+    }
+
+
+    private static class RecordingConnectionProvider implements ConnectionProvider {
+
+        private final Connection connection;
+        private int released = 0;
+
+
+        RecordingConnectionProvider(Connection connection) {
+            this.connection = connection;
+        }
+
+
+        @Override
+        public Connection acquire() {
+            return connection;
+        }
+
+
+        @Override
+        public void release(Connection connection) {
+            released++;
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.jooq.Condition;
+import org.jooq.DSLContext;
+import org.jooq.Field;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.LongStream;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResolvedIdSetTest {
+
+    private final DSLContext dsl = mkDsl(2000);
+    private final Field<Long> idField = DSL.field(DSL.name("t", "id"), Long.class);
+
+
+    @Test
+    public void idsAreSortedAndDeduplicated() {
+        ResolvedIdSet ids = ResolvedIdSet.of(5, 1, 3, 1, 5);
+
+        assertArrayEquals(new long[]{1, 3, 5}, ids.toArray());
+        assertEquals(ResolvedIdSet.fromCollection(asList(3L, 5L, 1L)), ids);
+        assertTrue(ids.contains(3));
+        assertFalse(ids.contains(2));
+    }
+
+
+    @Test
+    public void smallSetsRenderAsABoundInList() {
+        Condition condition = ResolvedIdSet.of(2, 1).toCondition(dsl, idField);
+
+        assertEquals(asList(1L, 2L), dsl.extractBindValues(condition));
+        assertTrue(dsl.render(condition).contains("\"t\".\"id\" in (?, ?)"), dsl.render(condition));
+    }
+
+
+    @Test
+    public void largeSetsRenderAsABoundValuesTable() {
+        ResolvedIdSet ids = ResolvedIdSet.of(LongStream.rangeClosed(1, ResolvedIdSet.IN_LIST_LIMIT + 1).toArray());
+        Condition condition = ids.toCondition(dsl, idField);
+
+        assertTrue(dsl.render(condition).contains("values"), dsl.render(condition));
+        assertEquals(ids.size(), dsl.extractBindValues(condition).size());
+    }
+
+
+    @Test
+    public void setsOverTheBindLimitAreInlinedAndCountedAsInlined() {
+        ResolvedIdSet ids = ResolvedIdSet.of(LongStream.rangeClosed(1, ResolvedIdSet.MAX_BOUND_IDS + 1).toArray());
+        long boundBefore = BindParameters.boundCount();
+        long inlinedBefore = BindParameters.inlinedCount();
+
+        Condition condition = BindParameters.bindOrInline(dsl, ids.toCondition(dsl, idField));
+
+        assertTrue(dsl.extractBindValues(condition).isEmpty(), "ids should be inlined rather than bound");
+        assertEquals(boundBefore, BindParameters.boundCount(), "inlined ids should not be counted as bound");
+        assertEquals(inlinedBefore + 1, BindParameters.inlinedCount());
+    }
+
+
+    @Test
+    public void setsAreInlinedWhenBindingIsNotConfigured() {
+        DSLContext unconfigured = DSL.using(SQLDialect.POSTGRES);
+        Condition condition = ResolvedIdSet.of(2, 1).toCondition(unconfigured, idField);
+
+        assertTrue(unconfigured.extractBindValues(condition).isEmpty());
+        assertTrue(unconfigured.render(condition).contains("\"t\".\"id\" in (1, 2)"), unconfigured.render(condition));
+    }
+
+
+    @Test
+    public void emptySetsMatchNothing() {
+        assertTrue(ResolvedIdSet.empty().isEmpty());
+        assertEquals(DSL.falseCondition(), ResolvedIdSet.empty().toCondition(dsl, idField));
+        String sql = dsl.renderInlined(ResolvedIdSet.empty().toSelector(dsl));
+        assertTrue(sql.contains("1 = 0") || sql.contains("false"), sql);
+    }
+
+
+    private static DSLContext mkDsl(int limit) {
+        DefaultConfiguration configuration = new DefaultConfiguration();
+        configuration.set(SQLDialect.POSTGRES);
+        BindParameters.configure(configuration, limit);
+        return DSL.using(configuration);
+    }
+}
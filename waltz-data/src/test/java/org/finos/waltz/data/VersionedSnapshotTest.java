@@ -0,0 +1,312 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VersionedSnapshotTest {
+
+    private static final long NEVER = Long.MAX_VALUE;
+    private static final long TIMEOUT_MILLIS = 5_000;
+
+
+    @Test
+    public void valueIsLoadedOnFirstRead() {
+        AtomicInteger loads = new AtomicInteger();
+        VersionedSnapshot<String> snapshot = mkSnapshot(
+                () -> "v" + loads.incrementAndGet(),
+                () -> 0,
+                NEVER);
+
+        assertEquals(0, snapshot.version());
+        assertEquals("v1", snapshot.get());
+        assertEquals("v1", snapshot.get());
+        assertEquals(1, loads.get());
+        assertEquals(1, snapshot.version());
+    }
+
+
+    @Test
+    public void updatesReplaceTheValueAndIncrementTheVersion() {
+        VersionedSnapshot<String> snapshot = mkSnapshot(() -> "a", () -> 0, NEVER);
+        snapshot.get();
+
+        snapshot.update(v -> v + "b");
+
+        assertEquals("ab", snapshot.get());
+        assertEquals(2, snapshot.version());
+    }
+
+
+    @Test
+    public void updatesBeforeTheFirstLoadAreSkipped() {
+        VersionedSnapshot<String> snapshot = mkSnapshot(() -> "a", () -> 0, NEVER);
+
+        snapshot.update(v -> v + "b");
+
+        assertEquals("a", snapshot.get());
+        assertEquals(1, snapshot.version());
+    }
+
+
+    @Test
+    public void reloadOnlyIncrementsVersionIfValueChanged() {
+        AtomicReference<String> db = new AtomicReference<>("a");
+        VersionedSnapshot<String> snapshot = mkSnapshot(db::get, db::get, NEVER);
+        snapshot.get();
+
+        snapshot.reload();
+        assertEquals(1, snapshot.version());
+
+        db.set("b");
+        snapshot.reload();
+        assertEquals("b", snapshot.get());
+        assertEquals(2, snapshot.version());
+    }
+
+
+    @Test
+    public void staleValuesAreCheckedInTheBackground() throws InterruptedException {
+        AtomicReference<String> db = new AtomicReference<>("a");
+        AtomicInteger loads = new AtomicInteger();
+        List<Runnable> scheduled = new ArrayList<>();
+        VersionedSnapshot<String> snapshot = new VersionedSnapshot<>(
+                () -> {
+                    loads.incrementAndGet();
+                    return db.get();
+                },
+                db::get,
+                0,
+                NEVER,
+                scheduled::add);
+        assertEquals("a", snapshot.get());
+
+        db.set("b");
+        Thread.sleep(5);
+
+        assertEquals("a", snapshot.get(), "the read should not wait for the check");
+        assertEquals("a", snapshot.get());
+        assertEquals(1, scheduled.size(), "only one check should be scheduled at a time");
+        assertEquals(1, loads.get());
+
+        scheduled.get(0).run();
+
+        assertEquals("b", snapshot.get());
+        assertEquals(2, snapshot.version());
+        assertEquals(2, loads.get());
+    }
+
+
+    @Test
+    public void valuesAreOnlyReloadedWhenTheFingerprintChanges() throws InterruptedException {
+        AtomicInteger fingerprint = new AtomicInteger();
+        AtomicInteger loads = new AtomicInteger();
+        VersionedSnapshot<String> snapshot = mkSnapshot(
+                () -> "v" + loads.incrementAndGet(),
+                fingerprint::get,
+                0);
+        snapshot.get();
+
+        Thread.sleep(5);
+        snapshot.get();
+        Thread.sleep(5);
+        snapshot.get();
+        assertEquals(1, loads.get(), "an unchanged fingerprint should not cause a reload");
+
+        fingerprint.incrementAndGet();
+        Thread.sleep(5);
+        snapshot.get();
+
+        assertEquals(2, loads.get());
+        assertEquals("v2", snapshot.get());
+    }
+
+
+    @Test
+    public void valuesAreReloadedOnceTheyExceedTheirMaximumAge() throws InterruptedException {
+        AtomicInteger loads = new AtomicInteger();
+        VersionedSnapshot<String> snapshot = new VersionedSnapshot<>(
+                () -> "v" + loads.incrementAndGet(),
+                () -> 0,
+                0,
+                0,
+                Runnable::run);
+        snapshot.get();
+
+        Thread.sleep(5);
+        snapshot.get();
+
+        assertEquals(2, loads.get());
+        assertEquals("v2", snapshot.get());
+    }
+
+
+    @Test
+    public void failedReloadsKeepTheCurrentValue() throws InterruptedException {
+        AtomicReference<String> db = new AtomicReference<>("a");
+        VersionedSnapshot<String> snapshot = mkSnapshot(
+                () -> {
+                    String value = db.get();
+                    if (value == null) {
+                        throw new IllegalStateException("database unavailable");
+                    }
+                    return value;
+                },
+                db::get,
+                0);
+        assertEquals("a", snapshot.get());
+
+        db.set(null);
+        Thread.sleep(5);
+
+        assertEquals("a", snapshot.get());
+        assertEquals(1, snapshot.version());
+
+        db.set("b");
+        Thread.sleep(5);
+        snapshot.get();
+
+        assertEquals("b", snapshot.get(), "a failed check should not prevent later checks");
+    }
+
+
+    @Test
+    public void updatesMadeWhilstReloadingAreNotLost() throws InterruptedException {
+        AtomicReference<String> db = new AtomicReference<>("a");
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch reloading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        VersionedSnapshot<String> snapshot = mkSnapshot(
+                () -> {
+                    String value = db.get();
+                    if (loads.incrementAndGet() == 2) {
+                        reloading.countDown();
+                        await(release);
+                    }
+                    return value;
+                },
+                db::get,
+                NEVER);
+        snapshot.get();
+
+        Thread reloader = new Thread(snapshot::reload);
+        reloader.start();
+        assertTrue(reloading.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+
+        db.set("ab");
+        snapshot.update(v -> db.get());
+        assertEquals("ab", snapshot.get(), "updates should not wait for the reload to finish");
+
+        release.countDown();
+        reloader.join(TIMEOUT_MILLIS);
+
+        assertEquals("ab", snapshot.get(), "the reload started before the update should not replace it");
+        assertEquals(2, snapshot.version());
+        assertEquals(2, loads.get(), "the reload should not be repeated straight away");
+    }
+
+
+    @Test
+    public void concurrentFirstReadsShareASingleLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        VersionedSnapshot<String> snapshot = mkSnapshot(
+                () -> {
+                    loads.incrementAndGet();
+                    loading.countDown();
+                    await(release);
+                    return "a";
+                },
+                () -> 0,
+                NEVER);
+
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<String>> reads = new ArrayList<>();
+            reads.add(pool.submit(snapshot::get));
+            assertTrue(loading.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            for (int i = 0; i < 3; i++) {
+                reads.add(pool.submit(snapshot::get));
+            }
+
+            release.countDown();
+
+            for (Future<String> read : reads) {
+                assertEquals("a", read.get(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS));
+            }
+            assertEquals(1, loads.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+
+    @Test
+    public void failedInitialLoadsAreRetriedByTheNextRead() {
+        AtomicInteger loads = new AtomicInteger();
+        VersionedSnapshot<String> snapshot = mkSnapshot(
+                () -> {
+                    if (loads.incrementAndGet() == 1) {
+                        throw new IllegalStateException("database unavailable");
+                    }
+                    return "a";
+                },
+                () -> 0,
+                NEVER);
+
+        assertThrows(IllegalStateException.class, snapshot::get);
+        assertEquals("a", snapshot.get());
+        assertEquals(1, snapshot.version());
+    }
+
+
+    // --- helpers
+
+    /**
+     * Checks are run on the reading thread, so they complete before the read returns
+     */
+    private static VersionedSnapshot<String> mkSnapshot(Supplier<String> loader,
+                                                        Supplier<?> fingerprintLoader,
+                                                        long checkIntervalMillis) {
+        return new VersionedSnapshot<>(loader, fingerprintLoader, checkIntervalMillis, NEVER, Runnable::run);
+    }
+
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
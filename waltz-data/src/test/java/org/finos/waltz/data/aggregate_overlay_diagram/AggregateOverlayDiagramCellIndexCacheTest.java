@@ -0,0 +1,159 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.aggregate_overlay_diagram;
+
+import org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramCellIndexCache.Entry;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.ImmutableAssessmentBasedSelectionFilter;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
+import org.jooq.lambda.tuple.Tuple2;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AggregateOverlayDiagramCellIndexCacheTest {
+
+    private static final long DIAGRAM_ID = 1L;
+
+
+    @Test
+    public void dependenciesFollowTheBackingEntitiesOfTheCells() {
+        Set<Tuple2<String, EntityReference>> measurableCells = asSet(
+                tuple("A", mkRef(EntityKind.MEASURABLE, 10L)));
+        Set<Tuple2<String, EntityReference>> dataTypeCells = asSet(
+                tuple("A", mkRef(EntityKind.DATA_TYPE, 20L)));
+
+        assertEquals(
+                asSet(EntityKind.MEASURABLE,
+                        EntityKind.MEASURABLE_RATING,
+                        EntityKind.MEASURABLE_RATING_PLANNED_DECOMMISSION,
+                        EntityKind.MEASURABLE_RATING_REPLACEMENT),
+                AggregateOverlayDiagramCellIndexCache.determineDependencies(EntityKind.APPLICATION, measurableCells, Collections.emptySet()));
+
+        assertEquals(
+                asSet(EntityKind.MEASURABLE, EntityKind.ENTITY_RELATIONSHIP),
+                AggregateOverlayDiagramCellIndexCache.determineDependencies(EntityKind.CHANGE_INITIATIVE, measurableCells, Collections.emptySet()));
+
+        assertEquals(
+                asSet(EntityKind.DATA_TYPE, EntityKind.LOGICAL_DATA_FLOW, EntityKind.ASSESSMENT_RATING),
+                AggregateOverlayDiagramCellIndexCache.determineDependencies(
+                        EntityKind.APPLICATION,
+                        dataTypeCells,
+                        asSet(ImmutableAssessmentBasedSelectionFilter.builder()
+                                .definitionId(1L)
+                                .ratingIds(asSet(2L))
+                                .build())));
+    }
+
+
+    @Test
+    public void onlyChangesToTheSameDiagramEvictTheEntry() {
+        Entry entry = mkDataTypeEntry();
+
+        assertTrue(entry.isAffectedBy(mkChangeLog(EntityKind.AGGREGATE_OVERLAY_DIAGRAM, DIAGRAM_ID, null)));
+        assertFalse(entry.isAffectedBy(mkChangeLog(EntityKind.AGGREGATE_OVERLAY_DIAGRAM, DIAGRAM_ID + 1, null)));
+    }
+
+
+    @Test
+    public void changesToUnrelatedKindsDoNotEvictTheEntry() {
+        Entry entry = mkDataTypeEntry();
+
+        assertFalse(
+                entry.isAffectedBy(mkChangeLog(EntityKind.APPLICATION, 999L, EntityKind.MEASURABLE_RATING)),
+                "measurable ratings do not affect a diagram backed by data types");
+        assertFalse(entry.isAffectedBy(mkChangeLog(EntityKind.MEASURABLE, 5L, null)));
+        assertTrue(
+                entry.isAffectedBy(mkChangeLog(EntityKind.APPLICATION, 999L, EntityKind.LOGICAL_DATA_FLOW)),
+                "flows of any application may move it into a cell");
+        assertTrue(entry.isAffectedBy(mkChangeLog(EntityKind.ORG_UNIT, 5L, null)), "the selection may have changed");
+    }
+
+
+    @Test
+    public void otherChangesToAggregatedEntitiesOnlyEvictIndexesContainingThem() {
+        Entry entry = mkDataTypeEntry();
+
+        assertTrue(entry.isAffectedBy(mkChangeLog(EntityKind.APPLICATION, 2L, null)));
+        assertTrue(entry.isAffectedBy(mkChangeLog(EntityKind.APPLICATION, 2L, EntityKind.INVOLVEMENT)));
+        assertFalse(entry.isAffectedBy(mkChangeLog(EntityKind.APPLICATION, 999L, EntityKind.INVOLVEMENT)));
+        assertFalse(entry.isAffectedBy(mkChangeLog(EntityKind.APPLICATION, 999L, null, Operation.ATTEST)));
+    }
+
+
+    @Test
+    public void changesWhichMayBringAnEntityIntoTheSelectionEvictTheEntry() {
+        Entry entry = mkDataTypeEntry();
+
+        assertTrue(
+                entry.isAffectedBy(mkChangeLog(EntityKind.APPLICATION, 999L, null, Operation.ADD)),
+                "the application may have been created in the selected org unit");
+        assertTrue(
+                entry.isAffectedBy(mkChangeLog(EntityKind.APPLICATION, 999L, null)),
+                "the application may have been re-parented, or changed lifecycle or kind");
+        assertTrue(entry.isAffectedBy(mkChangeLog(EntityKind.APPLICATION, 999L, EntityKind.ORG_UNIT)));
+        assertFalse(entry.isAffectedBy(mkChangeLog(EntityKind.APPLICATION, 999L, null, Operation.REMOVE)));
+    }
+
+
+    // --- helpers
+
+    private static Entry mkDataTypeEntry() {
+        Map<String, Set<Long>> cells = new HashMap<>();
+        cells.put("A", asSet(1L, 2L));
+        cells.put("B", asSet(3L));
+
+        return new Entry(
+                AggregateOverlayDiagramCellIndex.fromCellEntityIds(cells),
+                DIAGRAM_ID,
+                EntityKind.APPLICATION,
+                EntityKind.ORG_UNIT,
+                asSet(EntityKind.DATA_TYPE, EntityKind.LOGICAL_DATA_FLOW),
+                System.currentTimeMillis());
+    }
+
+
+    private static ChangeLog mkChangeLog(EntityKind parentKind, long parentId, EntityKind childKind) {
+        return mkChangeLog(parentKind, parentId, childKind, Operation.UPDATE);
+    }
+
+
+    private static ChangeLog mkChangeLog(EntityKind parentKind, long parentId, EntityKind childKind, Operation operation) {
+        return ImmutableChangeLog.builder()
+                .parentReference(mkRef(parentKind, parentId))
+                .childKind(Optional.ofNullable(childKind))
+                .message("test")
+                .userId("admin")
+                .operation(operation)
+                .build();
+    }
+
+}
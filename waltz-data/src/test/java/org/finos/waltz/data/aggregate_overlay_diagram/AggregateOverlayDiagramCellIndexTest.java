@@ -0,0 +1,88 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.aggregate_overlay_diagram;
+
+import org.finos.waltz.data.ResolvedIdSet;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class AggregateOverlayDiagramCellIndexTest {
+
+    @Test
+    public void entitiesAreRecordedAgainstEachCell() {
+        Map<String, Set<Long>> cells = new HashMap<>();
+        cells.put("A", asSet(1L, 2L, 3L));
+        cells.put("B", asSet(3L, 10L));
+        cells.put("C", asSet());
+
+        AggregateOverlayDiagramCellIndex index = AggregateOverlayDiagramCellIndex.fromCellEntityIds(cells);
+
+        assertEquals(asSet("A", "B", "C"), index.cellExternalIds());
+        assertEquals(asSet(1L, 2L, 3L), index.findEntityIdsForCell("A"));
+        assertEquals(asSet(3L, 10L), index.findEntityIdsForCell("B"));
+        assertTrue(index.findEntityIdsForCell("C").isEmpty());
+        assertTrue(index.findEntityIdsForCell("unknown").isEmpty());
+        assertEquals(cells, index.toCellEntityIdsMap());
+    }
+
+
+    @Test
+    public void entityIdsAreDistinctAcrossCells() {
+        Map<String, Set<Long>> cells = new HashMap<>();
+        cells.put("A", asSet(5L, 1L));
+        cells.put("B", asSet(1L, 7L));
+
+        AggregateOverlayDiagramCellIndex index = AggregateOverlayDiagramCellIndex.fromCellEntityIds(cells);
+
+        assertEquals(3, index.entityCount());
+        assertEquals(ResolvedIdSet.of(1L, 5L, 7L), index.entityIds());
+        assertTrue(index.containsEntity(5L));
+        assertFalse(index.containsEntity(6L));
+    }
+
+
+    @Test
+    public void nullEntityIdsAreIgnored() {
+        Map<String, List<Long>> cells = new HashMap<>();
+        cells.put("A", asList(1L, null, 2L));
+
+        AggregateOverlayDiagramCellIndex index = AggregateOverlayDiagramCellIndex.fromCellEntityIds(cells);
+
+        assertEquals(asSet(1L, 2L), index.findEntityIdsForCell("A"));
+        assertEquals(2, index.entityCount());
+    }
+
+
+    @Test
+    public void emptyIndexHasNoCellsOrEntities() {
+        AggregateOverlayDiagramCellIndex index = AggregateOverlayDiagramCellIndex.empty();
+
+        assertTrue(index.cellExternalIds().isEmpty());
+        assertEquals(0, index.entityCount());
+        assertTrue(index.entityIds().isEmpty());
+    }
+}
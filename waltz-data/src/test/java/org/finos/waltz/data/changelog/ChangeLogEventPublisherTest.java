@@ -0,0 +1,150 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.changelog;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
+import org.jooq.DSLContext;
+import org.jooq.SQLDialect;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultConfiguration;
+import org.jooq.tools.jdbc.MockConnection;
+import org.jooq.tools.jdbc.MockResult;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChangeLogEventPublisherTest {
+
+    private final List<ChangeLog> received = new ArrayList<>();
+    private final ChangeLogEventPublisher publisher = mkPublisher(received::addAll);
+    private final DSLContext dsl = mkDsl(publisher);
+
+
+    @Test
+    public void changesPublishedOutsideATransactionAreDeliveredImmediately() {
+        publisher.publish(mkChangeLog(1L));
+        assertEquals(asList(1L), parentIds());
+    }
+
+
+    @Test
+    public void changesAreDeliveredOnceTheOuterTransactionCommits() {
+        dsl.transaction(ctx -> {
+            publisher.publish(mkChangeLog(1L));
+            ctx.dsl().transaction(nested -> publisher.publish(mkChangeLog(2L)));
+            assertTrue(received.isEmpty(), "nothing should be delivered before the outer transaction commits");
+        });
+
+        assertEquals(asList(1L, 2L), parentIds());
+    }
+
+
+    @Test
+    public void changesAreDiscardedIfTheTransactionRollsBack() {
+        assertThrows(IllegalStateException.class, () -> dsl.transaction(ctx -> {
+            publisher.publish(mkChangeLog(1L));
+            throw new IllegalStateException("boom");
+        }));
+
+        assertTrue(received.isEmpty());
+
+        publisher.publish(mkChangeLog(2L));
+        assertEquals(asList(2L), parentIds(), "later changes should not be held by the rolled back transaction");
+    }
+
+
+    @Test
+    public void nestedRollbacksOnlyDiscardTheirOwnChanges() {
+        dsl.transaction(ctx -> {
+            publisher.publish(mkChangeLog(1L));
+            try {
+                ctx.dsl().transaction(nested -> {
+                    publisher.publish(mkChangeLog(2L));
+                    throw new IllegalStateException("boom");
+                });
+            } catch (IllegalStateException e) {
+                // expected, the outer transaction carries on
+            }
+        });
+
+        assertEquals(asList(1L), parentIds());
+    }
+
+
+    @Test
+    public void failingListenersDoNotPreventOthersBeingNotified() {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("failing", (ChangeLogListener) changeLogs -> {
+            throw new IllegalStateException("boom");
+        });
+        beanFactory.registerSingleton("recording", (ChangeLogListener) received::addAll);
+
+        new ChangeLogEventPublisher(beanFactory.getBeanProvider(ChangeLogListener.class))
+                .publish(mkChangeLog(1L));
+
+        assertEquals(asList(1L), parentIds());
+    }
+
+
+    // -- helpers
+
+    private List<Long> parentIds() {
+        List<Long> ids = new ArrayList<>();
+        received.forEach(cl -> ids.add(cl.parentReference().id()));
+        return ids;
+    }
+
+
+    private static ChangeLog mkChangeLog(long parentId) {
+        return ImmutableChangeLog.builder()
+                .parentReference(mkRef(EntityKind.APPLICATION, parentId))
+                .message("test")
+                .userId("admin")
+                .operation(Operation.UPDATE)
+                .build();
+    }
+
+
+    private static ChangeLogEventPublisher mkPublisher(ChangeLogListener listener) {
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("listener", listener);
+        return new ChangeLogEventPublisher(beanFactory.getBeanProvider(ChangeLogListener.class));
+    }
+
+
+    private static DSLContext mkDsl(ChangeLogEventPublisher publisher) {
+        MockConnection connection = new MockConnection(ctx -> new MockResult[0]);
+        return DSL.using(new DefaultConfiguration()
+                .set(connection)
+                .set(SQLDialect.H2)
+                .set(publisher));
+    }
+
+}
@@ -0,0 +1,122 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.cost;
+
+import org.finos.waltz.data.ResolvedIdSet;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CostCubeSliceTest {
+
+    private static final Timestamp T1 = Timestamp.valueOf("2022-01-01 00:00:00");
+    private static final Timestamp T2 = Timestamp.valueOf("2022-02-01 00:00:00");
+
+    // entity 1 has two cost records, entity 3 has none
+    private final CostCube.Slice slice = mkSlice(
+            mkRow(10, 1, "100", T1),
+            mkRow(11, 1, "5", T1),
+            mkRow(20, 2, "50", T1),
+            mkRow(40, 4, "75", T1));
+
+
+    @Test
+    public void totalSumsAllCostsOfSelectedEntities() {
+        assertEquals(Optional.of(new BigDecimal("155")), slice.total(ResolvedIdSet.of(1, 2, 3)));
+        assertEquals(Optional.of(new BigDecimal("75")), slice.total(ResolvedIdSet.of(4)));
+    }
+
+
+    @Test
+    public void totalIsEmptyIfNoSelectedEntityHasCosts() {
+        assertEquals(Optional.empty(), slice.total(ResolvedIdSet.of(3, 99)));
+        assertEquals(Optional.empty(), slice.total(ResolvedIdSet.empty()));
+    }
+
+
+    @Test
+    public void costsAreCountedPerSelectedEntity() {
+        Map<Long, Integer> expected = new HashMap<>();
+        expected.put(1L, 2);
+        expected.put(2L, 1);
+
+        assertEquals(expected, slice.costCountsByEntityId(ResolvedIdSet.of(1, 2, 3)));
+        assertTrue(slice.costCountsByEntityId(ResolvedIdSet.of(3)).isEmpty());
+    }
+
+
+    @Test
+    public void matchesFingerprintOfSameCosts() {
+        assertTrue(slice.matches(4, T1, new BigDecimal("230.00"), new BigDecimal("8")));
+        assertTrue(CostCube.Slice.fromRows(Collections.emptyList(), null).matches(0, null, null, null));
+    }
+
+
+    @Test
+    public void changesWhichDoNotBumpTheUpdateTimeAreDetected() {
+        assertFalse(slice.matches(4, T1, new BigDecimal("231"), new BigDecimal("8")), "amount changed");
+        assertFalse(slice.matches(4, T1, new BigDecimal("230"), new BigDecimal("9")), "entity changed");
+        assertFalse(slice.matches(3, T1, new BigDecimal("230"), new BigDecimal("8")), "cost removed");
+        assertFalse(slice.matches(4, T2, new BigDecimal("230"), new BigDecimal("8")), "cost updated");
+    }
+
+
+    @Test
+    public void topCostsAreLargestRecordsOfSelectedEntities() {
+        assertEquals(asList(10L, 20L), slice.topCostIds(ResolvedIdSet.of(1, 2, 3), 2));
+        assertEquals(asList(10L, 40L, 20L, 11L), slice.topCostIds(ResolvedIdSet.of(1, 2, 4), 10));
+        assertEquals(asList(40L), slice.topCostIds(ResolvedIdSet.of(3, 4), 10));
+        assertTrue(slice.topCostIds(ResolvedIdSet.of(1), 0).isEmpty());
+    }
+
+
+    @Test
+    public void mergeAddsAndReplacesRows() {
+        Map<Long, CostCube.Row> updates = new HashMap<>();
+        updates.put(20L, new CostCube.Row(20, 2, new BigDecimal("500"), T2));
+        updates.put(30L, new CostCube.Row(30, 3, new BigDecimal("1"), T2));
+
+        CostCube.Slice merged = slice.merge(updates, T2);
+
+        assertEquals(5, merged.rowCount());
+        assertEquals(Optional.of(new BigDecimal("606")), merged.total(ResolvedIdSet.of(1, 2, 3)));
+        assertEquals(3, merged.costCountsByEntityId(ResolvedIdSet.of(1, 2, 3)).size());
+        assertTrue(merged.matches(5, T2, new BigDecimal("681"), new BigDecimal("11")));
+        assertEquals(asList(20L), merged.topCostIds(ResolvedIdSet.of(1, 2, 3), 1));
+        assertEquals(4, slice.rowCount(), "original slice is unchanged");
+    }
+
+
+    private static CostCube.Slice mkSlice(CostCube.Row... rows) {
+        return CostCube.Slice.fromRows(asList(rows), T1);
+    }
+
+
+    private static CostCube.Row mkRow(long costId, long entityId, String amount, Timestamp lastUpdatedAt) {
+        return new CostCube.Row(costId, entityId, new BigDecimal(amount), lastUpdatedAt);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.entity_hierarchy;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntityHierarchyDiffTest {
+
+    // 1 -> 2 -> 3
+    private final List<EntityHierarchyItem> chain = asList(
+            mkItem(1, 1, 1, 1),
+            mkItem(2, 2, 2, 2),
+            mkItem(2, 1, 1, 2),
+            mkItem(3, 3, 3, 3),
+            mkItem(3, 2, 2, 3),
+            mkItem(3, 1, 1, 3));
+
+
+    @Test
+    public void identicalHierarchiesHaveNoDifferences() {
+        assertTrue(EntityHierarchyDiff.diff(chain, new ArrayList<>(chain)).isEmpty());
+    }
+
+
+    @Test
+    public void addingALeafOnlyInsertsItsRows() {
+        List<EntityHierarchyItem> target = new ArrayList<>(chain);
+        target.add(mkItem(4, 4, 2, 2));
+        target.add(mkItem(4, 1, 1, 2));
+
+        EntityHierarchyDiff diff = EntityHierarchyDiff.diff(chain, target);
+
+        assertEquals(2, diff.inserts().size());
+        assertTrue(diff.updates().isEmpty());
+        assertTrue(diff.deletes().isEmpty());
+    }
+
+
+    @Test
+    public void movingANodeRewritesOnlyTheAffectedRows() {
+        // move 3 up so it sits directly beneath 1
+        List<EntityHierarchyItem> target = asList(
+                mkItem(1, 1, 1, 1),
+                mkItem(2, 2, 2, 2),
+                mkItem(2, 1, 1, 2),
+                mkItem(3, 3, 2, 2),
+                mkItem(3, 1, 1, 2));
+
+        EntityHierarchyDiff diff = EntityHierarchyDiff.diff(chain, target);
+
+        assertTrue(diff.inserts().isEmpty());
+        assertEquals(asList(mkItem(3, 2, 2, 3)), diff.deletes());
+        assertEquals(asList(mkItem(3, 3, 2, 2), mkItem(3, 1, 1, 2)), diff.updates());
+        assertEquals(3, diff.size());
+    }
+
+
+    private static EntityHierarchyItem mkItem(long id,
+                                              long ancestorId,
+                                              int ancestorLevel,
+                                              int descendantLevel) {
+        return ImmutableEntityHierarchyItem
+                .builder()
+                .kind(EntityKind.MEASURABLE)
+                .id(id)
+                .parentId(ancestorId)
+                .ancestorLevel(ancestorLevel)
+                .descendantLevel(descendantLevel)
+                .build();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.data.permission;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.permission_group.Permission;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PermissionGroupRulesTest {
+
+    private static final long DEFAULT_GROUP = 1L;
+    private static final long OVERRIDE_GROUP = 2L;
+
+    private final EntityReference overriddenApp = mkRef(EntityKind.APPLICATION, 10L);
+    private final EntityReference otherApp = mkRef(EntityKind.APPLICATION, 11L);
+
+    private final PermissionGroupRules rules = mkRules();
+
+
+    @Test
+    public void entitiesWithoutEntriesUseTheDefaultGroups() {
+        Set<Permission> permissions = rules.findPermissionsForParentEntityReference(otherApp);
+
+        assertEquals(1, permissions.size());
+        Permission permission = permissions.iterator().next();
+        assertEquals(Operation.ADD, permission.operation());
+        assertEquals(EntityKind.LOGICAL_DATA_FLOW, permission.subjectKind());
+        assertTrue(permission.requiredInvolvementsResult().isAllowed(asSet(100L)));
+        assertTrue(permission.requiredInvolvementsResult().isAllowed(asSet(101L)));
+        assertFalse(permission.requiredInvolvementsResult().isAllowed(asSet(102L)));
+    }
+
+
+    @Test
+    public void entitiesWithEntriesOnlyUseTheirGroups() {
+        Set<Permission> permissions = rules.findPermissionsForParentEntityReference(overriddenApp);
+
+        assertEquals(1, permissions.size());
+        Permission permission = permissions.iterator().next();
+        assertEquals(Operation.UPDATE, permission.operation());
+        assertTrue(permission.requiredInvolvementsResult().areAllUsersAllowed());
+    }
+
+
+    @Test
+    public void permissionsAreSharedBetweenEntitiesWithTheSameGroups() {
+        assertSame(
+                rules.findPermissionsForParentEntityReference(otherApp),
+                rules.findPermissionsForParentEntityReference(mkRef(EntityKind.APPLICATION, 12L)));
+    }
+
+
+    @Test
+    public void entitiesOfOtherKindsAreNotMatchedByIdAlone() {
+        assertEquals(
+                rules.findPermissionsForParentEntityReference(otherApp),
+                rules.findPermissionsForParentEntityReference(mkRef(EntityKind.ACTOR, overriddenApp.id())));
+    }
+
+
+    // --- helpers
+
+    private PermissionGroupRules mkRules() {
+        Map<Long, Set<Long>> appEntries = new HashMap<>();
+        appEntries.put(overriddenApp.id(), asSet(OVERRIDE_GROUP));
+
+        Map<String, Map<Long, Set<Long>>> groupIdsByEntity = new HashMap<>();
+        groupIdsByEntity.put(EntityKind.APPLICATION.name(), appEntries);
+
+        List<PermissionGroupRules.Rule> rules = asList(
+                mkRule(DEFAULT_GROUP, true, Operation.ADD, 100L),
+                mkRule(DEFAULT_GROUP, true, Operation.ADD, 101L),
+                mkRule(OVERRIDE_GROUP, false, Operation.UPDATE, null));
+
+        return new PermissionGroupRules(groupIdsByEntity, rules);
+    }
+
+
+    private static PermissionGroupRules.Rule mkRule(long groupId,
+                                                    boolean isDefault,
+                                                    Operation operation,
+                                                    Long involvementKindId) {
+        return new PermissionGroupRules.Rule(
+                groupId,
+                isDefault,
+                tuple(operation.name(), null, null, EntityKind.APPLICATION.name(), EntityKind.LOGICAL_DATA_FLOW.name()),
+                involvementKindId);
+    }
+}
@@ -6,6 +6,7 @@ import liquibase.integration.spring.SpringLiquibase;
 import org.finos.waltz.common.ExcludeFromIntegrationTesting;
 import org.finos.waltz.data.DBExecutorPool;
 import org.finos.waltz.data.DBExecutorPoolInterface;
+import org.finos.waltz.data.changelog.ChangeLogEventPublisher;
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.conf.RenderNameCase;
@@ -53,7 +54,8 @@ public class DIInMemoryTestConfiguration {
 
     @Bean
     @Autowired
-    public DSLContext dsl(DataSource dataSource) {
+    public DSLContext dsl(DataSource dataSource,
+                          ChangeLogEventPublisher changeLogEventPublisher) {
         Settings dslSettings = new Settings()
                 .withRenderFormatted(true)
                 .withDebugInfoOnStackTrace(true)
@@ -64,7 +66,8 @@ public class DIInMemoryTestConfiguration {
         org.jooq.Configuration configuration = new DefaultConfiguration()
                 .set(dataSource)
                 .set(dslSettings)
-                .set(SQLDialect.H2);
+                .set(SQLDialect.H2)
+                .set(changeLogEventPublisher);
 
         return DSL.using(configuration);
     }
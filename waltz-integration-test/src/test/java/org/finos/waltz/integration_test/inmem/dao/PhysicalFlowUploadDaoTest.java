@@ -0,0 +1,186 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.dao;
+
+import org.finos.waltz.data.physical_flow.PhysicalFlowUploadDao;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.logical_flow.ImmutableLogicalFlow;
+import org.finos.waltz.model.logical_flow.LogicalFlow;
+import org.finos.waltz.model.physical_flow.CriticalityValue;
+import org.finos.waltz.model.physical_flow.FrequencyKindValue;
+import org.finos.waltz.model.physical_flow.ImmutablePhysicalFlowParsed;
+import org.finos.waltz.model.physical_flow.PhysicalFlowParsed;
+import org.finos.waltz.model.physical_flow.TransportKindValue;
+import org.finos.waltz.model.physical_specification.DataFormatKindValue;
+import org.finos.waltz.model.physical_specification.ImmutablePhysicalSpecification;
+import org.finos.waltz.model.physical_specification.PhysicalSpecification;
+import org.finos.waltz.service.physical_specification.PhysicalSpecificationService;
+import org.finos.waltz.test_common.helpers.AppHelper;
+import org.finos.waltz.test_common.helpers.DataTypeHelper;
+import org.finos.waltz.test_common.helpers.LogicalFlowHelper;
+import org.finos.waltz.test_common.helpers.PhysicalFlowHelper;
+import org.finos.waltz.test_common.helpers.PhysicalSpecHelper;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.Map;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.schema.Tables.PHYSICAL_SPEC_DATA_TYPE;
+import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PhysicalFlowUploadDaoTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private PhysicalFlowUploadDao dao;
+
+    @Autowired
+    private PhysicalSpecificationService psSvc;
+
+    @Autowired
+    private DSLContext dsl;
+
+    @Autowired
+    private AppHelper appHelper;
+
+    @Autowired
+    private DataTypeHelper dtHelper;
+
+    @Autowired
+    private LogicalFlowHelper lfHelper;
+
+    @Autowired
+    private PhysicalSpecHelper psHelper;
+
+    @Autowired
+    private PhysicalFlowHelper pfHelper;
+
+
+    @Test
+    public void logicalFlowsAreMatchedOnTheirSourceAndTargetPair() {
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a);
+        EntityReference c = appHelper.createNewApp(mkName("c"), ouIds.b);
+        EntityReference d = appHelper.createNewApp(mkName("d"), ouIds.b);
+
+        LogicalFlow ab = lfHelper.createLogicalFlow(a, b);
+        LogicalFlow cd = lfHelper.createLogicalFlow(c, d);
+
+        LogicalFlow abCandidate = mkLogicalFlow(a, b);
+        LogicalFlow adCandidate = mkLogicalFlow(a, d);
+        LogicalFlow cbCandidate = mkLogicalFlow(c, b);
+        LogicalFlow cdCandidate = mkLogicalFlow(c, d);
+
+        Map<LogicalFlow, Long> result = dao.findLogicalFlowIds(
+                dsl,
+                asList(abCandidate, adCandidate, cbCandidate, cdCandidate));
+
+        assertEquals(2, result.size(), "only existing source/target pairs should match, not their cross product");
+        assertEquals(ab.id().get(), result.get(abCandidate));
+        assertEquals(cd.id().get(), result.get(cdCandidate));
+    }
+
+
+    @Test
+    public void specificationsAreMatchedExactly() {
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        Long specId = psHelper.createPhysicalSpec(a, "specificationsAreMatchedExactly");
+        PhysicalSpecification spec = psSvc.getById(specId);
+
+        PhysicalSpecification upperCasedName = ImmutablePhysicalSpecification
+                .copyOf(spec)
+                .withName(spec.name().toUpperCase());
+        PhysicalSpecification lowerCasedFormat = ImmutablePhysicalSpecification
+                .copyOf(spec)
+                .withFormat(DataFormatKindValue.of(spec.format().value().toLowerCase()));
+
+        Map<PhysicalSpecification, Long> result = dao.findSpecificationIds(dsl, asList(spec, upperCasedName, lowerCasedFormat));
+
+        assertEquals(specId, result.get(spec));
+        assertFalse(result.containsKey(upperCasedName), "names are case sensitive");
+        assertFalse(result.containsKey(lowerCasedFormat), "formats are case sensitive");
+    }
+
+
+    @Test
+    public void parsedFlowsAreMatchedToExistingPhysicalFlows() {
+        EntityReference a = appHelper.createNewApp(mkName("a"), ouIds.a);
+        EntityReference b = appHelper.createNewApp(mkName("b"), ouIds.a);
+        EntityReference c = appHelper.createNewApp(mkName("c"), ouIds.b);
+        Long dtId = dtHelper.createDataType("parsedFlowsAreMatchedToExistingPhysicalFlows");
+
+        LogicalFlow ab = lfHelper.createLogicalFlow(a, b);
+        lfHelper.createLogicalFlow(c, b);
+        Long specId = psHelper.createPhysicalSpec(a, "parsedFlowsAreMatchedToExistingPhysicalFlows");
+        PhysicalSpecification spec = psSvc.getById(specId);
+        dsl.insertInto(PHYSICAL_SPEC_DATA_TYPE)
+                .set(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID, specId)
+                .set(PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID, dtId)
+                .set(PHYSICAL_SPEC_DATA_TYPE.LAST_UPDATED_BY, "test")
+                .set(PHYSICAL_SPEC_DATA_TYPE.PROVENANCE, PROVENANCE)
+                .execute();
+        Long physicalFlowId = pfHelper
+                .createPhysicalFlow(ab.id().get(), specId, "parsedFlowsAreMatchedToExistingPhysicalFlows")
+                .entityReference()
+                .id();
+
+        PhysicalFlowParsed existing = ImmutablePhysicalFlowParsed.builder()
+                .source(a)
+                .target(b)
+                .owner(a)
+                .name(spec.name())
+                .format(spec.format())
+                .basisOffset(1)
+                .criticality(CriticalityValue.of("MEDIUM"))
+                .frequency(FrequencyKindValue.of("DAILY"))
+                .transport(TransportKindValue.UNKNOWN)
+                .description("")
+                .dataType(mkRef(EntityKind.DATA_TYPE, dtId))
+                .build();
+
+        PhysicalFlowParsed otherSource = ImmutablePhysicalFlowParsed.copyOf(existing).withSource(c);
+        PhysicalFlowParsed otherFrequency = ImmutablePhysicalFlowParsed.copyOf(existing).withFrequency(FrequencyKindValue.of("WEEKLY"));
+        PhysicalFlowParsed otherCase = ImmutablePhysicalFlowParsed.copyOf(existing).withName(spec.name().toUpperCase());
+
+        Map<PhysicalFlowParsed, ?> result = dao.findByParsedFlows(asList(existing, otherSource, otherFrequency, otherCase));
+
+        assertEquals(asSet(existing), result.keySet());
+        assertEquals(physicalFlowId, dao.findByParsedFlows(asList(existing)).get(existing).id().get());
+        assertFalse(result.containsKey(otherSource));
+        assertTrue(dao.findByParsedFlows(asList(otherFrequency)).isEmpty());
+        assertFalse(result.containsKey(otherCase), "specification names are case sensitive");
+    }
+
+
+    private static LogicalFlow mkLogicalFlow(EntityReference source, EntityReference target) {
+        return ImmutableLogicalFlow.builder()
+                .source(source)
+                .target(target)
+                .lastUpdatedBy("test")
+                .build();
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.integration_test.inmem.dao;
+
+import org.finos.waltz.data.scheduled_job.ScheduledJobDao;
+import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
+import org.finos.waltz.model.scheduled_job.JobKey;
+import org.finos.waltz.model.scheduled_job.JobLifecycleStatus;
+import org.jooq.DSLContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import static org.finos.waltz.schema.tables.Settings.SETTINGS;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ScheduledJobDaoTest extends BaseInMemoryIntegrationTest {
+
+    @Autowired
+    private ScheduledJobDao dao;
+
+    @Autowired
+    private DSLContext dsl;
+
+
+    @Test
+    public void lateFinishersDoNotOverwriteATimeout() {
+        JobKey jobKey = JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS;
+        dsl.deleteFrom(SETTINGS)
+                .where(SETTINGS.NAME.eq(jobKey.name()))
+                .execute();
+        dsl.insertInto(SETTINGS)
+                .set(SETTINGS.NAME, jobKey.name())
+                .set(SETTINGS.VALUE, JobLifecycleStatus.RUNNING.name())
+                .execute();
+
+        assertTrue(
+                dao.updateJobStatus(jobKey, JobLifecycleStatus.RUNNING, JobLifecycleStatus.ERRORED),
+                "a running job can be marked as errored when it times out");
+        assertFalse(
+                dao.updateJobStatus(jobKey, JobLifecycleStatus.RUNNING, JobLifecycleStatus.COMPLETED),
+                "the timed out job finishing late should not replace the errored status");
+        assertEquals(JobLifecycleStatus.ERRORED.name(), fetchStatus(jobKey));
+    }
+
+
+    // -- helpers
+
+    private String fetchStatus(JobKey jobKey) {
+        return dsl
+                .select(SETTINGS.VALUE)
+                .from(SETTINGS)
+                .where(SETTINGS.NAME.eq(jobKey.name()))
+                .fetchOne(SETTINGS.VALUE);
+    }
+
+}
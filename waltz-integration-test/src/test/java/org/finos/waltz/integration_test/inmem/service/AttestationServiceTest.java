@@ -20,6 +20,10 @@ package org.finos.waltz.integration_test.inmem.service;
 
 import org.finos.waltz.common.DateTimeUtilities;
 import org.finos.waltz.common.OptionalUtilities;
+import org.finos.waltz.data.attestation.AttestationInstanceDao;
+import org.finos.waltz.data.attestation.AttestationInstanceRecipientDao;
+import org.finos.waltz.data.attestation.AttestationRunDao;
+import org.finos.waltz.data.involvement.InvolvementDao;
 import org.finos.waltz.integration_test.inmem.BaseInMemoryIntegrationTest;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
@@ -27,6 +31,8 @@ import org.finos.waltz.model.IdCommandResponse;
 import org.finos.waltz.model.attestation.*;
 import org.finos.waltz.service.attestation.AttestationInstanceService;
 import org.finos.waltz.service.attestation.AttestationRunService;
+import org.finos.waltz.service.email.EmailService;
+import org.finos.waltz.service.involvement_group.InvolvementGroupService;
 import org.finos.waltz.test_common.helpers.AppHelper;
 import org.finos.waltz.test_common.helpers.InvolvementHelper;
 import org.finos.waltz.test_common.helpers.PersonHelper;
@@ -35,12 +41,18 @@ import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.finos.waltz.common.CollectionUtilities.first;
 import static org.finos.waltz.common.CollectionUtilities.isEmpty;
 import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.common.SetUtilities.map;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
 import static org.finos.waltz.schema.tables.AttestationInstance.ATTESTATION_INSTANCE;
@@ -68,6 +80,24 @@ public class AttestationServiceTest extends BaseInMemoryIntegrationTest {
     @Autowired
     private DSLContext dsl;
 
+    @Autowired
+    private AttestationInstanceDao attestationInstanceDao;
+
+    @Autowired
+    private AttestationInstanceRecipientDao attestationInstanceRecipientDao;
+
+    @Autowired
+    private AttestationRunDao attestationRunDao;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private InvolvementDao involvementDao;
+
+    @Autowired
+    private InvolvementGroupService involvementGroupService;
+
 
     @Test
     public void basicRunCreation() {
@@ -237,4 +267,108 @@ public class AttestationServiceTest extends BaseInMemoryIntegrationTest {
     }
 
 
-}
\ No newline at end of file
+    @Test
+    public void runsAreIssuedInChunks() {
+        String name = mkName("runsAreIssuedInChunks");
+        long invId = involvementHelper.mkInvolvementKind(name);
+        Set<Long> apps = mkInvolvedApps(name, invId, 5);
+
+        IdCommandResponse response = mkRunService(2, 15, attestationInstanceRecipientDao)
+                .create(mkUserId("runsAreIssuedInChunks"), mkCreateCommand(name, invId));
+
+        Long runId = response.id().get();
+        assertEquals(apps, map(aiSvc.findByRunId(runId), i -> i.parentEntity().id()), "an instance per involved app, across all chunks");
+        assertEquals(5, attestationInstanceRecipientDao.findRecipientsByRunId(runId).size(), "each instance should have its recipient");
+        assertEquals(AttestationStatus.ISSUED, arSvc.getById(runId).status());
+    }
+
+
+    @Test
+    public void runsWhichFailPartWayThroughIssuanceAreResumed() {
+        String name = mkName("runsWhichFailPartWayThroughIssuanceAreResumed");
+        long invId = involvementHelper.mkInvolvementKind(name);
+        Set<Long> apps = mkInvolvedApps(name, invId, 5);
+
+        AtomicInteger chunks = new AtomicInteger();
+        AttestationInstanceRecipientDao failingRecipientDao = new AttestationInstanceRecipientDao(dsl) {
+            @Override
+            public int bulkCreate(DSLContext tx, Map<Long, ? extends Collection<String>> userIdsByInstanceId) {
+                if (chunks.incrementAndGet() > 1) {
+                    throw new IllegalStateException("boom");
+                }
+                return super.bulkCreate(tx, userIdsByInstanceId);
+            }
+        };
+
+        assertThrows(
+                IllegalStateException.class,
+                () -> mkRunService(2, 15, failingRecipientDao).create(mkUserId("runsWhichFailPartWayThroughIssuanceAreResumed"), mkCreateCommand(name, invId)));
+
+        AttestationRun run = arSvc
+                .findAll()
+                .stream()
+                .filter(r -> r.name().equals(name))
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        Long runId = run.id().get();
+
+        assertEquals(AttestationStatus.ISSUING, run.status(), "a partially issued run should not be marked as issued");
+        assertEquals(2, aiSvc.findByRunId(runId).size(), "only the first chunk should have been committed");
+
+        arSvc.issueInstancesForPendingRuns();
+        assertEquals(2, aiSvc.findByRunId(runId).size(), "the run should not be resumed whilst its issuance claim is fresh");
+
+        mkRunService(2, 0, attestationInstanceRecipientDao).issueInstancesForPendingRuns();
+
+        List<AttestationInstance> instances = aiSvc.findByRunId(runId);
+        assertEquals(5, instances.size(), "committed instances should not be issued twice");
+        assertEquals(apps, map(instances, i -> i.parentEntity().id()));
+        assertEquals(5, attestationInstanceRecipientDao.findRecipientsByRunId(runId).size());
+        assertEquals(AttestationStatus.ISSUED, arSvc.getById(runId).status());
+    }
+
+
+    // -- helpers
+
+    private AttestationRunService mkRunService(int issuanceChunkSize,
+                                               int issuanceClaimTimeoutMinutes,
+                                               AttestationInstanceRecipientDao recipientDao) {
+        return new AttestationRunService(
+                dsl,
+                attestationInstanceDao,
+                recipientDao,
+                attestationRunDao,
+                emailService,
+                involvementDao,
+                involvementGroupService,
+                issuanceChunkSize,
+                issuanceClaimTimeoutMinutes);
+    }
+
+
+    private Set<Long> mkInvolvedApps(String name, long invId, int count) {
+        Long pId = personHelper.createPerson(name);
+        Set<Long> apps = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            EntityReference appRef = appHelper.createNewApp(name + i, ouIds.a);
+            involvementHelper.createInvolvement(pId, invId, appRef);
+            apps.add(appRef.id());
+        }
+        return apps;
+    }
+
+
+    private AttestationRunCreateCommand mkCreateCommand(String name, long invId) {
+        return ImmutableAttestationRunCreateCommand.builder()
+                .dueDate(DateTimeUtilities.today().plusMonths(1))
+                .targetEntityKind(EntityKind.APPLICATION)
+                .attestedEntityKind(EntityKind.LOGICAL_DATA_FLOW)
+                .selectionOptions(mkOpts(mkRef(EntityKind.ORG_UNIT, ouIds.a)))
+                .addInvolvementKindIds(invId)
+                .name(name)
+                .description(name + " Desc")
+                .sendEmailNotifications(false)
+                .build();
+    }
+
+}
@@ -26,6 +26,7 @@ import static java.util.Collections.emptySet;
 import static org.finos.waltz.common.MapUtilities.indexBy;
 import static org.finos.waltz.common.SetUtilities.*;
 import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
 import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -89,6 +90,29 @@ public class PermissionGroupServiceTest extends BaseInMemoryIntegrationTest {
     }
 
 
+    @Test
+    public void removingInvolvementsInBulkRevokesCachedPermissions() {
+        String u1 = mkName(stem, "user1");
+        Long u1Id = personHelper.createPerson(u1);
+
+        EntityReference appA = appHelper.createNewApp(mkName(stem, "appA"), ouIds.a);
+        long privKind = involvementHelper.mkInvolvementKind(mkName(stem, "privileged"));
+
+        permissionHelper.setupSpecificPermissionGroupForApp(appA, privKind, stem);
+        involvementHelper.createInvolvement(u1Id, privKind, appA);
+
+        assertTrue(
+                hasAttestPermission(appA, u1),
+                "u1 should be able to attest flows as they have the required involvement");
+
+        involvementService.deleteByGenericEntitySelector(mkOpts(appA));
+
+        assertFalse(
+                hasAttestPermission(appA, u1),
+                "u1 should no longer be able to attest flows once their involvement has been removed");
+    }
+
+
     @Test
     public void checkQualifierPerms() {
         String u1 = mkName(stem, "user1");
@@ -264,6 +288,14 @@ public class PermissionGroupServiceTest extends BaseInMemoryIntegrationTest {
     }
 
 
+    private boolean hasAttestPermission(EntityReference app, String u) {
+        return permissionGroupService
+                .findAllowedPermissions(app, EntityKind.LOGICAL_DATA_FLOW, u)
+                .stream()
+                .anyMatch(p -> p.operation() == Operation.ATTEST);
+    }
+
+
     private CheckPermissionCommand mkLogicalFlowAttestCommand(String u, EntityReference app) {
         return ImmutableCheckPermissionCommand
                 .builder()
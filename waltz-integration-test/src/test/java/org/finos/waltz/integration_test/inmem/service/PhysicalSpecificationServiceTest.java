@@ -33,6 +33,7 @@ import org.finos.waltz.model.physical_specification.*;
 import org.finos.waltz.service.data_type.DataTypeDecoratorService;
 import org.finos.waltz.service.physical_specification.PhysicalSpecificationService;
 import org.finos.waltz.test_common.helpers.*;
+import org.jooq.DSLContext;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -49,6 +50,7 @@ import static org.finos.waltz.common.SetUtilities.map;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
 import static org.finos.waltz.model.entity_search.EntitySearchOptions.mkForEntity;
+import static org.finos.waltz.schema.Tables.PHYSICAL_SPEC_DATA_TYPE;
 import static org.finos.waltz.test_common.helpers.NameHelper.mkName;
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -76,6 +78,9 @@ public class PhysicalSpecificationServiceTest extends BaseInMemoryIntegrationTes
     @Autowired
     private DataTypeDecoratorService dtdSvc;
 
+    @Autowired
+    private DSLContext dsl;
+
 
     @Test
     public void getById() {
@@ -276,6 +281,41 @@ public class PhysicalSpecificationServiceTest extends BaseInMemoryIntegrationTes
     }
 
 
+    @Test
+    public void propagateDataTypesToLogicalFlowsForSeveralSpecifications() {
+
+        String username = mkName("propagateDataTypesToLogicalFlowsForSeveralSpecifications");
+        EntityReference a = appHelper.createNewApp("a", ouIds.a);
+        EntityReference b = appHelper.createNewApp("b", ouIds.a1);
+        EntityReference c = appHelper.createNewApp("c", ouIds.a1);
+
+        LogicalFlow ab = lfHelper.createLogicalFlow(a, b);
+        LogicalFlow ac = lfHelper.createLogicalFlow(a, c);
+        Long spec1Id = psHelper.createPhysicalSpec(a, "propagateSpec1");
+        Long spec2Id = psHelper.createPhysicalSpec(a, "propagateSpec2");
+        pfHelper.createPhysicalFlow(ab.entityReference().id(), spec1Id, username);
+        pfHelper.createPhysicalFlow(ac.entityReference().id(), spec2Id, username);
+
+        Long dt1Id = dtHelper.createDataType("dt1");
+        Long dt2Id = dtHelper.createDataType("dt2");
+        insertSpecDataType(spec1Id, dt1Id);
+        insertSpecDataType(spec2Id, dt2Id);
+
+        assertEquals(0,
+                psSvc.propagateDataTypesToLogicalFlows(username, emptySet()),
+                "Nothing to propagate when no specifications are given");
+
+        psSvc.propagateDataTypesToLogicalFlows(username, asSet(spec1Id, spec2Id));
+
+        assertEquals(asSet(dt1Id),
+                map(lfHelper.fetchDecoratorsForFlow(ab.entityReference().id()), DataTypeDecorator::dataTypeId),
+                "Each logical flow receives the data types of its own specifications");
+        assertEquals(asSet(dt2Id),
+                map(lfHelper.fetchDecoratorsForFlow(ac.entityReference().id()), DataTypeDecorator::dataTypeId),
+                "Each logical flow receives the data types of its own specifications");
+    }
+
+
     @Test
     public void create() {
         String username = mkName("create");
@@ -413,4 +453,16 @@ public class PhysicalSpecificationServiceTest extends BaseInMemoryIntegrationTes
 
     }
 
-}
\ No newline at end of file
+
+    // -- helpers
+
+    private void insertSpecDataType(Long specId, Long dataTypeId) {
+        dsl.insertInto(PHYSICAL_SPEC_DATA_TYPE)
+                .set(PHYSICAL_SPEC_DATA_TYPE.SPECIFICATION_ID, specId)
+                .set(PHYSICAL_SPEC_DATA_TYPE.DATA_TYPE_ID, dataTypeId)
+                .set(PHYSICAL_SPEC_DATA_TYPE.LAST_UPDATED_BY, "test")
+                .set(PHYSICAL_SPEC_DATA_TYPE.PROVENANCE, PROVENANCE)
+                .execute();
+    }
+
+}
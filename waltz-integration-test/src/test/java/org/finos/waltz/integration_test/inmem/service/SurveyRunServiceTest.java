@@ -142,6 +142,78 @@ public class SurveyRunServiceTest extends BaseInMemoryIntegrationTest {
     }
 
 
+    @Test
+    public void individualSurveysAreIssuedToEachRecipient() throws InsufficientPrivelegeException {
+        String stem = "srt_individualSurveysAreIssuedToEachRecipient";
+
+        String admin = mkName(stem, "admin");
+        personHelper.createPerson(admin);
+
+        String u1 = mkName(stem, "user1");
+        Long u1Id = personHelper.createPerson(u1);
+        String u2 = mkName(stem, "user2");
+        Long u2Id = personHelper.createPerson(u2);
+        String u3 = mkName(stem, "user3");
+        Long u3Id = personHelper.createPerson(u3);
+
+        EntityReference appA = appHelper.createNewApp(mkName(stem, "appA"), ouIds.a);
+        EntityReference appB = appHelper.createNewApp(mkName(stem, "appB"), ouIds.b);
+
+        long invKind = involvementHelper.mkInvolvementKind(mkName(stem, "invKind"));
+        involvementHelper.createInvolvement(u1Id, invKind, appA);
+        involvementHelper.createInvolvement(u2Id, invKind, appA);
+        involvementHelper.createInvolvement(u3Id, invKind, appB);
+
+        Long grpId = groupHelper.createAppGroupWithAppRefs(mkName(stem, "group"), asSet(appA, appB));
+
+        long tId = templateHelper.createTemplate(admin, mkName(stem, "template"));
+        templateHelper.updateStatus(admin, tId, ReleaseLifecycleStatus.ACTIVE);
+
+        SurveyRunCreateCommand cmd = ImmutableSurveyRunCreateCommand.builder()
+                .issuanceKind(SurveyIssuanceKind.INDIVIDUAL)
+                .name("test")
+                .description("run desc")
+                .selectionOptions(IdSelectionOptions.mkOpts(EntityReference.mkRef(EntityKind.APP_GROUP, grpId)))
+                .surveyTemplateId(tId)
+                .addInvolvementKindIds(invKind)
+                .dueDate(DateTimeUtilities.today().plusMonths(1))
+                .approvalDueDate(DateTimeUtilities.today().plusMonths(1))
+                .contactEmail("someone@somewhere.com")
+                .build();
+
+        IdCommandResponse runResp = runService.createSurveyRun(admin, cmd);
+        Long surveyRunId = runResp.id().orElseThrow(() -> new AssertionFailedError("Failed to create run"));
+
+        ImmutableInstancesAndRecipientsCreateCommand createCmd = ImmutableInstancesAndRecipientsCreateCommand.builder()
+                .surveyRunId(surveyRunId)
+                .dueDate(toLocalDate(nowUtcTimestamp()))
+                .approvalDueDate(toLocalDate(nowUtcTimestamp()))
+                .excludedRecipients(emptySet())
+                .build();
+        runService.createSurveyInstancesAndRecipients(createCmd);
+
+        Set<SurveyInstance> instances = instanceService.findForSurveyRun(surveyRunId);
+        assertEquals(3, instances.size(), "should be one instance per recipient");
+
+        Set<SurveyInstance> instancesForU1 = instanceService.findForRecipient(u1Id);
+        Set<SurveyInstance> instancesForU2 = instanceService.findForRecipient(u2Id);
+        Set<SurveyInstance> instancesForU3 = instanceService.findForRecipient(u3Id);
+        assertEquals(1, instancesForU1.size(), "user 1 should have their own instance");
+        assertEquals(1, instancesForU2.size(), "user 2 should have their own instance");
+        assertNotEquals(instancesForU1, instancesForU2, "users 1 and 2 should not share an instance for app A");
+        assertEquals(appB, instancesForU3.iterator().next().surveyEntity(), "user 3 should have an instance for app B");
+
+        instances.forEach(instance -> {
+            long instanceId = instance.id().orElseThrow(() -> new AssertionFailedError("Instance should have an id"));
+            assertEquals(1, instanceService.findRecipients(instanceId).size(), "each instance should have a single recipient");
+            assertTrue(recipsToUserIds(instanceService.findOwners(instanceId)).contains(admin), "admin (the run owner) should own each instance");
+        });
+
+        runService.createSurveyInstancesAndRecipients(createCmd);
+        assertEquals(3, instanceService.findForSurveyRun(surveyRunId).size(), "reissuing should replace the existing instances");
+    }
+
+
     private Set<String> recipsToUserIds(List<Person> aRecips) {
         return map(aRecips, Person::userId);
     }
@@ -0,0 +1,139 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.jobs.harness;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.finos.waltz.common.JacksonUtilities;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.application.LifecyclePhase;
+import org.finos.waltz.model.report_grid.CompactReportGridInstance;
+import org.finos.waltz.model.report_grid.ImmutableReportGridCell;
+import org.finos.waltz.model.report_grid.ImmutableReportGridInstance;
+import org.finos.waltz.model.report_grid.ImmutableReportSubject;
+import org.finos.waltz.model.report_grid.ReportGridCell;
+import org.finos.waltz.model.report_grid.ReportGridInstance;
+import org.finos.waltz.model.report_grid.ReportGridInstanceUtilities;
+import org.finos.waltz.model.report_grid.ReportSubject;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Supplier;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+
+/**
+ * Compares the heap and json size of a synthetic report grid instance in its
+ * object per cell and columnar forms.  No database is required.
+ */
+public class CompactReportGridHarness {
+
+    private static final int SUBJECTS = 10_000;
+    private static final int RATING_COLUMNS = 50;
+    private static final int NUMBER_COLUMNS = 5;
+    private static final int TEXT_COLUMNS = 5;
+
+
+    public static void main(String[] args) throws Exception {
+        ObjectMapper mapper = JacksonUtilities.getJsonMapper();
+
+        long standardHeap = measureHeap(CompactReportGridHarness::mkInstance);
+        ReportGridInstance instance = mkInstance();
+        long compactHeap = measureHeap(() -> ReportGridInstanceUtilities.toCompact(instance));
+        CompactReportGridInstance compact = ReportGridInstanceUtilities.toCompact(instance);
+
+        long start = System.currentTimeMillis();
+        byte[] standardJson = mapper.writeValueAsBytes(instance);
+        long standardMillis = System.currentTimeMillis() - start;
+
+        start = System.currentTimeMillis();
+        byte[] compactJson = mapper.writeValueAsBytes(compact);
+        long compactMillis = System.currentTimeMillis() - start;
+
+        System.out.printf("Cells: %d%n", instance.cellData().size());
+        System.out.printf("Standard: heap ~%dKB, json %dKB, serialised in %dms%n", standardHeap / 1024, standardJson.length / 1024, standardMillis);
+        System.out.printf("Compact:  heap ~%dKB, json %dKB, serialised in %dms%n", compactHeap / 1024, compactJson.length / 1024, compactMillis);
+    }
+
+
+    private static ReportGridInstance mkInstance() {
+        Random random = new Random(0);
+
+        Set<ReportSubject> subjects = new HashSet<>();
+        Set<ReportGridCell> cells = new HashSet<>();
+
+        for (long subjectId = 1; subjectId <= SUBJECTS; subjectId++) {
+            subjects.add(ImmutableReportSubject
+                    .builder()
+                    .entityReference(mkRef(EntityKind.APPLICATION, subjectId, "Application " + subjectId))
+                    .lifecyclePhase(LifecyclePhase.PRODUCTION)
+                    .build());
+
+            long columnId = 1;
+            for (int c = 0; c < RATING_COLUMNS; c++, columnId++) {
+                if (random.nextInt(10) < 8) {
+                    cells.add(ImmutableReportGridCell
+                            .builder()
+                            .columnDefinitionId(columnId)
+                            .subjectId(subjectId)
+                            .ratingIdValues(asSet(1000L + random.nextInt(5)))
+                            .build());
+                }
+            }
+            for (int c = 0; c < NUMBER_COLUMNS; c++, columnId++) {
+                cells.add(ImmutableReportGridCell
+                        .builder()
+                        .columnDefinitionId(columnId)
+                        .subjectId(subjectId)
+                        .numberValue(BigDecimal.valueOf(random.nextInt(1_000_000), 2))
+                        .build());
+            }
+            for (int c = 0; c < TEXT_COLUMNS; c++, columnId++) {
+                cells.add(ImmutableReportGridCell
+                        .builder()
+                        .columnDefinitionId(columnId)
+                        .subjectId(subjectId)
+                        .textValue("Value " + random.nextInt(100))
+                        .build());
+            }
+        }
+
+        return ImmutableReportGridInstance
+                .builder()
+                .subjects(subjects)
+                .cellData(cells)
+                .build();
+    }
+
+
+    private static long measureHeap(Supplier<Object> supplier) {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        Object retained = supplier.get();
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        if (retained.hashCode() == 42) {
+            System.out.println();  // keeps the result reachable until measured
+        }
+        return after - before;
+    }
+}
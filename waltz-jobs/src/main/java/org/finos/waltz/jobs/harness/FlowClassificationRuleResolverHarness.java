@@ -0,0 +1,227 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.jobs.harness;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.flow_classification_rule.ImmutableFlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.finos.waltz.service.flow_classification_rule.CompactFlowClassificationRuleResolver;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
+
+import static org.finos.waltz.model.EntityReference.mkRef;
+
+/**
+ * Compares the expanded (map of maps) flow classification rule resolver with the
+ * compact resolver over synthetic rules, hierarchies and flows.  No database is
+ * required.
+ *
+ * Timings are wall clock over several rounds after a warm up, good enough to
+ * compare the two approaches but not a substitute for a proper profiler.
+ */
+public class FlowClassificationRuleResolverHarness {
+
+    private static final int ORG_UNIT_BRANCHING = 6;
+    private static final int ORG_UNIT_DEPTH = 5;
+    private static final int DATA_TYPE_BRANCHING = 5;
+    private static final int DATA_TYPE_DEPTH = 4;
+    private static final int APP_COUNT = 5_000;
+    private static final int RULE_COUNT = 2_000;
+    private static final int FLOW_COUNT = 500_000;
+    private static final int WARM_UP_ROUNDS = 3;
+    private static final int ROUNDS = 5;
+
+    private static final String[] CODES = {"PRIMARY", "SECONDARY"};
+
+
+    public static void main(String[] args) {
+        Random random = new Random(42);
+
+        List<EntityHierarchyItem> orgUnits = mkTree(EntityKind.ORG_UNIT, 1, ORG_UNIT_BRANCHING, ORG_UNIT_DEPTH);
+        List<EntityHierarchyItem> dataTypes = mkTree(EntityKind.DATA_TYPE, 100_000, DATA_TYPE_BRANCHING, DATA_TYPE_DEPTH);
+
+        List<EntityHierarchyItem> orgUnitSelfRows = selfRows(orgUnits);
+        List<EntityHierarchyItem> dataTypeSelfRows = selfRows(dataTypes);
+
+        List<FlowClassificationRuleVantagePoint> declared = new ArrayList<>(RULE_COUNT);
+        for (int i = 0; i < RULE_COUNT; i++) {
+            EntityHierarchyItem ou = pickAtLeastLevel(random, orgUnitSelfRows, 3);
+            EntityHierarchyItem dt = pickAtLeastLevel(random, dataTypeSelfRows, 2);
+            declared.add(ImmutableFlowClassificationRuleVantagePoint
+                    .builder()
+                    .ruleId((long) i)
+                    .vantagePoint(mkRef(EntityKind.ORG_UNIT, ou.id().get()))
+                    .vantagePointRank(ou.descendantLevel())
+                    .dataType(mkRef(EntityKind.DATA_TYPE, dt.id().get()))
+                    .dataTypeRank(dt.descendantLevel())
+                    .subjectReference(mkRef(EntityKind.APPLICATION, random.nextInt(APP_COUNT)))
+                    .classificationCode(CODES[random.nextInt(CODES.length)])
+                    .build());
+        }
+
+        List<FlowClassificationRuleVantagePoint> expanded = expand(declared, orgUnits, dataTypes);
+        System.out.printf("Rules: %d declared, %d expanded%n", declared.size(), expanded.size());
+
+        long[] targetOrgUnitIds = new long[FLOW_COUNT];
+        EntityReference[] sources = new EntityReference[FLOW_COUNT];
+        long[] dataTypeIds = new long[FLOW_COUNT];
+        EntityReference[] vantagePoints = new EntityReference[FLOW_COUNT];
+        for (int i = 0; i < FLOW_COUNT; i++) {
+            targetOrgUnitIds[i] = orgUnitSelfRows.get(random.nextInt(orgUnitSelfRows.size())).id().get();
+            vantagePoints[i] = mkRef(EntityKind.ORG_UNIT, targetOrgUnitIds[i]);
+            sources[i] = mkRef(EntityKind.APPLICATION, random.nextInt(APP_COUNT));
+            dataTypeIds[i] = dataTypeSelfRows.get(random.nextInt(dataTypeSelfRows.size())).id().get();
+        }
+
+        time("expanded: build", 1, () -> new FlowClassificationRuleResolver(expanded));
+        time("compact: build", 1, () -> new CompactFlowClassificationRuleResolver(declared, orgUnits, dataTypes));
+
+        FlowClassificationRuleResolver expandedResolver = new FlowClassificationRuleResolver(expanded);
+        CompactFlowClassificationRuleResolver compactResolver = new CompactFlowClassificationRuleResolver(declared, orgUnits, dataTypes);
+
+        Supplier<Object> expandedRun = () -> {
+            AuthoritativenessRatingValue[] ratings = new AuthoritativenessRatingValue[FLOW_COUNT];
+            for (int i = 0; i < FLOW_COUNT; i++) {
+                ratings[i] = expandedResolver.resolve(vantagePoints[i], sources[i], dataTypeIds[i]);
+            }
+            return ratings;
+        };
+
+        Supplier<Object> compactRun = () -> compactResolver.resolveAll(targetOrgUnitIds, sources, dataTypeIds);
+
+        time("expanded: warm up", WARM_UP_ROUNDS, expandedRun);
+        time("compact: warm up", WARM_UP_ROUNDS, compactRun);
+        time("expanded: resolve " + FLOW_COUNT, ROUNDS, expandedRun);
+        time("compact: resolveAll " + FLOW_COUNT, ROUNDS, compactRun);
+
+        int mismatches = 0;
+        int[] outcomes = compactResolver.resolveAll(targetOrgUnitIds, sources, dataTypeIds);
+        for (int i = 0; i < FLOW_COUNT; i++) {
+            if (!expandedResolver.resolve(vantagePoints[i], sources[i], dataTypeIds[i]).equals(compactResolver.rating(outcomes[i]))) {
+                mismatches++;
+            }
+        }
+        System.out.printf("Mismatched ratings: %d%n", mismatches);
+    }
+
+
+    private static void time(String label, int rounds, Supplier<Object> task) {
+        long best = Long.MAX_VALUE;
+        long total = 0;
+        for (int i = 0; i < rounds; i++) {
+            long start = System.nanoTime();
+            task.get();
+            long elapsed = System.nanoTime() - start;
+            best = Math.min(best, elapsed);
+            total += elapsed;
+        }
+        System.out.printf("%-40s best: %6dms, mean: %6dms%n", label, best / 1_000_000, total / rounds / 1_000_000);
+    }
+
+
+    /**
+     * Mimics <code>FlowClassificationRuleDao.findExpandedFlowClassificationRuleVantagePoints</code>.
+     */
+    private static List<FlowClassificationRuleVantagePoint> expand(List<FlowClassificationRuleVantagePoint> rules,
+                                                                   List<EntityHierarchyItem> orgUnits,
+                                                                   List<EntityHierarchyItem> dataTypes) {
+        List<FlowClassificationRuleVantagePoint> expanded = new ArrayList<>();
+        for (FlowClassificationRuleVantagePoint rule : rules) {
+            for (EntityHierarchyItem ou : orgUnits) {
+                if (ou.parentId().get() != rule.vantagePoint().id()) continue;
+                for (EntityHierarchyItem dt : dataTypes) {
+                    if (dt.parentId().get() != rule.dataType().id()) continue;
+                    expanded.add(ImmutableFlowClassificationRuleVantagePoint
+                            .copyOf(rule)
+                            .withVantagePoint(mkRef(EntityKind.ORG_UNIT, ou.id().get()))
+                            .withDataType(mkRef(EntityKind.DATA_TYPE, dt.id().get())));
+                }
+            }
+        }
+        return expanded;
+    }
+
+
+    /**
+     * Hierarchy rows (including self rows) for a complete tree.
+     */
+    private static List<EntityHierarchyItem> mkTree(EntityKind kind, long rootId, int branching, int depth) {
+        List<EntityHierarchyItem> items = new ArrayList<>();
+        addNode(items, kind, new long[depth], 0, rootId, branching, depth, new long[]{rootId});
+        return items;
+    }
+
+
+    private static void addNode(List<EntityHierarchyItem> items,
+                                EntityKind kind,
+                                long[] path,
+                                int level,
+                                long id,
+                                int branching,
+                                int depth,
+                                long[] nextId) {
+        path[level] = id;
+        for (int a = 0; a <= level; a++) {
+            items.add(ImmutableEntityHierarchyItem
+                    .builder()
+                    .kind(kind)
+                    .id(id)
+                    .parentId(path[a])
+                    .ancestorLevel(a + 1)
+                    .descendantLevel(level + 1)
+                    .build());
+        }
+        if (level + 1 < depth) {
+            for (int c = 0; c < branching; c++) {
+                addNode(items, kind, path, level + 1, ++nextId[0], branching, depth, nextId);
+            }
+        }
+    }
+
+
+    private static List<EntityHierarchyItem> selfRows(List<EntityHierarchyItem> items) {
+        List<EntityHierarchyItem> selfRows = new ArrayList<>();
+        for (EntityHierarchyItem item : items) {
+            if (item.id().equals(item.parentId())) {
+                selfRows.add(item);
+            }
+        }
+        return selfRows;
+    }
+
+
+    private static EntityHierarchyItem pickAtLeastLevel(Random random,
+                                                        List<EntityHierarchyItem> selfRows,
+                                                        int minLevel) {
+        while (true) {
+            EntityHierarchyItem candidate = selfRows.get(random.nextInt(selfRows.size()));
+            if (candidate.descendantLevel() >= minLevel) {
+                return candidate;
+            }
+        }
+    }
+}
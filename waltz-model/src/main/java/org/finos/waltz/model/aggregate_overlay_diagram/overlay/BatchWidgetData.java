@@ -0,0 +1,34 @@
+package org.finos.waltz.model.aggregate_overlay_diagram.overlay;
+
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+/**
+ * Data for each of the widgets requested via a
+ * {@link org.finos.waltz.model.aggregate_overlay_diagram.overlay.widget_parameters.BatchWidgetParameters}.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableBatchWidgetData.class)
+public abstract class BatchWidgetData {
+
+    public abstract Optional<CountWidgetData> appCount();
+
+    public abstract Optional<TargetCostWidgetData> targetAppCost();
+
+    public abstract Optional<CostWidgetData> appCost();
+
+    public abstract Optional<AssessmentRatingsWidgetData> appAssessment();
+
+    public abstract Optional<AggregatedEntitiesWidgetData> aggregatedEntities();
+
+    public abstract Optional<ComplexityWidgetData> appComplexity();
+
+    public abstract Optional<AttestationWidgetData> attestation();
+
+    public abstract Optional<ApplicationChangeWidgetData> appChange();
+
+    public abstract Optional<BackingEntityWidgetData> backingEntities();
+
+}
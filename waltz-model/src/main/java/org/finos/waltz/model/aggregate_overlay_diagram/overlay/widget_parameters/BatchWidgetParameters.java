@@ -0,0 +1,39 @@
+package org.finos.waltz.model.aggregate_overlay_diagram.overlay.widget_parameters;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.util.Optional;
+
+/**
+ * Parameters for several widgets drawn over the same diagram and selection, only
+ * the widgets whose parameters are present are calculated.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableBatchWidgetParameters.class)
+@JsonDeserialize(as = ImmutableBatchWidgetParameters.class)
+public abstract class BatchWidgetParameters {
+
+    public abstract Optional<AppCountWidgetParameters> appCount();
+
+    public abstract Optional<TargetAppCostWidgetParameters> targetAppCost();
+
+    public abstract Optional<AppCostWidgetParameters> appCost();
+
+    public abstract Optional<AssessmentWidgetParameters> appAssessment();
+
+    public abstract Optional<AggregatedEntitiesWidgetParameters> aggregatedEntities();
+
+    public abstract Optional<AppComplexityWidgetParameters> appComplexity();
+
+    public abstract Optional<AttestationWidgetParameters> attestation();
+
+    public abstract Optional<AppChangeWidgetParameters> appChange();
+
+    @Value.Default
+    public boolean backingEntities() {
+        return false;
+    }
+
+}
@@ -0,0 +1,48 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.database_metrics;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.util.List;
+
+/**
+ * A point in time summary of database query performance, covering all queries
+ * executed since startup (or the last reset).
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableDatabaseMetrics.class)
+@JsonDeserialize(as = ImmutableDatabaseMetrics.class)
+public abstract class DatabaseMetrics {
+
+    /** statistics across all queries, the fingerprint is a placeholder */
+    public abstract QueryStatistics overall();
+
+    /** distinct fingerprints being tracked */
+    public abstract int trackedFingerprints();
+
+    /** the most expensive fingerprints, ordered by total time descending */
+    public abstract List<QueryStatistics> slowestQueries();
+
+    /** proportion of statements whose SQL had recently been executed before */
+    public abstract double statementReuseRatio();
+
+}
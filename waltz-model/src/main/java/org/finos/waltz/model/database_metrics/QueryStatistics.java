@@ -0,0 +1,46 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.database_metrics;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+/**
+ * Latency and row count statistics for all executions of queries sharing a
+ * fingerprint (the SQL with literals and bind markers normalised).
+ * Latencies are in microseconds and percentiles are approximate (within ~3%).
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableQueryStatistics.class)
+@JsonDeserialize(as = ImmutableQueryStatistics.class)
+public abstract class QueryStatistics {
+
+    public abstract String fingerprint();
+    public abstract long executions();
+    public abstract long errors();
+    public abstract long rows();
+    public abstract long totalMicros();
+    public abstract long meanMicros();
+    public abstract long p50Micros();
+    public abstract long p95Micros();
+    public abstract long p99Micros();
+    public abstract long maxMicros();
+
+}
@@ -0,0 +1,52 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.entity_search;
+
+import org.finos.waltz.model.EntityReference;
+import org.immutables.value.Value;
+
+import java.util.Set;
+
+/**
+ * The searchable representation of an entity, as held by the in-memory search index.
+ * The entity reference provides the name, external id, description and lifecycle status.
+ */
+@Value.Immutable
+public abstract class EntitySearchDocument {
+
+    public abstract EntityReference entityReference();
+
+
+    /**
+     * Alternative names the entity may be found by (e.g. aliases or email addresses).
+     */
+    public abstract Set<String> aliases();
+
+
+    /**
+     * If false the entity is returned regardless of the lifecycle statuses requested
+     * in the search options, mirroring kinds whose database searches do not filter on
+     * lifecycle status.
+     */
+    @Value.Default
+    public boolean lifecycleFiltered() {
+        return true;
+    }
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.report_grid;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.finos.waltz.model.Nullable;
+import org.immutables.value.Value;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * The cells of a single report grid column, stored column-wise.
+ *
+ * Cell <code>i</code> belongs to the subject at <code>subjectIndexes[i]</code> (an index
+ * into {@link CompactReportGridInstance#subjects()}), its values are at position <code>i</code>
+ * of each value array.  Value arrays are omitted (null) when no cell in the column has
+ * that kind of value.
+ *
+ * Ratings and options are indexes into the dictionaries held by the instance.  When
+ * every cell has exactly one rating (or option) the offsets are omitted and the arrays hold
+ * one entry per cell, otherwise the entries for cell <code>i</code> are
+ * <code>ratings[ratingOffsets[i] .. ratingOffsets[i + 1])</code>.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableCompactReportGridColumn.class)
+@JsonDeserialize(as = ImmutableCompactReportGridColumn.class)
+public abstract class CompactReportGridColumn {
+
+    public abstract long columnDefinitionId();
+
+    public abstract int[] subjectIndexes();
+
+    @Nullable
+    public abstract int[] ratings();
+
+    @Nullable
+    public abstract int[] ratingOffsets();
+
+    @Nullable
+    public abstract BigDecimal[] numberValues();
+
+    @Nullable
+    public abstract String[] textValues();
+
+    @Nullable
+    public abstract String[] errorValues();
+
+    @Nullable
+    public abstract LocalDateTime[] dateTimeValues();
+
+    @Nullable
+    public abstract String[] comments();
+
+    public abstract int[] options();
+
+    @Nullable
+    public abstract int[] optionOffsets();
+
+}
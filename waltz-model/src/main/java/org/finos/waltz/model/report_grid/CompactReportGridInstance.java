@@ -0,0 +1,50 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.report_grid;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.finos.waltz.model.rating.RatingSchemeItem;
+import org.immutables.value.Value;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Columnar equivalent of a {@link ReportGridInstance}, intended for large grids where
+ * the per cell objects (and their json) dominate.
+ *
+ * Subjects, rating ids and cell options are each listed once, cells refer to them by
+ * their position in these lists.  See {@link ReportGridInstanceUtilities} for conversions.
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableCompactReportGridInstance.class)
+@JsonDeserialize(as = ImmutableCompactReportGridInstance.class)
+public abstract class CompactReportGridInstance {
+
+    public abstract List<ReportSubject> subjects();  // rows
+
+    public abstract Set<RatingSchemeItem> ratingSchemeItems();  // color scheme
+
+    public abstract long[] ratingIds();  // rating dictionary
+
+    public abstract List<CellOption> options();  // option dictionary
+
+    public abstract List<CompactReportGridColumn> columns();
+}
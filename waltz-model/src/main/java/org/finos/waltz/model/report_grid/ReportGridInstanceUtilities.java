@@ -0,0 +1,272 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.report_grid;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+
+import static java.util.Comparator.comparing;
+import static java.util.Comparator.comparingLong;
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Conversions between the object per cell {@link ReportGridInstance} and the
+ * columnar {@link CompactReportGridInstance}.
+ *
+ * Subjects are ordered by id and columns by column definition id.  Cells referring
+ * to a subject which is not part of the instance are omitted from the compact form.
+ */
+public class ReportGridInstanceUtilities {
+
+    private ReportGridInstanceUtilities() {
+    }
+
+
+    public static CompactReportGridInstance toCompact(ReportGridInstance instance) {
+        checkNotNull(instance, "instance cannot be null");
+
+        List<ReportSubject> subjects = instance
+                .subjects()
+                .stream()
+                .sorted(comparingLong(s -> s.entityReference().id()))
+                .collect(toList());
+
+        Map<Long, Integer> subjectIndexes = new HashMap<>(subjects.size() * 2);
+        for (ReportSubject subject : subjects) {
+            subjectIndexes.putIfAbsent(subject.entityReference().id(), subjectIndexes.size());
+        }
+
+        Map<Long, List<ReportGridCell>> cellsByColumn = new TreeMap<>();
+        for (ReportGridCell cell : instance.cellData()) {
+            if (subjectIndexes.containsKey(cell.subjectId())) {
+                cellsByColumn
+                        .computeIfAbsent(cell.columnDefinitionId(), k -> new ArrayList<>())
+                        .add(cell);
+            }
+        }
+
+        Dictionary<Long> ratingDictionary = new Dictionary<>();
+        Dictionary<CellOption> optionDictionary = new Dictionary<>();
+
+        List<CompactReportGridColumn> columns = new ArrayList<>(cellsByColumn.size());
+        cellsByColumn.forEach((columnDefinitionId, cells) -> {
+            cells.sort(comparing(c -> subjectIndexes.get(c.subjectId())));
+            columns.add(mkColumn(
+                    columnDefinitionId,
+                    cells,
+                    subjectIndexes,
+                    ratingDictionary,
+                    optionDictionary));
+        });
+
+        return ImmutableCompactReportGridInstance
+                .builder()
+                .subjects(subjects)
+                .ratingSchemeItems(instance.ratingSchemeItems())
+                .ratingIds(ratingDictionary.values.stream().mapToLong(Long::longValue).toArray())
+                .options(optionDictionary.values)
+                .columns(columns)
+                .build();
+    }
+
+
+    public static ReportGridInstance fromCompact(CompactReportGridInstance compact) {
+        checkNotNull(compact, "compact cannot be null");
+
+        List<ReportSubject> subjects = compact.subjects();
+        long[] ratingIds = compact.ratingIds();
+        List<CellOption> options = compact.options();
+
+        Set<ReportGridCell> cells = new HashSet<>();
+        for (CompactReportGridColumn column : compact.columns()) {
+            int[] subjectIndexes = column.subjectIndexes();
+            int[] ratings = column.ratings();
+            int[] ratingOffsets = column.ratingOffsets();
+            BigDecimal[] numberValues = column.numberValues();
+            String[] textValues = column.textValues();
+            String[] errorValues = column.errorValues();
+            LocalDateTime[] dateTimeValues = column.dateTimeValues();
+            String[] comments = column.comments();
+            int[] cellOptions = column.options();
+            int[] optionOffsets = column.optionOffsets();
+
+            for (int i = 0; i < subjectIndexes.length; i++) {
+                ImmutableReportGridCell.Builder cell = ImmutableReportGridCell
+                        .builder()
+                        .columnDefinitionId(column.columnDefinitionId())
+                        .subjectId(subjects.get(subjectIndexes[i]).entityReference().id())
+                        .numberValue(valueAt(numberValues, i))
+                        .textValue(valueAt(textValues, i))
+                        .errorValue(valueAt(errorValues, i))
+                        .dateTimeValue(valueAt(dateTimeValues, i))
+                        .comment(valueAt(comments, i));
+
+                if (ratings != null) {
+                    forEachEntry(ratings, ratingOffsets, i, r -> cell.addRatingIdValues(ratingIds[r]));
+                }
+
+                cell.options(new HashSet<>());
+                forEachEntry(cellOptions, optionOffsets, i, o -> cell.addOptions(options.get(o)));
+
+                cells.add(cell.build());
+            }
+        }
+
+        return ImmutableReportGridInstance
+                .builder()
+                .subjects(subjects)
+                .ratingSchemeItems(compact.ratingSchemeItems())
+                .cellData(cells)
+                .build();
+    }
+
+
+    // --- helpers
+
+    private static CompactReportGridColumn mkColumn(long columnDefinitionId,
+                                                    List<ReportGridCell> cells,
+                                                    Map<Long, Integer> subjectIndexes,
+                                                    Dictionary<Long> ratingDictionary,
+                                                    Dictionary<CellOption> optionDictionary) {
+        int size = cells.size();
+        int[] subjects = new int[size];
+        List<int[]> ratings = new ArrayList<>(size);
+        List<int[]> options = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            ReportGridCell cell = cells.get(i);
+            subjects[i] = subjectIndexes.get(cell.subjectId());
+            ratings.add(cell
+                    .ratingIdValues()
+                    .stream()
+                    .sorted()
+                    .mapToInt(ratingDictionary::indexOf)
+                    .toArray());
+            options.add(cell
+                    .options()
+                    .stream()
+                    .sorted(comparing(CellOption::code).thenComparing(CellOption::text))
+                    .mapToInt(optionDictionary::indexOf)
+                    .toArray());
+        }
+
+        boolean hasRatings = ratings.stream().anyMatch(r -> r.length > 0);
+
+        return ImmutableCompactReportGridColumn
+                .builder()
+                .columnDefinitionId(columnDefinitionId)
+                .subjectIndexes(subjects)
+                .ratings(hasRatings ? flatten(ratings) : null)
+                .ratingOffsets(hasRatings ? mkOffsets(ratings) : null)
+                .numberValues(mkValues(cells, ReportGridCell::numberValue, BigDecimal[]::new))
+                .textValues(mkValues(cells, ReportGridCell::textValue, String[]::new))
+                .errorValues(mkValues(cells, ReportGridCell::errorValue, String[]::new))
+                .dateTimeValues(mkValues(cells, ReportGridCell::dateTimeValue, LocalDateTime[]::new))
+                .comments(mkValues(cells, ReportGridCell::comment, String[]::new))
+                .options(flatten(options))
+                .optionOffsets(mkOffsets(options))
+                .build();
+    }
+
+
+    /**
+     * @return null if every cell has a single entry, otherwise the start offset of each
+     * cell's entries followed by the total number of entries
+     */
+    private static int[] mkOffsets(List<int[]> entries) {
+        if (entries.stream().allMatch(e -> e.length == 1)) {
+            return null;
+        }
+        int[] offsets = new int[entries.size() + 1];
+        for (int i = 0; i < entries.size(); i++) {
+            offsets[i + 1] = offsets[i] + entries.get(i).length;
+        }
+        return offsets;
+    }
+
+
+    private static int[] flatten(List<int[]> entries) {
+        return entries
+                .stream()
+                .flatMapToInt(Arrays::stream)
+                .toArray();
+    }
+
+
+    private static <T> T[] mkValues(List<ReportGridCell> cells,
+                                    Function<ReportGridCell, T> extractor,
+                                    IntFunction<T[]> arrayFactory) {
+        T[] values = arrayFactory.apply(cells.size());
+        boolean any = false;
+        for (int i = 0; i < values.length; i++) {
+            values[i] = extractor.apply(cells.get(i));
+            any |= values[i] != null;
+        }
+        return any ? values : null;
+    }
+
+
+    private static <T> T valueAt(T[] values, int idx) {
+        return values == null
+                ? null
+                : values[idx];
+    }
+
+
+    private static void forEachEntry(int[] entries,
+                                     int[] offsets,
+                                     int cellIdx,
+                                     IntConsumer consumer) {
+        if (offsets == null) {
+            consumer.accept(entries[cellIdx]);
+        } else {
+            for (int i = offsets[cellIdx]; i < offsets[cellIdx + 1]; i++) {
+                consumer.accept(entries[i]);
+            }
+        }
+    }
+
+
+    private static class Dictionary<T> {
+
+        private final Map<T, Integer> indexes = new LinkedHashMap<>();
+        private final List<T> values = new ArrayList<>();
+
+
+        private int indexOf(T value) {
+            return indexes.computeIfAbsent(value, v -> {
+                values.add(v);
+                return values.size() - 1;
+            });
+        }
+    }
+}
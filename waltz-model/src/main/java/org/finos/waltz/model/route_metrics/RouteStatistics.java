@@ -0,0 +1,62 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.route_metrics;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+/**
+ * Statistics for all requests served by a single api route, identified by its http
+ * method and path template (e.g. <code>GET api/app/id/:id</code>).
+ *
+ * Handler time covers the route's own work (typically service and database calls),
+ * render time covers serialising the result to json.  Times are in microseconds
+ * and percentiles are approximate (within ~3%).
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableRouteStatistics.class)
+@JsonDeserialize(as = ImmutableRouteStatistics.class)
+public abstract class RouteStatistics {
+
+    public abstract String method();
+    public abstract String path();
+    public abstract long requests();
+    public abstract long errors();
+
+    public abstract long handlerTotalMicros();
+    public abstract long handlerP50Micros();
+    public abstract long handlerP95Micros();
+    public abstract long handlerP99Micros();
+    public abstract long handlerMaxMicros();
+
+    public abstract long renderTotalMicros();
+    public abstract long renderP50Micros();
+    public abstract long renderP95Micros();
+    public abstract long renderP99Micros();
+
+    public abstract long totalBytes();
+    public abstract long meanBytes();
+    public abstract long maxBytes();
+
+    /** total number of items returned, only recorded for list routes */
+    public abstract long listItems();
+    public abstract long maxListSize();
+
+}
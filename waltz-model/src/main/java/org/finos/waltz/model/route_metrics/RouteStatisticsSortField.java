@@ -0,0 +1,33 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.route_metrics;
+
+/**
+ * Orderings available when listing {@link RouteStatistics}, all are descending.
+ */
+public enum RouteStatisticsSortField {
+    TOTAL_TIME,
+    HANDLER_TIME,
+    RENDER_TIME,
+    P99,
+    REQUESTS,
+    ERRORS,
+    BYTES,
+    MAX_BYTES
+}
@@ -0,0 +1,50 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.model.scheduled_job;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.immutables.value.Value;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Duration history for a scheduled job, covering the runs made since the server started.
+ * Durations are in milliseconds, <code>recentDurationsMillis</code> holds the most recent
+ * runs (oldest first).
+ */
+@Value.Immutable
+@JsonSerialize(as = ImmutableJobRunStatistics.class)
+@JsonDeserialize(as = ImmutableJobRunStatistics.class)
+public abstract class JobRunStatistics {
+
+    public abstract JobKey jobKey();
+    public abstract long runs();
+    public abstract long errors();
+    public abstract long timeouts();
+    public abstract long totalMillis();
+    public abstract long meanMillis();
+    public abstract long maxMillis();
+    public abstract Optional<LocalDateTime> lastRunAt();
+    public abstract Optional<JobRunOutcome> lastOutcome();
+    public abstract List<Long> recentDurationsMillis();
+
+}
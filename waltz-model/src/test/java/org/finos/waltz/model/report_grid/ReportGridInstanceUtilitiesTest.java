@@ -0,0 +1,123 @@
+package org.finos.waltz.model.report_grid;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.application.LifecyclePhase;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportGridInstanceUtilitiesTest {
+
+    private static final long UNKNOWN_SUBJECT_ID = 99L;
+    private static final CellOption HIGH = CellOption.mkCellOption("HIGH", "High");
+
+
+    @Test
+    public void compactInstancesRoundTrip() {
+        ReportGridInstance instance = mkInstance();
+
+        ReportGridInstance roundTripped = ReportGridInstanceUtilities.fromCompact(
+                ReportGridInstanceUtilities.toCompact(instance));
+
+        Set<ReportGridCell> cellsForKnownSubjects = instance
+                .cellData()
+                .stream()
+                .filter(c -> c.subjectId() != UNKNOWN_SUBJECT_ID)
+                .collect(toSet());
+
+        assertEquals(instance.subjects(), roundTripped.subjects());
+        assertEquals(cellsForKnownSubjects, roundTripped.cellData(), "cells for unknown subjects are dropped");
+
+        Map<String, String> comments = roundTripped
+                .cellData()
+                .stream()
+                .filter(c -> c.comment() != null)
+                .collect(toMap(c -> c.columnDefinitionId() + "/" + c.subjectId(), ReportGridCell::comment));
+        assertEquals(Collections.singletonMap("10/2", "checked"), comments);
+    }
+
+
+    @Test
+    public void subjectsRatingsAndOptionsAreDictionaryEncoded() {
+        CompactReportGridInstance compact = ReportGridInstanceUtilities.toCompact(mkInstance());
+
+        assertEquals(3, compact.subjects().size());
+        assertEquals(1L, compact.subjects().get(0).entityReference().id(), "subjects are ordered by id");
+        assertArrayEquals(new long[]{100L, 101L}, compact.ratingIds());
+        assertEquals(2, compact.options().size());
+
+        Map<Long, CompactReportGridColumn> columns = compact
+                .columns()
+                .stream()
+                .collect(toMap(CompactReportGridColumn::columnDefinitionId, Function.identity()));
+
+        CompactReportGridColumn ratingColumn = columns.get(10L);
+        assertArrayEquals(new int[]{0, 1}, ratingColumn.subjectIndexes());
+        assertArrayEquals(new int[]{0, 0, 1}, ratingColumn.ratings());
+        assertArrayEquals(new int[]{0, 1, 3}, ratingColumn.ratingOffsets(), "second cell has two ratings");
+        assertNull(ratingColumn.numberValues(), "absent values are omitted");
+        assertNull(ratingColumn.optionOffsets(), "single options need no offsets");
+
+        CompactReportGridColumn numberColumn = columns.get(11L);
+        assertArrayEquals(new int[]{2}, numberColumn.subjectIndexes());
+        assertNull(numberColumn.ratings());
+        assertArrayEquals(new BigDecimal[]{BigDecimal.TEN}, numberColumn.numberValues());
+    }
+
+
+    private static ReportGridInstance mkInstance() {
+        List<ReportSubject> subjects = asList(mkSubject(3L), mkSubject(1L), mkSubject(2L));
+
+        return ImmutableReportGridInstance
+                .builder()
+                .subjects(subjects)
+                .cellData(asSet(
+                        ImmutableReportGridCell.builder()
+                                .columnDefinitionId(10L)
+                                .subjectId(1L)
+                                .ratingIdValues(asSet(100L))
+                                .build(),
+                        ImmutableReportGridCell.builder()
+                                .columnDefinitionId(10L)
+                                .subjectId(2L)
+                                .ratingIdValues(asSet(100L, 101L))
+                                .textValue("two ratings")
+                                .comment("checked")
+                                .options(asSet(HIGH))
+                                .build(),
+                        ImmutableReportGridCell.builder()
+                                .columnDefinitionId(11L)
+                                .subjectId(3L)
+                                .numberValue(BigDecimal.TEN)
+                                .dateTimeValue(LocalDateTime.of(2022, 1, 1, 0, 0))
+                                .build(),
+                        ImmutableReportGridCell.builder()
+                                .columnDefinitionId(11L)
+                                .subjectId(UNKNOWN_SUBJECT_ID)
+                                .numberValue(BigDecimal.ONE)
+                                .build()))
+                .build();
+    }
+
+
+    private static ReportSubject mkSubject(long id) {
+        return ImmutableReportSubject
+                .builder()
+                .entityReference(mkRef(EntityKind.APPLICATION, id))
+                .lifecyclePhase(LifecyclePhase.PRODUCTION)
+                .build();
+    }
+}
@@ -35,6 +35,9 @@ export function mkReportGridStore() {
     const getViewById = (id, selectionOptions, force = false) => remote
         .fetchViewData("POST", `api/report-grid/view/id/${id}`, selectionOptions, null, {force});
 
+    const getCompactViewById = (id, selectionOptions, force = false) => remote
+        .fetchViewData("POST", `api/report-grid/view/id/${id}/compact`, selectionOptions, null, {force});
+
     const findAdditionalColumnOptionsForKind = (kind, force = false) => remote
         .fetchViewList("GET", `api/report-grid/additional-column-options/kind/${kind}`, [], {force});
 
@@ -68,6 +71,7 @@ export function mkReportGridStore() {
         findInfoForUser,
         findAdditionalColumnOptionsForKind,
         getViewById,
+        getCompactViewById,
         updateColumnDefinitions,
         create,
         update,
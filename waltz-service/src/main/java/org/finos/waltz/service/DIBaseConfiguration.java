@@ -21,8 +21,10 @@ package org.finos.waltz.service;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
+import org.finos.waltz.data.BindParameters;
 import org.finos.waltz.data.DBExecutorPool;
 import org.finos.waltz.data.DBExecutorPoolInterface;
+import org.finos.waltz.data.changelog.ChangeLogEventPublisher;
 import org.jooq.DSLContext;
 import org.jooq.SQLDialect;
 import org.jooq.conf.Settings;
@@ -37,6 +39,7 @@ import org.springframework.context.annotation.PropertySource;
 import org.springframework.jdbc.support.SQLStateSQLExceptionTranslator;
 
 import javax.sql.DataSource;
+import java.util.concurrent.TimeUnit;
 
 
 @Configuration
@@ -74,6 +77,21 @@ public class DIBaseConfiguration {
     @Value("${database.performance.query.slow.threshold:10}")
     private int databasePerformanceQuerySlowThreshold;
 
+    @Value("${database.performance.query.slow.threshold.millis:-1}")
+    private long databasePerformanceQuerySlowThresholdMillis;
+
+    @Value("${database.performance.query.max_fingerprints:1000}")
+    private int databasePerformanceQueryMaxFingerprints;
+
+    @Value("${database.performance.statement_reuse.log.minutes:15}")
+    private int databasePerformanceStatementReuseLogMinutes;
+
+    @Value("${database.bind_parameters.limit:2000}")
+    private int bindParameterLimit;
+
+    @Value("${database.statement_cache.size:250}")
+    private int statementCacheSize;
+
     @Bean
     public DataSource dataSource() {
 
@@ -84,10 +102,26 @@ public class DIBaseConfiguration {
         dsConfig.setDriverClassName(dbDriver);
         dsConfig.setMaximumPoolSize(dbPoolMax);
         dsConfig.setMinimumIdle(dbPoolMin);
+        configureStatementCache(dsConfig, dbDriver, statementCacheSize);
         return new HikariDataSource(dsConfig);
     }
 
 
+    @Bean
+    public StatementReuseListener statementReuseListener() {
+        return new StatementReuseListener(databasePerformanceStatementReuseLogMinutes);
+    }
+
+
+    @Bean
+    public QueryMetricsListener queryMetricsListener() {
+        long slowQueryThresholdMillis = databasePerformanceQuerySlowThresholdMillis >= 0
+                ? databasePerformanceQuerySlowThresholdMillis
+                : TimeUnit.SECONDS.toMillis(databasePerformanceQuerySlowThreshold);
+        return new QueryMetricsListener(slowQueryThresholdMillis, databasePerformanceQueryMaxFingerprints);
+    }
+
+
     @Bean
     public DBExecutorPoolInterface dbExecutorPool() {
         return new DBExecutorPool(dbPoolMin, dbPoolMax);
@@ -96,7 +130,10 @@ public class DIBaseConfiguration {
 
     @Bean
     @Autowired
-    public DSLContext dsl(DataSource dataSource) {
+    public DSLContext dsl(DataSource dataSource,
+                          QueryMetricsListener queryMetricsListener,
+                          StatementReuseListener statementReuseListener,
+                          ChangeLogEventPublisher changeLogEventPublisher) {
         try {
             SQLDialect.valueOf(dialect);
         } catch (IllegalArgumentException iae) {
@@ -120,10 +157,42 @@ public class DIBaseConfiguration {
                 .set(dslSettings)
                 .set(
                     //new SlowDatabaseConnectionSimulator(2000),
-                    new SlowQueryListener(databasePerformanceQuerySlowThreshold),
+                    queryMetricsListener,
+                    statementReuseListener,
                     new SpringExceptionTranslationExecuteListener(new SQLStateSQLExceptionTranslator()));
 
+        // change log listeners (caches) are only notified once the writing transaction commits
+        configuration.set(changeLogEventPublisher);
+
+        BindParameters.configure(configuration, bindParameterLimit);
+
         return DSL.using(configuration);
     }
 
+
+    /**
+     * Enables the driver's prepared statement cache, Hikari does not cache statements itself.
+     * Only drivers known to support a cache are configured, others are left untouched.
+     */
+    private static void configureStatementCache(HikariConfig dsConfig,
+                                                String driver,
+                                                int cacheSize) {
+        if (cacheSize <= 0 || driver == null) {
+            return;
+        }
+
+        String size = Integer.toString(cacheSize);
+        if (driver.startsWith("com.microsoft.sqlserver")) {
+            dsConfig.addDataSourceProperty("disableStatementPooling", "false");
+            dsConfig.addDataSourceProperty("statementPoolingCacheSize", size);
+        } else if (driver.startsWith("org.postgresql")) {
+            dsConfig.addDataSourceProperty("preparedStatementCacheQueries", size);
+        } else if (driver.startsWith("org.mariadb") || driver.startsWith("com.mysql")) {
+            dsConfig.addDataSourceProperty("cachePrepStmts", "true");
+            dsConfig.addDataSourceProperty("useServerPrepStmts", "true");
+            dsConfig.addDataSourceProperty("prepStmtCacheSize", size);
+            dsConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "8192");
+        }
+    }
+
 }
@@ -19,6 +19,8 @@
 package org.finos.waltz.service;
 
 import org.finos.waltz.service.email.DummyJavaMailSender;
+import org.finos.waltz.service.database_metrics.DatabaseMetricsService;
+import org.finos.waltz.service.jmx.DatabaseMetrics;
 import org.finos.waltz.service.jmx.PersonMaintenance;
 import org.finos.waltz.service.person_hierarchy.PersonHierarchyService;
 import org.finos.waltz.model.ImmutableWaltzVersionInfo;
@@ -119,6 +121,13 @@ public class DIConfiguration implements SchedulingConfigurer {
     }
 
 
+    @Bean
+    @Autowired
+    public DatabaseMetrics databaseMetrics(DatabaseMetricsService databaseMetricsService) {
+        return new DatabaseMetrics(databaseMetricsService);
+    }
+
+
     @Bean
     public JavaMailSender mailSender() {
         if (smtpHost == null) {
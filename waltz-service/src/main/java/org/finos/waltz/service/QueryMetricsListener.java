@@ -0,0 +1,299 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service;
+
+
+import org.finos.waltz.common.LatencyHistogram;
+import org.finos.waltz.model.database_metrics.ImmutableQueryStatistics;
+import org.finos.waltz.model.database_metrics.QueryStatistics;
+import org.jooq.DSLContext;
+import org.jooq.ExecuteContext;
+import org.jooq.conf.Settings;
+import org.jooq.impl.DSL;
+import org.jooq.impl.DefaultExecuteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+
+/**
+ * Records latency histograms, row counts and error counts for every query executed
+ * via jOOQ, grouped by the query's fingerprint (see {@link #fingerprint(String)}).
+ *
+ * Latency is measured from the start to the end of statement execution, rows are
+ * those fetched (for queries) or affected (for updates).  State for each execution
+ * is held in the execute context so the listener is safe to share across threads.
+ *
+ * The number of fingerprints is bounded, once the limit is reached executions of
+ * unseen queries are grouped under {@link #OTHER_FINGERPRINT}.  Executions slower
+ * than the threshold are also logged, with their SQL, to the performance log.
+ */
+public class QueryMetricsListener extends DefaultExecuteListener {
+
+    private static final String PERFORMANCE_APPENDER = "WALTZ.PERFORMANCE";
+    private static final Logger LOG = LoggerFactory.getLogger(PERFORMANCE_APPENDER);
+
+    public static final String OVERALL_FINGERPRINT = "<all>";
+    public static final String OTHER_FINGERPRINT = "<other>";
+
+    private static final String EXECUTION_KEY = "waltz.query_metrics.execution";
+    private static final int MAX_FINGERPRINT_LENGTH = 2_000;
+    private static final int MAX_CACHED_FINGERPRINTS = 2_000;
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMERIC_LITERAL = Pattern.compile("(?<![\\w.])-?\\d+(?:\\.\\d+)?(?![\\w.])");
+    private static final Pattern MARKER_LIST = Pattern.compile("\\?(?:\\s*,\\s*\\?)+");
+    private static final Pattern ROW_LIST = Pattern.compile("\\(\\?\\)(?:\\s*,\\s*\\(\\?\\))+");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    public class SQLPerformanceWarning
+            extends Exception {
+
+        public SQLPerformanceWarning(String message) {
+            super(message);
+        }
+    }
+
+
+    private final long slowQueryThresholdNanos;
+    private final int maxFingerprints;
+
+    // keyed by SqlHash of the executed sql, cleared wholesale whenever it grows past its limit
+    private final Map<Long, String> fingerprintCache = new ConcurrentHashMap<>();
+
+    private volatile Metrics metrics = new Metrics();
+
+
+    public QueryMetricsListener(long slowQueryThresholdMillis,
+                                int maxFingerprints) {
+        LOG.info("Initialising query metrics, tracking up to {} queries, with a {}ms slow query threshold",
+                maxFingerprints,
+                slowQueryThresholdMillis);
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+        this.maxFingerprints = maxFingerprints;
+    }
+
+
+    @Override
+    public void executeStart(ExecuteContext ctx) {
+        super.executeStart(ctx);
+        ctx.data(EXECUTION_KEY, new Execution(System.nanoTime()));
+    }
+
+
+    @Override
+    public void executeEnd(ExecuteContext ctx) {
+        super.executeEnd(ctx);
+        Execution execution = (Execution) ctx.data(EXECUTION_KEY);
+        if (execution == null) {
+            return;
+        }
+        execution.elapsedNanos = System.nanoTime() - execution.startNanos;
+
+        if (execution.elapsedNanos > slowQueryThresholdNanos) {
+            DSLContext context = DSL.using(ctx.dialect(),
+                    // ... and the flag for pretty-printing
+                    new Settings().withRenderFormatted(true));
+
+            LOG.info(
+                    String.format("Slow SQL executed in %d ms", TimeUnit.NANOSECONDS.toMillis(execution.elapsedNanos)),
+                    new SQLPerformanceWarning(context.renderInlined(ctx.query())));
+        }
+    }
+
+
+    @Override
+    public void recordEnd(ExecuteContext ctx) {
+        super.recordEnd(ctx);
+        Execution execution = (Execution) ctx.data(EXECUTION_KEY);
+        if (execution != null) {
+            execution.rows++;
+        }
+    }
+
+
+    @Override
+    public void exception(ExecuteContext ctx) {
+        super.exception(ctx);
+        Execution execution = (Execution) ctx.data(EXECUTION_KEY);
+        if (execution != null) {
+            execution.failed = true;
+        }
+    }
+
+
+    @Override
+    public void end(ExecuteContext ctx) {
+        super.end(ctx);
+        Execution execution = (Execution) ctx.data(EXECUTION_KEY);
+        if (execution == null || ctx.sql() == null) {
+            return;
+        }
+        ctx.data().remove(EXECUTION_KEY);
+
+        long elapsedNanos = execution.elapsedNanos >= 0
+                ? execution.elapsedNanos
+                : System.nanoTime() - execution.startNanos;
+        long rows = Math.max(execution.rows, ctx.rows());
+        boolean failed = execution.failed || ctx.exception() != null;
+
+        Metrics current = metrics;
+        long micros = TimeUnit.NANOSECONDS.toMicros(elapsedNanos);
+        current.overall.record(micros, rows, failed);
+        current.statsFor(cachedFingerprint(ctx.sql()), maxFingerprints).record(micros, rows, failed);
+    }
+
+
+    public QueryStatistics getOverallStatistics() {
+        return metrics.overall.toStatistics(OVERALL_FINGERPRINT);
+    }
+
+
+    /**
+     * @return statistics for each fingerprint, in no particular order
+     */
+    public List<QueryStatistics> getStatistics() {
+        Map<String, Stats> byFingerprint = metrics.byFingerprint;
+        List<QueryStatistics> result = new ArrayList<>(byFingerprint.size());
+        byFingerprint.forEach((fingerprint, stats) -> result.add(stats.toStatistics(fingerprint)));
+        return result;
+    }
+
+
+    /**
+     * Discards all recorded statistics.  Executions in flight at the time of the
+     * reset are recorded against the new statistics.
+     */
+    public void reset() {
+        LOG.info("Resetting query metrics");
+        metrics = new Metrics();
+    }
+
+
+    /**
+     * Reduces a SQL string to a fingerprint shared by executions of the same query with
+     * different values.  String and numeric literals become bind markers, lists of markers
+     * (e.g. in-lists or rows in a values table) are collapsed to a single marker and
+     * whitespace is normalised.  Long fingerprints are truncated.
+     */
+    public static String fingerprint(String sql) {
+        String fingerprint = STRING_LITERAL.matcher(sql).replaceAll("?");
+        fingerprint = NUMERIC_LITERAL.matcher(fingerprint).replaceAll("?");
+        fingerprint = MARKER_LIST.matcher(fingerprint).replaceAll("?");
+        fingerprint = ROW_LIST.matcher(fingerprint).replaceAll("(?)");
+        fingerprint = WHITESPACE.matcher(fingerprint).replaceAll(" ").trim();
+        return fingerprint.length() > MAX_FINGERPRINT_LENGTH
+                ? fingerprint.substring(0, MAX_FINGERPRINT_LENGTH)
+                : fingerprint;
+    }
+
+
+    // --- helpers
+
+    private String cachedFingerprint(String sql) {
+        Long hash = SqlHash.hash(sql);
+        String fingerprint = fingerprintCache.get(hash);
+        if (fingerprint != null) {
+            return fingerprint;
+        }
+
+        fingerprint = fingerprint(sql);
+        if (fingerprintCache.size() >= MAX_CACHED_FINGERPRINTS) {
+            fingerprintCache.clear();
+        }
+        fingerprintCache.put(hash, fingerprint);
+        return fingerprint;
+    }
+
+
+    private static class Execution {
+
+        private final long startNanos;
+        private long elapsedNanos = -1;
+        private long rows;
+        private boolean failed;
+
+
+        private Execution(long startNanos) {
+            this.startNanos = startNanos;
+        }
+    }
+
+
+    private static class Metrics {
+
+        private final Stats overall = new Stats();
+        private final Map<String, Stats> byFingerprint = new ConcurrentHashMap<>();
+
+
+        private Stats statsFor(String fingerprint, int maxFingerprints) {
+            Stats stats = byFingerprint.get(fingerprint);
+            if (stats != null) {
+                return stats;
+            }
+            String key = byFingerprint.size() < maxFingerprints
+                    ? fingerprint
+                    : OTHER_FINGERPRINT;
+            return byFingerprint.computeIfAbsent(key, k -> new Stats());
+        }
+    }
+
+
+    private static class Stats {
+
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder errors = new LongAdder();
+
+
+        private void record(long micros, long rowCount, boolean failed) {
+            latency.record(micros);
+            if (rowCount > 0) {
+                rows.add(rowCount);
+            }
+            if (failed) {
+                errors.increment();
+            }
+        }
+
+
+        private QueryStatistics toStatistics(String fingerprint) {
+            return ImmutableQueryStatistics
+                    .builder()
+                    .fingerprint(fingerprint)
+                    .executions(latency.count())
+                    .errors(errors.sum())
+                    .rows(rows.sum())
+                    .totalMicros(latency.total())
+                    .meanMicros(Math.round(latency.mean()))
+                    .p50Micros(latency.percentile(50))
+                    .p95Micros(latency.percentile(95))
+                    .p99Micros(latency.percentile(99))
+                    .maxMicros(latency.max())
+                    .build();
+        }
+    }
+}
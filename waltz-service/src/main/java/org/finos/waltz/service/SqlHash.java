@@ -0,0 +1,67 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service;
+
+
+/**
+ * A 64 bit (FNV-1a) hash of a SQL string, ignoring differences in whitespace, used to
+ * key per statement bookkeeping without retaining the (often very long) SQL itself.
+ */
+final class SqlHash {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+
+    private SqlHash() {
+    }
+
+
+    /**
+     * @return the hash of the sql with leading and trailing whitespace removed and
+     * runs of whitespace treated as a single space
+     */
+    static long hash(String sql) {
+        long hash = OFFSET_BASIS;
+        boolean pendingSpace = false;
+        boolean started = false;
+        for (int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if (Character.isWhitespace(c)) {
+                pendingSpace = started;
+                continue;
+            }
+            if (pendingSpace) {
+                hash = mix(hash, ' ');
+                pendingSpace = false;
+            }
+            hash = mix(hash, c);
+            started = true;
+        }
+        return hash;
+    }
+
+
+    // --- helpers
+
+    private static long mix(long hash, char c) {
+        hash = (hash ^ (c & 0xff)) * PRIME;
+        return (hash ^ (c >>> 8)) * PRIME;
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service;
+
+import org.finos.waltz.data.BindParameters;
+import org.jooq.ExecuteContext;
+import org.jooq.impl.DefaultExecuteListener;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+
+/**
+ * Tracks how often executed SQL strings repeat, as a proxy for statement and plan cache
+ * reuse.  A statement whose SQL has been seen before can be served from the driver's
+ * statement cache and the database's plan cache, one with a new SQL string (e.g. with
+ * inlined values) has to be parsed and planned from scratch.
+ *
+ * Statements are remembered by a hash of their whitespace normalised SQL (see {@link SqlHash}),
+ * in a fixed size table where each hash occupies one slot and newer statements replace
+ * whichever statement previously held their slot.  This keeps the tracking bounded and
+ * lock free, at the cost of occasionally forgetting a statement early.  A summary is
+ * logged periodically to the performance log.
+ */
+public class StatementReuseListener extends DefaultExecuteListener {
+
+    private static final String PERFORMANCE_APPENDER = "WALTZ.PERFORMANCE";
+    private static final Logger LOG = LoggerFactory.getLogger(PERFORMANCE_APPENDER);
+
+    private static final int TRACKED_STATEMENT_SLOTS = 8_192; // must be a power of two
+    private static final long EMPTY_SLOT = 0L;
+
+    private final long logIntervalNanos;
+    private final AtomicLong nextLogAt;
+
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder reusedExecutions = new LongAdder();
+    private final AtomicLongArray recentStatementHashes = new AtomicLongArray(TRACKED_STATEMENT_SLOTS);
+
+
+    public StatementReuseListener(int logIntervalMinutes) {
+        LOG.info("Initialising statement reuse tracking, logging every {} minutes", logIntervalMinutes);
+        this.logIntervalNanos = TimeUnit.MINUTES.toNanos(logIntervalMinutes);
+        this.nextLogAt = new AtomicLong(System.nanoTime() + logIntervalNanos);
+    }
+
+
+    @Override
+    public void executeStart(ExecuteContext ctx) {
+        super.executeStart(ctx);
+        String sql = ctx.sql();
+        if (sql == null) {
+            return;
+        }
+
+        long hash = SqlHash.hash(sql);
+        if (hash == EMPTY_SLOT) {
+            hash = 1L;
+        }
+        int slot = (int) (hash ^ (hash >>> 32)) & (TRACKED_STATEMENT_SLOTS - 1);
+        boolean seen = recentStatementHashes.getAndSet(slot, hash) == hash;
+
+        executions.increment();
+        if (seen) {
+            reusedExecutions.increment();
+        }
+
+        maybeLog();
+    }
+
+
+    public Statistics getStatistics() {
+        int tracked = 0;
+        for (int i = 0; i < TRACKED_STATEMENT_SLOTS; i++) {
+            if (recentStatementHashes.get(i) != EMPTY_SLOT) {
+                tracked++;
+            }
+        }
+        return new Statistics(
+                executions.sum(),
+                reusedExecutions.sum(),
+                tracked,
+                BindParameters.boundCount(),
+                BindParameters.inlinedCount());
+    }
+
+
+    // --- helpers
+
+    private void maybeLog() {
+        long now = System.nanoTime();
+        long due = nextLogAt.get();
+        if (now - due >= 0 && nextLogAt.compareAndSet(due, now + logIntervalNanos)) {
+            LOG.info("Statement reuse: {}", getStatistics());
+        }
+    }
+
+
+    public static class Statistics {
+
+        private final long executions;
+        private final long reusedExecutions;
+        private final int trackedStatements;
+        private final long boundQueryParts;
+        private final long inlinedQueryParts;
+
+
+        private Statistics(long executions,
+                           long reusedExecutions,
+                           int trackedStatements,
+                           long boundQueryParts,
+                           long inlinedQueryParts) {
+            this.executions = executions;
+            this.reusedExecutions = reusedExecutions;
+            this.trackedStatements = trackedStatements;
+            this.boundQueryParts = boundQueryParts;
+            this.inlinedQueryParts = inlinedQueryParts;
+        }
+
+
+        /** statements executed */
+        public long getExecutions() {
+            return executions;
+        }
+
+
+        /** statements executed whose SQL had recently been executed before */
+        public long getReusedExecutions() {
+            return reusedExecutions;
+        }
+
+
+        /** distinct statements currently remembered */
+        public int getTrackedStatements() {
+            return trackedStatements;
+        }
+
+
+        /** selector heavy query parts executed with bind variables */
+        public long getBoundQueryParts() {
+            return boundQueryParts;
+        }
+
+
+        /** selector heavy query parts which had their values inlined */
+        public long getInlinedQueryParts() {
+            return inlinedQueryParts;
+        }
+
+
+        public double getReuseRatio() {
+            return executions == 0
+                    ? 0
+                    : (double) reusedExecutions / executions;
+        }
+
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "executions=%d, reused=%d (%.1f%%), trackedStatements=%d, boundQueryParts=%d, inlinedQueryParts=%d",
+                    executions,
+                    reusedExecutions,
+                    getReuseRatio() * 100,
+                    trackedStatements,
+                    boundQueryParts,
+                    inlinedQueryParts);
+        }
+    }
+}
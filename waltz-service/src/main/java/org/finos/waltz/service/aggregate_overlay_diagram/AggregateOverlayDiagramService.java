@@ -4,6 +4,9 @@ import org.finos.waltz.common.Checks;
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.GenericSelectorFactory;
+import org.finos.waltz.data.IdSelectionResolver;
+import org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramCellIndex;
+import org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramCellIndexCache;
 import org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramDao;
 import org.finos.waltz.data.aggregate_overlay_diagram.AggregateOverlayDiagramPresetDao;
 import org.finos.waltz.data.aggregate_overlay_diagram.AggregatedEntitiesWidgetDao;
@@ -38,6 +41,7 @@ import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AssessmentRatings
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AttestationWidgetData;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AttestationWidgetDatum;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.BackingEntityWidgetData;
+import org.finos.waltz.model.aggregate_overlay_diagram.overlay.BatchWidgetData;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ComplexityWidgetData;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ComplexityWidgetDatum;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.CostWidgetData;
@@ -48,6 +52,7 @@ import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableAggregat
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableApplicationChangeWidgetData;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableAssessmentRatingsWidgetData;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableAttestationWidgetData;
+import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableBatchWidgetData;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableBackingEntityWidgetData;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableComplexityWidgetData;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ImmutableCostWidgetData;
@@ -62,6 +67,7 @@ import org.finos.waltz.model.aggregate_overlay_diagram.overlay.widget_parameters
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.widget_parameters.AppCountWidgetParameters;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.widget_parameters.AssessmentWidgetParameters;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.widget_parameters.AttestationWidgetParameters;
+import org.finos.waltz.model.aggregate_overlay_diagram.overlay.widget_parameters.BatchWidgetParameters;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.widget_parameters.TargetAppCostWidgetParameters;
 import org.finos.waltz.model.application.Application;
 import org.finos.waltz.model.complexity.ComplexityKind;
@@ -73,6 +79,8 @@ import org.jooq.impl.DSL;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.time.LocalDate;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
@@ -100,8 +108,9 @@ public class AggregateOverlayDiagramService {
     private final ComplexityKindDao complexityKindDao;
     private final ComplexityWidgetDao complexityWidgetDao;
     private final AttestationWidgetDao attestationWidgetDao;
+    private final AggregateOverlayDiagramCellIndexCache cellIndexCache;
 
-    private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
+    private final GenericSelectorFactory genericSelectorFactory;
 
     @Autowired
     public AggregateOverlayDiagramService(AggregateOverlayDiagramDao aggregateOverlayDiagramDao,
@@ -118,7 +127,9 @@ public class AggregateOverlayDiagramService {
                                           CostKindDao costKindDao,
                                           ComplexityKindDao complexityKindDao,
                                           ComplexityWidgetDao complexityWidgetDao,
-                                          AttestationWidgetDao attestationWidgetDao) {
+                                          AttestationWidgetDao attestationWidgetDao,
+                                          AggregateOverlayDiagramCellIndexCache cellIndexCache,
+                                          IdSelectionResolver idSelectionResolver) {
 
         this.aggregateOverlayDiagramDao = aggregateOverlayDiagramDao;
         this.appCountWidgetDao = appCountWidgetDao;
@@ -135,6 +146,8 @@ public class AggregateOverlayDiagramService {
         this.complexityKindDao = complexityKindDao;
         this.complexityWidgetDao = complexityWidgetDao;
         this.attestationWidgetDao = attestationWidgetDao;
+        this.cellIndexCache = cellIndexCache;
+        this.genericSelectorFactory = new GenericSelectorFactory(idSelectionResolver);
     }
 
 
@@ -165,14 +178,18 @@ public class AggregateOverlayDiagramService {
                                                  Set<AssessmentBasedSelectionFilter> filterParams,
                                                  AppCountWidgetParameters appCountWidgetParameters) {
 
-        AggregateOverlayDiagram diagram = aggregateOverlayDiagramDao.getById(diagramId);
-        GenericSelector genericSelector = genericSelectorFactory.applyForKind(diagram.aggregatedEntityKind(), appSelectionOptions);
-        Select<Record1<Long>> entityIdSelector = applyFiltersToSelector(genericSelector, filterParams);
+        return getAppCountWidgetData(
+                mkScope(diagramId, appSelectionOptions, filterParams),
+                appCountWidgetParameters);
+    }
+
+
+    private CountWidgetData getAppCountWidgetData(WidgetScope scope,
+                                                  AppCountWidgetParameters appCountWidgetParameters) {
 
         Set<CountWidgetDatum> countData = appCountWidgetDao
                 .findWidgetData(
-                        diagramId,
-                        entityIdSelector,
+                        scope.cellIndex(Optional.empty()),
                         appCountWidgetParameters.targetDate());
 
         return ImmutableCountWidgetData
@@ -187,12 +204,18 @@ public class AggregateOverlayDiagramService {
                                                            Set<AssessmentBasedSelectionFilter> filterParams,
                                                            TargetAppCostWidgetParameters targetAppCostWidgetParameters) {
 
-        AggregateOverlayDiagram diagram = aggregateOverlayDiagramDao.getById(diagramId);
+        return getTargetAppCostWidgetData(
+                mkScope(diagramId, appSelectionOptions, filterParams),
+                targetAppCostWidgetParameters);
+    }
 
-        GenericSelector genericSelector = genericSelectorFactory.applyForKind(diagram.aggregatedEntityKind(), appSelectionOptions);
 
-        Select<Record1<Long>> entityIdSelector = applyFiltersToSelector(genericSelector, filterParams);
-        Set<TargetCostWidgetDatum> targetCostData = targetAppCostWidgetDao.findWidgetData(diagramId, entityIdSelector, targetAppCostWidgetParameters.targetDate());
+    private TargetCostWidgetData getTargetAppCostWidgetData(WidgetScope scope,
+                                                            TargetAppCostWidgetParameters targetAppCostWidgetParameters) {
+
+        Set<TargetCostWidgetDatum> targetCostData = targetAppCostWidgetDao.findWidgetData(
+                scope.cellIndex(Optional.empty()),
+                targetAppCostWidgetParameters.targetDate());
 
         return ImmutableTargetCostWidgetData
                 .builder()
@@ -205,19 +228,21 @@ public class AggregateOverlayDiagramService {
                                                           IdSelectionOptions appSelectionOptions,
                                                           AttestationWidgetParameters widgetParams) {
 
+        return getAttestationWidgetData(
+                mkScope(diagramId, appSelectionOptions, filterParams),
+                widgetParams);
+    }
 
-        AggregateOverlayDiagram diagram = aggregateOverlayDiagramDao.getById(diagramId);
 
-        GenericSelector genericSelector = genericSelectorFactory.applyForKind(diagram.aggregatedEntityKind(), appSelectionOptions);
-        Select<Record1<Long>> entityIdSelector = applyFiltersToSelector(genericSelector, filterParams);
+    private AttestationWidgetData getAttestationWidgetData(WidgetScope scope,
+                                                           AttestationWidgetParameters widgetParams) {
 
         Set<AttestationWidgetDatum> attestations = attestationWidgetDao.findWidgetData(
-                diagramId,
+                scope.cellIndex(Optional.empty()),
                 widgetParams.attestedEntityKind(),
-                Optional.ofNullable(widgetParams.attestedEntityId()),
-                entityIdSelector);
+                Optional.ofNullable(widgetParams.attestedEntityId()));
 
-        List<Application> applications = applicationDao.findByAppIdSelector(entityIdSelector);
+        List<Application> applications = applicationDao.findByAppIdSelector(scope.entityIdSelector);
 
         return ImmutableAttestationWidgetData
                 .builder()
@@ -231,13 +256,19 @@ public class AggregateOverlayDiagramService {
                                                IdSelectionOptions appSelectionOptions,
                                                AppCostWidgetParameters appCostWidgetParameters) {
 
-        AggregateOverlayDiagram diagram = aggregateOverlayDiagramDao.getById(diagramId);
+        return getAppCostWidgetData(
+                mkScope(diagramId, appSelectionOptions, filterParams),
+                appCostWidgetParameters);
+    }
+
+
+    private CostWidgetData getAppCostWidgetData(WidgetScope scope,
+                                                AppCostWidgetParameters appCostWidgetParameters) {
 
-        GenericSelector genericSelector = genericSelectorFactory.applyForKind(diagram.aggregatedEntityKind(), appSelectionOptions);
-        Select<Record1<Long>> entityIdSelector = applyFiltersToSelector(genericSelector, filterParams);
+        Select<Record1<Long>> entityIdSelector = scope.entityIdSelector;
 
         Set<CostWidgetDatum> costData = appCostWidgetDao.findWidgetData(
-                diagramId,
+                scope.diagram.id().get(),
                 appCostWidgetParameters.costKindIds(),
                 appCostWidgetParameters.allocationSchemeId(),
                 entityIdSelector);
@@ -274,18 +305,20 @@ public class AggregateOverlayDiagramService {
                                                                   IdSelectionOptions appSelectionOptions,
                                                                   AssessmentWidgetParameters assessmentWidgetParameters) {
 
-        AggregateOverlayDiagram diagram = aggregateOverlayDiagramDao.getById(diagramId);
+        return getAppAssessmentWidgetData(
+                mkScope(diagramId, appSelectionOptions, filterParams),
+                assessmentWidgetParameters);
+    }
+
 
-        GenericSelector genericSelector = genericSelectorFactory.applyForKind(diagram.aggregatedEntityKind(), appSelectionOptions);
-        Select<Record1<Long>> entityIdSelector = applyFiltersToSelector(genericSelector, filterParams);
+    private AssessmentRatingsWidgetData getAppAssessmentWidgetData(WidgetScope scope,
+                                                                   AssessmentWidgetParameters assessmentWidgetParameters) {
 
         return ImmutableAssessmentRatingsWidgetData.builder()
                 .cellData(appAssessmentWidgetDao.findWidgetData(
-                        diagramId,
-                        diagram.aggregatedEntityKind(),
-                        assessmentWidgetParameters.assessmentDefinitionId(),
-                        entityIdSelector,
-                        assessmentWidgetParameters.targetDate()))
+                        scope.cellIndex(assessmentWidgetParameters.targetDate()),
+                        scope.diagram.aggregatedEntityKind(),
+                        assessmentWidgetParameters.assessmentDefinitionId()))
                .build();
     }
 
@@ -294,16 +327,15 @@ public class AggregateOverlayDiagramService {
                                                                         Set<AssessmentBasedSelectionFilter> filterParams,
                                                                         IdSelectionOptions idSelectionOptions) {
 
-        AggregateOverlayDiagram diagram = aggregateOverlayDiagramDao.getById(diagramId);
+        return getAggregatedEntitiesWidgetData(mkScope(diagramId, idSelectionOptions, filterParams));
+    }
 
-        GenericSelector genericSelector = genericSelectorFactory.applyForKind(diagram.aggregatedEntityKind(), idSelectionOptions);
-        Select<Record1<Long>> entityIdSelector = applyFiltersToSelector(genericSelector, filterParams);
+
+    private AggregatedEntitiesWidgetData getAggregatedEntitiesWidgetData(WidgetScope scope) {
 
         Set<AggregatedEntitiesWidgetDatum> data = aggregatedEntitiesWidgetDao.findWidgetData(
-                diagramId,
-                diagram.aggregatedEntityKind(),
-                entityIdSelector,
-                Optional.empty());
+                scope.cellIndex(Optional.empty()),
+                scope.diagram.aggregatedEntityKind());
 
         return ImmutableAggregatedEntitiesWidgetData.builder()
                 .cellData(data)
@@ -333,20 +365,22 @@ public class AggregateOverlayDiagramService {
                                                            IdSelectionOptions idSelectionOptions,
                                                            AppComplexityWidgetParameters complexityWidgetParameters) {
 
+        return getAppComplexityWidgetData(
+                mkScope(diagramId, idSelectionOptions, assessmentBasedSelectionFilters),
+                complexityWidgetParameters);
+    }
 
-        AggregateOverlayDiagram diagram = aggregateOverlayDiagramDao.getById(diagramId);
 
-        GenericSelector genericSelector = genericSelectorFactory.applyForKind(diagram.aggregatedEntityKind(), idSelectionOptions);
-        Select<Record1<Long>> entityIdSelector = applyFiltersToSelector(genericSelector, assessmentBasedSelectionFilters);
+    private ComplexityWidgetData getAppComplexityWidgetData(WidgetScope scope,
+                                                            AppComplexityWidgetParameters complexityWidgetParameters) {
 
         Set<ComplexityWidgetDatum> complexityData = complexityWidgetDao
                 .findWidgetData(
-                        diagramId,
-                        diagram.aggregatedEntityKind(),
-                        complexityWidgetParameters.complexityKindIds(),
-                        entityIdSelector);
+                        scope.cellIndex(Optional.empty()),
+                        scope.diagram.aggregatedEntityKind(),
+                        complexityWidgetParameters.complexityKindIds());
 
-        List<Application> applications = applicationDao.findByAppIdSelector(entityIdSelector);
+        List<Application> applications = applicationDao.findByAppIdSelector(scope.entityIdSelector);
         Set<ComplexityKind> complexityKinds = complexityKindDao.findAll();
 
         return ImmutableComplexityWidgetData
@@ -360,6 +394,7 @@ public class AggregateOverlayDiagramService {
     public Long save(OverlayDiagramSaveCommand saveCmd, String username) {
         Long diagramId = aggregateOverlayDiagramDao.save(saveCmd, username);
         aggregateOverlayDiagramDao.updateBackingEntities(diagramId, saveCmd.backingEntities());
+        cellIndexCache.invalidateDiagram(diagramId);
         return diagramId;
     }
 
@@ -372,13 +407,19 @@ public class AggregateOverlayDiagramService {
                                                                       IdSelectionOptions idSelectionOptions,
                                                                       AppChangeWidgetParameters overlayParameters) {
 
-        AggregateOverlayDiagram diagram = aggregateOverlayDiagramDao.getById(diagramId);
+        return getApplicationChangeWidgetData(
+                mkScope(diagramId, idSelectionOptions, Collections.emptySet()),
+                overlayParameters);
+    }
 
-        GenericSelector genericSelector = genericSelectorFactory.applyForKind(diagram.aggregatedEntityKind(), idSelectionOptions);
 
+    private ApplicationChangeWidgetData getApplicationChangeWidgetData(WidgetScope scope,
+                                                                       AppChangeWidgetParameters overlayParameters) {
+
+        // assessment filters are not applied to application changes
         Set<ApplicationChangeWidgetDatum> widgetData = appChangesWidgetDao.findWidgetData(
-                diagramId,
-                genericSelector.selector(),
+                scope.diagram.id().get(),
+                scope.genericSelector.selector(),
                 Optional.of(overlayParameters.targetDate()));
 
         return ImmutableApplicationChangeWidgetData
@@ -386,4 +427,79 @@ public class AggregateOverlayDiagramService {
                 .cellData(widgetData)
                 .build();
     }
+
+
+    /**
+     * Calculates the data for several widgets over the same diagram and selection.  The
+     * diagram, selector and cell index are only resolved once and shared between the widgets.
+     */
+    public BatchWidgetData getBatchWidgetData(long diagramId,
+                                              IdSelectionOptions idSelectionOptions,
+                                              Set<AssessmentBasedSelectionFilter> filterParams,
+                                              BatchWidgetParameters widgetParameters) {
+
+        WidgetScope scope = mkScope(diagramId, idSelectionOptions, filterParams);
+
+        return ImmutableBatchWidgetData
+                .builder()
+                .appCount(widgetParameters.appCount().map(p -> getAppCountWidgetData(scope, p)))
+                .targetAppCost(widgetParameters.targetAppCost().map(p -> getTargetAppCostWidgetData(scope, p)))
+                .appCost(widgetParameters.appCost().map(p -> getAppCostWidgetData(scope, p)))
+                .appAssessment(widgetParameters.appAssessment().map(p -> getAppAssessmentWidgetData(scope, p)))
+                .aggregatedEntities(widgetParameters.aggregatedEntities().map(p -> getAggregatedEntitiesWidgetData(scope)))
+                .appComplexity(widgetParameters.appComplexity().map(p -> getAppComplexityWidgetData(scope, p)))
+                .attestation(widgetParameters.attestation().map(p -> getAttestationWidgetData(scope, p)))
+                .appChange(widgetParameters.appChange().map(p -> getApplicationChangeWidgetData(scope, p)))
+                .backingEntities(widgetParameters.backingEntities()
+                        ? Optional.of(getBackingEntityWidgetData(diagramId))
+                        : Optional.empty())
+                .build();
+    }
+
+
+    // --- helpers
+
+    private WidgetScope mkScope(long diagramId,
+                                IdSelectionOptions idSelectionOptions,
+                                Set<AssessmentBasedSelectionFilter> filterParams) {
+        AggregateOverlayDiagram diagram = aggregateOverlayDiagramDao.getById(diagramId);
+        GenericSelector genericSelector = genericSelectorFactory.applyForKind(diagram.aggregatedEntityKind(), idSelectionOptions);
+        return new WidgetScope(diagram, idSelectionOptions, filterParams, genericSelector);
+    }
+
+
+    /**
+     * The diagram, selection and filters a widget is being drawn for.
+     */
+    private class WidgetScope {
+
+        private final AggregateOverlayDiagram diagram;
+        private final IdSelectionOptions idSelectionOptions;
+        private final Set<AssessmentBasedSelectionFilter> filterParams;
+        private final GenericSelector genericSelector;
+        private final Select<Record1<Long>> entityIdSelector;
+
+
+        private WidgetScope(AggregateOverlayDiagram diagram,
+                            IdSelectionOptions idSelectionOptions,
+                            Set<AssessmentBasedSelectionFilter> filterParams,
+                            GenericSelector genericSelector) {
+            this.diagram = diagram;
+            this.idSelectionOptions = idSelectionOptions;
+            this.filterParams = filterParams;
+            this.genericSelector = genericSelector;
+            this.entityIdSelector = applyFiltersToSelector(genericSelector, filterParams);
+        }
+
+
+        private AggregateOverlayDiagramCellIndex cellIndex(Optional<LocalDate> targetStateDate) {
+            return cellIndexCache.getIndex(
+                    diagram.id().get(),
+                    diagram.aggregatedEntityKind(),
+                    idSelectionOptions,
+                    filterParams,
+                    targetStateDate,
+                    entityIdSelector);
+        }
+    }
 }
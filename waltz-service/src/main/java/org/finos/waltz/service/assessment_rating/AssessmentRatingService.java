@@ -22,6 +22,7 @@ import org.finos.waltz.common.StringUtilities;
 import org.finos.waltz.common.exception.InsufficientPrivelegeException;
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.GenericSelectorFactory;
+import org.finos.waltz.data.IdSelectionResolver;
 import org.finos.waltz.data.assessment_definition.AssessmentDefinitionDao;
 import org.finos.waltz.data.assessment_rating.AssessmentRatingDao;
 import org.finos.waltz.data.rating_scheme.RatingSchemeDAO;
@@ -54,7 +55,7 @@ public class AssessmentRatingService {
     private final RatingSchemeDAO ratingSchemeDAO;
     private final ChangeLogService changeLogService;
     private final AssessmentRatingPermissionChecker assessmentRatingPermissionChecker;
-    private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
+    private final GenericSelectorFactory genericSelectorFactory;
 
 
     @Autowired
@@ -63,19 +64,22 @@ public class AssessmentRatingService {
             AssessmentDefinitionDao assessmentDefinitionDao,
             RatingSchemeDAO ratingSchemeDAO,
             ChangeLogService changeLogService,
-            AssessmentRatingPermissionChecker assessmentRatingPermissionChecker) {
+            AssessmentRatingPermissionChecker assessmentRatingPermissionChecker,
+            IdSelectionResolver idSelectionResolver) {
 
         checkNotNull(assessmentRatingDao, "assessmentRatingDao cannot be null");
         checkNotNull(assessmentDefinitionDao, "assessmentDefinitionDao cannot be null");
         checkNotNull(ratingSchemeDAO, "ratingSchemeDao cannot be null");
         checkNotNull(assessmentRatingPermissionChecker, "ratingPermissionChecker cannot be null");
         checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(idSelectionResolver, "idSelectionResolver cannot be null");
 
         this.assessmentRatingPermissionChecker = assessmentRatingPermissionChecker;
         this.assessmentRatingDao = assessmentRatingDao;
         this.ratingSchemeDAO = ratingSchemeDAO;
         this.assessmentDefinitionDao = assessmentDefinitionDao;
         this.changeLogService = changeLogService;
+        this.genericSelectorFactory = new GenericSelectorFactory(idSelectionResolver);
 
     }
 
@@ -34,30 +34,42 @@ import org.finos.waltz.model.*;
 import org.finos.waltz.model.attestation.*;
 import org.finos.waltz.model.person.Person;
 import org.finos.waltz.service.involvement_group.InvolvementGroupService;
+import org.jooq.DSLContext;
 import org.jooq.Record1;
 import org.jooq.Select;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.sql.Timestamp;
 import java.time.LocalDate;
 import java.util.*;
 
 import static java.lang.String.format;
 import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
 import static org.finos.waltz.common.ListUtilities.asList;
 import static org.finos.waltz.common.ListUtilities.isEmpty;
+import static org.finos.waltz.common.ListUtilities.map;
 import static org.finos.waltz.common.SetUtilities.asSet;
 import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
 import static org.finos.waltz.model.attestation.AttestationStatus.ISSUED;
-import static org.finos.waltz.model.attestation.AttestationStatus.ISSUING;
-import static org.finos.waltz.model.utils.IdUtilities.toIds;
 
 @Service
 public class AttestationRunService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(AttestationRunService.class);
+
+    private final DSLContext dsl;
     private final AttestationInstanceDao attestationInstanceDao;
     private final AttestationInstanceRecipientDao attestationInstanceRecipientDao;
     private final AttestationRunDao attestationRunDao;
@@ -66,25 +78,46 @@ public class AttestationRunService {
     private final InvolvementDao involvementDao;
     private final InvolvementGroupService involvementGroupService;
 
+    /**
+     * Number of instances (and their recipients) written per transaction when issuing a run.
+     */
+    private final int issuanceChunkSize;
+
+    /**
+     * How long an <code>ISSUING</code> run may go without progress before another
+     * attempt (e.g. on another node) may claim it and resume its issuance.
+     */
+    private final int issuanceClaimTimeoutMinutes;
+
     @Autowired
-    public AttestationRunService(AttestationInstanceDao attestationInstanceDao,
+    public AttestationRunService(DSLContext dsl,
+                                 AttestationInstanceDao attestationInstanceDao,
                                  AttestationInstanceRecipientDao attestationInstanceRecipientDao,
                                  AttestationRunDao attestationRunDao,
                                  EmailService emailService,
-                                 InvolvementDao involvementDao, InvolvementGroupService involvementGroupService) {
+                                 InvolvementDao involvementDao,
+                                 InvolvementGroupService involvementGroupService,
+                                 @Value("${attestation.issuance.chunk.size:1000}") int issuanceChunkSize,
+                                 @Value("${attestation.issuance.claim.timeout.minutes:15}") int issuanceClaimTimeoutMinutes) {
+        checkNotNull(dsl, "dsl cannot be null");
         checkNotNull(attestationInstanceRecipientDao, "attestationInstanceRecipientDao cannot be null");
         checkNotNull(attestationInstanceDao, "attestationInstanceDao cannot be null");
         checkNotNull(attestationRunDao, "attestationRunDao cannot be null");
         checkNotNull(emailService, "emailService cannot be null");
         checkNotNull(involvementDao, "involvementDao cannot be null");
         checkNotNull(involvementGroupService, "involvementGroupService cannot be null");
+        checkTrue(issuanceChunkSize > 0, "issuanceChunkSize must be positive");
+        checkTrue(issuanceClaimTimeoutMinutes >= 0, "issuanceClaimTimeoutMinutes cannot be negative");
 
+        this.dsl = dsl;
         this.attestationInstanceDao = attestationInstanceDao;
         this.attestationInstanceRecipientDao = attestationInstanceRecipientDao;
         this.attestationRunDao = attestationRunDao;
         this.emailService = emailService;
         this.involvementDao = involvementDao;
         this.involvementGroupService = involvementGroupService;
+        this.issuanceChunkSize = issuanceChunkSize;
+        this.issuanceClaimTimeoutMinutes = issuanceClaimTimeoutMinutes;
     }
 
 
@@ -147,6 +180,12 @@ public class AttestationRunService {
     }
 
     
+    /**
+     * Creates the run and issues its instances.  The run is created <code>ISSUING</code>, with
+     * the issuance claimed by this call, and only marked <code>ISSUED</code> once the last chunk
+     * of instances has been stored.  A failure part way through leaves it to be resumed by
+     * {@link #issueInstancesForPendingRuns()} once the claim has gone stale.
+     */
     public IdCommandResponse create(String userId, AttestationRunCreateCommand command) {
         // create run
         Long runId = attestationRunDao.create(userId, command);
@@ -159,7 +198,8 @@ public class AttestationRunService {
                 userId);
 
         // store
-        createAttestationInstancesAndRecipients(instanceRecipients);
+        createAttestationInstancesAndRecipients(runId, instanceRecipients);
+        attestationRunDao.updateStatus(runId, ISSUED);
 
         if (command.sendEmailNotifications()){
             emailService.sendEmailNotification(mkRef(EntityKind.ATTESTATION_RUN, runId));
@@ -235,26 +275,75 @@ public class AttestationRunService {
     }
 
 
-    private void createAttestationInstancesAndRecipients(List<AttestationInstanceRecipient> instanceRecipients) {
+    /**
+     * Stores the instances and their recipients in chunks of {@link #issuanceChunkSize} instances,
+     * each chunk is committed in its own transaction.  Instances already present in the run
+     * (i.e. committed by an earlier, interrupted, attempt) are skipped so issuance can be resumed.
+     * Each chunk refreshes the caller's issuance claim on the run, so it is not resumed elsewhere
+     * whilst it is still progressing.
+     *
+     * @return number of instances created
+     */
+    private int createAttestationInstancesAndRecipients(long runId,
+                                                        List<AttestationInstanceRecipient> instanceRecipients) {
 
-        Map<AttestationInstance, List<AttestationInstanceRecipient>> instancesAndRecipientsToSave = instanceRecipients
+        Map<AttestationInstance, Set<String>> instancesAndRecipientsToSave = instanceRecipients
                 .stream()
                 .collect(groupingBy(
                         AttestationInstanceRecipient::attestationInstance,
-                        toList()
-                ));
+                        LinkedHashMap::new,
+                        mapping(AttestationInstanceRecipient::userId, toCollection(LinkedHashSet::new))));
 
+        Set<EntityReference> alreadyIssued = attestationInstanceDao.findParentEntitiesByRunId(runId);
 
-        // insert new instances and recipients
-        instancesAndRecipientsToSave.forEach(
-                (k, v) -> {
-                    // create instance
-                    long instanceId = attestationInstanceDao.create(k);
+        List<AttestationInstance> instancesToCreate = instancesAndRecipientsToSave
+                .keySet()
+                .stream()
+                .filter(instance -> !alreadyIssued.contains(instance.parentEntity()))
+                .collect(toList());
 
-                    // create recipients for the instance
-                    v.forEach(r -> attestationInstanceRecipientDao.create(instanceId, r.userId()));
+        if (!alreadyIssued.isEmpty()) {
+            LOG.info("Resuming issuance of attestation run: {}, {} instances already issued, {} remaining",
+                    runId,
+                    alreadyIssued.size(),
+                    instancesToCreate.size());
+        }
+
+        int created = 0;
+        for (int from = 0; from < instancesToCreate.size(); from += issuanceChunkSize) {
+            List<AttestationInstance> chunk = instancesToCreate.subList(
+                    from,
+                    Math.min(from + issuanceChunkSize, instancesToCreate.size()));
+
+            created += dsl.transactionResult(ctx -> {
+                DSLContext tx = ctx.dsl();
+                if (attestationRunDao.refreshIssuanceClaim(tx, runId) == 0) {
+                    throw new IllegalStateException(format(
+                            "Attestation run: %d is no longer being issued, abandoning issuance",
+                            runId));
                 }
-        );
+
+                int instanceCount = attestationInstanceDao.bulkCreate(tx, chunk);
+
+                Map<EntityReference, Long> instanceIdsByParent = attestationInstanceDao.findIdsByRunAndParentEntities(
+                        tx,
+                        runId,
+                        map(chunk, AttestationInstance::parentEntity));
+
+                Map<Long, Set<String>> recipientsByInstanceId = chunk
+                        .stream()
+                        .collect(toMap(
+                                instance -> instanceIdsByParent.get(instance.parentEntity()),
+                                instancesAndRecipientsToSave::get));
+
+                attestationInstanceRecipientDao.bulkCreate(tx, recipientsByInstanceId);
+                return instanceCount;
+            });
+
+            LOG.debug("Issued {} of {} instances for attestation run: {}", created, instancesToCreate.size(), runId);
+        }
+
+        return created;
     }
 
 
@@ -284,27 +373,50 @@ public class AttestationRunService {
     }
 
 
+    /**
+     * Issues instances for pending runs, and resumes the issuance of any runs left
+     * <code>ISSUING</code> by an earlier failure.  Each run is claimed before it is issued, runs
+     * whose issuance is still progressing elsewhere (e.g. being created, or issued by another
+     * node) are skipped.  A run which fails is left <code>ISSUING</code> and will be resumed
+     * once its claim has gone stale, the remaining runs are still issued.
+     *
+     * @return number of runs issued
+     */
     public int issueInstancesForPendingRuns() {
 
-        Set<AttestationRun> pendingRuns = attestationRunDao.findPendingRuns();
+        Set<AttestationRun> runsToIssue = attestationRunDao.findUnissuedRuns(mkClaimStaleBefore());
 
-        List<AttestationInstanceRecipient> instanceRecipients = pendingRuns
-                .stream()
-                .flatMap(run -> generateAttestationInstanceRecipients(
-                            run.id().get(),
-                            run.attestedEntityKind(),
-                            "admin")
-                        .stream())
-                .collect(toList());
+        int issued = 0;
+        for (AttestationRun run : runsToIssue) {
+            long runId = run.id().get();
+            try {
+                if (!attestationRunDao.claimForIssuance(runId, mkClaimStaleBefore())) {
+                    LOG.info("Attestation run: {} is being issued elsewhere, skipping", runId);
+                    continue;
+                }
+
+                List<AttestationInstanceRecipient> instanceRecipients = generateAttestationInstanceRecipients(
+                        runId,
+                        run.attestedEntityKind(),
+                        "admin");
 
-        Set<Long> runsBeingIssued = toIds(pendingRuns);
-        attestationRunDao.updateStatusForRunIds(runsBeingIssued, ISSUING);
+                int created = isEmpty(instanceRecipients)
+                        ? 0
+                        : createAttestationInstancesAndRecipients(runId, instanceRecipients);
 
-        if (!isEmpty(instanceRecipients)) {
-            createAttestationInstancesAndRecipients(instanceRecipients);
+                issued += attestationRunDao.updateStatusForRunIds(asSet(runId), ISSUED);
+                LOG.info("Issued attestation run: {}, created {} instances", runId, created);
+            } catch (Exception e) {
+                LOG.error("Failed to issue attestation run: {}, it will be resumed on the next attempt", runId, e);
+            }
         }
 
-        return attestationRunDao.updateStatusForRunIds(runsBeingIssued, ISSUED);
+        return issued;
+    }
+
+
+    private Timestamp mkClaimStaleBefore() {
+        return Timestamp.valueOf(nowUtc().minusMinutes(issuanceClaimTimeoutMinutes));
     }
 
 
@@ -274,7 +274,7 @@ public class ChangeLogService {
                         .operation(operation)
                         .build());
 
-        changeLogDao.write(changeLogEntries);
+        write(changeLogEntries);
     }
 
 
@@ -4,6 +4,7 @@ import org.finos.waltz.service.complexity_kind.ComplexityKindService;
 import org.finos.waltz.common.Checks;
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.GenericSelectorFactory;
+import org.finos.waltz.data.IdSelectionResolver;
 import org.finos.waltz.data.complexity.ComplexityDao;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
@@ -24,15 +25,19 @@ public class ComplexityService {
 
     private final ComplexityDao complexityDao;
     private final ComplexityKindService complexityKindService;
-    private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
+    private final GenericSelectorFactory genericSelectorFactory;
 
 
     @Autowired
-    ComplexityService(ComplexityDao complexityDao, ComplexityKindService complexityKindService) {
+    ComplexityService(ComplexityDao complexityDao,
+                      ComplexityKindService complexityKindService,
+                      IdSelectionResolver idSelectionResolver) {
         Checks.checkNotNull(complexityDao, "complexityDao cannot be null");
         Checks.checkNotNull(complexityKindService, "complexityKindService cannot be null");
+        Checks.checkNotNull(idSelectionResolver, "idSelectionResolver cannot be null");
         this.complexityDao = complexityDao;
         this.complexityKindService = complexityKindService;
+        this.genericSelectorFactory = new GenericSelectorFactory(idSelectionResolver);
     }
 
 
@@ -20,6 +20,7 @@ package org.finos.waltz.service.cost;
 
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.GenericSelectorFactory;
+import org.finos.waltz.data.IdSelectionResolver;
 import org.finos.waltz.data.cost.CostDao;
 import org.finos.waltz.data.cost.CostKindDao;
 import org.finos.waltz.model.EntityKind;
@@ -43,17 +44,19 @@ import static org.finos.waltz.common.FunctionUtilities.time;
 public class CostService {
 
     private final CostDao costDao;
-    private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
+    private final GenericSelectorFactory genericSelectorFactory;
     private final CostKindDao costKindDao;
 
 
     @Autowired
-    CostService(CostDao costDao, CostKindDao costKindDao){
+    CostService(CostDao costDao, CostKindDao costKindDao, IdSelectionResolver idSelectionResolver){
         checkNotNull(costDao, "costDao must not be null");
         checkNotNull(costKindDao, "costKindDao must not be null");
+        checkNotNull(idSelectionResolver, "idSelectionResolver must not be null");
 
         this.costKindDao = costKindDao;
         this.costDao = costDao;
+        this.genericSelectorFactory = new GenericSelectorFactory(idSelectionResolver);
     }
 
 
@@ -19,21 +19,16 @@
 package org.finos.waltz.service.data_flow_decorator;
 
 import org.finos.waltz.service.application.ApplicationService;
-import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleResolver;
-import org.finos.waltz.data.data_type.DataTypeDao;
-import org.finos.waltz.data.flow_classification_rule.FlowClassificationDao;
+import org.finos.waltz.service.flow_classification_rule.CompactFlowClassificationRuleResolver;
+import org.finos.waltz.data.entity_hierarchy.EntityHierarchyDao;
 import org.finos.waltz.data.flow_classification_rule.FlowClassificationRuleDao;
 import org.finos.waltz.data.logical_flow.LogicalFlowDao;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.application.Application;
-import org.finos.waltz.model.datatype.DataType;
 import org.finos.waltz.model.datatype.DataTypeDecorator;
 import org.finos.waltz.model.datatype.ImmutableDataTypeDecorator;
-import org.finos.waltz.model.flow_classification.FlowClassification;
-import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
 import org.finos.waltz.model.logical_flow.LogicalFlow;
-import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -41,7 +36,6 @@ import org.springframework.stereotype.Service;
 
 import java.util.*;
 import java.util.function.Predicate;
-import java.util.stream.Collectors;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.filter;
@@ -53,86 +47,93 @@ import static org.finos.waltz.model.utils.IdUtilities.indexById;
 public class LogicalFlowDecoratorRatingsCalculator {
 
     private static final Logger LOG = LoggerFactory.getLogger(LogicalFlowDecoratorRatingsCalculator.class);
-    private static final Predicate<LogicalFlow> IS_APP_TO_APP_FLOW = f ->
-                f.target().kind() == EntityKind.APPLICATION &&
-                f.source().kind() == EntityKind.APPLICATION;
+    /**
+     * Rules are scoped by the target application's org unit, the source may be any kind
+     * (sources which are not the subject of a rule are discouraged).
+     */
+    private static final Predicate<LogicalFlow> IS_FLOW_TO_APP = f ->
+                f.target().kind() == EntityKind.APPLICATION;
 
     private final ApplicationService applicationService;
-    private final FlowClassificationDao flowClassificationDao;
+    private final EntityHierarchyDao entityHierarchyDao;
     private final FlowClassificationRuleDao flowClassificationRuleDao;
     private final LogicalFlowDao logicalFlowDao;
-    private final DataTypeDao dataTypeDao;
 
 
     @Autowired
     public LogicalFlowDecoratorRatingsCalculator(ApplicationService applicationService,
-                                                 FlowClassificationDao flowClassificationDao,
+                                                 EntityHierarchyDao entityHierarchyDao,
                                                  FlowClassificationRuleDao flowClassificationRuleDao,
-                                                 LogicalFlowDao logicalFlowDao,
-                                                 DataTypeDao dataTypeDao) {
+                                                 LogicalFlowDao logicalFlowDao) {
         checkNotNull(applicationService, "applicationService cannot be null");
-        checkNotNull(flowClassificationDao, "flowClassificationDao cannot be null");
+        checkNotNull(entityHierarchyDao, "entityHierarchyDao cannot be null");
         checkNotNull(flowClassificationRuleDao, "flowClassificationRuleDao cannot be null");
         checkNotNull(logicalFlowDao, "logicalFlowDao cannot be null");
-        checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
 
         this.applicationService = applicationService;
-        this.flowClassificationDao = flowClassificationDao;
+        this.entityHierarchyDao = entityHierarchyDao;
         this.flowClassificationRuleDao = flowClassificationRuleDao;
         this.logicalFlowDao = logicalFlowDao;
-        this.dataTypeDao = dataTypeDao;
     }
 
 
     public Collection<DataTypeDecorator>  calculate(Collection<DataTypeDecorator> decorators) {
 
-        List<LogicalFlow> appToAppFlows = filter(
-                IS_APP_TO_APP_FLOW,
+        List<LogicalFlow> flowsToApps = filter(
+                IS_FLOW_TO_APP,
                 loadFlows(decorators));
 
-        if (isEmpty(appToAppFlows)) return Collections.emptyList();
+        if (isEmpty(flowsToApps)) return Collections.emptyList();
 
-        List<Application> targetApps = loadTargetApplications(appToAppFlows);
-        List<DataType> dataTypes = dataTypeDao.findAll();
-        Set<FlowClassification> flowClassifications = flowClassificationDao.findAll();
+        List<Application> targetApps = loadTargetApplications(flowsToApps);
 
-        Map<Long, DataType> typesById = indexById(dataTypes);
-        Map<Long, LogicalFlow> flowsById = indexById(appToAppFlows);
+        Map<Long, LogicalFlow> flowsById = indexById(flowsToApps);
         Map<Long, Application> targetAppsById = indexById(targetApps);
 
-        FlowClassificationRuleResolver resolver = createResolver(targetApps);
-
-        return decorators
-                .stream()
-                .filter(d -> flowsById.containsKey(d.dataFlowId()))
-                .map(decorator -> {
-                    try {
-                        if (decorator.decoratorEntity().kind() != EntityKind.DATA_TYPE) {
-                            return decorator;
-                        } else {
-                            AuthoritativenessRatingValue rating = lookupRating(
-                                    flowsById,
-                                    targetAppsById,
-                                    resolver,
-                                    decorator);
-                            Optional<Long> ruleId = lookupFlowClassificationRule(
-                                    typesById,
-                                    flowsById,
-                                    targetAppsById,
-                                    resolver,
-                                    decorator);
-                            return ImmutableDataTypeDecorator
-                                    .copyOf(decorator)
-                                    .withRating(rating)
-                                    .withFlowClassificationRuleId(ruleId);
-                        }
-                    } catch (Exception e) {
-                        LOG.warn("Failed to calculate rating for decorator: {}, reason: {}", decorator, e.getMessage());
-                        return null;
-                    }
-                })
-                .filter(Objects::nonNull)
-                .collect(Collectors.toSet());
+        Set<DataTypeDecorator> result = new HashSet<>(decorators.size() * 2);
+        List<DataTypeDecorator> toRate = new ArrayList<>(decorators.size());
+
+        for (DataTypeDecorator decorator : decorators) {
+            LogicalFlow flow = flowsById.get(decorator.dataFlowId());
+            if (flow == null) {
+                continue;
+            }
+            if (decorator.decoratorEntity().kind() != EntityKind.DATA_TYPE) {
+                result.add(decorator);
+            } else if (! targetAppsById.containsKey(flow.target().id())) {
+                LOG.warn("Failed to calculate rating for decorator: {}, reason: cannot find target application", decorator);
+            } else {
+                toRate.add(decorator);
+            }
+        }
+
+        if (toRate.isEmpty()) return result;
+
+        CompactFlowClassificationRuleResolver resolver = createResolver(targetApps, toRate);
+
+        int count = toRate.size();
+        long[] targetOrgUnitIds = new long[count];
+        EntityReference[] sources = new EntityReference[count];
+        long[] dataTypeIds = new long[count];
+
+        for (int i = 0; i < count; i++) {
+            DataTypeDecorator decorator = toRate.get(i);
+            LogicalFlow flow = flowsById.get(decorator.dataFlowId());
+            targetOrgUnitIds[i] = targetAppsById.get(flow.target().id()).organisationalUnitId();
+            sources[i] = flow.source();
+            dataTypeIds[i] = decorator.decoratorEntity().id();
+        }
+
+        int[] outcomes = resolver.resolveAll(targetOrgUnitIds, sources, dataTypeIds);
+
+        for (int i = 0; i < count; i++) {
+            result.add(ImmutableDataTypeDecorator
+                    .copyOf(toRate.get(i))
+                    .withRating(resolver.rating(outcomes[i]))
+                    .withFlowClassificationRuleId(resolver.ruleId(outcomes[i])));
+        }
+
+        return result;
     }
 
 
@@ -152,63 +153,19 @@ public class LogicalFlowDecoratorRatingsCalculator {
     }
 
 
-    private FlowClassificationRuleResolver createResolver(Collection<Application> targetApps) {
-        Set<Long> orgIds = map(targetApps, app -> app.organisationalUnitId());
+    /**
+     * The resolver only needs the ancestors of the org units and data types being rated,
+     * the rules themselves are loaded as declared (unexpanded).
+     */
+    private CompactFlowClassificationRuleResolver createResolver(Collection<Application> targetApps,
+                                                                 Collection<DataTypeDecorator> decorators) {
+        Set<Long> orgIds = map(targetApps, Application::organisationalUnitId);
+        Set<Long> dataTypeIds = map(decorators, d -> d.decoratorEntity().id());
 
-        List<FlowClassificationRuleVantagePoint> flowClassificationRuleVantagePoints =
-                flowClassificationRuleDao.findExpandedFlowClassificationRuleVantagePoints(orgIds);
-
-        FlowClassificationRuleResolver resolver = new FlowClassificationRuleResolver(flowClassificationRuleVantagePoints);
-
-        return resolver;
+        return new CompactFlowClassificationRuleResolver(
+                flowClassificationRuleDao.findFlowClassificationRuleVantagePoints(),
+                entityHierarchyDao.findAncestors(EntityKind.ORG_UNIT, orgIds),
+                entityHierarchyDao.findAncestors(EntityKind.DATA_TYPE, dataTypeIds));
     }
 
-
-    private AuthoritativenessRatingValue lookupRating(Map<Long, LogicalFlow> flowsById,
-                                                      Map<Long, Application> targetAppsById,
-                                                      FlowClassificationRuleResolver resolver,
-                                                      DataTypeDecorator decorator) {
-
-        LogicalFlow flow = flowsById.get(decorator.dataFlowId());
-        EntityReference vantagePoint = lookupVantagePoint(targetAppsById, flow);
-        EntityReference source = flow.source();
-
-        return resolver.resolve(vantagePoint, source, decorator.decoratorEntity().id());
-    }
-
-
-    private Optional<Long> lookupFlowClassificationRule(Map<Long, DataType> typesById,
-                                                        Map<Long, LogicalFlow> flowsById,
-                                                        Map<Long, Application> targetAppsById,
-                                                        FlowClassificationRuleResolver resolver,
-                                                        DataTypeDecorator decorator) {
-        LogicalFlow flow = flowsById.get(decorator.dataFlowId());
-
-        EntityReference vantagePoint = lookupVantagePoint(targetAppsById, flow);
-        EntityReference source = flow.source();
-
-        Optional<FlowClassificationRuleVantagePoint> flowClassificationRuleVantagePoint = resolver
-                .resolveAuthSource(vantagePoint, source, decorator.dataTypeId());
-
-        return flowClassificationRuleVantagePoint
-                .map(FlowClassificationRuleVantagePoint::ruleId);
-    }
-
-
-    private EntityReference lookupVantagePoint(Map<Long, Application> targetAppsById, LogicalFlow flow) {
-        Application targetApp = targetAppsById.get(flow.target().id());
-        long targetOrgUnitId = targetApp.organisationalUnitId();
-
-        return EntityReference.mkRef(
-                EntityKind.ORG_UNIT,
-                targetOrgUnitId);
-    }
-
-
-    private String lookupDataTypeCode(Map<Long, DataType> typesById, DataTypeDecorator decorator) {
-        long dataTypeId = decorator.decoratorEntity().id();
-        return typesById.get(dataTypeId).code();
-    }
-
-
 }
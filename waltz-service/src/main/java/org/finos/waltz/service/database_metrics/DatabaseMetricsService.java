@@ -0,0 +1,97 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.database_metrics;
+
+import org.finos.waltz.model.database_metrics.DatabaseMetrics;
+import org.finos.waltz.model.database_metrics.ImmutableDatabaseMetrics;
+import org.finos.waltz.model.database_metrics.QueryStatistics;
+import org.finos.waltz.service.QueryMetricsListener;
+import org.finos.waltz.service.StatementReuseListener;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.Comparator;
+import java.util.List;
+
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+
+@Service
+public class DatabaseMetricsService {
+
+    private static final Comparator<QueryStatistics> BY_TOTAL_TIME_DESC = Comparator
+            .comparingLong(QueryStatistics::totalMicros)
+            .reversed();
+
+    private final QueryMetricsListener queryMetricsListener;
+    private final StatementReuseListener statementReuseListener;
+
+
+    @Autowired
+    public DatabaseMetricsService(QueryMetricsListener queryMetricsListener,
+                                  StatementReuseListener statementReuseListener) {
+        checkNotNull(queryMetricsListener, "queryMetricsListener cannot be null");
+        checkNotNull(statementReuseListener, "statementReuseListener cannot be null");
+        this.queryMetricsListener = queryMetricsListener;
+        this.statementReuseListener = statementReuseListener;
+    }
+
+
+    public DatabaseMetrics getMetrics(int limit) {
+        List<QueryStatistics> statistics = queryMetricsListener.getStatistics();
+        return ImmutableDatabaseMetrics
+                .builder()
+                .overall(queryMetricsListener.getOverallStatistics())
+                .trackedFingerprints(statistics.size())
+                .slowestQueries(findSlowest(statistics, limit))
+                .statementReuseRatio(statementReuseListener.getStatistics().getReuseRatio())
+                .build();
+    }
+
+
+    /**
+     * @return the fingerprints which have taken the most time in total, most expensive first
+     */
+    public List<QueryStatistics> findSlowestQueries(int limit) {
+        return findSlowest(queryMetricsListener.getStatistics(), limit);
+    }
+
+
+    public QueryStatistics getOverallStatistics() {
+        return queryMetricsListener.getOverallStatistics();
+    }
+
+
+    public void reset() {
+        queryMetricsListener.reset();
+    }
+
+
+    // --- helpers
+
+    private static List<QueryStatistics> findSlowest(List<QueryStatistics> statistics, int limit) {
+        checkTrue(limit >= 0, "limit cannot be negative");
+        return statistics
+                .stream()
+                .sorted(BY_TOTAL_TIME_DESC)
+                .limit(limit)
+                .collect(toList());
+    }
+}
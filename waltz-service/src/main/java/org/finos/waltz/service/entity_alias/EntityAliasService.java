@@ -21,6 +21,7 @@ package org.finos.waltz.service.entity_alias;
 import org.finos.waltz.common.Checks;
 import org.finos.waltz.data.entity_alias.EntityAliasDao;
 import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.service.entity_search.EntitySearchIndex;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -31,11 +32,15 @@ import java.util.List;
 public class EntityAliasService {
 
     private final EntityAliasDao entityAliasDao;
+    private final EntitySearchIndex entitySearchIndex;
 
     @Autowired
-    public EntityAliasService(EntityAliasDao entityAliasDao) {
+    public EntityAliasService(EntityAliasDao entityAliasDao,
+                              EntitySearchIndex entitySearchIndex) {
         Checks.checkNotNull(entityAliasDao, "entityAliasDao cannot be null");
+        Checks.checkNotNull(entitySearchIndex, "entitySearchIndex cannot be null");
         this.entityAliasDao = entityAliasDao;
+        this.entitySearchIndex = entitySearchIndex;
     }
 
 
@@ -45,6 +50,8 @@ public class EntityAliasService {
 
 
     public int[] updateAliases(EntityReference ref, Collection<String> aliases) {
-        return entityAliasDao.updateAliases(ref, aliases);
+        int[] rcs = entityAliasDao.updateAliases(ref, aliases);
+        entitySearchIndex.markStale(ref);
+        return rcs;
     }
 }
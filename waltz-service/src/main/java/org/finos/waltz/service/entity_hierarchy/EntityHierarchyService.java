@@ -22,9 +22,8 @@ import org.finos.waltz.schema.Tables;
 import org.finos.waltz.service.person_hierarchy.PersonHierarchyService;
 import org.finos.waltz.common.ListUtilities;
 import org.finos.waltz.common.hierarchy.FlatNode;
-import org.finos.waltz.common.hierarchy.Forest;
-import org.finos.waltz.common.hierarchy.HierarchyUtilities;
-import org.finos.waltz.common.hierarchy.Node;
+import org.finos.waltz.common.hierarchy.IndexedHierarchy;
+import org.finos.waltz.data.IdSelectionResolver;
 import org.finos.waltz.data.change_initiative.ChangeInitiativeDao;
 import org.finos.waltz.data.data_type.DataTypeDao;
 import org.finos.waltz.data.entity_hierarchy.EntityHierarchyDao;
@@ -45,13 +44,12 @@ import org.jooq.Record1;
 import org.jooq.Select;
 import org.jooq.Table;
 import org.jooq.impl.DSL;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import static org.finos.waltz.schema.Tables.ENTITY_HIERARCHY;
 import static org.finos.waltz.schema.Tables.MEASURABLE;
@@ -62,6 +60,8 @@ import static org.jooq.impl.DSL.select;
 @Service
 public class EntityHierarchyService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EntityHierarchyService.class);
+
     private final DSLContext dsl;
     private final ChangeInitiativeDao changeInitiativeDao;
     private final DataTypeDao dataTypeDao;
@@ -71,6 +71,7 @@ public class EntityHierarchyService {
     private final MeasurableDao measurableDao;
     private final OrganisationalUnitDao organisationalUnitDao;
     private final PersonHierarchyService personHierarchyService;
+    private final IdSelectionResolver idSelectionResolver;
 
     @Autowired
     public EntityHierarchyService(DSLContext dsl,
@@ -80,7 +81,8 @@ public class EntityHierarchyService {
                                   EntityStatisticDao entityStatisticDao,
                                   MeasurableDao measurableDao, 
                                   OrganisationalUnitDao organisationalUnitDao,
-                                  PersonHierarchyService personHierarchyService) {
+                                  PersonHierarchyService personHierarchyService,
+                                  IdSelectionResolver idSelectionResolver) {
 
         checkNotNull(dsl, "dsl cannot be null");
         checkNotNull(changeInitiativeDao, "changeInitiativeDao cannot be null");
@@ -90,6 +92,7 @@ public class EntityHierarchyService {
         checkNotNull(measurableDao, "measurableDao cannot be null");
         checkNotNull(organisationalUnitDao, "organisationalUnitDao cannot be null");
         checkNotNull(personHierarchyService, "personHierarchyService cannot be null");
+        checkNotNull(idSelectionResolver, "idSelectionResolver cannot be null");
 
         this.dsl = dsl;
         this.changeInitiativeDao = changeInitiativeDao;
@@ -99,6 +102,7 @@ public class EntityHierarchyService {
         this.measurableDao = measurableDao;
         this.organisationalUnitDao = organisationalUnitDao;
         this.personHierarchyService = personHierarchyService;
+        this.idSelectionResolver = idSelectionResolver;
     }
 
 
@@ -147,6 +151,7 @@ public class EntityHierarchyService {
     public int buildFor(EntityKind kind) {
         if (kind == PERSON) {
             int[] rc = personHierarchyService.build();
+            idSelectionResolver.invalidateKind(PERSON);
             return rc.length;
         } else {
             Table<?> table = determineTableToRebuild(kind);
@@ -168,11 +173,13 @@ public class EntityHierarchyService {
     private int buildFor(Table<?> table,
                          EntityKind kind,
                          Condition selectFilter,
-                         Condition deleteFilter) {
+                         Condition scopeFilter) {
         Collection<FlatNode<Long, Long>> flatNodes = fetchFlatNodes(table, selectFilter);
         List<EntityHierarchyItem> hierarchyItems = convertFlatNodesToHierarchyItems(kind, flatNodes);
 
-        return entityHierarchyDao.replaceHierarchy(kind, hierarchyItems, deleteFilter);
+        int rc = entityHierarchyDao.updateHierarchy(kind, hierarchyItems, scopeFilter);
+        idSelectionResolver.invalidateKind(kind);
+        return rc;
     }
 
 
@@ -197,55 +204,35 @@ public class EntityHierarchyService {
 
     private List<EntityHierarchyItem> convertFlatNodesToHierarchyItems(EntityKind kind,
                                                                        Collection<FlatNode<Long, Long>> flatNodes) {
-        Forest<Long, Long> forest = HierarchyUtilities.toForest(flatNodes);
-        Map<Long, Integer> idToLevel = HierarchyUtilities.assignDepths(forest);
-
-        return forest.getAllNodes()
-                .values()
-                .stream()
-                .flatMap(streamItemsForNode(kind, idToLevel))
-                .collect(Collectors.toList());
-    }
-
-
-    private Function<Node<Long, Long>, Stream<? extends EntityHierarchyItem>> streamItemsForNode(EntityKind kind,
-                                                                                                 Map<Long, Integer> idToLevel) {
-        return node -> Stream
-                .concat(
-                    streamAncestors(kind, idToLevel, node),
-                    streamSelf(kind, idToLevel, node));
-    }
+        IndexedHierarchy<Long> hierarchy = IndexedHierarchy.fromFlatNodes(flatNodes);
 
+        if (hierarchy.hasCycle()) {
+            LOG.warn("Hierarchy for kind: {} contains cycles, affected nodes will only be linked to themselves", kind);
+        }
 
-    private Stream<EntityHierarchyItem> streamSelf(EntityKind kind,
-                                                   Map<Long, Integer> idToLevel,
-                                                   Node<Long, Long> node) {
-        Long nodeId = node.getId();
-        Integer level = idToLevel.get(nodeId);
-        ImmutableEntityHierarchyItem selfAsEntityHierarchyItem = ImmutableEntityHierarchyItem.builder()
-                .id(nodeId)
-                .parentId(nodeId)
-                .ancestorLevel(level == null ? -1 : level)
-                .descendantLevel(idToLevel.getOrDefault(node.getId(), -1))
-                .kind(kind)
-                .build();
-        return Stream.of(selfAsEntityHierarchyItem);
+        List<EntityHierarchyItem> items = new ArrayList<>(hierarchy.closureSize(true));
+        hierarchy.forEachClosureRow(
+                true,
+                (descendant, ancestor) -> items.add(ImmutableEntityHierarchyItem.builder()
+                        .id(hierarchy.key(descendant))
+                        .parentId(hierarchy.key(ancestor))
+                        .ancestorLevel(toLevel(hierarchy, ancestor))
+                        .descendantLevel(toLevel(hierarchy, descendant))
+                        .kind(kind)
+                        .build()));
+
+        return items;
     }
 
 
-    private Stream<EntityHierarchyItem> streamAncestors(EntityKind kind,
-                                                        Map<Long, Integer> idToLevel,
-                                                        Node<Long, Long> node) {
-        return HierarchyUtilities
-            .parents(node)
-            .stream()
-            .map(p -> ImmutableEntityHierarchyItem.builder()
-                    .id(node.getId())
-                    .parentId(p.getId())
-                    .ancestorLevel(idToLevel.get(p.getId()))
-                    .descendantLevel(idToLevel.getOrDefault(node.getId(), -1))
-                    .kind(kind)
-                    .build());
+    /**
+     * Nodes which are not beneath a genuine root (i.e. their parent is missing, or they are part
+     * of a cycle) are given a level of -1.
+     */
+    private static int toLevel(IndexedHierarchy<Long> hierarchy, int index) {
+        return hierarchy.isRooted(index)
+                ? hierarchy.depth(index)
+                : -1;
     }
 
 
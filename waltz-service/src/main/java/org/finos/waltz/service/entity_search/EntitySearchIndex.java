@@ -0,0 +1,501 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.entity_search;
+
+import org.finos.waltz.data.SearchUtilities;
+import org.finos.waltz.data.changelog.ChangeLogListener;
+import org.finos.waltz.data.entity_search.EntitySearchDocumentDao;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.entity_search.EntitySearchDocument;
+import org.finos.waltz.model.entity_search.EntitySearchOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.toList;
+
+/**
+ * In-memory inverted index over the names, external ids, aliases and descriptions
+ * of the entity kinds supported by the {@link EntitySearchDocumentDao}.
+ *
+ * Each term of a query is matched against the index using:
+ * <ul>
+ *     <li>prefix matching on the words of each attribute (and whole external ids)</li>
+ *     <li>trigram matching, to find the term anywhere within a name, external id or alias</li>
+ * </ul>
+ * An entity must match every term (or have an external id starting with any term).  Matches
+ * are ranked by where each term was found, e.g. an exact external id match ranks higher
+ * than a word in the description.
+ *
+ * The index for each kind is loaded in full, and subsequently kept up to date by marking
+ * individual entities as stale as they change.  Changes made outside of Waltz are picked
+ * up when the index for a kind exceeds its time-to-live and is reloaded.
+ */
+@Service
+public class EntitySearchIndex implements ChangeLogListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(EntitySearchIndex.class);
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int GRAM_SIZE = 3;
+
+    private static final int EXACT_EXTERNAL_ID_SCORE = 100;
+    private static final int EXACT_NAME_SCORE = 90;
+    private static final int EXTERNAL_ID_PREFIX_SCORE = 80;
+    private static final int NAME_PREFIX_SCORE = 70;
+    private static final int ALIAS_SCORE = 60;
+    private static final int NAME_WORD_PREFIX_SCORE = 50;
+    private static final int ALIAS_WORD_PREFIX_SCORE = 40;
+    private static final int NAME_CONTAINS_SCORE = 30;
+    private static final int OTHER_CONTAINS_SCORE = 20;
+    private static final int DESCRIPTION_WORD_PREFIX_SCORE = 10;
+
+    private final boolean enabled;
+    private final long ttlMillis;
+    private final Map<EntityKind, KindIndex> indexesByKind = new ConcurrentHashMap<>();
+    private final Map<EntityKind, Set<Long>> staleIdsByKind = new ConcurrentHashMap<>();
+
+    /**
+     * Kinds whose documents are being read, changes to these are recorded as stale (even if
+     * there is no index yet) as the documents may have been read before the change was made.
+     */
+    private final Set<EntityKind> loadingKinds = ConcurrentHashMap.newKeySet();
+
+
+    @Autowired
+    public EntitySearchIndex(@Value("${entity_search.index.enabled:true}") boolean enabled,
+                             @Value("${entity_search.index.ttl.minutes:60}") int ttlMinutes) {
+        this.enabled = enabled;
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+    }
+
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+
+    public boolean isLoaded(EntityKind kind) {
+        return enabled && indexesByKind.containsKey(kind);
+    }
+
+
+    /**
+     * @return true if the kind is supported but has not been loaded, or its index has expired
+     */
+    public boolean needsLoad(EntityKind kind) {
+        if (!enabled || !EntitySearchDocumentDao.supportedKinds().contains(kind)) {
+            return false;
+        }
+        KindIndex index = indexesByKind.get(kind);
+        return index == null || System.currentTimeMillis() - index.loadedAt > ttlMillis;
+    }
+
+
+    /**
+     * Replaces the index for the kind with the documents provided by the loader.  Entities
+     * marked as stale whilst the documents are being read are retained as stale, so they are
+     * refreshed (via {@link #drainStale(EntityKind)}) once the index is in place.
+     */
+    public void load(EntityKind kind,
+                     Supplier<Collection<EntitySearchDocument>> documentLoader) {
+        loadingKinds.add(kind);
+        try {
+            Collection<EntitySearchDocument> documents = documentLoader.get();
+            KindIndex index = new KindIndex();
+            documents.forEach(index::add);
+            indexesByKind.put(kind, index);
+            LOG.info("Loaded search index for {}, {} documents", kind, documents.size());
+        } finally {
+            loadingKinds.remove(kind);
+            if (!indexesByKind.containsKey(kind)) {
+                // failed initial load, the next attempt will read everything afresh
+                staleIdsByKind.remove(kind);
+            }
+        }
+    }
+
+
+    public void load(EntityKind kind,
+                     Collection<EntitySearchDocument> documents) {
+        load(kind, () -> documents);
+    }
+
+
+    /**
+     * Replaces the documents for the given ids, any id without a corresponding
+     * document is removed from the index.
+     */
+    public void update(EntityKind kind,
+                       Collection<Long> ids,
+                       Collection<EntitySearchDocument> documents) {
+        KindIndex index = indexesByKind.get(kind);
+        if (index == null) {
+            return;
+        }
+        index.lock.writeLock().lock();
+        try {
+            ids.forEach(index::remove);
+            documents.forEach(index::add);
+        } finally {
+            index.lock.writeLock().unlock();
+        }
+    }
+
+
+    public void markStale(EntityReference ref) {
+        if (isLoaded(ref.kind()) || loadingKinds.contains(ref.kind())) {
+            staleIdsByKind.compute(ref.kind(), (k, ids) -> {
+                Set<Long> stale = ids == null ? new HashSet<>() : ids;
+                stale.add(ref.id());
+                return stale;
+            });
+        }
+    }
+
+
+    @Override
+    public void onChangeLogs(Collection<ChangeLog> changeLogs) {
+        markStale(changeLogs);
+    }
+
+
+    public void markStale(Collection<ChangeLog> changeLogs) {
+        changeLogs.forEach(cl -> markStale(cl.parentReference()));
+    }
+
+
+    /**
+     * @return ids of entities (of the given kind) which have changed since the last call, may be empty
+     */
+    public Set<Long> drainStale(EntityKind kind) {
+        Set<Long> stale = staleIdsByKind.remove(kind);
+        return stale == null
+                ? Collections.emptySet()
+                : stale;
+    }
+
+
+    public List<EntityReference> search(EntityKind kind,
+                                        EntitySearchOptions options) {
+        KindIndex index = indexesByKind.get(kind);
+        if (index == null) {
+            return Collections.emptyList();
+        }
+
+        List<String> terms = SearchUtilities
+                .mkTerms(options.searchQuery())
+                .stream()
+                .map(t -> t.toLowerCase(Locale.ROOT))
+                .collect(toList());
+
+        if (terms.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        index.lock.readLock().lock();
+        try {
+            return index
+                    .findCandidates(terms)
+                    .stream()
+                    .map(index.docsById::get)
+                    .filter(d -> !d.document.lifecycleFiltered()
+                            || options.entityLifecycleStatuses().contains(d.document.entityReference().entityLifecycleStatus()))
+                    .map(d -> new ScoredDocument(d, score(d, terms)))
+                    .filter(sd -> sd.score > 0)
+                    .sorted(Comparator
+                            .comparingInt((ScoredDocument sd) -> sd.score).reversed()
+                            .thenComparing(sd -> sd.document.name))
+                    .limit(options.limit())
+                    .map(sd -> sd.document.document.entityReference())
+                    .collect(toList());
+        } finally {
+            index.lock.readLock().unlock();
+        }
+    }
+
+
+    // --- scoring
+
+    private static int score(IndexedDocument doc, List<String> terms) {
+        int total = 0;
+        boolean allTermsMatched = true;
+        boolean externalIdMatched = false;
+
+        for (String term : terms) {
+            int termScore = Math.max(
+                    scoreExternalId(doc, term),
+                    Math.max(scoreName(doc, term), scoreOther(doc, term)));
+            externalIdMatched |= doc.externalId.startsWith(term);
+            allTermsMatched &= termScore > 0;
+            total += termScore;
+        }
+
+        return allTermsMatched || externalIdMatched
+                ? total
+                : 0;
+    }
+
+
+    private static int scoreExternalId(IndexedDocument doc, String term) {
+        if (doc.externalId.equals(term)) {
+            return EXACT_EXTERNAL_ID_SCORE;
+        } else if (doc.externalId.startsWith(term)) {
+            return EXTERNAL_ID_PREFIX_SCORE;
+        } else if (doc.externalId.contains(term)) {
+            return OTHER_CONTAINS_SCORE;
+        } else {
+            return 0;
+        }
+    }
+
+
+    private static int scoreName(IndexedDocument doc, String term) {
+        if (doc.name.equals(term)) {
+            return EXACT_NAME_SCORE;
+        } else if (doc.name.startsWith(term)) {
+            return NAME_PREFIX_SCORE;
+        } else if (anyStartsWith(doc.nameTokens, term)) {
+            return NAME_WORD_PREFIX_SCORE;
+        } else if (doc.name.contains(term)) {
+            return NAME_CONTAINS_SCORE;
+        } else {
+            return 0;
+        }
+    }
+
+
+    private static int scoreOther(IndexedDocument doc, String term) {
+        int best = 0;
+        for (String alias : doc.aliases) {
+            if (alias.equals(term) || alias.startsWith(term)) {
+                return ALIAS_SCORE;
+            } else if (anyStartsWith(tokenise(alias), term)) {
+                best = Math.max(best, ALIAS_WORD_PREFIX_SCORE);
+            } else if (alias.contains(term)) {
+                best = Math.max(best, OTHER_CONTAINS_SCORE);
+            }
+        }
+        if (best == 0 && anyStartsWith(doc.descriptionTokens, term)) {
+            best = DESCRIPTION_WORD_PREFIX_SCORE;
+        }
+        return best;
+    }
+
+
+    private static boolean anyStartsWith(Collection<String> tokens, String term) {
+        for (String token : tokens) {
+            if (token.startsWith(term)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+
+    // --- text processing
+
+    private static String normalise(String str) {
+        return str == null
+                ? ""
+                : str.toLowerCase(Locale.ROOT).trim();
+    }
+
+
+    private static List<String> tokenise(String normalisedStr) {
+        List<String> tokens = new ArrayList<>();
+        for (String token : TOKEN_SEPARATOR.split(normalisedStr)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+
+    private static Set<String> mkGrams(String normalisedStr) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_SIZE <= normalisedStr.length(); i++) {
+            grams.add(normalisedStr.substring(i, i + GRAM_SIZE));
+        }
+        return grams;
+    }
+
+
+    // --- index structures
+
+    private static class KindIndex {
+
+        private final long loadedAt = System.currentTimeMillis();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Long, IndexedDocument> docsById = new HashMap<>();
+        private final NavigableMap<String, Set<Long>> postingsByToken = new TreeMap<>();
+        private final Map<String, Set<Long>> postingsByGram = new HashMap<>();
+
+
+        private void add(EntitySearchDocument document) {
+            long id = document.entityReference().id();
+            remove(id);
+            IndexedDocument doc = new IndexedDocument(document);
+            docsById.put(id, doc);
+            doc.tokens.forEach(t -> postingsByToken.computeIfAbsent(t, k -> new HashSet<>()).add(id));
+            doc.grams.forEach(g -> postingsByGram.computeIfAbsent(g, k -> new HashSet<>()).add(id));
+        }
+
+
+        private void remove(long id) {
+            IndexedDocument doc = docsById.remove(id);
+            if (doc != null) {
+                doc.tokens.forEach(t -> removePosting(postingsByToken, t, id));
+                doc.grams.forEach(g -> removePosting(postingsByGram, g, id));
+            }
+        }
+
+
+        private Set<Long> findCandidates(List<String> terms) {
+            Set<Long> matchingAllTerms = null;
+            Set<Long> externalIdMatches = new HashSet<>();
+
+            for (String term : terms) {
+                Set<Long> termMatches = findTermCandidates(term);
+                termMatches
+                        .stream()
+                        .filter(id -> docsById.get(id).externalId.startsWith(term))
+                        .forEach(externalIdMatches::add);
+
+                if (matchingAllTerms == null) {
+                    matchingAllTerms = termMatches;
+                } else {
+                    matchingAllTerms.retainAll(termMatches);
+                }
+            }
+
+            matchingAllTerms.addAll(externalIdMatches);
+            return matchingAllTerms;
+        }
+
+
+        private Set<Long> findTermCandidates(String term) {
+            Set<Long> candidates = new HashSet<>();
+            postingsByToken
+                    .subMap(term, true, term + Character.MAX_VALUE, true)
+                    .values()
+                    .forEach(candidates::addAll);
+
+            if (term.length() >= GRAM_SIZE) {
+                List<Set<Long>> gramPostings = mkGrams(term)
+                        .stream()
+                        .map(g -> postingsByGram.getOrDefault(g, Collections.emptySet()))
+                        .sorted(Comparator.comparingInt(Set::size))
+                        .collect(toList());
+
+                Set<Long> containsTerm = new HashSet<>(gramPostings.get(0));
+                gramPostings.subList(1, gramPostings.size()).forEach(containsTerm::retainAll);
+                candidates.addAll(containsTerm);
+            }
+
+            return candidates;
+        }
+
+
+        private static void removePosting(Map<String, Set<Long>> postings, String key, long id) {
+            Set<Long> ids = postings.get(key);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(key);
+                }
+            }
+        }
+    }
+
+
+    private static class IndexedDocument {
+
+        private final EntitySearchDocument document;
+        private final String name;
+        private final String externalId;
+        private final List<String> aliases;
+        private final List<String> nameTokens;
+        private final Set<String> descriptionTokens;
+        private final Set<String> tokens = new HashSet<>();
+        private final Set<String> grams = new HashSet<>();
+
+
+        private IndexedDocument(EntitySearchDocument document) {
+            EntityReference ref = document.entityReference();
+            this.document = document;
+            this.name = normalise(ref.name().orElse(null));
+            this.externalId = normalise(ref.externalId().orElse(null));
+            this.aliases = document.aliases().stream().map(EntitySearchIndex::normalise).collect(toList());
+            this.nameTokens = tokenise(name);
+            this.descriptionTokens = new HashSet<>(tokenise(normalise(ref.description())));
+
+            tokens.addAll(nameTokens);
+            tokens.addAll(descriptionTokens);
+            grams.addAll(mkGrams(name));
+            if (!externalId.isEmpty()) {
+                tokens.add(externalId);
+                tokens.addAll(tokenise(externalId));
+                grams.addAll(mkGrams(externalId));
+            }
+            aliases.forEach(a -> {
+                tokens.add(a);
+                tokens.addAll(tokenise(a));
+                grams.addAll(mkGrams(a));
+            });
+        }
+    }
+
+
+    private static class ScoredDocument {
+
+        private final IndexedDocument document;
+        private final int score;
+
+
+        private ScoredDocument(IndexedDocument document, int score) {
+            this.document = document;
+            this.score = score;
+        }
+    }
+
+}
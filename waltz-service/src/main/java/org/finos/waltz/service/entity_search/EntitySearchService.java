@@ -37,26 +37,35 @@ import org.finos.waltz.service.software_catalog.SoftwareCatalogService;
 import org.finos.waltz.common.StringUtilities;
 import org.finos.waltz.data.DBExecutorPoolInterface;
 import org.finos.waltz.data.SearchUtilities;
+import org.finos.waltz.data.entity_search.EntitySearchDocumentDao;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.WaltzEntity;
 import org.finos.waltz.model.entity_search.EntitySearchOptions;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Future;
 
 import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.FunctionUtilities.time;
 import static org.jooq.lambda.Unchecked.supplier;
 
 @Service
 public class EntitySearchService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(EntitySearchService.class);
+
     private final DBExecutorPoolInterface dbExecutorPool;
     private final ActorService actorService;
     private final ApplicationService applicationService;
@@ -74,6 +83,9 @@ public class EntitySearchService {
     private final FlowDiagramService flowDiagramService;
     private final LegalEntityService legalEntityService;
     private final DatabaseInformationService databaseInformationService;
+    private final EntitySearchIndex entitySearchIndex;
+    private final EntitySearchDocumentDao entitySearchDocumentDao;
+    private final Set<EntityKind> indexLoadsInProgress = ConcurrentHashMap.newKeySet();
 
 
     @Autowired
@@ -93,7 +105,9 @@ public class EntitySearchService {
                                SoftwareCatalogService softwareCatalogService,
                                FlowDiagramService flowDiagramService,
                                LegalEntityService legalEntityService,
-                               DatabaseInformationService databaseInformationService) {
+                               DatabaseInformationService databaseInformationService,
+                               EntitySearchIndex entitySearchIndex,
+                               EntitySearchDocumentDao entitySearchDocumentDao) {
 
         checkNotNull(dbExecutorPool, "dbExecutorPool cannot be null");
         checkNotNull(actorService, "actorService cannot be null");
@@ -112,6 +126,8 @@ public class EntitySearchService {
         checkNotNull(softwareCatalogService, "softwareCatalogService cannot be null");
         checkNotNull(legalEntityService, "legalEntityService cannot be null");
         checkNotNull(databaseInformationService, "databaseInformationService cannot be null");
+        checkNotNull(entitySearchIndex, "entitySearchIndex cannot be null");
+        checkNotNull(entitySearchDocumentDao, "entitySearchDocumentDao cannot be null");
 
         this.actorService = actorService;
         this.dbExecutorPool = dbExecutorPool;
@@ -130,6 +146,8 @@ public class EntitySearchService {
         this.softwareCatalogService = softwareCatalogService;
         this.legalEntityService = legalEntityService;
         this.databaseInformationService = databaseInformationService;
+        this.entitySearchIndex = entitySearchIndex;
+        this.entitySearchDocumentDao = entitySearchDocumentDao;
     }
 
 
@@ -141,15 +159,66 @@ public class EntitySearchService {
             return Collections.emptyList();
         }
 
-        List<Future<Collection<? extends WaltzEntity>>> futures = options
+        List<Future<List<EntityReference>>> futures = options
                 .entityKinds()
                 .stream()
-                .map(ek -> dbExecutorPool.submit(mkCallable(ek, options)))
+                .map(ek -> prepareIndex(ek)
+                        ? CompletableFuture.completedFuture(entitySearchIndex.search(ek, options))
+                        : dbExecutorPool.submit(mkDatabaseCallable(ek, options)))
                 .collect(toList());
 
         return futures
                 .stream()
                 .flatMap(f -> supplier(f::get).get().stream())
+                .collect(toList());
+    }
+
+
+    /**
+     * Determines if the in-memory index can be used to search the given kind, applying any
+     * outstanding changes to the index.  If the index has not been loaded (or has expired) a
+     * background load is started, until the initial load completes the database search is used.
+     *
+     * @return true if the index should be used to search this kind
+     */
+    private boolean prepareIndex(EntityKind entityKind) {
+        if (entitySearchIndex.needsLoad(entityKind) && indexLoadsInProgress.add(entityKind)) {
+            dbExecutorPool.submit(() -> {
+                try {
+                    entitySearchIndex.load(
+                            entityKind,
+                            () -> time("loading search index: " + entityKind, () -> entitySearchDocumentDao.findByKind(entityKind)));
+                } catch (Exception e) {
+                    LOG.warn("Failed to load search index for {}, will continue to search via database", entityKind, e);
+                } finally {
+                    indexLoadsInProgress.remove(entityKind);
+                }
+                return null;
+            });
+        }
+
+        if (!entitySearchIndex.isLoaded(entityKind)) {
+            return false;
+        }
+
+        Set<Long> staleIds = entitySearchIndex.drainStale(entityKind);
+        if (!staleIds.isEmpty()) {
+            entitySearchIndex.update(
+                    entityKind,
+                    staleIds,
+                    entitySearchDocumentDao.findByKindAndIds(entityKind, staleIds));
+        }
+
+        return true;
+    }
+
+
+    private Callable<List<EntityReference>> mkDatabaseCallable(EntityKind entityKind,
+                                                               EntitySearchOptions options) {
+        Callable<Collection<? extends WaltzEntity>> callable = mkCallable(entityKind, options);
+        return () -> callable
+                .call()
+                .stream()
                 .map(WaltzEntity::entityReference)
                 .collect(toList());
     }
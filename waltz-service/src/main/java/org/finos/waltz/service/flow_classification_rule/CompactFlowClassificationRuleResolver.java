@@ -0,0 +1,366 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.flow_classification_rule;
+
+import org.finos.waltz.common.LongIntHashMap;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * Resolves flow ratings from the <em>declared</em> flow classification rules, rather than
+ * the pre-expanded vantage points used by {@link FlowClassificationRuleResolver}.
+ *
+ * Org units, data types and sources are interned to dense indexes and each
+ * (org unit, data type, source) triple is packed into a single <code>long</code>
+ * key held in a primitive open addressing map.  For every org unit and data type in
+ * the supplied hierarchies the ancestors which declare rules are precomputed, most
+ * specific first, so resolution is a short walk of primitive lookups.  The most specific
+ * org unit wins, then the most specific data type, giving the same outcome as ranking
+ * the expanded vantage points.
+ *
+ * Resolution yields an <em>outcome</em>: the index of the matching rule, or one of
+ * {@link #NO_OPINION} / {@link #DISCOURAGED}.  Use {@link #rating(int)} and
+ * {@link #ruleId(int)} to interpret it.
+ *
+ * Not thread safe, the precedence ordered scopes for each combination of org unit and
+ * data type are cached as they are first encountered.
+ */
+public class CompactFlowClassificationRuleResolver {
+
+    public static final int NO_OPINION = -1;
+    public static final int DISCOURAGED = -2;
+
+    private static final int MISSING = -1;
+    private static final long[] NO_SCOPES = new long[0];
+
+    private final AuthoritativenessRatingValue[] ratings;
+    private final long[] ruleIds;
+
+    /** rule declaring org unit id -> dense index */
+    private final LongIntHashMap orgUnitIndex;
+    /** rule data type id -> dense index */
+    private final LongIntHashMap dataTypeIndex;
+    /** packed subject reference -> dense index */
+    private final LongIntHashMap sourceIndex;
+
+    /** org unit id -> position in orgUnitFallbacks */
+    private final LongIntHashMap orgUnitFallbackIndex;
+    private final int[][] orgUnitFallbacks;
+    /** data type id -> position in dataTypeFallbacks */
+    private final LongIntHashMap dataTypeFallbackIndex;
+    private final int[][] dataTypeFallbacks;
+
+    private final int dataTypeBits;
+    private final int sourceBits;
+
+    /** packed (org unit, data type) -> 1, present if any rule is declared for the pair */
+    private final LongIntHashMap declaredScopes;
+    /** packed (org unit, data type, source) -> rule index */
+    private final LongIntHashMap rulesByKey;
+
+    /**
+     * (org unit fallbacks, data type fallbacks) -> position in scopeLists, populated
+     * lazily as most flows share a handful of combinations
+     */
+    private final LongIntHashMap scopeListIndex;
+    /** declared scopes, most specific first */
+    private final List<long[]> scopeLists = new ArrayList<>();
+
+
+    /**
+     * @param declaredRules       rules as declared, i.e. one per rule at its own org unit and data type
+     *                            (see <code>FlowClassificationRuleDao.findFlowClassificationRuleVantagePoints</code>)
+     * @param orgUnitHierarchy    ancestor rows for (at least) the org units which will be resolved against
+     * @param dataTypeHierarchy   ancestor rows for (at least) the data types which will be resolved against
+     */
+    public CompactFlowClassificationRuleResolver(Collection<FlowClassificationRuleVantagePoint> declaredRules,
+                                                 Collection<EntityHierarchyItem> orgUnitHierarchy,
+                                                 Collection<EntityHierarchyItem> dataTypeHierarchy) {
+        checkNotNull(declaredRules, "declaredRules cannot be null");
+        checkNotNull(orgUnitHierarchy, "orgUnitHierarchy cannot be null");
+        checkNotNull(dataTypeHierarchy, "dataTypeHierarchy cannot be null");
+
+        int ruleCount = declaredRules.size();
+        ratings = new AuthoritativenessRatingValue[ruleCount];
+        ruleIds = new long[ruleCount];
+        orgUnitIndex = new LongIntHashMap(ruleCount, MISSING);
+        dataTypeIndex = new LongIntHashMap(ruleCount, MISSING);
+        sourceIndex = new LongIntHashMap(ruleCount, MISSING);
+
+        int[] ruleOrgUnits = new int[ruleCount];
+        int[] ruleDataTypes = new int[ruleCount];
+        int[] ruleSources = new int[ruleCount];
+        Map<String, AuthoritativenessRatingValue> ratingsByCode = new HashMap<>();
+
+        int r = 0;
+        for (FlowClassificationRuleVantagePoint rule : declaredRules) {
+            ratings[r] = ratingsByCode.computeIfAbsent(rule.classificationCode(), AuthoritativenessRatingValue::of);
+            ruleIds[r] = rule.ruleId();
+            ruleOrgUnits[r] = intern(orgUnitIndex, rule.vantagePoint().id());
+            ruleDataTypes[r] = intern(dataTypeIndex, rule.dataType().id());
+            ruleSources[r] = intern(sourceIndex, packRef(rule.subjectReference()));
+            r++;
+        }
+
+        int orgUnitBits = bitsFor(orgUnitIndex.size());
+        dataTypeBits = bitsFor(dataTypeIndex.size());
+        sourceBits = bitsFor(sourceIndex.size());
+        checkTrue(
+                orgUnitBits + dataTypeBits + sourceBits <= 63,
+                "Too many distinct org units, data types and sources to pack into a single key");
+
+        declaredScopes = new LongIntHashMap(ruleCount, MISSING);
+        rulesByKey = new LongIntHashMap(ruleCount, MISSING);
+        for (int i = 0; i < ruleCount; i++) {
+            long scope = packScope(ruleOrgUnits[i], ruleDataTypes[i]);
+            declaredScopes.put(scope, 1);
+            // first declaration wins for duplicates, as with the ranked resolver
+            rulesByKey.putIfAbsent(packKey(scope, ruleSources[i]), i);
+        }
+
+        List<int[]> orgUnitFallbackList = new ArrayList<>();
+        orgUnitFallbackIndex = mkFallbacks(orgUnitHierarchy, orgUnitIndex, orgUnitFallbackList);
+        orgUnitFallbacks = orgUnitFallbackList.toArray(new int[0][]);
+
+        List<int[]> dataTypeFallbackList = new ArrayList<>();
+        dataTypeFallbackIndex = mkFallbacks(dataTypeHierarchy, dataTypeIndex, dataTypeFallbackList);
+        dataTypeFallbacks = dataTypeFallbackList.toArray(new int[0][]);
+
+        scopeListIndex = new LongIntHashMap(orgUnitFallbacks.length, MISSING);
+    }
+
+
+    /**
+     * @param targetOrgUnitId  the org unit of the consuming application
+     * @param source           the providing entity
+     * @param dataTypeId       the data type in question
+     * @return the outcome, a rule index, {@link #NO_OPINION} or {@link #DISCOURAGED}
+     */
+    public int resolveOutcome(long targetOrgUnitId,
+                              EntityReference source,
+                              long dataTypeId) {
+        int orgUnitPosition = orgUnitFallbackIndex.get(targetOrgUnitId);
+        if (orgUnitPosition == MISSING) {
+            return NO_OPINION;
+        }
+        int dataTypePosition = dataTypeFallbackIndex.get(dataTypeId);
+        if (dataTypePosition == MISSING) {
+            return NO_OPINION;
+        }
+
+        long[] scopes = lookupScopes(orgUnitPosition, dataTypePosition);
+        if (scopes.length == 0) {
+            return NO_OPINION;
+        }
+
+        int sourceIdx = sourceIndex.get(packRef(source));
+        if (sourceIdx != MISSING) {
+            for (long scope : scopes) {
+                int rule = rulesByKey.get(packKey(scope, sourceIdx));
+                if (rule != MISSING) {
+                    return rule;
+                }
+            }
+        }
+        return DISCOURAGED;
+    }
+
+
+    /**
+     * Resolves outcomes for many flows at once, the arrays are indexed by flow.
+     *
+     * @return outcome for each flow
+     */
+    public int[] resolveAll(long[] targetOrgUnitIds,
+                            EntityReference[] sources,
+                            long[] dataTypeIds) {
+        checkNotNull(targetOrgUnitIds, "targetOrgUnitIds cannot be null");
+        checkNotNull(sources, "sources cannot be null");
+        checkNotNull(dataTypeIds, "dataTypeIds cannot be null");
+        checkTrue(
+                targetOrgUnitIds.length == sources.length && sources.length == dataTypeIds.length,
+                "targetOrgUnitIds, sources and dataTypeIds must be the same length");
+
+        int[] outcomes = new int[sources.length];
+        for (int i = 0; i < outcomes.length; i++) {
+            outcomes[i] = resolveOutcome(targetOrgUnitIds[i], sources[i], dataTypeIds[i]);
+        }
+        return outcomes;
+    }
+
+
+    /**
+     * Equivalent to {@link FlowClassificationRuleResolver#resolve(EntityReference, EntityReference, Long)}.
+     */
+    public AuthoritativenessRatingValue resolve(EntityReference vantagePoint,
+                                                EntityReference source,
+                                                Long dataTypeId) {
+        return rating(resolveOutcome(vantagePoint.id(), source, dataTypeId));
+    }
+
+
+    public AuthoritativenessRatingValue rating(int outcome) {
+        switch (outcome) {
+            case NO_OPINION:
+                return AuthoritativenessRatingValue.NO_OPINION;
+            case DISCOURAGED:
+                return AuthoritativenessRatingValue.DISCOURAGED;
+            default:
+                return ratings[outcome];
+        }
+    }
+
+
+    public Optional<Long> ruleId(int outcome) {
+        return outcome < 0
+                ? Optional.empty()
+                : Optional.of(ruleIds[outcome]);
+    }
+
+
+    // --- helpers
+
+    /**
+     * Builds, for each entity in the hierarchy, the indexes of its rule declaring ancestors
+     * (including itself) ordered from most to least specific.
+     */
+    private static LongIntHashMap mkFallbacks(Collection<EntityHierarchyItem> hierarchy,
+                                              LongIntHashMap declaringIndex,
+                                              List<int[]> fallbacks) {
+        Map<Long, List<EntityHierarchyItem>> declaringAncestorsById = new HashMap<>();
+        for (EntityHierarchyItem item : hierarchy) {
+            Long id = item.id().orElse(null);
+            Long ancestorId = item.parentId().orElse(null);
+            if (id == null || ancestorId == null) {
+                continue;
+            }
+            List<EntityHierarchyItem> ancestors = declaringAncestorsById.computeIfAbsent(id, k -> new ArrayList<>(2));
+            if (declaringIndex.containsKey(ancestorId)) {
+                ancestors.add(item);
+            }
+        }
+
+        Comparator<EntityHierarchyItem> mostSpecificFirst = Comparator
+                .comparingInt(EntityHierarchyItem::ancestorLevel)
+                .reversed();
+
+        LongIntHashMap fallbackIndex = new LongIntHashMap(declaringAncestorsById.size(), MISSING);
+        Map<List<Long>, Integer> shared = new HashMap<>();
+        declaringAncestorsById.forEach((id, ancestors) -> {
+            if (ancestors.isEmpty()) {
+                return;
+            }
+            ancestors.sort(mostSpecificFirst);
+            List<Long> ancestorIds = new ArrayList<>(ancestors.size());
+            ancestors.forEach(a -> ancestorIds.add(a.parentId().get()));
+            // many entities share the same declaring ancestors, so share the arrays too
+            int position = shared.computeIfAbsent(ancestorIds, k -> {
+                int[] indexes = new int[k.size()];
+                for (int i = 0; i < indexes.length; i++) {
+                    indexes[i] = declaringIndex.get(k.get(i));
+                }
+                fallbacks.add(indexes);
+                return fallbacks.size() - 1;
+            });
+            fallbackIndex.put(id, position);
+        });
+        return fallbackIndex;
+    }
+
+
+    /**
+     * @return the declared (org unit, data type) scopes applicable to the combination of
+     * fallbacks, ordered by precedence
+     */
+    private long[] lookupScopes(int orgUnitPosition, int dataTypePosition) {
+        long key = ((long) orgUnitPosition << 32) | dataTypePosition;
+        int position = scopeListIndex.get(key);
+        if (position != MISSING) {
+            return scopeLists.get(position);
+        }
+
+        int[] orgUnits = orgUnitFallbacks[orgUnitPosition];
+        int[] dataTypes = dataTypeFallbacks[dataTypePosition];
+        long[] candidates = new long[orgUnits.length * dataTypes.length];
+        int count = 0;
+        for (int orgUnit : orgUnits) {
+            for (int dataType : dataTypes) {
+                long scope = packScope(orgUnit, dataType);
+                if (declaredScopes.containsKey(scope)) {
+                    candidates[count++] = scope;
+                }
+            }
+        }
+
+        long[] scopes = count == 0
+                ? NO_SCOPES
+                : Arrays.copyOf(candidates, count);
+        scopeLists.add(scopes);
+        scopeListIndex.put(key, scopeLists.size() - 1);
+        return scopes;
+    }
+
+
+    private static int intern(LongIntHashMap index, long key) {
+        int next = index.size();
+        int existing = index.putIfAbsent(key, next);
+        return existing == MISSING
+                ? next
+                : existing;
+    }
+
+
+    private long packScope(int orgUnit, int dataType) {
+        return ((long) orgUnit << dataTypeBits) | dataType;
+    }
+
+
+    private long packKey(long scope, int source) {
+        return (scope << sourceBits) | source;
+    }
+
+
+    /**
+     * Packs an entity reference into a long, the kind occupying the top byte.
+     */
+    private static long packRef(EntityReference ref) {
+        return ((long) ref.kind().ordinal() << 56) | (ref.id() & 0x00FF_FFFF_FFFF_FFFFL);
+    }
+
+
+    private static int bitsFor(int count) {
+        return count <= 1
+                ? 1
+                : 32 - Integer.numberOfLeadingZeros(count - 1);
+    }
+}
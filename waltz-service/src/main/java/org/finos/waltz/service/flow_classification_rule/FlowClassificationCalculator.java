@@ -19,14 +19,13 @@
 package org.finos.waltz.service.flow_classification_rule;
 
 import org.finos.waltz.service.data_flow_decorator.LogicalFlowDecoratorRatingsCalculator;
-import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.data.application.ApplicationIdSelectorFactory;
 import org.finos.waltz.data.data_type.DataTypeDao;
+import org.finos.waltz.data.data_type.DataTypeIdSelectorFactory;
 import org.finos.waltz.data.datatype_decorator.LogicalFlowDecoratorDao;
-import org.finos.waltz.data.entity_hierarchy.EntityHierarchyDao;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
-import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.HierarchyQueryScope;
 import org.finos.waltz.model.datatype.DataType;
 import org.finos.waltz.model.datatype.DataTypeDecorator;
 import org.jooq.Record1;
@@ -36,98 +35,211 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Collection;
-import java.util.Optional;
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
-import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkNotNull;
-import static org.finos.waltz.common.SetUtilities.fromCollection;
+import static org.finos.waltz.model.EntityReference.mkRef;
 import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
 
 
+/**
+ * Recalculates flow ratings for the decorators affected by a change to a single
+ * flow classification rule, data type or set of applications (or for all flows).
+ *
+ * Ratings are computed in memory (see {@link LogicalFlowDecoratorRatingsCalculator})
+ * and only decorators whose rating or rule has actually changed are written back.
+ */
 @Service
 public class FlowClassificationCalculator {
 
     private static final Logger LOG = LoggerFactory.getLogger(FlowClassificationCalculator.class);
 
+    static final int UPDATE_BATCH_SIZE = 1000;
+
     private final ApplicationIdSelectorFactory appIdSelectorFactory = new ApplicationIdSelectorFactory();
+    private final DataTypeIdSelectorFactory dataTypeIdSelectorFactory = new DataTypeIdSelectorFactory();
     private final DataTypeDao dataTypeDao;
-    private final EntityHierarchyDao entityHierarchyDao;
     private final LogicalFlowDecoratorDao logicalFlowDecoratorDao;
     private final LogicalFlowDecoratorRatingsCalculator ratingsCalculator;
 
 
     @Autowired
     public FlowClassificationCalculator(DataTypeDao dataTypeDao,
-                                        EntityHierarchyDao entityHierarchyDao,
                                         LogicalFlowDecoratorRatingsCalculator ratingsCalculator,
                                         LogicalFlowDecoratorDao logicalFlowDecoratorDao) {
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
-        checkNotNull(entityHierarchyDao, "entityHierarchyDao cannot be null");
         checkNotNull(ratingsCalculator, "ratingsCalculator cannot be null");
         checkNotNull(logicalFlowDecoratorDao, "logicalFlowDecoratorDao cannot be null");
 
         this.dataTypeDao = dataTypeDao;
-        this.entityHierarchyDao = entityHierarchyDao;
         this.logicalFlowDecoratorDao = logicalFlowDecoratorDao;
         this.ratingsCalculator = ratingsCalculator;
     }
 
 
-    public int[] update(long dataTypeId, EntityReference vantageRef) {
+    /**
+     * Recalculates ratings for flows into applications beneath the vantage point
+     * which carry the data type (or any of its descendants).
+     *
+     * @return number of decorators whose rating changed
+     */
+    public int update(long dataTypeId, EntityReference vantageRef) {
         DataType dataType = dataTypeDao.getById(dataTypeId);
         if (dataType == null) {
             LOG.error("Cannot update ratings for data type id: {} for vantage point: {} as cannot find corresponding data type",
                     dataTypeId,
                     vantageRef);
-            return new int[0];
+            return 0;
         }
-        return update(dataType, vantageRef);
-    }
-
 
-    private int[] update(DataType dataType, EntityReference vantageRef) {
         LOG.debug("Updating ratings for flow classification rule - dataType name: {}, id: {}, vantage point: {}",
                 dataType.name(),
-                dataType.id().get(),
+                dataTypeId,
                 vantageRef);
 
-        IdSelectionOptions selectorOptions = mkOpts(vantageRef);
-        Select<Record1<Long>> selector = appIdSelectorFactory.apply(selectorOptions);
-        Set<Long> dataTypeDescendents = entityHierarchyDao
-                .findDesendents(dataType.entityReference())
-                .stream()
-                .map(d -> d.id().get())
-                .collect(Collectors.toSet());
+        Select<Record1<Long>> appSelector = appIdSelectorFactory.apply(mkOpts(vantageRef));
+
+        Collection<DataTypeDecorator> impactedDecorators = logicalFlowDecoratorDao
+                .findByTargetAppIdSelectorAndDataTypeIdSelector(
+                        appSelector,
+                        mkDataTypeSelector(dataTypeId));
+
+        return recalculate(impactedDecorators, "flow classification rule for: " + vantageRef + " / " + dataType.name());
+    }
+
 
+    /**
+     * Recalculates ratings for all flows carrying the data type (or any of its descendants),
+     * for use when the data type hierarchy changes.
+     *
+     * @return number of decorators whose rating changed
+     */
+    public int recalculateForDataType(long dataTypeId) {
         Collection<DataTypeDecorator> impactedDecorators = logicalFlowDecoratorDao
-                .findByEntityIdSelector(selector, Optional.of(EntityKind.APPLICATION))
-                .stream()
-                .filter(decorator -> dataTypeDescendents.contains(decorator.decoratorEntity().id()))
-                .collect(toList());
+                .findByDataTypeIdSelector(mkDataTypeSelector(dataTypeId));
+
+        return recalculate(impactedDecorators, "data type: " + dataTypeId);
+    }
+
+
+    /**
+     * Recalculates ratings for all flows to or from the given applications, for use when
+     * an application moves between organisational units.
+     *
+     * @return number of decorators whose rating changed
+     */
+    public int recalculateForApplications(Collection<Long> appIds) {
+        checkNotNull(appIds, "appIds cannot be null");
+        if (appIds.isEmpty()) {
+            return 0;
+        }
+
+        Collection<DataTypeDecorator> impactedDecorators = logicalFlowDecoratorDao
+                .findByAppIds(appIds);
+
+        return recalculate(impactedDecorators, "applications: " + appIds);
+    }
+
+
+    /**
+     * Recalculates ratings for the data type decorators of the given logical flows, for use
+     * when decorators have been added in bulk without being rated.
+     *
+     * @return number of decorators whose rating changed
+     */
+    public int recalculateForLogicalFlows(Collection<Long> logicalFlowIds) {
+        checkNotNull(logicalFlowIds, "logicalFlowIds cannot be null");
+
+        List<Long> flowIds = new ArrayList<>(logicalFlowIds);
+        int updated = 0;
+        for (int from = 0; from < flowIds.size(); from += UPDATE_BATCH_SIZE) {
+            int to = Math.min(from + UPDATE_BATCH_SIZE, flowIds.size());
+            Collection<DataTypeDecorator> impactedDecorators = logicalFlowDecoratorDao
+                    .findByFlowIds(flowIds.subList(from, to));
+            updated += recalculate(impactedDecorators, "logical flows: " + (to - from));
+        }
+        return updated;
+    }
+
+
+    /**
+     * Recalculates ratings for every rateable flow, a batch of flows at a time.  Decorators
+     * of flows which cannot be rated (i.e. not targeting an application) are reset.
+     *
+     * @return number of decorators whose rating changed
+     */
+    public int recalculateAll() {
+        int updated = recalculateForLogicalFlows(logicalFlowDecoratorDao.findIdsOfRateableFlows());
+        int cleared = logicalFlowDecoratorDao.clearRatingsOfUnrateableFlows();
+        LOG.debug("Recalculated all flow ratings, {} updated and {} cleared", updated, cleared);
+        return updated + cleared;
+    }
+
+
+    // --- helpers
+
+    private int recalculate(Collection<DataTypeDecorator> impactedDecorators,
+                            String reason) {
+        if (impactedDecorators.isEmpty()) {
+            return 0;
+        }
 
         Collection<DataTypeDecorator> reRatedDecorators = ratingsCalculator.calculate(impactedDecorators);
 
-        Set<DataTypeDecorator> modifiedDecorators = SetUtilities.minus(
-                fromCollection(reRatedDecorators),
-                fromCollection(impactedDecorators));
+        List<DataTypeDecorator> modifiedDecorators = findChangedRatings(
+                impactedDecorators,
+                reRatedDecorators);
 
-        LOG.debug("Need to update {} ratings due to auth source change - dataType name: {}, id: {}, parent: {}",
+        LOG.debug("Need to update {} of {} ratings due to change of {}",
                 modifiedDecorators.size(),
-                dataType.name(),
-                dataType.id().get(),
-                vantageRef);
+                impactedDecorators.size(),
+                reason);
 
-        return updateDecorators(modifiedDecorators);
+        int updated = 0;
+        for (int from = 0; from < modifiedDecorators.size(); from += UPDATE_BATCH_SIZE) {
+            int to = Math.min(from + UPDATE_BATCH_SIZE, modifiedDecorators.size());
+            updated += logicalFlowDecoratorDao.updateRatings(modifiedDecorators.subList(from, to));
+        }
+        return updated;
     }
 
 
-    private int[] updateDecorators(Set<DataTypeDecorator> decorators) {
-        checkNotNull(decorators, "decorators cannot be null");
-        if (decorators.isEmpty()) return new int[] {};
-        return logicalFlowDecoratorDao.updateDecorators(decorators);
+    private Select<Record1<Long>> mkDataTypeSelector(long dataTypeId) {
+        return dataTypeIdSelectorFactory.apply(mkOpts(
+                mkRef(EntityKind.DATA_TYPE, dataTypeId),
+                HierarchyQueryScope.CHILDREN));
+    }
+
+
+    /**
+     * @return the recalculated decorators whose rating or flow classification rule differs
+     * from the original decorator with the same id
+     */
+    static List<DataTypeDecorator> findChangedRatings(Collection<DataTypeDecorator> original,
+                                                      Collection<DataTypeDecorator> recalculated) {
+        Map<Long, DataTypeDecorator> originalsById = new HashMap<>(original.size() * 2);
+        original.forEach(d -> d.id().ifPresent(id -> originalsById.put(id, d)));
+
+        List<DataTypeDecorator> changed = new ArrayList<>();
+        for (DataTypeDecorator decorator : recalculated) {
+            DataTypeDecorator existing = decorator.id()
+                    .map(originalsById::get)
+                    .orElse(null);
+            if (existing == null) {
+                continue;
+            }
+            boolean ratingChanged = !Objects.equals(existing.rating(), decorator.rating());
+            boolean ruleChanged = !Objects.equals(existing.flowClassificationRuleId(), decorator.flowClassificationRuleId());
+            if (ratingChanged || ruleChanged) {
+                changed.add(decorator);
+            }
+        }
+        return changed;
     }
 
 }
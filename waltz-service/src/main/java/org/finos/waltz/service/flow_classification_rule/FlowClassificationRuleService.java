@@ -138,7 +138,7 @@ public class FlowClassificationRuleService {
                 .id()
                 .orElseThrow(() -> new IllegalArgumentException("cannot update an flow classification rule without an id"));
         FlowClassificationRule updatedClassificationRule = getById(ruleId);
-        ratingCalculator.update(updatedClassificationRule.dataTypeId(), updatedClassificationRule.vantagePointReference());
+        recalculateFlowRatingsForRule(updatedClassificationRule.dataTypeId(), updatedClassificationRule.vantagePointReference());
         logUpdate(command, username);
         return updateCount;
     }
@@ -146,14 +146,8 @@ public class FlowClassificationRuleService {
 
     public long insert(FlowClassificationRuleCreateCommand command, String username) {
         long classificationRuleId = flowClassificationRuleDao.insert(command, username);
-
-        if (command.parentReference().kind() == ORG_UNIT) {
-            ratingCalculator.update(command.dataTypeId(), command.parentReference());
-        }
-
         logInsert(classificationRuleId, command, username);
-        flowClassificationRuleDao.updatePointToPointFlowClassificationRules();
-
+        recalculateFlowRatingsForRule(command.dataTypeId(), command.parentReference());
         return classificationRuleId;
     }
 
@@ -175,10 +169,7 @@ public class FlowClassificationRuleService {
         flowClassificationRuleDao.clearRatingsForPointToPointFlows(classificationRuleToDelete);
 
         LOG.debug("Updated point-point");
-        if (classificationRuleToDelete.vantagePointReference().kind() != ACTOR) {
-            LOG.debug("Updating org unit /app flow ratings");
-            ratingCalculator.update(classificationRuleToDelete.dataTypeId(), classificationRuleToDelete.vantagePointReference());
-        }
+        recalculateFlowRatingsForRule(classificationRuleToDelete.dataTypeId(), classificationRuleToDelete.vantagePointReference());
 
         return deletedCount;
     }
@@ -224,6 +215,45 @@ public class FlowClassificationRuleService {
     }
 
 
+    /**
+     * Recalculates the ratings of every flow, as the scheduled job does, but only writes
+     * back the decorators whose rating has changed (rather than resetting every rating).
+     */
+    public int recalculateAllFlowRatingsIncrementally() {
+        int updatedRuleDecorators = ratingCalculator.recalculateAll();
+
+        // overrides rating for point to point flows (must run after the above)
+        int updatedPointToPointDecorators = flowClassificationRuleDao.updatePointToPointFlowClassificationRules();
+
+        LOG.info(
+                "Updated decorators for: {} for general rules and {} point-to-point flows",
+                updatedRuleDecorators,
+                updatedPointToPointDecorators);
+
+        return updatedRuleDecorators + updatedPointToPointDecorators;
+    }
+
+
+    /**
+     * Recalculates ratings only for flows carrying the given data type (or its descendants),
+     * writing back just the decorators whose rating has changed.
+     */
+    public int recalculateFlowRatingsForDataType(long dataTypeId) {
+        int updatedRuleDecorators = ratingCalculator.recalculateForDataType(dataTypeId);
+        return updatedRuleDecorators + reapplyPointToPointRules(updatedRuleDecorators);
+    }
+
+
+    /**
+     * Recalculates ratings only for flows to or from the given applications, writing
+     * back just the decorators whose rating has changed.
+     */
+    public int recalculateFlowRatingsForApplications(Collection<Long> appIds) {
+        int updatedRuleDecorators = ratingCalculator.recalculateForApplications(appIds);
+        return updatedRuleDecorators + reapplyPointToPointRules(updatedRuleDecorators);
+    }
+
+
     public Map<EntityReference, Collection<EntityReference>> calculateConsumersForDataTypeIdSelector(IdSelectionOptions options) {
         Select<Record1<Long>> selector = dataTypeIdSelectorFactory.apply(options);
         return flowClassificationRuleDao.calculateConsumersForDataTypeIdSelector(selector);
@@ -322,6 +352,29 @@ public class FlowClassificationRuleService {
     }
 
 
+    /**
+     * Recalculates ratings for the flows within scope of a rule which has been added, changed
+     * or removed.  Point-to-point rules are always reapplied as the rule may be one of them.
+     */
+    private int recalculateFlowRatingsForRule(long dataTypeId, EntityReference vantagePoint) {
+        int updatedRuleDecorators = vantagePoint.kind() == ACTOR
+                ? 0
+                : ratingCalculator.update(dataTypeId, vantagePoint);
+        return updatedRuleDecorators + flowClassificationRuleDao.updatePointToPointFlowClassificationRules();
+    }
+
+
+    /**
+     * The in-memory calculation does not consider point-to-point rules, so if it changed any
+     * ratings they are reapplied over the top (as with the full recalculation).
+     */
+    private int reapplyPointToPointRules(int updatedRuleDecorators) {
+        return updatedRuleDecorators == 0
+                ? 0
+                : flowClassificationRuleDao.updatePointToPointFlowClassificationRules();
+    }
+
+
     private void logRemoval(long id, String username) {
         FlowClassificationRule rule = getById(id);
 
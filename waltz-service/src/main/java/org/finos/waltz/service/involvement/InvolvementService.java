@@ -24,6 +24,7 @@ import org.finos.waltz.data.EntityReferenceNameResolver;
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.GenericSelectorFactory;
 import org.finos.waltz.data.involvement.InvolvementDao;
+import org.finos.waltz.data.permission.PermissionDecisionCache;
 import org.finos.waltz.data.person.PersonDao;
 import org.finos.waltz.model.*;
 import org.finos.waltz.model.changelog.ChangeLog;
@@ -63,6 +64,7 @@ public class InvolvementService {
     private final EntityReferenceNameResolver entityReferenceNameResolver;
     private final InvolvementKindService involvementKindService;
     private final PersonDao personDao;
+    private final PermissionDecisionCache permissionDecisionCache;
     private final UserRoleService userRoleService;
     private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
 
@@ -75,6 +77,7 @@ public class InvolvementService {
                               EntityReferenceNameResolver entityReferenceNameResolver,
                               InvolvementKindService involvementKindService,
                               PersonDao personDao,
+                              PermissionDecisionCache permissionDecisionCache,
                               UserRoleService userRoleService) {
         checkNotNull(changeLogService, "changeLogService cannot be null");
         checkNotNull(dao, "involvementDao must not be null");
@@ -82,6 +85,7 @@ public class InvolvementService {
         checkNotNull(involvementKindService, "involvementKindService cannot be null");
         checkNotNull(userRoleService, "userRoleService cannot be null");
         checkNotNull(personDao, "personDao cannot be null");
+        checkNotNull(permissionDecisionCache, "permissionDecisionCache cannot be null");
 
         this.changeLogService = changeLogService;
         this.involvementDao = dao;
@@ -89,6 +93,7 @@ public class InvolvementService {
         this.involvementKindService = involvementKindService;
         this.userRoleService = userRoleService;
         this.personDao = personDao;
+        this.permissionDecisionCache = permissionDecisionCache;
     }
 
 
@@ -171,11 +176,17 @@ public class InvolvementService {
     }
 
 
+    /**
+     * Bulk removals are not written to the change log, so cached permission decisions
+     * (which may rely on the removed involvements) are cleared.
+     */
     public int deleteByGenericEntitySelector(IdSelectionOptions selectionOptions) {
         GenericSelector genericSelector = genericSelectorFactory
                 .apply(selectionOptions);
-        return involvementDao
+        int removed = involvementDao
                 .deleteByGenericEntitySelector(genericSelector);
+        permissionDecisionCache.clear();
+        return removed;
     }
 
 
@@ -187,7 +198,9 @@ public class InvolvementService {
     public int cleanupInvolvementsForKind(String userName, EntityKind entityKind) {
         boolean isAdmin = userRoleService.hasRole(userName, SystemRole.ADMIN);
         Checks.checkTrue(isAdmin, "Must be an admin to bulk remove involvements");
-        return involvementDao.cleanupInvolvementsForKind(entityKind);
+        int removed = involvementDao.cleanupInvolvementsForKind(entityKind);
+        permissionDecisionCache.clear();
+        return removed;
     }
 
     public int bulkStoreInvolvements(Set<Involvement> involvements, String username) {
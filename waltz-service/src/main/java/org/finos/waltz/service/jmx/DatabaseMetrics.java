@@ -0,0 +1,109 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.jmx;
+
+import org.finos.waltz.model.database_metrics.QueryStatistics;
+import org.finos.waltz.service.database_metrics.DatabaseMetricsService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Query latency metrics for the Waltz database")
+public class DatabaseMetrics {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DatabaseMetrics.class);
+
+    private static final int SLOWEST_QUERY_LIMIT = 10;
+
+    private final DatabaseMetricsService databaseMetricsService;
+
+    @Autowired
+    public DatabaseMetrics(DatabaseMetricsService databaseMetricsService) {
+        this.databaseMetricsService = databaseMetricsService;
+    }
+
+
+    @ManagedOperation(description = "Discard all recorded query metrics")
+    public void reset() {
+        LOG.warn("Resetting database metrics (via jmx)");
+        databaseMetricsService.reset();
+    }
+
+
+    @ManagedAttribute(description = "Queries executed")
+    public long getExecutions() {
+        return databaseMetricsService.getOverallStatistics().executions();
+    }
+
+
+    @ManagedAttribute(description = "Queries which failed")
+    public long getErrors() {
+        return databaseMetricsService.getOverallStatistics().errors();
+    }
+
+
+    @ManagedAttribute(description = "Median query latency (microseconds)")
+    public long getP50Micros() {
+        return databaseMetricsService.getOverallStatistics().p50Micros();
+    }
+
+
+    @ManagedAttribute(description = "95th percentile query latency (microseconds)")
+    public long getP95Micros() {
+        return databaseMetricsService.getOverallStatistics().p95Micros();
+    }
+
+
+    @ManagedAttribute(description = "99th percentile query latency (microseconds)")
+    public long getP99Micros() {
+        return databaseMetricsService.getOverallStatistics().p99Micros();
+    }
+
+
+    @ManagedAttribute(description = "Queries taking the most time in total")
+    public String[] getSlowestQueries() {
+        return databaseMetricsService
+                .findSlowestQueries(SLOWEST_QUERY_LIMIT)
+                .stream()
+                .map(DatabaseMetrics::toSummary)
+                .toArray(String[]::new);
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "Database";
+    }
+
+
+    private static String toSummary(QueryStatistics stats) {
+        return String.format(
+                "total=%dms, executions=%d, p50=%dus, p99=%dus, max=%dus: %s",
+                stats.totalMicros() / 1_000,
+                stats.executions(),
+                stats.p50Micros(),
+                stats.p99Micros(),
+                stats.maxMicros(),
+                stats.fingerprint());
+    }
+
+}
@@ -0,0 +1,75 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.jmx;
+
+import org.finos.waltz.common.ExcludeFromIntegrationTesting;
+import org.finos.waltz.model.scheduled_job.JobRunStatistics;
+import org.finos.waltz.service.scheduled_job.ScheduledJobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Registered by component scan, rather than in the DIConfiguration, as the scheduled job
+ * service (and hence this bean) is excluded from integration testing.
+ */
+@ExcludeFromIntegrationTesting
+@Component
+@ManagedResource(description = "Run durations of the Waltz scheduled jobs")
+public class ScheduledJobs {
+
+    private final ScheduledJobService scheduledJobService;
+
+    @Autowired
+    public ScheduledJobs(ScheduledJobService scheduledJobService) {
+        this.scheduledJobService = scheduledJobService;
+    }
+
+
+    @ManagedAttribute(description = "Jobs taking the most time in total")
+    public String[] getJobStatistics() {
+        return scheduledJobService
+                .findJobStatistics()
+                .stream()
+                .map(ScheduledJobs::toSummary)
+                .toArray(String[]::new);
+    }
+
+
+    @ManagedAttribute
+    public String getName() {
+        return "ScheduledJobs";
+    }
+
+
+    private static String toSummary(JobRunStatistics stats) {
+        return String.format(
+                "total=%dms, runs=%d, errors=%d, timeouts=%d, mean=%dms, max=%dms, last=%s: %s",
+                stats.totalMillis(),
+                stats.runs(),
+                stats.errors(),
+                stats.timeouts(),
+                stats.meanMillis(),
+                stats.maxMillis(),
+                stats.lastOutcome().map(Enum::name).orElse("-"),
+                stats.jobKey());
+    }
+
+}
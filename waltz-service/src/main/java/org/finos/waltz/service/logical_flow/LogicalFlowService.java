@@ -53,6 +53,7 @@ import org.springframework.stereotype.Service;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.Future;
@@ -62,6 +63,7 @@ import java.util.stream.Stream;
 
 import static java.lang.String.format;
 import static java.util.Collections.emptyList;
+import static java.util.Collections.emptySet;
 import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.CollectionUtilities.isEmpty;
@@ -172,6 +174,14 @@ public class LogicalFlowService {
     }
 
 
+    /**
+     * @see #findBySelector(IdSelectionOptions), the returned stream must be closed
+     */
+    public Stream<LogicalFlow> streamBySelector(IdSelectionOptions options) {
+        return logicalFlowDao.streamBySelector(logicalFlowIdSelectorFactory.apply(options));
+    }
+
+
     /**
      * Creates a logical flow and creates a default, 'UNKNOWN' data type decoration
      * if possible.
@@ -379,10 +389,19 @@ public class LogicalFlowService {
             return map(logicalFlows, f -> f.id().get());
         } else {
 
+            Set<EntityReference> counterparts = logicalFlows
+                    .stream()
+                    .flatMap(f -> Stream.of(f.source(), f.target()))
+                    .collect(toSet());
+
+            Map<EntityReference, Set<Operation>> permissionsByCounterpart = flowPermissionChecker.findFlowPermissionsForParentEntities(
+                    counterparts,
+                    username);
+
             return logicalFlows.stream()
                     .flatMap(f -> asSet(tuple(f.id().get(), f.source()), tuple(f.id().get(), f.target())).stream())
                     .filter(t -> {
-                        Set<Operation> entity = flowPermissionChecker.findFlowPermissionsForParentEntity(t.v2, username);
+                        Set<Operation> entity = permissionsByCounterpart.getOrDefault(t.v2, emptySet());
                         return hasIntersection(entity, asSet(Operation.ADD, Operation.UPDATE, Operation.REMOVE));
                     })
                     .map(t -> t.v1)
@@ -53,6 +53,7 @@ import org.springframework.stereotype.Service;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static java.lang.String.format;
 import static org.finos.waltz.common.Checks.*;
@@ -122,6 +123,16 @@ public class MeasurableRatingService {
         return measurableRatingDao.findByApplicationIdSelector(selector);
     }
 
+
+    /**
+     * @see #findByAppIdSelector(IdSelectionOptions), the returned stream must be closed
+     */
+    public Stream<MeasurableRating> streamByAppIdSelector(IdSelectionOptions options) {
+        checkNotNull(options, "options cannot be null");
+        Select<Record1<Long>> selector = applicationIdSelectorFactory.apply(options);
+        return measurableRatingDao.streamByApplicationIdSelector(selector);
+    }
+
     public Collection<MeasurableRating> findByCategory(long id) {
         return measurableRatingDao.findByCategory(id);
     }
@@ -1,6 +1,8 @@
 package org.finos.waltz.service.permission;
 
+import org.finos.waltz.data.permission.PermissionDecisionCache;
 import org.finos.waltz.data.permission.PermissionGroupDao;
+import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.attestation.UserAttestationPermission;
 import org.finos.waltz.model.permission_group.CheckPermissionCommand;
@@ -14,7 +16,9 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
 import java.util.Collections;
+import java.util.Map;
 import java.util.Set;
 
 import static java.util.Objects.isNull;
@@ -28,15 +32,19 @@ public class PermissionGroupService {
     private final PersonService personService;
     private final PermissionGroupDao permissionGroupDao;
     private final InvolvementService involvementService;
+    private final PermissionDecisionCache permissionDecisionCache;
 
 
     @Autowired
     public PermissionGroupService(PersonService personService,
                                   PermissionGroupDao permissionGroupDao,
-                                  InvolvementService involvementService) {
+                                  InvolvementService involvementService,
+                                  PermissionDecisionCache permissionDecisionCache) {
+        checkNotNull(permissionDecisionCache, "permissionDecisionCache cannot be null");
         this.personService = personService;
         this.permissionGroupDao = permissionGroupDao;
         this.involvementService = involvementService;
+        this.permissionDecisionCache = permissionDecisionCache;
     }
 
 
@@ -49,7 +57,30 @@ public class PermissionGroupService {
             return Collections.emptySet();
         }
 
-        return permissionGroupDao.findPermissionsForParentEntityReference(parentEntityRef);
+        return permissionDecisionCache.findPermissionsForParentEntityReference(parentEntityRef);
+    }
+
+
+    /**
+     * @return permissions for the subject kind which the user holds on the parent entity,
+     * based upon their involvements with that entity
+     */
+    public Set<Permission> findAllowedPermissions(EntityReference parentEntityRef,
+                                                  EntityKind subjectKind,
+                                                  String username) {
+        return permissionDecisionCache.findAllowedPermissions(parentEntityRef, subjectKind, username);
+    }
+
+
+    /**
+     * Bulk form of {@link #findAllowedPermissions(EntityReference, EntityKind, String)}.
+     *
+     * @return permissions keyed by the given parent references
+     */
+    public Map<EntityReference, Set<Permission>> findAllowedPermissions(Collection<EntityReference> parentEntityRefs,
+                                                                        EntityKind subjectKind,
+                                                                        String username) {
+        return permissionDecisionCache.findAllowedPermissions(parentEntityRefs, subjectKind, username);
     }
 
 
@@ -7,7 +7,6 @@ import org.finos.waltz.model.EntityReferenceUtilities;
 import org.finos.waltz.model.Operation;
 import org.finos.waltz.model.measurable_rating.MeasurableRating;
 import org.finos.waltz.model.permission_group.Permission;
-import org.finos.waltz.service.involvement.InvolvementService;
 import org.finos.waltz.service.permission.PermissionGroupService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -23,35 +22,26 @@ public class AllocationPermissionChecker implements PermissionChecker {
 
     private final MeasurableRatingDao measurableRatingDao;
     private final PermissionGroupService permissionGroupService;
-    private final InvolvementService involvementService;
 
     @Autowired
     public AllocationPermissionChecker(MeasurableRatingDao measurableRatingDao,
-                                       PermissionGroupService permissionGroupService,
-                                       InvolvementService involvementService) {
+                                       PermissionGroupService permissionGroupService) {
 
         checkNotNull(measurableRatingDao, "measurableRatingDao cannot be null");
         checkNotNull(permissionGroupService, "permissionGroupService cannot be null");
-        checkNotNull(involvementService, "involvementService cannot be null");
 
         this.permissionGroupService = permissionGroupService;
         this.measurableRatingDao = measurableRatingDao;
-        this.involvementService = involvementService;
     }
 
     public Set<Operation> findAllocationPermissions(EntityReference entityReference,
                                                     long categoryId,
                                                     String username) {
 
-        Set<Long> invsForUser = involvementService.findExistingInvolvementKindIdsForUser(entityReference, username);
-
         Set<Operation> operationsForEntityAssessment = permissionGroupService
-                .findPermissionsForParentReference(entityReference, username)
+                .findAllowedPermissions(entityReference, EntityKind.MEASURABLE_RATING, username)
                 .stream()
-                .filter(p -> p.subjectKind().equals(EntityKind.MEASURABLE_RATING)
-                        && p.parentKind().equals(entityReference.kind())
-                        && EntityReferenceUtilities.sameRef(p.qualifierReference(), mkRef(EntityKind.MEASURABLE_CATEGORY, categoryId)))
-                .filter(p -> p.requiredInvolvementsResult().isAllowed(invsForUser))
+                .filter(p -> EntityReferenceUtilities.sameRef(p.qualifierReference(), mkRef(EntityKind.MEASURABLE_CATEGORY, categoryId)))
                 .map(Permission::operation)
                 .collect(Collectors.toSet());
 
@@ -26,7 +26,6 @@ import org.finos.waltz.model.assessment_rating.AssessmentDefinitionRatingOperati
 import org.finos.waltz.model.assessment_rating.AssessmentRatingOperations;
 import org.finos.waltz.model.assessment_rating.ImmutableAssessmentDefinitionRatingOperations;
 import org.finos.waltz.model.permission_group.Permission;
-import org.finos.waltz.service.involvement.InvolvementService;
 import org.finos.waltz.service.permission.PermissionGroupService;
 import org.finos.waltz.service.user.UserRoleService;
 import org.slf4j.Logger;
@@ -48,25 +47,21 @@ public class AssessmentRatingPermissionChecker implements PermissionChecker {
     private static final Logger LOG = LoggerFactory.getLogger(AssessmentRatingPermissionChecker.class);
 
     private final AssessmentRatingDao assessmentRatingDao;
-    private final InvolvementService involvementService;
     private final PermissionGroupService permissionGroupService;
     private final UserRoleService userRoleService;
 
     @Autowired
     public AssessmentRatingPermissionChecker(AssessmentRatingDao assessmentRatingDao,
-                                             InvolvementService involvementService,
                                              PermissionGroupService permissionGroupService,
                                              UserRoleService userRoleService) {
 
         checkNotNull(assessmentRatingDao, "assessmentRatingDao must not be null");
-        checkNotNull(involvementService, "involvementService cannot be null");
         checkNotNull(permissionGroupService, "permissionGroupService cannot be null");
         checkNotNull(userRoleService, "userRoleService cannot be null");
 
         this.userRoleService = userRoleService;
         this.assessmentRatingDao = assessmentRatingDao;
         this.permissionGroupService = permissionGroupService;
-        this.involvementService = involvementService;
     }
 
 
@@ -74,15 +69,10 @@ public class AssessmentRatingPermissionChecker implements PermissionChecker {
                                                                      long assessmentDefinitionId,
                                                                      String username) {
 
-        Set<Long> invsForUser = involvementService.findExistingInvolvementKindIdsForUser(entityReference, username);
-
         Set<Operation> operationsForEntityAssessment = permissionGroupService
-                .findPermissionsForParentReference(entityReference, username)
+                .findAllowedPermissions(entityReference, EntityKind.ASSESSMENT_RATING, username)
                 .stream()
-                .filter(p -> p.subjectKind().equals(EntityKind.ASSESSMENT_RATING)
-                        && p.parentKind().equals(entityReference.kind())
-                        && sameRef(p.qualifierReference(), mkRef(EntityKind.ASSESSMENT_DEFINITION, assessmentDefinitionId)))
-                .filter(p -> p.requiredInvolvementsResult().isAllowed(invsForUser))
+                .filter(p -> sameRef(p.qualifierReference(), mkRef(EntityKind.ASSESSMENT_DEFINITION, assessmentDefinitionId)))
                 .map(Permission::operation)
                 .collect(Collectors.toSet());
 
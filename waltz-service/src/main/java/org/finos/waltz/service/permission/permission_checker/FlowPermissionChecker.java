@@ -27,7 +27,6 @@ import org.finos.waltz.model.Operation;
 import org.finos.waltz.model.logical_flow.LogicalFlow;
 import org.finos.waltz.model.permission_group.Permission;
 import org.finos.waltz.model.physical_specification.PhysicalSpecification;
-import org.finos.waltz.service.involvement.InvolvementService;
 import org.finos.waltz.service.permission.PermissionGroupService;
 import org.finos.waltz.service.user.UserRoleService;
 import org.slf4j.Logger;
@@ -35,12 +34,17 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
 
 import static java.lang.String.format;
 import static java.util.Collections.emptySet;
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.map;
 import static org.finos.waltz.common.SetUtilities.union;
 
 
@@ -52,27 +56,23 @@ public class FlowPermissionChecker implements PermissionChecker {
     private final LogicalFlowDao logicalFlowDao;
 
     private final PhysicalSpecificationDao physicalSpecificationDao;
-    private final InvolvementService involvementService;
     private final PermissionGroupService permissionGroupService;
     private final UserRoleService userRoleService;
 
     @Autowired
     public FlowPermissionChecker(LogicalFlowDao logicalFlowDao,
                                  PhysicalSpecificationDao physicalSpecificationDao,
-                                 InvolvementService involvementService,
                                  PermissionGroupService permissionGroupService,
                                  UserRoleService userRoleService) {
 
         checkNotNull(logicalFlowDao, "logicalFlowDao must not be null");
         checkNotNull(physicalSpecificationDao, "physicalSpecificationDao must not be null");
-        checkNotNull(involvementService, "involvementService cannot be null");
         checkNotNull(permissionGroupService, "permissionGroupService cannot be null");
         checkNotNull(userRoleService, "userRoleService cannot be null");
 
         this.userRoleService = userRoleService;
         this.logicalFlowDao = logicalFlowDao;
         this.physicalSpecificationDao = physicalSpecificationDao;
-        this.involvementService = involvementService;
         this.permissionGroupService = permissionGroupService;
     }
 
@@ -103,38 +103,56 @@ public class FlowPermissionChecker implements PermissionChecker {
 
     public Set<Operation> findFlowPermissionsForParentEntity(EntityReference entityReference,
                                                              String username) {
+        return findFlowPermissionsForParentEntities(
+                Collections.singleton(entityReference),
+                username)
+                .getOrDefault(entityReference, emptySet());
+    }
 
-        Set<Long> invsForUser = involvementService.findExistingInvolvementKindIdsForUser(entityReference, username);
 
-        Set<Operation> operationsForEntityAssessment = permissionGroupService
-                .findPermissionsForParentReference(entityReference, username)
-                .stream()
-                .filter(p -> p.subjectKind().equals(EntityKind.LOGICAL_DATA_FLOW)
-                        && p.parentKind().equals(entityReference.kind()))
-                .filter(p -> p.requiredInvolvementsResult().isAllowed(invsForUser))
-                .map(Permission::operation)
-                .collect(Collectors.toSet());
+    /**
+     * Bulk form of {@link #findFlowPermissionsForParentEntity(EntityReference, String)}, the
+     * permission group decisions for all parents are resolved together and the user's
+     * flow editor role is only checked once.
+     *
+     * @return flow operations keyed by the given parent references
+     */
+    public Map<EntityReference, Set<Operation>> findFlowPermissionsForParentEntities(Collection<EntityReference> entityReferences,
+                                                                                     String username) {
+        checkNotNull(entityReferences, "entityReferences cannot be null");
+        checkNotNull(username, "username cannot be null");
 
-        return logicalFlowDao.calculateAmendedFlowOperations(
-                operationsForEntityAssessment,
+        if (entityReferences.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<EntityReference, Set<Permission>> permissionsByParent = permissionGroupService.findAllowedPermissions(
+                entityReferences,
+                EntityKind.LOGICAL_DATA_FLOW,
+                username);
+
+        Set<Operation> overrideOperations = logicalFlowDao.calculateAmendedFlowOperations(
+                emptySet(),
                 username);
+
+        Map<EntityReference, Set<Operation>> operationsByParent = new HashMap<>(permissionsByParent.size() * 2);
+        permissionsByParent.forEach((ref, permissions) -> operationsByParent.put(
+                ref,
+                union(map(permissions, Permission::operation), overrideOperations)));
+
+        return operationsByParent;
     }
 
 
     public Set<Operation> findSpecPermissionsForParentEntity(EntityReference entityReference,
                                                              String username) {
 
-        Set<Long> invsForUser = involvementService.findExistingInvolvementKindIdsForUser(entityReference, username);
-
-        Set<Permission> perms = permissionGroupService
-                .findPermissionsForParentReference(entityReference, username);
-
-        Set<Operation> operationsForEntityAssessment = perms.stream()
-                .filter(p -> p.subjectKind().equals(EntityKind.PHYSICAL_SPECIFICATION)
-                        && p.parentKind().equals(entityReference.kind()))
-                .filter(p -> p.requiredInvolvementsResult().isAllowed(invsForUser))
-                .map(Permission::operation)
-                .collect(Collectors.toSet());
+        Set<Operation> operationsForEntityAssessment = map(
+                permissionGroupService.findAllowedPermissions(
+                        entityReference,
+                        EntityKind.PHYSICAL_SPECIFICATION,
+                        username),
+                Permission::operation);
 
         return physicalSpecificationDao.calculateAmendedSpecOperations(
                 operationsForEntityAssessment,
@@ -160,9 +178,12 @@ public class FlowPermissionChecker implements PermissionChecker {
     public Set<Operation> findPermissionsForSourceAndTarget(EntityReference source,
                                                             EntityReference target,
                                                             String username) {
-        Set<Operation> sourcePermissions = findFlowPermissionsForParentEntity(source, username);
-        Set<Operation> targetPermissions = findFlowPermissionsForParentEntity(target, username);
-        return union(sourcePermissions, targetPermissions);
+        Map<EntityReference, Set<Operation>> permissionsByParent = findFlowPermissionsForParentEntities(
+                asList(source, target),
+                username);
+        return union(
+                permissionsByParent.getOrDefault(source, emptySet()),
+                permissionsByParent.getOrDefault(target, emptySet()));
     }
 
 }
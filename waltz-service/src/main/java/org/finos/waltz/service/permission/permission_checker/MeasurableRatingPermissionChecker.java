@@ -9,7 +9,6 @@ import org.finos.waltz.model.Operation;
 import org.finos.waltz.model.measurable.Measurable;
 import org.finos.waltz.model.measurable_rating.MeasurableRating;
 import org.finos.waltz.model.permission_group.Permission;
-import org.finos.waltz.service.involvement.InvolvementService;
 import org.finos.waltz.service.measurable.MeasurableService;
 import org.finos.waltz.service.measurable_rating_planned_decommission.MeasurableRatingPlannedDecommissionService;
 import org.finos.waltz.service.permission.PermissionGroupService;
@@ -32,7 +31,6 @@ public class MeasurableRatingPermissionChecker implements PermissionChecker {
     private final MeasurableRatingPlannedDecommissionDao measurableRatingPlannedDecommissionDao;
     private final MeasurableRatingReplacementDao measurableRatingReplacementDao;
     private final PermissionGroupService permissionGroupService;
-    private final InvolvementService involvementService;
 
     @Autowired
     public MeasurableRatingPermissionChecker(MeasurableRatingDao measurableRatingDao,
@@ -40,14 +38,12 @@ public class MeasurableRatingPermissionChecker implements PermissionChecker {
                                              MeasurableRatingPlannedDecommissionDao measurableRatingPlannedDecommissionDao,
                                              MeasurableRatingPlannedDecommissionService measurableRatingPlannedDecommissionService,
                                              MeasurableRatingReplacementDao measurableRatingReplacementDao,
-                                             PermissionGroupService permissionGroupService,
-                                             InvolvementService involvementService) {
+                                             PermissionGroupService permissionGroupService) {
 
         checkNotNull(measurableRatingPlannedDecommissionService, "measurableRatingPlannedDecommissionService cannot be null");
         checkNotNull(measurableRatingDao, "measurableRatingDao cannot be null");
         checkNotNull(permissionGroupService, "permissionGroupService cannot be null");
         checkNotNull(measurableRatingReplacementDao, "measurableRatingReplacementDao cannot be null");
-        checkNotNull(involvementService, "involvementService cannot be null");
 
         this.measurableRatingPlannedDecommissionService = measurableRatingPlannedDecommissionService;
         this.measurableRatingPlannedDecommissionDao = measurableRatingPlannedDecommissionDao;
@@ -55,7 +51,6 @@ public class MeasurableRatingPermissionChecker implements PermissionChecker {
         this.measurableService = measurableService;
         this.permissionGroupService = permissionGroupService;
         this.measurableRatingDao = measurableRatingDao;
-        this.involvementService = involvementService;
     }
 
     public Set<Operation> findMeasurableRatingDecommPermissions(long ratingId,
@@ -63,16 +58,12 @@ public class MeasurableRatingPermissionChecker implements PermissionChecker {
 
         MeasurableRating rating = measurableRatingDao.getById(ratingId);
 
-        Set<Long> invsForUser = involvementService.findExistingInvolvementKindIdsForUser(rating.entityReference(), username);
         Measurable measurable = measurableService.getById(rating.measurableId());
 
         Set<Operation> operationsForEntityAssessment = permissionGroupService
-                .findPermissionsForParentReference(rating.entityReference(), username)
+                .findAllowedPermissions(rating.entityReference(), EntityKind.MEASURABLE_RATING_PLANNED_DECOMMISSION, username)
                 .stream()
-                .filter(p -> p.subjectKind().equals(EntityKind.MEASURABLE_RATING_PLANNED_DECOMMISSION)
-                        && p.parentKind().equals(rating.entityReference().kind())
-                        && sameRef(p.qualifierReference(), mkRef(EntityKind.MEASURABLE_CATEGORY, measurable.categoryId())))
-                .filter(p -> p.requiredInvolvementsResult().isAllowed(invsForUser))
+                .filter(p -> sameRef(p.qualifierReference(), mkRef(EntityKind.MEASURABLE_CATEGORY, measurable.categoryId())))
                 .map(Permission::operation)
                 .collect(Collectors.toSet());
 
@@ -87,16 +78,12 @@ public class MeasurableRatingPermissionChecker implements PermissionChecker {
                                                           long measurableId,
                                                           String username) {
 
-        Set<Long> invsForUser = involvementService.findExistingInvolvementKindIdsForUser(entityReference, username);
         Measurable measurable = measurableService.getById(measurableId);
 
         Set<Operation> operationsForEntityAssessment = permissionGroupService
-                .findPermissionsForParentReference(entityReference, username)
+                .findAllowedPermissions(entityReference, EntityKind.MEASURABLE_RATING, username)
                 .stream()
-                .filter(p -> p.subjectKind().equals(EntityKind.MEASURABLE_RATING)
-                        && p.parentKind().equals(entityReference.kind())
-                        && sameRef(p.qualifierReference(), mkRef(EntityKind.MEASURABLE_CATEGORY, measurable.categoryId())))
-                .filter(p -> p.requiredInvolvementsResult().isAllowed(invsForUser))
+                .filter(p -> sameRef(p.qualifierReference(), mkRef(EntityKind.MEASURABLE_CATEGORY, measurable.categoryId())))
                 .map(Permission::operation)
                 .collect(Collectors.toSet());
 
@@ -113,16 +100,12 @@ public class MeasurableRatingPermissionChecker implements PermissionChecker {
 
         MeasurableRating rating = measurableRatingDao.getByDecommId(decommId);
 
-        Set<Long> invsForUser = involvementService.findExistingInvolvementKindIdsForUser(rating.entityReference(), username);
         Measurable measurable = measurableService.getById(rating.measurableId());
 
         Set<Operation> operationsForEntityAssessment = permissionGroupService
-                .findPermissionsForParentReference(rating.entityReference(), username)
+                .findAllowedPermissions(rating.entityReference(), EntityKind.MEASURABLE_RATING_REPLACEMENT, username)
                 .stream()
-                .filter(p -> p.subjectKind().equals(EntityKind.MEASURABLE_RATING_REPLACEMENT)
-                        && p.parentKind().equals(rating.entityReference().kind())
-                        && sameRef(p.qualifierReference(), mkRef(EntityKind.MEASURABLE_CATEGORY, measurable.categoryId())))
-                .filter(p -> p.requiredInvolvementsResult().isAllowed(invsForUser))
+                .filter(p -> sameRef(p.qualifierReference(), mkRef(EntityKind.MEASURABLE_CATEGORY, measurable.categoryId())))
                 .map(Permission::operation)
                 .collect(Collectors.toSet());
 
@@ -19,11 +19,8 @@
 package org.finos.waltz.service.person_hierarchy;
 
 import org.finos.waltz.schema.tables.records.PersonHierarchyRecord;
-import org.finos.waltz.common.ListUtilities;
 import org.finos.waltz.common.hierarchy.FlatNode;
-import org.finos.waltz.common.hierarchy.Forest;
-import org.finos.waltz.common.hierarchy.HierarchyUtilities;
-import org.finos.waltz.common.hierarchy.Node;
+import org.finos.waltz.common.hierarchy.IndexedHierarchy;
 import org.finos.waltz.data.person.PersonDao;
 import org.finos.waltz.model.person.Person;
 import org.jooq.DSLContext;
@@ -35,9 +32,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static org.finos.waltz.schema.tables.PersonHierarchy.PERSON_HIERARCHY;
 import static java.util.stream.Collectors.toList;
@@ -62,46 +58,40 @@ public class PersonHierarchyService {
         LOG.warn("Building person hierarchy");
         List<Person> all = personDao.all();
 
-        Forest<Person, String> forest = toForest(all);
+        IndexedHierarchy<String> hierarchy = toHierarchy(all);
 
-        List<PersonHierarchyRecord> records = toHierarchyRecords(forest);
+        List<PersonHierarchyRecord> records = toHierarchyRecords(hierarchy);
 
         return dsl.transactionResult(configuration -> {
             DSLContext txDsl = DSL.using(configuration);
             txDsl.deleteFrom(PERSON_HIERARCHY).execute();
-            return txDsl.batchStore(records).execute();
+            return txDsl.batchInsert(records).execute();
         });
     }
 
 
-    private List<PersonHierarchyRecord> toHierarchyRecords(Forest<Person, String> forest) {
-        List<PersonHierarchyRecord> records = new LinkedList<>();
-
-        for (Node<Person, String> node : forest.getAllNodes().values()) {
-            List<Person> ancestors =
-                    ListUtilities.reverse(
-                            HierarchyUtilities.parents(node)
-                                    .stream()
-                                    .map(Node::getData)
-                                    .collect(Collectors.toList()));
-
-            for (int i = 0; i < ancestors.size(); i++) {
-                String ancestorId = ancestors.get(i).employeeId();
-                String selfId = node.getData().employeeId();
-                PersonHierarchyRecord record = new PersonHierarchyRecord(ancestorId, selfId, i + 1);
-                records.add(record);
-            }
+    private List<PersonHierarchyRecord> toHierarchyRecords(IndexedHierarchy<String> hierarchy) {
+        if (hierarchy.hasCycle()) {
+            LOG.warn("Person hierarchy contains management cycles, people in (or beneath) a cycle will be omitted");
         }
+
+        List<PersonHierarchyRecord> records = new ArrayList<>(hierarchy.closureSize(false));
+        hierarchy.forEachClosureRow(
+                false,
+                (employee, manager) -> records.add(new PersonHierarchyRecord(
+                        hierarchy.key(manager),
+                        hierarchy.key(employee),
+                        hierarchy.depth(manager))));
         return records;
     }
 
 
-    private Forest<Person, String> toForest(List<Person> all) {
+    private IndexedHierarchy<String> toHierarchy(List<Person> all) {
         List<FlatNode<Person, String>> allFlatNodes = all.stream()
                 .map(p -> new FlatNode<>(p.employeeId(), p.managerEmployeeId(), p))
                 .collect(toList());
 
-        return HierarchyUtilities.toForest(allFlatNodes);
+        return IndexedHierarchy.fromFlatNodes(allFlatNodes);
     }
 
 
@@ -20,21 +20,25 @@ package org.finos.waltz.service.physical_flow;
 
 import org.finos.waltz.common.Aliases;
 import org.finos.waltz.common.MapUtilities;
+import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.common.StringUtilities;
 import org.finos.waltz.data.actor.ActorDao;
 import org.finos.waltz.data.application.ApplicationDao;
 import org.finos.waltz.data.data_type.DataTypeDao;
-import org.finos.waltz.data.logical_flow.LogicalFlowDao;
-import org.finos.waltz.data.physical_flow.PhysicalFlowDao;
-import org.finos.waltz.data.physical_specification.PhysicalSpecificationDao;
+import org.finos.waltz.data.physical_flow.PhysicalFlowUploadDao;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.Severity;
 import org.finos.waltz.model.UserTimestamp;
 import org.finos.waltz.model.actor.Actor;
 import org.finos.waltz.model.application.Application;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
 import org.finos.waltz.model.command.CommandOutcome;
 import org.finos.waltz.model.datatype.DataType;
 import org.finos.waltz.model.datatype.DataTypeDecorator;
+import org.finos.waltz.model.datatype.ImmutableDataTypeDecorator;
 import org.finos.waltz.model.enum_value.EnumValueKind;
 import org.finos.waltz.model.external_identifier.ExternalIdValue;
 import org.finos.waltz.model.logical_flow.ImmutableLogicalFlow;
@@ -43,23 +47,47 @@ import org.finos.waltz.model.physical_flow.*;
 import org.finos.waltz.model.physical_specification.DataFormatKindValue;
 import org.finos.waltz.model.physical_specification.ImmutablePhysicalSpecification;
 import org.finos.waltz.model.physical_specification.PhysicalSpecification;
-import org.finos.waltz.service.data_type.DataTypeDecoratorService;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.finos.waltz.service.changelog.ChangeLogService;
 import org.finos.waltz.service.enum_value.EnumValueAliasService;
+import org.finos.waltz.service.flow_classification_rule.FlowClassificationCalculator;
+import org.finos.waltz.service.physical_specification.PhysicalSpecificationService;
+import org.finos.waltz.service.usage_info.DataTypeUsageService;
+import org.jooq.DSLContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Stream;
 
+import static java.lang.String.format;
 import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.mapping;
+import static java.util.stream.Collectors.toCollection;
 import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
 import static org.finos.waltz.common.DateTimeUtilities.nowUtc;
-import static org.finos.waltz.common.SetUtilities.fromArray;
+import static org.finos.waltz.common.ListUtilities.map;
 import static org.finos.waltz.common.StringUtilities.isEmpty;
 import static org.finos.waltz.common.StringUtilities.lower;
 
@@ -67,42 +95,52 @@ import static org.finos.waltz.common.StringUtilities.lower;
 @Service
 public class PhysicalFlowUploadService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(PhysicalFlowUploadService.class);
+
+    private final DSLContext dsl;
     private final ActorDao actorDao;
     private final ApplicationDao applicationDao;
     private final DataTypeDao dataTypeDao;
-    private final LogicalFlowDao logicalFlowDao;
-    private final DataTypeDecoratorService dataTypeDecoratorService;
-    private final PhysicalFlowDao physicalFlowDao;
-    private final PhysicalSpecificationDao physicalSpecificationDao;
+    private final PhysicalFlowUploadDao physicalFlowUploadDao;
     private final EnumValueAliasService enumValueAliasService;
+    private final ChangeLogService changeLogService;
+    private final DataTypeUsageService dataTypeUsageService;
+    private final FlowClassificationCalculator flowClassificationCalculator;
+    private final PhysicalSpecificationService physicalSpecificationService;
 
     private final Pattern basisOffsetRegex = Pattern.compile("T?(?<offset>[\\+\\-]?\\d+)");
 
 
-    public PhysicalFlowUploadService(ActorDao actorDao,
+    public PhysicalFlowUploadService(DSLContext dsl,
+                                     ActorDao actorDao,
                                      ApplicationDao applicationDao,
                                      DataTypeDao dataTypeDao,
-                                     LogicalFlowDao logicalFlowDao,
-                                     DataTypeDecoratorService dataTypeDecoratorService,
-                                     PhysicalFlowDao physicalFlowDao,
-                                     PhysicalSpecificationDao physicalSpecificationDao,
-                                     EnumValueAliasService enumValueAliasService) {
+                                     PhysicalFlowUploadDao physicalFlowUploadDao,
+                                     EnumValueAliasService enumValueAliasService,
+                                     ChangeLogService changeLogService,
+                                     DataTypeUsageService dataTypeUsageService,
+                                     FlowClassificationCalculator flowClassificationCalculator,
+                                     PhysicalSpecificationService physicalSpecificationService) {
+        checkNotNull(dsl, "dsl cannot be null");
         checkNotNull(actorDao, "actorDao cannot be null");
         checkNotNull(applicationDao, "applicationDao cannot be null");
         checkNotNull(dataTypeDao, "dataTypeDao cannot be null");
-        checkNotNull(dataTypeDecoratorService, "dataTypeDecoratorService cannot be null");
-        checkNotNull(logicalFlowDao, "logicalFlowDao cannot be null");
-        checkNotNull(physicalFlowDao, "physicalFlowDao cannot be null");
-        checkNotNull(physicalSpecificationDao, "physicalSpecificationDao cannot be null");
+        checkNotNull(physicalFlowUploadDao, "physicalFlowUploadDao cannot be null");
         checkNotNull(enumValueAliasService, "enumValueAliasService cannot be null");
+        checkNotNull(changeLogService, "changeLogService cannot be null");
+        checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
+        checkNotNull(flowClassificationCalculator, "flowClassificationCalculator cannot be null");
+        checkNotNull(physicalSpecificationService, "physicalSpecificationService cannot be null");
+        this.dsl = dsl;
         this.actorDao = actorDao;
         this.applicationDao = applicationDao;
         this.dataTypeDao = dataTypeDao;
-        this.logicalFlowDao = logicalFlowDao;
-        this.physicalFlowDao = physicalFlowDao;
-        this.physicalSpecificationDao = physicalSpecificationDao;
+        this.physicalFlowUploadDao = physicalFlowUploadDao;
         this.enumValueAliasService = enumValueAliasService;
-        this.dataTypeDecoratorService = dataTypeDecoratorService;
+        this.changeLogService = changeLogService;
+        this.dataTypeUsageService = dataTypeUsageService;
+        this.flowClassificationCalculator = flowClassificationCalculator;
+        this.physicalSpecificationService = physicalSpecificationService;
     }
 
 
@@ -145,8 +183,11 @@ public class PhysicalFlowUploadService {
         }
 
         // no parse errors - check for duplicates
+        Map<PhysicalFlowParsed, PhysicalFlow> existingFlows = physicalFlowUploadDao.findByParsedFlows(
+                map(parsedFlows, PhysicalFlowUploadCommandResponse::parsedFlow));
+
         List<PhysicalFlowUploadCommandResponse> responses = parsedFlows.stream()
-                .map(f -> Optional.ofNullable(physicalFlowDao.getByParsedFlow(f.parsedFlow()))
+                .map(f -> Optional.ofNullable(existingFlows.get(f.parsedFlow()))
                     .map(m -> (PhysicalFlowUploadCommandResponse) ImmutablePhysicalFlowUploadCommandResponse
                             .copyOf(f)
                             .withEntityReference(m.entityReference()))
@@ -156,13 +197,25 @@ public class PhysicalFlowUploadService {
         return responses;
     }
 
-    
+
+    /**
+     * Creates the physical flows (and any missing logical flows, specifications and data type
+     * decorators) described by the commands.  Rows are processed as a set, each phase issues
+     * a query per batch of rows rather than per row, and all inserts are performed in a
+     * single transaction.
+     *
+     * Change logs, data type usages and flow ratings are updated once the transaction has
+     * committed.
+     */
     public List<PhysicalFlowUploadCommandResponse> upload(String username,
                                                           List<PhysicalFlowUploadCommand> cmds) throws Exception {
         checkNotNull(cmds, "cmds cannot be empty");
 
+        UploadProgress progress = new UploadProgress(cmds.size());
+
         // load application and actor maps
         List<PhysicalFlowUploadCommandResponse> validated = validate(cmds);
+        progress.phaseComplete("validation", "%d rows validated", validated.size());
 
         if(validated.stream().anyMatch(v -> v.outcome() == CommandOutcome.FAILURE)) {
             throw new IllegalArgumentException("Cannot upload flows which contain parse errors, please validate");
@@ -172,38 +225,35 @@ public class PhysicalFlowUploadService {
                 .filter(v -> v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)
                 .collect(toList());
 
-        // create physical flow with ids from the above two
-        List<PhysicalFlowUploadCommandResponse> created = newFlowCmds.stream()
-                .map(v -> {
-                    if (!(v.outcome() == CommandOutcome.SUCCESS && v.entityReference() == null)) {
-                        return v;
-                    }
-
-                    PhysicalFlowParsed flow = v.parsedFlow();
-                    LogicalFlow logicalFlow = getOrCreateLogicalFlow(flow.source(), flow.target(), flow.dataType(), username);
-                    PhysicalSpecification specification = getOrCreatePhysicalSpec(flow, username);
-
-                    PhysicalFlow newFlow = ImmutablePhysicalFlow.builder()
-                            .logicalFlowId(logicalFlow.id().get())
-                            .specificationId(specification.id().get())
-                            .basisOffset(flow.basisOffset())
-                            .frequency(flow.frequency())
-                            .transport(flow.transport())
-                            .criticality(flow.criticality())
-                            .description(flow.description())
-                            .externalId(Optional.ofNullable(flow.externalId()))
-                            .lastUpdatedBy(username)
-                            .lastUpdatedAt(nowUtc())
-                            .build();
-
-                    long id = getOrCreatePhysicalFlow(newFlow);
-
-                    return ImmutablePhysicalFlowUploadCommandResponse.copyOf(v)
-                            .withEntityReference(EntityReference.mkRef(EntityKind.PHYSICAL_FLOW, id));
-                })
-                .collect(toList());
+        if (newFlowCmds.isEmpty()) {
+            progress.logSummary();
+            return newFlowCmds;
+        }
 
-        return created;
+        List<PhysicalFlowParsed> parsedFlows = map(newFlowCmds, PhysicalFlowUploadCommandResponse::parsedFlow);
+
+        UploadOutcome outcome = dsl.transactionResult(ctx -> storeFlows(
+                ctx.dsl(),
+                username,
+                parsedFlows,
+                progress));
+
+        applyDerivedChanges(username, outcome);
+        progress.phaseComplete(
+                "derived changes",
+                "%d logical flows affected by new data types",
+                outcome.affectedLogicalFlows.size());
+
+        progress.logSummary();
+
+        return newFlowCmds
+                .stream()
+                .map(v -> (PhysicalFlowUploadCommandResponse) ImmutablePhysicalFlowUploadCommandResponse
+                        .copyOf(v)
+                        .withEntityReference(EntityReference.mkRef(
+                                EntityKind.PHYSICAL_FLOW,
+                                outcome.physicalFlowIds.get(v.parsedFlow()))))
+                .collect(toList());
     }
 
 
@@ -383,91 +433,275 @@ public class PhysicalFlowUploadService {
     }
 
 
-    private LogicalFlow getOrCreateLogicalFlow(EntityReference source,
-                                               EntityReference target,
-                                               EntityReference dataType,
-                                               String username) {
-
-        LogicalFlow flow = logicalFlowDao.getBySourceAndTarget(source, target);
+    /**
+     * Resolves (creating where necessary) the logical flows, specifications, data type
+     * decorators and physical flows for the given rows.  Must be called within a transaction.
+     */
+    private UploadOutcome storeFlows(DSLContext tx,
+                                     String username,
+                                     List<PhysicalFlowParsed> parsedFlows,
+                                     UploadProgress progress) {
+        LocalDateTime now = nowUtc();
+
+        // logical flows
+        Map<PhysicalFlowParsed, LogicalFlow> logicalFlowsByParsedFlow = parsedFlows
+                .stream()
+                .collect(toMap(identity(), f -> mkLogicalFlow(f, username, now), (f1, f2) -> f1, LinkedHashMap::new));
+
+        Map<LogicalFlow, Long> logicalFlowIds = findOrCreate(
+                "logical flows",
+                new LinkedHashSet<>(logicalFlowsByParsedFlow.values()),
+                flows -> physicalFlowUploadDao.findLogicalFlowIds(tx, flows),
+                flows -> physicalFlowUploadDao.restoreLogicalFlows(tx, flows, username),
+                flows -> physicalFlowUploadDao.createLogicalFlows(tx, flows),
+                progress);
+
+        Function<PhysicalFlowParsed, Long> toLogicalFlowId = f -> logicalFlowIds.get(logicalFlowsByParsedFlow.get(f));
+
+        List<DataTypeDecorator> addedLogicalFlowDecorators = physicalFlowUploadDao.addLogicalFlowDecorators(
+                tx,
+                map(parsedFlows, f -> mkDecorator(
+                        username,
+                        EntityReference.mkRef(EntityKind.LOGICAL_DATA_FLOW, toLogicalFlowId.apply(f)),
+                        f.dataType().id(),
+                        Optional.of(AuthoritativenessRatingValue.NO_OPINION),
+                        now)));
+
+        progress.phaseComplete("logical flow data types", "%d added", addedLogicalFlowDecorators.size());
+
+        // specifications
+        Map<PhysicalFlowParsed, PhysicalSpecification> specificationsByParsedFlow = parsedFlows
+                .stream()
+                .collect(toMap(identity(), f -> mkSpecification(f, username, now), (s1, s2) -> s1, LinkedHashMap::new));
+
+        Map<PhysicalSpecification, Long> specificationIds = findOrCreate(
+                "specifications",
+                new LinkedHashSet<>(specificationsByParsedFlow.values()),
+                specs -> physicalFlowUploadDao.findSpecificationIds(tx, specs),
+                specs -> 0,
+                specs -> physicalFlowUploadDao.createSpecifications(tx, specs),
+                progress);
+
+        Function<PhysicalFlowParsed, Long> toSpecificationId = f -> specificationIds.get(specificationsByParsedFlow.get(f));
+
+        List<DataTypeDecorator> addedSpecificationDecorators = physicalFlowUploadDao.addSpecificationDecorators(
+                tx,
+                map(parsedFlows, f -> mkDecorator(
+                        username,
+                        EntityReference.mkRef(EntityKind.PHYSICAL_SPECIFICATION, toSpecificationId.apply(f)),
+                        f.dataType().id(),
+                        Optional.empty(),
+                        now)));
+
+        progress.phaseComplete("specification data types", "%d added", addedSpecificationDecorators.size());
+
+        // physical flows
+        Map<PhysicalFlowParsed, PhysicalFlow> physicalFlowsByParsedFlow = parsedFlows
+                .stream()
+                .collect(toMap(
+                        identity(),
+                        f -> mkPhysicalFlow(f, toLogicalFlowId.apply(f), toSpecificationId.apply(f), username, now),
+                        (f1, f2) -> f1,
+                        LinkedHashMap::new));
+
+        Map<PhysicalFlow, Long> physicalFlowIds = findOrCreate(
+                "physical flows",
+                new LinkedHashSet<>(physicalFlowsByParsedFlow.values()),
+                flows -> physicalFlowUploadDao.findPhysicalFlowIds(tx, flows),
+                flows -> 0,
+                flows -> physicalFlowUploadDao.createPhysicalFlows(tx, flows),
+                progress);
+
+        // logical flows whose data types may have changed, either directly or via their specification
+        Set<Long> decoratedLogicalFlowIds = SetUtilities.map(addedLogicalFlowDecorators, d -> d.entityReference().id());
+        Set<Long> decoratedSpecificationIds = SetUtilities.map(addedSpecificationDecorators, d -> d.entityReference().id());
+
+        Map<Long, LogicalFlow> affectedLogicalFlows = new HashMap<>();
+        parsedFlows
+                .stream()
+                .filter(f -> decoratedLogicalFlowIds.contains(toLogicalFlowId.apply(f))
+                        || decoratedSpecificationIds.contains(toSpecificationId.apply(f)))
+                .forEach(f -> affectedLogicalFlows.put(toLogicalFlowId.apply(f), logicalFlowsByParsedFlow.get(f)));
+
+        return new UploadOutcome(
+                physicalFlowsByParsedFlow
+                        .entrySet()
+                        .stream()
+                        .collect(toMap(Map.Entry::getKey, e -> physicalFlowIds.get(e.getValue()))),
+                affectedLogicalFlows,
+                addedLogicalFlowDecorators,
+                addedSpecificationDecorators);
+    }
 
-        if (flow == null) {
-            LocalDateTime now = nowUtc();
 
-            LogicalFlow flowToAdd = ImmutableLogicalFlow.builder()
-                    .source(source)
-                    .target(target)
-                    .lastUpdatedBy(username)
-                    .lastUpdatedAt(now)
-                    .provenance("waltz")
-                    .created(UserTimestamp.mkForUser(username, now))
-                    .build();
+    /**
+     * Looks up the ids of the given items, restoring or creating any which cannot be found.
+     *
+     * @return map of every item to its id
+     */
+    private static <T> Map<T, Long> findOrCreate(String phase,
+                                                 Set<T> items,
+                                                 Function<Collection<T>, Map<T, Long>> finder,
+                                                 ToIntFunction<Collection<T>> restorer,
+                                                 ToIntFunction<Collection<T>> creator,
+                                                 UploadProgress progress) {
+        Map<T, Long> ids = new HashMap<>(finder.apply(items));
+        int matched = ids.size();
+
+        Set<T> missing = findMissing(items, ids);
+        int restored = missing.isEmpty()
+                ? 0
+                : restorer.applyAsInt(missing);
+        if (restored > 0) {
+            ids.putAll(finder.apply(missing));
+            missing = findMissing(items, ids);
+        }
 
-            flow = logicalFlowDao.addFlow(flowToAdd);
+        int created = missing.isEmpty()
+                ? 0
+                : creator.applyAsInt(missing);
+        if (created > 0) {
+            ids.putAll(finder.apply(missing));
         }
 
+        checkTrue(
+                ids.size() == items.size(),
+                "Could not resolve %d of %d %s",
+                items.size() - ids.size(),
+                items.size(),
+                phase);
 
-        EntityReference logicalFlowEntityRef = EntityReference.mkRef(EntityKind.LOGICAL_DATA_FLOW, flow.id().get());
-        DataTypeDecorator existingDecorator = dataTypeDecoratorService.getByEntityRefAndDataTypeId(
-                logicalFlowEntityRef,
-                dataType.id());
+        progress.phaseComplete(phase, "%d matched, %d restored, %d created", matched, restored, created);
+        return ids;
+    }
 
-        if(existingDecorator == null) {
-            dataTypeDecoratorService
-                    .addDecorators(username, logicalFlowEntityRef, fromArray(dataType.id()));
-        }
-        return flow;
+
+    private static <T> Set<T> findMissing(Set<T> items, Map<T, Long> ids) {
+        return items
+                .stream()
+                .filter(item -> !ids.containsKey(item))
+                .collect(toCollection(LinkedHashSet::new));
     }
 
 
-    private PhysicalSpecification getOrCreatePhysicalSpec(PhysicalFlowParsed flow,
-                                                          String username) {
-        EntityReference owner = flow.owner();
-        DataFormatKindValue format = flow.format();
-        String name = flow.name();
-
-
-        // check database
-        PhysicalSpecification spec = physicalSpecificationDao.getByParsedFlow(flow);
-        if (spec == null) {
-
-            // create
-            LocalDateTime now = nowUtc();
-            PhysicalSpecification specToAdd = ImmutablePhysicalSpecification.builder()
-                    .owningEntity(owner)
-                    .format(format)
-                    .name(name)
-                    .externalId(Optional.ofNullable(flow.specExternalId()).orElse(""))
-                    .description(Optional.ofNullable(flow.specDescription()).orElse(""))
-                    .lastUpdatedBy(username)
-                    .lastUpdatedAt(now)
-                    .provenance("waltz")
-                    .created(UserTimestamp.mkForUser(username, now))
-                    .build();
-
-            Long id = physicalSpecificationDao.create(specToAdd);
-            spec = ImmutablePhysicalSpecification
-                    .copyOf(specToAdd)
-                    .withId(id);
+    /**
+     * Writes change logs for the added data types, propagates specification data types to
+     * their logical flows and recalculates data type usages and flow ratings.  These are
+     * performed after the upload transaction has committed as the services involved
+     * cannot see uncommitted rows.
+     */
+    private void applyDerivedChanges(String username, UploadOutcome outcome) {
+        List<ChangeLog> changeLogs = new ArrayList<>();
+        changeLogs.addAll(mkDataTypeChangeLogs(username, outcome.addedLogicalFlowDecorators));
+        changeLogs.addAll(mkDataTypeChangeLogs(username, outcome.addedSpecificationDecorators));
+        if (!changeLogs.isEmpty()) {
+            changeLogService.write(changeLogs);
         }
 
-        long dataTypeId = flow.dataType().id();
-        EntityReference specificationEntityRef = EntityReference.mkRef(EntityKind.PHYSICAL_SPECIFICATION, spec.id().get());
+        physicalSpecificationService.propagateDataTypesToLogicalFlows(
+                username,
+                SetUtilities.map(outcome.addedSpecificationDecorators, d -> d.entityReference().id()));
+
+        if (!outcome.affectedLogicalFlows.isEmpty()) {
+            dataTypeUsageService.recalculateForApplications(outcome.affectedLogicalFlows
+                    .values()
+                    .stream()
+                    .flatMap(f -> Stream.of(f.source(), f.target()))
+                    .collect(toSet()));
 
-        DataTypeDecorator existingDataType = dataTypeDecoratorService.getByEntityRefAndDataTypeId(specificationEntityRef, dataTypeId);
-        if(existingDataType == null) {
-            dataTypeDecoratorService.addDecorators(username, specificationEntityRef, fromArray(dataTypeId));
+            flowClassificationCalculator.recalculateForLogicalFlows(outcome.affectedLogicalFlows.keySet());
         }
-        return spec;
     }
 
 
-    private long getOrCreatePhysicalFlow(PhysicalFlow newFlow) {
-        PhysicalFlow existing = physicalFlowDao.matchPhysicalFlow(newFlow);
-        if (existing != null) {
-            return existing.id().get();
-        } else {
-            return physicalFlowDao.create(newFlow);
-        }
+    private static List<ChangeLog> mkDataTypeChangeLogs(String username,
+                                                        List<DataTypeDecorator> addedDecorators) {
+        Map<EntityReference, Set<Long>> dataTypeIdsByEntity = addedDecorators
+                .stream()
+                .collect(groupingBy(
+                        DataTypeDecorator::entityReference,
+                        LinkedHashMap::new,
+                        mapping(DataTypeDecorator::dataTypeId, toCollection(TreeSet::new))));
+
+        return dataTypeIdsByEntity
+                .entrySet()
+                .stream()
+                .map(e -> (ChangeLog) ImmutableChangeLog.builder()
+                        .parentReference(e.getKey())
+                        .userId(username)
+                        .severity(Severity.INFORMATION)
+                        .message(format("Added data types: %s", e.getValue()))
+                        .childKind(EntityKind.DATA_TYPE)
+                        .operation(Operation.UPDATE)
+                        .build())
+                .collect(toList());
+    }
+
+
+    private static LogicalFlow mkLogicalFlow(PhysicalFlowParsed flow,
+                                             String username,
+                                             LocalDateTime now) {
+        return ImmutableLogicalFlow.builder()
+                .source(flow.source())
+                .target(flow.target())
+                .lastUpdatedBy(username)
+                .lastUpdatedAt(now)
+                .provenance("waltz")
+                .created(UserTimestamp.mkForUser(username, now))
+                .build();
+    }
+
+
+    private static PhysicalSpecification mkSpecification(PhysicalFlowParsed flow,
+                                                         String username,
+                                                         LocalDateTime now) {
+        return ImmutablePhysicalSpecification.builder()
+                .owningEntity(flow.owner())
+                .format(flow.format())
+                .name(flow.name())
+                .externalId(Optional.ofNullable(flow.specExternalId()).orElse(""))
+                .description(Optional.ofNullable(flow.specDescription()).orElse(""))
+                .lastUpdatedBy(username)
+                .lastUpdatedAt(now)
+                .provenance("waltz")
+                .created(UserTimestamp.mkForUser(username, now))
+                .build();
+    }
+
+
+    private static PhysicalFlow mkPhysicalFlow(PhysicalFlowParsed flow,
+                                               long logicalFlowId,
+                                               long specificationId,
+                                               String username,
+                                               LocalDateTime now) {
+        return ImmutablePhysicalFlow.builder()
+                .logicalFlowId(logicalFlowId)
+                .specificationId(specificationId)
+                .basisOffset(flow.basisOffset())
+                .frequency(flow.frequency())
+                .transport(flow.transport())
+                .criticality(flow.criticality())
+                .description(flow.description())
+                .externalId(Optional.ofNullable(flow.externalId()))
+                .lastUpdatedBy(username)
+                .lastUpdatedAt(now)
+                .build();
+    }
+
+
+    private static DataTypeDecorator mkDecorator(String username,
+                                                 EntityReference entityReference,
+                                                 long dataTypeId,
+                                                 Optional<AuthoritativenessRatingValue> rating,
+                                                 LocalDateTime now) {
+        return ImmutableDataTypeDecorator.builder()
+                .rating(rating)
+                .entityReference(entityReference)
+                .decoratorEntity(EntityReference.mkRef(EntityKind.DATA_TYPE, dataTypeId))
+                .provenance("waltz")
+                .lastUpdatedAt(now)
+                .lastUpdatedBy(username)
+                .build();
     }
 
 
@@ -487,4 +721,64 @@ public class PhysicalFlowUploadService {
         return enumValueAliasService.mkAliases(EnumValueKind.DATA_FORMAT_KIND, DataFormatKindValue::of);
     }
 
+
+    private static class UploadOutcome {
+
+        private final Map<PhysicalFlowParsed, Long> physicalFlowIds;
+        private final Map<Long, LogicalFlow> affectedLogicalFlows;
+        private final List<DataTypeDecorator> addedLogicalFlowDecorators;
+        private final List<DataTypeDecorator> addedSpecificationDecorators;
+
+
+        private UploadOutcome(Map<PhysicalFlowParsed, Long> physicalFlowIds,
+                              Map<Long, LogicalFlow> affectedLogicalFlows,
+                              List<DataTypeDecorator> addedLogicalFlowDecorators,
+                              List<DataTypeDecorator> addedSpecificationDecorators) {
+            this.physicalFlowIds = physicalFlowIds;
+            this.affectedLogicalFlows = affectedLogicalFlows;
+            this.addedLogicalFlowDecorators = addedLogicalFlowDecorators;
+            this.addedSpecificationDecorators = addedSpecificationDecorators;
+        }
+    }
+
+
+    /**
+     * Logs the completion of each phase of an upload and the time it took, a summary of
+     * all phase timings is logged once the upload is complete.
+     */
+    private static class UploadProgress {
+
+        private final int rowCount;
+        private final long startedAt = System.nanoTime();
+        private final Map<String, Long> millisByPhase = new LinkedHashMap<>();
+        private long phaseStartedAt = startedAt;
+
+
+        private UploadProgress(int rowCount) {
+            this.rowCount = rowCount;
+        }
+
+
+        private void phaseComplete(String phase, String detailFormat, Object... detailArgs) {
+            long now = System.nanoTime();
+            long millis = TimeUnit.NANOSECONDS.toMillis(now - phaseStartedAt);
+            millisByPhase.merge(phase, millis, Long::sum);
+            phaseStartedAt = now;
+
+            LOG.info("Physical flow upload ({} rows) - {} complete in {}ms: {}",
+                    rowCount,
+                    phase,
+                    millis,
+                    format(detailFormat, detailArgs));
+        }
+
+
+        private void logSummary() {
+            LOG.info("Physical flow upload ({} rows) completed in {}ms, phase timings (ms): {}",
+                    rowCount,
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt),
+                    millisByPhase);
+        }
+    }
+
 }
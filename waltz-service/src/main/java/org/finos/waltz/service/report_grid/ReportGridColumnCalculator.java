@@ -1,31 +1,53 @@
 package org.finos.waltz.service.report_grid;
 
 import org.apache.commons.jexl3.*;
-import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.model.either.Either;
 import org.finos.waltz.model.rating.RatingSchemeItem;
 import org.finos.waltz.model.report_grid.*;
 
+import org.jooq.lambda.tuple.Tuple2;
+
 import java.util.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
+import static java.util.Collections.emptySet;
 import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toCollection;
+import static java.util.stream.Collectors.toList;
 import static java.util.stream.Collectors.toSet;
 import static org.finos.waltz.common.MapUtilities.*;
 import static org.finos.waltz.common.SetUtilities.*;
-import static org.finos.waltz.common.StringUtilities.notEmpty;
 import static org.finos.waltz.model.report_grid.CellOption.mkCellOption;
 import static org.finos.waltz.model.utils.IdUtilities.indexById;
 import static org.jooq.lambda.tuple.Tuple.tuple;
 
+/**
+ * Evaluates the derived columns of a report grid.
+ *
+ * Derived column scripts refer to other columns via their external ids (e.g. <code>cell('CTB')</code>).
+ * These references are used to order the derived columns so that each column is evaluated after
+ * the derived columns it depends upon, meaning most rows can be calculated in a single pass.
+ * Columns which participate in (or depend upon) a cycle cannot be ordered, they are evaluated
+ * afterwards by repeatedly re-evaluating them until their results stop changing.
+ *
+ * Each row is evaluated with its own context, allowing rows to be calculated in parallel.
+ */
 public class ReportGridColumnCalculator {
 
+    private static final Pattern STRING_LITERAL_PATTERN = Pattern.compile("'([^']*)'|\"([^\"]*)\"");
+
+    /**
+     * Namespace functions whose arguments are cell external ids, see {@link ReportGridEvaluatorNamespace}.
+     */
+    private static final Pattern CELL_FUNCTION_PATTERN = Pattern.compile(
+            "\\b(cell|coalesceCells|anyCellsProvided|allCellsProvided|ratioProvided|percentageProvided)\\s*\\(");
+
 
     public static Set<ReportGridCell> calculate(ReportGridInstance instance,
                                                 ReportGridDefinition definition) {
-        ReportGridEvaluatorNamespace ns = new ReportGridEvaluatorNamespace(definition);
         JexlBuilder builder = new JexlBuilder();
-        JexlEngine jexl = builder.namespaces(newHashMap(null, ns)).cache(512).create();
+        JexlEngine jexl = builder.cache(512).create();
 
         Map<Long, Collection<ReportGridCell>> rowBySubject = groupBy(
                 instance.cellData(),
@@ -33,6 +55,8 @@ public class ReportGridColumnCalculator {
 
         Map<Long, RatingSchemeItem> ratingSchemeItemsById = indexById(instance.ratingSchemeItems());
 
+        Set<String> availableCellExtIds = ReportGridEvaluatorNamespace.mkAvailableCellExtIds(definition);
+
         Set<CompiledCalculatedColumn> derivedColumns = map(
                 definition.derivedColumnDefinitions(),
                 d -> {
@@ -47,30 +71,150 @@ public class ReportGridColumnCalculator {
                             .build();
                 });
 
+        Tuple2<List<CompiledCalculatedColumn>, Set<CompiledCalculatedColumn>> plan = planEvaluation(derivedColumns);
+
         return instance
                 .subjects()
-                .stream()
-                .map(s -> {
-                    long subjectId = s.entityReference().id();
+                .parallelStream()
+                .flatMap(subject -> {
                     Map<String, Object> ctx = initialiseContext(
                             definition.fixedColumnDefinitions(),
                             ratingSchemeItemsById,
-                            s,
-                            lookupRow(rowBySubject, subjectId));
-                    ns.setContext(ctx);
-                    return s;
+                            subject,
+                            lookupRow(rowBySubject, subject.entityReference().id()));
+
+                    ReportGridEvaluatorNamespace ns = new ReportGridEvaluatorNamespace(availableCellExtIds, ctx);
+
+                    return calcDerivedCols(
+                            ns,
+                            subject,
+                            plan.v1,
+                            plan.v2)
+                        .stream();
                 })
-                .flatMap(subject ->
-                        calcDerivedCols(
-                                ns,
-                                subject,
-                                derivedColumns)
-                        .stream())
                 .collect(toSet());
 
     }
 
 
+    /**
+     * Orders the derived columns so that each column appears after any derived columns its
+     * script references.  Columns which cannot be ordered, because they are part of a cycle
+     * or depend on a column which is, are returned separately (in position order).
+     *
+     * @param derivedColumns  compiled derived columns
+     * @return tuple of (columns in evaluation order, columns which must be evaluated iteratively)
+     */
+    static Tuple2<List<CompiledCalculatedColumn>, Set<CompiledCalculatedColumn>> planEvaluation(Collection<CompiledCalculatedColumn> derivedColumns) {
+
+        List<CompiledCalculatedColumn> byPosition = derivedColumns
+                .stream()
+                .sorted(Comparator.comparingInt(c -> c.column().position()))
+                .collect(toList());
+
+        Map<String, Collection<CompiledCalculatedColumn>> colsByExtId = groupBy(
+                byPosition,
+                c -> colToExtId(c.column()));
+
+        Map<CompiledCalculatedColumn, Set<CompiledCalculatedColumn>> dependantsByColumn = new HashMap<>();
+        Map<CompiledCalculatedColumn, Integer> unresolvedDependencyCounts = new HashMap<>();
+
+        byPosition.forEach(col -> {
+            Set<CompiledCalculatedColumn> dependencies = findReferencedExtIds(col.column().derivationScript())
+                    .stream()
+                    .flatMap(extId -> colsByExtId.getOrDefault(extId, emptySet()).stream())
+                    .collect(toSet());
+
+            unresolvedDependencyCounts.put(col, dependencies.size());
+            dependencies.forEach(dep -> dependantsByColumn
+                    .computeIfAbsent(dep, k -> new HashSet<>())
+                    .add(col));
+        });
+
+        Deque<CompiledCalculatedColumn> ready = byPosition
+                .stream()
+                .filter(c -> unresolvedDependencyCounts.get(c) == 0)
+                .collect(toCollection(ArrayDeque::new));
+
+        List<CompiledCalculatedColumn> ordered = new ArrayList<>(byPosition.size());
+
+        while (!ready.isEmpty()) {
+            CompiledCalculatedColumn col = ready.poll();
+            ordered.add(col);
+            dependantsByColumn
+                    .getOrDefault(col, emptySet())
+                    .forEach(dependant -> {
+                        int remaining = unresolvedDependencyCounts.merge(dependant, -1, Integer::sum);
+                        if (remaining == 0) {
+                            ready.add(dependant);
+                        }
+                    });
+        }
+
+        Set<CompiledCalculatedColumn> orderedSet = fromCollection(ordered);
+        Set<CompiledCalculatedColumn> unresolvable = byPosition
+                .stream()
+                .filter(c -> !orderedSet.contains(c))
+                .collect(toCollection(LinkedHashSet::new));
+
+        return tuple(ordered, unresolvable);
+    }
+
+
+    /**
+     * Scripts refer to other cells by passing their external ids as string literals
+     * to the namespace functions, e.g. <code>cell('CTB')</code> or <code>anyCellsProvided("A", "B")</code>.
+     * Only the arguments of those functions are considered, other literals (e.g. the values
+     * given to <code>mkResult</code>) may coincide with a column's external id without being a reference.
+     */
+    static Set<String> findReferencedExtIds(String script) {
+        Set<String> extIds = new HashSet<>();
+        if (script == null) {
+            return extIds;
+        }
+        Matcher callMatcher = CELL_FUNCTION_PATTERN.matcher(script);
+        while (callMatcher.find()) {
+            String args = script.substring(
+                    callMatcher.end(),
+                    findClosingParen(script, callMatcher.end()));
+            Matcher literalMatcher = STRING_LITERAL_PATTERN.matcher(args);
+            while (literalMatcher.find()) {
+                extIds.add(literalMatcher.group(1) != null
+                        ? literalMatcher.group(1)
+                        : literalMatcher.group(2));
+            }
+        }
+        return extIds;
+    }
+
+
+    /**
+     * @return index of the parenthesis closing the call whose arguments start at <code>from</code>,
+     * or the end of the script if it is unbalanced
+     */
+    private static int findClosingParen(String script, int from) {
+        int depth = 1;
+        char quote = 0;
+        for (int i = from; i < script.length(); i++) {
+            char c = script.charAt(i);
+            if (quote != 0) {
+                if (c == '\\') {
+                    i++;
+                } else if (c == quote) {
+                    quote = 0;
+                }
+            } else if (c == '\'' || c == '"') {
+                quote = c;
+            } else if (c == '(') {
+                depth++;
+            } else if (c == ')' && --depth == 0) {
+                return i;
+            }
+        }
+        return script.length();
+    }
+
+
     private static Collection<ReportGridCell> lookupRow(Map<Long, Collection<ReportGridCell>> rowBySubject,
                                                         long subjectId) {
         return rowBySubject.getOrDefault(
@@ -81,75 +225,86 @@ public class ReportGridColumnCalculator {
 
     private static Set<ReportGridCell> calcDerivedCols(ReportGridEvaluatorNamespace ns,
                                                        ReportSubject subject,
-                                                       Set<CompiledCalculatedColumn> colsToCalc) {
+                                                       List<CompiledCalculatedColumn> orderedCols,
+                                                       Set<CompiledCalculatedColumn> unresolvableCols) {
+
+        Set<ReportGridCell> results = new HashSet<>();
+        RowContext rowContext = new RowContext(ns, subject);
+
+        // dependencies are always evaluated before their dependants, so a single pass is sufficient
+        orderedCols.forEach(ccc -> {
+            try {
+                ofNullable(evaluateCalcCol(ccc, subject, rowContext))
+                        .ifPresent(result -> {
+                            results.add(result);
+                            // update the context so dependent expressions can use the result
+                            ns.addContext(colToExtId(ccc.column()), result);
+                        });
+            } catch (Exception e) {
+                results.add(mkErrorCell(subject, ccc.column(), toMessage(e)));
+            }
+        });
 
-        // we need to evaluate derived cols at least once
-        AtomicBoolean evaluateRowAgain = new AtomicBoolean(true);
-        // collecting the results as we go
-        Map<Long, ReportGridCell> results = new HashMap<>();
+        if (!unresolvableCols.isEmpty()) {
+            results.addAll(calcIteratively(ns, subject, rowContext, unresolvableCols));
+        }
+
+        return results;
+    }
 
-        Set<CompiledCalculatedColumn> remaining = SetUtilities.fromCollection(colsToCalc);
 
+    /**
+     * Columns with circular references are repeatedly evaluated until none of their results
+     * change, as a column may still produce a value (e.g. when a referenced cell is null).
+     * Errors are only reported if they persist on the final pass.  The number of passes is
+     * bounded so cycles whose results never settle still terminate.
+     */
+    private static Collection<ReportGridCell> calcIteratively(ReportGridEvaluatorNamespace ns,
+                                                              ReportSubject subject,
+                                                              RowContext rowContext,
+                                                              Set<CompiledCalculatedColumn> cols) {
+        Map<Long, ReportGridCell> results = new HashMap<>();
         Map<ReportGridDerivedColumnDefinition, String> lastErrors = new HashMap<>();
 
-        while (evaluateRowAgain.get()) {
-            // assume this time will be the last
-            evaluateRowAgain.set(false);
-
-            // iterate over remaining columns attempting execution
-            remaining.forEach(ccc -> {
+        boolean evaluateAgain = true;
+        for (int pass = 0; evaluateAgain && pass <= cols.size(); pass++) {
+            evaluateAgain = false;
+            for (CompiledCalculatedColumn ccc : cols) {
                 try {
-                    // attempt to evaluate the cell
-                    ofNullable(evaluateCalcCol(ccc, subject))
-                            .ifPresent(result -> {
-                                ReportGridCell existingResult = results.get(ccc.column().gridColumnId());
-                                boolean isDifferent = existingResult == null || !existingResult.equals(result);
-
-                                if (isDifferent) {
-                                    // If successful record the result
-                                    results.put(ccc.column().gridColumnId(), result);
-
-                                    // ...and update the context so dependent expressions can be calculated
-                                    ns.addContext(colToExtId(ccc.column()), result);
-
-                                    // Since something has changed we want to run the loop again in case
-                                    // ...a dependant expression can now be evaluated.
-                                    evaluateRowAgain.set(true);
-                                }
-                        });
-
-                    // clear out the error map for this column as the last evaluation succeeded (but may have been null)
+                    ReportGridCell result = evaluateCalcCol(ccc, subject, rowContext);
                     lastErrors.remove(ccc.column());
-
+                    if (result != null && !result.equals(results.get(ccc.column().gridColumnId()))) {
+                        results.put(ccc.column().gridColumnId(), result);
+                        ns.addContext(colToExtId(ccc.column()), result);
+                        evaluateAgain = true;
+                    }
                 } catch (Exception e) {
-                    // if we hit a problem we store it for later as it may resolve itself on a subsequent iteration
-                    String msg = toMessage(e);
-                    lastErrors.put(ccc.column(), msg);
+                    // may resolve itself on a subsequent pass
+                    lastErrors.put(ccc.column(), toMessage(e));
                 }
-            });
-
-            if (remaining.isEmpty()) {
-                // nothing left to do, therefore we can finish on this iteration
-                evaluateRowAgain.set(false);
             }
         }
 
-        Set<ReportGridCell> errorResults = remaining
-                .stream()
-                .map(ccc -> tuple(
-                        ccc.column(),
-                        lastErrors.get(ccc.column())))
-                .filter(d -> notEmpty(d.v2))
-                .map(t -> ImmutableReportGridCell
-                        .builder()
-                        .subjectId(subject.entityReference().id())
-                        .errorValue(t.v2)
-                        .options(asSet(mkCellOption("EXECUTION_ERROR", "Execution Error")))
-                        .columnDefinitionId(t.v1.gridColumnId())
-                        .build())
-                .collect(toSet());
+        List<ReportGridCell> cells = new ArrayList<>();
+        lastErrors.forEach((col, msg) -> {
+            results.remove(col.gridColumnId());
+            cells.add(mkErrorCell(subject, col, msg));
+        });
+        cells.addAll(results.values());
+        return cells;
+    }
 
-        return union(results.values(), errorResults);
+
+    private static ReportGridCell mkErrorCell(ReportSubject subject,
+                                              ReportGridDerivedColumnDefinition column,
+                                              String msg) {
+        return ImmutableReportGridCell
+                .builder()
+                .subjectId(subject.entityReference().id())
+                .errorValue(msg)
+                .options(asSet(mkCellOption("EXECUTION_ERROR", "Execution Error")))
+                .columnDefinitionId(column.gridColumnId())
+                .build();
     }
 
     private static String toMessage(Exception e) {
@@ -195,7 +350,8 @@ public class ReportGridColumnCalculator {
 
 
     private static ReportGridCell evaluateCalcCol(CompiledCalculatedColumn compiledCalculatedColumn,
-                                                  ReportSubject subject) {
+                                                  ReportSubject subject,
+                                                  JexlContext rowContext) {
 
         ReportGridDerivedColumnDefinition cd = compiledCalculatedColumn.column();
 
@@ -211,13 +367,7 @@ public class ReportGridColumnCalculator {
                                 .build(),
                         expr -> {
 
-                            MapContext mapContext = new MapContext(newHashMap(
-                                    "subjectId", subject.entityReference().id(),
-                                    "subjectExternalId", subject.entityReference().externalId().orElse(""),
-                                    "subjectName", subject.entityReference().name().orElse(""),
-                                    "subjectLifecyclePhase", subject.lifecyclePhase().name()));
-
-                            Object result = expr.execute(mapContext);
+                            Object result = expr.execute(rowContext);
 
                             if (result == null) {
                                 return null;
@@ -277,4 +427,34 @@ public class ReportGridColumnCalculator {
                 .build();
     }
 
+
+
+    /**
+     * Script variables for a single row, also resolves the (unnamed) function namespace
+     * to the namespace holding that row's cells.
+     */
+    private static class RowContext extends MapContext implements JexlContext.NamespaceResolver {
+
+        private final ReportGridEvaluatorNamespace ns;
+
+
+        private RowContext(ReportGridEvaluatorNamespace ns,
+                           ReportSubject subject) {
+            super(newHashMap(
+                    "subjectId", subject.entityReference().id(),
+                    "subjectExternalId", subject.entityReference().externalId().orElse(""),
+                    "subjectName", subject.entityReference().name().orElse(""),
+                    "subjectLifecyclePhase", subject.lifecyclePhase().name()));
+            this.ns = ns;
+        }
+
+
+        @Override
+        public Object resolveNamespace(String name) {
+            return name == null
+                    ? ns
+                    : null;
+        }
+    }
+
 }
@@ -24,11 +24,29 @@ public class ReportGridEvaluatorNamespace {
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
-    private final ReportGridDefinition definition;
+    private final Set<String> availableCellExtIds;
     private Map<String, Object> ctx = new HashMap<>();
 
     public ReportGridEvaluatorNamespace(ReportGridDefinition definition) {
-        this.definition = definition;
+        this(mkAvailableCellExtIds(definition), new HashMap<>());
+    }
+
+
+    /**
+     * Creates a namespace bound to a single row, the set of available cell external ids
+     * is shared between rows so it only needs to be computed once per grid.
+     */
+    ReportGridEvaluatorNamespace(Set<String> availableCellExtIds,
+                                 Map<String, Object> ctx) {
+        this.availableCellExtIds = availableCellExtIds;
+        this.ctx = ctx;
+    }
+
+
+    static Set<String> mkAvailableCellExtIds(ReportGridDefinition definition) {
+        return union(
+                map(definition.fixedColumnDefinitions(), ReportGridColumnCalculator::colToExtId),
+                map(definition.derivedColumnDefinitions(), ReportGridColumnCalculator::colToExtId));
     }
 
 
@@ -221,10 +239,6 @@ public class ReportGridEvaluatorNamespace {
 
 
     private void checkAllCellsExist(Set<String> requiredCellExtIds) {
-        Set<String> availableCellExtIds = union(
-                map(definition.fixedColumnDefinitions(), ReportGridColumnCalculator::colToExtId),
-                map(definition.derivedColumnDefinitions(), ReportGridColumnCalculator::colToExtId));
-
         Checks.checkTrue(availableCellExtIds.containsAll(
                         requiredCellExtIds),
                 "Not all cells external ids found in grid");
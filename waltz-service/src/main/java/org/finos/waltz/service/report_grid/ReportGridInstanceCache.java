@@ -0,0 +1,231 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.report_grid;
+
+import org.finos.waltz.data.changelog.ChangeLogListener;
+import org.finos.waltz.data.report_grid.ReportGridColumnFamily;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.changelog.ChangeLog;
+import org.finos.waltz.model.report_grid.ReportGridCell;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.report_grid.ReportGridInstance;
+import org.jooq.lambda.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * Holds recently computed report grid instances, keyed by grid id, selection
+ * options and subject kind.
+ *
+ * Each column family has a version number which is incremented whenever a
+ * change log entry is written against one of the entity kinds the family reads
+ * from.  Cached entries record the versions they were built from, so a stale
+ * entry can be refreshed by re-fetching just the families which have moved on.
+ *
+ * Changes which bypass the change log (e.g. batch loaders, or writes made by other
+ * nodes) are picked up once an entry exceeds its time-to-live.
+ */
+@Service
+public class ReportGridInstanceCache implements ChangeLogListener {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ReportGridInstanceCache.class);
+
+    private static final ReportGridColumnFamily[] FAMILIES = ReportGridColumnFamily.values();
+
+    private final AtomicLongArray familyVersions = new AtomicLongArray(FAMILIES.length);
+    private final Map<Tuple3<Long, IdSelectionOptions, EntityKind>, CachedInstance> entries;
+    private final long ttlMillis;
+
+
+    @Autowired
+    public ReportGridInstanceCache(@Value("${report_grid.cache.max_entries:64}") int maxEntries,
+                                   @Value("${report_grid.cache.ttl.minutes:30}") int ttlMinutes) {
+        this.ttlMillis = TimeUnit.MINUTES.toMillis(ttlMinutes);
+        this.entries = new LinkedHashMap<Tuple3<Long, IdSelectionOptions, EntityKind>, CachedInstance>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Tuple3<Long, IdSelectionOptions, EntityKind>, CachedInstance> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+
+    public static Tuple3<Long, IdSelectionOptions, EntityKind> mkKey(long gridId,
+                                                                     IdSelectionOptions selectionOptions,
+                                                                     EntityKind targetKind) {
+        return tuple(gridId, selectionOptions, targetKind);
+    }
+
+
+    /**
+     * @return a snapshot of the current column family versions, this should be taken
+     * <em>before</em> fetching any data which will subsequently be cached
+     */
+    public long[] currentVersions() {
+        long[] versions = new long[FAMILIES.length];
+        for (int i = 0; i < versions.length; i++) {
+            versions[i] = familyVersions.get(i);
+        }
+        return versions;
+    }
+
+
+    /**
+     * Returns the cached entry for the key, if it exists, has not expired, and was
+     * built from the given definition.  The caller should use {@link #findStaleFamilies}
+     * to determine which parts of the entry need refreshing.
+     */
+    public CachedInstance get(Tuple3<Long, IdSelectionOptions, EntityKind> key,
+                              ReportGridDefinition definition) {
+        synchronized (entries) {
+            CachedInstance cached = entries.get(key);
+            if (cached == null) {
+                return null;
+            }
+            if (System.currentTimeMillis() - cached.loadedAt > ttlMillis || !cached.definition.equals(definition)) {
+                entries.remove(key);
+                return null;
+            }
+            return cached;
+        }
+    }
+
+
+    public void put(Tuple3<Long, IdSelectionOptions, EntityKind> key,
+                    CachedInstance instance) {
+        synchronized (entries) {
+            entries.put(key, instance);
+        }
+    }
+
+
+    public Set<ReportGridColumnFamily> findStaleFamilies(CachedInstance cached,
+                                                         long[] versions) {
+        Set<ReportGridColumnFamily> stale = EnumSet.noneOf(ReportGridColumnFamily.class);
+        for (int i = 0; i < FAMILIES.length; i++) {
+            if (cached.versions[i] != versions[i]) {
+                stale.add(FAMILIES[i]);
+            }
+        }
+        return stale;
+    }
+
+
+    @Override
+    public void onChangeLogs(Collection<ChangeLog> changeLogs) {
+        invalidate(changeLogs);
+    }
+
+
+    /**
+     * Marks the column families which read from the changed entities as stale.
+     * Both the parent and (if present) the child kind of each entry are considered.
+     *
+     * @param changeLogs  newly written change log entries
+     */
+    public void invalidate(Collection<ChangeLog> changeLogs) {
+        Set<ReportGridColumnFamily> affected = EnumSet.noneOf(ReportGridColumnFamily.class);
+        for (ChangeLog changeLog : changeLogs) {
+            affected.addAll(ReportGridColumnFamily.affectedBy(changeLog.parentReference().kind()));
+            changeLog.childKind().ifPresent(k -> affected.addAll(ReportGridColumnFamily.affectedBy(k)));
+        }
+        invalidateFamilies(affected);
+    }
+
+
+    public void invalidateFamilies(Set<ReportGridColumnFamily> families) {
+        if (!families.isEmpty()) {
+            LOG.debug("Invalidating report grid column families: {}", families);
+            families.forEach(f -> familyVersions.incrementAndGet(f.ordinal()));
+        }
+    }
+
+
+    public void evictGrid(long gridId) {
+        synchronized (entries) {
+            entries.keySet().removeIf(k -> k.v1 == gridId);
+        }
+    }
+
+
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+
+    /**
+     * A computed grid instance along with the data required to incrementally refresh it.
+     */
+    public static class CachedInstance {
+
+        private final ReportGridDefinition definition;
+        private final Map<ReportGridColumnFamily, Set<ReportGridCell>> cellsByFamily;
+        private final ReportGridInstance instance;
+        private final long[] versions;
+        private final long loadedAt;
+
+
+        /**
+         * @param loadedAt  when the entry was last fully loaded, incremental refreshes
+         *                  should carry this forward so the time-to-live still applies
+         */
+        public CachedInstance(ReportGridDefinition definition,
+                              Map<ReportGridColumnFamily, Set<ReportGridCell>> cellsByFamily,
+                              ReportGridInstance instance,
+                              long[] versions,
+                              long loadedAt) {
+            this.definition = definition;
+            this.cellsByFamily = cellsByFamily;
+            this.instance = instance;
+            this.versions = versions;
+            this.loadedAt = loadedAt;
+        }
+
+
+        public long loadedAt() {
+            return loadedAt;
+        }
+
+
+        public Map<ReportGridColumnFamily, Set<ReportGridCell>> cellsByFamily() {
+            return cellsByFamily;
+        }
+
+
+        public ReportGridInstance instance() {
+            return instance;
+        }
+    }
+}
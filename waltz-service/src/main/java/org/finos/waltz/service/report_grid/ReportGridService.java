@@ -23,8 +23,10 @@ import org.finos.waltz.common.exception.InsufficientPrivelegeException;
 import org.finos.waltz.common.exception.NotFoundException;
 import org.finos.waltz.data.GenericSelector;
 import org.finos.waltz.data.GenericSelectorFactory;
+import org.finos.waltz.data.IdSelectionResolver;
 import org.finos.waltz.data.application.ApplicationDao;
 import org.finos.waltz.data.change_initiative.ChangeInitiativeDao;
+import org.finos.waltz.data.report_grid.ReportGridColumnFamily;
 import org.finos.waltz.data.report_grid.ReportGridDao;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.IdSelectionOptions;
@@ -34,7 +36,9 @@ import org.finos.waltz.model.rating.RatingSchemeItem;
 import org.finos.waltz.model.report_grid.*;
 import org.finos.waltz.model.user.SystemRole;
 import org.finos.waltz.service.rating_scheme.RatingSchemeService;
+import org.finos.waltz.service.report_grid.ReportGridInstanceCache.CachedInstance;
 import org.finos.waltz.service.user.UserRoleService;
+import org.jooq.lambda.tuple.Tuple3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -60,8 +64,9 @@ public class ReportGridService {
     private final ReportGridDao reportGridDao;
     private final ReportGridMemberService reportGridMemberService;
     private final UserRoleService userRoleService;
+    private final ReportGridInstanceCache instanceCache;
 
-    private final GenericSelectorFactory genericSelectorFactory = new GenericSelectorFactory();
+    private final GenericSelectorFactory genericSelectorFactory;
 
     @Autowired
     public ReportGridService(ReportGridDao reportGridDao,
@@ -69,12 +74,16 @@ public class ReportGridService {
                              RatingSchemeService ratingSchemeService,
                              ReportGridMemberService reportGridMemberService,
                              UserRoleService userRoleService,
-                             ChangeInitiativeDao changeInitiativeDao) {
+                             ChangeInitiativeDao changeInitiativeDao,
+                             ReportGridInstanceCache instanceCache,
+                             IdSelectionResolver idSelectionResolver) {
         checkNotNull(reportGridDao, "reportGridDao cannot be null");
         checkNotNull(reportGridMemberService, "reportGridMemberService cannot be null");
         checkNotNull(applicationDao, "applicationDao cannot be null");
         checkNotNull(ratingSchemeService, "ratingSchemeService cannot be null");
         checkNotNull(userRoleService, "userRoleService cannot be null");
+        checkNotNull(instanceCache, "instanceCache cannot be null");
+        checkNotNull(idSelectionResolver, "idSelectionResolver cannot be null");
 
         this.reportGridDao = reportGridDao;
         this.reportGridMemberService = reportGridMemberService;
@@ -82,6 +91,8 @@ public class ReportGridService {
         this.ratingSchemeService = ratingSchemeService;
         this.changeInititativeDao = changeInitiativeDao;
         this.userRoleService = userRoleService;
+        this.instanceCache = instanceCache;
+        this.genericSelectorFactory = new GenericSelectorFactory(idSelectionResolver);
     }
 
 
@@ -118,9 +129,7 @@ public class ReportGridService {
             return Optional.empty();
         }
 
-        EntityKind targetKind = definition.subjectKind();
-
-        ReportGridInstance instance = mkInstance(id, idSelectionOptions, targetKind);
+        ReportGridInstance instance = getOrRefreshInstance(id, idSelectionOptions, definition);
 
         Set<ReportGridMember> members = reportGridMemberService.findByGridId(id);
 
@@ -131,20 +140,6 @@ public class ReportGridService {
                 .map(ReportGridMember::role)
                 .orElse(ReportGridMemberRole.VIEWER);
 
-        if (!definition.derivedColumnDefinitions().isEmpty()) {
-            Set<ReportGridCell> calculatedCells = ReportGridColumnCalculator.calculate(instance, definition);
-
-            return Optional.of(ImmutableReportGrid
-                    .builder()
-                    .definition(definition)
-                    .instance(ImmutableReportGridInstance
-                            .copyOf(instance)
-                            .withCellData(SetUtilities.union(instance.cellData(), calculatedCells)))
-                    .members(members)
-                    .userRole(userRole)
-                    .build());
-        }
-
         return Optional.of(ImmutableReportGrid
                 .builder()
                 .definition(definition)
@@ -155,10 +150,103 @@ public class ReportGridService {
     }
 
 
-    public ReportGridInstance mkInstance(long id, IdSelectionOptions idSelectionOptions, EntityKind targetKind) {
+    /**
+     * As {@link #getByIdAndSelectionOptions(long, IdSelectionOptions, String)} but with the
+     * instance converted to its columnar form, for large grids.
+     */
+    public Optional<CompactReportGrid> getCompactByIdAndSelectionOptions(
+            long id,
+            IdSelectionOptions idSelectionOptions,
+            String username) {
+
+        return getByIdAndSelectionOptions(id, idSelectionOptions, username)
+                .map(grid -> ImmutableCompactReportGrid
+                        .builder()
+                        .definition(grid.definition())
+                        .instance(ReportGridInstanceUtilities.toCompact(grid.instance()))
+                        .members(grid.members())
+                        .userRole(grid.userRole())
+                        .build());
+    }
 
+
+    public ReportGridInstance mkInstance(long id, IdSelectionOptions idSelectionOptions, EntityKind targetKind) {
         GenericSelector genericSelector = genericSelectorFactory.applyForKind(targetKind, idSelectionOptions);
         Set<ReportGridCell> cellData = reportGridDao.findCellDataByGridId(id, genericSelector);
+        return mkInstance(genericSelector, cellData);
+    }
+
+
+    /**
+     * Returns the grid instance (including derived columns) from the instance cache.
+     * If the cached instance is missing, or any of its column families have been
+     * modified since it was built, then only those families are re-fetched and the
+     * derived columns are recalculated.
+     */
+    private ReportGridInstance getOrRefreshInstance(long id,
+                                                    IdSelectionOptions idSelectionOptions,
+                                                    ReportGridDefinition definition) {
+
+        EntityKind targetKind = definition.subjectKind();
+        Tuple3<Long, IdSelectionOptions, EntityKind> key = ReportGridInstanceCache.mkKey(id, idSelectionOptions, targetKind);
+
+        long[] versions = instanceCache.currentVersions();
+        CachedInstance cached = instanceCache.get(key, definition);
+
+        Set<ReportGridColumnFamily> familiesToFetch = cached == null
+                ? EnumSet.allOf(ReportGridColumnFamily.class)
+                : instanceCache.findStaleFamilies(cached, versions);
+
+        if (familiesToFetch.isEmpty()) {
+            LOG.debug("ReportGrid - using cached instance for ID={}", id);
+            return cached.instance();
+        }
+
+        LOG.debug("ReportGrid - fetching column families: {} for ID={}", familiesToFetch, id);
+
+        GenericSelector genericSelector = genericSelectorFactory.applyForKind(targetKind, idSelectionOptions);
+
+        Map<ReportGridColumnFamily, Set<ReportGridCell>> cellsByFamily = new EnumMap<>(ReportGridColumnFamily.class);
+        if (cached != null) {
+            cellsByFamily.putAll(cached.cellsByFamily());
+        }
+        cellsByFamily.putAll(reportGridDao.findCellDataByGridIdAndFamilies(id, genericSelector, familiesToFetch));
+
+        Set<ReportGridCell> cellData = new HashSet<>();
+        cellsByFamily.values().forEach(cellData::addAll);
+
+        ReportGridInstance instance = withDerivedColumns(
+                mkInstance(genericSelector, cellData),
+                definition);
+
+        instanceCache.put(key, new CachedInstance(
+                definition,
+                cellsByFamily,
+                instance,
+                versions,
+                cached == null ? System.currentTimeMillis() : cached.loadedAt()));
+
+        return instance;
+    }
+
+
+    private ReportGridInstance withDerivedColumns(ReportGridInstance instance,
+                                                  ReportGridDefinition definition) {
+        if (definition.derivedColumnDefinitions().isEmpty()) {
+            return instance;
+        }
+
+        Set<ReportGridCell> calculatedCells = ReportGridColumnCalculator.calculate(instance, definition);
+
+        return ImmutableReportGridInstance
+                .copyOf(instance)
+                .withCellData(SetUtilities.union(instance.cellData(), calculatedCells));
+    }
+
+
+    private ReportGridInstance mkInstance(GenericSelector genericSelector,
+                                          Set<ReportGridCell> cellData) {
+
         Set<ReportSubject> subjects = getReportSubjects(genericSelector);
 
         Set<RatingSchemeItem> ratingSchemeItems = ratingSchemeService.findRatingSchemeItemsByIds(
@@ -213,6 +301,7 @@ public class ReportGridService {
                                                         String username) throws InsufficientPrivelegeException {
         checkIsOwner(reportGridId, username);
         reportGridDao.updateColumnDefinitions(reportGridId, updateCommand);
+        instanceCache.evictGrid(reportGridId);
         return reportGridDao.getGridDefinitionById(reportGridId);
     }
 
@@ -280,6 +369,7 @@ public class ReportGridService {
                     format("Grid def: %d not found", gridId));
         }
         reportGridMemberService.checkIsOwner(gridId, username);
+        instanceCache.evictGrid(gridId);
 
         return reportGridDao.remove(gridId);
     }
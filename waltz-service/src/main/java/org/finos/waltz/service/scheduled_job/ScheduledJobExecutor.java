@@ -0,0 +1,463 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.service.scheduled_job;
+
+import org.finos.waltz.common.DateTimeUtilities;
+import org.finos.waltz.model.scheduled_job.ImmutableJobRunStatistics;
+import org.finos.waltz.model.scheduled_job.JobKey;
+import org.finos.waltz.model.scheduled_job.JobRunOutcome;
+import org.finos.waltz.model.scheduled_job.JobRunStatistics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static java.util.Comparator.comparingLong;
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * Runs a set of jobs, respecting the dependencies between them, on a bounded pool.
+ *
+ * A job is started once all of the jobs it depends upon have finished in the current
+ * cycle, independent jobs run in parallel.  Jobs may also share an exclusion group (e.g.
+ * jobs which rewrite the same table), only one job of a group runs at a time.  Jobs which
+ * exceed their timeout are cancelled (interrupted), anything depending on, or sharing an
+ * exclusion group with, a timed out job is not started as the timed out job may still
+ * be running.  Durations of each run are kept so the jobs
+ * dominating a cycle can be identified.
+ */
+class ScheduledJobExecutor {
+
+    private static final Logger LOG = LoggerFactory.getLogger(ScheduledJobExecutor.class);
+
+    static final int HISTORY_SIZE = 20;
+
+
+    /**
+     * Body of a job, returns false if the job did not need to run.
+     */
+    @FunctionalInterface
+    interface JobTask {
+        boolean run() throws Exception;
+    }
+
+
+    static class JobDefinition {
+
+        private final JobKey jobKey;
+        private final Set<JobKey> dependencies;
+        /** jobs sharing a (non-null) exclusion group never run at the same time */
+        private final String exclusionGroup;
+        private final long timeoutMillis;
+        private final JobTask task;
+
+
+        JobDefinition(JobKey jobKey,
+                      Set<JobKey> dependencies,
+                      long timeoutMillis,
+                      JobTask task) {
+            this(jobKey, dependencies, null, timeoutMillis, task);
+        }
+
+
+        JobDefinition(JobKey jobKey,
+                      Set<JobKey> dependencies,
+                      String exclusionGroup,
+                      long timeoutMillis,
+                      JobTask task) {
+            checkNotNull(jobKey, "jobKey cannot be null");
+            checkNotNull(dependencies, "dependencies cannot be null");
+            checkNotNull(task, "task cannot be null");
+            checkTrue(timeoutMillis > 0, "timeoutMillis must be positive");
+            this.jobKey = jobKey;
+            this.dependencies = dependencies.isEmpty()
+                    ? EnumSet.noneOf(JobKey.class)
+                    : EnumSet.copyOf(dependencies);
+            this.exclusionGroup = exclusionGroup;
+            this.timeoutMillis = timeoutMillis;
+            this.task = task;
+        }
+
+
+        JobKey jobKey() {
+            return jobKey;
+        }
+
+
+        Set<JobKey> dependencies() {
+            return dependencies;
+        }
+
+
+        boolean sharesExclusionGroup(JobDefinition other) {
+            return exclusionGroup != null
+                    && other != this
+                    && exclusionGroup.equals(other.exclusionGroup);
+        }
+    }
+
+
+    /** definitions in dependency order, a job always follows the jobs it depends upon */
+    private final Map<JobKey, JobDefinition> jobs;
+    private final ExecutorService pool;
+    private final Consumer<JobKey> timeoutHandler;
+    private final Map<JobKey, History> histories = new EnumMap<>(JobKey.class);
+
+
+    /**
+     * @param definitions     the jobs, dependencies must refer to other jobs in the collection
+     *                        and must not form a cycle
+     * @param pool            pool to execute jobs on, its size bounds the parallelism
+     * @param timeoutHandler  invoked (on the coordinating thread) for each job which times out
+     */
+    ScheduledJobExecutor(Collection<JobDefinition> definitions,
+                         ExecutorService pool,
+                         Consumer<JobKey> timeoutHandler) {
+        checkNotNull(definitions, "definitions cannot be null");
+        checkNotNull(pool, "pool cannot be null");
+        checkNotNull(timeoutHandler, "timeoutHandler cannot be null");
+        this.jobs = sortByDependencies(definitions);
+        this.pool = pool;
+        this.timeoutHandler = timeoutHandler;
+    }
+
+
+    /**
+     * @return the jobs which depend on, are depended upon by, or share an exclusion group
+     * with the given job.  These should not be running elsewhere (e.g. on another server)
+     * while the job runs.
+     */
+    Set<JobKey> findConflicts(JobKey jobKey) {
+        Set<JobKey> conflicts = EnumSet.noneOf(JobKey.class);
+        JobDefinition definition = jobs.get(jobKey);
+        if (definition != null) {
+            conflicts.addAll(definition.dependencies);
+        }
+        jobs.values()
+                .stream()
+                .filter(d -> d.dependencies.contains(jobKey)
+                        || (definition != null && definition.sharesExclusionGroup(d)))
+                .forEach(d -> conflicts.add(d.jobKey));
+        return conflicts;
+    }
+
+
+    /**
+     * Runs a single cycle, blocking until every job has either finished, timed out or been
+     * skipped due to a timed out dependency.
+     *
+     * @return outcome of each job which ran
+     */
+    Map<JobKey, JobRunOutcome> runCycle() throws InterruptedException {
+        long cycleStart = System.nanoTime();
+
+        Map<JobKey, JobRunOutcome> outcomes = new EnumMap<>(JobKey.class);
+        Set<JobKey> finished = EnumSet.noneOf(JobKey.class);
+        List<JobDefinition> waiting = new ArrayList<>(jobs.values());
+        Map<Future<Boolean>, RunningJob> running = new HashMap<>();
+        CompletionService<Boolean> completionService = new ExecutorCompletionService<>(pool);
+
+        while (!waiting.isEmpty() || !running.isEmpty()) {
+
+            // start anything whose dependencies have finished and which is not excluded by a
+            // running job, or skip it if a dependency (or job in its exclusion group) timed out
+            for (JobDefinition job : new ArrayList<>(waiting)) {
+                if (!finished.containsAll(job.dependencies)) {
+                    continue;
+                }
+                boolean excluded = running
+                        .values()
+                        .stream()
+                        .anyMatch(r -> job.sharesExclusionGroup(r.definition));
+                if (excluded) {
+                    continue;
+                }
+                waiting.remove(job);
+                boolean blocked = jobs
+                        .values()
+                        .stream()
+                        .filter(d -> job.dependencies.contains(d.jobKey) || job.sharesExclusionGroup(d))
+                        .anyMatch(d -> outcomes.get(d.jobKey) == JobRunOutcome.TIMED_OUT);
+                if (blocked) {
+                    LOG.warn("Not starting job: {} as a job it depends upon, or is excluded by, timed out", job.jobKey);
+                    finished.add(job.jobKey);
+                } else {
+                    RunningJob runningJob = new RunningJob(job);
+                    running.put(completionService.submit(runningJob::call), runningJob);
+                }
+            }
+
+            if (running.isEmpty()) {
+                continue;
+            }
+
+            long nextDeadline = running
+                    .values()
+                    .stream()
+                    .mapToLong(RunningJob::deadline)
+                    .min()
+                    .getAsLong();
+
+            Future<Boolean> done = completionService.poll(
+                    Math.max(0, nextDeadline - System.nanoTime()),
+                    TimeUnit.NANOSECONDS);
+
+            if (done != null) {
+                RunningJob job = running.remove(done);
+                if (job != null) {
+                    finished.add(job.definition.jobKey);
+                    recordCompletion(job, done, outcomes);
+                }
+            }
+
+            long now = System.nanoTime();
+            for (Map.Entry<Future<Boolean>, RunningJob> entry : new ArrayList<>(running.entrySet())) {
+                RunningJob job = entry.getValue();
+                if (now >= job.deadline()) {
+                    entry.getKey().cancel(true);
+                    running.remove(entry.getKey());
+                    finished.add(job.definition.jobKey);
+                    outcomes.put(job.definition.jobKey, JobRunOutcome.TIMED_OUT);
+                    record(job.definition.jobKey, JobRunOutcome.TIMED_OUT, job.definition.timeoutMillis);
+                    LOG.error("Job: {} timed out after {}ms and has been cancelled",
+                            job.definition.jobKey,
+                            job.definition.timeoutMillis);
+                    timeoutHandler.accept(job.definition.jobKey);
+                }
+            }
+        }
+
+        if (!outcomes.isEmpty()) {
+            LOG.info("Scheduled job cycle completed in {}ms, durations (ms): {}",
+                    TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - cycleStart),
+                    summariseDurations(outcomes.keySet()));
+        }
+
+        return outcomes;
+    }
+
+
+    /**
+     * @return statistics for each job which has run, ordered by total duration (longest first)
+     */
+    List<JobRunStatistics> findStatistics() {
+        synchronized (histories) {
+            return histories
+                    .entrySet()
+                    .stream()
+                    .map(e -> e.getValue().toStatistics(e.getKey()))
+                    .sorted(comparingLong(JobRunStatistics::totalMillis).reversed())
+                    .collect(toList());
+        }
+    }
+
+
+    // -- helpers
+
+    private void recordCompletion(RunningJob job,
+                                  Future<Boolean> done,
+                                  Map<JobKey, JobRunOutcome> outcomes) {
+        JobKey jobKey = job.definition.jobKey;
+        try {
+            if (done.get()) {
+                outcomes.put(jobKey, JobRunOutcome.COMPLETED);
+                record(jobKey, JobRunOutcome.COMPLETED, job.elapsedMillis());
+            }
+        } catch (ExecutionException e) {
+            LOG.error("Failed to run job: " + jobKey, e.getCause());
+            outcomes.put(jobKey, JobRunOutcome.ERRORED);
+            record(jobKey, JobRunOutcome.ERRORED, job.elapsedMillis());
+        } catch (CancellationException | InterruptedException e) {
+            // only cancelled on timeout, which is recorded separately
+        }
+    }
+
+
+    private void record(JobKey jobKey, JobRunOutcome outcome, long durationMillis) {
+        synchronized (histories) {
+            histories
+                    .computeIfAbsent(jobKey, k -> new History())
+                    .add(outcome, durationMillis, DateTimeUtilities.nowUtc());
+        }
+    }
+
+
+    private String summariseDurations(Set<JobKey> jobKeys) {
+        Map<JobKey, Long> durations = new LinkedHashMap<>();
+        synchronized (histories) {
+            jobKeys.forEach(k -> durations.put(k, histories.get(k).lastDurationMillis));
+        }
+        return durations.toString();
+    }
+
+
+    /**
+     * Orders the definitions so every job follows its dependencies (Kahn's algorithm),
+     * definitions with no ordering constraint keep their original relative order.
+     */
+    private static Map<JobKey, JobDefinition> sortByDependencies(Collection<JobDefinition> definitions) {
+        Map<JobKey, JobDefinition> byKey = new LinkedHashMap<>();
+        for (JobDefinition definition : definitions) {
+            checkTrue(
+                    byKey.put(definition.jobKey, definition) == null,
+                    "Job: %s is defined more than once",
+                    definition.jobKey);
+        }
+
+        for (JobDefinition definition : definitions) {
+            for (JobKey dependency : definition.dependencies) {
+                checkTrue(
+                        byKey.containsKey(dependency),
+                        "Job: %s depends upon undefined job: %s",
+                        definition.jobKey,
+                        dependency);
+            }
+        }
+
+        Map<JobKey, JobDefinition> sorted = new LinkedHashMap<>();
+        while (sorted.size() < byKey.size()) {
+            int sizeBefore = sorted.size();
+            for (JobDefinition definition : byKey.values()) {
+                if (!sorted.containsKey(definition.jobKey)
+                        && sorted.keySet().containsAll(definition.dependencies)) {
+                    sorted.put(definition.jobKey, definition);
+                }
+            }
+            if (sorted.size() == sizeBefore) {
+                Set<JobKey> unresolved = EnumSet.copyOf(byKey.keySet());
+                unresolved.removeAll(sorted.keySet());
+                throw new IllegalArgumentException("Job dependencies form a cycle between: " + unresolved);
+            }
+        }
+        return Collections.unmodifiableMap(sorted);
+    }
+
+
+    private static class RunningJob {
+
+        private final JobDefinition definition;
+        private final long submittedAt = System.nanoTime();
+        private volatile long startedAt;
+
+
+        private RunningJob(JobDefinition definition) {
+            this.definition = definition;
+        }
+
+
+        private Boolean call() throws Exception {
+            startedAt = System.nanoTime();
+            Thread thread = Thread.currentThread();
+            String originalName = thread.getName();
+            thread.setName(originalName + "-" + definition.jobKey);
+            try {
+                return definition.task.run();
+            } finally {
+                thread.setName(originalName);
+            }
+        }
+
+
+        /**
+         * Jobs may queue for a pool thread, the timeout only applies once they have started.
+         */
+        private long deadline() {
+            long start = startedAt == 0 ? System.nanoTime() : startedAt;
+            return start + TimeUnit.MILLISECONDS.toNanos(definition.timeoutMillis);
+        }
+
+
+        private long elapsedMillis() {
+            long start = startedAt == 0 ? submittedAt : startedAt;
+            return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        }
+    }
+
+
+    private static class History {
+
+        private final Deque<Long> recentDurations = new ArrayDeque<>(HISTORY_SIZE);
+        private long runs;
+        private long errors;
+        private long timeouts;
+        private long totalMillis;
+        private long maxMillis;
+        private long lastDurationMillis;
+        private LocalDateTime lastRunAt;
+        private JobRunOutcome lastOutcome;
+
+
+        private void add(JobRunOutcome outcome, long durationMillis, LocalDateTime at) {
+            runs++;
+            if (outcome == JobRunOutcome.ERRORED) {
+                errors++;
+            } else if (outcome == JobRunOutcome.TIMED_OUT) {
+                timeouts++;
+            }
+            totalMillis += durationMillis;
+            maxMillis = Math.max(maxMillis, durationMillis);
+            lastDurationMillis = durationMillis;
+            lastRunAt = at;
+            lastOutcome = outcome;
+
+            if (recentDurations.size() == HISTORY_SIZE) {
+                recentDurations.removeFirst();
+            }
+            recentDurations.addLast(durationMillis);
+        }
+
+
+        private JobRunStatistics toStatistics(JobKey jobKey) {
+            return ImmutableJobRunStatistics.builder()
+                    .jobKey(jobKey)
+                    .runs(runs)
+                    .errors(errors)
+                    .timeouts(timeouts)
+                    .totalMillis(totalMillis)
+                    .meanMillis(runs == 0 ? 0 : totalMillis / runs)
+                    .maxMillis(maxMillis)
+                    .lastRunAt(lastRunAt)
+                    .lastOutcome(lastOutcome)
+                    .recentDurationsMillis(new ArrayList<>(recentDurations))
+                    .build();
+        }
+    }
+}
@@ -24,33 +24,59 @@ import org.finos.waltz.data.scheduled_job.ScheduledJobDao;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.scheduled_job.JobKey;
 import org.finos.waltz.model.scheduled_job.JobLifecycleStatus;
+import org.finos.waltz.model.scheduled_job.JobRunStatistics;
 import org.finos.waltz.service.attestation.AttestationRunService;
 import org.finos.waltz.service.entity_hierarchy.EntityHierarchyService;
 import org.finos.waltz.service.flow_classification_rule.FlowClassificationRuleService;
 import org.finos.waltz.service.logical_flow.LogicalFlowService;
 import org.finos.waltz.service.physical_specification_data_type.PhysicalSpecDataTypeService;
 import org.finos.waltz.service.report_grid.ReportGridFilterViewService;
+import org.finos.waltz.service.scheduled_job.ScheduledJobExecutor.JobDefinition;
 import org.finos.waltz.service.survey.SurveyInstanceService;
 import org.finos.waltz.service.usage_info.DataTypeUsageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.List;
 import java.util.Set;
-import java.util.function.Consumer;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
 import static org.finos.waltz.common.SetUtilities.asSet;
 
+
+/**
+ * Periodically runs the background jobs (hierarchy rebuilds, rating recalculations etc).
+ *
+ * Jobs declare the jobs they depend upon, e.g. flow ratings are recalculated only after
+ * the data type and org unit hierarchies have been rebuilt in the same cycle.  Jobs which
+ * rewrite the same table (e.g. the hierarchy rebuilds) share an exclusion group so they run
+ * one at a time.  Other jobs with no dependency between them run in parallel, bounded by
+ * <code>scheduled_job.pool.size</code>.
+ * A job which runs for longer than <code>scheduled_job.timeout.minutes</code> is
+ * interrupted and marked as errored.
+ */
 @ExcludeFromIntegrationTesting
 @Service
-public class ScheduledJobService {
+public class ScheduledJobService implements DisposableBean {
 
     private static final Logger LOG = LoggerFactory.getLogger(ScheduledJobService.class);
 
+    /** the hierarchy rebuilds all rewrite the entity_hierarchy table */
+    private static final String ENTITY_HIERARCHY_GROUP = "entity_hierarchy";
+
     private final DataTypeUsageService dataTypeUsageService;
     private final EntityHierarchyService entityHierarchyService;
     private final FlowClassificationRuleService flowClassificationRuleService;
@@ -62,6 +88,9 @@ public class ScheduledJobService {
 
     private final ReportGridFilterViewService reportGridFilterViewService;
 
+    private final ExecutorService pool;
+    private final ScheduledJobExecutor executor;
+
 
     @Autowired
     public ScheduledJobService(DataTypeUsageService dataTypeUsageService,
@@ -72,7 +101,9 @@ public class ScheduledJobService {
                                ScheduledJobDao scheduledJobDao,
                                AttestationRunService attestationRunService,
                                SurveyInstanceService surveyInstanceService,
-                               ReportGridFilterViewService reportGridFilterViewService) {
+                               ReportGridFilterViewService reportGridFilterViewService,
+                               @Value("${scheduled_job.pool.size:4}") int poolSize,
+                               @Value("${scheduled_job.timeout.minutes:60}") int timeoutMinutes) {
 
         checkNotNull(dataTypeUsageService, "dataTypeUsageService cannot be null");
         checkNotNull(flowClassificationRuleService, "flowClassificationRuleService cannot be null");
@@ -82,6 +113,8 @@ public class ScheduledJobService {
         checkNotNull(attestationRunService, "attestationRunService cannot be null");
         checkNotNull(reportGridFilterViewService, "reportGridFilterViewService cannot be null");
         checkNotNull(surveyInstanceService, "surveyInstanceService cannot be null");
+        checkTrue(poolSize > 0, "scheduled_job.pool.size must be positive");
+        checkTrue(timeoutMinutes > 0, "scheduled_job.timeout.minutes must be positive");
 
         this.dataTypeUsageService = dataTypeUsageService;
         this.entityHierarchyService = entityHierarchyService;
@@ -92,76 +125,182 @@ public class ScheduledJobService {
         this.attestationRunService = attestationRunService;
         this.reportGridFilterViewService = reportGridFilterViewService;
         this.surveyInstanceService = surveyInstanceService;
+
+        this.pool = Executors.newFixedThreadPool(poolSize, mkThreadFactory());
+        this.executor = new ScheduledJobExecutor(
+                mkJobDefinitions(TimeUnit.MINUTES.toMillis(timeoutMinutes)),
+                pool,
+                jk -> scheduledJobDao.updateJobStatus(jk, JobLifecycleStatus.RUNNING, JobLifecycleStatus.ERRORED));
     }
 
 
     @Scheduled(fixedRate = 300_000)
     public void run() {
         Thread.currentThread().setName("WaltzScheduledJobService");
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_CHANGE_INITIATIVE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.CHANGE_INITIATIVE));
-
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.DATA_TYPE));
-
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_ENTITY_STATISTICS,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.ENTITY_STATISTIC));
-
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_MEASURABLE,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.MEASURABLE));
-
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.ORG_UNIT));
-
-        runIfNeeded(JobKey.HIERARCHY_REBUILD_PERSON,
-                (jk) -> entityHierarchyService.buildFor(EntityKind.PERSON));
+        try {
+            executor.runCycle();
+        } catch (InterruptedException e) {
+            LOG.warn("Interrupted whilst running scheduled jobs");
+            Thread.currentThread().interrupt();
+        }
+    }
 
-        runIfNeeded(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
-                (jk) -> physicalSpecDataTypeService.rippleDataTypesToLogicalFlows(),
-                asSet(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION));
 
-        runIfNeeded(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION,
-                (jk) -> dataTypeUsageService.recalculateForAllApplications(),
-                asSet(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL));
+    /**
+     * @return run statistics for each job run since the server started, longest running first
+     */
+    public List<JobRunStatistics> findJobStatistics() {
+        return executor.findStatistics();
+    }
 
-        runIfNeeded(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS,
-                (jk) -> flowClassificationRuleService.fastRecalculateAllFlowRatings());
 
-        runIfNeeded(JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS,
-                (jk) -> logicalFlowService.cleanupOrphans());
+    @Override
+    public void destroy() {
+        pool.shutdownNow();
+    }
 
-        runIfNeeded(JobKey.ATTESTATION_ISSUE_INSTANCES,
-                (jk) -> attestationRunService.issueInstancesForPendingRuns());
 
-        runIfNeeded(JobKey.SURVEY_INSTANCE_REASSIGN_RECIPIENTS,
-                (jk) -> surveyInstanceService.reassignRecipients());
+    private List<JobDefinition> mkJobDefinitions(long timeoutMillis) {
+        List<JobDefinition> jobs = new ArrayList<>();
+
+        jobs.add(mkJob(JobKey.HIERARCHY_REBUILD_CHANGE_INITIATIVE,
+                Collections.emptySet(),
+                ENTITY_HIERARCHY_GROUP,
+                timeoutMillis,
+                () -> entityHierarchyService.buildFor(EntityKind.CHANGE_INITIATIVE)));
+
+        jobs.add(mkJob(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                Collections.emptySet(),
+                ENTITY_HIERARCHY_GROUP,
+                timeoutMillis,
+                () -> entityHierarchyService.buildFor(EntityKind.DATA_TYPE)));
+
+        jobs.add(mkJob(JobKey.HIERARCHY_REBUILD_ENTITY_STATISTICS,
+                Collections.emptySet(),
+                ENTITY_HIERARCHY_GROUP,
+                timeoutMillis,
+                () -> entityHierarchyService.buildFor(EntityKind.ENTITY_STATISTIC)));
+
+        jobs.add(mkJob(JobKey.HIERARCHY_REBUILD_MEASURABLE,
+                Collections.emptySet(),
+                ENTITY_HIERARCHY_GROUP,
+                timeoutMillis,
+                () -> entityHierarchyService.buildFor(EntityKind.MEASURABLE)));
+
+        jobs.add(mkJob(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                Collections.emptySet(),
+                ENTITY_HIERARCHY_GROUP,
+                timeoutMillis,
+                () -> entityHierarchyService.buildFor(EntityKind.ORG_UNIT)));
+
+        jobs.add(mkJob(JobKey.HIERARCHY_REBUILD_PERSON,
+                Collections.emptySet(),
+                ENTITY_HIERARCHY_GROUP,
+                timeoutMillis,
+                () -> entityHierarchyService.buildFor(EntityKind.PERSON)));
+
+        // orphaned flows are removed before anything derives data from the remaining flows
+        jobs.add(mkJob(JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS,
+                Collections.emptySet(),
+                timeoutMillis,
+                logicalFlowService::cleanupOrphans));
+
+        jobs.add(mkJob(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
+                asSet(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                        JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS),
+                timeoutMillis,
+                physicalSpecDataTypeService::rippleDataTypesToLogicalFlows));
+
+        // previously guarded against running concurrently with the ripple, now ordered after it
+        jobs.add(mkJob(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION,
+                asSet(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL),
+                timeoutMillis,
+                dataTypeUsageService::recalculateForAllApplications));
+
+        jobs.add(mkJob(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS,
+                asSet(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                        JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                        JobKey.LOGICAL_FLOW_CLEANUP_ORPHANS,
+                        JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL),
+                timeoutMillis,
+                flowClassificationRuleService::recalculateAllFlowRatingsIncrementally));
+
+        jobs.add(mkJob(JobKey.ATTESTATION_ISSUE_INSTANCES,
+                asSet(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                        JobKey.HIERARCHY_REBUILD_MEASURABLE),
+                timeoutMillis,
+                attestationRunService::issueInstancesForPendingRuns));
+
+        jobs.add(mkJob(JobKey.SURVEY_INSTANCE_REASSIGN_RECIPIENTS,
+                asSet(JobKey.HIERARCHY_REBUILD_PERSON),
+                timeoutMillis,
+                surveyInstanceService::reassignRecipients));
+
+        jobs.add(mkJob(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS,
+                asSet(JobKey.HIERARCHY_REBUILD_PERSON),
+                timeoutMillis,
+                surveyInstanceService::reassignOwners));
+
+        jobs.add(mkJob(JobKey.REPORT_GRID_RECALCULATE_APP_GROUPS_FROM_FILTERS,
+                asSet(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                        JobKey.HIERARCHY_REBUILD_MEASURABLE),
+                timeoutMillis,
+                reportGridFilterViewService::generateAppGroupsFromFilter));
+
+        return jobs;
+    }
 
-        runIfNeeded(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS,
-                (jk) -> surveyInstanceService.reassignOwners());
 
-        runIfNeeded(JobKey.REPORT_GRID_RECALCULATE_APP_GROUPS_FROM_FILTERS,
-                (jk) -> reportGridFilterViewService.generateAppGroupsFromFilter());
+    /**
+     * Wraps the job body so it only runs if it is runnable (according to its status in the
+     * settings table) and no job it depends on, which depends on it, or which shares its
+     * exclusion group, is running elsewhere, e.g. on another Waltz server sharing the database.  The final status is
+     * only written if the job is still marked as running, a job which finishes after being
+     * timed out (and marked as errored) leaves that status in place.
+     */
+    private JobDefinition mkJob(JobKey jobKey,
+                                Set<JobKey> dependencies,
+                                long timeoutMillis,
+                                Runnable body) {
+        return mkJob(jobKey, dependencies, null, timeoutMillis, body);
     }
 
 
-    private void runIfNeeded(JobKey jobKey, Consumer<JobKey> jobExecutor) {
-        runIfNeeded(jobKey, jobExecutor, Collections.emptySet());
+    private JobDefinition mkJob(JobKey jobKey,
+                                Set<JobKey> dependencies,
+                                String exclusionGroup,
+                                long timeoutMillis,
+                                Runnable body) {
+        return new JobDefinition(
+                jobKey,
+                dependencies,
+                exclusionGroup,
+                timeoutMillis,
+                () -> {
+                    if (!scheduledJobDao.isJobRunnable(jobKey)
+                            || scheduledJobDao.anyJobsRunning(executor.findConflicts(jobKey))
+                            || !scheduledJobDao.markJobAsRunning(jobKey)) {
+                        return false;
+                    }
+                    try {
+                        body.run();
+                        scheduledJobDao.updateJobStatus(jobKey, JobLifecycleStatus.RUNNING, JobLifecycleStatus.COMPLETED);
+                        return true;
+                    } catch (Exception e) {
+                        scheduledJobDao.updateJobStatus(jobKey, JobLifecycleStatus.RUNNING, JobLifecycleStatus.ERRORED);
+                        throw e;
+                    }
+                });
     }
 
-    private void runIfNeeded(JobKey jobKey, Consumer<JobKey> jobExecutor, Set<JobKey> deadlockJobKeys) {
-        try {
-            if (scheduledJobDao.isJobRunnable(jobKey)
-                    && !scheduledJobDao.anyJobsRunning(deadlockJobKeys)
-                    && scheduledJobDao.markJobAsRunning(jobKey)) {
-                jobExecutor
-                        .andThen((jk) -> scheduledJobDao.updateJobStatus(jk, JobLifecycleStatus.COMPLETED))
-                        .accept(jobKey);
-            }
-        } catch (Exception e) {
-            LOG.error("Failed to run job: " + jobKey, e);
-            scheduledJobDao.updateJobStatus(jobKey, JobLifecycleStatus.ERRORED);
-        }
-    }
 
+    private static ThreadFactory mkThreadFactory() {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread thread = new Thread(r, "WaltzScheduledJob-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
 
 }
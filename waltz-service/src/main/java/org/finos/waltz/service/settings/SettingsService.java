@@ -20,6 +20,7 @@ package org.finos.waltz.service.settings;
 
 import org.finos.waltz.common.CollectionUtilities;
 import org.finos.waltz.common.MapUtilities;
+import org.finos.waltz.data.settings.SettingsCache;
 import org.finos.waltz.data.settings.SettingsDao;
 import org.finos.waltz.model.settings.Setting;
 import org.finos.waltz.model.settings.UpdateSettingsCommand;
@@ -30,6 +31,7 @@ import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
 
+import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.ListUtilities.ensureNotNull;
 
 
@@ -37,6 +39,7 @@ import static org.finos.waltz.common.ListUtilities.ensureNotNull;
 public class SettingsService {
 
     private final SettingsDao settingsDao;
+    private final SettingsCache settingsCache;
 
     public static final String DEFAULT_ROLES_KEY = "server.authentication.roles.default";
     public static final String ALLOW_COST_EXPORTS_KEY = "feature.data-extractor.entity-cost.enabled";
@@ -48,19 +51,23 @@ public class SettingsService {
      * Setting service allows the settings table to be interrogated.  For dev purposes then a
      * collection of overrides may be given, useful when debugging a shared database instance and
      * you do not wish to change the values in the settings table
+     * Settings are read from an in-memory snapshot of the settings table, see {@link SettingsCache}.
      * @param settingsDao
+     * @param settingsCache
      * @param overrides
      */
     @Autowired
-    public SettingsService(SettingsDao settingsDao, Collection<Setting> overrides) {
+    public SettingsService(SettingsDao settingsDao, SettingsCache settingsCache, Collection<Setting> overrides) {
+        checkNotNull(settingsCache, "settingsCache cannot be null");
         this.settingsDao = settingsDao;
+        this.settingsCache = settingsCache;
         this.overridesByName = MapUtilities.indexBy(s -> s.name(), ensureNotNull(overrides));
     }
 
 
     public Collection<Setting> findAll() {
         return CollectionUtilities.map(
-                settingsDao.findAll(),
+                settingsCache.findAll(),
                 s -> Optional
                         .ofNullable(overridesByName.get(s.name()))
                         .orElse(s));
@@ -70,7 +77,7 @@ public class SettingsService {
     public Setting getByName(String name) {
         return Optional
                 .ofNullable(overridesByName.get(name))
-                .orElse(settingsDao.getByName(name));
+                .orElseGet(() -> settingsCache.getByName(name));
     }
 
     /**
@@ -87,11 +94,13 @@ public class SettingsService {
 
 
     public Map<String, String> indexByPrefix(String prefix) {
-        return settingsDao.indexByPrefix(prefix);
+        return settingsCache.indexByPrefix(prefix);
     }
 
 
     public int update(UpdateSettingsCommand cmd) {
-        return settingsDao.update(cmd);
+        int rc = settingsDao.update(cmd);
+        settingsCache.refreshSetting(cmd.name());
+        return rc;
     }
 }
@@ -37,6 +37,8 @@ import org.finos.waltz.service.changelog.ChangeLogService;
 import org.finos.waltz.service.involvement_group.InvolvementGroupService;
 import org.jooq.Record1;
 import org.jooq.Select;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
@@ -52,6 +54,7 @@ import static java.util.stream.Collectors.toList;
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.Checks.checkTrue;
 import static org.finos.waltz.common.CollectionUtilities.isEmpty;
+import static org.finos.waltz.common.ListUtilities.asList;
 import static org.finos.waltz.common.ListUtilities.map;
 import static org.finos.waltz.common.MapUtilities.groupBy;
 import static org.finos.waltz.common.MapUtilities.indexBy;
@@ -61,12 +64,15 @@ import static org.finos.waltz.common.StringUtilities.capitalise;
 @Service
 public class SurveyRunService {
 
+    private static final Logger LOG = LoggerFactory.getLogger(SurveyRunService.class);
+
+    static final int ISSUANCE_BATCH_SIZE = 500;
+
     private final ChangeLogService changeLogService;
     private final InvolvementDao involvementDao;
     private final PersonDao personDao;
     private final SurveyInstanceDao surveyInstanceDao;
     private final SurveyInstanceRecipientDao surveyInstanceRecipientDao;
-    private final SurveyInstanceOwnerDao surveyInstanceOwnerDao;
     private final SurveyRunDao surveyRunDao;
     private final SurveyTemplateDao surveyTemplateDao;
     private final SurveyQuestionResponseDao surveyQuestionResponseDao;
@@ -82,7 +88,6 @@ public class SurveyRunService {
                             PersonDao personDao,
                             SurveyInstanceDao surveyInstanceDao,
                             SurveyInstanceRecipientDao surveyInstanceRecipientDao,
-                            SurveyInstanceOwnerDao surveyInstanceOwnerDao,
                             SurveyRunDao surveyRunDao,
                             SurveyTemplateDao surveyTemplateDao,
                             SurveyQuestionResponseDao surveyQuestionResponseDao,
@@ -93,7 +98,6 @@ public class SurveyRunService {
         checkNotNull(personDao, "personDao cannot be null");
         checkNotNull(surveyInstanceDao, "surveyInstanceDao cannot be null");
         checkNotNull(surveyInstanceRecipientDao, "surveyInstanceRecipientDao cannot be null");
-        checkNotNull(surveyInstanceOwnerDao, "surveyInstanceOwnerDao cannot be null");
         checkNotNull(surveyRunDao, "surveyRunDao cannot be null");
         checkNotNull(surveyTemplateDao, "surveyTemplateDao cannot be null");
         checkNotNull(surveyQuestionResponseDao, "surveyQuestionResponseDao cannot be null");
@@ -104,7 +108,6 @@ public class SurveyRunService {
         this.personDao = personDao;
         this.surveyInstanceDao = surveyInstanceDao;
         this.surveyInstanceRecipientDao = surveyInstanceRecipientDao;
-        this.surveyInstanceOwnerDao = surveyInstanceOwnerDao;
         this.surveyRunDao = surveyRunDao;
         this.surveyTemplateDao = surveyTemplateDao;
         this.surveyQuestionResponseDao = surveyQuestionResponseDao;
@@ -442,32 +445,35 @@ public class SurveyRunService {
                         toList()
                 ));
 
-        // delete existing instances and recipients
-        deleteSurveyInstancesAndRecipients(command.surveyRunId());
-
-        // insert new instances and recipients
+        List<SurveyInstanceIssueCommand> issueCommands = new ArrayList<>();
         instancesAndRecipientsToSave.forEach(
                 (k,v) -> {
+                    Set<Long> ownerIds = union(
+                            asSet(surveyRun.ownerId()),
+                            SetUtilities.map(fromCollection(surveyOwnersByInstance.get(k)), o -> o.person().id().get()));
+
                     if (surveyRun.issuanceKind() == SurveyIssuanceKind.GROUP) {
                         // one instance per group
-                        long instanceId = createSurveyInstance(k);
-                        createSurveyInstanceOwner(instanceId, surveyRun.ownerId());
-                        Collection<SurveyInstanceOwner> owners = surveyOwnersByInstance.get(k);
-                        fromCollection(owners).forEach(o -> createSurveyInstanceOwner(instanceId, o.person().id().get()));
-                        v.forEach(r -> createSurveyInstanceRecipient(instanceId, r));
+                        issueCommands.add(mkIssueCommand(
+                                mkCreateCommand(k),
+                                SetUtilities.map(v, r -> r.person().id().get()),
+                                ownerIds));
                     } else {
                         // one instance for each individual
-                        v.forEach(r -> {
-                            long instanceId = createSurveyInstance(k);
-                            createSurveyInstanceOwner(instanceId, surveyRun.ownerId());
-                            Collection<SurveyInstanceOwner> owners = surveyOwnersByInstance.get(k);
-                            fromCollection(owners).forEach(o -> createSurveyInstanceOwner(instanceId, o.person().id().get()));
-                            createSurveyInstanceRecipient(instanceId, r);
-                        });
+                        v.forEach(r -> issueCommands.add(mkIssueCommand(
+                                mkCreateCommand(k),
+                                asSet(r.person().id().get()),
+                                ownerIds)));
                     }
                 }
         );
 
+        // delete existing instances and recipients
+        deleteSurveyInstancesAndRecipients(command.surveyRunId());
+
+        // insert new instances, recipients and owners
+        issueSurveyInstances(command.surveyRunId(), issueCommands);
+
         return true;
     }
 
@@ -478,32 +484,48 @@ public class SurveyRunService {
     }
 
 
-    private long createSurveyInstance(SurveyInstance surveyInstance) {
-        return surveyInstanceDao
-                .create(ImmutableSurveyInstanceCreateCommand.builder()
-                        .surveyRunId(surveyInstance.surveyRunId())
-                        .entityReference(surveyInstance.surveyEntity())
-                        .status(surveyInstance.status())
-                        .dueDate(surveyInstance.dueDate())
-                        .approvalDueDate(surveyInstance.approvalDueDate())
-                        .owningRole(surveyInstance.owningRole())
-                        .name(surveyInstance.name())
-                        .build());
+    /**
+     * Issues the instances in batches of {@link #ISSUANCE_BATCH_SIZE}, each batch is
+     * written (instances, recipients and owners) in a single transaction.
+     *
+     * @return number of instances issued
+     */
+    private int issueSurveyInstances(long surveyRunId, List<SurveyInstanceIssueCommand> issueCommands) {
+        int issued = 0;
+        for (int from = 0; from < issueCommands.size(); from += ISSUANCE_BATCH_SIZE) {
+            int to = Math.min(from + ISSUANCE_BATCH_SIZE, issueCommands.size());
+            issued += surveyInstanceDao
+                    .createInstancesWithRecipientsAndOwners(issueCommands.subList(from, to))
+                    .size();
+            LOG.debug("Issued {} of {} survey instances for run: {}", issued, issueCommands.size(), surveyRunId);
+        }
+
+        LOG.info("Issued {} survey instances for run: {}", issued, surveyRunId);
+        return issued;
     }
 
 
-    private long createSurveyInstanceRecipient(long surveyInstanceId, SurveyInstanceRecipient surveyInstanceRecipient) {
-        return surveyInstanceRecipientDao.create(ImmutableSurveyInstanceRecipientCreateCommand.builder()
-                .surveyInstanceId(surveyInstanceId)
-                .personId(surveyInstanceRecipient.person().id().get())
-                .build());
+    private static SurveyInstanceCreateCommand mkCreateCommand(SurveyInstance surveyInstance) {
+        return ImmutableSurveyInstanceCreateCommand.builder()
+                .surveyRunId(surveyInstance.surveyRunId())
+                .entityReference(surveyInstance.surveyEntity())
+                .status(surveyInstance.status())
+                .dueDate(surveyInstance.dueDate())
+                .approvalDueDate(surveyInstance.approvalDueDate())
+                .owningRole(surveyInstance.owningRole())
+                .name(surveyInstance.name())
+                .build();
     }
 
-    private long createSurveyInstanceOwner(long surveyInstanceId, Long ownerId) {
-        return surveyInstanceOwnerDao.create(ImmutableSurveyInstanceOwnerCreateCommand.builder()
-                .surveyInstanceId(surveyInstanceId)
-                .personId(ownerId)
-                .build());
+
+    private static SurveyInstanceIssueCommand mkIssueCommand(SurveyInstanceCreateCommand instance,
+                                                             Set<Long> recipientIds,
+                                                             Set<Long> ownerIds) {
+        return ImmutableSurveyInstanceIssueCommand.builder()
+                .instance(instance)
+                .recipientPersonIds(recipientIds)
+                .ownerPersonIds(ownerIds)
+                .build();
     }
 
 
@@ -596,24 +618,23 @@ public class SurveyRunService {
                 ? surveyOwnerList
                 : recipientIds;
 
+        SurveyInstanceCreateCommand instanceCreateCommand = mkDirectCreateCommand(
+                subjectRef,
+                run,
+                recipientsAndOwners.owningRole());
+
         switch (run.issuanceKind()) {
             case INDIVIDUAL:
                 //create one survey per recipient
-                recipientsToBeIssuedSurveys
-                        .forEach(pId -> mkSurveyInstance(
-                                subjectRef,
-                                run,
-                                asSet(pId),
-                                ownerIds,
-                                recipientsAndOwners.owningRole()));
+                issueSurveyInstances(
+                        runId,
+                        map(recipientsToBeIssuedSurveys,
+                            pId -> mkIssueCommand(instanceCreateCommand, asSet(pId), ownerIds)));
                 return true;
             case GROUP:
-                mkSurveyInstance(
-                        subjectRef,
-                        run,
-                        recipientsToBeIssuedSurveys,
-                        ownerIds,
-                        recipientsAndOwners.owningRole());
+                issueSurveyInstances(
+                        runId,
+                        asList(mkIssueCommand(instanceCreateCommand, recipientsToBeIssuedSurveys, ownerIds)));
                 return true;
             default:
                 return false;
@@ -640,13 +661,11 @@ public class SurveyRunService {
     }
 
 
-    private void mkSurveyInstance(EntityReference entityRef,
-                                  SurveyRun run,
-                                  Set<Long> recipientIds,
-                                  Set<Long> ownersIds,
-                                  String owningRole) {
+    private static SurveyInstanceCreateCommand mkDirectCreateCommand(EntityReference entityRef,
+                                                                      SurveyRun run,
+                                                                      String owningRole) {
 
-        SurveyInstanceCreateCommand instanceCreateCommand = ImmutableSurveyInstanceCreateCommand
+        return ImmutableSurveyInstanceCreateCommand
                 .builder()
                 .dueDate(run.dueDate())
                 .approvalDueDate(run.approvalDueDate())
@@ -656,16 +675,6 @@ public class SurveyRunService {
                 .owningRole(owningRole)
                 .name(run.name())
                 .build();
-
-        long instanceId = surveyInstanceDao.create(instanceCreateCommand);
-
-        int[] recipientsCreated = surveyInstanceDao.createInstanceRecipients(
-                instanceId,
-                recipientIds);
-
-        int[] ownersCreated = surveyInstanceDao.createInstanceOwners(
-                instanceId,
-                ownersIds);
     }
 
 
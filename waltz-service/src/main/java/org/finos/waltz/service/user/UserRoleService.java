@@ -28,6 +28,7 @@ import org.finos.waltz.service.changelog.ChangeLogService;
 import org.finos.waltz.service.person.PersonService;
 import org.finos.waltz.common.SetUtilities;
 import org.finos.waltz.common.StringUtilities;
+import org.finos.waltz.data.user.UserRoleCache;
 import org.finos.waltz.data.user.UserRoleDao;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.Operation;
@@ -76,6 +77,7 @@ public class UserRoleService {
     private static final Logger LOG = LoggerFactory.getLogger(UserRoleService.class);
 
     private final UserRoleDao userRoleDao;
+    private final UserRoleCache userRoleCache;
     private final UserDao userDao;
     private final RoleDao roleDao;
 
@@ -86,17 +88,20 @@ public class UserRoleService {
 
     @Autowired
     public UserRoleService(UserRoleDao userRoleDao,
+                           UserRoleCache userRoleCache,
                            UserDao userDao,
                            RoleDao roleDao,
                            ChangeLogService changeLogService,
                            PersonService personService) {
         checkNotNull(userRoleDao, "userRoleDao must not be null");
+        checkNotNull(userRoleCache, "userRoleCache must not be null");
         checkNotNull(userDao, "userDao must not be null");
         checkNotNull(roleDao, "roleDao must not be null");
         checkNotNull(changeLogService, "changeLogService must not be null");
         checkNotNull(personService, "personService must not be null");
 
         this.userRoleDao = userRoleDao;
+        this.userRoleCache = userRoleCache;
         this.userDao = userDao;
         this.roleDao = roleDao;
         this.changeLogService = changeLogService;
@@ -115,7 +120,7 @@ public class UserRoleService {
 
 
     public boolean hasRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = userRoleCache.getUserRoles(userName);
         return userRoles.containsAll(requiredRoles);
     }
 
@@ -126,7 +131,7 @@ public class UserRoleService {
 
 
     public boolean hasAnyRole(String userName, Set<String> requiredRoles) {
-        Set<String> userRoles = userRoleDao.getUserRoles(userName);
+        Set<String> userRoles = userRoleCache.getUserRoles(userName);
         return ! SetUtilities.intersection(userRoles, requiredRoles)
                     .isEmpty();
     }
@@ -140,7 +145,7 @@ public class UserRoleService {
     public User getByUserId(String userId) {
         return ImmutableUser.builder()
                 .userName(userId)
-                .addAllRoles(userRoleDao.getUserRoles(userId))
+                .addAllRoles(userRoleCache.getUserRoles(userId))
                 .build();
     }
 
@@ -167,12 +172,14 @@ public class UserRoleService {
             changeLogService.write(logEntry);
         }
 
-        return userRoleDao.updateRoles(targetUserName, command.roles());
+        int rc = userRoleDao.updateRoles(targetUserName, command.roles());
+        userRoleCache.refreshUsers(Collections.singleton(targetUserName));
+        return rc;
     }
 
 
     public Set<String> getUserRoles(String userName) {
-        return userRoleDao.getUserRoles(userName);
+        return userRoleCache.getUserRoles(userName);
     }
 
 
@@ -201,16 +208,23 @@ public class UserRoleService {
                 .map(d -> tuple(d.resolvedUser(), d.resolvedRole()))
                 .collect(Collectors.toSet());
 
+        int rc;
         switch (mode) {
             case ADD_ONLY:
-                return userRoleDao.addRoles(usersAndRolesToUpdate);
+                rc = userRoleDao.addRoles(usersAndRolesToUpdate);
+                break;
             case REMOVE_ONLY:
-                return userRoleDao.removeRoles(usersAndRolesToUpdate);
+                rc = userRoleDao.removeRoles(usersAndRolesToUpdate);
+                break;
             case REPLACE:
-                return userRoleDao.replaceRoles(usersAndRolesToUpdate);
+                rc = userRoleDao.replaceRoles(usersAndRolesToUpdate);
+                break;
             default:
                 throw new UnsupportedOperationException("Unsupported mode: " + mode);
         }
+
+        userRoleCache.refreshUsers(SetUtilities.map(usersAndRolesToUpdate, Tuple2::v1));
+        return rc;
     }
 
 
@@ -21,6 +21,7 @@ package org.finos.waltz.service.user;
 import org.finos.waltz.service.settings.SettingsService;
 import org.finos.waltz.common.Checks;
 import org.finos.waltz.data.user.UserDao;
+import org.finos.waltz.data.user.UserRoleCache;
 import org.finos.waltz.data.user.UserRoleDao;
 import org.finos.waltz.model.settings.Setting;
 import org.finos.waltz.model.user.ImmutableLoginRequest;
@@ -32,6 +33,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import java.util.Collections;
 import java.util.List;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
@@ -47,21 +49,25 @@ public class UserService {
     private final UserDao userDao;
     private final PasswordService passwordService;
     private final UserRoleDao userRoleDao;
+    private final UserRoleCache userRoleCache;
     private final SettingsService settingsService;
 
 
     @Autowired
     public UserService(UserDao userDao,
                        UserRoleDao userRoleDao,
+                       UserRoleCache userRoleCache,
                        PasswordService passwordService,
                        SettingsService settingsService) {
         checkNotNull(userDao, "userDao must not be null");
         checkNotNull(userRoleDao, "userRoleDao cannot be null");
+        checkNotNull(userRoleCache, "userRoleCache cannot be null");
         checkNotNull(passwordService, "passwordService must not be null");
         checkNotNull(settingsService, "settingsService cannot be null");
 
         this.userDao = userDao;
         this.userRoleDao = userRoleDao;
+        this.userRoleCache = userRoleCache;
         this.passwordService = passwordService;
         this.settingsService = settingsService;
     }
@@ -139,7 +145,10 @@ public class UserService {
         if (setting != null ) {
             setting.value()
                     .map(s -> tokenise(s, ","))
-                    .ifPresent(roles -> userRoleDao.updateRoles(username, fromCollection(roles)));
+                    .ifPresent(roles -> {
+                        userRoleDao.updateRoles(username, fromCollection(roles));
+                        userRoleCache.refreshUsers(Collections.singleton(username));
+                    });
 
         }
     }
@@ -0,0 +1,65 @@
+package org.finos.waltz.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class QueryMetricsListenerTest {
+
+    @Test
+    public void literalsAreReplacedByMarkers() {
+        assertEquals(
+                "select name from application where id = ? and kind = ?",
+                QueryMetricsListener.fingerprint("select name from application\n  where id = 1234 and kind = 'IN_HOUSE'"));
+    }
+
+
+    @Test
+    public void quotedLiteralsMayContainEscapedQuotes() {
+        assertEquals(
+                "select * from person where name = ?",
+                QueryMetricsListener.fingerprint("select * from person where name = 'O''Neil'"));
+    }
+
+
+    @Test
+    public void listsAreCollapsed() {
+        assertEquals(
+                QueryMetricsListener.fingerprint("select * from t1 where id in (?, ?, ?)"),
+                QueryMetricsListener.fingerprint("select * from t1 where id in (1, 2, 3, 4, 5)"));
+        assertEquals(
+                "select id from (values (?)) as ids(id)",
+                QueryMetricsListener.fingerprint("select id from (values (1), (2), (3)) as ids(id)"));
+    }
+
+
+    @Test
+    public void identifiersContainingDigitsAreUnchanged() {
+        assertEquals(
+                "select t1.col2 from table3 t1",
+                QueryMetricsListener.fingerprint("select t1.col2 from table3 t1"));
+    }
+
+
+    @Test
+    public void longStatementsAreTruncated() {
+        StringBuilder sql = new StringBuilder("select ");
+        for (int i = 0; i < 1_000; i++) {
+            sql.append("column_").append(i).append(", ");
+        }
+        assertTrue(QueryMetricsListener.fingerprint(sql.toString()).length() <= 2_000);
+    }
+
+
+    @Test
+    public void cacheKeysIgnoreWhitespaceButNotValues() {
+        assertEquals(
+                SqlHash.hash("select name\n  from application where id = 1"),
+                SqlHash.hash("  select name from application   where id = 1 "));
+        assertNotEquals(
+                SqlHash.hash("select name from application where id = 1"),
+                SqlHash.hash("select name from application where id = 2"));
+    }
+}
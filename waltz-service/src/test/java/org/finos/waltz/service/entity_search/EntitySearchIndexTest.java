@@ -0,0 +1,165 @@
+package org.finos.waltz.service.entity_search;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityLifecycleStatus;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.ImmutableEntityReference;
+import org.finos.waltz.model.entity_search.EntitySearchDocument;
+import org.finos.waltz.model.entity_search.EntitySearchOptions;
+import org.finos.waltz.model.entity_search.ImmutableEntitySearchDocument;
+import org.finos.waltz.model.entity_search.ImmutableEntitySearchOptions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class EntitySearchIndexTest {
+
+    private static final EntityKind APP = EntityKind.APPLICATION;
+
+
+    @Test
+    public void externalIdMatchesRankAboveNameMatches() {
+        EntitySearchIndex index = mkIndex(
+                mkDoc(1L, "Trade Capture", "ABC-1", null, EntityLifecycleStatus.ACTIVE),
+                mkDoc(2L, "Abc Reporting", "XYZ-2", null, EntityLifecycleStatus.ACTIVE));
+
+        assertEquals(asList(1L, 2L), searchIds(index, "abc"));
+        assertEquals(asList(1L), searchIds(index, "abc-1"));
+    }
+
+
+    @Test
+    public void termsCanMatchTheMiddleOfWords() {
+        EntitySearchIndex index = mkIndex(
+                mkDoc(1L, "Waltz Enterprise", "W1", null, EntityLifecycleStatus.ACTIVE),
+                mkDoc(2L, "Trading", "T1", null, EntityLifecycleStatus.ACTIVE));
+
+        assertEquals(asList(1L), searchIds(index, "terpri"));
+    }
+
+
+    @Test
+    public void allTermsMustMatchAcrossNamesAliasesAndDescriptions() {
+        EntitySearchIndex index = mkIndex(
+                mkDoc(1L, "Waltz", "W1", "architecture tool", EntityLifecycleStatus.ACTIVE, "dancing"),
+                mkDoc(2L, "Waltz Legacy", "W2", null, EntityLifecycleStatus.ACTIVE));
+
+        assertEquals(asList(1L), searchIds(index, "waltz arch"));
+        assertEquals(asList(1L), searchIds(index, "waltz danc"));
+        assertEquals(asList(1L, 2L), searchIds(index, "waltz"));
+    }
+
+
+    @Test
+    public void lifecycleStatusesAreRespected() {
+        EntitySearchIndex index = mkIndex(
+                mkDoc(1L, "Waltz", "W1", null, EntityLifecycleStatus.ACTIVE),
+                mkDoc(2L, "Waltz Old", "W2", null, EntityLifecycleStatus.REMOVED),
+                ImmutableEntitySearchDocument
+                        .builder()
+                        .from(mkDoc(3L, "Waltz Unfiltered", "W3", null, EntityLifecycleStatus.REMOVED))
+                        .lifecycleFiltered(false)
+                        .build());
+
+        assertEquals(asList(1L, 3L), searchIds(index, "waltz"));
+    }
+
+
+    @Test
+    public void updatesReplaceAndRemoveDocuments() {
+        EntitySearchIndex index = mkIndex(
+                mkDoc(1L, "Waltz", "W1", null, EntityLifecycleStatus.ACTIVE),
+                mkDoc(2L, "Tango", "T1", null, EntityLifecycleStatus.ACTIVE));
+
+        index.markStale(mkRef(APP, 1L));
+        index.markStale(mkRef(APP, 2L));
+        assertEquals(asSet(1L, 2L), index.drainStale(APP));
+        assertTrue(index.drainStale(APP).isEmpty(), "stale ids should only be returned once");
+
+        index.update(
+                APP,
+                asSet(1L, 2L),
+                asList(mkDoc(1L, "Foxtrot", "W1", null, EntityLifecycleStatus.ACTIVE)));
+
+        assertTrue(searchIds(index, "waltz").isEmpty());
+        assertTrue(searchIds(index, "tango").isEmpty());
+        assertEquals(asList(1L), searchIds(index, "foxtrot"));
+    }
+
+
+    @Test
+    public void staleMarkersAreIgnoredForUnloadedKinds() {
+        EntitySearchIndex index = new EntitySearchIndex(true, 60);
+        index.markStale(mkRef(APP, 1L));
+
+        assertFalse(index.isLoaded(APP));
+        assertTrue(index.needsLoad(APP));
+        assertTrue(index.drainStale(APP).isEmpty());
+    }
+
+
+    @Test
+    public void changesMadeWhilstLoadingAreRetainedAsStale() {
+        EntitySearchIndex index = new EntitySearchIndex(true, 60);
+        index.load(APP, () -> {
+            // simulates a change committed after the documents were read but before the load completes
+            index.markStale(mkRef(APP, 1L));
+            return asList();
+        });
+
+        assertTrue(index.isLoaded(APP));
+        assertEquals(asSet(1L), index.drainStale(APP));
+    }
+
+
+    private static EntitySearchIndex mkIndex(EntitySearchDocument... docs) {
+        EntitySearchIndex index = new EntitySearchIndex(true, 60);
+        index.load(APP, asList(docs));
+        return index;
+    }
+
+
+    private static List<Long> searchIds(EntitySearchIndex index, String query) {
+        EntitySearchOptions options = ImmutableEntitySearchOptions
+                .builder()
+                .entityKinds(newArrayList(APP))
+                .searchQuery(query)
+                .build();
+
+        return index
+                .search(APP, options)
+                .stream()
+                .map(EntityReference::id)
+                .collect(toList());
+    }
+
+
+    private static EntitySearchDocument mkDoc(long id,
+                                              String name,
+                                              String externalId,
+                                              String description,
+                                              EntityLifecycleStatus status,
+                                              String... aliases) {
+        return ImmutableEntitySearchDocument
+                .builder()
+                .entityReference(ImmutableEntityReference
+                        .builder()
+                        .kind(APP)
+                        .id(id)
+                        .name(name)
+                        .externalId(Optional.ofNullable(externalId))
+                        .description(description)
+                        .entityLifecycleStatus(status)
+                        .build())
+                .aliases(asSet(aliases))
+                .build();
+    }
+}
@@ -0,0 +1,169 @@
+package org.finos.waltz.service.flow_classification_rule;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.EntityReference;
+import org.finos.waltz.model.entity_hierarchy.EntityHierarchyItem;
+import org.finos.waltz.model.entity_hierarchy.ImmutableEntityHierarchyItem;
+import org.finos.waltz.model.flow_classification_rule.FlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.flow_classification_rule.ImmutableFlowClassificationRuleVantagePoint;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CompactFlowClassificationRuleResolverTest {
+
+    private static final EntityReference APP_A = mkRef(EntityKind.APPLICATION, 1000L);
+    private static final EntityReference APP_B = mkRef(EntityKind.APPLICATION, 1001L);
+    private static final EntityReference APP_C = mkRef(EntityKind.APPLICATION, 1002L);
+    private static final EntityReference ACTOR_A = mkRef(EntityKind.ACTOR, 1000L);
+
+    // org units: 1 <- 2 <- 3, data types: 10 <- 11 <- 12
+    private static final List<EntityHierarchyItem> ORG_UNITS = mkChain(EntityKind.ORG_UNIT, 1L, 2L, 3L);
+    private static final List<EntityHierarchyItem> DATA_TYPES = mkChain(EntityKind.DATA_TYPE, 10L, 11L, 12L);
+
+    private static final List<FlowClassificationRuleVantagePoint> RULES = asList(
+            mkRule(100L, 1L, 1, 10L, 1, APP_A, "PRIMARY"),
+            mkRule(101L, 2L, 2, 11L, 2, APP_B, "SECONDARY"),
+            mkRule(102L, 2L, 2, 10L, 1, APP_C, "PRIMARY"),
+            mkRule(103L, 3L, 3, 10L, 1, ACTOR_A, "SECONDARY"));
+
+
+    @Test
+    public void mostSpecificOrgUnitThenDataTypeWins() {
+        CompactFlowClassificationRuleResolver resolver = mkResolver();
+
+        assertEquals(Optional.of(100L), resolver.ruleId(resolver.resolveOutcome(3L, APP_A, 12L)));
+        assertEquals(Optional.of(101L), resolver.ruleId(resolver.resolveOutcome(3L, APP_B, 12L)));
+        assertEquals(Optional.of(103L), resolver.ruleId(resolver.resolveOutcome(3L, ACTOR_A, 10L)));
+        assertEquals(AuthoritativenessRatingValue.of("SECONDARY"), resolver.resolve(mkRef(EntityKind.ORG_UNIT, 2L), APP_B, 11L));
+    }
+
+
+    @Test
+    public void unknownSourcesAreDiscouragedAndUnknownScopesHaveNoOpinion() {
+        CompactFlowClassificationRuleResolver resolver = mkResolver();
+
+        assertEquals(CompactFlowClassificationRuleResolver.DISCOURAGED, resolver.resolveOutcome(1L, APP_B, 10L));
+        assertEquals(CompactFlowClassificationRuleResolver.NO_OPINION, resolver.resolveOutcome(99L, APP_A, 10L));
+        assertEquals(CompactFlowClassificationRuleResolver.NO_OPINION, resolver.resolveOutcome(1L, APP_A, 99L));
+        assertEquals(Optional.empty(), resolver.ruleId(CompactFlowClassificationRuleResolver.DISCOURAGED));
+    }
+
+
+    @Test
+    public void agreesWithTheExpandedResolver() {
+        CompactFlowClassificationRuleResolver compact = mkResolver();
+        FlowClassificationRuleResolver expanded = new FlowClassificationRuleResolver(expand(RULES));
+
+        List<Long> orgUnitIds = asList(1L, 2L, 3L, 99L);
+        List<Long> dataTypeIds = asList(10L, 11L, 12L, 99L);
+        List<EntityReference> sources = asList(APP_A, APP_B, APP_C, ACTOR_A, mkRef(EntityKind.APPLICATION, 99L));
+
+        List<Long> ouInput = new ArrayList<>();
+        List<EntityReference> sourceInput = new ArrayList<>();
+        List<Long> dtInput = new ArrayList<>();
+        for (Long ou : orgUnitIds) {
+            for (Long dt : dataTypeIds) {
+                for (EntityReference source : sources) {
+                    ouInput.add(ou);
+                    dtInput.add(dt);
+                    sourceInput.add(source);
+                }
+            }
+        }
+
+        int[] outcomes = compact.resolveAll(
+                ouInput.stream().mapToLong(Long::longValue).toArray(),
+                sourceInput.toArray(new EntityReference[0]),
+                dtInput.stream().mapToLong(Long::longValue).toArray());
+
+        for (int i = 0; i < outcomes.length; i++) {
+            EntityReference vantagePoint = mkRef(EntityKind.ORG_UNIT, ouInput.get(i));
+            String msg = vantagePoint + " / " + sourceInput.get(i) + " / " + dtInput.get(i);
+            assertEquals(
+                    expanded.resolve(vantagePoint, sourceInput.get(i), dtInput.get(i)),
+                    compact.rating(outcomes[i]),
+                    msg);
+            assertEquals(
+                    expanded.resolveAuthSource(vantagePoint, sourceInput.get(i), dtInput.get(i)).map(FlowClassificationRuleVantagePoint::ruleId),
+                    compact.ruleId(outcomes[i]),
+                    msg);
+        }
+    }
+
+
+    // -- helpers
+
+    private static CompactFlowClassificationRuleResolver mkResolver() {
+        return new CompactFlowClassificationRuleResolver(RULES, ORG_UNITS, DATA_TYPES);
+    }
+
+
+    /**
+     * Mimics the expansion performed by <code>findExpandedFlowClassificationRuleVantagePoints</code>.
+     */
+    private static List<FlowClassificationRuleVantagePoint> expand(List<FlowClassificationRuleVantagePoint> rules) {
+        List<FlowClassificationRuleVantagePoint> expanded = new ArrayList<>();
+        for (FlowClassificationRuleVantagePoint rule : rules) {
+            for (EntityHierarchyItem ou : ORG_UNITS) {
+                if (!ou.parentId().get().equals(rule.vantagePoint().id())) continue;
+                for (EntityHierarchyItem dt : DATA_TYPES) {
+                    if (!dt.parentId().get().equals(rule.dataType().id())) continue;
+                    expanded.add(ImmutableFlowClassificationRuleVantagePoint
+                            .copyOf(rule)
+                            .withVantagePoint(mkRef(EntityKind.ORG_UNIT, ou.id().get()))
+                            .withDataType(mkRef(EntityKind.DATA_TYPE, dt.id().get())));
+                }
+            }
+        }
+        return expanded;
+    }
+
+
+    private static FlowClassificationRuleVantagePoint mkRule(long ruleId,
+                                                             long orgUnitId,
+                                                             int orgUnitLevel,
+                                                             long dataTypeId,
+                                                             int dataTypeLevel,
+                                                             EntityReference subject,
+                                                             String code) {
+        return ImmutableFlowClassificationRuleVantagePoint
+                .builder()
+                .ruleId(ruleId)
+                .vantagePoint(mkRef(EntityKind.ORG_UNIT, orgUnitId))
+                .vantagePointRank(orgUnitLevel)
+                .dataType(mkRef(EntityKind.DATA_TYPE, dataTypeId))
+                .dataTypeRank(dataTypeLevel)
+                .subjectReference(subject)
+                .classificationCode(code)
+                .build();
+    }
+
+
+    /**
+     * Hierarchy rows (including self rows) for a simple chain, the first id being the root.
+     */
+    private static List<EntityHierarchyItem> mkChain(EntityKind kind, long... ids) {
+        List<EntityHierarchyItem> items = new ArrayList<>();
+        for (int d = 0; d < ids.length; d++) {
+            for (int a = 0; a <= d; a++) {
+                items.add(ImmutableEntityHierarchyItem
+                        .builder()
+                        .kind(kind)
+                        .id(ids[d])
+                        .parentId(ids[a])
+                        .ancestorLevel(a + 1)
+                        .descendantLevel(d + 1)
+                        .build());
+            }
+        }
+        return items;
+    }
+}
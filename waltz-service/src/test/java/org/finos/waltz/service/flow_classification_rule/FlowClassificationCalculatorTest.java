@@ -0,0 +1,79 @@
+package org.finos.waltz.service.flow_classification_rule;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.datatype.DataTypeDecorator;
+import org.finos.waltz.model.datatype.ImmutableDataTypeDecorator;
+import org.finos.waltz.model.rating.AuthoritativenessRatingValue;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.service.flow_classification_rule.FlowClassificationCalculator.findChangedRatings;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FlowClassificationCalculatorTest {
+
+    private static final AuthoritativenessRatingValue PRIMARY = AuthoritativenessRatingValue.of("PRIMARY");
+    private static final AuthoritativenessRatingValue NO_OPINION = AuthoritativenessRatingValue.NO_OPINION;
+
+
+    @Test
+    public void unchangedRatingsAreNotReturned() {
+        List<DataTypeDecorator> original = asList(
+                mkDecorator(1L, NO_OPINION, null),
+                mkDecorator(2L, PRIMARY, 10L));
+
+        assertTrue(findChangedRatings(original, original).isEmpty());
+    }
+
+
+    @Test
+    public void ratingAndRuleChangesAreReturned() {
+        List<DataTypeDecorator> original = asList(
+                mkDecorator(1L, NO_OPINION, null),
+                mkDecorator(2L, PRIMARY, 10L),
+                mkDecorator(3L, PRIMARY, 10L));
+
+        List<DataTypeDecorator> recalculated = asList(
+                mkDecorator(1L, PRIMARY, 10L),
+                mkDecorator(2L, PRIMARY, 11L),
+                mkDecorator(3L, PRIMARY, 10L));
+
+        List<DataTypeDecorator> changed = findChangedRatings(original, recalculated);
+
+        assertEquals(2, changed.size());
+        assertEquals(Optional.of(1L), changed.get(0).id());
+        assertEquals(Optional.of(2L), changed.get(1).id());
+    }
+
+
+    @Test
+    public void decoratorsWhichWereNotOriginallyPresentAreIgnored() {
+        List<DataTypeDecorator> changed = findChangedRatings(
+                asList(mkDecorator(1L, NO_OPINION, null)),
+                asList(mkDecorator(2L, PRIMARY, 10L)));
+
+        assertTrue(changed.isEmpty());
+    }
+
+
+    private static DataTypeDecorator mkDecorator(long id,
+                                                 AuthoritativenessRatingValue rating,
+                                                 Long ruleId) {
+        return ImmutableDataTypeDecorator
+                .builder()
+                .id(id)
+                .entityReference(mkRef(EntityKind.LOGICAL_DATA_FLOW, id * 100))
+                .decoratorEntity(mkRef(EntityKind.DATA_TYPE, 1L))
+                .rating(rating)
+                .flowClassificationRuleId(Optional.ofNullable(ruleId))
+                .provenance("waltz")
+                .lastUpdatedAt(LocalDateTime.now())
+                .lastUpdatedBy("test")
+                .build();
+    }
+}
@@ -0,0 +1,155 @@
+package org.finos.waltz.service.report_grid;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.application.LifecyclePhase;
+import org.finos.waltz.model.report_grid.ImmutableReportGridDefinition;
+import org.finos.waltz.model.report_grid.ImmutableReportGridDerivedColumnDefinition;
+import org.finos.waltz.model.report_grid.ImmutableReportGridInstance;
+import org.finos.waltz.model.report_grid.ImmutableReportSubject;
+import org.finos.waltz.model.report_grid.ReportGridCell;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.report_grid.ReportGridDerivedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridInstance;
+import org.finos.waltz.model.report_grid.ReportSubject;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportGridColumnCalculatorTest {
+
+    @Test
+    public void derivedColumnsAreEvaluatedAfterTheirDependencies() {
+        // declared in reverse order of dependency
+        ReportGridDefinition definition = mkDefinition(
+                mkDerivedCol(1L, "C", 0, "cell('B') == null ? null : mkResult(cell('B').textValue() + '!')"),
+                mkDerivedCol(2L, "B", 1, "mkResult('b' + cell('A').textValue())"),
+                mkDerivedCol(3L, "A", 2, "mkResult('a')"));
+
+        Set<ReportGridCell> cells = ReportGridColumnCalculator.calculate(mkInstance(1), definition);
+
+        Map<Long, String> valuesByColumn = cells
+                .stream()
+                .collect(Collectors.toMap(ReportGridCell::columnDefinitionId, ReportGridCell::textValue));
+
+        assertEquals("a", valuesByColumn.get(3L));
+        assertEquals("ba", valuesByColumn.get(2L));
+        assertEquals("ba!", valuesByColumn.get(1L));
+    }
+
+
+    @Test
+    public void circularReferencesFallBackToIterativeEvaluation() {
+        ReportGridDefinition definition = mkDefinition(
+                mkDerivedCol(1L, "X", 0, "cell('Y') == null ? mkResult('x') : mkResult('x2')"),
+                mkDerivedCol(2L, "Y", 1, "cell('X') == null ? null : mkResult('y')"),
+                mkDerivedCol(3L, "Z", 2, "mkResult('z')"));
+
+        Set<ReportGridCell> cells = ReportGridColumnCalculator.calculate(mkInstance(1), definition);
+
+        assertTrue(cells.stream().noneMatch(c -> c.errorValue() != null));
+        assertEquals("x2", valuesByColumn(cells).get(1L));
+        assertEquals("y", valuesByColumn(cells).get(2L));
+        assertEquals("z", valuesByColumn(cells).get(3L));
+    }
+
+
+    @Test
+    public void literalsWhichMatchColumnExtIdsAreNotTreatedAsReferences() {
+        // 'B' is only a value here, treating it as a reference would create a false cycle with B
+        ReportGridDefinition definition = mkDefinition(
+                mkDerivedCol(1L, "A", 0, "mkResult('B')"),
+                mkDerivedCol(2L, "B", 1, "mkResult(cell('A').textValue() + 'b')"));
+
+        assertEquals(asSet(), ReportGridColumnCalculator.findReferencedExtIds("mkResult('B')"));
+
+        Set<ReportGridCell> cells = ReportGridColumnCalculator.calculate(mkInstance(1), definition);
+
+        assertTrue(cells.stream().noneMatch(c -> c.errorValue() != null));
+        assertEquals("B", valuesByColumn(cells).get(1L));
+        assertEquals("Bb", valuesByColumn(cells).get(2L));
+    }
+
+
+    @Test
+    public void eachRowIsEvaluatedWithItsOwnContext() {
+        ReportGridDefinition definition = mkDefinition(
+                mkDerivedCol(1L, "ID", 0, "mkResult('' + subjectId)"),
+                mkDerivedCol(2L, "ID_COPY", 1, "mkResult(cell('ID').textValue())"));
+
+        int subjectCount = 500;
+        Set<ReportGridCell> cells = ReportGridColumnCalculator.calculate(mkInstance(subjectCount), definition);
+
+        assertEquals(subjectCount * 2, cells.size());
+        cells.forEach(c -> assertEquals(String.valueOf(c.subjectId()), c.textValue()));
+    }
+
+
+    @Test
+    public void referencedExtIdsAreFoundInEitherQuoteStyle() {
+        assertEquals(
+                asSet("A", "B", "C"),
+                ReportGridColumnCalculator.findReferencedExtIds("anyCellsProvided('A', \"B\") ? cell('C') : null"));
+    }
+
+
+    private static Map<Long, String> valuesByColumn(Set<ReportGridCell> cells) {
+        return cells
+                .stream()
+                .collect(Collectors.toMap(ReportGridCell::columnDefinitionId, ReportGridCell::textValue));
+    }
+
+
+    private static ReportGridInstance mkInstance(int subjectCount) {
+        Set<ReportSubject> subjects = LongStream
+                .rangeClosed(1, subjectCount)
+                .mapToObj(id -> ImmutableReportSubject
+                        .builder()
+                        .entityReference(mkRef(EntityKind.APPLICATION, id, "app" + id))
+                        .lifecyclePhase(LifecyclePhase.PRODUCTION)
+                        .build())
+                .collect(Collectors.toSet());
+
+        return ImmutableReportGridInstance
+                .builder()
+                .subjects(subjects)
+                .build();
+    }
+
+
+    private static ReportGridDerivedColumnDefinition mkDerivedCol(long gridColumnId,
+                                                                  String extId,
+                                                                  int position,
+                                                                  String script) {
+        return ImmutableReportGridDerivedColumnDefinition
+                .builder()
+                .gridColumnId(gridColumnId)
+                .externalId(extId)
+                .displayName(extId)
+                .position(position)
+                .derivationScript(script)
+                .build();
+    }
+
+
+    private static ReportGridDefinition mkDefinition(ReportGridDerivedColumnDefinition... derivedCols) {
+        return ImmutableReportGridDefinition.builder()
+                .id(1L)
+                .name("grid")
+                .description("test")
+                .lastUpdatedAt(LocalDateTime.of(2023, 1, 1, 0, 0))
+                .lastUpdatedBy("test")
+                .provenance("test")
+                .subjectKind(EntityKind.APPLICATION)
+                .derivedColumnDefinitions(asList(derivedCols))
+                .build();
+    }
+}
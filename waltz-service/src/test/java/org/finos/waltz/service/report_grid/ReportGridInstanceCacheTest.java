@@ -0,0 +1,110 @@
+package org.finos.waltz.service.report_grid;
+
+import org.finos.waltz.data.report_grid.ReportGridColumnFamily;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.IdSelectionOptions;
+import org.finos.waltz.model.Operation;
+import org.finos.waltz.model.changelog.ImmutableChangeLog;
+import org.finos.waltz.model.report_grid.ImmutableReportGridDefinition;
+import org.finos.waltz.model.report_grid.ImmutableReportGridInstance;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.report_grid.ReportGridInstance;
+import org.finos.waltz.service.report_grid.ReportGridInstanceCache.CachedInstance;
+import org.jooq.lambda.tuple.Tuple3;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.finos.waltz.model.IdSelectionOptions.mkOpts;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ReportGridInstanceCacheTest {
+
+    private final IdSelectionOptions opts = mkOpts(mkRef(EntityKind.ORG_UNIT, 1L));
+    private final Tuple3<Long, IdSelectionOptions, EntityKind> key = ReportGridInstanceCache.mkKey(1L, opts, EntityKind.APPLICATION);
+    private final ReportGridDefinition definition = mkDefinition("grid");
+    private final ReportGridInstance instance = ImmutableReportGridInstance.builder().build();
+
+
+    @Test
+    public void unchangedEntriesHaveNoStaleFamilies() {
+        ReportGridInstanceCache cache = new ReportGridInstanceCache(10, 30);
+        cache.put(key, mkCached(cache, definition));
+
+        CachedInstance cached = cache.get(key, definition);
+
+        assertNotNull(cached);
+        assertTrue(cache.findStaleFamilies(cached, cache.currentVersions()).isEmpty());
+    }
+
+
+    @Test
+    public void changeLogEntriesInvalidateAffectedFamiliesOnly() {
+        ReportGridInstanceCache cache = new ReportGridInstanceCache(10, 30);
+        cache.put(key, mkCached(cache, definition));
+
+        cache.invalidate(asSet(ImmutableChangeLog.builder()
+                .parentReference(mkRef(EntityKind.ORG_UNIT, 2L))
+                .childKind(EntityKind.COST)
+                .message("cost updated")
+                .userId("test")
+                .operation(Operation.UPDATE)
+                .build()));
+
+        CachedInstance cached = cache.get(key, definition);
+
+        assertEquals(
+                asSet(ReportGridColumnFamily.COSTS, ReportGridColumnFamily.ORG_UNIT_FIELDS),
+                cache.findStaleFamilies(cached, cache.currentVersions()));
+    }
+
+
+    @Test
+    public void entriesForChangedDefinitionsAreDiscarded() {
+        ReportGridInstanceCache cache = new ReportGridInstanceCache(10, 30);
+        cache.put(key, mkCached(cache, definition));
+
+        assertNull(cache.get(key, mkDefinition("renamed grid")));
+        assertNull(cache.get(key, definition), "entry should have been removed");
+    }
+
+
+    @Test
+    public void leastRecentlyUsedEntriesAreEvicted() {
+        ReportGridInstanceCache cache = new ReportGridInstanceCache(1, 30);
+        Tuple3<Long, IdSelectionOptions, EntityKind> otherKey = ReportGridInstanceCache.mkKey(2L, opts, EntityKind.APPLICATION);
+
+        cache.put(key, mkCached(cache, definition));
+        cache.put(otherKey, mkCached(cache, definition));
+
+        assertNull(cache.get(key, definition));
+        assertNotNull(cache.get(otherKey, definition));
+    }
+
+
+    private CachedInstance mkCached(ReportGridInstanceCache cache,
+                                    ReportGridDefinition defn) {
+        return new CachedInstance(
+                defn,
+                new EnumMap<>(ReportGridColumnFamily.class),
+                instance,
+                cache.currentVersions(),
+                System.currentTimeMillis());
+    }
+
+
+    private static ReportGridDefinition mkDefinition(String name) {
+        return ImmutableReportGridDefinition.builder()
+                .id(1L)
+                .name(name)
+                .description("test")
+                .lastUpdatedAt(LocalDateTime.of(2023, 1, 1, 0, 0))
+                .lastUpdatedBy("test")
+                .provenance("test")
+                .subjectKind(EntityKind.APPLICATION)
+                .build();
+    }
+}
@@ -0,0 +1,311 @@
+package org.finos.waltz.service.scheduled_job;
+
+import org.finos.waltz.model.scheduled_job.JobKey;
+import org.finos.waltz.model.scheduled_job.JobRunOutcome;
+import org.finos.waltz.model.scheduled_job.JobRunStatistics;
+import org.finos.waltz.service.scheduled_job.ScheduledJobExecutor.JobDefinition;
+import org.finos.waltz.service.scheduled_job.ScheduledJobExecutor.JobTask;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ScheduledJobExecutorTest {
+
+    private static final long TIMEOUT_MILLIS = 5_000;
+
+    private ExecutorService pool;
+
+
+    @BeforeEach
+    public void setUp() {
+        pool = Executors.newFixedThreadPool(4);
+    }
+
+
+    @AfterEach
+    public void tearDown() {
+        pool.shutdownNow();
+    }
+
+
+    @Test
+    public void jobsRunAfterTheirDependencies() throws InterruptedException {
+        List<JobKey> order = Collections.synchronizedList(new ArrayList<>());
+
+        ScheduledJobExecutor executor = new ScheduledJobExecutor(
+                asList(
+                        mkJob(JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS,
+                                asSet(JobKey.HIERARCHY_REBUILD_DATA_TYPE, JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL),
+                                recording(order, JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS)),
+                        mkJob(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
+                                asSet(JobKey.HIERARCHY_REBUILD_DATA_TYPE),
+                                recording(order, JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL)),
+                        mkJob(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                                Collections.emptySet(),
+                                recording(order, JobKey.HIERARCHY_REBUILD_DATA_TYPE))),
+                pool,
+                jk -> fail("unexpected timeout"));
+
+        Map<JobKey, JobRunOutcome> outcomes = executor.runCycle();
+
+        assertEquals(
+                asList(JobKey.HIERARCHY_REBUILD_DATA_TYPE,
+                        JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
+                        JobKey.AUTH_SOURCE_RECALC_FLOW_RATINGS),
+                order);
+        assertEquals(3, outcomes.size());
+        assertTrue(outcomes.values().stream().allMatch(o -> o == JobRunOutcome.COMPLETED));
+    }
+
+
+    @Test
+    public void independentJobsRunInParallel() throws InterruptedException {
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        JobTask awaitOther = () -> {
+            bothStarted.countDown();
+            return bothStarted.await(TIMEOUT_MILLIS, TimeUnit.MILLISECONDS);
+        };
+
+        ScheduledJobExecutor executor = new ScheduledJobExecutor(
+                asList(
+                        mkJob(JobKey.HIERARCHY_REBUILD_PERSON, Collections.emptySet(), awaitOther),
+                        mkJob(JobKey.HIERARCHY_REBUILD_ORG_UNIT, Collections.emptySet(), awaitOther)),
+                pool,
+                jk -> fail("unexpected timeout"));
+
+        Map<JobKey, JobRunOutcome> outcomes = executor.runCycle();
+
+        assertEquals(JobRunOutcome.COMPLETED, outcomes.get(JobKey.HIERARCHY_REBUILD_PERSON));
+        assertEquals(JobRunOutcome.COMPLETED, outcomes.get(JobKey.HIERARCHY_REBUILD_ORG_UNIT));
+    }
+
+
+    @Test
+    public void jobsInAnExclusionGroupRunOneAtATime() throws InterruptedException {
+        AtomicInteger active = new AtomicInteger();
+        AtomicInteger maxActive = new AtomicInteger();
+        JobTask track = () -> {
+            maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            active.decrementAndGet();
+            return true;
+        };
+
+        ScheduledJobExecutor executor = new ScheduledJobExecutor(
+                asList(
+                        new JobDefinition(JobKey.HIERARCHY_REBUILD_PERSON, Collections.emptySet(), "group", TIMEOUT_MILLIS, track),
+                        new JobDefinition(JobKey.HIERARCHY_REBUILD_ORG_UNIT, Collections.emptySet(), "group", TIMEOUT_MILLIS, track),
+                        new JobDefinition(JobKey.HIERARCHY_REBUILD_DATA_TYPE, Collections.emptySet(), "group", TIMEOUT_MILLIS, track)),
+                pool,
+                jk -> fail("unexpected timeout"));
+
+        Map<JobKey, JobRunOutcome> outcomes = executor.runCycle();
+
+        assertEquals(3, outcomes.size());
+        assertEquals(1, maxActive.get(), "jobs sharing an exclusion group should not overlap");
+    }
+
+
+    @Test
+    public void jobsExcludedByATimedOutJobAreSkipped() throws InterruptedException {
+        List<JobKey> order = Collections.synchronizedList(new ArrayList<>());
+
+        ScheduledJobExecutor executor = new ScheduledJobExecutor(
+                asList(
+                        new JobDefinition(
+                                JobKey.HIERARCHY_REBUILD_PERSON,
+                                Collections.emptySet(),
+                                "group",
+                                50,
+                                () -> {
+                                    Thread.sleep(TIMEOUT_MILLIS);
+                                    return true;
+                                }),
+                        new JobDefinition(
+                                JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                                Collections.emptySet(),
+                                "group",
+                                TIMEOUT_MILLIS,
+                                recording(order, JobKey.HIERARCHY_REBUILD_ORG_UNIT))),
+                pool,
+                jk -> {});
+
+        Map<JobKey, JobRunOutcome> outcomes = executor.runCycle();
+
+        assertEquals(JobRunOutcome.TIMED_OUT, outcomes.get(JobKey.HIERARCHY_REBUILD_PERSON));
+        assertTrue(order.isEmpty(), "the timed out job may still be running");
+    }
+
+
+    @Test
+    public void jobsWhichDidNotNeedToRunAreNotRecorded() throws InterruptedException {
+        ScheduledJobExecutor executor = new ScheduledJobExecutor(
+                asList(mkJob(JobKey.HIERARCHY_REBUILD_PERSON, Collections.emptySet(), () -> false)),
+                pool,
+                jk -> fail("unexpected timeout"));
+
+        assertTrue(executor.runCycle().isEmpty());
+        assertTrue(executor.findStatistics().isEmpty());
+    }
+
+
+    @Test
+    public void failingJobsAreRecordedAsErrored() throws InterruptedException {
+        ScheduledJobExecutor executor = new ScheduledJobExecutor(
+                asList(
+                        mkJob(JobKey.HIERARCHY_REBUILD_PERSON,
+                                Collections.emptySet(),
+                                () -> { throw new IllegalStateException("boom"); }),
+                        mkJob(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS,
+                                asSet(JobKey.HIERARCHY_REBUILD_PERSON),
+                                () -> true)),
+                pool,
+                jk -> fail("unexpected timeout"));
+
+        Map<JobKey, JobRunOutcome> outcomes = executor.runCycle();
+
+        assertEquals(JobRunOutcome.ERRORED, outcomes.get(JobKey.HIERARCHY_REBUILD_PERSON));
+        assertEquals(JobRunOutcome.COMPLETED, outcomes.get(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS), "dependents of failed jobs still run");
+    }
+
+
+    @Test
+    public void jobsExceedingTheirTimeoutAreCancelledAndDependentsSkipped() throws InterruptedException {
+        List<JobKey> timedOut = new ArrayList<>();
+        List<JobKey> order = Collections.synchronizedList(new ArrayList<>());
+
+        ScheduledJobExecutor executor = new ScheduledJobExecutor(
+                asList(
+                        new JobDefinition(
+                                JobKey.HIERARCHY_REBUILD_PERSON,
+                                Collections.emptySet(),
+                                50,
+                                () -> {
+                                    Thread.sleep(TIMEOUT_MILLIS);
+                                    return true;
+                                }),
+                        mkJob(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS,
+                                asSet(JobKey.HIERARCHY_REBUILD_PERSON),
+                                recording(order, JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS)),
+                        mkJob(JobKey.HIERARCHY_REBUILD_ORG_UNIT,
+                                Collections.emptySet(),
+                                recording(order, JobKey.HIERARCHY_REBUILD_ORG_UNIT))),
+                pool,
+                timedOut::add);
+
+        long start = System.currentTimeMillis();
+        Map<JobKey, JobRunOutcome> outcomes = executor.runCycle();
+
+        assertTrue(System.currentTimeMillis() - start < TIMEOUT_MILLIS, "should not wait for the timed out job");
+        assertEquals(asList(JobKey.HIERARCHY_REBUILD_PERSON), timedOut);
+        assertEquals(JobRunOutcome.TIMED_OUT, outcomes.get(JobKey.HIERARCHY_REBUILD_PERSON));
+        assertEquals(asList(JobKey.HIERARCHY_REBUILD_ORG_UNIT), order);
+        assertFalse(outcomes.containsKey(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS));
+
+        JobRunStatistics stats = executor
+                .findStatistics()
+                .stream()
+                .filter(s -> s.jobKey() == JobKey.HIERARCHY_REBUILD_PERSON)
+                .findFirst()
+                .orElseThrow(AssertionError::new);
+        assertEquals(1, stats.timeouts());
+        assertEquals(JobRunOutcome.TIMED_OUT, stats.lastOutcome().orElse(null));
+    }
+
+
+    @Test
+    public void statisticsKeepRecentDurations() throws InterruptedException {
+        ScheduledJobExecutor executor = new ScheduledJobExecutor(
+                asList(mkJob(JobKey.HIERARCHY_REBUILD_PERSON, Collections.emptySet(), () -> true)),
+                pool,
+                jk -> fail("unexpected timeout"));
+
+        for (int i = 0; i < ScheduledJobExecutor.HISTORY_SIZE + 5; i++) {
+            executor.runCycle();
+        }
+
+        JobRunStatistics stats = executor.findStatistics().get(0);
+        assertEquals(ScheduledJobExecutor.HISTORY_SIZE + 5, stats.runs());
+        assertEquals(ScheduledJobExecutor.HISTORY_SIZE, stats.recentDurationsMillis().size());
+        assertEquals(0, stats.errors());
+    }
+
+
+    @Test
+    public void dependencyCyclesAreRejected() {
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new ScheduledJobExecutor(
+                        asList(
+                                mkJob(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL,
+                                        asSet(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION),
+                                        () -> true),
+                                mkJob(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION,
+                                        asSet(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL),
+                                        () -> true)),
+                        pool,
+                        jk -> {}));
+    }
+
+
+    @Test
+    public void conflictsIncludeDependenciesAndDependents() {
+        ScheduledJobExecutor executor = new ScheduledJobExecutor(
+                asList(
+                        mkJob(JobKey.HIERARCHY_REBUILD_DATA_TYPE, Collections.emptySet(), () -> true),
+                        mkJob(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL, asSet(JobKey.HIERARCHY_REBUILD_DATA_TYPE), () -> true),
+                        mkJob(JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION, asSet(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL), () -> true)),
+                pool,
+                jk -> {});
+
+        assertEquals(
+                asSet(JobKey.HIERARCHY_REBUILD_DATA_TYPE, JobKey.DATA_TYPE_USAGE_RECALC_APPLICATION),
+                executor.findConflicts(JobKey.DATA_TYPE_RIPPLE_PHYSICAL_TO_LOGICAL));
+    }
+
+
+    @Test
+    public void conflictsIncludeJobsSharingAnExclusionGroup() {
+        ScheduledJobExecutor executor = new ScheduledJobExecutor(
+                asList(
+                        new JobDefinition(JobKey.HIERARCHY_REBUILD_PERSON, Collections.emptySet(), "group", TIMEOUT_MILLIS, () -> true),
+                        new JobDefinition(JobKey.HIERARCHY_REBUILD_ORG_UNIT, Collections.emptySet(), "group", TIMEOUT_MILLIS, () -> true),
+                        mkJob(JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS, asSet(JobKey.HIERARCHY_REBUILD_PERSON), () -> true)),
+                pool,
+                jk -> {});
+
+        assertEquals(
+                asSet(JobKey.HIERARCHY_REBUILD_ORG_UNIT, JobKey.SURVEY_INSTANCE_REASSIGN_OWNERS),
+                executor.findConflicts(JobKey.HIERARCHY_REBUILD_PERSON));
+    }
+
+
+    // -- helpers
+
+    private static JobDefinition mkJob(JobKey jobKey, Set<JobKey> dependencies, JobTask task) {
+        return new JobDefinition(jobKey, dependencies, TIMEOUT_MILLIS, task);
+    }
+
+
+    private static JobTask recording(List<JobKey> order, JobKey jobKey) {
+        return () -> {
+            order.add(jobKey);
+            return true;
+        };
+    }
+}
@@ -1,5 +1,6 @@
 package org.finos.waltz.test_common.helpers;
 
+import org.finos.waltz.data.permission.PermissionDecisionCache;
 import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.EntityReference;
 import org.finos.waltz.model.Operation;
@@ -21,6 +22,9 @@ public class PermissionGroupHelper {
     @Autowired
     private DSLContext dsl;
 
+    @Autowired
+    private PermissionDecisionCache permissionDecisionCache;
+
     @Autowired
     public PermissionGroupHelper() {
     }
@@ -57,6 +61,7 @@ public class PermissionGroupHelper {
         pg.setName(pgName);
         pg.setProvenance(mkName(pgNameStem, "prov"));
         pg.insert();
+        permissionDecisionCache.clear();
         return pg;
     }
 
@@ -78,6 +83,7 @@ public class PermissionGroupHelper {
             pgi.setQualifierKind(qualifierRef.kind().name());
         }
         pgi.insert();
+        permissionDecisionCache.clear();
     }
 
 
@@ -87,6 +93,7 @@ public class PermissionGroupHelper {
         pge.setEntityKind(EntityKind.APPLICATION.name());
         pge.setEntityId(appRef.id());
         pge.insert();
+        permissionDecisionCache.clear();
     }
 
 
@@ -102,6 +109,7 @@ public class PermissionGroupHelper {
         ige.setInvolvementGroupId(ig.getId());
         ige.setInvolvementKindId(involvementKindId);
         ige.insert();
+        permissionDecisionCache.clear();
         return ig;
     }
 
@@ -280,6 +280,8 @@ public class Main {
                 }
             }));
 
+            EndpointUtilities.enableStreamCompression(true);
+
             LOG.info("Enabled GZIP (size: " + minimumLength + ")");
 
         } else {
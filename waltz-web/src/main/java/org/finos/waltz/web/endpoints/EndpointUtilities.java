@@ -18,11 +18,23 @@
 
 package org.finos.waltz.web.endpoints;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.finos.waltz.web.DatumRoute;
 import org.finos.waltz.web.ListRoute;
+import org.finos.waltz.web.StreamRoute;
 import org.finos.waltz.web.WebUtilities;
+import org.finos.waltz.web.endpoints.extracts.CountingOutputStream;
 import spark.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+import static org.finos.waltz.common.JacksonUtilities.getJsonMapper;
 import static org.finos.waltz.web.WebUtilities.TYPE_JSON;
 
 
@@ -30,6 +42,10 @@ public class EndpointUtilities {
 
     private static final ResponseTransformer transformer = WebUtilities.transformer;
 
+    private static final int STREAM_BUFFER_SIZE = 8192;
+
+    private static volatile boolean gzipStreams = false;
+
 
     /**
      * Helper method to register a route which provides a list of items.
@@ -39,7 +55,8 @@ public class EndpointUtilities {
      * @param <T>
      */
     public static <T> void getForList(String path, ListRoute<T> handler) {
-        Spark.get(path, wrapListHandler(handler), transformer);
+        RouteMetrics.Recorder recorder = RouteMetrics.recorderFor("GET", path);
+        Spark.get(path, wrapListHandler(handler, recorder), recorder.wrap(transformer));
     }
 
 
@@ -52,31 +69,64 @@ public class EndpointUtilities {
      * @param <T>
      */
     public static <T> void getForDatum(String path, DatumRoute<T> handler) {
-        Spark.get(path, wrapDatumHandler(handler), transformer);
+        RouteMetrics.Recorder recorder = RouteMetrics.recorderFor("GET", path);
+        Spark.get(path, wrapDatumHandler(handler, recorder), recorder.wrap(transformer));
     }
 
     public static <T> void postForDatum(String path, DatumRoute<T> handler) {
-        Spark.post(path, wrapDatumHandler(handler), transformer);
+        RouteMetrics.Recorder recorder = RouteMetrics.recorderFor("POST", path);
+        Spark.post(path, wrapDatumHandler(handler, recorder), recorder.wrap(transformer));
     }
 
     public static <T> void postForList(String path, ListRoute<T> handler) {
-        Spark.post(path, wrapListHandler(handler), transformer);
+        RouteMetrics.Recorder recorder = RouteMetrics.recorderFor("POST", path);
+        Spark.post(path, wrapListHandler(handler, recorder), recorder.wrap(transformer));
     }
 
     public static <T> void deleteForList(String path, ListRoute<T> handler) {
-        Spark.delete(path, wrapListHandler(handler), transformer);
+        RouteMetrics.Recorder recorder = RouteMetrics.recorderFor("DELETE", path);
+        Spark.delete(path, wrapListHandler(handler, recorder), recorder.wrap(transformer));
     }
 
     public static <T> void deleteForDatum(String path, DatumRoute<T> handler) {
-        Spark.delete(path, wrapDatumHandler(handler), transformer);
+        RouteMetrics.Recorder recorder = RouteMetrics.recorderFor("DELETE", path);
+        Spark.delete(path, wrapDatumHandler(handler, recorder), recorder.wrap(transformer));
     }
 
     public static <T> void putForDatum(String path, DatumRoute<T> handler) {
-        Spark.put(path, wrapDatumHandler(handler), transformer);
+        RouteMetrics.Recorder recorder = RouteMetrics.recorderFor("PUT", path);
+        Spark.put(path, wrapDatumHandler(handler, recorder), recorder.wrap(transformer));
     }
 
     public static <T> void putForList(String path, ListRoute<T> handler) {
-        Spark.put(path, wrapListHandler(handler), transformer);
+        RouteMetrics.Recorder recorder = RouteMetrics.recorderFor("PUT", path);
+        Spark.put(path, wrapListHandler(handler, recorder), recorder.wrap(transformer));
+    }
+
+    /**
+     * Helper method to register a route which provides a (potentially large) list of
+     * items as a stream.  Rather than rendering the whole list to a string the items
+     * are written to the response, as a json array, one by one.
+     * @param path
+     * @param handler
+     * @param <T>
+     */
+    public static <T> void getForStream(String path, StreamRoute<T> handler) {
+        Spark.get(path, wrapStreamHandler(handler, RouteMetrics.recorderFor("GET", path)));
+    }
+
+    public static <T> void postForStream(String path, StreamRoute<T> handler) {
+        Spark.post(path, wrapStreamHandler(handler, RouteMetrics.recorderFor("POST", path)));
+    }
+
+
+    /**
+     * Streamed responses are written directly to the servlet output stream, bypassing the
+     * filter based gzip support, so compression has to be enabled for them separately.
+     * If enabled, streams are compressed whenever the client accepts gzip.
+     */
+    public static void enableStreamCompression(boolean enabled) {
+        gzipStreams = enabled;
     }
 
     public static <T extends Exception> void addExceptionHandler(Class<T> exceptionClass, ExceptionHandler<T> handler) {
@@ -94,18 +144,91 @@ public class EndpointUtilities {
 
     // -- helpers ---
 
-    private static <T> Route wrapListHandler(ListRoute<T> handler) {
+    private static <T> Route wrapListHandler(ListRoute<T> handler, RouteMetrics.Recorder recorder) {
         return (request, response) -> {
             response.type(TYPE_JSON);
-            return handler.apply(request, response);
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                Collection<T> result = handler.apply(request, response);
+                recorder.recordListSize(result);
+                failed = false;
+                return result;
+            } finally {
+                recorder.recordHandler(System.nanoTime() - start, failed);
+            }
         };
     }
 
-    private static <T> Route wrapDatumHandler(DatumRoute<T> handler) {
+    private static <T> Route wrapDatumHandler(DatumRoute<T> handler, RouteMetrics.Recorder recorder) {
         return (request, response) -> {
             response.type(TYPE_JSON);
-            return handler.apply(request, response);
+            long start = System.nanoTime();
+            boolean failed = true;
+            try {
+                T result = handler.apply(request, response);
+                failed = false;
+                return result;
+            } finally {
+                recorder.recordHandler(System.nanoTime() - start, failed);
+            }
         };
     }
 
+    private static <T> Route wrapStreamHandler(StreamRoute<T> handler, RouteMetrics.Recorder recorder) {
+        return (request, response) -> {
+            response.type(TYPE_JSON);
+            long start = System.nanoTime();
+            boolean failed = true;
+            Stream<T> stream;
+            try {
+                stream = handler.apply(request, response);
+                failed = false;
+            } finally {
+                recorder.recordHandler(System.nanoTime() - start, failed);
+            }
+
+            long renderStart = System.nanoTime();
+            try (Stream<T> items = stream) {
+                HttpServletResponse httpResponse = response.raw();
+                // count ahead of any compression, so sizes are comparable with rendered responses
+                CountingOutputStream counter = new CountingOutputStream(openStream(request, httpResponse, httpResponse.getOutputStream()));
+                long count = writeJsonArray(items.iterator(), counter);
+                recorder.recordStreamed(System.nanoTime() - renderStart, counter.getCount(), count);
+            }
+
+            // the response has been committed, so nothing further will be written
+            return "";
+        };
+    }
+
+    private static OutputStream openStream(Request request,
+                                           HttpServletResponse httpResponse,
+                                           OutputStream out) throws IOException {
+        String acceptEncoding = request.headers("Accept-Encoding");
+        if (gzipStreams && acceptEncoding != null && acceptEncoding.contains("gzip")) {
+            httpResponse.setHeader("Content-Encoding", "gzip");
+            return new GZIPOutputStream(out, STREAM_BUFFER_SIZE);
+        } else {
+            return out;
+        }
+    }
+
+    /**
+     * Writes the items as a json array, closing the output stream once done.
+     * @return number of items written
+     */
+    private static long writeJsonArray(Iterator<?> items, OutputStream out) throws IOException {
+        long count = 0;
+        try (JsonGenerator generator = getJsonMapper().getFactory().createGenerator(out)) {
+            generator.writeStartArray();
+            while (items.hasNext()) {
+                generator.writeObject(items.next());
+                count++;
+            }
+            generator.writeEndArray();
+        }
+        return count;
+    }
+
 }
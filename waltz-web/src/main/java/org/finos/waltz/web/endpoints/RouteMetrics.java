@@ -0,0 +1,288 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints;
+
+import org.finos.waltz.common.LatencyHistogram;
+import org.finos.waltz.model.route_metrics.ImmutableRouteStatistics;
+import org.finos.waltz.model.route_metrics.RouteStatistics;
+import org.finos.waltz.model.route_metrics.RouteStatisticsSortField;
+import spark.ResponseTransformer;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
+
+import static java.util.stream.Collectors.toList;
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.Checks.checkTrue;
+
+/**
+ * Per route request statistics for routes registered via {@link EndpointUtilities}.
+ *
+ * Each route is given a {@link Recorder} when it is registered, the route's handler
+ * records the time spent producing the result (and the list size for list routes) and
+ * the route's transformer records the time spent rendering json and the size of the
+ * rendered response.  Recording is lock free, statistics are aggregated per http method
+ * and path template.  The counters (including the latency histograms) of a route are only
+ * allocated once it receives its first request, as most registered routes are rarely called.
+ */
+public class RouteMetrics {
+
+    private static final Map<String, Recorder> RECORDERS = new ConcurrentHashMap<>();
+
+
+    /**
+     * @return the recorder for the given route, created if this is the first time the route
+     * has been seen
+     */
+    public static Recorder recorderFor(String method, String path) {
+        checkNotNull(method, "method cannot be null");
+        checkNotNull(path, "path cannot be null");
+        return RECORDERS.computeIfAbsent(
+                method + " " + path,
+                k -> new Recorder(method, path));
+    }
+
+
+    public static List<RouteStatistics> findStatistics(RouteStatisticsSortField sortField,
+                                                       int limit) {
+        checkNotNull(sortField, "sortField cannot be null");
+        checkTrue(limit >= 0, "limit cannot be negative");
+        return RECORDERS
+                .values()
+                .stream()
+                .map(Recorder::toStatistics)
+                .filter(Optional::isPresent)
+                .map(Optional::get)
+                .filter(s -> s.requests() > 0)
+                .sorted(comparatorFor(sortField))
+                .limit(limit)
+                .collect(toList());
+    }
+
+
+    public static void reset() {
+        RECORDERS.values().forEach(Recorder::reset);
+    }
+
+
+    /**
+     * @return the number of bytes the string would occupy when utf-8 encoded, without encoding it
+     */
+    static long utf8Length(String str) {
+        long length = 0;
+        for (int i = 0, n = str.length(); i < n; i++) {
+            char c = str.charAt(i);
+            if (c < 0x80) {
+                length += 1;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < n && Character.isLowSurrogate(str.charAt(i + 1))) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+
+    // --- helpers
+
+    private static Comparator<RouteStatistics> comparatorFor(RouteStatisticsSortField sortField) {
+        ToLongFunction<RouteStatistics> key;
+        switch (sortField) {
+            case HANDLER_TIME:
+                key = RouteStatistics::handlerTotalMicros;
+                break;
+            case RENDER_TIME:
+                key = RouteStatistics::renderTotalMicros;
+                break;
+            case P99:
+                key = RouteStatistics::handlerP99Micros;
+                break;
+            case REQUESTS:
+                key = RouteStatistics::requests;
+                break;
+            case ERRORS:
+                key = RouteStatistics::errors;
+                break;
+            case BYTES:
+                key = RouteStatistics::totalBytes;
+                break;
+            case MAX_BYTES:
+                key = RouteStatistics::maxBytes;
+                break;
+            case TOTAL_TIME:
+            default:
+                key = s -> s.handlerTotalMicros() + s.renderTotalMicros();
+                break;
+        }
+        return Comparator
+                .comparingLong(key)
+                .reversed()
+                .thenComparing(RouteStatistics::path);
+    }
+
+
+    public static class Recorder {
+
+        private final String method;
+        private final String path;
+        /** null until the route is first used, or after a reset */
+        private final AtomicReference<Counters> counters = new AtomicReference<>();
+
+
+        private Recorder(String method, String path) {
+            this.method = method;
+            this.path = path;
+        }
+
+
+        public void recordHandler(long elapsedNanos, boolean failed) {
+            Counters current = counters();
+            current.handler.record(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+            if (failed) {
+                current.errors.increment();
+            }
+        }
+
+
+        public void recordListSize(Collection<?> list) {
+            if (list == null) {
+                return;
+            }
+            Counters current = counters();
+            current.listItems.add(list.size());
+            current.maxListSize.accumulate(list.size());
+        }
+
+
+        public void recordRender(long elapsedNanos, String rendered) {
+            Counters current = counters();
+            current.render.record(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+            long bytes = rendered == null ? 0 : utf8Length(rendered);
+            current.bytes.add(bytes);
+            current.maxBytes.accumulate(bytes);
+        }
+
+
+        /**
+         * Records a response written as a stream.  As with {@link #recordRender(long, String)}
+         * the bytes are those of the utf-8 encoded json, before any compression.
+         */
+        public void recordStreamed(long elapsedNanos, long bytes, long itemCount) {
+            Counters current = counters();
+            current.render.record(TimeUnit.NANOSECONDS.toMicros(elapsedNanos));
+            current.bytes.add(bytes);
+            current.maxBytes.accumulate(bytes);
+            current.listItems.add(itemCount);
+            current.maxListSize.accumulate(itemCount);
+        }
+
+
+        /**
+         * @return a transformer which renders via the given one and records the time taken
+         * and size of the output against this route
+         */
+        public ResponseTransformer wrap(ResponseTransformer transformer) {
+            return model -> {
+                long start = System.nanoTime();
+                String rendered = transformer.render(model);
+                recordRender(System.nanoTime() - start, rendered);
+                return rendered;
+            };
+        }
+
+
+        boolean hasCounters() {
+            return counters.get() != null;
+        }
+
+
+        private Counters counters() {
+            Counters current = counters.get();
+            if (current == null) {
+                counters.compareAndSet(null, new Counters());
+                current = counters.get();
+            }
+            return current;
+        }
+
+
+        private void reset() {
+            counters.set(null);
+        }
+
+
+        /**
+         * @return statistics for the route, empty if it has not been used
+         */
+        private Optional<RouteStatistics> toStatistics() {
+            Counters current = counters.get();
+            if (current == null) {
+                return Optional.empty();
+            }
+            long requests = current.handler.count();
+            long rendered = current.render.count();
+            long totalBytes = current.bytes.sum();
+            return Optional.of(ImmutableRouteStatistics
+                    .builder()
+                    .method(method)
+                    .path(path)
+                    .requests(requests)
+                    .errors(current.errors.sum())
+                    .handlerTotalMicros(current.handler.total())
+                    .handlerP50Micros(current.handler.percentile(50))
+                    .handlerP95Micros(current.handler.percentile(95))
+                    .handlerP99Micros(current.handler.percentile(99))
+                    .handlerMaxMicros(current.handler.max())
+                    .renderTotalMicros(current.render.total())
+                    .renderP50Micros(current.render.percentile(50))
+                    .renderP95Micros(current.render.percentile(95))
+                    .renderP99Micros(current.render.percentile(99))
+                    .totalBytes(totalBytes)
+                    .meanBytes(rendered == 0 ? 0 : totalBytes / rendered)
+                    .maxBytes(current.maxBytes.get())
+                    .listItems(current.listItems.sum())
+                    .maxListSize(current.maxListSize.get())
+                    .build());
+        }
+    }
+
+
+    private static class Counters {
+        private final LatencyHistogram handler = new LatencyHistogram();
+        private final LatencyHistogram render = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAccumulator maxBytes = new LongAccumulator(Math::max, 0);
+        private final LongAdder listItems = new LongAdder();
+        private final LongAccumulator maxListSize = new LongAccumulator(Math::max, 0);
+    }
+}
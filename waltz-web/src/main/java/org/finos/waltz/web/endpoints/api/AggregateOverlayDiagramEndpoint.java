@@ -30,6 +30,7 @@ import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ApplicationChange
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AssessmentRatingsWidgetData;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.AttestationWidgetData;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.BackingEntityWidgetData;
+import org.finos.waltz.model.aggregate_overlay_diagram.overlay.BatchWidgetData;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.ComplexityWidgetData;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.CostWidgetData;
 import org.finos.waltz.model.aggregate_overlay_diagram.overlay.CountWidgetData;
@@ -53,6 +54,7 @@ import org.finos.waltz.web.json.OverlayDiagramAppCostWidgetInfo;
 import org.finos.waltz.web.json.OverlayDiagramAppCountWidgetInfo;
 import org.finos.waltz.web.json.OverlayDiagramAssessmentWidgetInfo;
 import org.finos.waltz.web.json.OverlayDiagramAttestationWidgetInfo;
+import org.finos.waltz.web.json.OverlayDiagramBatchWidgetInfo;
 import org.finos.waltz.web.json.OverlayDiagramTargetAppCostWidgetInfo;
 import org.finos.waltz.web.json.OverlayDiagramWidgetInfo;
 import org.slf4j.Logger;
@@ -107,6 +109,7 @@ public class AggregateOverlayDiagramEndpoint implements Endpoint {
         String getBackingEntityWidgetDataPath = mkPath(BASE_URL, "diagram-id", ":id", "backing-entity-widget");
         String getComplexityWidgetDataPath = mkPath(BASE_URL, "diagram-id", ":id", "complexity-widget");
         String getApplicationChangeWidgetDataPath = mkPath(BASE_URL, "diagram-id", ":id", "app-change-widget");
+        String getBatchWidgetDataPath = mkPath(BASE_URL, "diagram-id", ":id", "widgets");
         String findPresetsForDiagramPath = mkPath(BASE_URL, "diagram-id", ":id", "presets");
         String createPresetPath = mkPath(BASE_URL, "create-preset");
         String savePath = mkPath(BASE_URL, "save");
@@ -228,6 +231,18 @@ public class AggregateOverlayDiagramEndpoint implements Endpoint {
         };
 
 
+        DatumRoute<BatchWidgetData> getBatchWidgetDataRoute = (request, response) -> {
+            OverlayDiagramBatchWidgetInfo widgetInfo = readBody(request, OverlayDiagramBatchWidgetInfo.class, null);
+
+            return aggregateOverlayDiagramService
+                    .getBatchWidgetData(
+                            getId(request),
+                            widgetInfo.idSelectionOptions(),
+                            widgetInfo.assessmentBasedSelectionFilters(),
+                            widgetInfo.overlayParameters());
+        };
+
+
         DatumRoute<BackingEntityWidgetData> getBackingEntityWidgetDataRoute = (request, response) -> {
             long diagramId = getId(request);
             return aggregateOverlayDiagramService.getBackingEntityWidgetData(diagramId);
@@ -272,6 +287,7 @@ public class AggregateOverlayDiagramEndpoint implements Endpoint {
         postForDatum(getAggregatedEntitiesWidgetDataPath, getAggregatedEntitiesWidgetDataRoute);
         postForDatum(getComplexityWidgetDataPath, getComplexityWidgetDataRoute);
         postForDatum(getApplicationChangeWidgetDataPath, getApplicationChangeWidgetDataRoute);
+        postForDatum(getBatchWidgetDataPath, getBatchWidgetDataRoute);
         postForDatum(createPresetPath, createPresetRoute);
         postForDatum(savePath, saveRoute);
         postForDatum(updateStatusPath, updateStatusRoute);
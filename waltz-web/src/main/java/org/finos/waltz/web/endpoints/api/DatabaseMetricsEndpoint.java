@@ -0,0 +1,82 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.api;
+
+import org.finos.waltz.model.database_metrics.DatabaseMetrics;
+import org.finos.waltz.model.user.SystemRole;
+import org.finos.waltz.service.database_metrics.DatabaseMetricsService;
+import org.finos.waltz.service.user.UserRoleService;
+import org.finos.waltz.web.endpoints.Endpoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import spark.Request;
+import spark.Response;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.web.WebUtilities.*;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.deleteForDatum;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.getForDatum;
+
+
+/**
+ * Exposes query latency metrics (percentiles and the most expensive queries) to administrators.
+ */
+@Service
+public class DatabaseMetricsEndpoint implements Endpoint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(DatabaseMetricsEndpoint.class);
+    private static final String BASE_URL = mkPath("api", "database-metrics");
+    private static final int DEFAULT_LIMIT = 20;
+
+    private final DatabaseMetricsService databaseMetricsService;
+    private final UserRoleService userRoleService;
+
+
+    @Autowired
+    public DatabaseMetricsEndpoint(DatabaseMetricsService databaseMetricsService,
+                                   UserRoleService userRoleService) {
+        checkNotNull(databaseMetricsService, "databaseMetricsService cannot be null");
+        checkNotNull(userRoleService, "userRoleService cannot be null");
+        this.databaseMetricsService = databaseMetricsService;
+        this.userRoleService = userRoleService;
+    }
+
+
+    @Override
+    public void register() {
+        getForDatum(BASE_URL, this::getMetricsRoute);
+        deleteForDatum(BASE_URL, this::resetRoute);
+    }
+
+
+    private DatabaseMetrics getMetricsRoute(Request request, Response response) {
+        requireRole(userRoleService, request, SystemRole.ADMIN);
+        return databaseMetricsService.getMetrics(getLimit(request).orElse(DEFAULT_LIMIT));
+    }
+
+
+    private boolean resetRoute(Request request, Response response) {
+        requireRole(userRoleService, request, SystemRole.ADMIN);
+        LOG.info("Resetting database metrics (requested by: {})", getUsername(request));
+        databaseMetricsService.reset();
+        return true;
+    }
+}
@@ -76,6 +76,8 @@ public class FlowClassificationRuleEndpoint implements Endpoint {
         // -- PATHS
 
         String recalculateFlowRatingsPath = WebUtilities.mkPath(BASE_URL, "recalculate-flow-ratings");
+        String recalculateFlowRatingsForDataTypePath = WebUtilities.mkPath(recalculateFlowRatingsPath, "data-type", ":id");
+        String recalculateFlowRatingsForApplicationsPath = WebUtilities.mkPath(recalculateFlowRatingsPath, "applications");
         String findDiscouragedSourcesPath = WebUtilities.mkPath(BASE_URL, "discouraged");
         String findFlowClassificationRulesBySelectorPath = WebUtilities.mkPath(BASE_URL, "selector");
         String calculateConsumersForDataTypeIdSelectorPath = WebUtilities.mkPath(BASE_URL, "data-type", "consumers");
@@ -115,6 +117,8 @@ public class FlowClassificationRuleEndpoint implements Endpoint {
                 -> flowClassificationRuleService.getById(WebUtilities.getId(request));
 
         EndpointUtilities.getForDatum(recalculateFlowRatingsPath, this::recalculateFlowRatingsRoute);
+        EndpointUtilities.getForDatum(recalculateFlowRatingsForDataTypePath, this::recalculateFlowRatingsForDataTypeRoute);
+        EndpointUtilities.postForDatum(recalculateFlowRatingsForApplicationsPath, this::recalculateFlowRatingsForApplicationsRoute);
         EndpointUtilities.getForDatum(cleanupOrphansPath, this::cleanupOrphansRoute);
         EndpointUtilities.getForDatum(getByIdPath, getByIdRoute);
         EndpointUtilities.postForList(calculateConsumersForDataTypeIdSelectorPath, this::calculateConsumersForDataTypeIdSelectorRoute);
@@ -175,6 +179,28 @@ public class FlowClassificationRuleEndpoint implements Endpoint {
     }
 
 
+    private int recalculateFlowRatingsForDataTypeRoute(Request request, Response response) {
+        WebUtilities.requireRole(userRoleService, request, SystemRole.ADMIN);
+
+        long dataTypeId = WebUtilities.getId(request);
+        String username = WebUtilities.getUsername(request);
+        LOG.info("Recalculating flow ratings for data type: {} (requested by: {})", dataTypeId, username);
+
+        return flowClassificationRuleService.recalculateFlowRatingsForDataType(dataTypeId);
+    }
+
+
+    private int recalculateFlowRatingsForApplicationsRoute(Request request, Response response) throws IOException {
+        WebUtilities.requireRole(userRoleService, request, SystemRole.ADMIN);
+
+        List<Long> appIds = WebUtilities.readIdsFromBody(request);
+        String username = WebUtilities.getUsername(request);
+        LOG.info("Recalculating flow ratings for {} applications (requested by: {})", appIds.size(), username);
+
+        return flowClassificationRuleService.recalculateFlowRatingsForApplications(appIds);
+    }
+
+
     private List<Entry<EntityReference, Collection<EntityReference>>> calculateConsumersForDataTypeIdSelectorRoute(
             Request request,
             Response response) throws IOException {
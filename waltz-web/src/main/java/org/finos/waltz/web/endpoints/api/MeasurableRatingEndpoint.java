@@ -34,6 +34,7 @@ import org.finos.waltz.service.permission.permission_checker.MeasurableRatingPer
 import org.finos.waltz.service.user.UserRoleService;
 import org.finos.waltz.web.DatumRoute;
 import org.finos.waltz.web.ListRoute;
+import org.finos.waltz.web.StreamRoute;
 import org.finos.waltz.web.endpoints.Endpoint;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
@@ -99,8 +100,8 @@ public class MeasurableRatingEndpoint implements Endpoint {
         ListRoute<MeasurableRating> findByMeasurableSelectorRoute = (request, response)
                 -> measurableRatingService.findByMeasurableIdSelector(readIdSelectionOptionsFromBody(request));
 
-        ListRoute<MeasurableRating> findByAppSelectorRoute = (request, response)
-                -> measurableRatingService.findByAppIdSelector(readIdSelectionOptionsFromBody(request));
+        StreamRoute<MeasurableRating> findByAppSelectorRoute = (request, response)
+                -> measurableRatingService.streamByAppIdSelector(readIdSelectionOptionsFromBody(request));
 
         ListRoute<MeasurableRating> findByCategoryRoute = (request, response)
                 -> measurableRatingService.findByCategory(getId(request));
@@ -118,7 +119,7 @@ public class MeasurableRatingEndpoint implements Endpoint {
 
         getForList(findForEntityPath, findForEntityRoute);
         postForList(findByMeasurableSelectorPath, findByMeasurableSelectorRoute);
-        postForList(findByAppSelectorPath, findByAppSelectorRoute);
+        postForStream(findByAppSelectorPath, findByAppSelectorRoute);
         getForList(findByCategoryPath, findByCategoryRoute);
         deleteForList(modifyMeasurableForEntityPath, this::removeRoute);
         deleteForList(modifyCategoryForEntityPath, this::removeCategoryRoute);
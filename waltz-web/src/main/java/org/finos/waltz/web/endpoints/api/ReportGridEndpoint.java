@@ -59,6 +59,7 @@ public class ReportGridEndpoint implements Endpoint {
         String clonePath = mkPath(BASE_URL, "id", ":id", "clone");
         String findForOwnerPath = mkPath(BASE_URL, "definition", "owner");
         String getViewByIdPath = mkPath(BASE_URL, "view", "id", ":id");
+        String getCompactViewByIdPath = mkPath(BASE_URL, "view", "id", ":id", "compact");
         String getDefinitionByIdPath = mkPath(BASE_URL, "definition", "id", ":id");
         String updateColumnDefsPath = mkPath(BASE_URL, "id", ":id", "column-definitions", "update");
         String findAdditionalColumnOptionsForKindPath = mkPath(BASE_URL, "additional-column-options", "kind", ":kind");
@@ -69,6 +70,7 @@ public class ReportGridEndpoint implements Endpoint {
         getForList(findForOwnerPath, this::findDefinitionsForOwnerRoute);
         getForList(findAdditionalColumnOptionsForKindPath, this::findAdditionalColumnOptionsForKindRoute);
         postForDatum(getViewByIdPath, this::getViewByIdRoute);
+        postForDatum(getCompactViewByIdPath, this::getCompactViewByIdRoute);
         getForDatum(getDefinitionByIdPath, this::getDefinitionByIdRoute);
         postForDatum(updateColumnDefsPath, this::updateColumnDefsRoute);
         postForDatum(createPath, this::createRoute);
@@ -96,6 +98,17 @@ public class ReportGridEndpoint implements Endpoint {
                 .orElseThrow(() -> new NotFoundException("404", "ID not found"));
     }
 
+
+    public CompactReportGrid getCompactViewByIdRoute(Request req,
+                                                     Response resp) throws IOException {
+        return reportGridService
+                .getCompactByIdAndSelectionOptions(
+                        getId(req),
+                        readIdSelectionOptionsFromBody(req),
+                        getUsername(req))
+                .orElseThrow(() -> new NotFoundException("404", "ID not found"));
+    }
+
     public ReportGridDefinition getDefinitionByIdRoute(Request req,
                                                        Response resp) throws IOException {
         return reportGridService.getGridDefinitionById(getId(req));
@@ -0,0 +1,94 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.api;
+
+import org.finos.waltz.model.route_metrics.RouteStatistics;
+import org.finos.waltz.model.route_metrics.RouteStatisticsSortField;
+import org.finos.waltz.model.user.SystemRole;
+import org.finos.waltz.service.user.UserRoleService;
+import org.finos.waltz.web.endpoints.Endpoint;
+import org.finos.waltz.web.endpoints.RouteMetrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import spark.Request;
+import spark.Response;
+
+import java.util.List;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.EnumUtilities.readEnum;
+import static org.finos.waltz.web.WebUtilities.*;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.deleteForDatum;
+import static org.finos.waltz.web.endpoints.EndpointUtilities.getForList;
+
+
+/**
+ * Exposes per route latency, serialisation and payload statistics to administrators.
+ * Results can be ordered via the <code>sort</code> param (see {@link RouteStatisticsSortField})
+ * and limited via the <code>limit</code> param, e.g. <code>api/route-metrics?sort=BYTES&limit=20</code>.
+ */
+@Service
+public class RouteMetricsEndpoint implements Endpoint {
+
+    private static final Logger LOG = LoggerFactory.getLogger(RouteMetricsEndpoint.class);
+    private static final String BASE_URL = mkPath("api", "route-metrics");
+    private static final int DEFAULT_LIMIT = 200;
+
+    private final UserRoleService userRoleService;
+
+
+    @Autowired
+    public RouteMetricsEndpoint(UserRoleService userRoleService) {
+        checkNotNull(userRoleService, "userRoleService cannot be null");
+        this.userRoleService = userRoleService;
+    }
+
+
+    @Override
+    public void register() {
+        getForList(BASE_URL, this::findStatisticsRoute);
+        deleteForDatum(BASE_URL, this::resetRoute);
+    }
+
+
+    private List<RouteStatistics> findStatisticsRoute(Request request, Response response) {
+        requireRole(userRoleService, request, SystemRole.ADMIN);
+        return RouteMetrics.findStatistics(
+                readSortField(request),
+                getLimit(request).orElse(DEFAULT_LIMIT));
+    }
+
+
+    private boolean resetRoute(Request request, Response response) {
+        requireRole(userRoleService, request, SystemRole.ADMIN);
+        LOG.info("Resetting route metrics (requested by: {})", getUsername(request));
+        RouteMetrics.reset();
+        return true;
+    }
+
+
+    public static RouteStatisticsSortField readSortField(Request request) {
+        return readEnum(
+                request.queryParams("sort"),
+                RouteStatisticsSortField.class,
+                v -> RouteStatisticsSortField.TOTAL_TIME);
+    }
+}
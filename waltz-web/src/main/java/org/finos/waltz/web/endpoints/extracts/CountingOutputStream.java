@@ -0,0 +1,59 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.extracts;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+
+/**
+ * Passes all output through to the underlying stream whilst keeping
+ * a count of the number of bytes written.
+ */
+public class CountingOutputStream extends FilterOutputStream {
+
+    private long count = 0;
+
+
+    public CountingOutputStream(OutputStream out) {
+        super(checkNotNull(out, "out cannot be null"));
+    }
+
+
+    @Override
+    public void write(int b) throws IOException {
+        out.write(b);
+        count++;
+    }
+
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        count += len;
+    }
+
+
+    public long getCount() {
+        return count;
+    }
+
+}
@@ -36,11 +36,31 @@ public interface DataExtractor {
 
 
     default Object writeReportResults(Response response, Tuple3<ExtractFormat, String, byte[]> reportResult) throws IOException {
-        String templateName = reportResult.v2;
+        HttpServletResponse httpResponse = writeReportHeaders(response, reportResult.v1, reportResult.v2);
 
+        byte[] bytes = reportResult.v3;
+        httpResponse.setContentLength(bytes.length);
+        httpResponse.getOutputStream().write(bytes);
+        httpResponse.getOutputStream().flush();
+        httpResponse.getOutputStream().close();
+        return httpResponse;
+    }
+
+
+    /**
+     * Sets the content type (and, where appropriate, the attachment filename) for a
+     * report of the given format.  Extractors which stream their output should call
+     * this before writing to the response output stream.
+     *
+     * @param response  web response
+     * @param format  format of the report
+     * @param templateName  filename stem for downloaded reports
+     * @return the underlying servlet response
+     */
+    default HttpServletResponse writeReportHeaders(Response response, ExtractFormat format, String templateName) {
         HttpServletResponse httpResponse = response.raw();
 
-        switch (reportResult.v1) {
+        switch (format) {
             case CSV:
                 response.type(MimeTypes.Type.TEXT_PLAIN.name());
                 response.header("Content-disposition", "attachment; filename=" + templateName + ".csv");
@@ -57,11 +77,6 @@ public interface DataExtractor {
                 break;
         }
 
-        byte[] bytes = reportResult.v3;
-        httpResponse.setContentLength(bytes.length);
-        httpResponse.getOutputStream().write(bytes);
-        httpResponse.getOutputStream().flush();
-        httpResponse.getOutputStream().close();
         return httpResponse;
     }
 
@@ -19,32 +19,67 @@
 package org.finos.waltz.web.endpoints.extracts;
 
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.eclipse.jetty.http.MimeTypes;
+import org.jooq.Cursor;
 import org.jooq.DSLContext;
-import org.jooq.JSONFormat;
-import org.jooq.Result;
+import org.jooq.Field;
+import org.jooq.Record;
 import org.jooq.Select;
+import org.jooq.impl.DSL;
 import org.jooq.lambda.Unchecked;
 import org.jooq.lambda.tuple.Tuple2;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.supercsv.io.CsvListWriter;
+import org.supercsv.prefs.CsvPreference;
 import spark.Request;
 import spark.Response;
 
 import javax.servlet.http.HttpServletResponse;
+import java.io.Flushable;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static org.finos.waltz.common.Checks.checkNotNull;
 import static org.finos.waltz.common.FunctionUtilities.time;
+import static org.finos.waltz.data.BindParameters.bindOrInline;
 
 
+/**
+ * Base class for extracts which are driven by a single jOOQ query (per sheet).
+ *
+ * Query results are read via a lazy cursor (using a bounded fetch size) and each
+ * row is written to the response as soon as it is read, so memory usage does not
+ * grow with the size of the extract.  JSON and CSV output is periodically flushed
+ * to the client; if the client disconnects the next flush fails, at which point the
+ * cursor (and underlying statement) is closed and the extract abandoned.  Excel
+ * workbooks are buffered to disk by POI and streamed to the client once complete.
+ *
+ * The number of rows and bytes written by each extract is logged on completion.
+ */
 public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
 
+    private static final Logger LOG = LoggerFactory.getLogger(DirectQueryBasedDataExtractor.class);
+
+    private static final int FETCH_SIZE = 1000;
+    private static final int FLUSH_INTERVAL_ROWS = 1000;
+    private static final JsonFactory JSON_FACTORY = new JsonFactory()
+            .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
 
     protected DSLContext dsl;
 
@@ -78,26 +113,79 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
             case CSV:
                 return writeAsCSV(suggestedFilenameStem, qry, response);
             case JSON:
-                return writeAsJson(qry, response);
+                return writeAsJson(suggestedFilenameStem, qry, response);
             default:
                 throw new IllegalArgumentException("Cannot write extract using unknown format: " + extractFormat);
         }
     }
 
-    private String writeAsJson(Select<?> qry,
-                               Response response) {
+    private Object writeAsJson(String suggestedFilenameStem,
+                               Select<?> qry,
+                               Response response) throws IOException {
         response.type(MimeTypes.Type.APPLICATION_JSON_UTF_8.name());
-        return query(dsl, qry)
-                .formatJSON(new JSONFormat()
-                        .header(false)
-                        .recordFormat(JSONFormat.RecordFormat.OBJECT));
+
+        return streamToResponse(suggestedFilenameStem, ExtractFormat.JSON, response, (out, rowCount) -> {
+            JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+            generator.writeStartArray();
+            streamRows(dsl, qry, rowCount, generator, (fields, record) -> {
+                generator.writeStartObject();
+                for (int i = 0; i < fields.length; i++) {
+                    generator.writeFieldName(fields[i].getName());
+                    writeJsonValue(generator, record.get(i));
+                }
+                generator.writeEndObject();
+            });
+            generator.writeEndArray();
+            generator.close();
+        });
+    }
+
+
+    private Object writeAsCSV(String suggestedFilenameStem,
+                              Select<?> qry,
+                              Response response) throws IOException {
+        response.type(MimeTypes.Type.TEXT_PLAIN.name());
+        response.header("Content-disposition", "attachment; filename=" + suggestedFilenameStem + ".csv");
+
+        return streamToResponse(suggestedFilenameStem, ExtractFormat.CSV, response, (out, rowCount) -> {
+            CsvListWriter csvWriter = new CsvListWriter(
+                    new OutputStreamWriter(out, StandardCharsets.UTF_8),
+                    CsvPreference.STANDARD_PREFERENCE);
+
+            List<String> headers = new ArrayList<>();
+            qry.fieldStream().forEach(f -> headers.add(f.getName()));
+            csvWriter.write(headers);
+
+            List<Object> values = new ArrayList<>();
+            streamRows(dsl, qry, rowCount, csvWriter, (fields, record) -> {
+                values.clear();
+                for (int i = 0; i < fields.length; i++) {
+                    values.add(record.get(i));
+                }
+                csvWriter.write(values);
+            });
+            csvWriter.flush();
+        });
     }
 
 
-    private Result<?> query(DSLContext dslContext, Select<?> qry){
-        return dslContext == null
-                ? qry.fetch()
-                : time("fetch", () -> dslContext.fetch(dslContext.renderInlined(qry)));
+    private Object writeAsExcel(String suggestedFilenameStem,
+                                Select<?> qry,
+                                Response response) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(2000);
+        SXSSFSheet sheet = workbook.createSheet(ExtractorUtilities.sanitizeSheetName(suggestedFilenameStem));
+
+        writeExcelHeader(qry, sheet);
+        writeExcelBody(qry, sheet, dsl);
+
+        int endFilterColumnIndex = qry.fields().length == 0
+                ? 0
+                : qry.fields().length - 1;
+
+        sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, endFilterColumnIndex));
+        sheet.createFreezePane(0, 1);
+
+        return writeExcelToResponse(suggestedFilenameStem, response, workbook);
     }
 
 
@@ -130,78 +218,45 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
     }
 
 
-    private static Object writeAsExcel(String suggestedFilenameStem,
-                                       Select<?> qry,
-                                       Response response) throws IOException {
-        SXSSFWorkbook workbook = new SXSSFWorkbook(2000);
-        SXSSFSheet sheet = workbook.createSheet(ExtractorUtilities.sanitizeSheetName(suggestedFilenameStem));
-
-        writeExcelHeader(qry, sheet);
-        writeExcelBody(qry, sheet, null);
-
-        int endFilterColumnIndex = qry.fields().length == 0
-                ? 0
-                : qry.fields().length - 1;
-
-        sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, endFilterColumnIndex));
-        sheet.createFreezePane(0, 1);
-
-        return writeExcelToResponse(suggestedFilenameStem, response, workbook);
-    }
-
-
     private static HttpServletResponse writeExcelToResponse(String suggestedFilenameStem,
                                                             Response response,
                                                             SXSSFWorkbook workbook) throws IOException {
-        byte[] bytes = ExtractorUtilities.convertExcelToByteArray(workbook);
-
         HttpServletResponse httpResponse = response.raw();
 
         httpResponse.setHeader("Content-Type", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
         httpResponse.setHeader("Content-Disposition", "attachment; filename=" + suggestedFilenameStem + ".xlsx");
         httpResponse.setHeader("Content-Transfer-Encoding", "7bit");
 
-        httpResponse.setContentLength(bytes.length);
-        httpResponse.getOutputStream().write(bytes);
-        httpResponse.getOutputStream().flush();
-        httpResponse.getOutputStream().close();
+        try {
+            streamToResponse(suggestedFilenameStem, ExtractFormat.XLSX, response, (out, rowCount) -> {
+                workbook.forEach(sh -> rowCount.addAndGet(sh.getLastRowNum()));  // excluding header rows
+                workbook.write(out);
+            });
+        } finally {
+            workbook.dispose();
+            workbook.close();
+        }
 
         return httpResponse;
     }
 
 
-    private Object writeAsCSV(String suggestedFilenameStem,
-                              Select<?> qry,
-                              Response response) {
-        String csv = qry.fetch().formatCSV();
-        response.type(MimeTypes.Type.TEXT_PLAIN.name());
-        response.header("Content-disposition", "attachment; filename=" + suggestedFilenameStem + ".csv");
-        return csv;
-    }
-
-
     private static void writeExcelBody(Select<?> qry,
                                        SXSSFSheet sheet,
                                        DSLContext dsl) {
         AtomicInteger rowCounter = new AtomicInteger(1);
-        Result<?> records = dsl == null
-                ? qry.fetch()
-                : time("fetch", () -> dsl.fetch(dsl.renderInlined(qry)));
-
-        time("record chomper", () -> {
-            int colCount = qry.fields().length;
-            records.forEach(r -> {
-                int rowNum = rowCounter.getAndIncrement();
-                Row row = sheet.createRow(rowNum);
-                for (int col = 0; col < colCount; col++) {
-                    Cell cell = row.createCell(col);
-                    Object val = r.get(col);
-                    if (val != null) {
-                        cell.setCellValue(val.toString());
-                    }
+
+        time("record chomper", () -> streamRows(dsl, qry, new AtomicLong(), () -> {}, (fields, r) -> {
+            int rowNum = rowCounter.getAndIncrement();
+            Row row = sheet.createRow(rowNum);
+            for (int col = 0; col < fields.length; col++) {
+                Cell cell = row.createCell(col);
+                Object val = r.get(col);
+                if (val != null) {
+                    cell.setCellValue(val.toString());
                 }
-            });
-        });
+            }
+        }));
     }
 
 
@@ -214,4 +269,107 @@ public abstract class DirectQueryBasedDataExtractor implements DataExtractor {
         });
     }
 
+
+    /**
+     * Executes the query, passing each row to the row writer as it is read from the cursor.
+     * The query is run in a (read only) transaction, as some drivers (e.g. Postgres) will
+     * only honour the fetch size when auto-commit is disabled.
+     *
+     * @param rowCount  incremented as each row is written
+     * @param flushable  flushed every {@link #FLUSH_INTERVAL_ROWS} rows
+     * @throws UncheckedIOException  if the row writer (or flush) fails, typically due to the client disconnecting
+     */
+    private static void streamRows(DSLContext dsl,
+                                   Select<?> qry,
+                                   AtomicLong rowCount,
+                                   Flushable flushable,
+                                   RowWriter rowWriter) {
+        dsl.transaction(ctx -> {
+            DSLContext tx = DSL.using(ctx);
+            try (Cursor<Record> cursor = bindOrInline(tx, qry)
+                    .fetchSize(FETCH_SIZE)
+                    .fetchLazy()) {
+
+                Field<?>[] fields = cursor.fields();
+                for (Record record : cursor) {
+                    rowWriter.write(fields, record);
+                    if (rowCount.incrementAndGet() % FLUSH_INTERVAL_ROWS == 0) {
+                        flushable.flush();
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+
+    /**
+     * Wraps the response output stream to record the number of bytes written, logging the
+     * outcome once the body writer has finished.  Failure to write to the client is treated
+     * as the client having cancelled the extract and is logged rather than rethrown, as the
+     * response has already been committed.
+     */
+    private static HttpServletResponse streamToResponse(String suggestedFilenameStem,
+                                                        ExtractFormat format,
+                                                        Response response,
+                                                        BodyWriter bodyWriter) throws IOException {
+        HttpServletResponse httpResponse = response.raw();
+        CountingOutputStream out = new CountingOutputStream(httpResponse.getOutputStream());
+        AtomicLong rowCount = new AtomicLong();
+        long start = System.currentTimeMillis();
+
+        try {
+            bodyWriter.write(out, rowCount);
+            out.flush();
+            out.close();
+            LOG.info(
+                    "Extract [{}] as {} wrote {} rows, {} bytes in {}ms",
+                    suggestedFilenameStem,
+                    format,
+                    rowCount.get(),
+                    out.getCount(),
+                    System.currentTimeMillis() - start);
+        } catch (IOException | UncheckedIOException e) {
+            LOG.warn(
+                    "Extract [{}] as {} cancelled after {} rows, {} bytes in {}ms: {}",
+                    suggestedFilenameStem,
+                    format,
+                    rowCount.get(),
+                    out.getCount(),
+                    System.currentTimeMillis() - start,
+                    e.getMessage());
+        }
+
+        return httpResponse;
+    }
+
+
+    private static void writeJsonValue(JsonGenerator generator,
+                                       Object value) throws IOException {
+        if (value == null) {
+            generator.writeNull();
+        } else if (value instanceof Number) {
+            generator.writeNumber(value.toString());
+        } else if (value instanceof Boolean) {
+            generator.writeBoolean((Boolean) value);
+        } else if (value instanceof byte[]) {
+            generator.writeBinary((byte[]) value);
+        } else {
+            generator.writeString(value.toString());
+        }
+    }
+
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(Field<?>[] fields, Record record) throws IOException;
+    }
+
+
+    @FunctionalInterface
+    private interface BodyWriter {
+        void write(CountingOutputStream out, AtomicLong rowCount) throws IOException;
+    }
+
 }
@@ -19,11 +19,10 @@ package org.finos.waltz.web.endpoints.extracts;
 
 import org.finos.waltz.common.StringUtilities;
 import org.finos.waltz.common.exception.NotFoundException;
-import org.finos.waltz.model.EntityKind;
 import org.finos.waltz.model.IdSelectionOptions;
-import org.finos.waltz.model.NameProvider;
-import org.finos.waltz.model.rating.RatingSchemeItem;
-import org.finos.waltz.model.report_grid.*;
+import org.finos.waltz.model.report_grid.ReportGrid;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.report_grid.ReportGridFixedColumnDefinition;
 import org.finos.waltz.service.report_grid.ReportGridService;
 import org.finos.waltz.service.settings.SettingsService;
 import org.finos.waltz.service.survey.SurveyQuestionService;
@@ -31,30 +30,27 @@ import org.finos.waltz.web.WebException;
 import org.finos.waltz.web.WebUtilities;
 import org.finos.waltz.web.endpoints.extracts.reportgrid.DynamicCommaSeperatedValueFormatter;
 import org.finos.waltz.web.endpoints.extracts.reportgrid.DynamicExcelFormatter;
+import org.finos.waltz.web.endpoints.extracts.reportgrid.DynamicFormatter;
 import org.finos.waltz.web.endpoints.extracts.reportgrid.DynamicJSONFormatter;
-import org.jooq.lambda.Unchecked;
+import org.finos.waltz.web.endpoints.extracts.reportgrid.ReportGridRows;
 import org.jooq.lambda.tuple.Tuple2;
-import org.jooq.lambda.tuple.Tuple3;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import spark.Response;
 
+import javax.servlet.http.HttpServletResponse;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.time.LocalDateTime;
-import java.util.*;
+import java.util.List;
+import java.util.Optional;
 import java.util.function.LongFunction;
-import java.util.stream.Collectors;
 
 import static java.lang.String.format;
-import static java.util.Collections.emptySet;
 import static java.util.Comparator.comparingLong;
 import static java.util.stream.Collectors.toList;
-import static org.finos.waltz.common.ListUtilities.map;
-import static org.finos.waltz.common.MapUtilities.*;
-import static org.finos.waltz.common.SetUtilities.union;
 import static org.finos.waltz.common.StringUtilities.mkSafe;
-import static org.finos.waltz.model.utils.IdUtilities.indexById;
-import static org.finos.waltz.service.report_grid.ReportGridColumnCalculator.calculate;
 import static org.finos.waltz.web.WebUtilities.readIdSelectionOptionsFromBody;
 import static org.jooq.lambda.tuple.Tuple.tuple;
 import static spark.Spark.post;
@@ -62,6 +58,7 @@ import static spark.Spark.post;
 @Service
 public class ReportGridExtractor implements SupportsJsonExtraction {
 
+    private static final Logger LOG = LoggerFactory.getLogger(ReportGridExtractor.class);
     private static final String BASE_URL = WebUtilities.mkPath("data-extract", "report-grid");
 
     private final DynamicCommaSeperatedValueFormatter dynamicCommaSeperatedValueFormatter;
@@ -111,17 +108,16 @@ public class ReportGridExtractor implements SupportsJsonExtraction {
                                             .id()
                                             .orElseThrow(() -> new IllegalArgumentException("Report Grid Definition found but it has no internal identifier"));
 
-                                    return findReportGridById(reportGridIdentifier, selectionOptions)
-                                            .map(Unchecked.function(reportGrid -> prepareReport(
-                                                    reportGrid,
-                                                    parseExtractFormat(request),
-                                                    selectionOptions)))
-                                            .map(Unchecked.function(report -> writeReportResults(
-                                                    response,
-                                                    report)))
+                                    ReportGrid reportGrid = findReportGridById(reportGridIdentifier, selectionOptions)
                                             .orElseThrow(() -> notFoundException.apply(reportGridIdentifier));
 
-                                } catch(UncheckedIOException e) {
+                                    return streamReport(
+                                            response,
+                                            reportGrid,
+                                            parseExtractFormat(request),
+                                            selectionOptions);
+
+                                } catch(IOException e) {
                                     throw new WebException("REPORT_GRID_RENDER_ERROR", mkSafe(e.getMessage()), e);
                                 }
                             })
@@ -134,23 +130,52 @@ public class ReportGridExtractor implements SupportsJsonExtraction {
     }
 
 
-    private Tuple3<ExtractFormat, String, byte[]> prepareReport(ReportGrid reportGrid,
-                                                                ExtractFormat format,
-                                                                IdSelectionOptions selectionOptions) throws IOException {
+    /**
+     * Writes the report directly to the response.  The column layout is resolved before
+     * anything is written, so unsupported grids still result in an error response.  Once
+     * rows are being written, failures can only be logged as the response has been committed.
+     */
+    private HttpServletResponse streamReport(Response response,
+                                             ReportGrid reportGrid,
+                                             ExtractFormat format,
+                                             IdSelectionOptions selectionOptions) throws IOException {
 
         List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> colsWithCommentRequirement = enrichColsWithCommentRequirement(reportGrid);
 
-        List<Tuple2<ReportSubject, ArrayList<Object>>> reportRows = prepareReportRows(
+        ReportGridRows reportRows = new ReportGridRows(
                 reportGrid.definition(),
                 colsWithCommentRequirement,
-                reportGrid.instance());
+                reportGrid.instance(),
+                isCostExportAllowed());
+
+        DynamicFormatter formatter = findFormatter(format);
+        String reportName = mkReportName(reportGrid.definition(), selectionOptions);
+
+        HttpServletResponse httpResponse = writeReportHeaders(response, format, reportName);
+        CountingOutputStream out = new CountingOutputStream(httpResponse.getOutputStream());
+        long start = System.currentTimeMillis();
+
+        try {
+            formatter.format(reportName, reportGrid, colsWithCommentRequirement, reportRows, out);
+            out.close();
+            LOG.info(
+                    "Report grid extract [{}] as {} wrote {} rows, {} bytes in {}ms",
+                    reportName,
+                    format,
+                    reportRows.size(),
+                    out.getCount(),
+                    System.currentTimeMillis() - start);
+        } catch (IOException | UncheckedIOException e) {
+            LOG.warn(
+                    "Report grid extract [{}] as {} cancelled after {} bytes in {}ms: {}",
+                    reportName,
+                    format,
+                    out.getCount(),
+                    System.currentTimeMillis() - start,
+                    e.getMessage());
+        }
 
-        return formatReport(
-                format,
-                reportGrid,
-                mkReportName(reportGrid.definition(), selectionOptions),
-                colsWithCommentRequirement,
-                reportRows);
+        return httpResponse;
     }
 
 
@@ -191,165 +216,22 @@ public class ReportGridExtractor implements SupportsJsonExtraction {
     }
 
 
-    private List<Tuple2<ReportSubject, ArrayList<Object>>> prepareReportRows(ReportGridDefinition definition,
-                                                                             List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> colsWithCommentRequirement,
-                                                                             ReportGridInstance reportGridInstance) {
-
-        List<Tuple3<Long, Integer, EntityKind>> derivedCols = map(definition.derivedColumnDefinitions(), d -> tuple(d.gridColumnId(), d.position(), d.kind()));
-        List<Tuple3<Long, Integer, EntityKind>> fixedCols = map(definition.fixedColumnDefinitions(), d -> tuple(d.gridColumnId(), d.position(), d.kind()));
-
-        Map<Long, Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> colsWithCommentReqById = indexBy(
-                colsWithCommentRequirement,
-                k -> k.v1.id());
-
-        Set<Tuple3<Long, Integer, EntityKind>> allColumnDefinitions = union(derivedCols, fixedCols);
-
-        Set<ReportGridCell> tableData = (definition.derivedColumnDefinitions().isEmpty())
-                ? reportGridInstance.cellData()
-                : union(reportGridInstance.cellData(), calculate(reportGridInstance, definition));
-
-        Map<Long, RatingSchemeItem> ratingsById = indexById(reportGridInstance.ratingSchemeItems());
-
-        Map<Long, Collection<ReportGridCell>> tableDataBySubjectId = groupBy(
-                tableData,
-                ReportGridCell::subjectId);
-
-        boolean allowCostsExport = settingsService
+    private boolean isCostExportAllowed() {
+        return settingsService
                 .getValue(SettingsService.ALLOW_COST_EXPORTS_KEY)
                 .map(r -> StringUtilities.isEmpty(r) || Boolean.parseBoolean(r))
                 .orElse(true);
-
-        return reportGridInstance
-                .subjects()
-                .stream()
-                .map(subject -> {
-                    Collection<ReportGridCell> cellsForSubject = tableDataBySubjectId.getOrDefault(
-                            subject.entityReference().id(),
-                            emptySet());
-
-                    ArrayList<Object> reportRow = new ArrayList<>();
-
-                    Map<Long, ReportGridCell> cellValuesByColumnRefForSubject = indexBy(
-                            cellsForSubject,
-                            ReportGridCell::columnDefinitionId);
-
-                    allColumnDefinitions
-                            .stream()
-                            .sorted(Comparator.comparingInt(Tuple3::v2))
-                            .forEachOrdered(t -> {
-
-                                Long columnId = t.v1;
-
-                                if (t.v3.equals(EntityKind.REPORT_GRID_DERIVED_COLUMN_DEFINITION)) {
-
-                                    ReportGridCell cell = cellValuesByColumnRefForSubject.getOrDefault(
-                                            columnId,
-                                            null);
-
-                                    reportRow.add(getDerivedCellValue(cell));
-
-                                } else {
-
-                                    Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary> fixedCol = colsWithCommentReqById.get(columnId);
-                                    ReportGridFixedColumnDefinition colDef = fixedCol.v1;
-
-                                    boolean isCostColumn = colDef.columnEntityKind().equals(EntityKind.COST_KIND);
-
-                                    if (!allowCostsExport && isCostColumn) {
-                                        reportRow.add("REDACTED");
-                                    } else {
-
-                                        ReportGridCell cell = cellValuesByColumnRefForSubject.getOrDefault(
-                                                colDef.gridColumnId(),
-                                                null);
-
-                                        reportRow.add(getValueFromFixedReportCell(colDef, ratingsById, cell));
-
-                                        if (ColumnCommentary.HAS_COMMENTARY.equals(fixedCol.v2)) {
-                                            reportRow.add(getCommentFromCell(cell));
-                                        }
-                                    }
-                                }
-                            });
-
-                    return tuple(subject, reportRow);
-                })
-                .sorted(Comparator.comparing(t -> t.v1.entityReference().name().get()))
-                .collect(toList());
-    }
-
-    private Object getDerivedCellValue(ReportGridCell cell) {
-        if (cell == null) {
-            return null;
-        } else {
-            return Optional
-                    .ofNullable(cell.textValue())
-                    .orElse(cell.errorValue());
-        }
-    }
-
-    private Object getCommentFromCell(ReportGridCell reportGridCell) {
-        if (reportGridCell == null) {
-            return null;
-        }
-        return reportGridCell.comment();
-    }
-
-
-    private Object getValueFromFixedReportCell(ReportGridFixedColumnDefinition colDef,
-                                               Map<Long, RatingSchemeItem> ratingsById,
-                                               ReportGridCell reportGridCell) {
-        if (reportGridCell == null) {
-            return null;
-        }
-        switch (colDef.columnEntityKind()) {
-            case COST_KIND:
-            case COMPLEXITY_KIND:
-                return reportGridCell.numberValue();
-            case INVOLVEMENT_KIND:
-            case SURVEY_TEMPLATE:
-            case APPLICATION:
-            case CHANGE_INITIATIVE:
-            case SURVEY_QUESTION:
-            case DATA_TYPE:
-            case APP_GROUP:
-            case ORG_UNIT:
-            case TAG:
-            case ENTITY_ALIAS:
-            case MEASURABLE_CATEGORY:
-            case ENTITY_STATISTIC:
-                return Optional
-                        .ofNullable(reportGridCell.textValue())
-                        .orElse("-");
-            case ATTESTATION:
-                return Optional
-                        .ofNullable(reportGridCell.dateTimeValue())
-                        .map(LocalDateTime::toString)
-                        .orElse("-");
-            case MEASURABLE:
-            case ASSESSMENT_DEFINITION:
-                return reportGridCell.textValue();
-            default:
-                throw new IllegalArgumentException("This report does not support export with column of type: " + colDef.columnEntityKind().name());
-        }
     }
 
 
-    private Tuple3<ExtractFormat, String, byte[]> formatReport(ExtractFormat format,
-                                                               ReportGrid reportGrid,
-                                                               String reportName,
-                                                               List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> columnDefinitions,
-                                                               List<Tuple2<ReportSubject, ArrayList<Object>>> reportRows) throws IOException {
+    private DynamicFormatter findFormatter(ExtractFormat format) {
         switch (format) {
             case XLSX:
-                return tuple(format, reportName, dynamicExcelFormatter
-                        .format(reportName, reportGrid, columnDefinitions, reportRows));
+                return dynamicExcelFormatter;
             case CSV:
-                return tuple(format, reportName, dynamicCommaSeperatedValueFormatter
-                        .format(reportName, reportGrid, columnDefinitions, reportRows));
+                return dynamicCommaSeperatedValueFormatter;
             case JSON:
-                return tuple(format, reportName, dynamicJSONFormatter
-                        .format(reportName, reportGrid, columnDefinitions, reportRows));
+                return dynamicJSONFormatter;
             default:
                 throw new UnsupportedOperationException("This report does not support export format: " + format);
         }
@@ -0,0 +1,112 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints.extracts;
+
+import org.finos.waltz.model.route_metrics.RouteStatistics;
+import org.finos.waltz.model.user.SystemRole;
+import org.finos.waltz.service.user.UserRoleService;
+import org.finos.waltz.web.WebUtilities;
+import org.finos.waltz.web.endpoints.RouteMetrics;
+import org.finos.waltz.web.endpoints.api.RouteMetricsEndpoint;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.ListUtilities.map;
+import static org.finos.waltz.common.ListUtilities.newArrayList;
+import static spark.Spark.get;
+
+
+@Service
+public class RouteMetricsExtractor extends CustomDataExtractor {
+
+    private static final List<String> HEADERS = newArrayList(
+            "Method",
+            "Path",
+            "Requests",
+            "Errors",
+            "Handler Total (us)",
+            "Handler p50 (us)",
+            "Handler p95 (us)",
+            "Handler p99 (us)",
+            "Handler Max (us)",
+            "Render Total (us)",
+            "Render p50 (us)",
+            "Render p95 (us)",
+            "Render p99 (us)",
+            "Total Bytes",
+            "Mean Bytes",
+            "Max Bytes",
+            "List Items",
+            "Max List Size");
+
+    private final UserRoleService userRoleService;
+
+
+    @Autowired
+    public RouteMetricsExtractor(UserRoleService userRoleService) {
+        checkNotNull(userRoleService, "userRoleService cannot be null");
+        this.userRoleService = userRoleService;
+    }
+
+
+    @Override
+    public void register() {
+        get(WebUtilities.mkPath("data-extract", "route-metrics"), (request, response) -> {
+            WebUtilities.requireRole(userRoleService, request, SystemRole.ADMIN);
+
+            List<RouteStatistics> statistics = RouteMetrics.findStatistics(
+                    RouteMetricsEndpoint.readSortField(request),
+                    Integer.MAX_VALUE);
+
+            return writeReportResults(
+                    response,
+                    formatReport(
+                            parseExtractFormat(request),
+                            "route-metrics",
+                            map(statistics, RouteMetricsExtractor::toRow),
+                            HEADERS));
+        });
+    }
+
+
+    private static List<Object> toRow(RouteStatistics s) {
+        return newArrayList(
+                s.method(),
+                s.path(),
+                s.requests(),
+                s.errors(),
+                s.handlerTotalMicros(),
+                s.handlerP50Micros(),
+                s.handlerP95Micros(),
+                s.handlerP99Micros(),
+                s.handlerMaxMicros(),
+                s.renderTotalMicros(),
+                s.renderP50Micros(),
+                s.renderP95Micros(),
+                s.renderP99Micros(),
+                s.totalBytes(),
+                s.meanBytes(),
+                s.maxBytes(),
+                s.listItems(),
+                s.maxListSize());
+    }
+}
@@ -30,14 +30,15 @@ import org.springframework.stereotype.Component;
 import org.supercsv.io.CsvListWriter;
 import org.supercsv.prefs.CsvPreference;
 
+import java.io.BufferedWriter;
 import java.io.IOException;
-import java.io.StringWriter;
-import java.util.ArrayList;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Optional;
 
 import static org.finos.waltz.common.ListUtilities.*;
-import static org.jooq.lambda.fi.util.function.CheckedConsumer.unchecked;
 
 @Component
 public class DynamicCommaSeperatedValueFormatter implements DynamicFormatter {
@@ -51,37 +52,39 @@ public class DynamicCommaSeperatedValueFormatter implements DynamicFormatter {
 
 
     @Override
-    public byte[] format(String id,
-                         ReportGrid reportGrid,
-                         List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> columnDefinitions,
-                         List<Tuple2<ReportSubject, ArrayList<Object>>> reportRows) throws IOException {
+    public void format(String id,
+                       ReportGrid reportGrid,
+                       List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> columnDefinitions,
+                       Iterable<Tuple2<ReportSubject, List<Object>>> reportRows,
+                       OutputStream out) throws IOException {
         try {
             LOG.info("Generating CSV report {}", id);
-            return mkCSVReport(columnDefinitions, reportGrid.definition().derivedColumnDefinitions(), reportRows);
+            writeCSVReport(columnDefinitions, reportGrid.definition().derivedColumnDefinitions(), reportRows, out);
         } catch (IOException e) {
             LOG.warn("Encounter error when trying to generate CSV report.  Details:{}", e.getMessage());
             throw e;
         }
     }
 
-    private byte[] mkCSVReport(List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> fixedColumnDefinitions,
-                               List<ReportGridDerivedColumnDefinition> derivedColumnDefinitions,
-                               List<Tuple2<ReportSubject, ArrayList<Object>>> reportRows) throws IOException {
+    private void writeCSVReport(List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> fixedColumnDefinitions,
+                                List<ReportGridDerivedColumnDefinition> derivedColumnDefinitions,
+                                Iterable<Tuple2<ReportSubject, List<Object>>> reportRows,
+                                OutputStream out) throws IOException {
 
         List<String> headers = formatterUtils.mkHeaderStrings(fixedColumnDefinitions, derivedColumnDefinitions);
 
-        StringWriter writer = new StringWriter();
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
         CsvListWriter csvWriter = new CsvListWriter(writer, CsvPreference.EXCEL_PREFERENCE);
 
         csvWriter.write(headers);
-        reportRows.forEach(unchecked(row -> csvWriter.write(simplify(row))));
+        for (Tuple2<ReportSubject, List<Object>> row : reportRows) {
+            csvWriter.write(simplify(row));
+        }
         csvWriter.flush();
-
-        return writer.toString().getBytes();
     }
 
 
-    private List<Object> simplify(Tuple2<ReportSubject, ArrayList<Object>> row) {
+    private List<Object> simplify(Tuple2<ReportSubject, List<Object>> row) {
 
         long appId = row.v1.entityReference().id();
         String appName = row.v1.entityReference().name().get();
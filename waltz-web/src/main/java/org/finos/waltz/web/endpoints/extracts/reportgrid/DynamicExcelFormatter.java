@@ -36,9 +36,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -54,6 +53,7 @@ import static org.finos.waltz.common.StringUtilities.limit;
 public class DynamicExcelFormatter implements DynamicFormatter {
 
     private static final Logger LOG = LoggerFactory.getLogger(DynamicExcelFormatter.class);
+    private static final int ROW_ACCESS_WINDOW_SIZE = 2000;
     private final FormatterUtils formatterUtils;
     private final String CELL_LIMIT_MESSAGE = "...Data truncated, excel cell limit reached. Export using CSV for complete data.";
 
@@ -65,47 +65,50 @@ public class DynamicExcelFormatter implements DynamicFormatter {
 
 
     @Override
-    public byte[] format(String id,
-                         ReportGrid reportGrid,
-                         List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> columnDefinitions,
-                         List<Tuple2<ReportSubject, ArrayList<Object>>> reportRows)  throws IOException{
+    public void format(String id,
+                       ReportGrid reportGrid,
+                       List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> columnDefinitions,
+                       Iterable<Tuple2<ReportSubject, List<Object>>> reportRows,
+                       OutputStream out) throws IOException {
         try {
             LOG.info("Generating Excel report {}",id);
-            return mkExcelReport(id, columnDefinitions, reportGrid.definition().derivedColumnDefinitions(), reportRows);
+            writeExcelReport(id, columnDefinitions, reportGrid.definition().derivedColumnDefinitions(), reportRows, out);
         } catch (IOException e) {
-           LOG.warn("Encounter error when trying to generate CSV report.  Details:{}", e.getMessage());
+           LOG.warn("Encounter error when trying to generate Excel report.  Details:{}", e.getMessage());
            throw e;
         }
     }
 
 
-    private byte[] mkExcelReport(String reportName,
-                                 List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> fixedColumnDefinitions,
-                                 List<ReportGridDerivedColumnDefinition> derivedColumnDefinitions,
-                                 List<Tuple2<ReportSubject, ArrayList<Object>>> reportRows) throws IOException {
+    private void writeExcelReport(String reportName,
+                                  List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> fixedColumnDefinitions,
+                                  List<ReportGridDerivedColumnDefinition> derivedColumnDefinitions,
+                                  Iterable<Tuple2<ReportSubject, List<Object>>> reportRows,
+                                  OutputStream out) throws IOException {
 
-        SXSSFWorkbook workbook = new SXSSFWorkbook(2000);
-        SXSSFSheet sheet = workbook.createSheet(ExtractorUtilities.sanitizeSheetName(reportName));
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ROW_ACCESS_WINDOW_SIZE);
+        workbook.setCompressTempFiles(true);
 
-        int colCount = writeExcelHeader(fixedColumnDefinitions, derivedColumnDefinitions, sheet);
-        writeExcelBody(reportRows, sheet);
+        try {
+            SXSSFSheet sheet = workbook.createSheet(ExtractorUtilities.sanitizeSheetName(reportName));
 
-        sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, colCount - 1));
-        sheet.createFreezePane(0, 1);
+            int colCount = writeExcelHeader(fixedColumnDefinitions, derivedColumnDefinitions, sheet);
+            writeExcelBody(reportRows, sheet);
 
-        return convertExcelToByteArray(workbook);
-    }
+            sheet.setAutoFilter(new CellRangeAddress(0, 0, 0, colCount - 1));
+            sheet.createFreezePane(0, 1);
 
-
-    private byte[] convertExcelToByteArray(SXSSFWorkbook workbook) throws IOException {
-        ByteArrayOutputStream outByteStream = new ByteArrayOutputStream();
-        workbook.write(outByteStream);
-        workbook.close();
-        return outByteStream.toByteArray();
+            workbook.write(out);
+            out.flush();
+        } finally {
+            // removes the temporary files backing the flushed rows
+            workbook.dispose();
+            workbook.close();
+        }
     }
 
 
-    private int writeExcelBody(List<Tuple2<ReportSubject, ArrayList<Object>>> reportRows, SXSSFSheet sheet) {
+    private int writeExcelBody(Iterable<Tuple2<ReportSubject, List<Object>>> reportRows, SXSSFSheet sheet) {
         AtomicInteger rowNum = new AtomicInteger(1);
         int maxCellLength = 32767 - length(CELL_LIMIT_MESSAGE);
         reportRows.forEach(r -> {
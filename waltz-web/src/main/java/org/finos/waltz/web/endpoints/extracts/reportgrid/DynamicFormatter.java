@@ -24,13 +24,19 @@ import org.finos.waltz.web.endpoints.extracts.ColumnCommentary;
 import org.jooq.lambda.tuple.Tuple2;
 
 import java.io.IOException;
-import java.util.ArrayList;
+import java.io.OutputStream;
 import java.util.List;
 
 public interface DynamicFormatter {
 
-    byte[] format(String id,
-                  ReportGrid reportGrid,
-                  List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> columnDefinitions,
-                  List<Tuple2<ReportSubject, ArrayList<Object>>> reportRows)  throws IOException;
+    /**
+     * Writes the report to the given stream, rows are written as they are read from
+     * <code>reportRows</code> so implementations should not collect them.  The stream is
+     * flushed but not closed.
+     */
+    void format(String id,
+                ReportGrid reportGrid,
+                List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> columnDefinitions,
+                Iterable<Tuple2<ReportSubject, List<Object>>> reportRows,
+                OutputStream out) throws IOException;
 }
@@ -17,6 +17,9 @@
  */
 package org.finos.waltz.web.endpoints.extracts.reportgrid;
 
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
@@ -30,8 +33,11 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 
 
 @Component
@@ -47,21 +53,21 @@ public class DynamicJSONFormatter implements DynamicFormatter {
 
 
     @Override
-    public byte[] format(String id,
-                         ReportGrid reportGrid,
-                         List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> columnDefinitions,
-                         List<Tuple2<ReportSubject, ArrayList<Object>>> reportRows)  throws IOException {
+    public void format(String id,
+                       ReportGrid reportGrid,
+                       List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> columnDefinitions,
+                       Iterable<Tuple2<ReportSubject, List<Object>>> reportRows,
+                       OutputStream out) throws IOException {
         try {
             LOG.debug("Generating JSON data {}",id);
             long start = System.currentTimeMillis();
-            byte[] response = mkResponse(reportGrid, columnDefinitions, reportRows);
+            int rowCount = writeResponse(reportGrid, columnDefinitions, reportRows, out);
             long finish = System.currentTimeMillis();
             LOG.info(
-                    "Generated JSON data {} in {} ms response. Response payload sz={} bytes",
+                    "Generated JSON data {} in {} ms response. Rows={}",
                     id,
                     finish-start,
-                    response.length);
-            return response;
+                    rowCount);
         } catch (IOException e) {
            String msg = String.format(
                    "Encountered error generating JSON response. Details:%s",
@@ -71,80 +77,128 @@ public class DynamicJSONFormatter implements DynamicFormatter {
     }
 
 
-    private byte[] mkResponse(ReportGrid reportGrid,
+    /**
+     * Writes the same document as serialising a complete {@link ReportGridJSON}, however the
+     * grid rows are serialised one at a time as they are read.  The envelope (everything but the
+     * rows) is serialised up front, with no rows, so field order and naming still come from the
+     * json model classes.
+     *
+     * @return number of rows written
+     */
+    private int writeResponse(ReportGrid reportGrid,
                               List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> columnDefinitions,
-                              List<Tuple2<ReportSubject, ArrayList<Object>>> reportRows) throws IOException {
+                              Iterable<Tuple2<ReportSubject, List<Object>>> reportRows,
+                              OutputStream out) throws IOException {
 
         ReportGridDefinition reportGridDefinition = reportGrid.definition();
-        ReportGridJSON reportGridJSON =
+        ReportGridJSON envelope =
                 ImmutableReportGridJSON.builder()
                         .id(reportGridDefinition.externalId().orElseGet(() -> "" + reportGridDefinition.id()))
                         .apiTypes(new ApiTypes())
                         .name(reportGridDefinition.name())
-                        .grid(transform(columnDefinitions, reportGrid.definition().derivedColumnDefinitions(), reportRows))
+                        .grid(ImmutableGrid.builder().build())
                         .build();
 
-        return createMapper()
-                .writerWithDefaultPrettyPrinter()
-                .writeValueAsBytes(reportGridJSON);
-    }
-
+        ObjectMapper mapper = createMapper();
+        JsonNode envelopeNode = mapper.valueToTree(envelope);
+        RowTransformer rowTransformer = new RowTransformer(formatterUtils.mkColumnHeaders(
+                columnDefinitions,
+                reportGridDefinition.derivedColumnDefinitions()));
+
+        int rowCount = 0;
+        try (JsonGenerator generator = mapper.getFactory().createGenerator(out, JsonEncoding.UTF8)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.useDefaultPrettyPrinter();
+
+            generator.writeStartObject();
+            for (Iterator<Map.Entry<String, JsonNode>> fields = envelopeNode.fields(); fields.hasNext(); ) {
+                Map.Entry<String, JsonNode> field = fields.next();
+                generator.writeFieldName(field.getKey());
+                if (!"grid".equals(field.getKey())) {
+                    mapper.writeTree(generator, field.getValue());
+                    continue;
+                }
 
-    private Grid transform(List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> fixedColumnDefinitions,
-                           List<ReportGridDerivedColumnDefinition> derivedColumnDefinitions,
-                           List<Tuple2<ReportSubject, ArrayList<Object>>> reportRows) {
+                generator.writeStartObject();
+                for (Iterator<Map.Entry<String, JsonNode>> gridFields = field.getValue().fields(); gridFields.hasNext(); ) {
+                    Map.Entry<String, JsonNode> gridField = gridFields.next();
+                    generator.writeFieldName(gridField.getKey());
+                    if (!"rows".equals(gridField.getKey())) {
+                        mapper.writeTree(generator, gridField.getValue());
+                        continue;
+                    }
 
-        List<String> columnHeadings = formatterUtils.mkColumnHeaders(fixedColumnDefinitions, derivedColumnDefinitions);
+                    generator.writeStartArray();
+                    for (Tuple2<ReportSubject, List<Object>> reportRow : reportRows) {
+                        mapper.writeValue(generator, rowTransformer.transform(reportRow));
+                        rowCount++;
+                    }
+                    generator.writeEndArray();
+                }
+                generator.writeEndObject();
+            }
+            generator.writeEndObject();
+        }
+        out.flush();
+        return rowCount;
+    }
 
-        List<Row> data = new ArrayList<>(reportRows.size());
 
-        for (Tuple2<ReportSubject, ArrayList<Object>> currentRow : reportRows) {
-            ImmutableRow.Builder transformedRow = ImmutableRow.builder();
+    /**
+     * Converts report rows into json rows.  Values from comment columns are attached to
+     * the value of the preceding column rather than appearing as a cell in their own right.
+     */
+    private static class RowTransformer {
 
-            List<CellValue> transformedRowValues = new ArrayList<>();
+        private final String[] columnNames;
+        private final boolean[] isComment;
 
-            transformedRow.id(createKeyElement(currentRow.v1));
 
+        private RowTransformer(List<String> columnHeadings) {
             int maxColumns = columnHeadings.size();
-
+            this.columnNames = new String[maxColumns];
+            this.isComment = new boolean[maxColumns];
             for (int idx = 0; idx < maxColumns; idx++) {
                 String formattedColumnName = columnHeadings.get(idx) != null
                         ? columnHeadings.get(idx)
                         : "";
+                columnNames[idx] = formattedColumnName;
+                isComment[idx] = formattedColumnName.contains("comment");
+            }
+        }
+
+
+        private Row transform(Tuple2<ReportSubject, List<Object>> currentRow) {
+            ImmutableRow.Builder transformedRow = ImmutableRow.builder();
+
+            List<CellValue> transformedRowValues = new ArrayList<>();
+
+            transformedRow.id(KeyCell.fromSubject(currentRow.v1));
+
+            for (int idx = 0; idx < columnNames.length; idx++) {
                 int prevCellAddedIdx = transformedRowValues.size() - 1;
-                boolean isComment = formattedColumnName.contains("comment");
                 Object currentCell = currentRow.v2.get(idx);
                 if (currentCell != null) {
-                    CellValue cell = ImmutableCellValue
-                            .builder()
-                            .name(formattedColumnName)
-                            .value(currentCell.toString())
-                            .build();
-
-                    if (isComment && prevCellAddedIdx > -1 && transformedRowValues.get(prevCellAddedIdx) instanceof ImmutableCellValue) {
+                    if (isComment[idx] && prevCellAddedIdx > -1 && transformedRowValues.get(prevCellAddedIdx) instanceof ImmutableCellValue) {
                         CellValue previousColumnCell = transformedRowValues.get(prevCellAddedIdx);
                         CellValue withComment = ImmutableCellValue
                                 .copyOf(previousColumnCell)
                                 .withComment(currentCell.toString());
-                        transformedRowValues.set(prevCellAddedIdx,withComment);
+                        transformedRowValues.set(prevCellAddedIdx, withComment);
                     } else {
-                        transformedRowValues.add(cell);
+                        transformedRowValues.add(ImmutableCellValue
+                                .builder()
+                                .name(columnNames[idx])
+                                .value(currentCell.toString())
+                                .build());
                     }
-
                 }
             }
-            transformedRow.addAllCells(transformedRowValues);
-            data.add(transformedRow.build());
-        }
 
-        return ImmutableGrid.builder()
-                .addAllRows(data)
-                .build();
-    }
-
-
-    private KeyCell createKeyElement(ReportSubject reportSubject){
-        return KeyCell.fromSubject(reportSubject);
+            return transformedRow
+                    .addAllCells(transformedRowValues)
+                    .build();
+        }
     }
 
 
@@ -153,7 +207,8 @@ public class DynamicJSONFormatter implements DynamicFormatter {
         return mapper
                 .registerModule(new JavaTimeModule())
                 .registerModule(new Jdk8Module())
-                .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false);
+                .configure(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS, false)
+                .configure(SerializationFeature.FLUSH_AFTER_WRITE_VALUE, false);
 
     }
 
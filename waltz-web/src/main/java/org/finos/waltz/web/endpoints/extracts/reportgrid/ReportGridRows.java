@@ -0,0 +1,245 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+package org.finos.waltz.web.endpoints.extracts.reportgrid;
+
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.report_grid.ReportGridCell;
+import org.finos.waltz.model.report_grid.ReportGridDefinition;
+import org.finos.waltz.model.report_grid.ReportGridDerivedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridFixedColumnDefinition;
+import org.finos.waltz.model.report_grid.ReportGridInstance;
+import org.finos.waltz.model.report_grid.ReportSubject;
+import org.finos.waltz.web.endpoints.extracts.ColumnCommentary;
+import org.jooq.lambda.tuple.Tuple2;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+
+import static org.finos.waltz.common.Checks.checkNotNull;
+import static org.finos.waltz.common.MapUtilities.groupBy;
+import static org.finos.waltz.common.SetUtilities.union;
+import static org.finos.waltz.service.report_grid.ReportGridColumnCalculator.calculate;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+
+/**
+ * The rows of a report grid extract, generated lazily.
+ *
+ * The column layout (including how each column's value is read from a cell) is worked
+ * out once, on construction.  Rows are built as the iterator is advanced, so formatters
+ * which write each row as they receive it only hold a single row in memory at a time.
+ * Subjects are ordered by name.
+ *
+ * Each row has a value per column, fixed columns which support commentary are
+ * followed by an additional comment value.  This matches the headers given by
+ * {@link FormatterUtils#mkColumnHeaders(List, List)}.
+ */
+public class ReportGridRows implements Iterable<Tuple2<ReportSubject, List<Object>>> {
+
+    public static final String REDACTED = "REDACTED";
+
+    private final List<Column> columns;
+    private final Map<Long, Integer> columnIndexByGridColumnId;
+    private final int rowWidth;
+    private final List<ReportSubject> subjects;
+    private final Map<Long, Collection<ReportGridCell>> cellsBySubjectId;
+
+
+    /**
+     * @param definition  the grid definition
+     * @param fixedColumns  fixed column definitions, paired with whether they support commentary
+     * @param instance  the grid data
+     * @param allowCostsExport  if false the values of cost columns are replaced with {@link #REDACTED}
+     * @throws IllegalArgumentException if the grid has a column type which cannot be exported
+     */
+    public ReportGridRows(ReportGridDefinition definition,
+                          List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> fixedColumns,
+                          ReportGridInstance instance,
+                          boolean allowCostsExport) {
+        checkNotNull(definition, "definition cannot be null");
+        checkNotNull(fixedColumns, "fixedColumns cannot be null");
+        checkNotNull(instance, "instance cannot be null");
+
+        this.columns = mkColumns(definition.derivedColumnDefinitions(), fixedColumns, allowCostsExport);
+        this.columnIndexByGridColumnId = new HashMap<>(columns.size() * 2);
+        int width = 0;
+        for (int i = 0; i < columns.size(); i++) {
+            Column column = columns.get(i);
+            columnIndexByGridColumnId.put(column.gridColumnId, i);
+            width += column.hasCommentary ? 2 : 1;
+        }
+        this.rowWidth = width;
+
+        Set<ReportGridCell> cells = definition.derivedColumnDefinitions().isEmpty()
+                ? instance.cellData()
+                : union(instance.cellData(), calculate(instance, definition));
+
+        this.cellsBySubjectId = groupBy(cells, ReportGridCell::subjectId);
+
+        this.subjects = new ArrayList<>(instance.subjects());
+        subjects.sort(Comparator.comparing(s -> s.entityReference().name().get()));
+    }
+
+
+    @Override
+    public Iterator<Tuple2<ReportSubject, List<Object>>> iterator() {
+        return subjects
+                .stream()
+                .map(this::mkRow)
+                .iterator();
+    }
+
+
+    public int size() {
+        return subjects.size();
+    }
+
+
+    // --- helpers
+
+    private Tuple2<ReportSubject, List<Object>> mkRow(ReportSubject subject) {
+        ReportGridCell[] cellsByColumn = new ReportGridCell[columns.size()];
+        Collection<ReportGridCell> cellsForSubject = cellsBySubjectId.getOrDefault(
+                subject.entityReference().id(),
+                Collections.emptySet());
+
+        for (ReportGridCell cell : cellsForSubject) {
+            Integer idx = columnIndexByGridColumnId.get(cell.columnDefinitionId());
+            if (idx != null) {
+                cellsByColumn[idx] = cell;
+            }
+        }
+
+        List<Object> values = new ArrayList<>(rowWidth);
+        for (int i = 0; i < cellsByColumn.length; i++) {
+            Column column = columns.get(i);
+            ReportGridCell cell = cellsByColumn[i];
+            if (column.redacted) {
+                values.add(REDACTED);
+            } else {
+                values.add(cell == null ? null : column.valueFn.apply(cell));
+            }
+            if (column.hasCommentary) {
+                values.add(cell == null || column.redacted ? null : cell.comment());
+            }
+        }
+
+        return tuple(subject, values);
+    }
+
+
+    private static List<Column> mkColumns(List<ReportGridDerivedColumnDefinition> derivedColumns,
+                                          List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> fixedColumns,
+                                          boolean allowCostsExport) {
+        List<Tuple2<Integer, Column>> columnsWithPosition = new ArrayList<>(derivedColumns.size() + fixedColumns.size());
+
+        for (ReportGridDerivedColumnDefinition d : derivedColumns) {
+            columnsWithPosition.add(tuple(
+                    d.position(),
+                    new Column(d.gridColumnId(), ReportGridRows::getDerivedCellValue, false, false)));
+        }
+
+        for (Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary> t : fixedColumns) {
+            ReportGridFixedColumnDefinition colDef = t.v1;
+            boolean redacted = !allowCostsExport && colDef.columnEntityKind() == EntityKind.COST_KIND;
+            columnsWithPosition.add(tuple(
+                    colDef.position(),
+                    new Column(
+                            colDef.gridColumnId(),
+                            mkFixedCellValueFn(colDef.columnEntityKind()),
+                            ColumnCommentary.HAS_COMMENTARY.equals(t.v2),
+                            redacted)));
+        }
+
+        columnsWithPosition.sort(Comparator.comparingInt(t -> t.v1));
+
+        List<Column> columns = new ArrayList<>(columnsWithPosition.size());
+        columnsWithPosition.forEach(t -> columns.add(t.v2));
+        return columns;
+    }
+
+
+    private static Object getDerivedCellValue(ReportGridCell cell) {
+        return Optional
+                .ofNullable(cell.textValue())
+                .orElse(cell.errorValue());
+    }
+
+
+    private static Function<ReportGridCell, Object> mkFixedCellValueFn(EntityKind columnEntityKind) {
+        switch (columnEntityKind) {
+            case COST_KIND:
+            case COMPLEXITY_KIND:
+                return ReportGridCell::numberValue;
+            case INVOLVEMENT_KIND:
+            case SURVEY_TEMPLATE:
+            case APPLICATION:
+            case CHANGE_INITIATIVE:
+            case SURVEY_QUESTION:
+            case DATA_TYPE:
+            case APP_GROUP:
+            case ORG_UNIT:
+            case TAG:
+            case ENTITY_ALIAS:
+            case MEASURABLE_CATEGORY:
+            case ENTITY_STATISTIC:
+                return cell -> Optional
+                        .ofNullable(cell.textValue())
+                        .orElse("-");
+            case ATTESTATION:
+                return cell -> Optional
+                        .ofNullable(cell.dateTimeValue())
+                        .map(LocalDateTime::toString)
+                        .orElse("-");
+            case MEASURABLE:
+            case ASSESSMENT_DEFINITION:
+                return ReportGridCell::textValue;
+            default:
+                throw new IllegalArgumentException("This report does not support export with column of type: " + columnEntityKind.name());
+        }
+    }
+
+
+    private static class Column {
+
+        private final Long gridColumnId;
+        private final Function<ReportGridCell, Object> valueFn;
+        private final boolean hasCommentary;
+        private final boolean redacted;
+
+
+        private Column(Long gridColumnId,
+                       Function<ReportGridCell, Object> valueFn,
+                       boolean hasCommentary,
+                       boolean redacted) {
+            this.gridColumnId = gridColumnId;
+            this.valueFn = valueFn;
+            this.hasCommentary = hasCommentary;
+            this.redacted = redacted;
+        }
+    }
+}
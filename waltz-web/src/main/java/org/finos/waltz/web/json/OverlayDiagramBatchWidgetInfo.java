@@ -0,0 +1,14 @@
+package org.finos.waltz.web.json;
+
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import org.finos.waltz.model.aggregate_overlay_diagram.overlay.widget_parameters.BatchWidgetParameters;
+import org.immutables.value.Value;
+
+@Value.Immutable
+@JsonSerialize(as = ImmutableOverlayDiagramBatchWidgetInfo.class)
+@JsonDeserialize(as = ImmutableOverlayDiagramBatchWidgetInfo.class)
+public abstract class OverlayDiagramBatchWidgetInfo extends OverlayDiagramWidgetInfo<BatchWidgetParameters> {
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Waltz - Enterprise Architecture
+ * Copyright (C) 2016, 2017, 2018, 2019 Waltz open source project
+ * See README.md for more information
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific
+ *
+ */
+
+package org.finos.waltz.web.endpoints;
+
+import org.finos.waltz.model.route_metrics.RouteStatistics;
+import org.finos.waltz.model.route_metrics.RouteStatisticsSortField;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RouteMetricsTest {
+
+    @Test
+    public void utf8LengthMatchesEncodedLength() {
+        String str = "abc éü € 😀 \"quoted\"";
+        assertEquals(
+                str.getBytes(StandardCharsets.UTF_8).length,
+                RouteMetrics.utf8Length(str));
+    }
+
+
+    @Test
+    public void handlerRenderAndListSizesAreRecorded() throws Exception {
+        RouteMetrics.Recorder recorder = RouteMetrics.recorderFor("GET", "test/route-metrics/recorded");
+        recorder.recordHandler(TimeUnit.MILLISECONDS.toNanos(5), false);
+        recorder.recordHandler(TimeUnit.MILLISECONDS.toNanos(7), true);
+        recorder.recordListSize(Arrays.asList(1, 2, 3));
+        recorder.wrap(model -> "[1,2,3]").render(Arrays.asList(1, 2, 3));
+
+        RouteStatistics stats = find("test/route-metrics/recorded");
+        assertEquals(2, stats.requests());
+        assertEquals(1, stats.errors());
+        assertEquals(7, stats.totalBytes());
+        assertEquals(3, stats.listItems());
+        assertEquals(3, stats.maxListSize());
+        assertEquals(12_000, stats.handlerTotalMicros());
+    }
+
+
+    @Test
+    public void countersAreOnlyAllocatedOnceARouteIsUsed() {
+        RouteMetrics.Recorder recorder = RouteMetrics.recorderFor("GET", "test/route-metrics/unused");
+        assertFalse(recorder.hasCounters());
+        assertFalse(RouteMetrics
+                .findStatistics(RouteStatisticsSortField.TOTAL_TIME, Integer.MAX_VALUE)
+                .stream()
+                .anyMatch(s -> s.path().equals("test/route-metrics/unused")));
+
+        recorder.recordHandler(1, false);
+        assertTrue(recorder.hasCounters());
+        assertEquals(1, find("test/route-metrics/unused").requests());
+    }
+
+
+    @Test
+    public void statisticsAreSortedDescending() {
+        RouteMetrics.recorderFor("GET", "test/route-metrics/small").recordRender(0, "x");
+        RouteMetrics.recorderFor("GET", "test/route-metrics/small").recordHandler(1, false);
+        RouteMetrics.recorderFor("GET", "test/route-metrics/large").recordRender(0, "xxxxxxxxxx");
+        RouteMetrics.recorderFor("GET", "test/route-metrics/large").recordHandler(1, false);
+
+        List<RouteStatistics> byBytes = RouteMetrics.findStatistics(RouteStatisticsSortField.MAX_BYTES, Integer.MAX_VALUE);
+        int large = indexOf(byBytes, "test/route-metrics/large");
+        int small = indexOf(byBytes, "test/route-metrics/small");
+        assertTrue(large < small);
+    }
+
+
+    private static RouteStatistics find(String path) {
+        return RouteMetrics
+                .findStatistics(RouteStatisticsSortField.TOTAL_TIME, Integer.MAX_VALUE)
+                .stream()
+                .filter(s -> s.path().equals(path))
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("No statistics for: " + path));
+    }
+
+
+    private static int indexOf(List<RouteStatistics> stats, String path) {
+        for (int i = 0; i < stats.size(); i++) {
+            if (stats.get(i).path().equals(path)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -20,7 +20,12 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import spark.Request;
 import spark.Response;
 
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 
 import static org.finos.waltz.schema.tables.OrganisationalUnit.ORGANISATIONAL_UNIT;
@@ -37,6 +42,10 @@ class OrgUnitExtractorTest {
     private Request request;
     @Mock
     private Response response;
+    @Mock
+    private HttpServletResponse httpServletResponse;
+
+    private final ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
 
     @BeforeEach
     public void setUp(){
@@ -49,10 +58,12 @@ class OrgUnitExtractorTest {
     void recordsFoundAreTransformRecordsToJsonModel() throws IOException {
         when(request.queryParams("format"))
                 .thenReturn("JSON");
-        Object obj =
-                orgUnitExtractor.writeExtract("name",createDummyQuery(),request, response);
-        assertTrue(obj instanceof String);
-        String responseJSON = (String)obj;
+        when(response.raw())
+                .thenReturn(httpServletResponse);
+        when(httpServletResponse.getOutputStream())
+                .thenReturn(mkServletOutputStream());
+        orgUnitExtractor.writeExtract("name",createDummyQuery(),request, response);
+        String responseJSON = responseBody.toString(StandardCharsets.UTF_8.name());
         assertTrue(responseJSON.length()>0);
         JsonNode node = JacksonUtilities.getJsonMapper().readTree(responseJSON);
         JsonNode arrElement = node.get(0);
@@ -63,6 +74,39 @@ class OrgUnitExtractorTest {
 
     }
 
+    @Test
+    void recordsAreStreamedAsCsvWithHeaders() throws IOException {
+        when(request.queryParams("format"))
+                .thenReturn("CSV");
+        when(response.raw())
+                .thenReturn(httpServletResponse);
+        when(httpServletResponse.getOutputStream())
+                .thenReturn(mkServletOutputStream());
+        orgUnitExtractor.writeExtract("name",createDummyQuery(),request, response);
+        String[] lines = responseBody.toString(StandardCharsets.UTF_8.name()).split("\r\n");
+        assertEquals("id,parentId,name,description,externalId,provenance", lines[0]);
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].contains("org-name"));
+    }
+
+    private ServletOutputStream mkServletOutputStream() {
+        return new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                responseBody.write(b);
+            }
+        };
+    }
+
     private DSLContext createTestDslContext(){
         MockDataProvider provider = context -> {
             DSLContext create = DSL.using(SQLDialect.POSTGRES);
@@ -0,0 +1,178 @@
+package org.finos.waltz.web.endpoints.extracts.reportgrid;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import org.finos.waltz.model.EntityKind;
+import org.finos.waltz.model.application.LifecyclePhase;
+import org.finos.waltz.model.report_grid.*;
+import org.finos.waltz.web.endpoints.extracts.ColumnCommentary;
+import org.finos.waltz.web.json.*;
+import org.jooq.lambda.tuple.Tuple2;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.finos.waltz.common.ListUtilities.asList;
+import static org.finos.waltz.common.SetUtilities.asSet;
+import static org.finos.waltz.model.EntityReference.mkRef;
+import static org.jooq.lambda.tuple.Tuple.tuple;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportGridRowsTest {
+
+    private static final ReportGridFixedColumnDefinition COST_COL = ImmutableReportGridFixedColumnDefinition.builder()
+            .id(10L)
+            .gridColumnId(10L)
+            .columnEntityKind(EntityKind.COST_KIND)
+            .columnName("cost")
+            .position(2)
+            .build();
+
+    private static final ReportGridFixedColumnDefinition QUESTION_COL = ImmutableReportGridFixedColumnDefinition.builder()
+            .id(11L)
+            .gridColumnId(11L)
+            .columnEntityKind(EntityKind.SURVEY_QUESTION)
+            .columnName("question")
+            .position(1)
+            .build();
+
+    private static final List<Tuple2<ReportGridFixedColumnDefinition, ColumnCommentary>> FIXED_COLS = asList(
+            tuple(QUESTION_COL, ColumnCommentary.HAS_COMMENTARY),
+            tuple(COST_COL, ColumnCommentary.NO_COMMENTARY));
+
+    private static final ReportGridDefinition DEFINITION = ImmutableReportGridDefinition.builder()
+            .id(1L)
+            .name("grid")
+            .description("test grid")
+            .externalId("GRID")
+            .lastUpdatedBy("test")
+            .subjectKind(EntityKind.APPLICATION)
+            .fixedColumnDefinitions(asList(COST_COL, QUESTION_COL))
+            .build();
+
+    private static final ReportGridInstance INSTANCE = ImmutableReportGridInstance.builder()
+            .subjects(asSet(mkSubject(1L, "zebra"), mkSubject(2L, "aardvark")))
+            .cellData(asSet(
+                    ImmutableReportGridCell.builder()
+                            .subjectId(1L)
+                            .columnDefinitionId(10L)
+                            .numberValue(BigDecimal.TEN)
+                            .build(),
+                    ImmutableReportGridCell.builder()
+                            .subjectId(1L)
+                            .columnDefinitionId(11L)
+                            .textValue("yes")
+                            .comment("because")
+                            .build(),
+                    ImmutableReportGridCell.builder()
+                            .subjectId(2L)
+                            .columnDefinitionId(11L)
+                            .textValue("no")
+                            .build()))
+            .build();
+
+
+    @Test
+    void rowsAreOrderedBySubjectNameAndColumnPosition() {
+        List<Tuple2<ReportSubject, List<Object>>> rows = toList(new ReportGridRows(DEFINITION, FIXED_COLS, INSTANCE, true));
+
+        assertEquals(2, rows.size());
+        assertEquals("aardvark", rows.get(0).v1.entityReference().name().get());
+        assertEquals(asList("no", null, null), rows.get(0).v2);
+        assertEquals(asList("yes", "because", BigDecimal.TEN), rows.get(1).v2);
+    }
+
+
+    @Test
+    void costsAreRedactedIfExportsAreNotAllowed() {
+        List<Tuple2<ReportSubject, List<Object>>> rows = toList(new ReportGridRows(DEFINITION, FIXED_COLS, INSTANCE, false));
+
+        assertEquals(asList("yes", "because", ReportGridRows.REDACTED), rows.get(1).v2);
+    }
+
+
+    @Test
+    void rowsAreOnlyBuiltWhenRequested() {
+        ReportGridRows rows = new ReportGridRows(DEFINITION, FIXED_COLS, INSTANCE, true);
+
+        assertEquals(2, rows.size());
+        assertNotSame(rows.iterator().next().v2, rows.iterator().next().v2);
+    }
+
+
+    @Test
+    void unsupportedColumnKindsAreRejectedUpFront() {
+        ReportGridFixedColumnDefinition badCol = ImmutableReportGridFixedColumnDefinition
+                .copyOf(COST_COL)
+                .withColumnEntityKind(EntityKind.ACTOR);
+
+        assertThrows(
+                IllegalArgumentException.class,
+                () -> new ReportGridRows(DEFINITION, asList(tuple(badCol, ColumnCommentary.NO_COMMENTARY)), INSTANCE, true));
+    }
+
+
+    @Test
+    void streamedJsonMatchesSerialisedModel() throws Exception {
+        ReportGrid grid = ImmutableReportGrid.builder()
+                .definition(DEFINITION)
+                .instance(INSTANCE)
+                .build();
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new DynamicJSONFormatter(new FormatterUtils()).format(
+                "test",
+                grid,
+                FIXED_COLS,
+                new ReportGridRows(DEFINITION, FIXED_COLS, INSTANCE, true),
+                out);
+
+        ReportGridJSON expected = ImmutableReportGridJSON.builder()
+                .id("GRID")
+                .apiTypes(new ApiTypes())
+                .name("grid")
+                .grid(ImmutableGrid.builder()
+                        .addRows(
+                                ImmutableRow.builder()
+                                        .id(KeyCell.fromSubject(mkSubject(2L, "aardvark")))
+                                        .addCells(ImmutableCellValue.builder().name("question").value("no").build())
+                                        .build(),
+                                ImmutableRow.builder()
+                                        .id(KeyCell.fromSubject(mkSubject(1L, "zebra")))
+                                        .addCells(
+                                                ImmutableCellValue.builder().name("question").value("yes").comment("because").build(),
+                                                ImmutableCellValue.builder().name("cost").value("10").build())
+                                        .build())
+                        .build())
+                .build();
+
+        String expectedJson = new ObjectMapper()
+                .registerModule(new Jdk8Module())
+                .writerWithDefaultPrettyPrinter()
+                .writeValueAsString(expected);
+
+        assertEquals(expectedJson, new String(out.toByteArray(), StandardCharsets.UTF_8));
+    }
+
+
+    // -- helpers
+
+    private static ReportSubject mkSubject(long id, String name) {
+        return ImmutableReportSubject.builder()
+                .entityReference(mkRef(EntityKind.APPLICATION, id, name))
+                .lifecyclePhase(LifecyclePhase.PRODUCTION)
+                .build();
+    }
+
+
+    private static List<Tuple2<ReportSubject, List<Object>>> toList(Iterable<Tuple2<ReportSubject, List<Object>>> rows) {
+        List<Tuple2<ReportSubject, List<Object>>> result = new ArrayList<>();
+        rows.forEach(result::add);
+        return Collections.unmodifiableList(result);
+    }
+}